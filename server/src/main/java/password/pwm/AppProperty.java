@@ -35,10 +35,19 @@ public enum AppProperty
     APPLICATION_FILELOCK_WAIT_SECONDS               ( "application.fileLock.waitSeconds" ),
     APPLICATION_READ_APP_LOCK_MAX_WAIT_MS           ( "application.readAppLock.maxWaitMs" ),
     APPLICATION_RESTART_MAX_REQUEST_WAIT_MS         ( "application.restart.maxRequestWaitMs" ),
+    APPLICATION_SERVICE_STARTUP_MAX_THREADS         ( "application.serviceStartup.maxThreads" ),
+    APPLICATION_SERVICE_STARTUP_BACKGROUND_ENABLE   ( "application.serviceStartup.background.enable" ),
+    APPLICATION_SERVICE_STARTUP_BACKGROUND_CLOSE_WAIT_MS ( "application.serviceStartup.background.closeWaitMs" ),
     APPLICATION_WORDLIST_RETRY_SECONDS              ( "application.wordlistRetryImportSeconds" ),
     AUDIT_EVENTS_EMAILFROM                          ( "audit.events.emailFrom" ),
     AUDIT_EVENTS_EMAILSUBJECT                       ( "audit.events.emailSubject" ),
     AUDIT_EVENTS_LOCALDB_MAX_BULK_REMOVALS          ( "audit.events.localdb.maxBulkRemovals" ),
+    AUDIT_USER_HISTORY_COALESCE_WINDOW_MS           ( "audit.userHistory.coalesceWindowMs" ),
+    AUDIT_USER_HISTORY_MAX_PENDING_RECORDS          ( "audit.userHistory.maxPendingRecords" ),
+    AUDIT_VAULT_SEGMENT_MAX_RECORDS                 ( "audit.vault.segment.maxRecords" ),
+    AUDIT_VAULT_SEGMENT_MAX_AGE_SECONDS             ( "audit.vault.segment.maxAgeSeconds" ),
+    AUDIT_SYSLOG_CONNECT_TIMEOUT_MS                 ( "audit.syslog.connectTimeoutMs" ),
+    AUDIT_SYSLOG_IO_TIMEOUT_MS                      ( "audit.syslog.ioTimeoutMs" ),
     AUDIT_SYSLOG_CEF_TIMEZONE                       ( "audit.syslog.cef.timezone" ),
     AUDIT_SYSLOG_CEF_HEADER_PRODUCT                 ( "audit.syslog.cef.header.product" ),
     AUDIT_SYSLOG_CEF_HEADER_SEVERITY                ( "audit.syslog.cef.header.severity" ),
@@ -79,6 +88,8 @@ public enum AppProperty
     CONFIG_GUIDE_IDLE_TIMEOUT                       ( "configGuide.idleTimeoutSeconds" ),
     CONFIG_MANAGER_ZIPDEBUG_MAXLOGBYTES             ( "configManager.zipDebug.maxLogBytes" ),
     CONFIG_MANAGER_ZIPDEBUG_MAXLOGSECONDS           ( "configManager.zipDebug.maxLogSeconds" ),
+    CONFIG_MANAGER_ZIPDEBUG_MAX_ITEM_BYTES          ( "configManager.zipDebug.maxItemBytes" ),
+    CONFIG_MANAGER_ZIPDEBUG_TIME_BUDGET_SECONDS     ( "configManager.zipDebug.timeBudgetSeconds" ),
     CLUSTER_DB_ENABLE                               ( "cluster.db.enable" ),
     CLUSTER_DB_HEARTBEAT_SECONDS                    ( "cluster.db.heartbeatSeconds" ),
     CLUSTER_DB_NODE_TIMEOUT_SECONDS                 ( "cluster.db.nodeTimeoutSeconds" ),
@@ -86,10 +97,24 @@ public enum AppProperty
     CLUSTER_LDAP_HEARTBEAT_SECONDS                  ( "cluster.ldap.heartbeatSeconds" ),
     CLUSTER_LDAP_NODE_TIMEOUT_SECONDS               ( "cluster.ldap.nodeTimeoutSeconds" ),
     CLUSTER_LDAP_NODE_PURGE_SECONDS                 ( "cluster.ldap.nodePurgeSeconds" ),
+    CLUSTER_GOSSIP_ENABLE                           ( "cluster.gossip.enable" ),
+    CLUSTER_GOSSIP_LISTEN_ADDRESS                   ( "cluster.gossip.listenAddress" ),
+    CLUSTER_GOSSIP_ADVERTISE_ADDRESS                ( "cluster.gossip.advertiseAddress" ),
+    CLUSTER_GOSSIP_PEERS                            ( "cluster.gossip.peers" ),
+    CLUSTER_GOSSIP_PROTOCOL_PERIOD_MS               ( "cluster.gossip.protocolPeriodMs" ),
+    CLUSTER_GOSSIP_PING_TIMEOUT_MS                  ( "cluster.gossip.pingTimeoutMs" ),
+    CLUSTER_GOSSIP_INDIRECT_PROBES                  ( "cluster.gossip.indirectProbes" ),
+    CLUSTER_GOSSIP_SUSPECT_TIMEOUT_MS               ( "cluster.gossip.suspectTimeoutMs" ),
+    CLUSTER_GOSSIP_LEASE_DURATION_MS                ( "cluster.gossip.leaseDurationMs" ),
+    CLUSTER_GOSSIP_REPLAY_WINDOW_MS                 ( "cluster.gossip.replayWindowMs" ),
     DB_JDBC_LOAD_STRATEGY                           ( "db.jdbcLoadStrategy" ),
     DB_CONNECTIONS_MAX                              ( "db.connections.max" ),
     DB_CONNECTIONS_TIMEOUT_MS                       ( "db.connections.timeoutMs" ),
     DB_CONNECTIONS_WATCHDOG_FREQUENCY_SECONDS       ( "db.connections.watchdogFrequencySeconds" ),
+    DB_CONNECTIONS_STATEMENT_CACHE_SIZE             ( "db.connections.statementCacheSize" ),
+    DB_CONNECTIONS_VALIDATION_INTERVAL_SECONDS      ( "db.connections.validationIntervalSeconds" ),
+    DB_BATCH_MAX_SIZE                               ( "db.batch.maxSize" ),
+    DB_ITERATOR_PAGE_SIZE                           ( "db.iterator.pageSize" ),
     DB_INIT_HALT_ON_INDEX_CREATE_ERROR              ( "db.init.haltOnIndexCreateError" ),
     DB_SCHEMA_KEY_LENGTH                            ( "db.schema.keyLength" ),
     DOWNLOAD_FILENAME_STATISTICS_CSV                ( "download.filename.statistics.csv" ),
@@ -109,6 +134,9 @@ public enum AppProperty
     HTTP_RESOURCES_ENABLE_PATH_NONCE                ( "http.resources.pathNonceEnable" ),
     HTTP_RESOURCES_NONCE_PATH_PREFIX                ( "http.resources.pathNoncePrefix" ),
     HTTP_RESOURCES_ZIP_FILES                        ( "http.resources.zipFiles" ),
+    HTTP_RESOURCES_INDEX_ENABLE                     ( "http.resources.index.enable" ),
+    HTTP_RESOURCES_INDEX_MAX_BYTES                  ( "http.resources.index.maxBytes" ),
+    HTTP_RESOURCES_IMMUTABLE_EXPIRATION_SECONDS     ( "http.resources.immutableExpirationSeconds" ),
     HTTP_COOKIE_DEFAULT_SECURE_FLAG                 ( "http.cookie.default.secureFlag" ),
     HTTP_COOKIE_HTTPONLY_ENABLE                     ( "http.cookie.httponly.enable" ),
     HTTP_COOKIE_THEME_NAME                          ( "http.cookie.theme.name" ),
@@ -117,6 +145,7 @@ public enum AppProperty
     HTTP_COOKIE_AUTHRECORD_NAME                     ( "http.cookie.authRecord.name" ),
     HTTP_COOKIE_AUTHRECORD_AGE                      ( "http.cookie.authRecord.age" ),
     HTTP_COOKIE_MAX_READ_LENGTH                     ( "http.cookie.maxReadLength" ),
+    HTTP_COOKIE_BEAN_COMPRESSION_THRESHOLD          ( "http.cookie.bean.compressionThreshold" ),
     HTTP_COOKIE_CAPTCHA_SKIP_NAME                   ( "http.cookie.captchaSkip.name" ),
     HTTP_COOKIE_CAPTCHA_SKIP_AGE                    ( "http.cookie.captchaSkip.age" ),
     HTTP_COOKIE_LOGIN_NAME                          ( "http.cookie.login.name" ),
@@ -170,6 +199,8 @@ public enum AppProperty
     HTTP_PARAM_OAUTH_GRANT_TYPE                     ( "http.parameter.oauth.grantType" ),
     HTTP_DOWNLOAD_BUFFER_SIZE                       ( "http.download.buffer.size" ),
     HTTP_SESSION_RECYCLE_AT_AUTH                    ( "http.session.recycleAtAuth" ),
+    HTTP_SESSION_TRACK_HISTORY_SIZE                 ( "http.session.track.historySize" ),
+    HTTP_SESSION_TRACK_SIZE_SAMPLE_COUNT            ( "http.session.track.sizeSampleCount" ),
     HTTP_SERVLET_ENABLE_POST_REDIRECT_GET           ( "http.servlet.enablePostRedirectGet" ),
     L10N_RTL_REGEX                                  ( "l10n.rtl.regex" ),
     LOCALDB_AGGRESSIVE_COMPACT_ENABLED              ( "localdb.aggressiveCompact.enabled" ),
@@ -199,6 +230,8 @@ public enum AppProperty
     HEALTHCHECK_MIN_CHECK_INTERVAL                  ( "healthCheck.minimumCheckIntervalSeconds" ),
     HEALTHCHECK_MAX_RECORD_AGE                      ( "healthCheck.maximumRecordAgeSeconds" ),
     HEALTHCHECK_MAX_FORCE_WAIT                      ( "healthCheck.maximumForceCheckWaitSeconds" ),
+    HEALTHCHECK_CHECK_TIMEOUT                       ( "healthCheck.checkTimeoutSeconds" ),
+    HEALTHCHECK_MAX_THREADS                         ( "healthCheck.maxThreads" ),
     HEALTH_SUPPORT_BUNDLE_WRITE_INTERVAL_SECONDS    ( "health.supportBundle.file.writeIntervalSeconds" ),
     HEALTH_SUPPORT_BUNDLE_FILE_WRITE_COUNT          ( "health.supportBundle.file.writeRetentionCount" ),
     HEALTH_DISK_MIN_FREE_WARNING                    ( "health.disk.minFreeWarning" ),
@@ -279,6 +312,7 @@ public enum AppProperty
     OTP_QR_IMAGE_HEIGHT                             ( "otp.qrImage.height" ),
     OTP_QR_IMAGE_WIDTH                              ( "otp.qrImage.width" ),
     OTP_ENCRYPTION_ALG                              ( "otp.encryptionAlg" ),
+    OTP_VERIFY_CACHE_SIZE                           ( "otp.verify.cacheSize" ),
     PASSWORD_RANDOMGEN_MAX_ATTEMPTS                 ( "password.randomGenerator.maxAttempts" ),
     PASSWORD_RANDOMGEN_MAX_LENGTH                   ( "password.randomGenerator.maxLength" ),
     PASSWORD_RANDOMGEN_JITTER_COUNT                 ( "password.randomGenerator.jitter.count" ),
@@ -289,6 +323,9 @@ public enum AppProperty
     PASSWORD_STRENGTH_THRESHOLD_GOOD                ( "password.strength.threshold.good" ),
     PASSWORD_STRENGTH_THRESHOLD_WEAK                ( "password.strength.threshold.weak" ),
     PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK           ( "password.strength.threshold.veryWeak" ),
+    PASSWORD_STRENGTH_CACHE_SIZE                    ( "password.strength.cacheSize" ),
+    PASSWORD_STRENGTH_ZXCVBN_SEED_WORDS             ( "password.strength.zxcvbn.seedWords" ),
+    PASSWORD_STRENGTH_ZXCVBN_USER_INPUTS            ( "password.strength.zxcvbn.userInputs" ),
     PASSWORD_RULE_WORDLIST_FAIL_WHEN_CLOSED         ( "password.rule.wordlist.failWhenClosed" ),
     PHOTO_CLIENT_CACHE_SECONDS                      ( "photo.clientCacheTimeSeconds" ),
     PHOTO_INTERNAL_HTTP_PROXY_ENABLE                ( "photo.internalHttpProxy.enable" ),
@@ -311,17 +348,28 @@ public enum AppProperty
     QUEUE_EMAIL_MAX_THREADS                         ( "queue.email.maxThreads" ),
     QUEUE_EMAIL_MAX_ITEMS_PER_CONNECTION            ( "queue.email.maxItemsPerConnection" ),
     QUEUE_EMAIL_MAX_SECONDS_PER_CONNECTION          ( "queue.email.maxSecondsPerConnection" ),
+    QUEUE_EMAIL_WORKER_THREADS                      ( "queue.email.workerThreads" ),
+    QUEUE_EMAIL_BATCH_SIZE                          ( "queue.email.batchSize" ),
+    QUEUE_EMAIL_CONNECTION_VALIDATE_IDLE_SECONDS    ( "queue.email.connectionValidateIdleSeconds" ),
     QUEUE_SMS_RETRY_TIMEOUT_MS                      ( "queue.sms.retryTimeoutMs" ),
     QUEUE_SMS_MAX_COUNT                             ( "queue.sms.maxCount" ),
+    QUEUE_SMS_WORKER_THREADS                        ( "queue.sms.workerThreads" ),
     QUEUE_SYSLOG_RETRY_TIMEOUT_MS                   ( "queue.syslog.retryTimeoutMs" ),
     QUEUE_SYSLOG_MAX_AGE_MS                         ( "queue.syslog.maxAgeMs" ),
     QUEUE_SYSLOG_MAX_COUNT                          ( "queue.syslog.maxCount" ),
+    QUEUE_SYSLOG_BATCH_SIZE                         ( "queue.syslog.batchSize" ),
+    QUEUE_SYSLOG_WORKER_THREADS                     ( "queue.syslog.workerThreads" ),
     RECAPTCHA_CLIENT_JS_URL                         ( "recaptcha.clientJsUrl" ),
     RECAPTCHA_CLIENT_IFRAME_URL                     ( "recaptcha.clientIframeUrl" ),
     RECAPTCHA_VALIDATE_URL                          ( "recaptcha.validateUrl" ),
     REPORTING_LDAP_SEARCH_TIMEOUT_MS                ( "reporting.ldap.searchTimeoutMs" ),
     REPORTING_LDAP_SEARCH_THREADS                   ( "reporting.ldap.searchThreads" ),
     REPORTING_MAX_REPORT_AGE_SECONDS                ( "reporting.maxReportAgeSeconds" ),
+    SCHEDULER_IO_BOUND_MAX_THREADS                  ( "scheduler.ioBound.maxThreads" ),
+    SCHEDULER_IO_BOUND_VIRTUAL_THREADS              ( "scheduler.ioBound.virtualThreads" ),
+    SCHEDULER_CPU_BOUND_MAX_THREADS                 ( "scheduler.cpuBound.maxThreads" ),
+    SCHEDULER_MAINTENANCE_MAX_THREADS               ( "scheduler.maintenance.maxThreads" ),
+    SCHEDULER_EXECUTOR_MAX_QUEUE_SIZE               ( "scheduler.executor.maxQueueSize" ),
     SECURITY_STRIP_INLINE_JAVASCRIPT                ( "security.html.stripInlineJavascript" ),
     SECURITY_HTTP_FORCE_REQUEST_SEQUENCING          ( "security.http.forceRequestSequencing" ),
     SECURITY_HTTP_STRIP_HEADER_REGEX                ( "security.http.stripHeaderRegex" ),
@@ -347,12 +395,18 @@ public enum AppProperty
     SECURITY_DEFAULT_EPHEMERAL_BLOCK_ALG            ( "security.defaultEphemeralBlockAlg" ),
     SECURITY_DEFAULT_EPHEMERAL_HASH_ALG             ( "security.defaultEphemeralHashAlg" ),
     SECURITY_DEFAULT_EPHEMERAL_HMAC_ALG             ( "security.defaultEphemeralHmacAlg" ),
+    SECURITY_PASSWORD_HASH_ALGORITHM                ( "security.passwordHash.algorithm" ),
+    SECURITY_PASSWORD_HASH_TARGET_MS                ( "security.passwordHash.targetVerifyMs" ),
+    SECURITY_PASSWORD_HASH_MAX_CONCURRENT           ( "security.passwordHash.maxConcurrent" ),
+    SECURITY_PASSWORD_HASH_MAX_WAIT_MS              ( "security.passwordHash.maxWaitMs" ),
     SEEDLIST_BUILTIN_PATH                           ( "seedlist.builtin.path" ),
     SMTP_IO_CONNECT_TIMEOUT                         ( "smtp.io.connectTimeoutMs" ),
     SMTP_IO_READ_TIMEOUT                            ( "smtp.io.readTimeoutMs" ),
     SMTP_SUBJECT_ENCODING_CHARSET                   ( "smtp.subjectEncodingCharset" ),
     SMTP_RETRYABLE_SEND_RESPONSE_STATUSES           ( "smtp.retryableSendResponseStatus" ),
     TOKEN_CLEANER_INTERVAL_SECONDS                  ( "token.cleaner.intervalSeconds" ),
+    TOKEN_EXPIRY_INDEX_BUCKET_SECONDS               ( "token.expiryIndex.bucketSeconds" ),
+    TOKEN_EXPIRY_INDEX_FULL_SWEEP_SECONDS           ( "token.expiryIndex.fullSweepSeconds" ),
     TOKEN_MASK_EMAIL_REGEX                          ( "token.mask.email.regex" ),
     TOKEN_MASK_EMAIL_REPLACE                        ( "token.mask.email.replace" ),
     TOKEN_MASK_SHOW_SELECTION                       ( "token.mask.showSelection" ),
@@ -810,6 +810,17 @@ public class PwmApplication
         return Collections.unmodifiableList( pwmServices );
     }
 
+    public List<PwmServiceManager.InitializationStats> getServiceInitializationStats( )
+    {
+        final List<PwmServiceManager.InitializationStats> stats = new ArrayList<>();
+        stats.add( pwmServiceManager.getInitializationStats() );
+        for ( final PwmDomain pwmDomain : domains().values() )
+        {
+            stats.add( pwmDomain.getServiceInitializationStats() );
+        }
+        return Collections.unmodifiableList( stats );
+    }
+
     public Map<DomainID, List<PwmService>> getAppAndDomainPwmServices( )
     {
         final Map<DomainID, List<PwmService>> pwmServices = new LinkedHashMap<>();
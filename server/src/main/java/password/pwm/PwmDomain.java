@@ -52,6 +52,7 @@ import password.pwm.util.DailySummaryJob;
 import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.password.PasswordStrengthEngine;
 import password.pwm.svc.cr.CrService;
 import password.pwm.svc.otp.OtpService;
 
@@ -59,6 +60,8 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A repository for objects common to the servlet context.  A singleton
@@ -76,6 +79,9 @@ public class PwmDomain
 
     private final PwmServiceManager pwmServiceManager;
 
+    private final Lock passwordStrengthEngineLock = new ReentrantLock();
+    private volatile PasswordStrengthEngine passwordStrengthEngine;
+
     public PwmDomain( final PwmApplication pwmApplication, final DomainID domainID )
     {
         this.pwmApplication = Objects.requireNonNull( pwmApplication );
@@ -94,7 +100,7 @@ public class PwmDomain
         pwmServiceManager.initAllServices();
 
         {
-            final ExecutorService executorService = PwmScheduler.makeSingleThreadExecutorService( getPwmApplication(), DailySummaryJob.class );
+            final ExecutorService executorService = PwmScheduler.makeBackgroundExecutor( getPwmApplication(), DailySummaryJob.class );
             pwmApplication.getPwmScheduler().scheduleDailyZuluZeroStartJob( new DailySummaryJob( this ), executorService, TimeDuration.ZERO );
         }
 
@@ -192,6 +198,11 @@ public class PwmDomain
         return pwmServiceManager.getRunningServices();
     }
 
+    public PwmServiceManager.InitializationStats getServiceInitializationStats( )
+    {
+        return pwmServiceManager.getInitializationStats();
+    }
+
     public UserSearchEngine getUserSearchEngine()
     {
         return ( UserSearchEngine ) pwmServiceManager.getService( PwmServiceEnum.UserSearchEngine );
@@ -237,6 +248,33 @@ public class PwmDomain
         return ( UserHistoryService ) pwmServiceManager.getService( PwmServiceEnum.UserHistoryService );
     }
 
+    /**
+     * The domain's shared strength engine.  An engine created while the seed list was unavailable is replaced once the
+     * seed list can be read.
+     */
+    public PasswordStrengthEngine getPasswordStrengthEngine()
+    {
+        final PasswordStrengthEngine engine = passwordStrengthEngine;
+        if ( engine != null && !engine.isRebuildDue( this ) )
+        {
+            return engine;
+        }
+
+        passwordStrengthEngineLock.lock();
+        try
+        {
+            if ( passwordStrengthEngine == engine )
+            {
+                passwordStrengthEngine = PasswordStrengthEngine.create( this );
+            }
+            return passwordStrengthEngine;
+        }
+        finally
+        {
+            passwordStrengthEngineLock.unlock();
+        }
+    }
+
     public void shutdown()
     {
         LOGGER.trace( () -> "beginning shutdown domain " + domainID.stringValue() );
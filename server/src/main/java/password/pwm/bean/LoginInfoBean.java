@@ -118,7 +118,7 @@ public class LoginInfoBean implements Serializable
 
     public String toDebugString( ) throws PwmUnrecoverableException
     {
-        final LoginInfoBean debugLoginCookieBean = JsonUtil.cloneUsingJson( this, LoginInfoBean.class );
+        final LoginInfoBean debugLoginCookieBean = JsonUtil.deepCopy( this );
         debugLoginCookieBean.setUserCurrentPassword( new PasswordData( PwmConstants.LOG_REMOVED_VALUE_REPLACEMENT ) );
         return JsonUtil.serialize( debugLoginCookieBean );
     }
@@ -42,6 +42,7 @@ import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.LazySupplier;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.password.PasswordPolicyEvaluator;
 import password.pwm.util.password.PasswordRuleReaderHelper;
 
 import java.io.Serializable;
@@ -75,6 +76,8 @@ public class PwmPasswordPolicy implements Profile, Serializable
 
     private final transient Supplier<List<HealthRecord>> healthChecker = new LazySupplier<>( () -> doHealthChecks( this ) );
     private final transient ChaiPasswordPolicy chaiPasswordPolicy;
+    private transient volatile PasswordRuleReaderHelper ruleHelper;
+    private transient volatile PasswordPolicyEvaluator policyEvaluator;
 
     private final DomainID domainID;
     private final Map<String, String> policyMap;
@@ -289,7 +292,21 @@ public class PwmPasswordPolicy implements Profile, Serializable
 
     public PasswordRuleReaderHelper getRuleHelper( )
     {
-        return new PasswordRuleReaderHelper( this );
+        // the policy is immutable, so a racing duplicate initialization is harmless
+        if ( ruleHelper == null )
+        {
+            ruleHelper = new PasswordRuleReaderHelper( this );
+        }
+        return ruleHelper;
+    }
+
+    public PasswordPolicyEvaluator getPolicyEvaluator( )
+    {
+        if ( policyEvaluator == null )
+        {
+            policyEvaluator = PasswordPolicyEvaluator.compile( this );
+        }
+        return policyEvaluator;
     }
 
     public String getValue( final PwmPasswordRule rule )
@@ -0,0 +1,528 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.config.stored;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.PwmSettingSyntax;
+import password.pwm.config.value.StoredValue;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Inverted indexes used by {@link ConfigSearchMachine}.  Setting keys, labels, descriptions, menu locations and options
+ * are indexed once per locale.  Stored values are indexed once per {@link StoredConfiguration} revision; when a revision
+ * was produced by {@link StoredConfigurationModifier} from an already indexed revision, only the changed values are
+ * re-indexed.
+ */
+class ConfigSearchIndex
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( ConfigSearchIndex.class );
+
+    static final int WEIGHT_KEY = 8;
+    static final int WEIGHT_LABEL = 8;
+    static final int WEIGHT_VALUE = 5;
+    static final int WEIGHT_MENU_LOCATION = 4;
+    static final int WEIGHT_OPTION = 3;
+    static final int WEIGHT_DESCRIPTION = 2;
+
+    private static final int MATCH_EXACT = 4;
+    private static final int MATCH_PREFIX = 3;
+    private static final int MATCH_SUBSTRING = 2;
+    private static final int MATCH_FUZZY = 1;
+
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private static final Map<Locale, TokenIndex<PwmSetting>> SETTING_INDEXES = new ConcurrentHashMap<>();
+
+    private static final Cache<StoredConfiguration, Map<Locale, ValueIndex>> VALUE_INDEXES = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    private static final Cache<StoredConfiguration, StoredConfiguration> PARENT_REVISIONS = Caffeine.newBuilder()
+            .weakKeys()
+            .weakValues()
+            .build();
+
+    private final TokenIndex<PwmSetting> settingIndex;
+    private final ValueIndex valueIndex;
+
+    private ConfigSearchIndex( final TokenIndex<PwmSetting> settingIndex, final ValueIndex valueIndex )
+    {
+        this.settingIndex = settingIndex;
+        this.valueIndex = valueIndex;
+    }
+
+    static ConfigSearchIndex forConfiguration( final StoredConfiguration storedConfiguration, final Locale locale )
+    {
+        final TokenIndex<PwmSetting> settingIndex = SETTING_INDEXES.computeIfAbsent( locale, ConfigSearchIndex::makeSettingIndex );
+        return new ConfigSearchIndex( settingIndex, valueIndex( storedConfiguration, locale ) );
+    }
+
+    /**
+     * Record that a revision was derived from another, so its value index can be derived from the parent's index.
+     */
+    static void recordRevision( final StoredConfiguration parent, final StoredConfiguration revision )
+    {
+        if ( parent != null && parent != revision
+                && ( VALUE_INDEXES.getIfPresent( parent ) != null || PARENT_REVISIONS.getIfPresent( parent ) != null ) )
+        {
+            PARENT_REVISIONS.put( revision, parent );
+        }
+    }
+
+    /**
+     * Matching keys for all the search terms, in descending order of score.
+     */
+    List<StoredConfigKey> search( final Collection<String> searchTerms )
+    {
+        Map<StoredConfigKey, Integer> totalScores = null;
+
+        for ( final String searchTerm : searchTerms )
+        {
+            for ( final String token : tokenize( searchTerm ) )
+            {
+                final Map<StoredConfigKey, Integer> tokenScores = scoreToken( token );
+                if ( totalScores == null )
+                {
+                    totalScores = tokenScores;
+                }
+                else
+                {
+                    totalScores.keySet().retainAll( tokenScores.keySet() );
+                    totalScores.replaceAll( ( key, score ) -> score + tokenScores.get( key ) );
+                }
+
+                if ( totalScores.isEmpty() )
+                {
+                    return Collections.emptyList();
+                }
+            }
+        }
+
+        if ( totalScores == null )
+        {
+            return Collections.emptyList();
+        }
+
+        final Map<StoredConfigKey, Integer> finalScores = totalScores;
+        final List<StoredConfigKey> results = new ArrayList<>( finalScores.keySet() );
+        results.sort( ( o1, o2 ) ->
+        {
+            final int scoreCompare = Integer.compare( finalScores.get( o2 ), finalScores.get( o1 ) );
+            return scoreCompare != 0 ? scoreCompare : o1.compareTo( o2 );
+        } );
+        return results;
+    }
+
+    private Map<StoredConfigKey, Integer> scoreToken( final String token )
+    {
+        final Map<StoredConfigKey, Integer> scores = new HashMap<>();
+
+        settingIndex.match( token ).forEach( ( pwmSetting, score ) ->
+        {
+            for ( final StoredConfigKey key : valueIndex.keysBySetting.getOrDefault( pwmSetting, Collections.emptyList() ) )
+            {
+                scores.merge( key, score, Math::max );
+            }
+        } );
+
+        valueIndex.tokenIndex.match( token ).forEach( ( key, score ) -> scores.merge( key, score, Math::max ) );
+
+        return scores;
+    }
+
+    static List<String> tokenize( final String text )
+    {
+        if ( text == null || text.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<String> tokens = new ArrayList<>();
+        final String lowerText = text.toLowerCase();
+        int start = -1;
+        for ( int i = 0; i <= lowerText.length(); i++ )
+        {
+            final boolean tokenChar = i < lowerText.length() && Character.isLetterOrDigit( lowerText.charAt( i ) );
+            if ( tokenChar && start < 0 )
+            {
+                start = i;
+            }
+            else if ( !tokenChar && start >= 0 )
+            {
+                tokens.add( lowerText.substring( start, i ) );
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    static boolean isSearchable( final PwmSetting pwmSetting )
+    {
+        return !pwmSetting.isHidden() && !pwmSetting.getCategory().isHidden();
+    }
+
+    private static TokenIndex<PwmSetting> makeSettingIndex( final Locale locale )
+    {
+        final Instant startTime = Instant.now();
+        final TokenIndex.Builder<PwmSetting> builder = new TokenIndex.Builder<>();
+        for ( final PwmSetting pwmSetting : PwmSetting.values() )
+        {
+            if ( isSearchable( pwmSetting ) )
+            {
+                builder.add( pwmSetting, settingTokens( pwmSetting, locale ) );
+            }
+        }
+        final TokenIndex<PwmSetting> tokenIndex = builder.build();
+        LOGGER.trace( () -> "built config search setting index for locale " + locale + " with " + tokenIndex.tokenCount() + " tokens",
+                () -> TimeDuration.fromCurrent( startTime ) );
+        return tokenIndex;
+    }
+
+    private static Map<String, Integer> settingTokens( final PwmSetting pwmSetting, final Locale locale )
+    {
+        final Map<String, Integer> tokens = new HashMap<>();
+        addTokens( tokens, pwmSetting.getKey(), WEIGHT_KEY );
+        addTokens( tokens, pwmSetting.getLabel( locale ), WEIGHT_LABEL );
+        addTokens( tokens, pwmSetting.toMenuLocationDebug( null, locale ), WEIGHT_MENU_LOCATION );
+        addTokens( tokens, pwmSetting.getDescription( locale ), WEIGHT_DESCRIPTION );
+
+        if ( PwmSettingSyntax.SELECT == pwmSetting.getSyntax()
+                || PwmSettingSyntax.OPTIONLIST == pwmSetting.getSyntax()
+                || PwmSettingSyntax.VERIFICATION_METHOD == pwmSetting.getSyntax()
+        )
+        {
+            for ( final Map.Entry<String, String> entry : pwmSetting.getOptions().entrySet() )
+            {
+                addTokens( tokens, entry.getKey(), WEIGHT_OPTION );
+                addTokens( tokens, entry.getValue(), WEIGHT_OPTION );
+            }
+        }
+        return tokens;
+    }
+
+    private static void addTokens( final Map<String, Integer> tokens, final String text, final int weight )
+    {
+        for ( final String token : tokenize( text ) )
+        {
+            tokens.merge( token, weight, Math::max );
+        }
+    }
+
+    private static ValueIndex valueIndex( final StoredConfiguration storedConfiguration, final Locale locale )
+    {
+        final Map<Locale, ValueIndex> localeIndexes = VALUE_INDEXES.get( storedConfiguration, k -> new ConcurrentHashMap<>() );
+        return localeIndexes.computeIfAbsent( locale, l -> makeValueIndex( storedConfiguration, l ) );
+    }
+
+    private static ValueIndex makeValueIndex( final StoredConfiguration storedConfiguration, final Locale locale )
+    {
+        final Instant startTime = Instant.now();
+
+        StoredConfiguration ancestor = PARENT_REVISIONS.getIfPresent( storedConfiguration );
+        while ( ancestor != null )
+        {
+            final Map<Locale, ValueIndex> ancestorIndexes = VALUE_INDEXES.getIfPresent( ancestor );
+            final ValueIndex ancestorIndex = ancestorIndexes == null ? null : ancestorIndexes.get( locale );
+            if ( ancestorIndex != null )
+            {
+                final ValueIndex derivedIndex = ancestorIndex.derive( storedConfiguration, locale );
+                LOGGER.trace( () -> "derived config search value index from previous revision", () -> TimeDuration.fromCurrent( startTime ) );
+                return derivedIndex;
+            }
+            ancestor = PARENT_REVISIONS.getIfPresent( ancestor );
+        }
+
+        final ValueIndex valueIndex = ValueIndex.build( storedConfiguration, locale );
+        LOGGER.trace( () -> "built config search value index with " + valueIndex.indexedValues.size() + " values",
+                () -> TimeDuration.fromCurrent( startTime ) );
+        return valueIndex;
+    }
+
+    /**
+     * Searchable stored setting values of one configuration revision.  The values themselves are retained so a later
+     * revision can find changed values by identity, since the modifier keeps unchanged value instances.
+     */
+    private static class ValueIndex
+    {
+        private final Map<StoredConfigKey, StoredValue> indexedValues;
+        private final Map<PwmSetting, List<StoredConfigKey>> keysBySetting;
+        private final TokenIndex<StoredConfigKey> tokenIndex;
+
+        private ValueIndex(
+                final Map<StoredConfigKey, StoredValue> indexedValues,
+                final TokenIndex<StoredConfigKey> tokenIndex
+        )
+        {
+            this.indexedValues = indexedValues;
+            this.tokenIndex = tokenIndex;
+
+            final Map<PwmSetting, List<StoredConfigKey>> keysBySetting = new HashMap<>();
+            indexedValues.keySet().forEach( key -> keysBySetting.computeIfAbsent( key.toPwmSetting(), k -> new ArrayList<>() ).add( key ) );
+            this.keysBySetting = keysBySetting;
+        }
+
+        static ValueIndex build( final StoredConfiguration storedConfiguration, final Locale locale )
+        {
+            final Map<StoredConfigKey, StoredValue> values = searchableValues( storedConfiguration );
+            final TokenIndex.Builder<StoredConfigKey> builder = new TokenIndex.Builder<>();
+            values.forEach( ( key, value ) -> builder.add( key, valueTokens( key, value, locale ) ) );
+            return new ValueIndex( values, builder.build() );
+        }
+
+        ValueIndex derive( final StoredConfiguration storedConfiguration, final Locale locale )
+        {
+            final Map<StoredConfigKey, StoredValue> values = searchableValues( storedConfiguration );
+
+            final Set<StoredConfigKey> allKeys = new HashSet<>( values.keySet() );
+            allKeys.addAll( indexedValues.keySet() );
+
+            final Set<StoredConfigKey> changedKeys = new HashSet<>();
+            for ( final StoredConfigKey key : allKeys )
+            {
+                if ( values.get( key ) != indexedValues.get( key ) )
+                {
+                    changedKeys.add( key );
+                }
+            }
+
+            final TokenIndex<StoredConfigKey> derivedTokenIndex = tokenIndex.derive( changedKeys, key ->
+            {
+                final StoredValue value = values.get( key );
+                return value == null ? Collections.emptyMap() : valueTokens( key, value, locale );
+            } );
+            return new ValueIndex( values, derivedTokenIndex );
+        }
+
+        private static Map<StoredConfigKey, StoredValue> searchableValues( final StoredConfiguration storedConfiguration )
+        {
+            final Set<StoredConfigKey> possibleKeys = StoredConfigurationUtil.allPossibleSettingKeysForConfiguration( storedConfiguration );
+            final Map<StoredConfigKey, StoredValue> values = new HashMap<>();
+            for ( final StoredConfigKey key : possibleKeys )
+            {
+                if ( isSearchable( key.toPwmSetting() ) )
+                {
+                    storedConfiguration.readStoredValue( key ).ifPresent( value -> values.put( key, value ) );
+                }
+            }
+            return values;
+        }
+
+        private static Map<String, Integer> valueTokens( final StoredConfigKey key, final StoredValue value, final Locale locale )
+        {
+            if ( key.toPwmSetting().isConfidential() )
+            {
+                return Collections.emptyMap();
+            }
+
+            final Map<String, Integer> tokens = new HashMap<>();
+            addTokens( tokens, value.toDebugString( locale ), WEIGHT_VALUE );
+            return tokens;
+        }
+    }
+
+    /**
+     * Immutable map of tokens to the weighted items containing them, sorted by token for prefix lookups.
+     */
+    static class TokenIndex<T>
+    {
+        private final TreeMap<String, Map<T, Integer>> itemsByToken;
+        private final Map<T, Map<String, Integer>> tokensByItem;
+
+        private TokenIndex( final TreeMap<String, Map<T, Integer>> itemsByToken, final Map<T, Map<String, Integer>> tokensByItem )
+        {
+            this.itemsByToken = itemsByToken;
+            this.tokensByItem = tokensByItem;
+        }
+
+        int tokenCount()
+        {
+            return itemsByToken.size();
+        }
+
+        /**
+         * Items with a token matching the search token, scored by the token weight and how closely it matched.
+         */
+        Map<T, Integer> match( final String searchToken )
+        {
+            final Map<T, Integer> results = new HashMap<>();
+
+            addMatches( results, itemsByToken.get( searchToken ), MATCH_EXACT );
+
+            for ( final Map<T, Integer> items : itemsByToken.subMap( searchToken, false, searchToken + Character.MAX_VALUE, false ).values() )
+            {
+                addMatches( results, items, MATCH_PREFIX );
+            }
+
+            final boolean substring = searchToken.length() >= MIN_SUBSTRING_LENGTH;
+            final boolean fuzzy = searchToken.length() >= MIN_FUZZY_LENGTH;
+            if ( substring || fuzzy )
+            {
+                for ( final Map.Entry<String, Map<T, Integer>> entry : itemsByToken.entrySet() )
+                {
+                    final String token = entry.getKey();
+                    if ( !token.startsWith( searchToken ) )
+                    {
+                        if ( substring && token.contains( searchToken ) )
+                        {
+                            addMatches( results, entry.getValue(), MATCH_SUBSTRING );
+                        }
+                        else if ( fuzzy && withinOneEdit( token, searchToken ) )
+                        {
+                            addMatches( results, entry.getValue(), MATCH_FUZZY );
+                        }
+                    }
+                }
+            }
+
+            return results;
+        }
+
+        private static <T> void addMatches( final Map<T, Integer> results, final Map<T, Integer> items, final int matchQuality )
+        {
+            if ( items != null )
+            {
+                items.forEach( ( item, weight ) -> results.merge( item, weight * matchQuality, Math::max ) );
+            }
+        }
+
+        /**
+         * A copy of this index with the tokens of the changed items replaced.  Token entries that are not affected are
+         * shared with this index.
+         */
+        TokenIndex<T> derive( final Collection<T> changedItems, final Function<T, Map<String, Integer>> tokenizer )
+        {
+            final TreeMap<String, Map<T, Integer>> newItemsByToken = new TreeMap<>( itemsByToken );
+            final Map<T, Map<String, Integer>> newTokensByItem = new HashMap<>( tokensByItem );
+            final Set<String> copiedTokens = new HashSet<>();
+
+            final Function<String, Map<T, Integer>> writableItems = token ->
+            {
+                if ( copiedTokens.add( token ) )
+                {
+                    final Map<T, Integer> existing = newItemsByToken.get( token );
+                    newItemsByToken.put( token, existing == null ? new HashMap<>() : new HashMap<>( existing ) );
+                }
+                return newItemsByToken.get( token );
+            };
+
+            for ( final T item : changedItems )
+            {
+                final Map<String, Integer> oldTokens = newTokensByItem.remove( item );
+                if ( oldTokens != null )
+                {
+                    for ( final String token : oldTokens.keySet() )
+                    {
+                        writableItems.apply( token ).remove( item );
+                    }
+                }
+
+                final Map<String, Integer> newTokens = tokenizer.apply( item );
+                if ( !newTokens.isEmpty() )
+                {
+                    newTokensByItem.put( item, newTokens );
+                    newTokens.forEach( ( token, weight ) -> writableItems.apply( token ).put( item, weight ) );
+                }
+            }
+
+            for ( final String token : copiedTokens )
+            {
+                if ( newItemsByToken.get( token ).isEmpty() )
+                {
+                    newItemsByToken.remove( token );
+                }
+            }
+
+            return new TokenIndex<>( newItemsByToken, newTokensByItem );
+        }
+
+        static class Builder<T>
+        {
+            private final TreeMap<String, Map<T, Integer>> itemsByToken = new TreeMap<>();
+            private final Map<T, Map<String, Integer>> tokensByItem = new HashMap<>();
+
+            void add( final T item, final Map<String, Integer> tokens )
+            {
+                if ( !tokens.isEmpty() )
+                {
+                    tokensByItem.put( item, tokens );
+                    tokens.forEach( ( token, weight ) -> itemsByToken.computeIfAbsent( token, k -> new HashMap<>() ).put( item, weight ) );
+                }
+            }
+
+            TokenIndex<T> build()
+            {
+                return new TokenIndex<>( itemsByToken, tokensByItem );
+            }
+        }
+    }
+
+    /**
+     * True if the strings differ by at most one inserted, removed or substituted character.
+     */
+    static boolean withinOneEdit( final String a, final String b )
+    {
+        final int lengthDifference = a.length() - b.length();
+        if ( Math.abs( lengthDifference ) > 1 )
+        {
+            return false;
+        }
+
+        if ( a.equals( b ) )
+        {
+            return true;
+        }
+
+        final String longer = lengthDifference >= 0 ? a : b;
+        final String shorter = lengthDifference >= 0 ? b : a;
+
+        int prefixLength = 0;
+        while ( prefixLength < shorter.length() && longer.charAt( prefixLength ) == shorter.charAt( prefixLength ) )
+        {
+            prefixLength++;
+        }
+
+        final String longerRemainder = longer.substring( prefixLength + 1 );
+        final String shorterRemainder = lengthDifference == 0
+                ? shorter.substring( Math.min( prefixLength + 1, shorter.length() ) )
+                : shorter.substring( prefixLength );
+        return Objects.equals( longerRemainder, shorterRemainder );
+    }
+}
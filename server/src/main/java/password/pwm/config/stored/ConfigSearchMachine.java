@@ -31,7 +31,6 @@ import password.pwm.util.logging.PwmLogger;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Locale;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -68,33 +67,13 @@ public class ConfigSearchMachine
             return Collections.emptySet();
         }
 
-        return StoredConfigurationUtil.allPossibleSettingKeysForConfiguration( storedConfiguration )
-                .parallelStream()
-                .filter( k -> k.getRecordType() == StoredConfigKey.RecordType.SETTING )
+        return ConfigSearchIndex.forConfiguration( storedConfiguration, locale )
+                .search( StringUtil.whitespaceSplit( searchTerm ) )
+                .stream()
                 .filter( k -> CollectionUtil.isEmpty( domainScope ) || domainScope.contains( k.getDomainID() ) )
-                .filter( k -> matchSetting( k, searchTerm ) )
-                .sorted()
                 .collect( Collectors.toCollection( LinkedHashSet::new ) );
     }
 
-    private boolean matchSetting(
-            final StoredConfigKey storedConfigKey,
-            final String searchTerm
-    )
-    {
-        final PwmSetting pwmSetting = storedConfigKey.toPwmSetting();
-        final Optional<StoredValue> value = storedConfiguration.readStoredValue( storedConfigKey );
-
-        if ( value.isEmpty() )
-        {
-            return false;
-        }
-
-        return StringUtil.whitespaceSplit( searchTerm )
-                .parallelStream()
-                .allMatch( s -> matchSetting( pwmSetting, value.get(), s ) );
-    }
-
     private boolean matchSetting(
             final PwmSetting setting,
             final StoredValue value,
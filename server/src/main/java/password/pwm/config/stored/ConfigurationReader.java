@@ -36,13 +36,14 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.svc.event.AuditEvent;
 import password.pwm.svc.event.AuditRecordFactory;
 import password.pwm.svc.event.AuditServiceClient;
+import password.pwm.svc.node.ClusterEvent;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.FileSystemUtility;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -65,6 +66,7 @@ public class ConfigurationReader
     private static final PwmLogger LOGGER = PwmLogger.getLogger( ConfigurationReader.class.getName() );
 
     private final File configFile;
+    private final File snapshotFile;
     private final String configFileChecksum;
     private AppConfig domainConfig;
     private StoredConfiguration storedConfiguration;
@@ -77,6 +79,7 @@ public class ConfigurationReader
     public ConfigurationReader( final File configFile ) throws PwmUnrecoverableException
     {
         this.configFile = configFile;
+        this.snapshotFile = StoredConfigSnapshot.snapshotFileFor( configFile );
 
         this.configFileChecksum = readFileChecksum( configFile );
         try
@@ -133,36 +136,21 @@ public class ConfigurationReader
         final StoredConfiguration storedConfiguration;
         final Instant startTime = Instant.now();
 
-        try ( InputStream theFileData = new BufferedInputStream( Files.newInputStream( configFile.toPath() ), 1024_1024 ) )
+        try
         {
-            try
-            {
-                storedConfiguration = StoredConfigurationFactory.input( theFileData );
-            }
-            catch ( final Exception e )
+            final byte[] configFileData = Files.readAllBytes( configFile.toPath() );
+            final String sourceHash = StoredConfigSnapshot.sourceHash( configFileData );
+            final Optional<StoredConfiguration> snapshotConfiguration = StoredConfigSnapshot.read( snapshotFile, sourceHash );
+
+            if ( snapshotConfiguration.isPresent() )
             {
-                final String errorMsg = "unable to parse configuration file: " + e.getMessage();
-                final ErrorInformation errorInformation = new ErrorInformation( PwmError.CONFIG_FORMAT_ERROR, null, new String[]
-                        {
-                                errorMsg,
-                        }
-                );
-                this.configMode = PwmApplicationMode.ERROR;
-                e.printStackTrace();
-                throw new PwmUnrecoverableException( errorInformation, e );
+                // snapshots are only written for configurations that have passed validation
+                storedConfiguration = snapshotConfiguration.get();
             }
-
-            final List<String> validationErrorMsgs = StoredConfigurationUtil.validateValues( storedConfiguration );
-            if ( !CollectionUtil.isEmpty( validationErrorMsgs ) )
+            else
             {
-                final String errorMsg = "value error in config file, please investigate: " + validationErrorMsgs.get( 0 );
-                final ErrorInformation errorInformation = new ErrorInformation( PwmError.CONFIG_FORMAT_ERROR, null, new String[]
-                        {
-                                errorMsg,
-                        }
-                );
-                this.configMode = PwmApplicationMode.ERROR;
-                throw new PwmUnrecoverableException( errorInformation );
+                storedConfiguration = parseStoredConfig( configFileData );
+                StoredConfigSnapshot.write( snapshotFile, sourceHash, storedConfiguration );
             }
         }
         catch ( final Exception e )
@@ -194,6 +182,43 @@ public class ConfigurationReader
         return storedConfiguration;
     }
 
+    private StoredConfiguration parseStoredConfig( final byte[] configFileData )
+            throws PwmUnrecoverableException
+    {
+        final StoredConfiguration storedConfiguration;
+        try ( InputStream theFileData = new ByteArrayInputStream( configFileData ) )
+        {
+            storedConfiguration = StoredConfigurationFactory.input( theFileData );
+        }
+        catch ( final Exception e )
+        {
+            final String errorMsg = "unable to parse configuration file: " + e.getMessage();
+            final ErrorInformation errorInformation = new ErrorInformation( PwmError.CONFIG_FORMAT_ERROR, null, new String[]
+                    {
+                            errorMsg,
+                    }
+            );
+            this.configMode = PwmApplicationMode.ERROR;
+            e.printStackTrace();
+            throw new PwmUnrecoverableException( errorInformation, e );
+        }
+
+        final List<String> validationErrorMsgs = StoredConfigurationUtil.validateValues( storedConfiguration );
+        if ( !CollectionUtil.isEmpty( validationErrorMsgs ) )
+        {
+            final String errorMsg = "value error in config file, please investigate: " + validationErrorMsgs.get( 0 );
+            final ErrorInformation errorInformation = new ErrorInformation( PwmError.CONFIG_FORMAT_ERROR, null, new String[]
+                    {
+                            errorMsg,
+                    }
+            );
+            this.configMode = PwmApplicationMode.ERROR;
+            throw new PwmUnrecoverableException( errorInformation );
+        }
+
+        return storedConfiguration;
+    }
+
     public void saveConfiguration(
             final StoredConfiguration storedConfiguration,
             final PwmApplication pwmApplication,
@@ -257,6 +282,14 @@ public class ConfigurationReader
         {
             saveInProgress = false;
         }
+
+        // nodes sharing the configuration file reload it without waiting for their next file scan
+        if ( pwmApplication != null && pwmApplication.getNodeService() != null )
+        {
+            pwmApplication.getNodeService().broadcastClusterEvent(
+                    ClusterEvent.Type.configReload,
+                    StoredConfigurationUtil.valueHash( this.storedConfiguration ) );
+        }
     }
 
     private static void auditModifiedSettings( final PwmApplication pwmApplication, final StoredConfiguration newConfig, final SessionLabel sessionLabel )
@@ -0,0 +1,633 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.config.stored;
+
+import password.pwm.PwmConstants;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.PwmSettingSyntax;
+import password.pwm.config.PwmSettingXml;
+import password.pwm.config.value.LocalizedStringValue;
+import password.pwm.config.value.StoredValue;
+import password.pwm.config.value.StoredValueEncoder;
+import password.pwm.config.value.StringValue;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.i18n.PwmLocaleBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.java.XmlDocument;
+import password.pwm.util.java.XmlElement;
+import password.pwm.util.java.XmlFactory;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.PwmSecurityKey;
+import password.pwm.util.secure.SecureEngine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Compiled binary snapshot of a stored configuration, written next to the configuration file after it has been parsed
+ * and validated.  A snapshot is only used when the hash of the configuration file, the build, and the hash of the
+ * setting definitions all match the values recorded when it was written; otherwise the configuration is read from xml.
+ *
+ * <p>The snapshot file is memory mapped when read.  Setting values are kept in their encoded xml value form, so secret
+ * values are no less protected than in the configuration file, and are only decoded when first read.  Every value is
+ * decoded once when the snapshot is written, and stored with a checksum that is verified when the snapshot is read, so
+ * a snapshot that is accepted at startup does not fail later when a value is first decoded.</p>
+ */
+final class StoredConfigSnapshot
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( StoredConfigSnapshot.class );
+
+    static final String SNAPSHOT_FILE_SUFFIX = ".snapshot";
+
+    private static final int MAGIC = 0x50574D43;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String BUILD_ID = PwmConstants.BUILD_VERSION + "-" + PwmConstants.BUILD_NUMBER;
+
+    private static final int META_MODIFY_DATE = 1;
+    private static final int META_USER_IDENTITY = 1 << 1;
+
+    private StoredConfigSnapshot()
+    {
+    }
+
+    static File snapshotFileFor( final File configFile )
+    {
+        return new File( configFile.getAbsolutePath() + SNAPSHOT_FILE_SUFFIX );
+    }
+
+    static String sourceHash( final byte[] configFileData )
+            throws PwmUnrecoverableException
+    {
+        return SecureEngine.hash( configFileData, PwmHashAlgorithm.SHA256 );
+    }
+
+    /**
+     * Read a snapshot, returning empty if the snapshot is missing, unreadable, or was not written for the supplied
+     * source hash by this build.
+     */
+    static Optional<StoredConfiguration> read( final File snapshotFile, final String sourceHash )
+    {
+        if ( sourceHash == null || !snapshotFile.exists() )
+        {
+            return Optional.empty();
+        }
+
+        final Instant startTime = Instant.now();
+        try
+        {
+            final ByteBuffer buffer;
+            try ( FileChannel fileChannel = FileChannel.open( snapshotFile.toPath(), StandardOpenOption.READ ) )
+            {
+                buffer = fileChannel.map( FileChannel.MapMode.READ_ONLY, 0, fileChannel.size() );
+            }
+
+            final Optional<StoredConfiguration> storedConfiguration = readSnapshot( buffer, sourceHash );
+            storedConfiguration.ifPresent( c -> LOGGER.debug( () -> "loaded configuration snapshot " + snapshotFile,
+                    () -> TimeDuration.fromCurrent( startTime ) ) );
+            return storedConfiguration;
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.debug( () -> "ignoring unreadable configuration snapshot " + snapshotFile + ": " + e.getMessage() );
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<StoredConfiguration> readSnapshot( final ByteBuffer buffer, final String sourceHash )
+            throws PwmUnrecoverableException
+    {
+        if ( buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION )
+        {
+            return Optional.empty();
+        }
+
+        if ( !BUILD_ID.equals( readString( buffer ) )
+                || !SettingDefinitionHash.VALUE.equals( readString( buffer ) )
+                || !sourceHash.equals( readString( buffer ) ) )
+        {
+            LOGGER.debug( () -> "configuration snapshot does not match current configuration file or build" );
+            return Optional.empty();
+        }
+
+        final String createTime = readString( buffer );
+        final Instant modifyTime = readInstant( buffer );
+        final PwmSecurityKey pwmSecurityKey = new PwmSecurityKey( createTime + "StoredConfiguration" );
+
+        final int entryCount = buffer.getInt();
+        final Map<StoredConfigKey, ValueSlice> valueSlices = new TreeMap<>();
+        final Map<StoredConfigKey, ValueMetaData> metaDatas = new HashMap<>();
+        for ( int i = 0; i < entryCount; i++ )
+        {
+            final Optional<StoredConfigKey> key = readKey( buffer );
+            if ( key.isEmpty() )
+            {
+                return Optional.empty();
+            }
+
+            readMetaData( buffer ).ifPresent( metaData -> metaDatas.put( key.get(), metaData ) );
+
+            final int valueLength = buffer.getInt();
+            if ( valueLength >= 0 )
+            {
+                final long checksum = buffer.getLong();
+                if ( valueLength > buffer.remaining() || checksum( buffer, buffer.position(), valueLength ) != checksum )
+                {
+                    LOGGER.debug( () -> "configuration snapshot value for " + key.get() + " is damaged" );
+                    return Optional.empty();
+                }
+
+                valueSlices.put( key.get(), new ValueSlice( buffer.position(), valueLength ) );
+                buffer.position( buffer.position() + valueLength );
+            }
+        }
+
+        final Map<StoredConfigKey, StoredValue> storedValues = new SnapshotValueMap( buffer, valueSlices, pwmSecurityKey );
+        return Optional.of( new StoredConfigurationImpl( new StoredConfigData( createTime, modifyTime, storedValues, metaDatas ) ) );
+    }
+
+    /**
+     * Write a snapshot of a configuration that was read from a configuration file with the supplied source hash.  Errors
+     * are logged and otherwise ignored; a missing snapshot only means the next load parses the xml.
+     */
+    static void write( final File snapshotFile, final String sourceHash, final StoredConfiguration storedConfiguration )
+    {
+        final Instant startTime = Instant.now();
+        final File tempFile = new File( snapshotFile.getAbsolutePath() + ".new" );
+        try
+        {
+            try ( OutputStream outputStream = Files.newOutputStream( tempFile.toPath() ) )
+            {
+                writeSnapshot( outputStream, sourceHash, storedConfiguration );
+            }
+            Files.move( tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            LOGGER.debug( () -> "wrote configuration snapshot " + snapshotFile, () -> TimeDuration.fromCurrent( startTime ) );
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.warn( () -> "unable to write configuration snapshot " + snapshotFile + ": " + e.getMessage() );
+            try
+            {
+                Files.deleteIfExists( tempFile.toPath() );
+            }
+            catch ( final IOException e2 )
+            {
+                LOGGER.trace( () -> "unable to remove temporary snapshot file " + tempFile + ": " + e2.getMessage() );
+            }
+        }
+    }
+
+    static void writeSnapshot( final OutputStream outputStream, final String sourceHash, final StoredConfiguration storedConfiguration )
+            throws IOException, PwmUnrecoverableException
+    {
+        final StoredConfigData storedConfigData = ( ( StoredConfigurationImpl ) storedConfiguration ).asStoredConfigData();
+        final XmlOutputProcessData xmlOutputProcessData = XmlOutputProcessData.builder()
+                .pwmSecurityKey( storedConfiguration.getKey() )
+                .storedValueEncoderMode( StoredValueEncoder.Mode.ENCODED )
+                .build();
+
+        final Set<StoredConfigKey> keys = new TreeSet<>( storedConfigData.getStoredValues().keySet() );
+        keys.addAll( storedConfigData.getMetaDatas().keySet() );
+
+        final DataOutputStream output = new DataOutputStream( outputStream );
+        output.writeInt( MAGIC );
+        output.writeInt( FORMAT_VERSION );
+        writeString( output, BUILD_ID );
+        writeString( output, SettingDefinitionHash.VALUE );
+        writeString( output, sourceHash );
+        writeString( output, storedConfigData.getCreateTime() );
+        writeInstant( output, storedConfigData.getModifyTime() );
+
+        output.writeInt( keys.size() );
+        for ( final StoredConfigKey key : keys )
+        {
+            writeKey( output, key );
+            writeMetaData( output, storedConfigData.getMetaDatas().get( key ) );
+
+            final StoredValue storedValue = storedConfigData.getStoredValues().get( key );
+            if ( storedValue == null )
+            {
+                output.writeInt( -1 );
+            }
+            else
+            {
+                final byte[] encodedValue = encodeValue( key, storedValue, xmlOutputProcessData );
+
+                // fails the write if the value can not be read back, instead of failing a later read of the snapshot
+                decodeValue( key, ByteBuffer.wrap( encodedValue ), storedConfiguration.getKey() );
+
+                output.writeInt( encodedValue.length );
+                output.writeLong( checksum( ByteBuffer.wrap( encodedValue ), 0, encodedValue.length ) );
+                output.write( encodedValue );
+            }
+        }
+        output.flush();
+    }
+
+    private static byte[] encodeValue( final StoredConfigKey key, final StoredValue storedValue, final XmlOutputProcessData xmlOutputProcessData )
+            throws IOException
+    {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        switch ( key.getRecordType() )
+        {
+            case PROPERTY:
+                writeString( new DataOutputStream( byteArrayOutputStream ), ( ( StringValue ) storedValue ).toNativeObject() );
+                break;
+
+            case LOCALE_BUNDLE:
+            {
+                final DataOutputStream output = new DataOutputStream( byteArrayOutputStream );
+                final Map<String, String> bundleMap = ( ( LocalizedStringValue ) storedValue ).toNativeObject();
+                output.writeInt( bundleMap.size() );
+                for ( final Map.Entry<String, String> entry : bundleMap.entrySet() )
+                {
+                    writeString( output, entry.getKey() );
+                    writeString( output, entry.getValue() );
+                }
+                output.flush();
+            }
+            break;
+
+            case SETTING:
+            {
+                final PwmSetting pwmSetting = key.toPwmSetting();
+                final XmlFactory xmlFactory = XmlFactory.getFactory();
+                final XmlDocument xmlDocument = xmlFactory.newDocument( StoredConfigXmlConstants.XML_ELEMENT_SETTING );
+                final XmlElement settingElement = xmlDocument.getRootElement();
+                settingElement.setAttribute( StoredConfigXmlConstants.XML_ATTRIBUTE_KEY, pwmSetting.getKey() );
+                settingElement.setAttribute( StoredConfigXmlConstants.XML_ATTRIBUTE_SYNTAX, encodingSyntax( pwmSetting, storedValue ).name() );
+                settingElement.setAttribute( StoredConfigXmlConstants.XML_ATTRIBUTE_SYNTAX_VERSION, String.valueOf( storedValue.currentSyntaxVersion() ) );
+                settingElement.addContent( storedValue.toXmlValues( StoredConfigXmlConstants.XML_ELEMENT_VALUE, xmlOutputProcessData ) );
+                xmlFactory.outputDocument( xmlDocument, byteArrayOutputStream, XmlFactory.OutputFlag.Compact );
+            }
+            break;
+
+            default:
+                throw new IllegalStateException( "unknown record type " + key.getRecordType() );
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static StoredValue decodeValue( final StoredConfigKey key, final ByteBuffer buffer, final PwmSecurityKey pwmSecurityKey )
+    {
+        switch ( key.getRecordType() )
+        {
+            case PROPERTY:
+                return new StringValue( readString( buffer ) );
+
+            case LOCALE_BUNDLE:
+            {
+                final int size = buffer.getInt();
+                final Map<String, String> bundleMap = new LinkedHashMap<>( size );
+                for ( int i = 0; i < size; i++ )
+                {
+                    bundleMap.put( readString( buffer ), readString( buffer ) );
+                }
+                return new LocalizedStringValue( bundleMap );
+            }
+
+            case SETTING:
+            {
+                final byte[] xmlBytes = new byte[buffer.remaining()];
+                buffer.get( xmlBytes );
+                try ( InputStream inputStream = new ByteArrayInputStream( xmlBytes ) )
+                {
+                    final XmlElement settingElement = XmlFactory.getFactory().parseXml( inputStream ).getRootElement();
+                    final PwmSettingSyntax syntax = PwmSettingSyntax.valueOf( settingElement.getAttributeValue( StoredConfigXmlConstants.XML_ATTRIBUTE_SYNTAX )
+                            .orElseThrow( () -> new IllegalStateException( "missing value syntax" ) ) );
+                    return syntax.getFactory().fromXmlElement( key.toPwmSetting(), settingElement, pwmSecurityKey );
+                }
+                catch ( final IOException | PwmException e )
+                {
+                    throw new IllegalStateException( "unable to decode snapshot value for " + key + ": " + e.getMessage(), e );
+                }
+            }
+
+            default:
+                throw new IllegalStateException( "unknown record type " + key.getRecordType() );
+        }
+    }
+
+    /**
+     * The syntax whose factory reads the value back as the same type.  This is normally the syntax of the setting, but
+     * values written by configuration migrations are not always of the setting's own type.
+     */
+    private static PwmSettingSyntax encodingSyntax( final PwmSetting pwmSetting, final StoredValue storedValue )
+    {
+        if ( ValueSyntaxes.valueClass( pwmSetting.getSyntax() ) == storedValue.getClass() )
+        {
+            return pwmSetting.getSyntax();
+        }
+
+        return ValueSyntaxes.forValueClass( storedValue.getClass() )
+                .orElseThrow( () -> new IllegalStateException( "no syntax for value type " + storedValue.getClass().getName()
+                        + " of setting " + pwmSetting.getKey() ) );
+    }
+
+    private static long checksum( final ByteBuffer buffer, final int offset, final int length )
+    {
+        final ByteBuffer valueBuffer = buffer.duplicate();
+        valueBuffer.position( offset );
+        valueBuffer.limit( offset + length );
+
+        final CRC32 crc32 = new CRC32();
+        crc32.update( valueBuffer );
+        return crc32.getValue();
+    }
+
+    private static void writeKey( final DataOutputStream output, final StoredConfigKey key )
+            throws IOException
+    {
+        output.writeByte( key.getRecordType().ordinal() );
+        writeString( output, key.getDomainID().stringValue() );
+        writeString( output, key.getRecordID() );
+        writeString( output, key.getProfileID() );
+    }
+
+    private static Optional<StoredConfigKey> readKey( final ByteBuffer buffer )
+    {
+        final StoredConfigKey.RecordType[] recordTypes = StoredConfigKey.RecordType.values();
+        final int ordinal = buffer.get();
+        final String domainIdStr = readString( buffer );
+        final String recordID = readString( buffer );
+        final String profileID = readString( buffer );
+
+        if ( ordinal < 0 || ordinal >= recordTypes.length )
+        {
+            return Optional.empty();
+        }
+
+        final DomainID domainID = DomainID.systemId().stringValue().equals( domainIdStr )
+                ? DomainID.systemId()
+                : DomainID.create( domainIdStr );
+
+        switch ( recordTypes[ordinal] )
+        {
+            case SETTING:
+                return PwmSetting.forKey( recordID ).map( pwmSetting -> StoredConfigKey.forSetting( pwmSetting, profileID, domainID ) );
+
+            case LOCALE_BUNDLE:
+                return PwmLocaleBundle.forKey( recordID ).map( bundle -> StoredConfigKey.forLocaleBundle( bundle, profileID, domainID ) );
+
+            case PROPERTY:
+                return Arrays.stream( ConfigurationProperty.values() )
+                        .filter( configurationProperty -> configurationProperty.getKey().equals( recordID ) )
+                        .findFirst()
+                        .map( StoredConfigKey::forConfigurationProperty );
+
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private static void writeMetaData( final DataOutputStream output, final ValueMetaData valueMetaData )
+            throws IOException
+    {
+        final Instant modifyDate = valueMetaData == null ? null : valueMetaData.getModifyDate();
+        final UserIdentity userIdentity = valueMetaData == null ? null : valueMetaData.getUserIdentity();
+
+        output.writeByte( ( modifyDate == null ? 0 : META_MODIFY_DATE ) | ( userIdentity == null ? 0 : META_USER_IDENTITY ) );
+        if ( modifyDate != null )
+        {
+            writeInstant( output, modifyDate );
+        }
+        if ( userIdentity != null )
+        {
+            writeString( output, userIdentity.toDelimitedKey() );
+        }
+    }
+
+    private static Optional<ValueMetaData> readMetaData( final ByteBuffer buffer )
+            throws PwmUnrecoverableException
+    {
+        final int flags = buffer.get();
+        if ( flags == 0 )
+        {
+            return Optional.empty();
+        }
+
+        final Instant modifyDate = ( flags & META_MODIFY_DATE ) != 0 ? readInstant( buffer ) : null;
+        final UserIdentity userIdentity = ( flags & META_USER_IDENTITY ) != 0
+                ? UserIdentity.fromDelimitedKey( SessionLabel.SYSTEM_LABEL, readString( buffer ) )
+                : null;
+        return Optional.of( new ValueMetaData( modifyDate, userIdentity ) );
+    }
+
+    private static void writeInstant( final DataOutputStream output, final Instant instant )
+            throws IOException
+    {
+        output.writeLong( instant.getEpochSecond() );
+        output.writeInt( instant.getNano() );
+    }
+
+    private static Instant readInstant( final ByteBuffer buffer )
+    {
+        final long epochSecond = buffer.getLong();
+        return Instant.ofEpochSecond( epochSecond, buffer.getInt() );
+    }
+
+    private static void writeString( final DataOutputStream output, final String value )
+            throws IOException
+    {
+        if ( value == null )
+        {
+            output.writeInt( -1 );
+            return;
+        }
+
+        final byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        output.writeInt( bytes.length );
+        output.write( bytes );
+    }
+
+    private static String readString( final ByteBuffer buffer )
+    {
+        final int length = buffer.getInt();
+        if ( length < 0 )
+        {
+            return null;
+        }
+
+        if ( length > buffer.remaining() )
+        {
+            throw new BufferUnderflowException();
+        }
+
+        final byte[] bytes = new byte[length];
+        buffer.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    private static class SettingDefinitionHash
+    {
+        private static final String VALUE = readSettingDefinitionHash();
+
+        private static String readSettingDefinitionHash()
+        {
+            try ( InputStream inputStream = PwmSetting.class.getClassLoader().getResourceAsStream( PwmSettingXml.SETTING_XML_FILENAME ) )
+            {
+                return SecureEngine.hash( inputStream, PwmHashAlgorithm.SHA256 );
+            }
+            catch ( final IOException | PwmUnrecoverableException e )
+            {
+                throw new IllegalStateException( "error hashing " + PwmSettingXml.SETTING_XML_FILENAME + ": " + e.getMessage() );
+            }
+        }
+    }
+
+    private static class ValueSyntaxes
+    {
+        private static final Map<Class<?>, PwmSettingSyntax> SYNTAX_BY_VALUE_CLASS = makeSyntaxByValueClass();
+
+        private static Map<Class<?>, PwmSettingSyntax> makeSyntaxByValueClass()
+        {
+            final Map<Class<?>, PwmSettingSyntax> map = new HashMap<>();
+            for ( final PwmSettingSyntax syntax : PwmSettingSyntax.values() )
+            {
+                map.putIfAbsent( valueClass( syntax ), syntax );
+            }
+            return Collections.unmodifiableMap( map );
+        }
+
+        /**
+         * Value factories are declared within the value class they create.
+         */
+        private static Class<?> valueClass( final PwmSettingSyntax syntax )
+        {
+            return syntax.getFactory().getClass().getEnclosingClass();
+        }
+
+        private static Optional<PwmSettingSyntax> forValueClass( final Class<?> valueClass )
+        {
+            return Optional.ofNullable( SYNTAX_BY_VALUE_CLASS.get( valueClass ) );
+        }
+    }
+
+    private static class ValueSlice
+    {
+        private final int offset;
+        private final int length;
+
+        ValueSlice( final int offset, final int length )
+        {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Immutable value map backed by the mapped snapshot.  Values are decoded on first access and then retained.
+     */
+    static class SnapshotValueMap extends AbstractMap<StoredConfigKey, StoredValue>
+    {
+        private final ByteBuffer buffer;
+        private final Map<StoredConfigKey, ValueSlice> valueSlices;
+        private final PwmSecurityKey pwmSecurityKey;
+        private final Map<StoredConfigKey, StoredValue> decodedValues = new ConcurrentHashMap<>();
+
+        SnapshotValueMap( final ByteBuffer buffer, final Map<StoredConfigKey, ValueSlice> valueSlices, final PwmSecurityKey pwmSecurityKey )
+        {
+            this.buffer = buffer;
+            this.valueSlices = Collections.unmodifiableMap( valueSlices );
+            this.pwmSecurityKey = pwmSecurityKey;
+        }
+
+        @Override
+        public StoredValue get( final Object key )
+        {
+            if ( !valueSlices.containsKey( key ) )
+            {
+                return null;
+            }
+
+            final StoredConfigKey storedConfigKey = ( StoredConfigKey ) key;
+            return decodedValues.computeIfAbsent( storedConfigKey, this::decode );
+        }
+
+        private StoredValue decode( final StoredConfigKey key )
+        {
+            final ValueSlice valueSlice = valueSlices.get( key );
+            final ByteBuffer valueBuffer = buffer.duplicate();
+            valueBuffer.position( valueSlice.offset );
+            valueBuffer.limit( valueSlice.offset + valueSlice.length );
+            return decodeValue( key, valueBuffer.slice(), pwmSecurityKey );
+        }
+
+        @Override
+        public boolean containsKey( final Object key )
+        {
+            return valueSlices.containsKey( key );
+        }
+
+        @Override
+        public int size()
+        {
+            return valueSlices.size();
+        }
+
+        @Override
+        public Set<StoredConfigKey> keySet()
+        {
+            return valueSlices.keySet();
+        }
+
+        @Override
+        public Set<Entry<StoredConfigKey, StoredValue>> entrySet()
+        {
+            return valueSlices.keySet().stream()
+                    .map( key -> new SimpleImmutableEntry<>( key, get( key ) ) )
+                    .collect( Collectors.toCollection( LinkedHashSet::new ) );
+        }
+    }
+}
@@ -20,7 +20,6 @@
 
 package password.pwm.config.stored;
 
-import com.google.gson.reflect.TypeToken;
 import lombok.Value;
 import password.pwm.PwmConstants;
 import password.pwm.config.PwmSettingSyntax;
@@ -39,8 +38,12 @@ import password.pwm.util.secure.SecureEngine;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.Writer;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -145,19 +148,13 @@ public class StoredConfigZipJsonSerializer implements StoredConfigSerializer
         {
             if ( SETTINGS_FILENAME.equals( zipEntry.getName() ) )
             {
-                final String stringData = JavaHelper.copyToString( zipInputStream );
-                final List<SerializedValue> readComponents = JsonUtil.deserialize( stringData, new TypeToken<List<SerializedValue>>()
-                {
-                } );
-                serializedValues.addAll( readComponents );
+                final Reader reader = new InputStreamReader( zipInputStream, PwmConstants.DEFAULT_CHARSET );
+                JsonUtil.deserializeArray( reader, SerializedValue.class, serializedValues::add );
             }
             else if ( META_VALUES_FILENAME.equals( zipEntry.getName() ) )
             {
-                final String stringData = JavaHelper.copyToString( zipInputStream );
-                final List<SerializedValue> readMetaValues = JsonUtil.deserialize( stringData, new TypeToken<List<SerializedMetaValue>>()
-                {
-                } );
-                serializedValues.addAll( readMetaValues );
+                final Reader reader = new InputStreamReader( zipInputStream, PwmConstants.DEFAULT_CHARSET );
+                JsonUtil.deserializeArray( reader, SerializedMetaValue.class, serializedMetaValues::add );
             }
             else if ( META_FILENAME.equals( zipEntry.getName() ) )
             {
@@ -188,21 +185,25 @@ public class StoredConfigZipJsonSerializer implements StoredConfigSerializer
         final IntermediateRepresentation intermediateRepresentation = makeIntermediateRepresentation( storedConfiguration, outputSettings );
 
         final ZipOutputStream zipOutputStream = new ZipOutputStream( outputStream );
+        final Writer writer = new OutputStreamWriter( zipOutputStream, PwmConstants.DEFAULT_CHARSET );
 
         {
             zipOutputStream.putNextEntry( new ZipEntry( SETTINGS_FILENAME ) );
-            JavaHelper.copy( JsonUtil.serializeCollection( intermediateRepresentation.getSerializedValues(), JsonUtil.Flag.PrettyPrint ), zipOutputStream );
+            JsonUtil.serializeTo( intermediateRepresentation.getSerializedValues(), writer, JsonUtil.Flag.PrettyPrint );
+            writer.flush();
         }
 
         {
             zipOutputStream.putNextEntry( new ZipEntry( META_VALUES_FILENAME ) );
-            JavaHelper.copy( JsonUtil.serializeCollection( intermediateRepresentation.getSerializedMetaValues(), JsonUtil.Flag.PrettyPrint ), zipOutputStream );
+            JsonUtil.serializeTo( intermediateRepresentation.getSerializedMetaValues(), writer, JsonUtil.Flag.PrettyPrint );
+            writer.flush();
         }
 
         {
             final MetaData metaData = new MetaData( storedConfiguration.createTime(), storedConfiguration.modifyTime(), "1" );
             zipOutputStream.putNextEntry( new ZipEntry( META_FILENAME ) );
-            JavaHelper.copy( JsonUtil.serialize( metaData, JsonUtil.Flag.PrettyPrint ), zipOutputStream );
+            JsonUtil.serializeTo( metaData, writer, JsonUtil.Flag.PrettyPrint );
+            writer.flush();
         }
 
         for ( final Map.Entry<String, ImmutableByteArray> entry : intermediateRepresentation.getExRefs().entrySet() )
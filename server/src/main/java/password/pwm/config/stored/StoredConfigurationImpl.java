@@ -66,7 +66,20 @@ public class StoredConfigurationImpl implements StoredConfiguration
         this.modifyTime = storedConfigData.getModifyTime();
         this.metaValues = Map.copyOf( new TreeMap<>( storedConfigData.getMetaDatas() ) );
         this.templateSet = TemplateSetReader.readTemplateSet( storedConfigData.getStoredValues() );
-        this.storedValues = Map.copyOf( new TreeMap<>( storedConfigData.getStoredValues() ) );
+        this.storedValues = copyStoredValues( storedConfigData.getStoredValues() );
+    }
+
+    /**
+     * Values read from a configuration snapshot are already immutable and are decoded on first access, so they are kept
+     * as is rather than copied (which would decode every value).
+     */
+    private static Map<StoredConfigKey, StoredValue> copyStoredValues( final Map<StoredConfigKey, StoredValue> storedValues )
+    {
+        if ( storedValues instanceof StoredConfigSnapshot.SnapshotValueMap )
+        {
+            return storedValues;
+        }
+        return Map.copyOf( new TreeMap<>( storedValues ) );
     }
 
     StoredConfigurationImpl()
@@ -25,14 +25,12 @@ import password.pwm.bean.UserIdentity;
 import password.pwm.config.value.LocalizedStringValue;
 import password.pwm.config.value.StoredValue;
 import password.pwm.config.value.StringValue;
-import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.i18n.PwmLocaleBundle;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.StringUtil;
-import password.pwm.util.secure.BCrypt;
 
 import java.time.Instant;
 import java.util.HashMap;
@@ -45,9 +43,11 @@ public class StoredConfigurationModifier
 {
     private final AtomicReference<StoredConfigData> ref = new AtomicReference<>( );
     private final AtomicInteger modifications = new AtomicInteger();
+    private final StoredConfiguration source;
 
     private StoredConfigurationModifier( final StoredConfiguration storedConfiguration )
     {
+        this.source = storedConfiguration;
         this.ref.set( ( ( StoredConfigurationImpl ) storedConfiguration ).asStoredConfigData() );
     }
 
@@ -58,7 +58,9 @@ public class StoredConfigurationModifier
 
     public StoredConfiguration newStoredConfiguration()
     {
-        return new StoredConfigurationImpl( ref.get() );
+        final StoredConfiguration newStoredConfiguration = new StoredConfigurationImpl( ref.get() );
+        ConfigSearchIndex.recordRevision( source, newStoredConfiguration );
+        return newStoredConfiguration;
     }
 
     public void writeSetting(
@@ -196,27 +198,7 @@ public class StoredConfigurationModifier
     public void setPassword( final String password )
             throws PwmOperationalException, PwmUnrecoverableException
     {
-        if ( password == null || password.isEmpty() )
-        {
-            throw new PwmOperationalException( new ErrorInformation( PwmError.CONFIG_FORMAT_ERROR, null, new String[]
-                    {
-                            "can not set blank password",
-                    }
-            ) );
-        }
-        final String trimmedPassword = password.trim();
-        if ( trimmedPassword.length() < 1 )
-        {
-            throw new PwmOperationalException( new ErrorInformation( PwmError.CONFIG_FORMAT_ERROR, null, new String[]
-                    {
-                            "can not set blank password",
-                    }
-            ) );
-        }
-
-
-        final String passwordHash = BCrypt.hashPassword( password );
-        this.writeConfigProperty( ConfigurationProperty.PASSWORD_HASH, passwordHash );
+        StoredConfigurationUtil.setPassword( this, password );
     }
 
     private void update( final FunctionWithException<StoredConfigData> function ) throws PwmUnrecoverableException
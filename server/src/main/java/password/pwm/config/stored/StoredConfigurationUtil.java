@@ -20,6 +20,7 @@
 
 package password.pwm.config.stored;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmConstants;
 import password.pwm.bean.DomainID;
 import password.pwm.bean.UserIdentity;
@@ -46,8 +47,9 @@ import password.pwm.util.java.PwmExceptionLoggingConsumer;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
-import password.pwm.util.secure.BCrypt;
 import password.pwm.util.secure.HmacAlgorithm;
+import password.pwm.util.secure.PasswordHashAlgorithm;
+import password.pwm.util.secure.PasswordHasher;
 import password.pwm.util.secure.PwmRandom;
 import password.pwm.util.secure.SecureEngine;
 
@@ -193,13 +195,53 @@ public abstract class StoredConfigurationUtil
     }
 
     public static boolean verifyPassword( final StoredConfiguration storedConfiguration, final String password )
+            throws PwmUnrecoverableException
+    {
+        return verifyPassword( storedConfiguration, password, passwordHasher( storedConfiguration ) ).isValid();
+    }
+
+    /**
+     * Verify the configuration password.  When the stored hash is valid but older than the hasher's current
+     * parameters, the result carries a replacement hash for the caller to store.
+     */
+    public static PasswordHasher.Verification verifyPassword(
+            final StoredConfiguration storedConfiguration,
+            final String password,
+            final PasswordHasher passwordHasher
+    )
+            throws PwmUnrecoverableException
     {
-        if ( !hasPassword( storedConfiguration ) )
+        final Optional<String> passwordHash = storedConfiguration.readConfigProperty( ConfigurationProperty.PASSWORD_HASH );
+        if ( passwordHash.isEmpty() || password == null )
         {
-            return false;
+            return new PasswordHasher.Verification( false, null );
         }
-        final Optional<String> passwordHash = storedConfiguration.readConfigProperty( ConfigurationProperty.PASSWORD_HASH );
-        return passwordHash.isPresent() && BCrypt.testAnswer( password, passwordHash.get(), new AppConfig( storedConfiguration ) );
+
+        // configuration passwords have always been case insensitive
+        final String normalizedPassword = password.toLowerCase();
+        final PasswordHasher.Verification verification = passwordHasher.verify( normalizedPassword, passwordHash.get() );
+        if ( verification.isValid() )
+        {
+            return verification;
+        }
+
+        // hashes written by the legacy bcrypt library are only readable through the compatibility path
+        if ( PasswordHashAlgorithm.forEncodedValue( passwordHash.get() ).orElse( null ) == PasswordHashAlgorithm.BCRYPT
+                && Boolean.parseBoolean( new AppConfig( storedConfiguration ).readAppProperty( AppProperty.CONFIG_JBCRYPT_PWLIB_ENABLE ) ) )
+        {
+            return passwordHasher.verifyLegacyBcrypt( password, passwordHash.get(), normalizedPassword );
+        }
+
+        return verification;
+    }
+
+    /**
+     * A hasher calibrated from the configuration's own application properties, for callers without a running
+     * application.  Within a running application use the secure service's hasher instead.
+     */
+    public static PasswordHasher passwordHasher( final StoredConfiguration storedConfiguration )
+    {
+        return PasswordHasher.create( new AppConfig( storedConfiguration ) );
     }
 
     public static boolean hasPassword( final StoredConfiguration storedConfiguration )
@@ -210,6 +252,16 @@ public abstract class StoredConfigurationUtil
 
     public static void setPassword( final StoredConfigurationModifier storedConfiguration, final String password )
             throws PwmOperationalException, PwmUnrecoverableException
+    {
+        setPassword( storedConfiguration, password, passwordHasher( storedConfiguration.newStoredConfiguration() ) );
+    }
+
+    public static void setPassword(
+            final StoredConfigurationModifier storedConfiguration,
+            final String password,
+            final PasswordHasher passwordHasher
+    )
+            throws PwmOperationalException, PwmUnrecoverableException
     {
         if ( StringUtil.isEmpty( password ) )
         {
@@ -229,7 +281,7 @@ public abstract class StoredConfigurationUtil
             ) );
         }
 
-        final String passwordHash = BCrypt.hashPassword( password );
+        final String passwordHash = passwordHasher.hash( password.toLowerCase() );
         storedConfiguration.writeConfigProperty( ConfigurationProperty.PASSWORD_HASH, passwordHash );
     }
 
@@ -35,6 +35,7 @@ import password.pwm.svc.httpclient.PwmHttpClientRequest;
 import password.pwm.svc.httpclient.PwmHttpClientResponse;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.File;
@@ -44,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public class ApplianceStatusChecker implements HealthSupplier
@@ -58,10 +60,17 @@ public class ApplianceStatusChecker implements HealthSupplier
     }
 
     @Override
-    public List<Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
+    public Map<String, Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
     {
         final Supplier<List<HealthRecord>> supplier = () -> doHealthCheck( request );
-        return Collections.singletonList( supplier );
+        return Collections.singletonMap( SINGLE_JOB, supplier );
+    }
+
+    @Override
+    public Optional<TimeDuration> refreshInterval( )
+    {
+        // update status is read from the appliance over http and changes rarely
+        return Optional.of( TimeDuration.of( 5, TimeDuration.Unit.MINUTES ) );
     }
 
     private List<HealthRecord> doHealthCheck( final HealthSupplier.HealthSupplierRequest request )
@@ -45,6 +45,8 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public class CertificateChecker implements HealthSupplier
@@ -52,10 +54,17 @@ public class CertificateChecker implements HealthSupplier
     private static final PwmLogger LOGGER = PwmLogger.forClass( CertificateChecker.class );
 
     @Override
-    public List<Supplier<List<HealthRecord>>> jobs( final HealthSupplierRequest request )
+    public Map<String, Supplier<List<HealthRecord>>> jobs( final HealthSupplierRequest request )
     {
         final PwmApplication pwmApplication = request.getPwmApplication();
-        return Collections.singletonList( new CertificateCheckJob( pwmApplication.getConfig() ) );
+        return Collections.singletonMap( SINGLE_JOB, new CertificateCheckJob( pwmApplication.getConfig() ) );
+    }
+
+    @Override
+    public Optional<TimeDuration> refreshInterval( )
+    {
+        // certificate expiration warnings are measured in days, and the configured certificates only change on restart
+        return Optional.of( TimeDuration.HOUR );
     }
 
     public static class CertificateCheckJob implements Supplier<List<HealthRecord>>
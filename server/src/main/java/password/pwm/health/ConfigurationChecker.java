@@ -65,9 +65,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
@@ -96,30 +98,30 @@ public class ConfigurationChecker implements HealthSupplier
             VerifyDbConfiguredIfNeededSystem.class );
 
     @Override
-    public List<Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
+    public Map<String, Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
     {
         final PwmApplication pwmApplication = request.getPwmApplication();
         final SessionLabel sessionLabel = request.getSessionLabel();
 
         if ( pwmApplication.getConfig().readSettingAsBoolean( PwmSetting.HIDE_CONFIGURATION_HEALTH_WARNINGS ) )
         {
-            return Collections.emptyList();
+            return Collections.emptyMap();
         }
 
-        final List<Supplier<List<HealthRecord>>> suppliers = new ArrayList<>();
-        suppliers.add( () -> checkAppMode( pwmApplication ) );
+        final Map<String, Supplier<List<HealthRecord>>> suppliers = new LinkedHashMap<>();
+        suppliers.put( "appMode", () -> checkAppMode( pwmApplication ) );
         for ( final PwmDomain domain : pwmApplication.domains().values() )
         {
-            suppliers.add( () -> allDomainChecks( sessionLabel, domain.getConfig(), PwmConstants.DEFAULT_LOCALE ) );
+            suppliers.put( "domain." + domain.getDomainID().stringValue(), () -> allDomainChecks( sessionLabel, domain.getConfig(), PwmConstants.DEFAULT_LOCALE ) );
         }
-        suppliers.add( () -> allSystemChecks( sessionLabel, pwmApplication.getConfig(), PwmConstants.DEFAULT_LOCALE ) );
+        suppliers.put( "system", () -> allSystemChecks( sessionLabel, pwmApplication.getConfig(), PwmConstants.DEFAULT_LOCALE ) );
         return suppliers;
     }
 
     public List<HealthRecord> doHealthCheck( final PwmApplication tempApp, final SessionLabel sessionLabel )
     {
         final HealthSupplier.HealthSupplierRequest request = new HealthSupplierRequest( tempApp, sessionLabel );
-        return jobs( request ).stream().map( Supplier::get ).flatMap( Collection::stream ).collect( Collectors.toList() );
+        return jobs( request ).values().stream().map( Supplier::get ).flatMap( Collection::stream ).collect( Collectors.toList() );
     }
 
     private List<HealthRecord> allDomainChecks( final SessionLabel sessionLabel, final DomainConfig config, final Locale locale )
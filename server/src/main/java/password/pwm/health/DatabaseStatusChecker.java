@@ -31,6 +31,7 @@ import password.pwm.util.logging.PwmLogger;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 public class DatabaseStatusChecker implements HealthSupplier
@@ -38,11 +39,11 @@ public class DatabaseStatusChecker implements HealthSupplier
     private static final PwmLogger LOGGER = PwmLogger.forClass( DatabaseStatusChecker.class );
 
     @Override
-    public List<Supplier<List<HealthRecord>>> jobs( final HealthSupplierRequest request )
+    public Map<String, Supplier<List<HealthRecord>>> jobs( final HealthSupplierRequest request )
     {
         final PwmApplication pwmApplication = request.getPwmApplication();
         final Supplier<List<HealthRecord>> supplier = () -> doHealthCheck( pwmApplication );
-        return Collections.singletonList( supplier );
+        return Collections.singletonMap( SINGLE_JOB, supplier );
     }
 
     public List<HealthRecord> doHealthCheck( final PwmApplication pwmApplication )
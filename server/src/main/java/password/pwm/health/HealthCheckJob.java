@@ -0,0 +1,47 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.health;
+
+import lombok.Value;
+import password.pwm.bean.DomainID;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A single unit of health check work, identified by a name that is stable between check cycles so that its result
+ * can be cached and its execution time tracked.
+ */
+@Value
+class HealthCheckJob
+{
+    private final String name;
+    private final DomainID domainID;
+
+    /**
+     * Minimum age of a cached result before the job is executed again.
+     */
+    private final TimeDuration refreshInterval;
+
+    private final Supplier<List<HealthRecord>> supplier;
+}
@@ -0,0 +1,176 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.health;
+
+import lombok.Value;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Executes health check jobs concurrently, each bounded by the check timeout.
+ *
+ * <p>Results are cached per job and reused until the job's refresh interval has passed.  A job that misses the
+ * deadline is reported with a timed out record and left running; its result is cached when it eventually completes,
+ * and it is not started again while still running, so a hung check occupies at most one worker.</p>
+ */
+class HealthCheckRunner
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( HealthCheckRunner.class );
+
+    enum DebugKey
+    {
+        executions,
+        cacheHits,
+        timeouts,
+        errors,
+    }
+
+    private final ExecutorService executorService;
+    private final TimeDuration checkTimeout;
+
+    private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+    private final Map<String, Future<CachedResult>> inFlight = new ConcurrentHashMap<>();
+    private final StatisticCounterBundle<DebugKey> statistics = new StatisticCounterBundle<>( DebugKey.class );
+
+    HealthCheckRunner( final ExecutorService executorService, final TimeDuration checkTimeout )
+    {
+        this.executorService = executorService;
+        this.checkTimeout = checkTimeout;
+    }
+
+    List<HealthRecord> run( final List<HealthCheckJob> jobs )
+            throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + checkTimeout.asMillis() * 1_000_000L;
+        final List<HealthRecord> returnRecords = new ArrayList<>();
+        final Map<HealthCheckJob, Future<CachedResult>> pending = new LinkedHashMap<>();
+
+        for ( final HealthCheckJob job : jobs )
+        {
+            final CachedResult cachedResult = results.get( job.getName() );
+            if ( cachedResult != null && !TimeDuration.fromCurrent( cachedResult.getTimestamp() ).isLongerThan( job.getRefreshInterval() ) )
+            {
+                statistics.increment( DebugKey.cacheHits );
+                returnRecords.addAll( cachedResult.getRecords() );
+            }
+            else
+            {
+                // a finished job may still be listed if it completed before it was recorded as in flight
+                pending.put( job, inFlight.compute( job.getName(), ( name, running ) -> running != null && !running.isDone()
+                        ? running
+                        : executorService.submit( () -> execute( job ) ) ) );
+            }
+        }
+
+        for ( final Map.Entry<HealthCheckJob, Future<CachedResult>> entry : pending.entrySet() )
+        {
+            final HealthCheckJob job = entry.getKey();
+            try
+            {
+                final long remainingNanos = Math.max( 0, deadline - System.nanoTime() );
+                returnRecords.addAll( entry.getValue().get( remainingNanos, TimeUnit.NANOSECONDS ).getRecords() );
+            }
+            catch ( final TimeoutException e )
+            {
+                statistics.increment( DebugKey.timeouts );
+                LOGGER.debug( () -> "health check " + job.getName() + " did not complete within " + checkTimeout.asCompactString() );
+                returnRecords.add( HealthRecord.forMessage(
+                        job.getDomainID(),
+                        HealthMessage.HealthCheck_Timeout,
+                        job.getName(),
+                        checkTimeout.asCompactString() ) );
+            }
+            catch ( final ExecutionException e )
+            {
+                LOGGER.warn( () -> "unexpected error during health check " + job.getName() + ": " + e.getMessage(), e );
+            }
+        }
+
+        return Collections.unmodifiableList( returnRecords );
+    }
+
+    private CachedResult execute( final HealthCheckJob job )
+    {
+        final Instant startTime = Instant.now();
+        try
+        {
+            List<HealthRecord> records = Collections.emptyList();
+            try
+            {
+                final List<HealthRecord> jobRecords = job.getSupplier().get();
+                if ( jobRecords != null )
+                {
+                    records = List.copyOf( jobRecords );
+                }
+            }
+            catch ( final Exception e )
+            {
+                statistics.increment( DebugKey.errors );
+                LOGGER.warn( () -> "unexpected error during health check " + job.getName() + ": " + e.getMessage(), e );
+            }
+
+            statistics.increment( DebugKey.executions );
+            final CachedResult cachedResult = new CachedResult( records, Instant.now(), TimeDuration.fromCurrent( startTime ) );
+            results.put( job.getName(), cachedResult );
+            return cachedResult;
+        }
+        finally
+        {
+            // also on errors, so the job can be started again by a later check cycle
+            inFlight.remove( job.getName() );
+        }
+    }
+
+    Map<String, String> debugStats()
+    {
+        final Map<String, String> returnMap = new TreeMap<>( statistics.debugStats() );
+        for ( final Map.Entry<String, CachedResult> entry : results.entrySet() )
+        {
+            returnMap.put( "checkTime." + entry.getKey(), Long.toString( entry.getValue().getDuration().asMillis() ) );
+        }
+        inFlight.keySet().forEach( name -> returnMap.put( "running." + name, "true" ) );
+        return Collections.unmodifiableMap( returnMap );
+    }
+
+    @Value
+    private static class CachedResult
+    {
+        private final List<HealthRecord> records;
+        private final Instant timestamp;
+        private final TimeDuration duration;
+    }
+}
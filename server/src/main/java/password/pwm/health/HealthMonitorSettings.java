@@ -38,6 +38,8 @@ class HealthMonitorSettings implements Serializable
     private TimeDuration maximumRecordAge;
     private TimeDuration maximumForceCheckWait;
     private TimeDuration threadDumpInterval;
+    private TimeDuration checkTimeout;
+    private int maxThreads;
 
     static HealthMonitorSettings fromConfiguration( final AppConfig config )
     {
@@ -49,6 +51,8 @@ class HealthMonitorSettings implements Serializable
                 .maximumForceCheckWait( TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.HEALTHCHECK_MAX_FORCE_WAIT ) ), TimeDuration.Unit.SECONDS ) )
                 .threadDumpInterval( TimeDuration.of(
                         Long.parseLong( config.readAppProperty( AppProperty.LOGGING_EXTRA_PERIODIC_THREAD_DUMP_INTERVAL ) ), TimeDuration.Unit.SECONDS ) )
+                .checkTimeout( TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.HEALTHCHECK_CHECK_TIMEOUT ) ), TimeDuration.Unit.SECONDS ) )
+                .maxThreads( Integer.parseInt( config.readAppProperty( AppProperty.HEALTHCHECK_MAX_THREADS ) ) )
                 .build();
     }
 }
@@ -78,7 +78,9 @@ public class HealthService extends AbstractPwmService implements PwmService
 
 
     private ExecutorService executorService;
+    private ExecutorService checkExecutorService;
     private ExecutorService supportZipWriterService;
+    private HealthCheckRunner healthCheckRunner;
     private HealthMonitorSettings settings;
 
     private final Map<HealthMonitorFlag, Serializable> healthProperties = new ConcurrentHashMap<>();
@@ -123,7 +125,9 @@ public class HealthService extends AbstractPwmService implements PwmService
         }
 
         executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
-        supportZipWriterService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
+        checkExecutorService = pwmApplication.getPwmScheduler().makeWorkloadExecutor( HealthCheckRunner.class, PwmScheduler.WorkloadClass.IoBound, settings.getMaxThreads() );
+        healthCheckRunner = new HealthCheckRunner( checkExecutorService, settings.getCheckTimeout() );
+        supportZipWriterService = PwmScheduler.makeLowPriorityBackgroundExecutor( pwmApplication, this.getClass() );
         scheduleNextZipOutput();
 
         if ( settings.getThreadDumpInterval().as( TimeDuration.Unit.SECONDS ) > 0 )
@@ -193,6 +197,10 @@ public class HealthService extends AbstractPwmService implements PwmService
         {
             executorService.shutdown();
         }
+        if ( checkExecutorService != null )
+        {
+            checkExecutorService.shutdownNow();
+        }
         if ( supportZipWriterService != null )
         {
             supportZipWriterService.shutdown();
@@ -223,64 +231,65 @@ public class HealthService extends AbstractPwmService implements PwmService
 
         final Instant startTime = Instant.now();
         LOGGER.trace( () -> "beginning health check execution #" + counter  );
-        final List<HealthRecord> tempResults = new ArrayList<>();
 
-        for ( final Supplier<List<HealthRecord>> loopSupplier : gatherSuppliers( getPwmApplication(), getSessionLabel() ) )
+        try
         {
-            try
-            {
-                final List<HealthRecord> loopResults = loopSupplier.get();
-                if ( loopResults != null )
-                {
-                    tempResults.addAll( loopResults );
-                }
-            }
-            catch ( final Exception e )
-            {
-                if ( status() == STATUS.OPEN )
-                {
-                    LOGGER.warn( () -> "unexpected error during healthCheck: " + e.getMessage(), e );
-                }
-            }
+            final List<HealthRecord> results = healthCheckRunner.run( gatherJobs( getPwmApplication(), getSessionLabel() ) );
+            healthData = new HealthData( Collections.unmodifiableSet( new TreeSet<>( results ) ), Instant.now() );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return;
         }
 
-        healthData = new HealthData( Collections.unmodifiableSet( new TreeSet<>( tempResults ) ), Instant.now() );
         LOGGER.trace( () -> "completed health check execution #" + counter, () -> TimeDuration.fromCurrent( startTime ) );
     }
 
-    private static List<Supplier<List<HealthRecord>>> gatherSuppliers(
+    /**
+     * Collect the health check jobs without executing them; service health checks are wrapped so they run
+     * concurrently with the other checks instead of inline here.
+     */
+    private List<HealthCheckJob> gatherJobs(
             final PwmApplication pwmApplication,
             final SessionLabel sessionLabel
     )
     {
-        final List<Supplier<List<HealthRecord>>> suppliers = new ArrayList<>();
+        final List<HealthCheckJob> jobs = new ArrayList<>();
 
         for ( final Map.Entry<DomainID, List<PwmService>> domainIDListEntry : pwmApplication.getAppAndDomainPwmServices().entrySet() )
         {
+            final DomainID domainID = domainIDListEntry.getKey();
             for ( final PwmService service : domainIDListEntry.getValue() )
             {
-                try
-                {
-                    final List<HealthRecord> loopResults = service.healthCheck();
-                    if ( loopResults != null )
-                    {
-                        final Supplier<List<HealthRecord>> wrappedSupplier = () -> loopResults;
-                        suppliers.add( wrappedSupplier );
-                    }
-                }
-                catch ( final Exception e )
-                {
-                    LOGGER.warn( () -> "unexpected error during healthCheck: " + e.getMessage(), e );
-                }
+                jobs.add( new HealthCheckJob(
+                        domainID.stringValue() + "." + service.getClass().getSimpleName(),
+                        domainID,
+                        settings.getNominalCheckInterval(),
+                        service::healthCheck ) );
             }
         }
 
-        for ( final HealthSupplier supplier : HEALTH_SUPPLIERS )
+        for ( final HealthSupplier healthSupplier : HEALTH_SUPPLIERS )
         {
-            suppliers.addAll( supplier.jobs( new HealthSupplier.HealthSupplierRequest( pwmApplication, sessionLabel ) ) );
+            final TimeDuration refreshInterval = healthSupplier.refreshInterval().orElse( settings.getNominalCheckInterval() );
+            try
+            {
+                final Map<String, Supplier<List<HealthRecord>>> suppliers = healthSupplier.jobs( new HealthSupplier.HealthSupplierRequest( pwmApplication, sessionLabel ) );
+                for ( final Map.Entry<String, Supplier<List<HealthRecord>>> entry : suppliers.entrySet() )
+                {
+                    final String name = healthSupplier.getClass().getSimpleName()
+                            + ( HealthSupplier.SINGLE_JOB.equals( entry.getKey() ) ? "" : "." + entry.getKey() );
+                    jobs.add( new HealthCheckJob( name, DomainID.systemId(), refreshInterval, entry.getValue() ) );
+                }
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.warn( () -> "unexpected error gathering health checks from " + healthSupplier.getClass().getSimpleName() + ": " + e.getMessage(), e );
+            }
         }
 
-        return Collections.unmodifiableList( suppliers );
+        return Collections.unmodifiableList( jobs );
     }
 
     @Override
@@ -289,6 +298,10 @@ public class HealthService extends AbstractPwmService implements PwmService
         final Map<String, String> debugData = new HashMap<>();
         debugData.putAll( averageStats.debugStats() );
         debugData.putAll( counterStats.debugStats() );
+        if ( healthCheckRunner != null )
+        {
+            debugData.putAll( healthCheckRunner.debugStats() );
+        }
         return ServiceInfoBean.builder()
                 .debugProperties( Collections.unmodifiableMap( debugData ) )
                 .build();
@@ -23,13 +23,33 @@ package password.pwm.health;
 import lombok.Value;
 import password.pwm.PwmApplication;
 import password.pwm.bean.SessionLabel;
+import password.pwm.util.java.TimeDuration;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public interface HealthSupplier
 {
-    List<Supplier<List<HealthRecord>>> jobs( HealthSupplierRequest request );
+    /**
+     * Key of the job of a supplier that only has a single job.
+     */
+    String SINGLE_JOB = "";
+
+    /**
+     * Health check jobs keyed by an identifier that is stable between check cycles, such as a domain id, so that the
+     * result of each job can be cached and tracked under the same name.
+     */
+    Map<String, Supplier<List<HealthRecord>>> jobs( HealthSupplierRequest request );
+
+    /**
+     * Minimum time between executions of this supplier's jobs, or empty to use the nominal health check interval.
+     */
+    default Optional<TimeDuration> refreshInterval( )
+    {
+        return Optional.empty();
+    }
 
     @Value
     class HealthSupplierRequest
@@ -27,17 +27,18 @@ import password.pwm.bean.DomainID;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 public class JavaChecker implements HealthSupplier
 {
     @Override
-    public List<Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
+    public Map<String, Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
     {
         final PwmApplication pwmApplication = request.getPwmApplication();
 
         final Supplier<List<HealthRecord>> supplier = () -> doHealthCheck( pwmApplication );
-        return Collections.singletonList( supplier );
+        return Collections.singletonMap( SINGLE_JOB, supplier );
     }
 
     public List<HealthRecord> doHealthCheck( final PwmApplication pwmApplication )
@@ -77,24 +77,27 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 public class LDAPHealthChecker implements HealthSupplier
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( LDAPHealthChecker.class );
 
-    public List<Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
+    public Map<String, Supplier<List<HealthRecord>>> jobs( final HealthSupplier.HealthSupplierRequest request )
     {
         final PwmApplication pwmApplication = request.getPwmApplication();
-        return pwmApplication.domains().values().stream()
-                .map( domain -> ( Supplier<List<HealthRecord>> ) () -> doHealthCheck( request.getSessionLabel(), domain ) )
-                .collect( Collectors.toList() );
+        final Map<String, Supplier<List<HealthRecord>>> suppliers = new LinkedHashMap<>();
+        for ( final PwmDomain domain : pwmApplication.domains().values() )
+        {
+            suppliers.put( domain.getDomainID().stringValue(), () -> doHealthCheck( request.getSessionLabel(), domain ) );
+        }
+        return suppliers;
     }
 
     public List<HealthRecord> doHealthCheck( final SessionLabel sessionLabel, final PwmDomain pwmDomain )
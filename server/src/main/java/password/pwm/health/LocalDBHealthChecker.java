@@ -31,16 +31,17 @@ import password.pwm.util.localdb.LocalDB;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 public class LocalDBHealthChecker implements HealthSupplier
 {
     @Override
-    public List<Supplier<List<HealthRecord>>> jobs( final HealthSupplierRequest request )
+    public Map<String, Supplier<List<HealthRecord>>> jobs( final HealthSupplierRequest request )
     {
         final PwmApplication pwmApplication = request.getPwmApplication();
         final Supplier<List<HealthRecord>> supplier = () -> doHealthCheck( pwmApplication );
-        return Collections.singletonList( supplier );
+        return Collections.singletonMap( SINGLE_JOB, supplier );
     }
 
     public List<HealthRecord> doHealthCheck( final PwmApplication pwmApplication )
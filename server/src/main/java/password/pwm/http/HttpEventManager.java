@@ -26,13 +26,17 @@ import password.pwm.PwmConstants;
 import password.pwm.bean.DomainID;
 import password.pwm.bean.LocalSessionStateBean;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.http.servlet.ControlledPwmServlet;
 import password.pwm.svc.stats.EpsStatistic;
 import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.ws.server.RestServlet;
 
+import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
+import javax.servlet.ServletRegistration;
 import javax.servlet.ServletRequestEvent;
 import javax.servlet.ServletRequestListener;
 import javax.servlet.http.HttpSession;
@@ -145,6 +149,48 @@ public class HttpEventManager implements
             System.out.println( "error initializing context: " + e );
             e.printStackTrace();
         }
+
+        initializeServletDispatch( servletContextEvent.getServletContext() );
+    }
+
+    /**
+     * Build the action handler registries and rest dispatch tables of the registered servlets, so that a servlet with
+     * invalid handlers is reported at startup.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static void initializeServletDispatch( final ServletContext servletContext )
+    {
+        final Instant startTime = Instant.now();
+        int servletCount = 0;
+        for ( final ServletRegistration registration : servletContext.getServletRegistrations().values() )
+        {
+            final String className = registration.getClassName();
+            try
+            {
+                final Class<?> servletClass = className == null ? null : Class.forName( className, false, HttpEventManager.class.getClassLoader() );
+                if ( servletClass != null && ControlledPwmServlet.class.isAssignableFrom( servletClass ) )
+                {
+                    ControlledPwmServlet.initializeActionHandlers( ( Class<? extends ControlledPwmServlet> ) servletClass );
+                    servletCount++;
+                }
+                else if ( servletClass != null && RestServlet.class.isAssignableFrom( servletClass ) )
+                {
+                    RestServlet.initializeDispatchTable( ( Class<? extends RestServlet> ) servletClass );
+                    servletCount++;
+                }
+            }
+            catch ( final ClassNotFoundException | LinkageError e )
+            {
+                LOGGER.trace( () -> "skipping dispatch initialization of servlet class " + className + ": " + e.getMessage() );
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.fatal( () -> "invalid request handlers for servlet " + registration.getName() + ": " + e.getMessage(), e );
+            }
+        }
+
+        final int finalServletCount = servletCount;
+        LOGGER.debug( () -> "initialized request dispatch for " + finalServletCount + " servlets", () -> TimeDuration.fromCurrent( startTime ) );
     }
 
     @Override
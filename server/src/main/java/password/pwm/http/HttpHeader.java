@@ -31,21 +31,25 @@ public enum HttpHeader
     Accept( "Accept" ),
     AcceptEncoding( "Accept-Encoding" ),
     AcceptLanguage( "Accept-Language" ),
+    AcceptRanges( "Accept-Ranges" ),
     CacheControl( "Cache-Control" ),
     Connection( "Connection" ),
     ContentEncoding( "Content-Encoding" ),
     ContentDisposition( "content-disposition" ),
     ContentLanguage( "Content-Language" ),
     ContentLength( "Content-Length" ),
+    ContentRange( "Content-Range" ),
     ContentSecurityPolicy( "Content-Security-Policy" ),
     ContentTransferEncoding( "Content-Transfer-Encoding" ),
     ContentType( "Content-Type" ),
     ETag( "ETag" ),
     Expires( "Expires" ),
     If_None_Match( "If-None-Match" ),
+    If_Range( "If-Range" ),
     Last_Modified( "Last-Modified" ),
     Location( "Location" ),
     Origin( "Origin" ),
+    Range( "Range" ),
     Referer( "Referer" ),
     Server( "Server" ),
     SetCookie( "Set-Cookie" ),
@@ -46,6 +46,7 @@ import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
@@ -225,10 +226,11 @@ public class PwmResponse extends PwmHttpResponseWrapper
     {
         preCommitActions();
         final HttpServletResponse resp = this.getHttpServletResponse();
-        final String outputString = restResultBean.toJson( pwmRequest.isPrettyPrintJsonParameterTrue() );
         resp.setContentType( HttpContentType.json.getHeaderValueWithEncoding() );
-        resp.getWriter().print( outputString );
-        resp.getWriter().close();
+        try ( PrintWriter writer = resp.getWriter() )
+        {
+            restResultBean.writeJson( writer, pwmRequest.isPrettyPrintJsonParameterTrue() );
+        }
     }
 
 
@@ -289,6 +289,11 @@ public class PwmSession implements Serializable
         userInfo = null;
         loginInfoBean = null;
         userSessionDataCacheBean.clearPermissions();
+
+        if ( pwmRequest != null )
+        {
+            pwmRequest.getPwmDomain().getSessionTrackService().updateSessionAuthentication( this );
+        }
     }
 
     public TimeDuration getIdleTime( )
@@ -39,6 +39,12 @@ public class ConfigManagerBean extends PwmSessionBean
     private boolean configUnlockedWarningShown;
     private String prePasswordEntryUrl;
 
+    /**
+     * Replacement for the verified configuration password hash, applied the next time the configuration is saved.
+     */
+    private String verifiedPasswordHash;
+    private String passwordRehash;
+
     public ConfigManagerBean( )
     {
     }
@@ -0,0 +1,152 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.servlet;
+
+import password.pwm.http.ProcessStatus;
+import password.pwm.http.PwmRequest;
+import password.pwm.util.java.JavaHelper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps each {@link AbstractPwmServlet.ProcessAction} of a {@link ControlledPwmServlet} class to a method handle for its
+ * {@link ControlledPwmServlet.ActionHandler} method.  The registry is built once per class, normally for every
+ * registered servlet when the application starts; an action without a handler, a handler naming an unknown action, two
+ * handlers for one action, or a handler with the wrong signature fails the build.
+ */
+final class ActionHandlerRegistry
+{
+    private static final Map<Class<? extends ControlledPwmServlet>, ActionHandlerRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+    private static final MethodType HANDLER_TYPE = MethodType.methodType( ProcessStatus.class, ControlledPwmServlet.class, PwmRequest.class );
+
+    private final Map<AbstractPwmServlet.ProcessAction, MethodHandle> handlers;
+
+    private ActionHandlerRegistry( final Map<AbstractPwmServlet.ProcessAction, MethodHandle> handlers )
+    {
+        this.handlers = handlers;
+    }
+
+    static ActionHandlerRegistry forServlet( final ControlledPwmServlet servlet )
+    {
+        return REGISTRIES.computeIfAbsent( servlet.getClass(), servletClass -> build( servletClass, servlet.getProcessActionsClass() ) );
+    }
+
+    static ActionHandlerRegistry build(
+            final Class<? extends ControlledPwmServlet> servletClass,
+            final Class<? extends AbstractPwmServlet.ProcessAction> processActionClass
+    )
+    {
+        if ( !processActionClass.isEnum() )
+        {
+            throw new IllegalStateException( servletClass.getName() + " process action class must be an enum" );
+        }
+
+        final Map<AbstractPwmServlet.ProcessAction, Method> methods = new HashMap<>();
+        for ( final Method method : JavaHelper.getAllMethodsForClass( servletClass ) )
+        {
+            final ControlledPwmServlet.ActionHandler annotation = method.getAnnotation( ControlledPwmServlet.ActionHandler.class );
+            if ( annotation != null )
+            {
+                final AbstractPwmServlet.ProcessAction action = readAction( servletClass, processActionClass, annotation.action() );
+                final Method existing = methods.get( action );
+
+                // methods are listed subclass first, so an existing entry with the same name is an override of this one
+                if ( existing == null )
+                {
+                    methods.put( action, method );
+                }
+                else if ( !existing.getName().equals( method.getName() ) )
+                {
+                    throw new IllegalStateException( servletClass.getName() + " has multiple action handlers for action '" + action + "': "
+                            + existing.getName() + ", " + method.getName() );
+                }
+            }
+        }
+
+        final Map<AbstractPwmServlet.ProcessAction, MethodHandle> handlers = new HashMap<>();
+        for ( final AbstractPwmServlet.ProcessAction action : processActionClass.getEnumConstants() )
+        {
+            final Method method = methods.get( action );
+            if ( method == null )
+            {
+                throw new IllegalStateException( servletClass.getName() + " does not have an action handler for action '" + action + "'" );
+            }
+            handlers.put( action, unreflect( servletClass, method ) );
+        }
+
+        return new ActionHandlerRegistry( Map.copyOf( handlers ) );
+    }
+
+    Optional<MethodHandle> handlerFor( final AbstractPwmServlet.ProcessAction action )
+    {
+        return Optional.ofNullable( handlers.get( action ) );
+    }
+
+    private static AbstractPwmServlet.ProcessAction readAction(
+            final Class<? extends ControlledPwmServlet> servletClass,
+            final Class<? extends AbstractPwmServlet.ProcessAction> processActionClass,
+            final String actionName
+    )
+    {
+        for ( final AbstractPwmServlet.ProcessAction action : processActionClass.getEnumConstants() )
+        {
+            if ( ( ( Enum<?> ) action ).name().equals( actionName ) )
+            {
+                return action;
+            }
+        }
+        throw new IllegalStateException( servletClass.getName() + " has an action handler for action '" + actionName
+                + "' but no such " + processActionClass.getSimpleName() + " exists" );
+    }
+
+    private static MethodHandle unreflect( final Class<? extends ControlledPwmServlet> servletClass, final Method method )
+    {
+        final String methodName = servletClass.getName() + ":" + method.getName();
+        if ( method.getParameterCount() != 1 || method.getParameterTypes()[0] != PwmRequest.class )
+        {
+            throw new IllegalStateException( methodName + " must have exactly one parameter of type " + PwmRequest.class.getName() );
+        }
+        if ( method.getReturnType() != ProcessStatus.class )
+        {
+            throw new IllegalStateException( methodName + " must have return type of " + ProcessStatus.class.getName() );
+        }
+
+        try
+        {
+            return MethodHandles.privateLookupIn( method.getDeclaringClass(), MethodHandles.lookup() )
+                    .unreflect( method )
+                    .asType( HANDLER_TYPE );
+        }
+        catch ( final IllegalAccessException e )
+        {
+            throw new IllegalStateException( "unable to access action handler method " + methodName + ": " + e.getMessage(), e );
+        }
+    }
+}
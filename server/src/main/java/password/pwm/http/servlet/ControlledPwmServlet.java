@@ -36,19 +36,13 @@ import javax.servlet.ServletException;
 import java.io.IOException;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.invoke.MethodHandle;
 import java.util.Optional;
 
 public abstract class ControlledPwmServlet extends AbstractPwmServlet implements PwmServlet
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( AbstractPwmServlet.class );
 
-    private final Map<? extends ProcessAction, Method> actionMethodCache = createMethodCache();
-
     @Override
     protected PwmServletDefinition getServletDefinition( )
     {
@@ -65,6 +59,16 @@ public abstract class ControlledPwmServlet extends AbstractPwmServlet implements
 
     public abstract Class<? extends ProcessAction> getProcessActionsClass( );
 
+    /**
+     * Build and validate the action handlers of a servlet class, so a missing or malformed handler is reported when
+     * the application starts rather than on the first request.
+     */
+    public static void initializeActionHandlers( final Class<? extends ControlledPwmServlet> servletClass )
+            throws ReflectiveOperationException
+    {
+        ActionHandlerRegistry.forServlet( servletClass.getDeclaredConstructor().newInstance() );
+    }
+
     @Override
     protected Optional<? extends ProcessAction> readProcessAction( final PwmRequest request )
             throws PwmUnrecoverableException
@@ -84,37 +88,25 @@ public abstract class ControlledPwmServlet extends AbstractPwmServlet implements
         {
             return ProcessStatus.Continue;
         }
-        try
+        final Optional<MethodHandle> handler = ActionHandlerRegistry.forServlet( this ).handlerFor( action.get() );
+        if ( handler.isPresent() )
         {
-            final Method interestedMethod = actionMethodCache.get( action.get() );
-            if ( interestedMethod != null )
+            try
             {
-                interestedMethod.setAccessible( true );
-                return ( ProcessStatus ) interestedMethod.invoke( this, pwmRequest );
+                return ( ProcessStatus ) handler.get().invokeExact( this, pwmRequest );
             }
-        }
-        catch ( final InvocationTargetException e )
-        {
-            final Throwable cause = e.getCause();
-            if ( cause != null )
+            catch ( final PwmUnrecoverableException e )
+            {
+                throw e;
+            }
+            catch ( final Throwable e )
             {
-                if ( cause instanceof PwmUnrecoverableException )
-                {
-                    throw ( PwmUnrecoverableException ) cause;
-                }
                 final String msg = "unexpected error during action handler for '"
                         + this.getClass().getName()
-                        + ":" + action + "', error: " + cause.getMessage();
-                LOGGER.error( pwmRequest, () -> msg, e.getCause() );
+                        + ":" + action + "', error: " + e.getMessage();
+                LOGGER.error( pwmRequest, () -> msg, e );
                 throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_INTERNAL, msg ) );
             }
-            LOGGER.error( () -> "uncased invocation error: " + e.getMessage(), e );
-        }
-        catch ( final Throwable e )
-        {
-            final String msg = "unexpected error invoking action handler for '" + action + "', error: " + e.getMessage();
-            LOGGER.error( () -> msg, e );
-            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_INTERNAL, msg ) );
         }
 
         final String msg = "missing action handler for '" + action + "'";
@@ -185,23 +177,5 @@ public abstract class ControlledPwmServlet extends AbstractPwmServlet implements
     {
         String action( );
             }
-
-    private Map<? extends ProcessAction, Method> createMethodCache()
-    {
-        final Map<ProcessAction, Method> map = new HashMap<>();
-        final Collection<Method> methods = JavaHelper.getAllMethodsForClass( this.getClass() );
-        for ( final Method method : methods )
-        {
-            if ( method.getAnnotation( ActionHandler.class ) != null )
-            {
-                final String actionName = method.getAnnotation( ActionHandler.class ).action();
-                final Class processActionClass = getProcessActionsClass();
-                final Optional<? extends ProcessAction> processAction = JavaHelper.readEnumFromString( processActionClass, actionName );
-                processAction.ifPresent( action -> map.put( action, method ) );
-
-            }
-        }
-        return Map.copyOf( map );
-    }
 }
 
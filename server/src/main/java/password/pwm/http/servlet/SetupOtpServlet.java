@@ -290,27 +290,17 @@ public class SetupOtpServlet extends ControlledPwmServlet
         final Map<String, String> clientValues = JsonUtil.deserializeStringMap( bodyString );
         final String code = Validator.sanitizeInputValue( pwmRequest.getAppConfig(), clientValues.get( "code" ), 1024 );
 
-        try
-        {
-            final boolean passed = otpService.validateToken(
-                    pwmRequest.getLabel(),
-                    pwmSession.getUserInfo().getUserIdentity(),
-                    otpUserRecord,
-                    code,
-                    false
-            );
-            final RestResultBean restResultBean = RestResultBean.withData( passed );
-
-            LOGGER.trace( pwmRequest, () -> "returning result for restValidateCode: " + JsonUtil.serialize( restResultBean ) );
-            pwmRequest.outputJsonResult( restResultBean );
-        }
-        catch ( final PwmOperationalException e )
-        {
-
-            final String errorMsg = "error during otp code validation: " + e.getMessage();
-            LOGGER.error( pwmRequest, () -> errorMsg );
-            pwmRequest.outputJsonResult( RestResultBean.fromError( new ErrorInformation( PwmError.ERROR_INTERNAL, errorMsg ), pwmRequest ) );
-        }
+        // only a check, the code is not used up
+        final boolean passed = otpService.checkToken(
+                pwmRequest.getLabel(),
+                pwmSession.getUserInfo().getUserIdentity(),
+                otpUserRecord,
+                code
+        );
+        final RestResultBean restResultBean = RestResultBean.withData( passed );
+
+        LOGGER.trace( pwmRequest, () -> "returning result for restValidateCode: " + JsonUtil.serialize( restResultBean ) );
+        pwmRequest.outputJsonResult( restResultBean );
 
         return ProcessStatus.Continue;
     }
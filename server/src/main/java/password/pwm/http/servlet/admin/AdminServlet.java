@@ -52,6 +52,7 @@ import password.pwm.i18n.Message;
 import password.pwm.ldap.search.UserSearchEngine;
 import password.pwm.svc.event.AuditEventType;
 import password.pwm.svc.event.AuditRecord;
+import password.pwm.svc.event.AuditVaultQuery;
 import password.pwm.svc.intruder.IntruderRecordType;
 import password.pwm.svc.intruder.PublicIntruderRecord;
 import password.pwm.svc.pwnotify.PwNotifyService;
@@ -451,8 +452,9 @@ public class AdminServlet extends ControlledPwmServlet
                     pwmRequest.getLabel(),
                     userIdentity
             );
-            final String output = JsonUtil.serialize( userDebugData, JsonUtil.Flag.PrettyPrint );
-            pwmRequest.getPwmResponse().getOutputStream().write( output.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            final Writer writer = new OutputStreamWriter( pwmRequest.getPwmResponse().getOutputStream(), PwmConstants.DEFAULT_CHARSET );
+            JsonUtil.serializeTo( userDebugData, writer, JsonUtil.Flag.PrettyPrint );
+            writer.flush();
         }
         else
         {
@@ -471,7 +473,8 @@ public class AdminServlet extends ControlledPwmServlet
         final int max = readMaxParameter( pwmRequest, 100, 10 * 1000 );
         final AuditEventType auditDataType = AuditEventType.valueOf( pwmRequest.readParameterAsString( "type", AuditEventType.USER.name() ) );
         final ArrayList<AuditRecord> records = new ArrayList<>();
-        final Iterator<AuditRecord> iterator = pwmRequest.getPwmDomain().getAuditService().readVault();
+        final AuditVaultQuery query = AuditVaultQuery.builder().type( auditDataType ).build();
+        final Iterator<AuditRecord> iterator = pwmRequest.getPwmDomain().getAuditService().readVault( query );
 
         while (
                 iterator.hasNext()
@@ -479,11 +482,7 @@ public class AdminServlet extends ControlledPwmServlet
                         && TimeDuration.fromCurrent( startTime ).isShorterThan( maxSearchTime )
                 )
         {
-            final AuditRecord loopRecord = iterator.next();
-            if ( auditDataType == loopRecord.getType() )
-            {
-                records.add( loopRecord );
-            }
+            records.add( iterator.next() );
         }
 
         final HashMap<String, Object> resultData = new HashMap<>( Collections.singletonMap( "records", records ) );
@@ -509,6 +509,20 @@ public class AppDashboardData implements Serializable
         {
             final Map<SessionTrackService.DebugKey, String> debugInfoMap = pwmDomain.getSessionTrackService().getDebugData();
 
+            javaInfo.add( new DisplayElement(
+                    "sessionAuthenticatedCount",
+                    DisplayElement.Type.string,
+                    "Authenticated Sessions",
+                    debugInfoMap.get( SessionTrackService.DebugKey.HttpSessionAuthenticatedCount )
+            ) );
+
+            javaInfo.add( new DisplayElement(
+                    "sessionAverageAge",
+                    DisplayElement.Type.string,
+                    "Average Session Age",
+                    debugInfoMap.get( SessionTrackService.DebugKey.HttpSessionAvgAge )
+            ) );
+
             javaInfo.add( new DisplayElement(
                     "sessionTotalSize",
                     DisplayElement.Type.string,
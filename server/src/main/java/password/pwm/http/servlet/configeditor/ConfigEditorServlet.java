@@ -106,7 +106,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
 
 @WebServlet(
         name = "ConfigEditorServlet",
@@ -421,7 +420,7 @@ public class ConfigEditorServlet extends ControlledPwmServlet
         {
             final Map<String, String> postData = pwmRequest.readBodyAsJsonStringMap();
             final String password = postData.get( "password" );
-            StoredConfigurationUtil.setPassword( modifier, password );
+            StoredConfigurationUtil.setPassword( modifier, password, pwmRequest.getPwmApplication().getSecureService().getPasswordHasher() );
             configManagerBean.setPasswordVerified( true );
             LOGGER.debug( pwmRequest, () -> "config password updated" );
             final RestResultBean restResultBean = RestResultBean.forConfirmMessage( pwmRequest, Config.Confirm_ConfigPasswordStored );
@@ -591,7 +590,7 @@ public class ConfigEditorServlet extends ControlledPwmServlet
 
         final Set<StoredConfigKey> searchResults = new ConfigSearchMachine( storedConfiguration, locale ).search( searchTerm, searchDomains );
 
-        final TreeMap<String, Map<String, SearchResultItem>> returnData = new TreeMap<>();
+        final LinkedHashMap<String, Map<String, SearchResultItem>> returnData = new LinkedHashMap<>();
 
         searchResults
                 .stream()
@@ -601,7 +600,7 @@ public class ConfigEditorServlet extends ControlledPwmServlet
                     final SearchResultItem item = SearchResultItem.fromKey( recordID, storedConfiguration, locale );
                     final String returnCategory = item.getNavigation();
 
-                    returnData.computeIfAbsent( returnCategory, k -> new TreeMap<>() )
+                    returnData.computeIfAbsent( returnCategory, k -> new LinkedHashMap<>() )
                             .put( recordID.getRecordID(), item );
                 } );
 
@@ -543,7 +543,7 @@ public class ConfigGuideServlet extends ControlledPwmServlet
         {
             final StoredConfigurationModifier storedConfiguration = StoredConfigurationModifier.newModifier( StoredConfigurationFactory.newConfig() );
             storedConfiguration.writeConfigProperty( ConfigurationProperty.CONFIG_IS_EDITABLE, "true" );
-            StoredConfigurationUtil.setPassword( storedConfiguration, password );
+            StoredConfigurationUtil.setPassword( storedConfiguration, password, pwmRequest.getPwmApplication().getSecureService().getPasswordHasher() );
             ConfigGuideUtils.writeConfig( contextManager, storedConfiguration.newStoredConfiguration() );
             pwmRequest.outputJsonResult( RestResultBean.forSuccessMessage( pwmRequest, Message.Success_Unknown ) );
             pwmRequest.invalidateSession();
@@ -89,7 +89,8 @@ public class ConfigGuideUtils
         final String configPassword = configGuideBean.getFormData().get( ConfigGuideFormField.PARAM_CONFIG_PASSWORD );
         if ( configPassword != null && configPassword.length() > 0 )
         {
-            StoredConfigurationUtil.setPassword( storedConfiguration, configPassword );
+            StoredConfigurationUtil.setPassword( storedConfiguration, configPassword,
+                    contextManager.getPwmApplication().getSecureService().getPasswordHasher() );
         }
         else
         {
@@ -53,6 +53,7 @@ import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PasswordHasher;
 import password.pwm.util.secure.PwmHashAlgorithm;
 import password.pwm.util.secure.SecureEngine;
 
@@ -142,9 +143,18 @@ public class ConfigManagerLoginServlet extends AbstractPwmServlet
         final String password = pwmRequest.readParameterAsString( "password" );
         if ( StringUtil.notEmpty( password ) )
         {
-            if ( StoredConfigurationUtil.verifyPassword( storedConfig, password ) )
+            final PasswordHasher.Verification verification = StoredConfigurationUtil.verifyPassword(
+                    storedConfig, password, pwmRequest.getPwmApplication().getSecureService().getPasswordHasher() );
+            if ( verification.isValid() )
             {
                 LOGGER.trace( pwmRequest, () -> "valid configuration password accepted" );
+                if ( verification.getRehash().isPresent() )
+                {
+                    // writing the configuration now would restart the application, so the upgrade waits for the next save
+                    final ConfigManagerBean configManagerBean = pwmRequest.getPwmDomain().getSessionStateService().getBean( pwmRequest, ConfigManagerBean.class );
+                    configManagerBean.setVerifiedPasswordHash( storedConfig.readConfigProperty( ConfigurationProperty.PASSWORD_HASH ).orElse( null ) );
+                    configManagerBean.setPasswordRehash( verification.getRehash().get() );
+                }
                 updateLoginHistory( pwmRequest, pwmRequest.getUserInfoIfLoggedIn(), true );
                 processLoginSuccess( pwmRequest, true );
             }
@@ -296,10 +296,11 @@ public class ConfigManagerServlet extends AbstractPwmServlet
 
     public static void saveConfiguration(
             final PwmRequest pwmRequest,
-            final StoredConfiguration storedConfiguration
+            final StoredConfiguration inputConfiguration
     )
             throws PwmUnrecoverableException
     {
+        final StoredConfiguration storedConfiguration = applyPasswordRehash( pwmRequest, inputConfiguration );
         {
             final List<String> errorStrings = StoredConfigurationUtil.validateValues( storedConfiguration );
             if ( errorStrings != null && !errorStrings.isEmpty() )
@@ -337,6 +338,31 @@ public class ConfigManagerServlet extends AbstractPwmServlet
 
     }
 
+    /**
+     * Store the upgraded configuration password hash computed at login, provided the configuration being saved still
+     * holds the hash that was verified.
+     */
+    private static StoredConfiguration applyPasswordRehash( final PwmRequest pwmRequest, final StoredConfiguration storedConfiguration )
+            throws PwmUnrecoverableException
+    {
+        final ConfigManagerBean configManagerBean = pwmRequest.getPwmDomain().getSessionStateService().getBean( pwmRequest, ConfigManagerBean.class );
+        final String verifiedPasswordHash = configManagerBean.getVerifiedPasswordHash();
+        final String passwordRehash = configManagerBean.getPasswordRehash();
+        configManagerBean.setVerifiedPasswordHash( null );
+        configManagerBean.setPasswordRehash( null );
+
+        if ( passwordRehash == null
+                || !storedConfiguration.readConfigProperty( ConfigurationProperty.PASSWORD_HASH ).map( hash -> hash.equals( verifiedPasswordHash ) ).orElse( false ) )
+        {
+            return storedConfiguration;
+        }
+
+        final StoredConfigurationModifier modifier = StoredConfigurationModifier.newModifier( storedConfiguration );
+        modifier.writeConfigProperty( ConfigurationProperty.PASSWORD_HASH, passwordRehash );
+        LOGGER.debug( pwmRequest, () -> "upgraded configuration password hash to current parameters" );
+        return modifier.newStoredConfiguration();
+    }
+
     static void forwardToEditor( final PwmRequest pwmRequest )
             throws IOException, ServletException, PwmUnrecoverableException
     {
@@ -135,7 +135,7 @@ public class ForgottenPasswordStateMachine
     {
         this.forgottenPasswordBean = forgottenPasswordBean == null
                 ? new ForgottenPasswordBean()
-                : JsonUtil.cloneUsingJson( forgottenPasswordBean, ForgottenPasswordBean.class );
+                : JsonUtil.deepCopy( forgottenPasswordBean );
     }
 
     public ForgottenPasswordBean getForgottenPasswordBean()
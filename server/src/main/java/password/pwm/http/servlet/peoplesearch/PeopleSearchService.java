@@ -54,6 +54,7 @@ public class PeopleSearchService extends AbstractPwmService implements PwmServic
                 new ArrayBlockingQueue<>( 5000 ),
                 threadFactory
         );
+        threadPoolExecutor.allowCoreThreadTimeOut( true );
 
         return STATUS.OPEN;
     }
@@ -35,6 +35,11 @@ class RealFileResource implements FileResource
         this.realFile = realFile;
     }
 
+    File getRealFile( )
+    {
+        return realFile;
+    }
+
     @Override
     public InputStream getInputStream( ) throws IOException
     {
@@ -0,0 +1,107 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.servlet.resource;
+
+import lombok.Value;
+import password.pwm.util.java.StringUtil;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * A single byte range parsed from an http {@code Range} request header.  Multiple ranges and malformed values are
+ * not supported; those requests are answered with the full body, which the http specification permits.
+ */
+@Value
+class ResourceByteRange
+{
+    static final ResourceByteRange UNSATISFIABLE = new ResourceByteRange( -1, -1 );
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+
+    boolean isSatisfiable()
+    {
+        return start >= 0;
+    }
+
+    long length()
+    {
+        return end - start + 1;
+    }
+
+    String contentRangeHeader( final long totalLength )
+    {
+        return isSatisfiable()
+                ? "bytes " + start + "-" + end + "/" + totalLength
+                : "bytes */" + totalLength;
+    }
+
+    static Optional<ResourceByteRange> parse( final String rangeHeader, final long totalLength )
+    {
+        if ( StringUtil.isEmpty( rangeHeader ) || !rangeHeader.toLowerCase( Locale.ROOT ).startsWith( BYTES_UNIT ) )
+        {
+            return Optional.empty();
+        }
+
+        final String spec = rangeHeader.substring( BYTES_UNIT.length() ).trim();
+        final int dashIndex = spec.indexOf( '-' );
+        if ( spec.indexOf( ',' ) >= 0 || dashIndex < 0 )
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            final String firstValue = spec.substring( 0, dashIndex ).trim();
+            final String lastValue = spec.substring( dashIndex + 1 ).trim();
+
+            if ( firstValue.isEmpty() )
+            {
+                final long suffixLength = Long.parseLong( lastValue );
+                if ( suffixLength <= 0 || totalLength <= 0 )
+                {
+                    return Optional.of( UNSATISFIABLE );
+                }
+                return Optional.of( new ResourceByteRange( Math.max( 0, totalLength - suffixLength ), totalLength - 1 ) );
+            }
+
+            final long first = Long.parseLong( firstValue );
+            final long last = lastValue.isEmpty() ? totalLength - 1 : Long.parseLong( lastValue );
+            if ( first < 0 || ( !lastValue.isEmpty() && last < first ) )
+            {
+                return Optional.empty();
+            }
+            if ( first >= totalLength )
+            {
+                return Optional.of( UNSATISFIABLE );
+            }
+            return Optional.of( new ResourceByteRange( first, Math.min( last, totalLength - 1 ) ) );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return Optional.empty();
+        }
+    }
+}
@@ -54,31 +54,27 @@ class ResourceFileRequest
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( ResourceFileRequest.class );
 
-    private static final Map<String, String> WEB_JAR_VERSION_MAP = Map.copyOf( new WebJarAssetLocator().getWebJars() );
+    static final Map<String, String> WEB_JAR_VERSION_MAP = Map.copyOf( new WebJarAssetLocator().getWebJars() );
 
     /** Contains a list of all resources (files) found inside the resources folder of all JARs in the WAR's classpath. **/
-    private static final Collection<String> WEB_JAR_ASSET_LIST = Collections.unmodifiableCollection( new ArrayList<>( new WebJarAssetLocator().listAssets() ) );
+    static final Collection<String> WEB_JAR_ASSET_LIST = Collections.unmodifiableCollection( new ArrayList<>( new WebJarAssetLocator().listAssets() ) );
 
     private final DomainConfig domainConfig;
     private final HttpServletRequest httpServletRequest;
     private final ResourceServletConfiguration resourceServletConfiguration;
 
-    private final Optional<FileResource> fileResource;
+    /** Resolved on first use, so requests answered from the {@link StaticResourceIndex} skip resolution. **/
+    private Optional<FileResource> fileResource;
 
     ResourceFileRequest(
             @NonNull final DomainConfig domainConfig,
             @NonNull final ResourceServletConfiguration resourceServletConfiguration,
             @NonNull final HttpServletRequest httpServletRequest
     )
-            throws PwmUnrecoverableException
     {
         this.domainConfig = domainConfig;
         this.resourceServletConfiguration = resourceServletConfiguration;
         this.httpServletRequest = httpServletRequest;
-
-        final String resourcePathUri = this.getRequestURI();
-        final ServletContext servletContext = this.getHttpServletRequest().getServletContext();
-        fileResource = resolveRequestedResource( domainConfig, servletContext, resourcePathUri, resourceServletConfiguration );
     }
 
     HttpServletRequest getHttpServletRequest()
@@ -96,6 +92,31 @@ class ResourceFileRequest
         return stripNonceFromURI( figureRequestPathMinusContext() );
     }
 
+    String getEffectiveURI()
+    {
+        return deriveEffectiveURI( domainConfig, getRequestURI() );
+    }
+
+    /**
+     * The path nonce value present in the request uri, without the configured nonce prefix.
+     */
+    Optional<String> getRequestNonce()
+    {
+        if ( !resourceServletConfiguration.isEnablePathNonce() )
+        {
+            return Optional.empty();
+        }
+
+        final Matcher theMatcher = resourceServletConfiguration.getNoncePattern().matcher( figureRequestPathMinusContext() );
+        if ( theMatcher.find() )
+        {
+            final String nonceSegment = theMatcher.group();
+            return Optional.of( nonceSegment.substring( resourceServletConfiguration.getNoncePrefix().length(), nonceSegment.length() - 1 ) );
+        }
+
+        return Optional.empty();
+    }
+
     String getReturnContentType()
             throws PwmUnrecoverableException
     {
@@ -107,15 +128,24 @@ class ResourceFileRequest
     Optional<FileResource> getRequestedFileResource()
             throws PwmUnrecoverableException
     {
+        if ( fileResource == null )
+        {
+            final ServletContext servletContext = this.getHttpServletRequest().getServletContext();
+            fileResource = resolveRequestedResource( domainConfig, servletContext, getRequestURI(), resourceServletConfiguration );
+        }
         return fileResource;
     }
 
     private String getRawMimeType()
             throws PwmUnrecoverableException
     {
-        if ( fileResource.isPresent() )
+        final Optional<String> resourceName = fileResource == null
+                ? Optional.of( getEffectiveURI() )
+                : fileResource.map( FileResource::getName );
+
+        if ( resourceName.isPresent() )
         {
-            final String filename = fileResource.get().getName();
+            final String filename = resourceName.get();
             final String contentType = this.httpServletRequest.getServletContext().getMimeType( filename );
             if ( contentType == null )
             {
@@ -156,6 +186,32 @@ class ResourceFileRequest
         return false;
     }
 
+    /**
+     * Select the smallest encoding of an indexed resource that the client accepts.  Unlike {@link #allowsCompression()}
+     * this is not limited to text content types, since the index only keeps encodings that are smaller than the
+     * identity body.
+     */
+    StaticResource.Encoding selectEncoding( final StaticResource staticResource )
+    {
+        if ( resourceServletConfiguration.isEnableGzip() )
+        {
+            final String acceptEncoding = httpServletRequest.getHeader( HttpHeader.AcceptEncoding.getHttpName() );
+            if ( acceptEncoding != null )
+            {
+                StaticResource.Encoding selected = StaticResource.Encoding.identity;
+                for ( final StaticResource.Encoding encoding : staticResource.getEncodings() )
+                {
+                    if ( accepts( acceptEncoding, encoding.name() ) && staticResource.length( encoding ) < staticResource.length( selected ) )
+                    {
+                        selected = encoding;
+                    }
+                }
+                return selected;
+            }
+        }
+        return StaticResource.Encoding.identity;
+    }
+
     private String stripNonceFromURI(
             final String uriString
     )
@@ -34,6 +34,7 @@ import password.pwm.http.servlet.PwmServlet;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
@@ -45,6 +46,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -76,6 +78,11 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
     public static final String TOKEN_THEME = "%THEME%";
     public static final String EMBED_THEME = "embed";
 
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
     @Override
     protected void doGet( final HttpServletRequest req, final HttpServletResponse resp )
             throws ServletException, IOException
@@ -114,6 +121,20 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
         final ResourceFileRequest resourceFileRequest = new ResourceFileRequest( pwmDomain.getConfig(), resourceConfiguration, pwmRequest.getHttpServletRequest() );
         final String requestURI = resourceFileRequest.getRequestURI();
 
+        final Optional<StaticResource> staticResource = resourceService.getResourceIndex().lookup( resourceFileRequest.getEffectiveURI() );
+        if ( staticResource.isPresent() )
+        {
+            try
+            {
+                processIndexedResource( pwmRequest, resourceFileRequest, staticResource.get(), startTime );
+            }
+            catch ( final IOException e )
+            {
+                LOGGER.trace( pwmRequest, () -> "error fulfilling response for url '" + requestURI + "', error: " + e.getMessage() );
+            }
+            return;
+        }
+
         final FileResource file;
         {
             final Optional<FileResource> resolvedFile = doResolve( resourceService, resourceFileRequest, pwmRequest );
@@ -138,7 +159,7 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
         }
 
         // Initialize response.
-        addExpirationHeaders( resourceConfiguration, response );
+        addExpirationHeaders( response, resourceConfiguration.getCacheExpireSeconds(), false );
         response.setHeader(  HttpHeader.ETag.getHttpName(), resourceConfiguration.getNonceValue() );
         response.setContentType( contentType );
 
@@ -153,17 +174,13 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
             }
             catch ( final UncacheableResourceException e )
             {
-                handleUncachedResponse( response, file, acceptsGzip );
+                handleUncachedResponse( pwmRequest.getHttpServletRequest(), response, file, acceptsGzip );
                 debugText = makeDebugText( fromCache, acceptsGzip, true );
             }
 
             pwmRequest.debugHttpRequestToLog( debugText, () -> TimeDuration.fromCurrent( pwmRequest.getRequestStartTime() ) );
 
-            StatisticsClient.incrementStat( pwmDomain, Statistic.HTTP_RESOURCE_REQUESTS );
-            resourceService.getAverageStats().update( ResourceServletService.AverageStat.cacheHitRatio, fromCache ? 1 : 0 );
-            resourceService.getAverageStats().update( ResourceServletService.AverageStat.avgResponseTimeMS, TimeDuration.fromCurrent( startTime ) );
-            resourceService.getCountingStats().increment( ResourceServletService.CountingStat.requestsServed );
-            resourceService.getCountingStats().increment( ResourceServletService.CountingStat.bytesServed, file.length() );
+            updateStats( pwmDomain, startTime, fromCache, file.length() );
         }
         catch ( final Exception e )
         {
@@ -180,6 +197,118 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
         }
     }
 
+    /**
+     * Respond using a resource from the {@link StaticResourceIndex}.  The body is written from memory in a single
+     * call, using the smallest pre-compressed encoding the client accepts.  Single byte range requests are answered
+     * from the identity body.  Requests whose path nonce matches the resource content hash may be cached as immutable.
+     */
+    private void processIndexedResource(
+            final PwmRequest pwmRequest,
+            final ResourceFileRequest resourceFileRequest,
+            final StaticResource staticResource,
+            final Instant startTime
+    )
+            throws IOException, PwmUnrecoverableException
+    {
+        final ResourceServletService resourceService = pwmRequest.getPwmDomain().getResourceServletService();
+        final ResourceServletConfiguration resourceConfiguration = resourceFileRequest.getResourceServletConfiguration();
+        final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
+
+        final boolean immutable = resourceFileRequest.getRequestNonce()
+                .map( nonce -> nonce.equals( staticResource.getContentHash() ) )
+                .orElse( false );
+        addExpirationHeaders(
+                response,
+                immutable ? resourceConfiguration.getImmutableExpireSeconds() : resourceConfiguration.getCacheExpireSeconds(),
+                immutable );
+        response.setHeader( HttpHeader.AcceptRanges.getHttpName(), "bytes" );
+
+        final String debugText;
+        long bytesServed = 0;
+        if ( staticResource.matchesETag( pwmRequest.readHeaderValueAsString( HttpHeader.If_None_Match ) ) )
+        {
+            response.setHeader( HttpHeader.ETag.getHttpName(), staticResource.eTag( resourceFileRequest.selectEncoding( staticResource ) ) );
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            resourceService.getCountingStats().increment( ResourceServletService.CountingStat.requestsNotModified );
+            debugText = "(indexed, not modified)";
+        }
+        else
+        {
+            response.setContentType( resourceFileRequest.getReturnContentType() );
+
+            final Optional<ResourceByteRange> range = readRange( pwmRequest, staticResource );
+            if ( range.isPresent() )
+            {
+                response.setHeader( HttpHeader.ETag.getHttpName(), staticResource.eTag( StaticResource.Encoding.identity ) );
+                response.setHeader( HttpHeader.ContentRange.getHttpName(), range.get().contentRangeHeader( staticResource.length( StaticResource.Encoding.identity ) ) );
+                if ( range.get().isSatisfiable() )
+                {
+                    response.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+                    response.setContentLengthLong( range.get().length() );
+                    try ( OutputStream responseOutputStream = response.getOutputStream() )
+                    {
+                        staticResource.writeTo( responseOutputStream, range.get() );
+                    }
+                    bytesServed = range.get().length();
+                    resourceService.getCountingStats().increment( ResourceServletService.CountingStat.requestsPartialContent );
+                    debugText = "(indexed, range " + range.get().getStart() + "-" + range.get().getEnd() + ")";
+                }
+                else
+                {
+                    response.setStatus( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+                    debugText = "(indexed, range not satisfiable)";
+                }
+            }
+            else
+            {
+                final StaticResource.Encoding encoding = resourceFileRequest.selectEncoding( staticResource );
+                response.setHeader( HttpHeader.ETag.getHttpName(), staticResource.eTag( encoding ) );
+                if ( encoding != StaticResource.Encoding.identity )
+                {
+                    response.setHeader( HttpHeader.ContentEncoding.getHttpName(), encoding.name() );
+                }
+                response.setContentLengthLong( staticResource.length( encoding ) );
+                try ( OutputStream responseOutputStream = response.getOutputStream() )
+                {
+                    staticResource.writeTo( responseOutputStream, encoding );
+                }
+                bytesServed = staticResource.length( encoding );
+                debugText = "(indexed, " + encoding.name() + ( immutable ? ", immutable" : "" ) + ")";
+            }
+        }
+
+        pwmRequest.debugHttpRequestToLog( debugText, () -> TimeDuration.fromCurrent( pwmRequest.getRequestStartTime() ) );
+        updateStats( pwmRequest.getPwmDomain(), startTime, true, bytesServed );
+    }
+
+    private static Optional<ResourceByteRange> readRange( final PwmRequest pwmRequest, final StaticResource staticResource )
+    {
+        final String rangeHeader = pwmRequest.readHeaderValueAsString( HttpHeader.Range );
+        if ( StringUtil.isEmpty( rangeHeader ) )
+        {
+            return Optional.empty();
+        }
+
+        // a range is only valid for the representation the client holds; otherwise send the full body.
+        final String ifRangeHeader = pwmRequest.readHeaderValueAsString( HttpHeader.If_Range );
+        if ( !StringUtil.isEmpty( ifRangeHeader ) && !staticResource.matchesETag( ifRangeHeader ) )
+        {
+            return Optional.empty();
+        }
+
+        return ResourceByteRange.parse( rangeHeader, staticResource.length( StaticResource.Encoding.identity ) );
+    }
+
+    private static void updateStats( final PwmDomain pwmDomain, final Instant startTime, final boolean fromCache, final long bytesServed )
+    {
+        final ResourceServletService resourceService = pwmDomain.getResourceServletService();
+        StatisticsClient.incrementStat( pwmDomain, Statistic.HTTP_RESOURCE_REQUESTS );
+        resourceService.getAverageStats().update( ResourceServletService.AverageStat.cacheHitRatio, fromCache ? 1 : 0 );
+        resourceService.getAverageStats().update( ResourceServletService.AverageStat.avgResponseTimeMS, TimeDuration.fromCurrent( startTime ) );
+        resourceService.getCountingStats().increment( ResourceServletService.CountingStat.requestsServed );
+        resourceService.getCountingStats().increment( ResourceServletService.CountingStat.bytesServed, bytesServed );
+    }
+
     private Optional<FileResource> doResolve(
             final ResourceServletService resourceService,
             final ResourceFileRequest resourceFileRequest,
@@ -327,12 +456,24 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
     }
 
     private static void handleUncachedResponse(
+            final HttpServletRequest request,
             final HttpServletResponse response,
             final FileResource file,
             final boolean acceptsGzip
     )
             throws IOException
     {
+        if ( !acceptsGzip && file instanceof RealFileResource && Boolean.TRUE.equals( request.getAttribute( SENDFILE_SUPPORT_ATTRIBUTE ) ) )
+        {
+            // let the container send the file directly from the file system instead of copying it through the output stream.
+            final File realFile = ( ( RealFileResource ) file ).getRealFile();
+            response.setContentLengthLong( realFile.length() );
+            request.setAttribute( SENDFILE_FILENAME_ATTRIBUTE, realFile.getCanonicalPath() );
+            request.setAttribute( SENDFILE_START_ATTRIBUTE, 0L );
+            request.setAttribute( SENDFILE_END_ATTRIBUTE, realFile.length() );
+            return;
+        }
+
         try (
                 OutputStream output = new BufferedOutputStream( response.getOutputStream() );
                 InputStream input = new BufferedInputStream( file.getInputStream() )
@@ -357,10 +498,10 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
 
     }
 
-    private void addExpirationHeaders( final ResourceServletConfiguration resourceServletConfiguration, final HttpServletResponse httpResponse )
+    private static void addExpirationHeaders( final HttpServletResponse httpResponse, final long expireSeconds, final boolean immutable )
     {
-        httpResponse.setDateHeader( "Expires", System.currentTimeMillis() + ( resourceServletConfiguration.getCacheExpireSeconds() * 1000 ) );
-        httpResponse.setHeader( "Cache-Control", "public, max-age=" + resourceServletConfiguration.getCacheExpireSeconds() );
+        httpResponse.setDateHeader( "Expires", System.currentTimeMillis() + ( expireSeconds * 1000 ) );
+        httpResponse.setHeader( "Cache-Control", "public, max-age=" + expireSeconds + ( immutable ? ", immutable" : "" ) );
         httpResponse.setHeader( "Vary", "Accept-Encoding" );
     }
 
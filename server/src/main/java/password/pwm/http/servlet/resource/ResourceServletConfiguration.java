@@ -63,9 +63,14 @@ class ResourceServletConfiguration
     private boolean enableGzip;
     private boolean enablePathNonce;
     private long maxCacheBytes;
+    private boolean enableIndex;
+    private long indexMaxBytes;
+    private long immutableExpireSeconds;
 
     private final Map<String, ZipFile> zipResources;
     private final Map<String, FileResource> customFileBundle;
+    private String noncePrefix;
+    private int nonceLength;
     private Pattern noncePattern;
     private String nonceValue;
 
@@ -76,9 +81,14 @@ class ResourceServletConfiguration
         enableGzip = false;
         enablePathNonce = false;
         maxCacheBytes = 1024;
+        enableIndex = false;
+        indexMaxBytes = 0;
+        immutableExpireSeconds = 60;
 
         zipResources = Collections.emptyMap();
         customFileBundle = Collections.emptyMap();
+        noncePrefix = "nonce-";
+        nonceLength = 32;
         noncePattern = null;
         nonceValue = null;
     }
@@ -92,8 +102,12 @@ class ResourceServletConfiguration
         enableGzip = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_GZIP ) );
         enablePathNonce = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_PATH_NONCE ) );
         maxCacheBytes = Long.parseLong( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_BYTES ) );
+        enableIndex = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_INDEX_ENABLE ) );
+        indexMaxBytes = Long.parseLong( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_INDEX_MAX_BYTES ) );
+        immutableExpireSeconds = Long.parseLong( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_IMMUTABLE_EXPIRATION_SECONDS ) );
 
-        final String noncePrefix = domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_NONCE_PATH_PREFIX );
+        noncePrefix = domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_NONCE_PATH_PREFIX );
+        nonceLength = Integer.parseInt( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_PATH_NONCE_LENGTH ) );
         noncePattern = Pattern.compile( noncePrefix + "[^/]*?/" );
         nonceValue = pwmDomain.getPwmApplication().getRuntimeNonce();
 
@@ -65,6 +65,7 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
 
     private ResourceServletConfiguration resourceServletConfiguration;
     private Cache<CacheKey, CacheEntry> cache;
+    private StaticResourceIndex resourceIndex = StaticResourceIndex.empty();
     private String resourceNonce = "";
 
     private PwmDomain pwmDomain;
@@ -82,6 +83,8 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
     {
         requestsServed,
         requestsNotFound,
+        requestsNotModified,
+        requestsPartialContent,
         bytesServed,
     }
 
@@ -90,6 +93,46 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
         return resourceNonce;
     }
 
+    /**
+     * Path nonce for a specific resource url.  Indexed resources get a nonce derived from their own content hash, so
+     * their urls only change when their content does and can be cached as immutable by clients.  Other resources
+     * get the global {@link #getResourceNonce()}.
+     */
+    public String getResourceNonce( final String url )
+    {
+        if ( resourceNonce.isEmpty() || url == null )
+        {
+            return resourceNonce;
+        }
+
+        final int pathIndex = url.indexOf( ResourceFileServlet.RESOURCE_PATH + "/" );
+        if ( pathIndex >= 0 )
+        {
+            String resourceUri = url.substring( pathIndex );
+            for ( final char delimiter : new char[] {'?', '#'} )
+            {
+                final int delimiterIndex = resourceUri.indexOf( delimiter );
+                if ( delimiterIndex >= 0 )
+                {
+                    resourceUri = resourceUri.substring( 0, delimiterIndex );
+                }
+            }
+
+            final Optional<StaticResource> staticResource = resourceIndex.lookup( resourceUri );
+            if ( staticResource.isPresent() )
+            {
+                return "/" + resourceServletConfiguration.getNoncePrefix() + staticResource.get().getContentHash();
+            }
+        }
+
+        return resourceNonce;
+    }
+
+    StaticResourceIndex getResourceIndex()
+    {
+        return resourceIndex;
+    }
+
     public Cache<CacheKey, CacheEntry> getCacheMap( )
     {
         return cache;
@@ -116,13 +159,13 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
                 cacheByteCount += cacheEntry.getEntity().size();
             }
         }
-        return cacheByteCount;
+        return cacheByteCount + resourceIndex.byteCount();
     }
 
     public int itemsInCache( )
     {
         final Cache<CacheKey, CacheEntry> responseCache = getCacheMap();
-        return ( int ) responseCache.estimatedSize();
+        return ( int ) responseCache.estimatedSize() + resourceIndex.size();
     }
 
     public Percent cacheHitRatio( )
@@ -159,6 +202,18 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
             return STATUS.CLOSED;
         }
 
+        if ( resourceServletConfiguration.isEnableIndex() )
+        {
+            try
+            {
+                resourceIndex = StaticResourceIndex.build( getSessionLabel(), resourceServletConfiguration, locateResourceDirectory( pwmDomain ).orElse( null ) );
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.error( getSessionLabel(), () -> "error building static resource index, resources will be served without it; error: " + e.getMessage() );
+            }
+        }
+
         try
         {
             final Instant start = Instant.now();
@@ -192,6 +247,7 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
         final Map<String, String> debugInfo = new HashMap<>();
         debugInfo.putAll( averageStats.debugStats() );
         debugInfo.putAll( countingStats.debugStats() );
+        debugInfo.putAll( resourceIndex.debugStats() );
         return ServiceInfoBean.builder()
                 .debugProperties( debugInfo )
                 .build();
@@ -212,7 +268,9 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
         }
 
         final Instant startTime = Instant.now();
-        final String nonce = checksumAllResources( pwmDomain );
+        final String nonce = !resourceIndex.getAggregateHash().isEmpty()
+                ? resourceIndex.getAggregateHash()
+                : checksumAllResources( pwmDomain );
         LOGGER.debug( getSessionLabel(), () -> "completed generation of nonce '" + nonce + "'", () ->  TimeDuration.fromCurrent( startTime ) );
 
         final String noncePrefix = pwmDomain.getConfig().readAppProperty( AppProperty.HTTP_RESOURCES_NONCE_PATH_PREFIX );
@@ -296,37 +354,47 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
 
     private static void checksumResourceFilePath( final PwmDomain pwmDomain, final ChecksumOutputStream checksumStream )
     {
-        if ( pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager() != null )
+        try
         {
-            try
+            final Optional<File> resourcePath = locateResourceDirectory( pwmDomain );
+            if ( resourcePath.isPresent() )
             {
-                final Optional<File> webInfPath = pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager().locateWebInfFilePath();
-                if ( webInfPath.isPresent() && webInfPath.get().exists() )
+                final Iterator<FileSystemUtility.FileSummaryInformation> iter =
+                        FileSystemUtility.readFileInformation( Collections.singletonList( resourcePath.get() ) );
                 {
-                    final File basePath = webInfPath.get().getParentFile();
-                    if ( basePath != null && basePath.exists() )
+                    while ( iter.hasNext()  )
                     {
-                        final File resourcePath = new File( basePath.getAbsolutePath() + File.separator + "public" + File.separator + "resources" );
-                        if ( resourcePath.exists() )
-                        {
-                            final Iterator<FileSystemUtility.FileSummaryInformation> iter =
-                                    FileSystemUtility.readFileInformation( Collections.singletonList( resourcePath ) );
-                            {
-                                while ( iter.hasNext()  )
-                                {
-                                    final FileSystemUtility.FileSummaryInformation fileSummaryInformation = iter.next();
-                                    checksumStream.write( JavaHelper.longToBytes( fileSummaryInformation.getChecksum() ) );
-                                }
-
-                            }
-                        }
+                        final FileSystemUtility.FileSummaryInformation fileSummaryInformation = iter.next();
+                        checksumStream.write( JavaHelper.longToBytes( fileSummaryInformation.getChecksum() ) );
                     }
+
                 }
             }
-            catch ( final Exception e )
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.error( () -> "unable to generate resource path nonce: " + e.getMessage() );
+        }
+    }
+
+    private static Optional<File> locateResourceDirectory( final PwmDomain pwmDomain )
+    {
+        if ( pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager() != null )
+        {
+            final Optional<File> webInfPath = pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager().locateWebInfFilePath();
+            if ( webInfPath.isPresent() && webInfPath.get().exists() )
             {
-                LOGGER.error( () -> "unable to generate resource path nonce: " + e.getMessage() );
+                final File basePath = webInfPath.get().getParentFile();
+                if ( basePath != null && basePath.exists() )
+                {
+                    final File resourcePath = new File( basePath.getAbsolutePath() + File.separator + "public" + File.separator + "resources" );
+                    if ( resourcePath.exists() )
+                    {
+                        return Optional.of( resourcePath );
+                    }
+                }
             }
         }
+        return Optional.empty();
     }
 }
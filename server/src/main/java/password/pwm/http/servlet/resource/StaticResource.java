@@ -0,0 +1,166 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.servlet.resource;
+
+import password.pwm.util.java.StringUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A resource held in memory by the {@link StaticResourceIndex}.  The identity body and any pre-compressed encodings
+ * are computed once when the index is built, and the content hash doubles as the strong ETag and the per-file
+ * path nonce used for immutable resource urls.
+ */
+final class StaticResource
+{
+    enum Encoding
+    {
+        identity,
+        gzip,
+        br,
+    }
+
+    private final String uri;
+    private final String contentHash;
+    private final Instant lastModified;
+    private final Map<Encoding, byte[]> bodies;
+
+    StaticResource( final String uri, final String contentHash, final Instant lastModified, final Map<Encoding, byte[]> bodies )
+    {
+        this.uri = Objects.requireNonNull( uri );
+        this.contentHash = Objects.requireNonNull( contentHash );
+        this.lastModified = lastModified;
+        this.bodies = Collections.unmodifiableMap( new EnumMap<>( bodies ) );
+        if ( !this.bodies.containsKey( Encoding.identity ) )
+        {
+            throw new IllegalArgumentException( "identity body is required" );
+        }
+    }
+
+    String getUri()
+    {
+        return uri;
+    }
+
+    String getContentHash()
+    {
+        return contentHash;
+    }
+
+    Instant getLastModified()
+    {
+        return lastModified;
+    }
+
+    Set<Encoding> getEncodings()
+    {
+        return bodies.keySet();
+    }
+
+    boolean hasEncoding( final Encoding encoding )
+    {
+        return bodies.containsKey( encoding );
+    }
+
+    int length( final Encoding encoding )
+    {
+        final byte[] body = bodies.get( encoding );
+        return body == null ? 0 : body.length;
+    }
+
+    long byteCount()
+    {
+        long total = 0;
+        for ( final byte[] body : bodies.values() )
+        {
+            total += body.length;
+        }
+        return total;
+    }
+
+    /**
+     * Each encoding is a distinct representation, so it gets its own strong ETag derived from the content hash.
+     */
+    String eTag( final Encoding encoding )
+    {
+        return encoding == Encoding.identity
+                ? "\"" + contentHash + "\""
+                : "\"" + contentHash + "-" + encoding.name() + "\"";
+    }
+
+    /**
+     * Test an {@code If-None-Match} or {@code If-Range} header value.  Any ETag issued for any encoding of this
+     * content matches, and weak validators are compared by their opaque value.
+     */
+    boolean matchesETag( final String headerValue )
+    {
+        if ( StringUtil.isEmpty( headerValue ) )
+        {
+            return false;
+        }
+
+        for ( final String rawTag : headerValue.split( "," ) )
+        {
+            String tag = rawTag.trim();
+            if ( "*".equals( tag ) )
+            {
+                return true;
+            }
+            if ( tag.startsWith( "W/" ) )
+            {
+                tag = tag.substring( 2 );
+            }
+            if ( tag.length() > 1 && tag.startsWith( "\"" ) && tag.endsWith( "\"" ) )
+            {
+                tag = tag.substring( 1, tag.length() - 1 );
+            }
+            final int suffixIndex = tag.indexOf( '-' );
+            final String tagHash = suffixIndex > 0 ? tag.substring( 0, suffixIndex ) : tag;
+            if ( contentHash.equals( tagHash ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void writeTo( final OutputStream outputStream, final Encoding encoding )
+            throws IOException
+    {
+        final byte[] body = bodies.get( encoding );
+        outputStream.write( body, 0, body.length );
+    }
+
+    void writeTo( final OutputStream outputStream, final ResourceByteRange range )
+            throws IOException
+    {
+        final byte[] body = bodies.get( Encoding.identity );
+        outputStream.write( body, ( int ) range.getStart(), ( int ) range.length() );
+    }
+}
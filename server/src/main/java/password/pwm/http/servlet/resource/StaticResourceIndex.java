@@ -0,0 +1,605 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.servlet.resource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import password.pwm.PwmConstants;
+import password.pwm.bean.SessionLabel;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipFile;
+
+/**
+ * Immutable in-memory index of the static resources served by {@link ResourceFileServlet}, keyed by effective
+ * request uri.  Resources are read, hashed and gzip compressed once when the index is built.  A {@code .gz} or
+ * {@code .br} file sitting next to a resource, such as one produced at build time, is used as that encoding of the
+ * resource instead of compressing at runtime; no pure java brotli encoder is available, so brotli bodies only come
+ * from such files.
+ *
+ * <p>Resources are gathered in the same precedence order used by {@link ResourceFileRequest} when resolving a
+ * request: configured zip files, web jars, the web application resource directory and finally the custom resource
+ * bundle.  As when resolving a request, a web jar asset is replaced by a file at the same path in the resource
+ * directory, and the embedded theme stylesheets are left to the configuration.  Resources larger than the configured
+ * cache item size, or beyond the index size budget, are left out of the index and served by the regular resolution
+ * path.</p>
+ *
+ * <p>Domains with identical resource sources and index settings share a single index, so the bodies are only held
+ * in memory once.  A shared index is kept for as long as any domain still uses it.</p>
+ */
+final class StaticResourceIndex
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( StaticResourceIndex.class );
+
+    private static final StaticResourceIndex EMPTY = new StaticResourceIndex( Collections.emptyMap(), "", Collections.emptyMap() );
+
+    /**
+     * Indexes in use, keyed by a hash of their sources and settings.
+     */
+    private static final Cache<String, StaticResourceIndex> SHARED_INDEXES = Caffeine.newBuilder()
+            .weakValues()
+            .build();
+
+    /**
+     * Formats that are already compressed, so compressing them again only costs time.
+     */
+    private static final Set<String> PRECOMPRESSED_EXTENSIONS = Set.of(
+            "br", "gif", "gz", "jar", "jpeg", "jpg", "png", "webp", "woff", "woff2", "zip" );
+
+    private static final Map<String, StaticResource.Encoding> SIBLING_ENCODINGS = Map.of(
+            ".br", StaticResource.Encoding.br,
+            ".gz", StaticResource.Encoding.gzip );
+
+    /**
+     * An encoding is only kept if it is smaller than this fraction of the identity body.
+     */
+    private static final double MIN_COMPRESSION_RATIO = 0.9;
+
+    private final Map<String, StaticResource> resources;
+    private final String aggregateHash;
+    private final Map<String, String> debugStats;
+
+    private StaticResourceIndex( final Map<String, StaticResource> resources, final String aggregateHash, final Map<String, String> debugStats )
+    {
+        this.resources = resources;
+        this.aggregateHash = aggregateHash;
+        this.debugStats = debugStats;
+    }
+
+    static StaticResourceIndex empty()
+    {
+        return EMPTY;
+    }
+
+    static StaticResourceIndex build(
+            final SessionLabel sessionLabel,
+            final ResourceServletConfiguration configuration,
+            final File resourceDirectory
+    )
+    {
+        return build( sessionLabel, configuration, resourceDirectory, ResourceFileRequest.WEB_JAR_ASSET_LIST, ResourceFileRequest.WEB_JAR_VERSION_MAP );
+    }
+
+    static StaticResourceIndex build(
+            final SessionLabel sessionLabel,
+            final ResourceServletConfiguration configuration,
+            final File resourceDirectory,
+            final Collection<String> webJarAssets,
+            final Map<String, String> webJarVersions
+    )
+    {
+        final String sourceKey;
+        try
+        {
+            sourceKey = sourceKey( configuration, resourceDirectory, webJarAssets, webJarVersions );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.debug( sessionLabel, () -> "unable to read resource sources, index will not be shared: " + e.getMessage() );
+            return buildIndex( sessionLabel, configuration, resourceDirectory, webJarAssets, webJarVersions );
+        }
+
+        final StaticResourceIndex existingIndex = SHARED_INDEXES.getIfPresent( sourceKey );
+        if ( existingIndex != null )
+        {
+            LOGGER.debug( sessionLabel, () -> "using existing static resource index with identical sources" );
+            return existingIndex;
+        }
+
+        return SHARED_INDEXES.get( sourceKey, k -> buildIndex( sessionLabel, configuration, resourceDirectory, webJarAssets, webJarVersions ) );
+    }
+
+    private static StaticResourceIndex buildIndex(
+            final SessionLabel sessionLabel,
+            final ResourceServletConfiguration configuration,
+            final File resourceDirectory,
+            final Collection<String> webJarAssets,
+            final Map<String, String> webJarVersions
+    )
+    {
+        final IndexBuilder indexBuilder = new IndexBuilder( sessionLabel, configuration );
+        indexBuilder.addZipResources();
+        indexBuilder.addWebJars( resourceDirectory, webJarAssets, webJarVersions );
+        indexBuilder.addDirectory( resourceDirectory );
+        indexBuilder.addCustomBundle();
+        indexBuilder.removeEmbedThemes();
+        return indexBuilder.build();
+    }
+
+    /**
+     * Hash of the index settings and of every source the index is built from.  Files are identified by path, size and
+     * modification time, and the in-memory custom bundle by its content.
+     */
+    private static String sourceKey(
+            final ResourceServletConfiguration configuration,
+            final File resourceDirectory,
+            final Collection<String> webJarAssets,
+            final Map<String, String> webJarVersions
+    )
+            throws IOException
+    {
+        final MessageDigest digest = newDigest();
+        digest.update( JavaHelper.longToBytes( configuration.getMaxCacheBytes() ) );
+        digest.update( JavaHelper.longToBytes( configuration.getIndexMaxBytes() ) );
+        digest.update( JavaHelper.longToBytes( configuration.getNonceLength() ) );
+        digest.update( ( byte ) ( configuration.isEnableGzip() ? 1 : 0 ) );
+
+        for ( final String webJarAsset : webJarAssets )
+        {
+            digest.update( webJarAsset.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+        }
+        for ( final Map.Entry<String, String> entry : new TreeMap<>( webJarVersions ).entrySet() )
+        {
+            digest.update( ( entry.getKey() + "=" + entry.getValue() ).getBytes( PwmConstants.DEFAULT_CHARSET ) );
+        }
+
+        for ( final Map.Entry<String, ZipFile> entry : new TreeMap<>( configuration.getZipResources() ).entrySet() )
+        {
+            final File zipFile = new File( entry.getValue().getName() );
+            digest.update( ( entry.getKey() + "=" + zipFile.getAbsolutePath() ).getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            digest.update( JavaHelper.longToBytes( zipFile.length() ) );
+            digest.update( JavaHelper.longToBytes( zipFile.lastModified() ) );
+        }
+
+        if ( resourceDirectory != null && resourceDirectory.isDirectory() )
+        {
+            final Path basePath = resourceDirectory.toPath();
+            digest.update( basePath.toAbsolutePath().toString().getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            try ( Stream<Path> paths = Files.walk( basePath ) )
+            {
+                for ( final Path path : ( Iterable<Path> ) paths.filter( Files::isRegularFile ).sorted()::iterator )
+                {
+                    digest.update( basePath.relativize( path ).toString().getBytes( PwmConstants.DEFAULT_CHARSET ) );
+                    digest.update( JavaHelper.longToBytes( Files.size( path ) ) );
+                    digest.update( JavaHelper.longToBytes( Files.getLastModifiedTime( path ).toMillis() ) );
+                }
+            }
+        }
+
+        for ( final Map.Entry<String, FileResource> entry : new TreeMap<>( configuration.getCustomFileBundle() ).entrySet() )
+        {
+            digest.update( entry.getKey().getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            try ( InputStream inputStream = entry.getValue().getInputStream() )
+            {
+                digest.update( inputStream.readAllBytes() );
+            }
+        }
+
+        return JavaHelper.byteArrayToHexString( digest.digest() );
+    }
+
+    Optional<StaticResource> lookup( final String uri )
+    {
+        return uri == null ? Optional.empty() : Optional.ofNullable( resources.get( uri ) );
+    }
+
+    int size()
+    {
+        return resources.size();
+    }
+
+    long byteCount()
+    {
+        long total = 0;
+        for ( final StaticResource staticResource : resources.values() )
+        {
+            total += staticResource.byteCount();
+        }
+        return total;
+    }
+
+    /**
+     * Hash of every resource uri and content hash, and of the size and modification time of resources left out of
+     * the index.  Used as the global resource path nonce.
+     */
+    String getAggregateHash()
+    {
+        return aggregateHash;
+    }
+
+    Map<String, String> debugStats()
+    {
+        return debugStats;
+    }
+
+    private static class IndexBuilder
+    {
+        private final SessionLabel sessionLabel;
+        private final ResourceServletConfiguration configuration;
+        private final Map<String, FileResource> candidates = new LinkedHashMap<>();
+
+        private long totalBytes;
+        private int gzipCount;
+        private int brotliCount;
+        private int skippedCount;
+
+        IndexBuilder( final SessionLabel sessionLabel, final ResourceServletConfiguration configuration )
+        {
+            this.sessionLabel = sessionLabel;
+            this.configuration = configuration;
+        }
+
+        void addZipResources()
+        {
+            for ( final Map.Entry<String, ZipFile> entry : configuration.getZipResources().entrySet() )
+            {
+                final ZipFile zipFile = entry.getValue();
+                zipFile.stream()
+                        .filter( zipEntry -> !zipEntry.isDirectory() )
+                        .forEach( zipEntry -> candidates.putIfAbsent( entry.getKey() + "/" + zipEntry.getName(), new ZipFileResource( zipFile, zipEntry ) ) );
+            }
+        }
+
+        void addDirectory( final File resourceDirectory )
+        {
+            if ( resourceDirectory == null || !resourceDirectory.isDirectory() )
+            {
+                return;
+            }
+
+            final Path basePath = resourceDirectory.toPath();
+            try ( Stream<Path> paths = Files.walk( basePath ) )
+            {
+                paths.filter( Files::isRegularFile ).forEach( path ->
+                {
+                    final String relativePath = basePath.relativize( path ).toString().replace( File.separatorChar, '/' );
+                    candidates.putIfAbsent( ResourceFileServlet.RESOURCE_PATH + "/" + relativePath, new RealFileResource( path.toFile() ) );
+                } );
+            }
+            catch ( final IOException e )
+            {
+                LOGGER.warn( sessionLabel, () -> "error reading resource directory " + resourceDirectory.getAbsolutePath() + ": " + e.getMessage() );
+            }
+        }
+
+        void addWebJars( final File resourceDirectory, final Collection<String> webJarAssets, final Map<String, String> webJarVersions )
+        {
+            final String basePath = ResourceFileServlet.WEBJAR_BASE_FILE_PATH + "/";
+            for ( final String assetPath : webJarAssets )
+            {
+                if ( !assetPath.startsWith( basePath ) )
+                {
+                    continue;
+                }
+
+                final String remainingPath = assetPath.substring( basePath.length() );
+                final int nameEnd = remainingPath.indexOf( '/' );
+                final int versionEnd = nameEnd < 0 ? -1 : remainingPath.indexOf( '/', nameEnd + 1 );
+                if ( versionEnd < 0 )
+                {
+                    continue;
+                }
+
+                final String webJarName = remainingPath.substring( 0, nameEnd );
+                final String webJarVersion = remainingPath.substring( nameEnd + 1, versionEnd );
+                if ( webJarVersion.equals( webJarVersions.get( webJarName ) ) )
+                {
+                    final String uri = ResourceFileServlet.WEBJAR_BASE_URL_PATH + webJarName + "/" + remainingPath.substring( versionEnd + 1 );
+                    final String relativePath = uri.substring( ResourceFileServlet.RESOURCE_PATH.length() + 1 );
+
+                    // a file in the resource directory overrides the web jar asset, it is added by addDirectory()
+                    if ( resourceDirectory == null || !new File( resourceDirectory, relativePath ).isFile() )
+                    {
+                        candidates.putIfAbsent( uri, new ClassLoaderFileResource( assetPath ) );
+                    }
+                }
+            }
+        }
+
+        void addCustomBundle()
+        {
+            for ( final Map.Entry<String, FileResource> entry : configuration.getCustomFileBundle().entrySet() )
+            {
+                candidates.putIfAbsent( ResourceFileServlet.RESOURCE_PATH + "/" + entry.getKey(), entry.getValue() );
+            }
+        }
+
+        /**
+         * The embedded theme stylesheets are served from the configuration ahead of any other resource.
+         */
+        void removeEmbedThemes()
+        {
+            for ( final String themePath : Set.of( ResourceFileServlet.THEME_CSS_PATH, ResourceFileServlet.THEME_CSS_MOBILE_PATH ) )
+            {
+                final String uri = ResourceFileServlet.RESOURCE_PATH + themePath.replace( ResourceFileServlet.TOKEN_THEME, ResourceFileServlet.EMBED_THEME );
+                candidates.keySet().removeIf( uri::equalsIgnoreCase );
+            }
+        }
+
+        StaticResourceIndex build()
+        {
+            final Instant startTime = Instant.now();
+            final Map<String, Map<StaticResource.Encoding, FileResource>> siblings = new HashMap<>();
+            final Map<String, FileResource> primaries = new TreeMap<>();
+            for ( final Map.Entry<String, FileResource> entry : candidates.entrySet() )
+            {
+                final String uri = entry.getKey();
+                final Optional<Map.Entry<String, StaticResource.Encoding>> siblingEncoding = SIBLING_ENCODINGS.entrySet().stream()
+                        .filter( suffix -> uri.endsWith( suffix.getKey() ) )
+                        .filter( suffix -> candidates.containsKey( uri.substring( 0, uri.length() - suffix.getKey().length() ) ) )
+                        .findFirst();
+
+                if ( siblingEncoding.isPresent() )
+                {
+                    final String baseUri = uri.substring( 0, uri.length() - siblingEncoding.get().getKey().length() );
+                    siblings.computeIfAbsent( baseUri, k -> new EnumMap<>( StaticResource.Encoding.class ) )
+                            .put( siblingEncoding.get().getValue(), entry.getValue() );
+                }
+                else
+                {
+                    primaries.put( uri, entry.getValue() );
+                }
+            }
+
+            final MessageDigest aggregateDigest = newDigest();
+            final Map<String, StaticResource> resources = new HashMap<>();
+            for ( final Map.Entry<String, FileResource> entry : primaries.entrySet() )
+            {
+                final String uri = entry.getKey();
+                final FileResource fileResource = entry.getValue();
+                aggregateDigest.update( uri.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+
+                final Optional<StaticResource> staticResource = indexResource( uri, fileResource, siblings.getOrDefault( uri, Collections.emptyMap() ) );
+                if ( staticResource.isPresent() )
+                {
+                    resources.put( uri, staticResource.get() );
+                    aggregateDigest.update( staticResource.get().getContentHash().getBytes( PwmConstants.DEFAULT_CHARSET ) );
+                }
+                else
+                {
+                    skippedCount++;
+                    aggregateDigest.update( JavaHelper.longToBytes( fileResource.length() ) );
+                    aggregateDigest.update( JavaHelper.longToBytes( fileResource.lastModified().toEpochMilli() ) );
+                }
+            }
+
+            final Map<String, String> debugStats = new LinkedHashMap<>();
+            debugStats.put( "indexFiles", String.valueOf( resources.size() ) );
+            debugStats.put( "indexBytes", String.valueOf( totalBytes ) );
+            debugStats.put( "indexGzipFiles", String.valueOf( gzipCount ) );
+            debugStats.put( "indexBrotliFiles", String.valueOf( brotliCount ) );
+            debugStats.put( "indexSkippedFiles", String.valueOf( skippedCount ) );
+
+            LOGGER.debug( sessionLabel, () -> "indexed " + resources.size() + " static resources (" + totalBytes + " bytes, "
+                    + gzipCount + " gzip, " + brotliCount + " brotli, " + skippedCount + " not indexed)", () -> TimeDuration.fromCurrent( startTime ) );
+
+            return new StaticResourceIndex(
+                    Collections.unmodifiableMap( resources ),
+                    truncateHash( aggregateDigest.digest() ),
+                    Collections.unmodifiableMap( debugStats ) );
+        }
+
+        private Optional<StaticResource> indexResource(
+                final String uri,
+                final FileResource fileResource,
+                final Map<StaticResource.Encoding, FileResource> siblingResources
+        )
+        {
+            final long maxFileBytes = configuration.getMaxCacheBytes();
+            if ( fileResource.length() > maxFileBytes )
+            {
+                return Optional.empty();
+            }
+
+            try
+            {
+                final Optional<byte[]> identityBody = readBody( fileResource, maxFileBytes );
+                if ( identityBody.isEmpty() || totalBytes + identityBody.get().length > configuration.getIndexMaxBytes() )
+                {
+                    return Optional.empty();
+                }
+
+                final byte[] identity = identityBody.get();
+                final Map<StaticResource.Encoding, byte[]> bodies = new EnumMap<>( StaticResource.Encoding.class );
+                bodies.put( StaticResource.Encoding.identity, identity );
+
+                for ( final Map.Entry<StaticResource.Encoding, FileResource> sibling : siblingResources.entrySet() )
+                {
+                    if ( !sibling.getValue().lastModified().isBefore( fileResource.lastModified() ) )
+                    {
+                        readBody( sibling.getValue(), maxFileBytes )
+                                .filter( body -> worthKeeping( body, identity ) )
+                                .ifPresent( body -> bodies.put( sibling.getKey(), body ) );
+                    }
+                }
+
+                if ( !bodies.containsKey( StaticResource.Encoding.gzip ) && configuration.isEnableGzip() && isCompressible( uri ) )
+                {
+                    final byte[] gzipBody = gzip( identity );
+                    if ( worthKeeping( gzipBody, identity ) )
+                    {
+                        bodies.put( StaticResource.Encoding.gzip, gzipBody );
+                    }
+                }
+
+                final StaticResource staticResource = new StaticResource(
+                        uri,
+                        truncateHash( newDigest().digest( identity ) ),
+                        fileResource.lastModified(),
+                        bodies );
+
+                totalBytes += staticResource.byteCount();
+                gzipCount += staticResource.hasEncoding( StaticResource.Encoding.gzip ) ? 1 : 0;
+                brotliCount += staticResource.hasEncoding( StaticResource.Encoding.br ) ? 1 : 0;
+                return Optional.of( staticResource );
+            }
+            catch ( final IOException e )
+            {
+                LOGGER.debug( sessionLabel, () -> "unable to index resource " + uri + ": " + e.getMessage() );
+                return Optional.empty();
+            }
+        }
+
+        private String truncateHash( final byte[] digest )
+        {
+            final String hexHash = JavaHelper.byteArrayToHexString( digest ).toLowerCase( Locale.ROOT );
+            return hexHash.substring( 0, Math.min( hexHash.length(), configuration.getNonceLength() ) );
+        }
+    }
+
+    private static boolean worthKeeping( final byte[] encodedBody, final byte[] identityBody )
+    {
+        return encodedBody.length < identityBody.length * MIN_COMPRESSION_RATIO;
+    }
+
+    private static boolean isCompressible( final String uri )
+    {
+        final int dotIndex = uri.lastIndexOf( '.' );
+        final String extension = dotIndex < 0 ? "" : uri.substring( dotIndex + 1 ).toLowerCase( Locale.ROOT );
+        return !PRECOMPRESSED_EXTENSIONS.contains( extension );
+    }
+
+    /**
+     * Read the resource body, or return empty if it is larger than {@code maxBytes}.
+     */
+    private static Optional<byte[]> readBody( final FileResource fileResource, final long maxBytes )
+            throws IOException
+    {
+        try ( InputStream inputStream = fileResource.getInputStream() )
+        {
+            final byte[] body = inputStream.readNBytes( ( int ) Math.min( maxBytes + 1, Integer.MAX_VALUE - 8 ) );
+            return body.length > maxBytes ? Optional.empty() : Optional.of( body );
+        }
+    }
+
+    static byte[] gzip( final byte[] input )
+            throws IOException
+    {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream( input.length / 2 + 32 );
+        try ( OutputStream gzipOutputStream = new MaxCompressionGzipOutputStream( byteArrayOutputStream ) )
+        {
+            gzipOutputStream.write( input );
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-256 digest is not available", e );
+        }
+    }
+
+    /**
+     * Compression runs once per resource, so the slowest and smallest deflate level is used.
+     */
+    private static class MaxCompressionGzipOutputStream extends GZIPOutputStream
+    {
+        MaxCompressionGzipOutputStream( final OutputStream outputStream )
+                throws IOException
+        {
+            super( outputStream );
+            def.setLevel( Deflater.BEST_COMPRESSION );
+        }
+    }
+
+    private static class ClassLoaderFileResource implements FileResource
+    {
+        private final String path;
+
+        ClassLoaderFileResource( final String path )
+        {
+            this.path = path;
+        }
+
+        @Override
+        public InputStream getInputStream()
+                throws IOException
+        {
+            final InputStream inputStream = StaticResourceIndex.class.getClassLoader().getResourceAsStream( path );
+            if ( inputStream == null )
+            {
+                throw new FileNotFoundException( "class path resource " + path + " not found" );
+            }
+            return inputStream;
+        }
+
+        @Override
+        public long length()
+        {
+            return 0;
+        }
+
+        @Override
+        public Instant lastModified()
+        {
+            return Instant.EPOCH;
+        }
+
+        @Override
+        public String getName()
+        {
+            return path;
+        }
+    }
+}
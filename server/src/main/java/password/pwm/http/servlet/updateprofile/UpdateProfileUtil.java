@@ -368,6 +368,11 @@ public class UpdateProfileUtil
 
         LdapOperationsHelper.writeFormValuesToLdap( theUser, formMap, macroRequest, false );
 
+        if ( pwmDomain.getCacheService() != null )
+        {
+            pwmDomain.getCacheService().invalidateUser( userInfo.getUserIdentity() );
+        }
+
         postUpdateActionsAndEmail( pwmDomain, sessionLabel, locale, userInfo.getUserIdentity(), updateProfileProfile );
 
         // success, so forward to success page
@@ -20,6 +20,7 @@
 
 package password.pwm.http.state;
 
+import password.pwm.AppProperty;
 import password.pwm.config.PwmSetting;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
@@ -34,10 +35,18 @@ import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.secure.PwmSecurityKey;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Stores session beans in encrypted cookies.  Beans are written using the {@link SessionBeanCodec} encoding behind a
+ * {@link #VALUE_PREFIX}; values without the prefix are read using the legacy encrypted json form and rewritten on save.
+ *
+ * <p>Decoded beans are held for the rest of the request along with the fingerprint of their stored state, and a
+ * bean whose fingerprint is unchanged when the request completes is not encrypted and written again.</p>
+ */
 class CryptoCookieBeanImpl implements SessionBeanProvider
 {
 
@@ -45,15 +54,20 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
 
     private static final PwmCookiePath COOKIE_PATH = PwmCookiePath.PwmServlet;
 
+    static final String VALUE_PREFIX = "b" + SessionBeanCodec.VERSION + ".";
+
     @Override
     public <E extends PwmSessionBean> E getSessionBean( final PwmRequest pwmRequest, final Class<E> theClass )
             throws PwmUnrecoverableException
     {
-        final Map<Class<? extends PwmSessionBean>, PwmSessionBean> sessionBeans = getRequestBeanMap( pwmRequest );
+        final Map<Class<? extends PwmSessionBean>, CookieBeanEntry> sessionBeans = getRequestBeanMap( pwmRequest );
 
-        if ( sessionBeans.containsKey( theClass ) && sessionBeans.get( theClass ) != null )
         {
-            return ( E ) sessionBeans.get( theClass );
+            final CookieBeanEntry cachedEntry = sessionBeans.get( theClass );
+            if ( cachedEntry != null && cachedEntry.getBean() != null )
+            {
+                return ( E ) cachedEntry.getBean();
+            }
         }
 
         final String sessionGuid = pwmRequest.getPwmSession().getLoginInfoBean().getGuid();
@@ -62,14 +76,13 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         try
         {
             final Optional<String> rawValue = pwmRequest.readCookie( cookieName );
-            final PwmSecurityKey key = keyForSession( pwmRequest );
             if ( rawValue.isPresent() )
             {
-                final E cookieBean = pwmRequest.getPwmDomain().getSecureService().decryptObject( rawValue.get(), key, theClass );
-                if ( validateCookie( pwmRequest, cookieName, cookieBean ) )
+                final CookieBeanEntry cookieEntry = decodeCookieValue( pwmRequest, cookieName, rawValue.get(), theClass );
+                if ( validateCookie( pwmRequest, cookieName, cookieEntry.getBean() ) )
                 {
-                    sessionBeans.put( theClass, cookieBean );
-                    return cookieBean;
+                    sessionBeans.put( theClass, cookieEntry );
+                    return ( E ) cookieEntry.getBean();
                 }
             }
         }
@@ -79,10 +92,33 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         }
 
         final E newBean = SessionStateService.newBean( sessionGuid, theClass );
-        sessionBeans.put( theClass, newBean );
+        sessionBeans.put( theClass, new CookieBeanEntry( cookieName, newBean, null ) );
         return newBean;
     }
 
+    private static CookieBeanEntry decodeCookieValue(
+            final PwmRequest pwmRequest,
+            final String cookieName,
+            final String rawValue,
+            final Class<? extends PwmSessionBean> theClass
+    )
+            throws PwmUnrecoverableException
+    {
+        final PwmSecurityKey key = keyForSession( pwmRequest );
+
+        if ( rawValue.startsWith( VALUE_PREFIX ) )
+        {
+            final byte[] decrypted = pwmRequest.getPwmDomain().getSecureService().decryptBytes( rawValue.substring( VALUE_PREFIX.length() ), key );
+            final byte[] jsonBytes = SessionBeanCodec.decodeToJsonBytes( decrypted );
+            final PwmSessionBean bean = SessionBeanCodec.fromJsonBytes( jsonBytes, theClass );
+            return new CookieBeanEntry( cookieName, bean, SessionBeanCodec.fingerprint( jsonBytes ) );
+        }
+
+        // legacy value, no fingerprint so the bean is rewritten in the current encoding
+        final PwmSessionBean bean = pwmRequest.getPwmDomain().getSecureService().decryptObject( rawValue, key, theClass );
+        return new CookieBeanEntry( cookieName, bean, null );
+    }
+
     private boolean validateCookie( final PwmRequest pwmRequest, final String cookieName, final PwmSessionBean cookieBean )
     {
         if ( cookieBean == null )
@@ -136,23 +172,30 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         }
         try
         {
-            final Map<Class<? extends PwmSessionBean>, PwmSessionBean> beansInRequest = getRequestBeanMap( pwmRequest );
+            final Map<Class<? extends PwmSessionBean>, CookieBeanEntry> beansInRequest = getRequestBeanMap( pwmRequest );
             if ( beansInRequest != null )
             {
-                for ( final Map.Entry<Class<? extends PwmSessionBean>, PwmSessionBean> entry : beansInRequest.entrySet() )
+                for ( final CookieBeanEntry entry : beansInRequest.values() )
                 {
-                    final Class<? extends PwmSessionBean> theClass = entry.getKey();
-                    final String cookieName = nameForClass( pwmRequest, theClass );
-                    final PwmSessionBean bean = entry.getValue();
+                    final String cookieName = entry.getCookieName();
+                    final PwmSessionBean bean = entry.getBean();
                     if ( bean == null )
                     {
                         pwmRequest.getPwmResponse().removeCookie( cookieName, COOKIE_PATH );
                     }
                     else
                     {
-                        final PwmSecurityKey key = keyForSession( pwmRequest );
-                        final String encryptedValue = pwmRequest.getPwmDomain().getSecureService().encryptObjectToString( entry.getValue(), key );
-                        pwmRequest.getPwmResponse().writeCookie( cookieName, encryptedValue, -1, COOKIE_PATH );
+                        final byte[] jsonBytes = SessionBeanCodec.toJsonBytes( bean );
+                        final byte[] fingerprint = SessionBeanCodec.fingerprint( jsonBytes );
+                        if ( !Arrays.equals( fingerprint, entry.getFingerprint() ) )
+                        {
+                            final int compressionThreshold = Integer.parseInt( pwmRequest.getAppConfig().readAppProperty( AppProperty.HTTP_COOKIE_BEAN_COMPRESSION_THRESHOLD ) );
+                            final byte[] encoded = SessionBeanCodec.encode( jsonBytes, compressionThreshold );
+                            final PwmSecurityKey key = keyForSession( pwmRequest );
+                            final String encryptedValue = VALUE_PREFIX + pwmRequest.getPwmDomain().getSecureService().encryptBytesToString( encoded, key );
+                            pwmRequest.getPwmResponse().writeCookie( cookieName, encryptedValue, -1, COOKIE_PATH );
+                            entry.setFingerprint( fingerprint );
+                        }
                     }
                 }
             }
@@ -166,12 +209,12 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
     @Override
     public <E extends PwmSessionBean> void clearSessionBean( final PwmRequest pwmRequest, final Class<E> userBeanClass ) throws PwmUnrecoverableException
     {
-        final Map<Class<? extends PwmSessionBean>, PwmSessionBean> sessionBeans = getRequestBeanMap( pwmRequest );
-        sessionBeans.put( userBeanClass, null );
+        final Map<Class<? extends PwmSessionBean>, CookieBeanEntry> sessionBeans = getRequestBeanMap( pwmRequest );
+        sessionBeans.put( userBeanClass, new CookieBeanEntry( nameForClass( pwmRequest, userBeanClass ), null, null ) );
         saveSessionBeans( pwmRequest );
     }
 
-    private static Map<Class<? extends PwmSessionBean>, PwmSessionBean> getRequestBeanMap( final PwmRequest pwmRequest )
+    private static Map<Class<? extends PwmSessionBean>, CookieBeanEntry> getRequestBeanMap( final PwmRequest pwmRequest )
     {
         Serializable sessionBeans = pwmRequest.getAttribute( PwmRequestAttribute.CookieBeanStorage );
         if ( sessionBeans == null )
@@ -179,7 +222,7 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
             sessionBeans = new HashMap<>();
             pwmRequest.setAttribute( PwmRequestAttribute.CookieBeanStorage, sessionBeans );
         }
-        return ( Map<Class<? extends PwmSessionBean>, PwmSessionBean> ) sessionBeans;
+        return ( Map<Class<? extends PwmSessionBean>, CookieBeanEntry> ) sessionBeans;
     }
 
     private static String nameForClass( final PwmRequest pwmRequest, final Class<? extends PwmSessionBean> theClass )
@@ -195,7 +238,7 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         return null;
     }
 
-    private PwmSecurityKey keyForSession( final PwmRequest pwmRequest )
+    private static PwmSecurityKey keyForSession( final PwmRequest pwmRequest )
             throws PwmUnrecoverableException
     {
         final PwmSecurityKey pwmSecurityKey = pwmRequest.getDomainConfig().getSecurityKey();
@@ -203,4 +246,44 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         final String userGuid = pwmRequest.getPwmSession().getLoginInfoBean().getGuid();
         return new PwmSecurityKey( keyHash + userGuid );
     }
+
+    /**
+     * Request scoped state of one cookie bean.  A null bean marks a cleared cookie, and a null fingerprint marks a
+     * bean that has not been written in the current encoding.
+     */
+    private static class CookieBeanEntry implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String cookieName;
+        private final PwmSessionBean bean;
+        private byte[] fingerprint;
+
+        CookieBeanEntry( final String cookieName, final PwmSessionBean bean, final byte[] fingerprint )
+        {
+            this.cookieName = cookieName;
+            this.bean = bean;
+            this.fingerprint = fingerprint;
+        }
+
+        String getCookieName()
+        {
+            return cookieName;
+        }
+
+        PwmSessionBean getBean()
+        {
+            return bean;
+        }
+
+        byte[] getFingerprint()
+        {
+            return fingerprint;
+        }
+
+        void setFingerprint( final byte[] fingerprint )
+        {
+            this.fingerprint = fingerprint;
+        }
+    }
 }
@@ -219,6 +219,7 @@ class CryptoCookieLoginImpl implements SessionLoginProvider
             LOGGER.trace( pwmRequest, () -> "imported LoginInfoBean=" + debugTxt );
         }
         pwmRequest.getPwmSession().setLoginInfoBean( remoteLoginCookie );
+        pwmRequest.getPwmDomain().getSessionTrackService().updateSessionAuthentication( pwmRequest.getPwmSession() );
     }
 
     private static void checkIfRemoteLoginCookieIsValid(
@@ -0,0 +1,188 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.state;
+
+import password.pwm.PwmConstants;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.http.bean.PwmSessionBean;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.secure.PwmHashAlgorithm;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Versioned plaintext encoding of session beans stored in encrypted cookies.  The encoded form is a version byte, a
+ * flags byte and the bean json, which is raw-deflated when the json is at least the compression threshold and the
+ * compressed form is smaller.  Compression is applied before encryption, since the cipher output does not compress.
+ *
+ * <p>The {@link #fingerprint(byte[])} of the json identifies the bean state, so an unchanged bean need not be
+ * re-encrypted.</p>
+ */
+final class SessionBeanCodec
+{
+    static final int VERSION = 1;
+
+    private static final int FLAG_DEFLATE = 1;
+    private static final int HEADER_LENGTH = 2;
+    private static final int MAX_DECODED_LENGTH = 1024 * 1024;
+
+    private SessionBeanCodec()
+    {
+    }
+
+    static byte[] toJsonBytes( final PwmSessionBean bean )
+    {
+        return JsonUtil.serialize( bean ).getBytes( PwmConstants.DEFAULT_CHARSET );
+    }
+
+    static byte[] encode( final byte[] jsonBytes, final int compressionThreshold )
+    {
+        if ( compressionThreshold >= 0 && jsonBytes.length >= compressionThreshold )
+        {
+            final byte[] compressed = deflate( jsonBytes );
+            if ( compressed.length < jsonBytes.length )
+            {
+                return withHeader( FLAG_DEFLATE, compressed );
+            }
+        }
+        return withHeader( 0, jsonBytes );
+    }
+
+    /**
+     * Returns the bean json held by an encoded value.
+     */
+    static byte[] decodeToJsonBytes( final byte[] encoded )
+            throws PwmUnrecoverableException
+    {
+        if ( encoded == null || encoded.length < HEADER_LENGTH )
+        {
+            throw decodeError( "encoded session bean is truncated" );
+        }
+
+        final int version = encoded[0] & 0xFF;
+        if ( version != VERSION )
+        {
+            throw decodeError( "encoded session bean has unknown version " + version );
+        }
+
+        final int flags = encoded[1] & 0xFF;
+        final byte[] payload = Arrays.copyOfRange( encoded, HEADER_LENGTH, encoded.length );
+        return ( flags & FLAG_DEFLATE ) != 0
+                ? inflate( payload )
+                : payload;
+    }
+
+    static <E extends PwmSessionBean> E fromJsonBytes( final byte[] jsonBytes, final Class<E> theClass )
+    {
+        return JsonUtil.deserialize( new String( jsonBytes, PwmConstants.DEFAULT_CHARSET ), theClass );
+    }
+
+    static byte[] fingerprint( final byte[] jsonBytes )
+    {
+        try
+        {
+            return MessageDigest.getInstance( PwmHashAlgorithm.SHA256.getAlgName() ).digest( jsonBytes );
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "missing hash algorithm: " + e.getMessage(), e );
+        }
+    }
+
+    private static byte[] withHeader( final int flags, final byte[] payload )
+    {
+        final byte[] output = new byte[HEADER_LENGTH + payload.length];
+        output[0] = ( byte ) VERSION;
+        output[1] = ( byte ) flags;
+        System.arraycopy( payload, 0, output, HEADER_LENGTH, payload.length );
+        return output;
+    }
+
+    private static byte[] deflate( final byte[] input )
+    {
+        final Deflater deflater = new Deflater( Deflater.BEST_COMPRESSION, true );
+        try
+        {
+            deflater.setInput( input );
+            deflater.finish();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream( input.length );
+            final byte[] buffer = new byte[1024];
+            while ( !deflater.finished() )
+            {
+                final int length = deflater.deflate( buffer );
+                output.write( buffer, 0, length );
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate( final byte[] input )
+            throws PwmUnrecoverableException
+    {
+        final Inflater inflater = new Inflater( true );
+        try
+        {
+            inflater.setInput( input );
+            final ByteArrayOutputStream output = new ByteArrayOutputStream( input.length * 4 );
+            final byte[] buffer = new byte[1024];
+            while ( !inflater.finished() )
+            {
+                final int length = inflater.inflate( buffer );
+                if ( length == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                {
+                    throw decodeError( "encoded session bean has truncated compressed data" );
+                }
+                output.write( buffer, 0, length );
+                if ( output.size() > MAX_DECODED_LENGTH )
+                {
+                    throw decodeError( "encoded session bean exceeds maximum decoded length" );
+                }
+            }
+            return output.toByteArray();
+        }
+        catch ( final DataFormatException e )
+        {
+            throw decodeError( "encoded session bean has invalid compressed data: " + e.getMessage() );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static PwmUnrecoverableException decodeError( final String message )
+    {
+        return new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_CRYPT_ERROR, message ) );
+    }
+}
@@ -149,7 +149,7 @@ public class PwmUrlTag extends PwmAbstractTag
     {
         if ( pwmDomain != null && urlString.contains( RESOURCE_URL ) )
         {
-            final String nonce = pwmDomain.getResourceServletService().getResourceNonce();
+            final String nonce = pwmDomain.getResourceServletService().getResourceNonce( urlString );
             if ( nonce != null && nonce.length() > 0 )
             {
                 return urlString.replaceFirst( RESOURCE_URL, RESOURCE_URL + nonce );
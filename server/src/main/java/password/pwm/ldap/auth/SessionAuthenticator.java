@@ -432,6 +432,8 @@ public class SessionAuthenticator
             StatisticsClient.incrementStat( pwmRequest, Statistic.AUTHENTICATION_EXPIRED );
         }
 
+        pwmDomain.getSessionTrackService().updateSessionAuthentication( pwmSession );
+
         //clear permission cache - needs rechecking after login
         LOGGER.debug( pwmRequest, () -> "clearing permission cache" );
         pwmSession.getUserSessionDataCacheBean().clearPermissions();
@@ -819,7 +819,7 @@ public class UserSearchEngine extends AbstractPwmService implements PwmService
 
             LOGGER.trace( () -> "initialized with threads min=" + minThreads + " max=" + threads );
 
-            return new ThreadPoolExecutor(
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
                     minThreads,
                     threads,
                     1,
@@ -827,6 +827,8 @@ public class UserSearchEngine extends AbstractPwmService implements PwmService
                     new ArrayBlockingQueue<>( threads ),
                     threadFactory
             );
+            executor.allowCoreThreadTimeOut( true );
+            return executor;
         }
         return null;
     }
@@ -36,7 +36,11 @@ import password.pwm.util.java.CollectionUtil;
 import password.pwm.svc.sms.SmsQueueService;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -49,15 +53,15 @@ public enum PwmServiceEnum
     SharedHistoryManager( SharedHistoryService.class, PwmSettingScope.SYSTEM ),
     AuditService( password.pwm.svc.event.AuditService.class, PwmSettingScope.SYSTEM ),
     StatisticsService( StatisticsService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    WordlistService( WordlistService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    SeedlistService( SeedlistService.class, PwmSettingScope.SYSTEM ),
+    WordlistService( WordlistService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance, Flag.BackgroundStartup ),
+    SeedlistService( SeedlistService.class, PwmSettingScope.SYSTEM, Flag.BackgroundStartup ),
     IntruderSystemService( IntruderSystemService.class, PwmSettingScope.SYSTEM ),
     EmailService( EmailService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
     SmsQueueManager( SmsQueueService.class, PwmSettingScope.SYSTEM ),
     UrlShortenerService( password.pwm.svc.shorturl.UrlShortenerService.class, PwmSettingScope.SYSTEM ),
     CacheService( password.pwm.svc.cache.CacheService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
     HealthMonitor( HealthService.class, PwmSettingScope.SYSTEM ),
-    ReportService( password.pwm.svc.report.ReportService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
+    ReportService( password.pwm.svc.report.ReportService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance, Flag.BackgroundStartup ),
     SessionTrackService( password.pwm.svc.sessiontrack.SessionTrackService.class, PwmSettingScope.SYSTEM ),
     SessionStateSvc( password.pwm.http.state.SessionStateService.class, PwmSettingScope.SYSTEM ),
     TelemetryService( password.pwm.svc.telemetry.TelemetryService.class, PwmSettingScope.SYSTEM ),
@@ -83,8 +87,13 @@ public enum PwmServiceEnum
     private enum Flag
     {
         StartDuringRuntimeInstance,
+
+        /** Non-critical service that may finish initializing after the application is open. */
+        BackgroundStartup,
     }
 
+    private static final Map<PwmServiceEnum, Set<PwmServiceEnum>> DEPENDENCIES = makeDependencies();
+
     PwmServiceEnum( final Class<? extends PwmService> clazz, final PwmSettingScope pwmSettingScope, final Flag... flags )
     {
         this.clazz = clazz;
@@ -97,6 +106,20 @@ public enum PwmServiceEnum
         return this.flags.contains( Flag.StartDuringRuntimeInstance );
     }
 
+    public boolean isBackgroundStartup( )
+    {
+        return this.flags.contains( Flag.BackgroundStartup );
+    }
+
+    /**
+     * Services of the same scope that must complete initialization before this service is initialized.  Services of
+     * the system scope are always initialized before any domain service.
+     */
+    public Set<PwmServiceEnum> getDependencies( )
+    {
+        return DEPENDENCIES.getOrDefault( this, Collections.emptySet() );
+    }
+
     public static List<PwmServiceEnum> forScope( final PwmSettingScope pwmSettingScope )
     {
         return Arrays.stream( values() )
@@ -115,4 +138,38 @@ public enum PwmServiceEnum
                 + ( domainID.isSystem() ? "" : "/" + domainID.stringValue() )
                 + "]";
     }
+
+    private static Map<PwmServiceEnum, Set<PwmServiceEnum>> makeDependencies()
+    {
+        final Map<PwmServiceEnum, Set<PwmServiceEnum>> map = new EnumMap<>( PwmServiceEnum.class );
+        map.put( HttpClientService, EnumSet.of( SystemSecureService ) );
+        map.put( DatabaseService, EnumSet.of( LocalDBService, SystemSecureService ) );
+        map.put( SharedHistoryManager, EnumSet.of( LocalDBService ) );
+        map.put( AuditService, EnumSet.of( LocalDBService, SystemSecureService ) );
+        map.put( StatisticsService, EnumSet.of( LocalDBService ) );
+        map.put( WordlistService, EnumSet.of( LocalDBService, HttpClientService ) );
+        map.put( SeedlistService, EnumSet.of( LocalDBService, HttpClientService ) );
+        map.put( IntruderSystemService, EnumSet.of( LocalDBService, DatabaseService ) );
+        map.put( EmailService, EnumSet.of( LocalDBService, StatisticsService ) );
+        map.put( SmsQueueManager, EnumSet.of( LocalDBService, SystemSecureService, HttpClientService, StatisticsService ) );
+        map.put( UrlShortenerService, EnumSet.of( HttpClientService ) );
+        map.put( HealthMonitor, EnumSet.of( LocalDBService, DatabaseService, HttpClientService, StatisticsService ) );
+        map.put( ReportService, EnumSet.of( LocalDBService, StatisticsService ) );
+        map.put( SessionTrackService, EnumSet.of( SystemSecureService ) );
+        map.put( SessionStateSvc, EnumSet.of( SystemSecureService ) );
+        map.put( TelemetryService, EnumSet.of( LocalDBService, SystemSecureService, HttpClientService, StatisticsService ) );
+        map.put( NodeService, EnumSet.of( LocalDBService, SystemSecureService, DatabaseService, CacheService ) );
+
+        map.put( LdapConnectionService, EnumSet.of( DomainSecureService ) );
+        map.put( CrService, EnumSet.of( DomainSecureService, LdapConnectionService ) );
+        map.put( OtpService, EnumSet.of( DomainSecureService, LdapConnectionService ) );
+        map.put( IntruderDomainService, EnumSet.of( DomainSecureService ) );
+        map.put( UserSearchEngine, EnumSet.of( LdapConnectionService ) );
+        map.put( TokenService, EnumSet.of( DomainSecureService, IntruderDomainService ) );
+        map.put( UserHistoryService, EnumSet.of( DomainSecureService, LdapConnectionService ) );
+        map.put( PeopleSearchService, EnumSet.of( LdapConnectionService, UserSearchEngine ) );
+        map.put( PwExpiryNotifyService, EnumSet.of( LdapConnectionService, UserSearchEngine ) );
+        map.put( ResourceServletService, EnumSet.of( DomainSecureService ) );
+        return Collections.unmodifiableMap( map );
+    }
 }
@@ -20,6 +20,9 @@
 
 package password.pwm.svc;
 
+import lombok.Builder;
+import lombok.Value;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmEnvironment;
 import password.pwm.bean.DomainID;
@@ -28,18 +31,38 @@ import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
+import java.io.Serializable;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Starts and stops the services of the application or of a single domain.  Services are started concurrently once the
+ * services they declare in {@link PwmServiceEnum#getDependencies()} are started, and services flagged for background
+ * startup are left to finish initializing after {@link #initAllServices()} returns.
+ */
 public class PwmServiceManager
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( PwmServiceManager.class );
@@ -47,10 +70,16 @@ public class PwmServiceManager
     private final DomainID domainID;
     private final PwmApplication pwmApplication;
     private final Map<PwmServiceEnum, PwmService> runningServices = new ConcurrentHashMap<>();
+    private final Map<PwmServiceEnum, TimeDuration> serviceStartTimes = new ConcurrentHashMap<>();
+    private final Map<PwmServiceEnum, Future<?>> backgroundStartups = new ConcurrentHashMap<>();
     private final List<PwmServiceEnum> availableServices;
     private final SessionLabel sessionLabel;
 
     private boolean initialized;
+    private ExecutorService backgroundExecutor;
+    private volatile Instant initStartTime;
+    private volatile TimeDuration initDuration;
+    private volatile Map<String, String> initCounters = Collections.emptyMap();
 
     public PwmServiceManager(
             final SessionLabel sessionLabel,
@@ -65,11 +94,26 @@ public class PwmServiceManager
         this.pwmApplication = Objects.requireNonNull( pwmApplication );
     }
 
-    private enum InitializationStats
+    private enum InitializationCounter
     {
         starts,
         stops,
         restarts,
+        backgroundStarts,
+    }
+
+    @Value
+    @Builder
+    public static class InitializationStats implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final DomainID domainID;
+        private final Instant startTime;
+        private final TimeDuration duration;
+        private final Map<String, String> counters;
+        private final Map<PwmServiceEnum, TimeDuration> serviceStartTimes;
+        private final Set<PwmServiceEnum> pendingBackgroundServices;
     }
 
     public PwmService getService( final PwmServiceEnum serviceClass )
@@ -86,58 +130,290 @@ public class PwmServiceManager
                 || pwmApplication.getPwmEnvironment().getFlags().contains( PwmEnvironment.ApplicationFlag.CommandLineInstance );
 
         final String logVerb = initialized ? "restart" : "start";
-        final StatisticCounterBundle<InitializationStats> statCounter = new StatisticCounterBundle<>( InitializationStats.class );
+        final StatisticCounterBundle<InitializationCounter> statCounter = new StatisticCounterBundle<>( InitializationCounter.class );
         LOGGER.trace( sessionLabel, () -> "beginning service " + logVerb + " process" );
 
+        awaitBackgroundStartups();
+
+        final List<PwmServiceEnum> reverseServiceList = new ArrayList<>( availableServices );
+        Collections.reverse( reverseServiceList );
+        for ( final PwmServiceEnum serviceClassEnum : reverseServiceList )
+        {
+            final boolean serviceShouldBeRunning = !internalRuntimeInstance || serviceClassEnum.isInternalRuntime();
+            final PwmService existingService = runningServices.remove( serviceClassEnum );
+            if ( existingService != null )
+            {
+                shutDownService( serviceClassEnum, existingService );
+                statCounter.increment( serviceShouldBeRunning ? InitializationCounter.restarts : InitializationCounter.stops );
+            }
+            else if ( serviceShouldBeRunning )
+            {
+                statCounter.increment( InitializationCounter.starts );
+            }
+        }
+
+        final List<PwmServiceEnum> servicesToStart = new ArrayList<>();
         for ( final PwmServiceEnum serviceClassEnum : availableServices )
         {
-            boolean serviceShouldBeRunning = true;
-            if ( internalRuntimeInstance && !serviceClassEnum.isInternalRuntime() )
+            if ( !internalRuntimeInstance || serviceClassEnum.isInternalRuntime() )
             {
-                serviceShouldBeRunning = false;
+                servicesToStart.add( serviceClassEnum );
             }
+        }
+
+        serviceStartTimes.clear();
+        initStartTime = startTime;
+        final boolean allowBackground = !internalRuntimeInstance
+                && Boolean.parseBoolean( pwmApplication.getConfig().readAppProperty( AppProperty.APPLICATION_SERVICE_STARTUP_BACKGROUND_ENABLE ) );
+        startServices( servicesToStart, allowBackground, statCounter );
+
+        initialized = true;
+        initDuration = TimeDuration.fromCurrent( startTime );
+        initCounters = statCounter.debugStats();
 
-            if ( serviceShouldBeRunning )
+        LOGGER.trace( sessionLabel, () -> logVerb + "ed services, " + statCounter.debugStats(), () -> TimeDuration.fromCurrent( startTime ) );
+    }
+
+    /**
+     * Start each service once its dependencies have started.  If a service fails fatally no further services are
+     * submitted, and the error is thrown once the services already running their initialization have finished.
+     */
+    private void startServices(
+            final List<PwmServiceEnum> servicesToStart,
+            final boolean allowBackground,
+            final StatisticCounterBundle<InitializationCounter> statCounter
+    )
+            throws PwmUnrecoverableException
+    {
+        final Map<PwmServiceEnum, Set<PwmServiceEnum>> pendingServices = new EnumMap<>( PwmServiceEnum.class );
+        for ( final PwmServiceEnum serviceClassEnum : servicesToStart )
+        {
+            final Set<PwmServiceEnum> dependencies = EnumSet.noneOf( PwmServiceEnum.class );
+            dependencies.addAll( serviceClassEnum.getDependencies() );
+            dependencies.retainAll( servicesToStart );
+            pendingServices.put( serviceClassEnum, dependencies );
+        }
+
+        final int maxThreads = Math.max( 1, Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.APPLICATION_SERVICE_STARTUP_MAX_THREADS ) ) );
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min( maxThreads, Math.max( 1, servicesToStart.size() ) ),
+                PwmScheduler.makePwmThreadFactory( PwmScheduler.makeThreadName( pwmApplication, PwmServiceManager.class ) + "-", true ) );
+        final CompletionService<PwmServiceEnum> completionService = new ExecutorCompletionService<>( executorService );
+
+        PwmUnrecoverableException startupError = null;
+        int inFlight = 0;
+        try
+        {
+            while ( !pendingServices.isEmpty() || inFlight > 0 )
             {
-                if ( runningServices.containsKey( serviceClassEnum ) )
+                if ( startupError == null )
                 {
-                    shutDownService( serviceClassEnum, runningServices.get( serviceClassEnum ) );
-                    statCounter.increment( InitializationStats.restarts );
+                    inFlight += submitReadyServices( pendingServices, completionService, allowBackground, statCounter );
                 }
-                else
+
+                if ( inFlight == 0 )
                 {
-                    statCounter.increment( InitializationStats.starts );
+                    if ( startupError == null && !pendingServices.isEmpty() )
+                    {
+                        startupError = new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_STARTUP_ERROR,
+                                "unable to resolve service dependencies for " + pendingServices.keySet() ) );
+                    }
+                    break;
                 }
 
-                final PwmService newServiceInstance = initService( serviceClassEnum );
-                runningServices.put( serviceClassEnum, newServiceInstance );
+                final Future<PwmServiceEnum> completed = completionService.take();
+                inFlight--;
+                try
+                {
+                    final PwmServiceEnum completedService = completed.get();
+                    pendingServices.values().forEach( dependencies -> dependencies.remove( completedService ) );
+                }
+                catch ( final ExecutionException e )
+                {
+                    if ( startupError == null )
+                    {
+                        startupError = e.getCause() instanceof PwmUnrecoverableException
+                                ? ( PwmUnrecoverableException ) e.getCause()
+                                : new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_STARTUP_ERROR,
+                                "unexpected error starting services: " + e.getCause() ) );
+                    }
+                }
             }
-            else
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_STARTUP_ERROR, "interrupted while starting services" ) );
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        if ( startupError != null )
+        {
+            throw startupError;
+        }
+    }
+
+    /**
+     * Submit every pending service whose dependencies have started, in declaration order.  Background services are
+     * handed to the background executor and count as started for their dependents.
+     *
+     * @return the number of services submitted to the completion service
+     */
+    private int submitReadyServices(
+            final Map<PwmServiceEnum, Set<PwmServiceEnum>> pendingServices,
+            final CompletionService<PwmServiceEnum> completionService,
+            final boolean allowBackground,
+            final StatisticCounterBundle<InitializationCounter> statCounter
+    )
+    {
+        int submitted = 0;
+        boolean released = true;
+        while ( released )
+        {
+            released = false;
+            for ( final Iterator<Map.Entry<PwmServiceEnum, Set<PwmServiceEnum>>> iterator = pendingServices.entrySet().iterator(); iterator.hasNext(); )
             {
-                if ( runningServices.containsKey( serviceClassEnum ) )
+                final Map.Entry<PwmServiceEnum, Set<PwmServiceEnum>> entry = iterator.next();
+                if ( entry.getValue().isEmpty() )
                 {
-                    shutDownService( serviceClassEnum, runningServices.get( serviceClassEnum ) );
-                    statCounter.increment( InitializationStats.stops );
+                    final PwmServiceEnum serviceClassEnum = entry.getKey();
+                    iterator.remove();
+                    if ( allowBackground && serviceClassEnum.isBackgroundStartup() )
+                    {
+                        startBackgroundService( serviceClassEnum );
+                        statCounter.increment( InitializationCounter.backgroundStarts );
+                        pendingServices.values().forEach( dependencies -> dependencies.remove( serviceClassEnum ) );
+                        released = true;
+                    }
+                    else
+                    {
+                        completionService.submit( () ->
+                        {
+                            runningServices.put( serviceClassEnum, initService( serviceClassEnum ) );
+                            return serviceClassEnum;
+                        } );
+                        submitted++;
+                    }
                 }
             }
         }
+        return submitted;
+    }
 
-        initialized = true;
+    /**
+     * Register the service immediately, so it is available with a closed status, and initialize it on the background
+     * executor.
+     */
+    private void startBackgroundService( final PwmServiceEnum serviceClassEnum )
+    {
+        final PwmService newServiceInstance;
+        try
+        {
+            newServiceInstance = instantiateService( serviceClassEnum );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            return;
+        }
 
-        LOGGER.trace( sessionLabel, () -> logVerb + "ed services, " + statCounter.debugStats(), () -> TimeDuration.fromCurrent( startTime ) );
+        runningServices.put( serviceClassEnum, newServiceInstance );
+
+        if ( backgroundExecutor == null )
+        {
+            backgroundExecutor = PwmScheduler.makeBackgroundExecutor( pwmApplication, PwmServiceManager.class );
+        }
+
+        if ( backgroundExecutor == null )
+        {
+            initServiceAndLog( serviceClassEnum, newServiceInstance );
+            return;
+        }
+
+        LOGGER.debug( sessionLabel, () -> "service " + serviceClassEnum.serviceName( domainID ) + " will complete initialization in the background" );
+        backgroundStartups.put( serviceClassEnum, backgroundExecutor.submit( () -> initServiceAndLog( serviceClassEnum, newServiceInstance ) ) );
     }
 
-    private PwmService initService( final PwmServiceEnum pwmServiceEnum )
-            throws PwmUnrecoverableException
+    private void initServiceAndLog( final PwmServiceEnum serviceClassEnum, final PwmService newServiceInstance )
+    {
+        try
+        {
+            initService( serviceClassEnum, newServiceInstance );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            LOGGER.error( sessionLabel, () -> "error initializing service " + serviceClassEnum.serviceName( domainID )
+                    + ", service will remain unavailable, error: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Wait for background service initializations to complete, so they are not closed while still initializing.
+     */
+    private void awaitBackgroundStartups()
     {
+        if ( backgroundStartups.isEmpty() )
+        {
+            return;
+        }
+
+        final TimeDuration maxWait = pwmApplication.getConfig().readDurationAppProperty( AppProperty.APPLICATION_SERVICE_STARTUP_BACKGROUND_CLOSE_WAIT_MS );
         final Instant startTime = Instant.now();
-        final PwmService newServiceInstance;
+        for ( final Map.Entry<PwmServiceEnum, Future<?>> entry : Map.copyOf( backgroundStartups ).entrySet() )
+        {
+            final long remainingMs = maxWait.asMillis() - TimeDuration.fromCurrent( startTime ).asMillis();
+            try
+            {
+                entry.getValue().get( Math.max( 0, remainingMs ), TimeUnit.MILLISECONDS );
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( final ExecutionException | TimeoutException e )
+            {
+                LOGGER.warn( sessionLabel, () -> "background initialization of service " + entry.getKey().serviceName( domainID )
+                        + " did not complete: " + e.getMessage() );
+            }
+        }
+        backgroundStartups.clear();
+    }
+
+    public InitializationStats getInitializationStats()
+    {
+        final Map<PwmServiceEnum, TimeDuration> startTimes = new EnumMap<>( PwmServiceEnum.class );
+        startTimes.putAll( serviceStartTimes );
+
+        final Set<PwmServiceEnum> pendingBackground = EnumSet.noneOf( PwmServiceEnum.class );
+        backgroundStartups.forEach( ( serviceClassEnum, future ) ->
+        {
+            if ( !future.isDone() )
+            {
+                pendingBackground.add( serviceClassEnum );
+            }
+        } );
 
+        return InitializationStats.builder()
+                .domainID( domainID )
+                .startTime( initStartTime )
+                .duration( initDuration )
+                .counters( initCounters )
+                .serviceStartTimes( Collections.unmodifiableMap( startTimes ) )
+                .pendingBackgroundServices( Collections.unmodifiableSet( pendingBackground ) )
+                .build();
+    }
+
+    private PwmService instantiateService( final PwmServiceEnum pwmServiceEnum )
+            throws PwmUnrecoverableException
+    {
         final String serviceName = pwmServiceEnum.serviceName( domainID );
         try
         {
             final Class<? extends PwmService> serviceClass = pwmServiceEnum.getPwmServiceClass();
-            newServiceInstance = serviceClass.getDeclaredConstructor().newInstance();
+            return serviceClass.getDeclaredConstructor().newInstance();
         }
         catch ( final Exception e )
         {
@@ -145,6 +421,21 @@ public class PwmServiceManager
             LOGGER.fatal( () -> errorMsg, e );
             throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_STARTUP_ERROR, errorMsg ) );
         }
+    }
+
+    private PwmService initService( final PwmServiceEnum pwmServiceEnum )
+            throws PwmUnrecoverableException
+    {
+        final PwmService newServiceInstance = instantiateService( pwmServiceEnum );
+        initService( pwmServiceEnum, newServiceInstance );
+        return newServiceInstance;
+    }
+
+    private void initService( final PwmServiceEnum pwmServiceEnum, final PwmService newServiceInstance )
+            throws PwmUnrecoverableException
+    {
+        final Instant startTime = Instant.now();
+        final String serviceName = pwmServiceEnum.serviceName( domainID );
 
         try
         {
@@ -170,7 +461,10 @@ public class PwmServiceManager
             e.printStackTrace();
             throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_STARTUP_ERROR, errorMsg ) );
         }
-        return newServiceInstance;
+        finally
+        {
+            serviceStartTimes.put( pwmServiceEnum, TimeDuration.fromCurrent( startTime ) );
+        }
     }
 
     public void shutdownAllServices( )
@@ -183,6 +477,7 @@ public class PwmServiceManager
         LOGGER.trace( sessionLabel, () -> "beginning to close all services" );
         final Instant startTime = Instant.now();
 
+        awaitBackgroundStartups();
 
         final List<PwmServiceEnum> reverseServiceList = new ArrayList<>( availableServices );
         Collections.reverse( reverseServiceList );
@@ -195,6 +490,12 @@ public class PwmServiceManager
         }
         initialized = false;
 
+        if ( backgroundExecutor != null )
+        {
+            JavaHelper.closeAndWaitExecutor( backgroundExecutor, TimeDuration.SECOND );
+            backgroundExecutor = null;
+        }
+
         LOGGER.trace( sessionLabel, () -> "closed all services", () -> TimeDuration.fromCurrent( startTime ) );
     }
 
@@ -23,11 +23,14 @@ package password.pwm.svc.cache;
 import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.bean.DomainID;
+import password.pwm.bean.UserIdentity;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthRecord;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.node.ClusterEvent;
+import password.pwm.svc.node.NodeService;
 import password.pwm.util.java.ConditionalTaskExecutor;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StatisticCounterBundle;
@@ -118,6 +121,47 @@ public class CacheService extends AbstractPwmService implements PwmService
         return Collections.unmodifiableMap( debugInfo );
     }
 
+    /**
+     * Discard all cached items, for example when another cluster node reports that shared data has changed.
+     */
+    public void clear( )
+    {
+        if ( status() == STATUS.OPEN )
+        {
+            memoryCacheStore.clear();
+        }
+    }
+
+    /**
+     * Discard cached items about a user whose directory data has changed, on this node and on the other cluster nodes.
+     */
+    public void invalidateUser( final UserIdentity userIdentity )
+    {
+        if ( userIdentity == null )
+        {
+            return;
+        }
+
+        removeUserEntries( userIdentity );
+
+        final NodeService nodeService = getPwmApplication().getNodeService();
+        if ( nodeService != null )
+        {
+            nodeService.broadcastClusterEvent( ClusterEvent.Type.cacheInvalidate, userIdentity.toDelimitedKey() );
+        }
+    }
+
+    /**
+     * Discard cached items about a user on this node only.
+     */
+    public void removeUserEntries( final UserIdentity userIdentity )
+    {
+        if ( status() == STATUS.OPEN && userIdentity != null )
+        {
+            memoryCacheStore.removeUserEntries( userIdentity );
+        }
+    }
+
     public void put( final CacheKey cacheKey, final CachePolicy cachePolicy, final Serializable payload )
             throws PwmUnrecoverableException
     {
@@ -115,6 +115,16 @@ class MemoryCacheStore implements CacheStore
         return null;
     }
 
+    void removeUserEntries( final UserIdentity userIdentity )
+    {
+        memoryStore.asMap().keySet().removeIf( cacheKey -> userIdentity.equals( cacheKey.getUserIdentity() ) );
+    }
+
+    void clear( )
+    {
+        memoryStore.invalidateAll();
+    }
+
     @Override
     public StatisticCounterBundle<DebugKey> getCacheStoreInfo( )
     {
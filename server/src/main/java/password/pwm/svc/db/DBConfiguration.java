@@ -31,6 +31,7 @@ import password.pwm.http.bean.ImmutableByteArray;
 import password.pwm.util.PasswordData;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -53,6 +54,10 @@ public class DBConfiguration implements Serializable
     private final int connectionTimeout;
     private final int keyColumnLength;
     private final boolean failOnIndexCreation;
+    private final int statementCacheSize;
+    private final TimeDuration connectionValidationInterval;
+    private final int maxBatchSize;
+    private final int iteratorPageSize;
 
     public ImmutableByteArray getJdbcDriver( )
     {
@@ -96,6 +101,13 @@ public class DBConfiguration implements Serializable
 
         final boolean haltOnIndexCreateError = Boolean.parseBoolean( config.readAppProperty( AppProperty.DB_INIT_HALT_ON_INDEX_CREATE_ERROR ) );
 
+        final int statementCacheSize = Integer.parseInt( config.readAppProperty( AppProperty.DB_CONNECTIONS_STATEMENT_CACHE_SIZE ) );
+        final TimeDuration validationInterval = TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.DB_CONNECTIONS_VALIDATION_INTERVAL_SECONDS ) ),
+                TimeDuration.Unit.SECONDS );
+        final int maxBatchSize = Integer.parseInt( config.readAppProperty( AppProperty.DB_BATCH_MAX_SIZE ) );
+        final int iteratorPageSize = Integer.parseInt( config.readAppProperty( AppProperty.DB_ITERATOR_PAGE_SIZE ) );
+
         return new DBConfiguration(
                 config.readSettingAsString( PwmSetting.DATABASE_CLASS ),
                 config.readSettingAsString( PwmSetting.DATABASE_URL ),
@@ -108,7 +120,11 @@ public class DBConfiguration implements Serializable
                 maxConnections,
                 connectionTimeout,
                 keyColumnLength,
-                haltOnIndexCreateError
+                haltOnIndexCreateError,
+                statementCacheSize,
+                validationInterval,
+                maxBatchSize,
+                iteratorPageSize
         );
     }
 }
@@ -24,6 +24,7 @@ import password.pwm.util.java.ClosableIterator;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -64,6 +65,17 @@ public interface DatabaseAccessor
     )
             throws DatabaseException;
 
+    /**
+     * Write all key/value pairs using batched statements within a single transaction.
+     */
+    @DbOperation
+    @DbModifyOperation
+    void putAll(
+            DatabaseTable table,
+            Map<String, String> keyValueMap
+    )
+            throws DatabaseException;
+
     @DbOperation
     boolean contains(
             DatabaseTable table,
@@ -78,6 +90,16 @@ public interface DatabaseAccessor
     )
             throws DatabaseException;
 
+    /**
+     * Read the values of all keys present in the table.  Keys that do not exist are absent from the returned map.
+     */
+    @DbOperation
+    Map<String, String> getAll(
+            DatabaseTable table,
+            Collection<String> keys
+    )
+            throws DatabaseException;
+
     ClosableIterator<Map.Entry<String, String>> iterator( DatabaseTable table )
             throws DatabaseException;
 
@@ -89,6 +111,19 @@ public interface DatabaseAccessor
     )
             throws DatabaseException;
 
+    /**
+     * Remove all keys using batched statements within a single transaction.
+     *
+     * @return the number of rows removed, as reported by the driver
+     */
+    @DbOperation
+    @DbModifyOperation
+    int removeAll(
+            DatabaseTable table,
+            Collection<String> keys
+    )
+            throws DatabaseException;
+
     @DbOperation
     int size( DatabaseTable table ) throws
             DatabaseException;
@@ -21,24 +21,30 @@
 package password.pwm.svc.db;
 
 import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.AbstractMap;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Jason D. Rivard
@@ -48,7 +54,7 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
     private static final PwmLogger LOGGER = PwmLogger.forClass( DatabaseAccessorImpl.class, true );
 
-    private final Connection connection;
+    private final DatabaseConnectionPool connectionPool;
     private final DatabaseService databaseService;
     private final DBConfiguration dbConfiguration;
 
@@ -58,38 +64,22 @@ class DatabaseAccessorImpl implements DatabaseAccessor
     private final int accessorNumber = ACCESSOR_COUNTER.getAndIncrement();
 
     private static final AtomicInteger ITERATOR_COUNTER = new AtomicInteger( 0 );
-    private final Set<DBIterator> outstandingIterators = ConcurrentHashMap.newKeySet();
 
     private final AtomicBoolean closed = new AtomicBoolean( false );
 
-    private final ReentrantLock lock = new ReentrantLock();
-
     DatabaseAccessorImpl(
             final DatabaseService databaseService,
             final DBConfiguration dbConfiguration,
-            final Connection connection,
+            final DatabaseConnectionPool connectionPool,
             final boolean traceLogEnabled
     )
     {
-        this.connection = connection;
+        this.connectionPool = connectionPool;
         this.dbConfiguration = dbConfiguration;
         this.traceLogEnabled = traceLogEnabled;
         this.databaseService = databaseService;
     }
 
-
-    private void processSqlException(
-            final DatabaseUtil.DebugInfo debugInfo,
-            final SQLException e
-    )
-            throws DatabaseException
-    {
-        DatabaseUtil.rollbackTransaction( connection );
-        final DatabaseException databaseException = DatabaseUtil.convertSqlException( debugInfo, e );
-        databaseService.setLastError( databaseException.getErrorInformation() );
-        throw databaseException;
-    }
-
     @Override
     public boolean put(
             final DatabaseTable table,
@@ -102,33 +92,18 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "put", table, key, value );
 
-        return execute( debugInfo, ( ) ->
+        return execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
         {
-            boolean exists = false;
-            try
-            {
-                exists = containsImpl( table, key );
-            }
-            catch ( final SQLException e )
-            {
-                processSqlException( debugInfo, e );
-            }
+            final boolean exists = containsImpl( connection, table, key );
 
             if ( exists )
             {
-                final String sqlText = "UPDATE " + table.toString()
-                        + " SET " + DatabaseService.VALUE_COLUMN + "=? WHERE "
-                        + DatabaseService.KEY_COLUMN + "=?";
-
                 // note the value/key are reversed for this statement
-                executeUpdate( sqlText, debugInfo, value, key );
+                executeUpdate( connection, updateSql( table ), value, key );
             }
             else
             {
-                final String sqlText = "INSERT INTO " + table.toString()
-                        + "(" + DatabaseService.KEY_COLUMN + ", "
-                        + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
-                executeUpdate( sqlText, debugInfo, key, value );
+                executeUpdate( connection, insertSql( table ), key, value );
             }
 
             return !exists;
@@ -147,55 +122,74 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "putIfAbsent", table, key, value );
 
-        return execute( debugInfo, ( ) ->
+        return execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
         {
-            boolean valueExists = false;
-            try
-            {
-                valueExists = DatabaseAccessorImpl.this.containsImpl( table, key );
-            }
-            catch ( final SQLException e )
-            {
-                DatabaseAccessorImpl.this.processSqlException( debugInfo, e );
-            }
+            final boolean valueExists = containsImpl( connection, table, key );
 
             if ( !valueExists )
             {
-                final String insertSql = "INSERT INTO " + table.name() + "(" + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
-                DatabaseAccessorImpl.this.executeUpdate( insertSql, debugInfo, key, value );
+                executeUpdate( connection, insertSql( table ), key, value );
             }
 
             return !valueExists;
         } );
     }
 
-
     @Override
-    public boolean contains(
+    public void putAll(
             final DatabaseTable table,
-            final String key
+            final Map<String, String> keyValueMap
     )
             throws DatabaseException
     {
         preCheck();
 
-        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "contains", table, key, null );
+        if ( CollectionUtil.isEmpty( keyValueMap ) )
+        {
+            return;
+        }
 
-        return execute( debugInfo, ( ) ->
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "putAll", table, keyValueMap.size() + " keys", null );
+
+        execute( debugInfo, DatabaseService.OperationType.WRITE, keyValueMap.size(), connection ->
         {
-            boolean valueExists = false;
-            try
-            {
-                valueExists = containsImpl( table, key );
-            }
-            catch ( final SQLException e )
+            final Set<String> existingKeys = readValuesImpl( connection, table, keyValueMap.keySet() ).keySet();
+
+            final List<String[]> updates = new ArrayList<>();
+            final List<String[]> inserts = new ArrayList<>();
+            for ( final Map.Entry<String, String> entry : keyValueMap.entrySet() )
             {
-                processSqlException( debugInfo, e );
+                if ( existingKeys.contains( entry.getKey() ) )
+                {
+                    // note the value/key are reversed for this statement
+                    updates.add( new String[] {entry.getValue(), entry.getKey()} );
+                }
+                else
+                {
+                    inserts.add( new String[] {entry.getKey(), entry.getValue()} );
+                }
             }
-            return valueExists;
+
+            executeBatch( connection, updateSql( table ), updates );
+            executeBatch( connection, insertSql( table ), inserts );
+            return null;
         } );
     }
 
+    @Override
+    public boolean contains(
+            final DatabaseTable table,
+            final String key
+    )
+            throws DatabaseException
+    {
+        preCheck();
+
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "contains", table, key, null );
+
+        return execute( debugInfo, DatabaseService.OperationType.READ, connection -> containsImpl( connection, table, key ) );
+    }
+
     @Override
     public Optional<String> get(
             final DatabaseTable table,
@@ -207,44 +201,51 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "get", table, key, null );
 
-        return execute( debugInfo, ( ) ->
+        return execute( debugInfo, DatabaseService.OperationType.READ, connection ->
         {
             final String sqlStatement = "SELECT * FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
 
-            try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
-            {
-                statement.setString( 1, key );
-                statement.setMaxRows( 1 );
+            final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+            statement.setString( 1, key );
+            statement.setMaxRows( 1 );
 
-                try ( ResultSet resultSet = statement.executeQuery() )
+            try ( ResultSet resultSet = statement.executeQuery() )
+            {
+                if ( resultSet.next() )
                 {
-                    if ( resultSet.next() )
-                    {
-                        return Optional.ofNullable( resultSet.getString( DatabaseService.VALUE_COLUMN ) );
-                    }
+                    return Optional.ofNullable( resultSet.getString( DatabaseService.VALUE_COLUMN ) );
                 }
             }
-            catch ( final SQLException e )
-            {
-                processSqlException( debugInfo, e );
-            }
             return Optional.empty();
         } );
     }
 
     @Override
-    public ClosableIterator<Map.Entry<String, String>> iterator( final DatabaseTable table )
+    public Map<String, String> getAll(
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
             throws DatabaseException
     {
-        try
-        {
-            lock.lock();
-            return new DBIterator( table );
-        }
-        finally
+        preCheck();
+
+        if ( CollectionUtil.isEmpty( keys ) )
         {
-            lock.unlock();
+            return Collections.emptyMap();
         }
+
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "getAll", table, keys.size() + " keys", null );
+
+        return execute( debugInfo, DatabaseService.OperationType.READ, keys.size(), connection ->
+                Collections.unmodifiableMap( readValuesImpl( connection, table, keys ) ) );
+    }
+
+    @Override
+    public ClosableIterator<Map.Entry<String, String>> iterator( final DatabaseTable table )
+            throws DatabaseException
+    {
+        preCheck();
+        return new DBIterator( table );
     }
 
     @Override
@@ -258,135 +259,123 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "remove", table, key, null );
 
-        execute( debugInfo, ( ) ->
+        execute( debugInfo, DatabaseService.OperationType.WRITE, connection ->
         {
-
-
-            final String sqlText = "DELETE FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + "=?";
-            executeUpdate( sqlText, debugInfo, key );
-
+            executeUpdate( connection, deleteSql( table ), key );
             return null;
         } );
     }
 
     @Override
-    public int size( final DatabaseTable table )
+    public int removeAll(
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
             throws DatabaseException
     {
         preCheck();
 
-        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "size", table, null, null );
-
-        return execute( debugInfo, ( ) ->
+        if ( CollectionUtil.isEmpty( keys ) )
         {
-            final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name();
+            return 0;
+        }
 
-            try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
-            {
-                try ( ResultSet resultSet = statement.executeQuery() )
-                {
-                    if ( resultSet.next() )
-                    {
-                        return resultSet.getInt( 1 );
-                    }
-                }
-            }
-            catch ( final SQLException e )
-            {
-                processSqlException( debugInfo, e );
-            }
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "removeAll", table, keys.size() + " keys", null );
 
-            return 0;
+        return execute( debugInfo, DatabaseService.OperationType.WRITE, keys.size(), connection ->
+        {
+            final List<String[]> params = new ArrayList<>( keys.size() );
+            keys.forEach( key -> params.add( new String[] {key} ) );
+            return executeBatch( connection, deleteSql( table ), params );
         } );
     }
 
-    boolean isValid( )
+    @Override
+    public int size( final DatabaseTable table )
+            throws DatabaseException
     {
         preCheck();
 
-        if ( connection == null )
-        {
-            return false;
-        }
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "size", table, null, null );
 
-        try
+        return execute( debugInfo, DatabaseService.OperationType.READ, connection ->
         {
-            if ( connection.isClosed() )
-            {
-                return false;
-            }
-
-            final int connectionTimeout = dbConfiguration.getConnectionTimeout();
+            final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name();
 
-            if ( !connection.isValid( connectionTimeout ) )
+            final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+            try ( ResultSet resultSet = statement.executeQuery() )
             {
-                return false;
+                if ( resultSet.next() )
+                {
+                    return resultSet.getInt( 1 );
+                }
             }
 
-        }
-        catch ( final SQLException e )
-        {
-            LOGGER.debug( () -> "error while checking connection validity: " + e.getMessage() );
-        }
-
-        return true;
+            return 0;
+        } );
     }
 
-
+    /**
+     * Iterates the table in key order, one page at a time.  A connection is only leased while a page is being read, so
+     * callers may freely perform other operations (including removals) while the iterator is open.
+     */
     public class DBIterator implements ClosableIterator<Map.Entry<String, String>>
     {
         private final DatabaseTable table;
-        private ResultSet resultSet;
-        private PreparedStatement statement;
-        private Map.Entry<String, String> nextValue;
+        private final int counter = ITERATOR_COUNTER.getAndIncrement();
+        private Iterator<Map.Entry<String, String>> currentPage = Collections.emptyIterator();
+        private String lastKey;
+        private boolean lastPage;
         private boolean finished;
-        private int counter = ITERATOR_COUNTER.getAndIncrement();
 
         DBIterator( final DatabaseTable table )
                 throws DatabaseException
         {
             this.table = table;
-            init();
-            getNextItem();
+            traceBegin( DatabaseUtil.DebugInfo.create( "iterator #" + counter + " open", table, null, null ) );
+            readNextPage();
         }
 
-        private void init( ) throws DatabaseException
+        @Override
+        public boolean hasNext( )
         {
-            final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create(
-                    "iterator #" + counter + " open", table, null, null );
-            traceBegin( debugInfo );
-
-            final String sqlText = "SELECT * FROM " + table.name();
-            try
+            if ( finished )
             {
-                outstandingIterators.add( this );
-                statement = connection.prepareStatement( sqlText );
-                resultSet = statement.executeQuery();
-                connection.commit();
+                return false;
             }
-            catch ( final SQLException e )
+
+            if ( !currentPage.hasNext() && !lastPage )
             {
-                processSqlException( null, e );
+                try
+                {
+                    readNextPage();
+                }
+                catch ( final DatabaseException e )
+                {
+                    LOGGER.warn( () -> "unexpected error during result set iteration: " + e.getMessage() );
+                    close();
+                    return false;
+                }
             }
 
-            traceResult( debugInfo, null );
-        }
+            if ( !currentPage.hasNext() )
+            {
+                close();
+                return false;
+            }
 
-        @Override
-        public boolean hasNext( )
-        {
-            return !finished;
+            return true;
         }
 
         @Override
         public Map.Entry<String, String> next( )
         {
-            if ( finished )
+            if ( !hasNext() )
             {
-                throw new IllegalStateException( "iterator completed" );
+                throw new NoSuchElementException( "iterator completed" );
             }
-            final Map.Entry<String, String> returnValue = nextValue;
-            getNextItem();
+            final Map.Entry<String, String> returnValue = currentPage.next();
+            lastKey = returnValue.getKey();
             return returnValue;
         }
 
@@ -396,75 +385,51 @@ class DatabaseAccessorImpl implements DatabaseAccessor
             throw new UnsupportedOperationException( "remove not supported" );
         }
 
-        private void getNextItem( )
-        {
-            try
-            {
-                if ( resultSet.next() )
-                {
-                    final String key = resultSet.getString( DatabaseService.KEY_COLUMN );
-                    final String value = resultSet.getString( DatabaseService.VALUE_COLUMN );
-                    nextValue = new AbstractMap.SimpleEntry<>( key, value );
-                }
-                else
-                {
-                    close();
-                }
-            }
-            catch ( final SQLException e )
-            {
-                finished = true;
-                LOGGER.warn( () -> "unexpected error during result set iteration: " + e.getMessage() );
-            }
-            databaseService.updateStats( DatabaseService.OperationType.READ );
-        }
-
-        @Override
-        public void close( )
+        private void readNextPage( )
+                throws DatabaseException
         {
-            final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create(
-                    "iterator #" + counter + " close", table, null, null );
-            traceBegin( debugInfo );
+            final int pageSize = dbConfiguration.getIteratorPageSize();
+            final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "iterator #" + counter + " page", table, lastKey, null );
 
-            lock.lock();
-            try
+            final List<Map.Entry<String, String>> page = execute( debugInfo, DatabaseService.OperationType.READ, connection ->
             {
-                outstandingIterators.remove( this );
+                final String sqlText = "SELECT * FROM " + table.name()
+                        + ( lastKey == null ? "" : " WHERE " + DatabaseService.KEY_COLUMN + " > ?" )
+                        + " ORDER BY " + DatabaseService.KEY_COLUMN;
 
-                if ( resultSet != null )
+                final PreparedStatement statement = connection.prepareStatement( sqlText );
+                if ( lastKey != null )
                 {
-                    try
-                    {
-                        resultSet.close();
-                        resultSet = null;
-                    }
-                    catch ( final SQLException e )
-                    {
-                        LOGGER.error( () -> "error closing inner resultSet in iterator: " + e.getMessage() );
-                    }
+                    statement.setString( 1, lastKey );
                 }
+                statement.setMaxRows( pageSize );
 
-                if ( statement != null )
+                final List<Map.Entry<String, String>> results = new ArrayList<>();
+                try ( ResultSet resultSet = statement.executeQuery() )
                 {
-                    try
+                    while ( resultSet.next() )
                     {
-                        statement.close();
-                        statement = null;
-                    }
-                    catch ( final SQLException e )
-                    {
-                        LOGGER.error( () -> "error closing inner statement in iterator: " + e.getMessage() );
+                        final String key = resultSet.getString( DatabaseService.KEY_COLUMN );
+                        final String value = resultSet.getString( DatabaseService.VALUE_COLUMN );
+                        results.add( new AbstractMap.SimpleImmutableEntry<>( key, value ) );
                     }
                 }
+                return results;
+            } );
 
-                finished = true;
-            }
-            finally
+            lastPage = page.size() < pageSize;
+            currentPage = page.iterator();
+        }
+
+        @Override
+        public void close( )
+        {
+            if ( !finished )
             {
-                lock.unlock();
+                finished = true;
+                currentPage = Collections.emptyIterator();
+                traceResult( DatabaseUtil.DebugInfo.create( "iterator #" + counter + " close", table, null, null ), null );
             }
-
-            traceResult( debugInfo, "outstandingIterators=" + outstandingIterators.size() );
         }
     }
 
@@ -499,121 +464,252 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
     private interface SqlFunction<T>
     {
-        T execute( ) throws DatabaseException;
+        T execute( DatabaseConnectionPool.PooledConnection connection ) throws SQLException, DatabaseException;
     }
 
-    private <T> T execute( final DatabaseUtil.DebugInfo debugInfo, final SqlFunction<T> sqlFunction )
+    private <T> T execute(
+            final DatabaseUtil.DebugInfo debugInfo,
+            final DatabaseService.OperationType operationType,
+            final SqlFunction<T> sqlFunction
+    )
+            throws DatabaseException
+    {
+        return execute( debugInfo, operationType, 1, sqlFunction );
+    }
+
+    /**
+     * Leases a pooled connection, executes the function and commits it as a single transaction.  Any failure, including unchecked
+     * exceptions, causes the transaction to be rolled back and the connection to be re-validated before its next lease.
+     */
+    private <T> T execute(
+            final DatabaseUtil.DebugInfo debugInfo,
+            final DatabaseService.OperationType operationType,
+            final int operationCount,
+            final SqlFunction<T> sqlFunction
+    )
             throws DatabaseException
     {
         traceBegin( debugInfo );
 
+        final DatabaseConnectionPool.PooledConnection connection = connectionPool.lease();
+        boolean success = false;
         try
         {
-            lock.lock();
-
-            try
-            {
-                final T result = sqlFunction.execute();
-                traceResult( debugInfo, result );
-                databaseService.updateStats( DatabaseService.OperationType.WRITE );
-                return result;
-            }
-            finally
-            {
-                DatabaseUtil.commit( connection );
-            }
-
+            final T result = sqlFunction.execute( connection );
+            DatabaseUtil.commit( connection.getConnection() );
+            success = true;
+            traceResult( debugInfo, result );
+            databaseService.updateStats( operationType, operationCount );
+            return result;
+        }
+        catch ( final SQLException e )
+        {
+            final DatabaseException databaseException = DatabaseUtil.convertSqlException( debugInfo, e );
+            databaseService.setLastError( databaseException.getErrorInformation() );
+            throw databaseException;
         }
         finally
         {
-            lock.unlock();
+            if ( !success )
+            {
+                rollback( connection );
+            }
+            connectionPool.release( connection, !success );
         }
-
     }
 
-    Connection getConnection( )
+    private static void rollback( final DatabaseConnectionPool.PooledConnection connection )
     {
-        return connection;
+        try
+        {
+            DatabaseUtil.rollbackTransaction( connection.getConnection() );
+        }
+        catch ( final DatabaseException | RuntimeException e )
+        {
+            LOGGER.debug( () -> "error during rollback of connection #" + connection.getConnectionNumber() + ": " + e.getMessage() );
+        }
     }
 
     void close( )
     {
         closed.set( true );
+        LOGGER.trace( () -> "closed accessor #" + accessorNumber );
+    }
 
-        try
+    private boolean containsImpl( final DatabaseConnectionPool.PooledConnection connection, final DatabaseTable table, final String key )
+            throws SQLException
+    {
+        final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name()
+                + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
+
+        final PreparedStatement selectStatement = connection.prepareStatement( sqlStatement );
+        selectStatement.setString( 1, key );
+        selectStatement.setMaxRows( 1 );
+
+        try ( ResultSet resultSet = selectStatement.executeQuery() )
         {
-            lock.lock();
-            try
-            {
-                if ( !outstandingIterators.isEmpty() )
-                {
-                    LOGGER.warn( () -> "closing outstanding " + outstandingIterators.size() + " iterators" );
-                }
-                for ( final DBIterator iterator : new HashSet<>( outstandingIterators ) )
-                {
-                    iterator.close();
-                }
-            }
-            catch ( final Exception e )
+            if ( resultSet.next() )
             {
-                LOGGER.warn( () -> "error while closing connection: " + e.getMessage() );
+                return resultSet.getInt( 1 ) > 0;
             }
+        }
 
-            try
+        return false;
+    }
+
+    /**
+     * Reads the values for the keys using {@code IN} queries of at most {@link DBConfiguration#getMaxBatchSize()} keys each.
+     * Each list is padded to one of a few fixed lengths by repeating its last key, so only a handful of distinct statements
+     * reach the statement cache.
+     */
+    private Map<String, String> readValuesImpl(
+            final DatabaseConnectionPool.PooledConnection connection,
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
+            throws SQLException
+    {
+        final Map<String, String> results = new HashMap<>( keys.size() );
+        for ( final List<String> chunk : chunk( new LinkedHashSet<>( keys ), dbConfiguration.getMaxBatchSize() ) )
+        {
+            final int paddedSize = paddedInListSize( chunk.size(), dbConfiguration.getMaxBatchSize() );
+            final String placeholders = String.join( ",", Collections.nCopies( paddedSize, "?" ) );
+            final String sqlStatement = "SELECT " + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN
+                    + " FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + " IN (" + placeholders + ")";
+
+            final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+            for ( int i = 0; i < paddedSize; i++ )
             {
-                connection.close();
+                statement.setString( i + 1, chunk.get( Math.min( i, chunk.size() - 1 ) ) );
             }
-            catch ( final SQLException e )
+
+            try ( ResultSet resultSet = statement.executeQuery() )
             {
-                LOGGER.warn( () -> "error while closing connection: " + e.getMessage() );
+                while ( resultSet.next() )
+                {
+                    results.put( resultSet.getString( DatabaseService.KEY_COLUMN ), resultSet.getString( DatabaseService.VALUE_COLUMN ) );
+                }
             }
         }
-        finally
+        return results;
+    }
+
+    private void executeUpdate( final DatabaseConnectionPool.PooledConnection connection, final String sqlStatement, final String... params )
+            throws SQLException
+    {
+        final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+        for ( int i = 0; i < params.length; i++ )
         {
-            lock.unlock();
+            statement.setString( i + 1, params[ i ] );
         }
-
-        LOGGER.trace( () -> "closed accessor #" + accessorNumber );
+        statement.executeUpdate();
     }
 
-    private boolean containsImpl( final DatabaseTable table, final String key )
+    /**
+     * Executes the statement once per parameter row in batches, returning the total of the reported update counts.  Rows
+     * the driver reports only as successful, without a count, are counted as one.
+     */
+    private int executeBatch( final DatabaseConnectionPool.PooledConnection connection, final String sqlStatement, final List<String[]> paramRows )
             throws SQLException
     {
-        final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name()
-                + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
+        if ( paramRows.isEmpty() )
+        {
+            return 0;
+        }
 
-        try ( PreparedStatement selectStatement = connection.prepareStatement( sqlStatement ) )
+        final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+        int updateCount = 0;
+        int batchCount = 0;
+        for ( final String[] params : paramRows )
         {
-            selectStatement.setString( 1, key );
-            selectStatement.setMaxRows( 1 );
+            for ( int i = 0; i < params.length; i++ )
+            {
+                statement.setString( i + 1, params[ i ] );
+            }
+            statement.addBatch();
+            batchCount++;
 
-            try ( ResultSet resultSet = selectStatement.executeQuery() )
+            if ( batchCount >= dbConfiguration.getMaxBatchSize() )
             {
-                if ( resultSet.next() )
-                {
-                    return resultSet.getInt( 1 ) > 0;
-                }
+                updateCount += sumUpdateCounts( statement.executeBatch() );
+                batchCount = 0;
             }
         }
 
-        return false;
+        if ( batchCount > 0 )
+        {
+            updateCount += sumUpdateCounts( statement.executeBatch() );
+        }
+        return updateCount;
     }
 
-    private void executeUpdate( final String sqlStatement, final DatabaseUtil.DebugInfo debugInfo, final String... params )
-            throws DatabaseException
+    private static int sumUpdateCounts( final int[] updateCounts )
     {
-        try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
+        int total = 0;
+        for ( final int updateCount : updateCounts )
         {
-            for ( int i = 0; i < params.length; i++ )
+            if ( updateCount > 0 )
             {
-                statement.setString( i + 1, params[ i ] );
+                total += updateCount;
+            }
+            else if ( updateCount == Statement.SUCCESS_NO_INFO )
+            {
+                total++;
             }
-            statement.executeUpdate();
         }
-        catch ( final SQLException e )
+        return total;
+    }
+
+    /**
+     * The smallest of 1, 4, 16, 64 and so on (capped at the maximum batch size) that holds the key count.
+     */
+    static int paddedInListSize( final int keyCount, final int maxBatchSize )
+    {
+        int size = 1;
+        while ( size < keyCount && size < maxBatchSize )
+        {
+            size = Math.min( size * 4, maxBatchSize );
+        }
+        return Math.max( size, keyCount );
+    }
+
+    private static String insertSql( final DatabaseTable table )
+    {
+        return "INSERT INTO " + table.name()
+                + "(" + DatabaseService.KEY_COLUMN + ", "
+                + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
+    }
+
+    private static String updateSql( final DatabaseTable table )
+    {
+        return "UPDATE " + table.name()
+                + " SET " + DatabaseService.VALUE_COLUMN + "=? WHERE "
+                + DatabaseService.KEY_COLUMN + "=?";
+    }
+
+    private static String deleteSql( final DatabaseTable table )
+    {
+        return "DELETE FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + "=?";
+    }
+
+    private static List<List<String>> chunk( final Collection<String> values, final int chunkSize )
+    {
+        final List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>( chunkSize );
+        for ( final String value : values )
+        {
+            current.add( value );
+            if ( current.size() >= chunkSize )
+            {
+                chunks.add( current );
+                current = new ArrayList<>( chunkSize );
+            }
+        }
+        if ( !current.isEmpty() )
         {
-            processSqlException( debugInfo, e );
+            chunks.add( current );
         }
+        return chunks;
     }
 
     private void preCheck( )
@@ -629,9 +725,17 @@ class DatabaseAccessorImpl implements DatabaseAccessor
     {
         try
         {
-            return connection.isValid( 5000 );
+            final DatabaseConnectionPool.PooledConnection connection = connectionPool.lease();
+            try
+            {
+                return connection.getConnection().isValid( 5 );
+            }
+            finally
+            {
+                connectionPool.release( connection, false );
+            }
         }
-        catch ( final SQLException e )
+        catch ( final DatabaseException | SQLException e )
         {
             LOGGER.error( () -> "error while checking database connection: " + e.getMessage() );
         }
@@ -0,0 +1,386 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.util.java.StatisticAverageBundle;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Bounded pool of JDBC connections.  Each connection is leased exclusively for the duration of a single
+ * accessor operation (one transaction) and keeps its own cache of prepared statements.  Idle connections
+ * are re-validated before being leased if they have not been used within the configured validation interval.
+ */
+class DatabaseConnectionPool
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( DatabaseConnectionPool.class );
+
+    private static final AtomicInteger CONNECTION_COUNTER = new AtomicInteger( 0 );
+
+    private final DBConfiguration dbConfiguration;
+    private final ConnectionFactory connectionFactory;
+    private final Semaphore leasePermits;
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> allConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closed = new AtomicBoolean( false );
+
+    private final StatisticCounterBundle<CounterStat> counterStats = new StatisticCounterBundle<>( CounterStat.class );
+    private final StatisticAverageBundle<AverageStat> averageStats = new StatisticAverageBundle<>( AverageStat.class );
+    private final LongAccumulator maxLeaseWaitMs = new LongAccumulator( Math::max, 0 );
+
+    enum CounterStat
+    {
+        leases,
+        leaseTimeouts,
+        connectionsOpened,
+        connectionsDiscarded,
+        validations,
+        validationFailures,
+        statementCacheHits,
+        statementCacheMisses,
+    }
+
+    enum AverageStat
+    {
+        leaseWaitMs,
+        leaseHoldMs,
+    }
+
+    interface ConnectionFactory
+    {
+        Connection openConnection( ) throws DatabaseException;
+    }
+
+    DatabaseConnectionPool( final DBConfiguration dbConfiguration, final ConnectionFactory connectionFactory )
+    {
+        this.dbConfiguration = dbConfiguration;
+        this.connectionFactory = connectionFactory;
+        this.leasePermits = new Semaphore( Math.max( 1, dbConfiguration.getMaxConnections() ), true );
+    }
+
+    PooledConnection lease( )
+            throws DatabaseException
+    {
+        checkOpen();
+
+        final Instant startTime = Instant.now();
+        try
+        {
+            if ( !leasePermits.tryAcquire( dbConfiguration.getConnectionTimeout(), TimeUnit.MILLISECONDS ) )
+            {
+                counterStats.increment( CounterStat.leaseTimeouts );
+                final String msg = "timed out after " + TimeDuration.compactFromCurrent( startTime ) + " waiting for available database connection";
+                throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, msg ) );
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, "interrupted while waiting for database connection" ) );
+        }
+
+        try
+        {
+            final PooledConnection pooledConnection = acquireConnection();
+            final long waitMs = TimeDuration.fromCurrent( startTime ).asMillis();
+            counterStats.increment( CounterStat.leases );
+            averageStats.update( AverageStat.leaseWaitMs, waitMs );
+            maxLeaseWaitMs.accumulate( waitMs );
+            pooledConnection.leaseTime = Instant.now();
+            return pooledConnection;
+        }
+        catch ( final DatabaseException | RuntimeException e )
+        {
+            leasePermits.release();
+            throw e;
+        }
+    }
+
+    void release( final PooledConnection pooledConnection, final boolean suspect )
+    {
+        try
+        {
+            if ( pooledConnection.leaseTime != null )
+            {
+                averageStats.update( AverageStat.leaseHoldMs, TimeDuration.fromCurrent( pooledConnection.leaseTime ).asMillis() );
+                pooledConnection.leaseTime = null;
+            }
+
+            if ( closed.get() )
+            {
+                discard( pooledConnection );
+                return;
+            }
+
+            pooledConnection.closeUncachedStatements();
+            pooledConnection.lastUsed = Instant.now();
+            pooledConnection.suspect = pooledConnection.suspect || suspect;
+            idleConnections.offerFirst( pooledConnection );
+        }
+        finally
+        {
+            leasePermits.release();
+        }
+    }
+
+    void close( )
+    {
+        closed.set( true );
+
+        for ( final PooledConnection pooledConnection : new ArrayList<>( allConnections ) )
+        {
+            discard( pooledConnection );
+        }
+        idleConnections.clear();
+    }
+
+    Map<String, String> debugStats( )
+    {
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        returnMap.put( "poolOpenConnections", String.valueOf( allConnections.size() ) );
+        returnMap.put( "poolIdleConnections", String.valueOf( idleConnections.size() ) );
+        returnMap.put( "poolMaxConnections", String.valueOf( dbConfiguration.getMaxConnections() ) );
+        returnMap.put( "poolLeaseWaiters", String.valueOf( leasePermits.getQueueLength() ) );
+        returnMap.put( "poolMaxLeaseWaitMs", String.valueOf( maxLeaseWaitMs.get() ) );
+        counterStats.debugStats().forEach( ( key, value ) -> returnMap.put( "pool_" + key, value ) );
+        averageStats.debugStats().forEach( ( key, value ) -> returnMap.put( "pool_avg_" + key, value ) );
+        return Collections.unmodifiableMap( returnMap );
+    }
+
+    private PooledConnection acquireConnection( )
+            throws DatabaseException
+    {
+        PooledConnection pooledConnection = idleConnections.pollFirst();
+        while ( pooledConnection != null )
+        {
+            if ( validateIfNeeded( pooledConnection ) )
+            {
+                return pooledConnection;
+            }
+
+            discard( pooledConnection );
+            pooledConnection = idleConnections.pollFirst();
+        }
+
+        final Connection connection = connectionFactory.openConnection();
+        counterStats.increment( CounterStat.connectionsOpened );
+        final PooledConnection newConnection = new PooledConnection( connection, dbConfiguration.getStatementCacheSize() );
+        allConnections.add( newConnection );
+        return newConnection;
+    }
+
+    private boolean validateIfNeeded( final PooledConnection pooledConnection )
+    {
+        final TimeDuration idleTime = TimeDuration.fromCurrent( pooledConnection.lastUsed );
+        if ( !pooledConnection.suspect && idleTime.isShorterThan( dbConfiguration.getConnectionValidationInterval() ) )
+        {
+            return true;
+        }
+
+        counterStats.increment( CounterStat.validations );
+        try
+        {
+            final int timeoutSeconds = ( int ) Math.max( 1, TimeUnit.MILLISECONDS.toSeconds( dbConfiguration.getConnectionTimeout() ) );
+            if ( !pooledConnection.connection.isClosed() && pooledConnection.connection.isValid( timeoutSeconds ) )
+            {
+                pooledConnection.suspect = false;
+                return true;
+            }
+        }
+        catch ( final SQLException e )
+        {
+            LOGGER.debug( () -> "error while validating connection #" + pooledConnection.connectionNumber + ": " + e.getMessage() );
+        }
+
+        counterStats.increment( CounterStat.validationFailures );
+        LOGGER.debug( () -> "discarding invalid pooled connection #" + pooledConnection.connectionNumber );
+        return false;
+    }
+
+    private void discard( final PooledConnection pooledConnection )
+    {
+        if ( allConnections.remove( pooledConnection ) )
+        {
+            counterStats.increment( CounterStat.connectionsDiscarded );
+            pooledConnection.close();
+        }
+    }
+
+    private void checkOpen( )
+            throws DatabaseException
+    {
+        if ( closed.get() )
+        {
+            throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, "database connection pool is closed" ) );
+        }
+    }
+
+    class PooledConnection
+    {
+        private final int connectionNumber = CONNECTION_COUNTER.getAndIncrement();
+        private final Connection connection;
+        private final StatementCache statementCache;
+
+        /**
+         * Statements prepared while the statement cache is disabled, closed when the connection is released.
+         */
+        private final List<PreparedStatement> uncachedStatements = new ArrayList<>();
+
+        private volatile Instant lastUsed = Instant.now();
+        private volatile Instant leaseTime;
+        private volatile boolean suspect;
+
+        PooledConnection( final Connection connection, final int statementCacheSize )
+        {
+            this.connection = connection;
+            this.statementCache = new StatementCache( statementCacheSize );
+        }
+
+        Connection getConnection( )
+        {
+            return connection;
+        }
+
+        int getConnectionNumber( )
+        {
+            return connectionNumber;
+        }
+
+        /**
+         * Returns a cached prepared statement for the sql text.  The caller must not close the returned statement,
+         * and must close any result sets it opens before the connection is released.  If the statement cache is
+         * disabled, the statement is closed when the connection is released.
+         */
+        PreparedStatement prepareStatement( final String sqlText )
+                throws SQLException
+        {
+            if ( !statementCache.isEnabled() )
+            {
+                counterStats.increment( CounterStat.statementCacheMisses );
+                final PreparedStatement newStatement = connection.prepareStatement( sqlText );
+                uncachedStatements.add( newStatement );
+                return newStatement;
+            }
+
+            final PreparedStatement cachedStatement = statementCache.get( sqlText );
+            if ( cachedStatement != null && !cachedStatement.isClosed() )
+            {
+                counterStats.increment( CounterStat.statementCacheHits );
+                cachedStatement.clearParameters();
+                cachedStatement.clearBatch();
+                return cachedStatement;
+            }
+
+            counterStats.increment( CounterStat.statementCacheMisses );
+            final PreparedStatement newStatement = connection.prepareStatement( sqlText );
+            statementCache.put( sqlText, newStatement );
+            return newStatement;
+        }
+
+        private void closeUncachedStatements( )
+        {
+            uncachedStatements.forEach( DatabaseConnectionPool::closeStatement );
+            uncachedStatements.clear();
+        }
+
+        private void close( )
+        {
+            closeUncachedStatements();
+            final List<PreparedStatement> statements = new ArrayList<>( statementCache.values() );
+            statementCache.clear();
+            statements.forEach( DatabaseConnectionPool::closeStatement );
+
+            try
+            {
+                connection.close();
+            }
+            catch ( final SQLException e )
+            {
+                LOGGER.debug( () -> "error while closing pooled connection #" + connectionNumber + ": " + e.getMessage() );
+            }
+        }
+
+    }
+
+    private static void closeStatement( final PreparedStatement statement )
+    {
+        try
+        {
+            statement.close();
+        }
+        catch ( final SQLException e )
+        {
+            LOGGER.debug( () -> "error while closing cached statement: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Access ordered statement map that closes the least recently used statement once the size limit is exceeded.
+     */
+    private static class StatementCache extends LinkedHashMap<String, PreparedStatement>
+    {
+        private final int maxSize;
+
+        StatementCache( final int maxSize )
+        {
+            super( 16, 0.75f, true );
+            this.maxSize = maxSize;
+        }
+
+        boolean isEnabled( )
+        {
+            return maxSize > 0;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, PreparedStatement> eldest )
+        {
+            if ( size() > maxSize )
+            {
+                closeStatement( eldest.getValue() );
+                return true;
+            }
+            return false;
+        }
+    }
+}
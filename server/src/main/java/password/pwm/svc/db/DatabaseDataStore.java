@@ -26,6 +26,7 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.DataStore;
 import password.pwm.util.java.ClosableIterator;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -86,12 +87,24 @@ public class DatabaseDataStore implements DataStore
         return databaseService.getAccessor().putIfAbsent( table, key, value );
     }
 
+    @Override
+    public void putAll( final Map<String, String> keyValueMap ) throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        databaseService.getAccessor().putAll( table, keyValueMap );
+    }
+
     @Override
     public void remove( final String key ) throws PwmDataStoreException, PwmUnrecoverableException
     {
         databaseService.getAccessor().remove( table, key );
     }
 
+    @Override
+    public int removeAll( final Collection<String> keys ) throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        return databaseService.getAccessor().removeAll( table, keys );
+    }
+
     @Override
     public long size( ) throws PwmDataStoreException, PwmUnrecoverableException
     {
@@ -36,7 +36,6 @@ import password.pwm.svc.PwmService;
 import password.pwm.svc.stats.EpsStatistic;
 import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.PwmScheduler;
-import password.pwm.util.java.AtomicLoopIntIncrementer;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.TimeDuration;
@@ -55,7 +54,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 
@@ -75,8 +73,8 @@ public class DatabaseService extends AbstractPwmService implements PwmService
 
     private ErrorInformation lastError;
 
-    private AtomicLoopIntIncrementer slotIncrementer;
-    private final Map<Integer, DatabaseAccessorImpl> accessors = new ConcurrentHashMap<>();
+    private volatile DatabaseConnectionPool connectionPool;
+    private volatile DatabaseAccessorImpl accessor;
 
     private ExecutorService executorService;
 
@@ -137,8 +135,6 @@ public class DatabaseService extends AbstractPwmService implements PwmService
         try
         {
             LOGGER.debug( () -> "opening connection to database " + this.dbConfiguration.getConnectionString() );
-            slotIncrementer = AtomicLoopIntIncrementer.builder().ceiling( dbConfiguration.getMaxConnections() ).build();
-
             {
                 // make initial connection and establish schema
                 clearCurrentAccessors();
@@ -155,16 +151,11 @@ public class DatabaseService extends AbstractPwmService implements PwmService
                 connection.close();
             }
 
-            accessors.clear();
             {
-                // set up connection pool
+                // set up connection pool, connections are opened on demand up to the configured maximum
                 final boolean traceLogging = getPwmApplication().getConfig().readSettingAsBoolean( PwmSetting.DATABASE_DEBUG_TRACE );
-                for ( int i = 0; i < dbConfiguration.getMaxConnections(); i++ )
-                {
-                    final Connection connection = openConnection( dbConfiguration );
-                    final DatabaseAccessorImpl accessor = new DatabaseAccessorImpl( this, this.dbConfiguration, connection, traceLogging );
-                    accessors.put( i, accessor );
-                }
+                connectionPool = new DatabaseConnectionPool( dbConfiguration, () -> openConnection( dbConfiguration ) );
+                accessor = new DatabaseAccessorImpl( this, this.dbConfiguration, connectionPool, traceLogging );
             }
 
             LOGGER.debug( () -> "successfully connected to remote database (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
@@ -213,11 +204,16 @@ public class DatabaseService extends AbstractPwmService implements PwmService
 
     private void clearCurrentAccessors( )
     {
-        for ( final DatabaseAccessorImpl accessor : accessors.values() )
+        if ( accessor != null )
         {
             accessor.close();
+            accessor = null;
+        }
+        if ( connectionPool != null )
+        {
+            connectionPool.close();
+            connectionPool = null;
         }
-        accessors.clear();
     }
 
     @Override
@@ -321,6 +317,12 @@ public class DatabaseService extends AbstractPwmService implements PwmService
             debugProperties.put( databaseAboutProperty.name(), entry.getValue() );
         }
 
+        final DatabaseConnectionPool currentPool = connectionPool;
+        if ( currentPool != null )
+        {
+            debugProperties.putAll( currentPool.debugStats() );
+        }
+
         if ( status() == STATUS.OPEN )
         {
             return ServiceInfoBean.builder()
@@ -345,7 +347,13 @@ public class DatabaseService extends AbstractPwmService implements PwmService
             throw new PwmUnrecoverableException( makeUninitializedError() );
         }
 
-        return accessors.get( slotIncrementer.next() );
+        final DatabaseAccessor currentAccessor = accessor;
+        if ( currentAccessor == null )
+        {
+            throw new PwmUnrecoverableException( makeUninitializedError() );
+        }
+
+        return currentAccessor;
     }
 
     private Connection openConnection( final DBConfiguration dbConfiguration )
@@ -392,15 +400,15 @@ public class DatabaseService extends AbstractPwmService implements PwmService
         READ,
     }
 
-    void updateStats( final OperationType operationType )
+    void updateStats( final OperationType operationType, final int operationCount )
     {
         if ( operationType == OperationType.READ )
         {
-            StatisticsClient.updateEps( getPwmApplication(), EpsStatistic.DB_READS, 1 );
+            StatisticsClient.updateEps( getPwmApplication(), EpsStatistic.DB_READS, operationCount );
         }
         if ( operationType == OperationType.WRITE )
         {
-            StatisticsClient.updateEps( getPwmApplication(), EpsStatistic.DB_WRITES, 1 );
+            StatisticsClient.updateEps( getPwmApplication(), EpsStatistic.DB_WRITES, operationCount );
         }
     }
 
@@ -443,15 +451,8 @@ public class DatabaseService extends AbstractPwmService implements PwmService
         {
             if ( initialized )
             {
-                boolean valid = true;
-                for ( final DatabaseAccessorImpl databaseAccessor : accessors.values() )
-                {
-                    if ( !databaseAccessor.isValid() )
-                    {
-                        valid = false;
-                        break;
-                    }
-                }
+                final DatabaseAccessorImpl currentAccessor = accessor;
+                final boolean valid = currentAccessor != null && currentAccessor.isConnected();
                 if ( !valid )
                 {
                     LOGGER.warn( () -> "database connection lost; will retry connect periodically" );
@@ -36,6 +36,7 @@ class EmailConnection
     private final AtomicLoopIntIncrementer sentItems = new AtomicLoopIntIncrementer( );
     private final Instant startTime = Instant.now();
     private final String id;
+    private volatile Instant lastUsed = Instant.now();
 
     private static final AtomicLoopIntIncrementer ID_COUNTER = new AtomicLoopIntIncrementer();
 
@@ -64,6 +65,12 @@ class EmailConnection
     public void incrementSentItems()
     {
         sentItems.next();
+        lastUsed = Instant.now();
+    }
+
+    public Instant getLastUsed()
+    {
+        return lastUsed;
     }
 
     public Instant getStartTime()
@@ -118,6 +118,35 @@ public class EmailConnectionPool
         }
     }
 
+    /**
+     * Close a leased connection rather than returning it to the pool, either because it failed or because it has reached its
+     * send item or age limit.
+     */
+    public void retireEmailConnection( final EmailConnection emailConnection )
+    {
+        activeConnectionCounter.decrementAndGet();
+        emailConnection.getEmailServer().getConnectionStats().increment( EmailServer.ServerStat.retiredConnections );
+        emailConnection.close();
+    }
+
+    boolean isConnectionExpired( final EmailConnection emailConnection )
+    {
+        if ( emailConnection.getSentItems() >= settings.getConnectionSendItemLimit() )
+        {
+            LOGGER.trace( () -> "email connection " + emailConnection.getId() + " has sent " + emailConnection.getSentItems() + " and will be retired" );
+            return true;
+        }
+
+        final TimeDuration connectionAge = TimeDuration.fromCurrent( emailConnection.getStartTime() );
+        if ( connectionAge.isLongerThan( settings.getConnectionSendItemDuration() ) )
+        {
+            LOGGER.trace( () -> "email connection " + emailConnection.getId() + " has lived " + connectionAge.asCompactString() + " and will be retired" );
+            return true;
+        }
+
+        return false;
+    }
+
     public void returnEmailConnection( final EmailConnection emailConnection )
     {
         lock.lock();
@@ -141,22 +170,23 @@ public class EmailConnectionPool
 
     private boolean connectionStillValid( final EmailConnection emailConnection )
     {
-        if ( emailConnection.getSentItems() >= settings.getConnectionSendItemLimit() )
+        if ( isConnectionExpired( emailConnection ) )
         {
-            LOGGER.trace( () -> "email connection " + emailConnection.getId() + " has sent " + emailConnection.getSentItems() + " and will be retired" );
             return false;
         }
 
-        final TimeDuration connectionAge = TimeDuration.fromCurrent( emailConnection.getStartTime() );
-        if ( connectionAge.isLongerThan( settings.getConnectionSendItemDuration() ) )
+        // isConnected() issues an smtp NOOP round trip, so skip it for connections that were used recently
+        final TimeDuration idleTime = TimeDuration.fromCurrent( emailConnection.getLastUsed() );
+        final TimeDuration validationInterval = settings.getConnectionValidationInterval();
+        if ( validationInterval != null && idleTime.isShorterThan( validationInterval ) )
         {
-            LOGGER.trace( () -> "email connection " + emailConnection.getId() + " has lived " + connectionAge.asCompactString() + " and will be retired" );
-            return false;
+            return true;
         }
 
         if ( !emailConnection.getTransport().isConnected() )
         {
-            LOGGER.trace( () -> "email connection " + emailConnection.getId() + " is no longer connected " + connectionAge.asCompactString() + " and will be retired" );
+            LOGGER.trace( () -> "email connection " + emailConnection.getId() + " is no longer connected, idle "
+                    + idleTime.asCompactString() + ", and will be retired" );
             return false;
 
         }
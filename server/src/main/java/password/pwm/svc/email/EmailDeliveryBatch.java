@@ -0,0 +1,230 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.email;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import password.pwm.bean.EmailItemBean;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers a sequence of email items over a single leased SMTP session.  The session is rotated when it reaches the configured
+ * send item or age limit, and message bodies shared by more than one message in the batch are rendered only once.
+ *
+ * <p>Instances are not thread safe and are expected to be used by a single worker thread and then closed.</p>
+ */
+class EmailDeliveryBatch implements AutoCloseable
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( EmailDeliveryBatch.class );
+
+    private final EmailConnectionPool connectionPool;
+    private final String subjectEncodingCharset;
+    private final Map<String, Integer> bodyKeyCounts = new HashMap<>();
+    private final Map<String, MimeMessage> renderedBodies = new HashMap<>();
+
+    private EmailConnection emailConnection;
+    private int itemSentMessages;
+
+    EmailDeliveryBatch(
+            final EmailConnectionPool connectionPool,
+            final String subjectEncodingCharset,
+            final Collection<EmailItemBean> batchItems
+    )
+    {
+        this.connectionPool = connectionPool;
+        this.subjectEncodingCharset = subjectEncodingCharset;
+        for ( final EmailItemBean emailItemBean : batchItems )
+        {
+            bodyKeyCounts.merge( bodyKey( emailItemBean ), 1, Integer::sum );
+        }
+    }
+
+    /**
+     * Send all messages for the email item.  A session that fails with an I/O error after having been used before is assumed
+     * to have been closed by the server while idle, and the messages of the item not yet accepted are attempted once more
+     * on a new session.
+     */
+    void send( final EmailItemBean emailItemBean )
+            throws MessagingException, PwmUnrecoverableException
+    {
+        final EmailConnection connection = currentConnection();
+        itemSentMessages = 0;
+        try
+        {
+            sendImpl( emailItemBean, connection );
+        }
+        catch ( final MessagingException e )
+        {
+            final boolean staleSession = connection.getSentItems() > 0
+                    && JavaHelper.extractNestedExceptionType( e, IOException.class ).isPresent();
+            discardConnection();
+
+            if ( !staleSession )
+            {
+                throw e;
+            }
+
+            LOGGER.debug( () -> "email connection " + connection.getId() + " failed after reuse (" + e.getMessage() + "), retrying "
+                    + "with new connection after " + itemSentMessages + " sent messages" );
+            try
+            {
+                sendImpl( emailItemBean, currentConnection() );
+            }
+            catch ( final MessagingException e2 )
+            {
+                discardConnection();
+                throw e2;
+            }
+        }
+    }
+
+    /**
+     * Send the messages of the item, skipping those the transport has already accepted for this item.
+     */
+    private void sendImpl( final EmailItemBean emailItemBean, final EmailConnection connection )
+            throws MessagingException
+    {
+        final Instant startTime = Instant.now();
+        final EmailServer emailServer = connection.getEmailServer();
+        try
+        {
+            final List<Message> messages = renderMessages( emailItemBean, emailServer );
+            for ( final Message message : messages.subList( Math.min( itemSentMessages, messages.size() ), messages.size() ) )
+            {
+                message.saveChanges();
+                connection.getTransport().sendMessage( message, message.getAllRecipients() );
+                itemSentMessages++;
+            }
+        }
+        catch ( final MessagingException e )
+        {
+            emailServer.getConnectionStats().increment( EmailServer.ServerStat.sendFailures );
+            throw e;
+        }
+
+        connection.incrementSentItems();
+        emailServer.getConnectionStats().increment( EmailServer.ServerStat.sendCount );
+        emailServer.getAverageSendTime().update( TimeDuration.fromCurrent( startTime ).asMillis() );
+    }
+
+    List<Message> renderMessages( final EmailItemBean emailItemBean, final EmailServer emailServer )
+            throws MessagingException
+    {
+        final List<Message> messages = new ArrayList<>();
+        if ( emailItemBean.getTo() == null )
+        {
+            return messages;
+        }
+
+        final InternetAddress[] recipients = InternetAddress.parse( emailItemBean.getTo() );
+        final String bodyKey = bodyKey( emailItemBean );
+        final boolean sharedBody = recipients.length > 1 || bodyKeyCounts.getOrDefault( bodyKey, 0 ) > 1;
+
+        for ( final InternetAddress recipient : recipients )
+        {
+            final MimeMessage message;
+            if ( sharedBody )
+            {
+                final String serverBodyKey = emailServer.getId() + '\u0000' + bodyKey;
+                final MimeMessage renderedBody = renderedBodies.get( serverBodyKey );
+                if ( renderedBody == null )
+                {
+                    final MimeMessage newBody = EmailServerUtil.renderMessageBody( emailItemBean, subjectEncodingCharset, emailServer.getSession() );
+                    newBody.saveChanges();
+                    renderedBodies.put( serverBodyKey, newBody );
+                    message = new MimeMessage( newBody );
+                }
+                else
+                {
+                    emailServer.getConnectionStats().increment( EmailServer.ServerStat.reusedRenderedBodies );
+                    message = new MimeMessage( renderedBody );
+                }
+            }
+            else
+            {
+                message = EmailServerUtil.renderMessageBody( emailItemBean, subjectEncodingCharset, emailServer.getSession() );
+            }
+
+            message.setRecipient( Message.RecipientType.TO, recipient );
+            message.setSentDate( new Date() );
+            messages.add( message );
+        }
+
+        return messages;
+    }
+
+    private EmailConnection currentConnection()
+            throws PwmUnrecoverableException
+    {
+        if ( emailConnection != null && connectionPool.isConnectionExpired( emailConnection ) )
+        {
+            discardConnection();
+        }
+
+        if ( emailConnection == null )
+        {
+            emailConnection = connectionPool.getConnection();
+        }
+
+        return emailConnection;
+    }
+
+    private void discardConnection()
+    {
+        if ( emailConnection != null )
+        {
+            connectionPool.retireEmailConnection( emailConnection );
+            emailConnection = null;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if ( emailConnection != null )
+        {
+            connectionPool.returnEmailConnection( emailConnection );
+            emailConnection = null;
+        }
+    }
+
+    private static String bodyKey( final EmailItemBean emailItemBean )
+    {
+        return emailItemBean.getFrom()
+                + '\u0000' + emailItemBean.getSubject()
+                + '\u0000' + emailItemBean.getBodyPlain()
+                + '\u0000' + emailItemBean.getBodyHtml();
+    }
+}
@@ -59,6 +59,8 @@ public class EmailServer
         sendFailures,
         newConnections,
         failedConnections,
+        retiredConnections,
+        reusedRenderedBodies,
     }
 
     public String toDebugString()
@@ -314,10 +314,8 @@ public class EmailServerUtil
     )
             throws MessagingException
     {
-        final List<Message> messages = new ArrayList<>();
-        final boolean hasPlainText = emailItemBean.getBodyPlain() != null && emailItemBean.getBodyPlain().length() > 0;
-        final boolean hasHtml = emailItemBean.getBodyHtml() != null && emailItemBean.getBodyHtml().length() > 0;
         final String subjectEncodingCharset = config.readAppProperty( AppProperty.SMTP_SUBJECT_ENCODING_CHARSET );
+        final List<Message> messages = new ArrayList<>();
 
         // create a new Session object for the messagejavamail
         final String emailTo = emailItemBean.getTo();
@@ -326,47 +324,9 @@ public class EmailServerUtil
             final InternetAddress[] recipients = InternetAddress.parse( emailTo );
             for ( final InternetAddress recipient : recipients )
             {
-                final MimeMessage message = new MimeMessage( emailServer.getSession() );
-
-                final Optional<InternetAddress> fromAddress = makeInternetAddress( emailItemBean.getFrom() );
-                if ( fromAddress.isPresent() )
-                {
-                    message.setFrom( fromAddress.get() );
-                }
-
+                final MimeMessage message = renderMessageBody( emailItemBean, subjectEncodingCharset, emailServer.getSession() );
                 message.setRecipient( Message.RecipientType.TO, recipient );
-                {
-                    if ( subjectEncodingCharset != null && !subjectEncodingCharset.isEmpty() )
-                    {
-                        message.setSubject( emailItemBean.getSubject(), subjectEncodingCharset );
-                    }
-                    else
-                    {
-                        message.setSubject( emailItemBean.getSubject() );
-                    }
-                }
                 message.setSentDate( new Date() );
-
-                if ( hasPlainText && hasHtml )
-                {
-                    final MimeMultipart content = new MimeMultipart( "alternative" );
-                    final MimeBodyPart text = new MimeBodyPart();
-                    final MimeBodyPart html = new MimeBodyPart();
-                    text.setContent( emailItemBean.getBodyPlain(), HttpContentType.plain.getHeaderValueWithEncoding() );
-                    html.setContent( emailItemBean.getBodyHtml(), HttpContentType.html.getHeaderValueWithEncoding() );
-                    content.addBodyPart( text );
-                    content.addBodyPart( html );
-                    message.setContent( content );
-                }
-                else if ( hasPlainText )
-                {
-                    message.setContent( emailItemBean.getBodyPlain(), HttpContentType.plain.getHeaderValueWithEncoding() );
-                }
-                else if ( hasHtml )
-                {
-                    message.setContent( emailItemBean.getBodyHtml(), HttpContentType.html.getHeaderValueWithEncoding() );
-                }
-
                 messages.add( message );
             }
         }
@@ -374,6 +334,59 @@ public class EmailServerUtil
         return messages;
     }
 
+    /**
+     * Creates a message with the sender, subject and body of the email item but without any recipients.
+     */
+    static MimeMessage renderMessageBody(
+            final EmailItemBean emailItemBean,
+            final String subjectEncodingCharset,
+            final jakarta.mail.Session session
+    )
+            throws MessagingException
+    {
+        final boolean hasPlainText = emailItemBean.getBodyPlain() != null && emailItemBean.getBodyPlain().length() > 0;
+        final boolean hasHtml = emailItemBean.getBodyHtml() != null && emailItemBean.getBodyHtml().length() > 0;
+
+        final MimeMessage message = new MimeMessage( session );
+
+        final Optional<InternetAddress> fromAddress = makeInternetAddress( emailItemBean.getFrom() );
+        if ( fromAddress.isPresent() )
+        {
+            message.setFrom( fromAddress.get() );
+        }
+
+        if ( subjectEncodingCharset != null && !subjectEncodingCharset.isEmpty() )
+        {
+            message.setSubject( emailItemBean.getSubject(), subjectEncodingCharset );
+        }
+        else
+        {
+            message.setSubject( emailItemBean.getSubject() );
+        }
+
+        if ( hasPlainText && hasHtml )
+        {
+            final MimeMultipart content = new MimeMultipart( "alternative" );
+            final MimeBodyPart text = new MimeBodyPart();
+            final MimeBodyPart html = new MimeBodyPart();
+            text.setContent( emailItemBean.getBodyPlain(), HttpContentType.plain.getHeaderValueWithEncoding() );
+            html.setContent( emailItemBean.getBodyHtml(), HttpContentType.html.getHeaderValueWithEncoding() );
+            content.addBodyPart( text );
+            content.addBodyPart( html );
+            message.setContent( content );
+        }
+        else if ( hasPlainText )
+        {
+            message.setContent( emailItemBean.getBodyPlain(), HttpContentType.plain.getHeaderValueWithEncoding() );
+        }
+        else if ( hasHtml )
+        {
+            message.setContent( emailItemBean.getBodyHtml(), HttpContentType.html.getHeaderValueWithEncoding() );
+        }
+
+        return message;
+    }
+
     static Transport makeSmtpTransport( final EmailServer server )
             throws MessagingException, PwmUnrecoverableException
     {
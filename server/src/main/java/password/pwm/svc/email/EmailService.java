@@ -23,6 +23,7 @@ package password.pwm.svc.email;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Transport;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmApplicationMode;
 import password.pwm.bean.DomainID;
@@ -124,6 +125,8 @@ public class EmailService extends AbstractPwmService implements PwmService
                 .retryDiscardAge( emailServiceSettings.getQueueDiscardAge() )
                 .retryInterval( emailServiceSettings.getQueueRetryTimeout() )
                 .preThreads( emailServiceSettings.getMaxThreads() )
+                .workerThreads( emailServiceSettings.getWorkerThreads() )
+                .maxBatchSize( emailServiceSettings.getMaxBatchSize() )
                 .build();
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
                 this.getPwmApplication(), this.getPwmApplication().getLocalDB(), LocalDB.DB.EMAIL_QUEUE );
@@ -234,7 +237,30 @@ public class EmailService extends AbstractPwmService implements PwmService
         @Override
         public WorkQueueProcessor.ProcessResult process( final EmailItemBean workItem )
         {
-            return sendItem( workItem );
+            try ( EmailDeliveryBatch deliveryBatch = newDeliveryBatch( Collections.singletonList( workItem ) ) )
+            {
+                return sendItem( workItem, deliveryBatch );
+            }
+        }
+
+        @Override
+        public WorkQueueProcessor.BatchProcessor<EmailItemBean> newBatch( final List<EmailItemBean> workItems )
+        {
+            final EmailDeliveryBatch deliveryBatch = newDeliveryBatch( workItems );
+            return new WorkQueueProcessor.BatchProcessor<>()
+            {
+                @Override
+                public WorkQueueProcessor.ProcessResult process( final EmailItemBean workItem )
+                {
+                    return sendItem( workItem, deliveryBatch );
+                }
+
+                @Override
+                public void close()
+                {
+                    deliveryBatch.close();
+                }
+            };
         }
 
         @Override
@@ -242,6 +268,12 @@ public class EmailService extends AbstractPwmService implements PwmService
         {
             return emailItemBean.toDebugString();
         }
+
+        @Override
+        public String partitionKey( final EmailItemBean emailItemBean )
+        {
+            return emailItemBean.getTo();
+        }
     }
 
     private void logStats()
@@ -466,11 +498,17 @@ public class EmailService extends AbstractPwmService implements PwmService
         }
     }
 
-    private WorkQueueProcessor.ProcessResult sendItem( final EmailItemBean emailItemBean )
+    private EmailDeliveryBatch newDeliveryBatch( final List<EmailItemBean> workItems )
+    {
+        final String subjectEncodingCharset = getPwmApplication().getConfig().readAppProperty( AppProperty.SMTP_SUBJECT_ENCODING_CHARSET );
+        return new EmailDeliveryBatch( connectionPool, subjectEncodingCharset, workItems );
+    }
+
+    private WorkQueueProcessor.ProcessResult sendItem( final EmailItemBean emailItemBean, final EmailDeliveryBatch deliveryBatch )
     {
         try
         {
-            executeEmailSend( emailItemBean );
+            executeEmailSend( emailItemBean, deliveryBatch );
             return WorkQueueProcessor.ProcessResult.SUCCESS;
         }
         catch ( final MessagingException | PwmException e )
@@ -491,32 +529,16 @@ public class EmailService extends AbstractPwmService implements PwmService
     }
 
 
-    private void executeEmailSend( final EmailItemBean emailItemBean )
+    private void executeEmailSend( final EmailItemBean emailItemBean, final EmailDeliveryBatch deliveryBatch )
             throws PwmUnrecoverableException, MessagingException
     {
         final Instant startTime = Instant.now();
-        EmailConnection emailConnection = null;
 
         try
         {
-            emailConnection = connectionPool.getConnection();
+            deliveryBatch.send( emailItemBean );
 
-            final List<Message> messages = EmailServerUtil.convertEmailItemToMessages(
-                    emailItemBean,
-                    this.getPwmApplication().getConfig(),
-                    emailConnection.getEmailServer()
-            );
-
-            for ( final Message message : messages )
-            {
-                message.saveChanges();
-                emailConnection.getTransport().sendMessage( message, message.getAllRecipients() );
-            }
-
-            emailConnection.incrementSentItems();
-            emailConnection.getEmailServer().getConnectionStats().increment( EmailServer.ServerStat.sendCount );
             final TimeDuration sendTime = TimeDuration.fromCurrent( startTime );
-            emailConnection.getEmailServer().getAverageSendTime().update( sendTime.asMillis() );
             lastSendError.set( null );
 
             LOGGER.debug( () -> "sent email: " + emailItemBean.toDebugString(), () -> sendTime );
@@ -542,26 +564,11 @@ public class EmailService extends AbstractPwmService implements PwmService
                 );
             }
 
-            if ( emailConnection != null )
-            {
-                lastSendError.set( errorInformation );
-                emailConnection.getEmailServer().getConnectionStats().increment( EmailServer.ServerStat.sendFailures );
-
-            }
+            lastSendError.set( errorInformation );
             LOGGER.error( errorInformation );
             throw e;
         }
-        finally
-        {
-            if ( emailConnection != null )
-            {
-                connectionPool.returnEmailConnection( emailConnection );
-            }
-        }
 
         statsLogger.conditionallyExecuteTask();
     }
-
-
 }
-
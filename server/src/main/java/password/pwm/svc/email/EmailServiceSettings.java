@@ -44,6 +44,9 @@ public class EmailServiceSettings implements Serializable
     private final TimeDuration queueDiscardAge;
     private final int connectionSendItemLimit;
     private final int maxThreads;
+    private final int workerThreads;
+    private final int maxBatchSize;
+    private final TimeDuration connectionValidationInterval;
     private final int queueMaxItems;
     private final Set<Integer> retryableStatusResponses;
 
@@ -52,6 +55,11 @@ public class EmailServiceSettings implements Serializable
     {
         return builder()
                 .maxThreads( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_MAX_THREADS ) ) )
+                .workerThreads( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_WORKER_THREADS ) ) )
+                .maxBatchSize( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_BATCH_SIZE ) ) )
+                .connectionValidationInterval( TimeDuration.of(
+                        Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_CONNECTION_VALIDATE_IDLE_SECONDS ) ),
+                        TimeDuration.Unit.SECONDS ) )
                 .connectionSendItemDuration( TimeDuration.of(
                         Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_EMAIL_MAX_SECONDS_PER_CONNECTION ) ),
                         TimeDuration.Unit.SECONDS ) )
@@ -52,12 +52,16 @@ import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroRequest;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -149,6 +153,11 @@ public class AuditService extends AbstractPwmService implements PwmService
         return auditVault.readVault();
     }
 
+    public Iterator<AuditRecord> readVault( final AuditVaultQuery query )
+    {
+        return auditVault.readVault( query );
+    }
+
     private void sendAsEmail( final AuditRecord record )
             throws PwmUnrecoverableException
     {
@@ -225,7 +234,7 @@ public class AuditService extends AbstractPwmService implements PwmService
             return Optional.empty();
         }
 
-        return Optional.of( auditVault.oldestRecord() );
+        return Optional.ofNullable( auditVault.oldestRecord() );
     }
 
     public String sizeToDebugString( )
@@ -320,6 +329,12 @@ public class AuditService extends AbstractPwmService implements PwmService
 
     public int outputVaultToCsv( final OutputStream outputStream, final Locale locale, final boolean includeHeader )
             throws IOException
+    {
+        return outputVaultToCsv( outputStream, locale, includeHeader, AuditVaultQuery.all() );
+    }
+
+    public int outputVaultToCsv( final OutputStream outputStream, final Locale locale, final boolean includeHeader, final AuditVaultQuery query )
+            throws IOException
     {
         final AppConfig config = getPwmApplication().getConfig();
 
@@ -348,7 +363,7 @@ public class AuditService extends AbstractPwmService implements PwmService
         }
 
         int counter = 0;
-        for ( final Iterator<AuditRecord> recordIterator = readVault(); recordIterator.hasNext(); )
+        for ( final Iterator<AuditRecord> recordIterator = readVault( query ); recordIterator.hasNext(); )
         {
             final AuditRecord loopRecord = recordIterator.next();
             counter++;
@@ -392,12 +407,38 @@ public class AuditService extends AbstractPwmService implements PwmService
         return counter;
     }
 
+    /**
+     * Write matching records as json lines, one stored record per line.  Records are streamed in their stored form.
+     */
+    public int outputVaultToJson( final OutputStream outputStream, final AuditVaultQuery query )
+            throws IOException
+    {
+        final Writer writer = new BufferedWriter( new OutputStreamWriter( outputStream, PwmConstants.DEFAULT_CHARSET ) );
+
+        int counter = 0;
+        for ( final Iterator<String> recordIterator = auditVault.readVaultJson( query ); recordIterator.hasNext(); )
+        {
+            writer.write( recordIterator.next() );
+            writer.write( '\n' );
+            counter++;
+        }
+        writer.flush();
+
+        return counter;
+    }
+
     @Override
     public ServiceInfoBean serviceInfo( )
     {
+        final Map<String, String> debugProperties = new LinkedHashMap<>( statisticCounterBundle.debugStats() );
+        if ( syslogManager != null )
+        {
+            syslogManager.debugInfo().forEach( ( key, value ) -> debugProperties.put( "syslog." + key, value ) );
+        }
+
         return ServiceInfoBean.builder()
                 .storageMethod( DataStorageMethod.LOCALDB )
-                .debugProperties( statisticCounterBundle.debugStats() )
+                .debugProperties( debugProperties )
                 .build();
     }
 
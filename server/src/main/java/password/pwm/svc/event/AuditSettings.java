@@ -42,17 +42,29 @@ class AuditSettings
     private Set<AuditEvent> permittedEvents;
     private TimeDuration maxRecordAge;
     private long maxRecords;
+    private int vaultSegmentMaxRecords;
+    private TimeDuration vaultSegmentMaxAge;
 
 
     static AuditSettings fromConfig( final AppConfig appConfig )
     {
+        final long maxRecords = appConfig.readSettingAsLong( PwmSetting.EVENTS_AUDIT_MAX_EVENTS );
+
+        // keep segments small relative to the vault so whole segment retirement stays close to the configured maximum
+        final int configuredSegmentRecords = Integer.parseInt( appConfig.readAppProperty( AppProperty.AUDIT_VAULT_SEGMENT_MAX_RECORDS ) );
+        final int segmentMaxRecords = ( int ) Math.max( AuditVaultSegment.BLOCK_SIZE, Math.min( configuredSegmentRecords, maxRecords / 4 ) );
+
         return AuditSettings.builder()
                 .systemEmailAddresses( appConfig.readSettingAsStringArray( PwmSetting.AUDIT_EMAIL_SYSTEM_TO ) )
                 .userEmailAddresses( appConfig.readSettingAsStringArray( PwmSetting.AUDIT_EMAIL_USER_TO ) )
                 .alertFromAddress( appConfig.readAppProperty( AppProperty.AUDIT_EVENTS_EMAILFROM ) )
                 .permittedEvents( figurePermittedEvents( appConfig ) )
                 .maxRecordAge( TimeDuration.of( appConfig.readSettingAsLong( PwmSetting.EVENTS_AUDIT_MAX_AGE ), TimeDuration.Unit.SECONDS ) )
-                .maxRecords( appConfig.readSettingAsLong( PwmSetting.EVENTS_AUDIT_MAX_EVENTS ) )
+                .maxRecords( maxRecords )
+                .vaultSegmentMaxRecords( segmentMaxRecords )
+                .vaultSegmentMaxAge( TimeDuration.of(
+                        Long.parseLong( appConfig.readAppProperty( AppProperty.AUDIT_VAULT_SEGMENT_MAX_AGE_SECONDS ) ),
+                        TimeDuration.Unit.SECONDS ) )
                 .build();
     }
 
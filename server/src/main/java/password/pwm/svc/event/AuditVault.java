@@ -39,7 +39,20 @@ public interface AuditVault
 
     Instant oldestRecord( );
 
-    Iterator<AuditRecord> readVault( );
+    default Iterator<AuditRecord> readVault( )
+    {
+        return readVault( AuditVaultQuery.all() );
+    }
+
+    /**
+     * Matching records, newest first.
+     */
+    Iterator<AuditRecord> readVault( AuditVaultQuery query );
+
+    /**
+     * Matching records in their stored json form, newest first.
+     */
+    Iterator<String> readVaultJson( AuditVaultQuery query );
 
     String sizeToDebugString( );
 
@@ -0,0 +1,127 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import password.pwm.util.java.StringUtil;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Filter applied when reading the audit vault.  Unset fields match any record.
+ */
+@Value
+@Builder
+public class AuditVaultQuery
+{
+    private static final AuditVaultQuery ALL = AuditVaultQuery.builder().build();
+
+    /**
+     * Inclusive lower bound of the record timestamp.
+     */
+    private final Instant startTime;
+
+    /**
+     * Inclusive upper bound of the record timestamp.
+     */
+    private final Instant endTime;
+
+    @Singular
+    private final Set<AuditEvent> eventCodes;
+
+    private final AuditEventType type;
+
+    private final String perpetratorID;
+
+    public static AuditVaultQuery all()
+    {
+        return ALL;
+    }
+
+    public static AuditVaultQuery lastEvents( final AuditEvent auditEvent, final Instant since )
+    {
+        return AuditVaultQuery.builder()
+                .eventCode( auditEvent )
+                .startTime( since )
+                .build();
+    }
+
+    boolean matchesEventCode( final AuditEvent eventCode )
+    {
+        if ( !eventCodes.isEmpty() && !eventCodes.contains( eventCode ) )
+        {
+            return false;
+        }
+        return type == null || ( eventCode != null && eventCode.getType() == type );
+    }
+
+    boolean overlapsTimeRange( final Instant rangeMin, final Instant rangeMax )
+    {
+        if ( startTime != null && rangeMax.isBefore( startTime ) )
+        {
+            return false;
+        }
+        return endTime == null || !rangeMin.isAfter( endTime );
+    }
+
+    boolean containsTimeRange( final Instant rangeMin, final Instant rangeMax )
+    {
+        return ( startTime == null || !rangeMin.isBefore( startTime ) )
+                && ( endTime == null || !rangeMax.isAfter( endTime ) );
+    }
+
+    boolean hasPerpetratorFilter()
+    {
+        return !StringUtil.isEmpty( perpetratorID );
+    }
+
+    boolean matches( final AuditRecord record )
+    {
+        if ( record == null || record.getTimestamp() == null )
+        {
+            return false;
+        }
+
+        if ( !overlapsTimeRange( record.getTimestamp(), record.getTimestamp() ) )
+        {
+            return false;
+        }
+
+        if ( !matchesEventCode( record.getEventCode() ) )
+        {
+            return false;
+        }
+
+        return !hasPerpetratorFilter() || perpetratorID.equalsIgnoreCase( perpetratorOf( record ) );
+    }
+
+    static String perpetratorOf( final AuditRecord record )
+    {
+        if ( record instanceof UserAuditRecord )
+        {
+            return ( ( UserAuditRecord ) record ).getPerpetratorID();
+        }
+        return null;
+    }
+}
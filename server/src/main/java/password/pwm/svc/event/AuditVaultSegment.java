@@ -0,0 +1,335 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import password.pwm.util.java.StringUtil;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Index of one time ordered segment of the audit vault.  Records in a segment are stored under sequential keys, and
+ * every {@link #BLOCK_SIZE} records share a sparse index block holding the timestamp range, the event codes present and
+ * a small bloom filter of perpetrator ids.  Queries consult the blocks to skip records that cannot match.
+ *
+ * <p>Instances are mutated only by the vault while holding its write lock; readers work on {@link #snapshot()} copies.</p>
+ */
+class AuditVaultSegment implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    static final int BLOCK_SIZE = 64;
+
+    private final long id;
+    private final Instant created;
+    private final List<Block> blocks;
+    private int count;
+    private boolean sealed;
+
+    private transient volatile Block summary;
+
+    AuditVaultSegment( final long id, final Instant created )
+    {
+        this( id, created, new ArrayList<>(), 0, false );
+    }
+
+    private AuditVaultSegment( final long id, final Instant created, final List<Block> blocks, final int count, final boolean sealed )
+    {
+        this.id = id;
+        this.created = created;
+        this.blocks = blocks;
+        this.count = count;
+        this.sealed = sealed;
+    }
+
+    long getId()
+    {
+        return id;
+    }
+
+    Instant getCreated()
+    {
+        return created;
+    }
+
+    int getCount()
+    {
+        return count;
+    }
+
+    boolean isSealed()
+    {
+        return sealed;
+    }
+
+    void seal()
+    {
+        sealed = true;
+    }
+
+    List<Block> getBlocks()
+    {
+        return blocks == null ? Collections.emptyList() : Collections.unmodifiableList( blocks );
+    }
+
+    Instant minTimestamp()
+    {
+        Instant returnValue = null;
+        for ( final Block block : getBlocks() )
+        {
+            if ( returnValue == null || block.minTimestamp.isBefore( returnValue ) )
+            {
+                returnValue = block.minTimestamp;
+            }
+        }
+        return returnValue;
+    }
+
+    Instant maxTimestamp()
+    {
+        Instant returnValue = null;
+        for ( final Block block : getBlocks() )
+        {
+            if ( returnValue == null || block.maxTimestamp.isAfter( returnValue ) )
+            {
+                returnValue = block.maxTimestamp;
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * Record the index entry for the record stored at sequence {@link #getCount()}, and return its sequence.
+     */
+    int append( final AuditRecord record )
+    {
+        final int seq = count;
+        if ( seq % BLOCK_SIZE == 0 )
+        {
+            blocks.add( new Block( record.getTimestamp() ) );
+        }
+        blocks.get( blocks.size() - 1 ).add( record );
+        count++;
+        return seq;
+    }
+
+    /**
+     * Return a copy of this segment with the index entry for the record stored at sequence {@link #getCount()}, leaving
+     * this segment unchanged.  Completed blocks are never modified again, so only the last block is copied.
+     */
+    AuditVaultSegment withRecord( final AuditRecord record )
+    {
+        final List<Block> blockCopies = new ArrayList<>( blocks.size() + 1 );
+        blockCopies.addAll( blocks );
+        if ( count % BLOCK_SIZE != 0 )
+        {
+            final int last = blockCopies.size() - 1;
+            blockCopies.set( last, blockCopies.get( last ).copy() );
+        }
+
+        final AuditVaultSegment copy = new AuditVaultSegment( id, created, blockCopies, count, sealed );
+        copy.append( record );
+        return copy;
+    }
+
+    boolean blockComplete()
+    {
+        return count % BLOCK_SIZE == 0;
+    }
+
+    /**
+     * True if some record in the segment may match the query.  The merged summary of a sealed segment is cached, so
+     * skipping a non matching segment costs a single block test.
+     */
+    boolean mayMatch( final AuditVaultQuery query )
+    {
+        final Block segmentSummary = summarize();
+        return segmentSummary != null && segmentSummary.mayMatch( query );
+    }
+
+    private Block summarize()
+    {
+        if ( summary != null )
+        {
+            return summary;
+        }
+
+        Block merged = null;
+        for ( final Block block : getBlocks() )
+        {
+            if ( merged == null )
+            {
+                merged = block.copy();
+            }
+            else
+            {
+                merged.merge( block );
+            }
+        }
+
+        if ( sealed )
+        {
+            summary = merged;
+        }
+        return merged;
+    }
+
+    AuditVaultSegment snapshot()
+    {
+        if ( sealed )
+        {
+            return this;
+        }
+
+        final List<Block> blockCopies = new ArrayList<>( blocks.size() );
+        for ( final Block block : blocks )
+        {
+            blockCopies.add( block.copy() );
+        }
+        return new AuditVaultSegment( id, created, blockCopies, count, false );
+    }
+
+    static class Block implements Serializable
+    {
+        private static final int FILTER_WORDS = 8;
+        private static final int FILTER_BITS = FILTER_WORDS * Long.SIZE;
+
+        private Instant minTimestamp;
+        private Instant maxTimestamp;
+        private final Set<AuditEvent> eventCodes;
+        private final long[] perpetratorFilter;
+
+        Block( final Instant timestamp )
+        {
+            this( timestamp, timestamp, new LinkedHashSet<>(), new long[FILTER_WORDS] );
+        }
+
+        private Block( final Instant minTimestamp, final Instant maxTimestamp, final Set<AuditEvent> eventCodes, final long[] perpetratorFilter )
+        {
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.eventCodes = eventCodes;
+            this.perpetratorFilter = perpetratorFilter;
+        }
+
+        private void add( final AuditRecord record )
+        {
+            final Instant timestamp = record.getTimestamp();
+            if ( timestamp.isBefore( minTimestamp ) )
+            {
+                minTimestamp = timestamp;
+            }
+            if ( timestamp.isAfter( maxTimestamp ) )
+            {
+                maxTimestamp = timestamp;
+            }
+            eventCodes.add( record.getEventCode() );
+
+            final String perpetratorID = AuditVaultQuery.perpetratorOf( record );
+            if ( !StringUtil.isEmpty( perpetratorID ) )
+            {
+                final int hash = filterHash( perpetratorID );
+                setBit( hash );
+                setBit( hash >>> 16 );
+            }
+        }
+
+        private void merge( final Block other )
+        {
+            if ( other.minTimestamp.isBefore( minTimestamp ) )
+            {
+                minTimestamp = other.minTimestamp;
+            }
+            if ( other.maxTimestamp.isAfter( maxTimestamp ) )
+            {
+                maxTimestamp = other.maxTimestamp;
+            }
+            eventCodes.addAll( other.eventCodes );
+            for ( int i = 0; i < FILTER_WORDS; i++ )
+            {
+                perpetratorFilter[i] |= other.perpetratorFilter[i];
+            }
+        }
+
+        private Block copy()
+        {
+            return new Block( minTimestamp, maxTimestamp, new LinkedHashSet<>( eventCodes ), perpetratorFilter.clone() );
+        }
+
+        /**
+         * True if some record in the block may match the query.
+         */
+        boolean mayMatch( final AuditVaultQuery query )
+        {
+            if ( !query.overlapsTimeRange( minTimestamp, maxTimestamp ) )
+            {
+                return false;
+            }
+
+            if ( eventCodes.stream().noneMatch( query::matchesEventCode ) )
+            {
+                return false;
+            }
+
+            if ( query.hasPerpetratorFilter() )
+            {
+                final int hash = filterHash( query.getPerpetratorID() );
+                return testBit( hash ) && testBit( hash >>> 16 );
+            }
+
+            return true;
+        }
+
+        /**
+         * True if every record in the block matches the query, so records can be returned without being examined.
+         */
+        boolean fullyMatches( final AuditVaultQuery query )
+        {
+            return !query.hasPerpetratorFilter()
+                    && query.containsTimeRange( minTimestamp, maxTimestamp )
+                    && eventCodes.stream().allMatch( query::matchesEventCode );
+        }
+
+        private static int filterHash( final String perpetratorID )
+        {
+            final int hash = perpetratorID.toLowerCase( Locale.ROOT ).hashCode();
+            return hash ^ ( hash * 0x9E3779B1 );
+        }
+
+        private void setBit( final int hash )
+        {
+            final int bit = Math.floorMod( hash, FILTER_BITS );
+            perpetratorFilter[bit / Long.SIZE] |= 1L << ( bit % Long.SIZE );
+        }
+
+        private boolean testBit( final int hash )
+        {
+            final int bit = Math.floorMod( hash, FILTER_BITS );
+            return ( perpetratorFilter[bit / Long.SIZE] & ( 1L << ( bit % Long.SIZE ) ) ) != 0;
+        }
+    }
+}
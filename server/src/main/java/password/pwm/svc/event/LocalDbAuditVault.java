@@ -22,9 +22,9 @@ package password.pwm.svc.event;
 
 import password.pwm.PwmApplication;
 import password.pwm.error.PwmException;
+import password.pwm.error.PwmOperationalException;
 import password.pwm.svc.PwmService;
 import password.pwm.util.PwmScheduler;
-import password.pwm.util.TransactionSizeCalculator;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.Percent;
 import password.pwm.util.java.TimeDuration;
@@ -34,16 +34,54 @@ import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Audit vault stored in the LocalDB as a sequence of time ordered segments.  Each segment has a sparse index (see
+ * {@link AuditVaultSegment}) that is held in memory, so range and filter queries only read records from index blocks
+ * that may match.  Retention is applied by retiring whole segments.
+ *
+ * <p>Records from the queue based vault used by earlier versions are migrated in the background into segments ordered
+ * before those holding records added since the upgrade.</p>
+ */
 public class LocalDbAuditVault implements AuditVault
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( LocalDbAuditVault.class );
 
-    private LocalDBStoredQueue auditDB;
+    private static final LocalDB.DB VAULT_DB = LocalDB.DB.AUDIT_VAULT;
+    private static final LocalDB.DB LEGACY_DB = LocalDB.DB.AUDIT_EVENTS;
+    private static final String MANIFEST_KEY = "manifest";
+    private static final int MIGRATION_CHUNK_SIZE = 500;
+
+    /**
+     * Segments created by the vault are numbered from this id, records migrated from the legacy queue are placed in
+     * segments numbered up from {@link #MIGRATED_SEGMENT_ID_BASE} so they are ordered before any record added since.
+     */
+    private static final long FIRST_SEGMENT_ID = 1;
+    private static final long MIGRATED_SEGMENT_ID_BASE = -1_000_000_000L;
+
+    private final NavigableMap<Long, AuditVaultSegment> segments = new TreeMap<>();
+    private final Lock writeLock = new ReentrantLock();
+    private final AtomicBoolean trimPending = new AtomicBoolean();
+
+    private PwmApplication pwmApplication;
+    private LocalDB localDB;
     private AuditSettings settings;
-    private Instant oldestRecord;
+    private final AtomicLong recordCount = new AtomicLong();
+    private long nextSegmentId = FIRST_SEGMENT_ID;
 
     private ExecutorService executorService;
     private volatile PwmService.STATUS status = PwmService.STATUS.CLOSED;
@@ -63,14 +101,21 @@ public class LocalDbAuditVault implements AuditVault
     )
             throws PwmException
     {
+        this.pwmApplication = pwmApplication;
+        this.localDB = localDB;
         this.settings = settings;
-        this.auditDB = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, localDB, LocalDB.DB.AUDIT_EVENTS );
 
-        readOldestRecord();
+        loadSegments();
 
         executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
 
         status = PwmService.STATUS.OPEN;
+
+        if ( localDB.size( LEGACY_DB ) > 0 )
+        {
+            pwmApplication.getPwmScheduler().scheduleJob( new LegacyQueueMigrator(), executorService, TimeDuration.SECONDS_10 );
+        }
+
         final TimeDuration jobFrequency = TimeDuration.of( 10, TimeDuration.Unit.MINUTES );
         pwmApplication.getPwmScheduler().scheduleFixedRateJob( new TrimmerThread(), executorService, TimeDuration.SECONDS_10, jobFrequency );
     }
@@ -78,8 +123,25 @@ public class LocalDbAuditVault implements AuditVault
     @Override
     public void close( )
     {
-        executorService.shutdown();
         status = PwmService.STATUS.CLOSED;
+        executorService.shutdown();
+
+        writeLock.lock();
+        try
+        {
+            if ( !segments.isEmpty() && localDB.status() == LocalDB.Status.OPEN )
+            {
+                writeIndex( segments.lastEntry().getValue() );
+            }
+        }
+        catch ( final LocalDBException e )
+        {
+            LOGGER.error( () -> "error writing audit vault index during close: " + e.getMessage() );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
     }
 
     public PwmService.STATUS getStatus( )
@@ -90,48 +152,41 @@ public class LocalDbAuditVault implements AuditVault
     @Override
     public Instant oldestRecord( )
     {
-        return oldestRecord;
+        final List<AuditVaultSegment> snapshot = snapshotSegments();
+        return snapshot.isEmpty() ? null : snapshot.get( snapshot.size() - 1 ).minTimestamp();
     }
 
     @Override
     public int size( )
     {
-        return auditDB.size();
+        return ( int ) Math.min( recordCount.get(), Integer.MAX_VALUE );
     }
 
     @Override
-    public Iterator<AuditRecord> readVault( )
-    {
-        return new IteratorWrapper( auditDB.descendingIterator() );
-    }
-
-    private static class IteratorWrapper implements Iterator<AuditRecord>
+    public Iterator<AuditRecord> readVault( final AuditVaultQuery query )
     {
-        private final Iterator<String> innerIter;
-
-        private IteratorWrapper( final Iterator<String> innerIter )
-        {
-            this.innerIter = innerIter;
-        }
-
-        @Override
-        public boolean hasNext( )
+        final VaultIterator vaultIterator = new VaultIterator( query );
+        return new Iterator<AuditRecord>()
         {
-            return innerIter.hasNext();
-        }
+            @Override
+            public boolean hasNext()
+            {
+                return vaultIterator.hasNext();
+            }
 
-        @Override
-        public AuditRecord next( )
-        {
-            final String value = innerIter.next();
-            return deSerializeRecord( value );
-        }
+            @Override
+            public AuditRecord next()
+            {
+                vaultIterator.next();
+                return vaultIterator.currentRecord();
+            }
+        };
+    }
 
-        @Override
-        public void remove( )
-        {
-            throw new UnsupportedOperationException();
-        }
+    @Override
+    public Iterator<String> readVaultJson( final AuditVaultQuery query )
+    {
+        return new VaultIterator( query );
     }
 
     @Override
@@ -161,96 +216,564 @@ public class LocalDbAuditVault implements AuditVault
 
     @Override
     public void add( final AuditRecord record )
+            throws PwmOperationalException
     {
-        if ( record == null )
+        if ( record == null || record.getTimestamp() == null )
         {
             return;
         }
 
         final String jsonRecord = JsonUtil.serialize( record );
-        auditDB.addLast( jsonRecord );
 
-        if ( auditDB.size() > settings.getMaxRecords() )
+        writeLock.lock();
+        try
+        {
+            // the in memory index is only replaced once the record is stored
+            final AuditVaultSegment segment = writableSegment().withRecord( record );
+            final int seq = segment.getCount() - 1;
+
+            final Map<String, String> writes = new LinkedHashMap<>();
+            writes.put( recordKey( segment.getId(), seq ), jsonRecord );
+            if ( segment.blockComplete() )
+            {
+                writes.put( indexKey( segment.getId() ), JsonUtil.serialize( segment ) );
+            }
+            localDB.putAll( VAULT_DB, writes );
+            segments.put( segment.getId(), segment );
+            recordCount.incrementAndGet();
+        }
+        catch ( final LocalDBException e )
+        {
+            throw new PwmOperationalException( e.getErrorInformation() );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        if ( recordCount.get() > settings.getMaxRecords() + settings.getVaultSegmentMaxRecords()
+                && status == PwmService.STATUS.OPEN
+                && trimPending.compareAndSet( false, true ) )
         {
-            removeRecords( 1 );
+            executorService.execute( new TrimmerThread() );
         }
     }
 
-    private void readOldestRecord( )
+    /**
+     * Return the open segment, sealing it and starting a new one if it has reached its size or age limit.  Must be
+     * called while holding the write lock.
+     */
+    private AuditVaultSegment writableSegment( )
+            throws LocalDBException
     {
-        if ( auditDB != null && !auditDB.isEmpty() )
+        final Map.Entry<Long, AuditVaultSegment> lastEntry = segments.lastEntry();
+        final AuditVaultSegment current = lastEntry == null || lastEntry.getKey() < FIRST_SEGMENT_ID ? null : lastEntry.getValue();
+        if ( current != null && !current.isSealed() )
         {
-            final String stringFirstRecord = auditDB.getFirst();
-            final AuditRecordData firstRecord = JsonUtil.deserialize( stringFirstRecord, AuditRecordData.class );
-            oldestRecord = firstRecord.getTimestamp();
+            if ( current.getCount() < settings.getVaultSegmentMaxRecords()
+                    && TimeDuration.fromCurrent( current.getCreated() ).isShorterThan( settings.getVaultSegmentMaxAge() ) )
+            {
+                return current;
+            }
+            sealSegment( current );
         }
+
+        final long nextId = nextSegmentId++;
+        final AuditVaultSegment newSegment = new AuditVaultSegment( nextId, Instant.now() );
+        writeIndex( newSegment );
+        segments.put( nextId, newSegment );
+        writeManifest();
+        return newSegment;
     }
 
-    private void removeRecords( final int count )
+    private void sealSegment( final AuditVaultSegment segment )
+            throws LocalDBException
     {
-        auditDB.removeFirst( count );
-        readOldestRecord();
+        final AuditVaultSegment sealedSegment = segment.snapshot();
+        sealedSegment.seal();
+        writeIndex( sealedSegment );
+        segments.put( sealedSegment.getId(), sealedSegment );
     }
 
-    private class TrimmerThread implements Runnable
+    private void writeIndex( final AuditVaultSegment segment )
+            throws LocalDBException
     {
+        localDB.put( VAULT_DB, indexKey( segment.getId() ), JsonUtil.serialize( segment ) );
+    }
 
-        // keep transaction duration around 100ms if possible.
-        final TransactionSizeCalculator transactionSizeCalculator = new TransactionSizeCalculator(
-                TransactionSizeCalculator.Settings.builder()
-                        .durationGoal( TimeDuration.of( 101, TimeDuration.Unit.MILLISECONDS ) )
-                        .maxTransactions( 5003 )
-                        .minTransactions( 3 )
-                        .build()
-        );
+    private void writeManifest( )
+            throws LocalDBException
+    {
+        final List<String> ids = new ArrayList<>( segments.size() );
+        for ( final Long id : segments.keySet() )
+        {
+            ids.add( String.valueOf( id ) );
+        }
+        localDB.put( VAULT_DB, MANIFEST_KEY, JsonUtil.serializeCollection( ids ) );
+    }
+
+    private void loadSegments( )
+            throws LocalDBException
+    {
+        final Optional<String> manifest = localDB.get( VAULT_DB, MANIFEST_KEY );
+        if ( manifest.isEmpty() )
+        {
+            return;
+        }
+
+        boolean manifestChanged = false;
+        for ( final String idString : JsonUtil.deserializeStringList( manifest.get() ) )
+        {
+            final long id = Long.parseLong( idString );
+            final Optional<String> indexJson = localDB.get( VAULT_DB, indexKey( id ) );
+            final AuditVaultSegment segment = indexJson.isPresent()
+                    ? JsonUtil.deserialize( indexJson.get(), AuditVaultSegment.class )
+                    : null;
+            if ( segment == null )
+            {
+                LOGGER.warn( () -> "audit vault segment " + id + " is missing its index and will be ignored" );
+                manifestChanged = true;
+            }
+            else
+            {
+                segments.put( id, segment );
+            }
+        }
+
+        if ( !segments.isEmpty() )
+        {
+            nextSegmentId = Math.max( FIRST_SEGMENT_ID, segments.lastKey() + 1 );
+            recoverSegmentTail( segments.lastEntry().getValue() );
+        }
+
+        if ( manifestChanged )
+        {
+            writeManifest();
+        }
+
+        long count = 0;
+        for ( final AuditVaultSegment segment : segments.values() )
+        {
+            count += segment.getCount();
+        }
+        recordCount.set( count );
+
+        final long finalCount = count;
+        LOGGER.debug( () -> "loaded audit vault index with " + segments.size() + " segments and " + finalCount + " records" );
+    }
+
+    /**
+     * The index of the open segment is only written as each block completes, so records written after the last index
+     * write are found by probing the following sequence keys.
+     */
+    private void recoverSegmentTail( final AuditVaultSegment segment )
+            throws LocalDBException
+    {
+        if ( segment.isSealed() )
+        {
+            return;
+        }
+
+        final int indexedCount = segment.getCount();
+        for ( Optional<String> value = localDB.get( VAULT_DB, recordKey( segment.getId(), segment.getCount() ) );
+              value.isPresent();
+              value = localDB.get( VAULT_DB, recordKey( segment.getId(), segment.getCount() ) ) )
+        {
+            final AuditRecord record = deSerializeRecord( value.get() );
+            if ( record == null || record.getTimestamp() == null )
+            {
+                break;
+            }
+            segment.append( record );
+        }
+
+        if ( segment.getCount() > indexedCount )
+        {
+            writeIndex( segment );
+            LOGGER.debug( () -> "recovered " + ( segment.getCount() - indexedCount ) + " unindexed records in audit vault segment " + segment.getId() );
+        }
+    }
+
+    private void retireSegment( final AuditVaultSegment segment )
+            throws LocalDBException
+    {
+        final List<String> keys = new ArrayList<>( segment.getCount() + 1 );
+        for ( int seq = 0; seq < segment.getCount(); seq++ )
+        {
+            keys.add( recordKey( segment.getId(), seq ) );
+        }
+        keys.add( indexKey( segment.getId() ) );
+
+        // records are removed before the manifest is updated, an interrupted retirement is repeated by the next trim
+        localDB.removeAll( VAULT_DB, keys );
+        segments.remove( segment.getId() );
+        recordCount.addAndGet( -segment.getCount() );
+        writeManifest();
+    }
+
+    /**
+     * Segments ordered newest first.
+     */
+    private List<AuditVaultSegment> snapshotSegments( )
+    {
+        writeLock.lock();
+        try
+        {
+            final List<AuditVaultSegment> snapshot = new ArrayList<>( segments.size() );
+            for ( final AuditVaultSegment segment : segments.descendingMap().values() )
+            {
+                snapshot.add( segment.snapshot() );
+            }
+            return snapshot;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private static String indexKey( final long segmentId )
+    {
+        return "index-" + segmentId;
+    }
+
+    private static String recordKey( final long segmentId, final int seq )
+    {
+        return "record-" + segmentId + "-" + seq;
+    }
+
+    /**
+     * Iterates the stored json form of matching records, newest first.  Records in index blocks that wholly match the
+     * query are returned without being deserialized.
+     */
+    private class VaultIterator implements Iterator<String>
+    {
+        private final AuditVaultQuery query;
+        private final Iterator<AuditVaultSegment> segmentIterator;
+
+        private AuditVaultSegment segment;
+        private int blockIndex;
+        private int blockStartSeq;
+        private int nextSeq = -1;
+        private boolean blockFullyMatches;
+
+        private String nextJson;
+        private AuditRecord nextRecord;
+        private String currentJson;
+        private AuditRecord currentRecord;
+
+        VaultIterator( final AuditVaultQuery query )
+        {
+            this.query = query == null ? AuditVaultQuery.all() : query;
+            this.segmentIterator = snapshotSegments().iterator();
+        }
 
         @Override
-        public void run( )
+        public boolean hasNext( )
+        {
+            if ( nextJson == null )
+            {
+                advance();
+            }
+            return nextJson != null;
+        }
+
+        @Override
+        public String next( )
         {
-            long startTime = System.currentTimeMillis();
-            while ( trim( transactionSizeCalculator.getTransactionSize() )
-                    && status == PwmService.STATUS.OPEN
-                    )
+            if ( !hasNext() )
             {
-                final long executeTime = System.currentTimeMillis() - startTime;
-                transactionSizeCalculator.recordLastTransactionDuration( executeTime );
-                transactionSizeCalculator.pause();
-                startTime = System.currentTimeMillis();
+                throw new NoSuchElementException();
             }
+            currentJson = nextJson;
+            currentRecord = nextRecord;
+            nextJson = null;
+            nextRecord = null;
+            return currentJson;
+        }
+
+        AuditRecord currentRecord( )
+        {
+            return currentRecord != null ? currentRecord : deSerializeRecord( currentJson );
         }
 
-        private boolean trim( final int maxRemovals )
+        private void advance( )
         {
-            if ( auditDB.isEmpty() )
+            while ( true )
             {
+                if ( segment != null && nextSeq >= blockStartSeq )
+                {
+                    if ( readRecord( nextSeq-- ) )
+                    {
+                        return;
+                    }
+                }
+                else if ( segment != null && blockIndex > 0 )
+                {
+                    startBlock( blockIndex - 1 );
+                }
+                else if ( segmentIterator.hasNext() )
+                {
+                    final AuditVaultSegment nextSegment = segmentIterator.next();
+                    if ( nextSegment.mayMatch( query ) )
+                    {
+                        segment = nextSegment;
+                        blockIndex = segment.getBlocks().size();
+                        nextSeq = -1;
+                        blockStartSeq = 0;
+                    }
+                }
+                else
+                {
+                    return;
+                }
+            }
+        }
+
+        private void startBlock( final int index )
+        {
+            blockIndex = index;
+            final AuditVaultSegment.Block block = segment.getBlocks().get( index );
+            blockStartSeq = index * AuditVaultSegment.BLOCK_SIZE;
+            if ( block.mayMatch( query ) )
+            {
+                nextSeq = Math.min( segment.getCount(), blockStartSeq + AuditVaultSegment.BLOCK_SIZE ) - 1;
+                blockFullyMatches = block.fullyMatches( query );
+            }
+            else
+            {
+                nextSeq = blockStartSeq - 1;
+            }
+        }
+
+        private boolean readRecord( final int seq )
+        {
+            final Optional<String> value;
+            try
+            {
+                value = localDB.get( VAULT_DB, recordKey( segment.getId(), seq ) );
+            }
+            catch ( final LocalDBException e )
+            {
+                throw new IllegalStateException( "error reading audit vault: " + e.getMessage(), e );
+            }
+
+            if ( value.isEmpty() )
+            {
+                // segment retired since the iterator was created
                 return false;
             }
 
-            if ( auditDB.size() > settings.getMaxRecords() + maxRemovals )
+            if ( blockFullyMatches )
             {
-                removeRecords( maxRemovals );
+                nextJson = value.get();
                 return true;
             }
 
-            int workActions = 0;
-            while ( oldestRecord != null
-                    && workActions < maxRemovals
-                    && !auditDB.isEmpty()
-                    && status == PwmService.STATUS.OPEN
-                    )
+            final AuditRecord record = deSerializeRecord( value.get() );
+            if ( query.matches( record ) )
             {
-                if ( TimeDuration.fromCurrent( oldestRecord ).isLongerThan( settings.getMaxRecordAge() ) )
+                nextJson = value.get();
+                nextRecord = record;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    class LegacyQueueMigrator implements Runnable
+    {
+        @Override
+        public void run( )
+        {
+            try
+            {
+                final LocalDBStoredQueue legacyQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, localDB, LEGACY_DB );
+                final int totalRecords = legacyQueue.size();
+                LOGGER.info( () -> "migrating " + totalRecords + " audit records to segmented audit vault" );
+
+                while ( !legacyQueue.isEmpty() && status == PwmService.STATUS.OPEN )
                 {
-                    removeRecords( 1 );
-                    workActions++;
+                    final List<String> chunk = new ArrayList<>( MIGRATION_CHUNK_SIZE );
+                    for ( final Iterator<String> iterator = legacyQueue.iterator(); iterator.hasNext() && chunk.size() < MIGRATION_CHUNK_SIZE; )
+                    {
+                        chunk.add( iterator.next() );
+                    }
+
+                    final List<AuditRecord> records = new ArrayList<>( chunk.size() );
+                    for ( final String jsonRecord : chunk )
+                    {
+                        final AuditRecord record = deSerializeRecord( jsonRecord );
+                        if ( record != null && record.getTimestamp() != null )
+                        {
+                            records.add( record );
+                        }
+                    }
+                    appendMigrated( records );
+                    legacyQueue.removeFirst( chunk.size() );
                 }
-                else
+
+                if ( legacyQueue.isEmpty() )
+                {
+                    sealMigrated();
+                    // also clears the queue position keys, so the migration is not scheduled again
+                    localDB.truncate( LEGACY_DB );
+                    LOGGER.info( () -> "completed migration of audit records to segmented audit vault" );
+                }
+            }
+            catch ( final PwmException e )
+            {
+                LOGGER.error( () -> "error migrating audit records to segmented audit vault: " + e.getMessage() );
+            }
+        }
+
+        /**
+         * Append records, oldest first, to the migrated segments.  The legacy queue only holds records written before
+         * the vault was first opened, so they are stored in segments ordered before all other segments.
+         */
+        private void appendMigrated( final List<AuditRecord> records )
+                throws LocalDBException
+        {
+            if ( records.isEmpty() )
+            {
+                return;
+            }
+
+            writeLock.lock();
+            try
+            {
+                final Map<String, String> writes = new LinkedHashMap<>();
+                final List<AuditVaultSegment> updatedSegments = new ArrayList<>();
+                AuditVaultSegment segment = migrationSegment();
+
+                for ( final AuditRecord record : records )
+                {
+                    if ( segment.getCount() >= settings.getVaultSegmentMaxRecords() )
+                    {
+                        segment.seal();
+                        writes.put( indexKey( segment.getId() ), JsonUtil.serialize( segment ) );
+                        updatedSegments.add( segment );
+                        segment = new AuditVaultSegment( segment.getId() + 1, Instant.now() );
+                    }
+                    final int seq = segment.append( record );
+                    writes.put( recordKey( segment.getId(), seq ), JsonUtil.serialize( record ) );
+                }
+                writes.put( indexKey( segment.getId() ), JsonUtil.serialize( segment ) );
+                updatedSegments.add( segment );
+
+                localDB.putAll( VAULT_DB, writes );
+
+                final boolean newSegments = updatedSegments.stream().anyMatch( updated -> !segments.containsKey( updated.getId() ) );
+                for ( final AuditVaultSegment updated : updatedSegments )
+                {
+                    segments.put( updated.getId(), updated );
+                }
+                recordCount.addAndGet( records.size() );
+                if ( newSegments )
                 {
-                    break;
+                    writeManifest();
                 }
             }
+            finally
+            {
+                writeLock.unlock();
+            }
+        }
+
+        /**
+         * Return a copy of the newest migrated segment if it can receive records, otherwise a new segment following it.
+         */
+        private AuditVaultSegment migrationSegment( )
+        {
+            final Map.Entry<Long, AuditVaultSegment> entry = segments.lowerEntry( FIRST_SEGMENT_ID );
+            if ( entry == null )
+            {
+                return new AuditVaultSegment( MIGRATED_SEGMENT_ID_BASE, Instant.now() );
+            }
+
+            final AuditVaultSegment newest = entry.getValue();
+            return newest.isSealed()
+                    ? new AuditVaultSegment( newest.getId() + 1, Instant.now() )
+                    : newest.snapshot();
+        }
 
-            return workActions > 0;
+        private void sealMigrated( )
+                throws LocalDBException
+        {
+            writeLock.lock();
+            try
+            {
+                final Map.Entry<Long, AuditVaultSegment> entry = segments.lowerEntry( FIRST_SEGMENT_ID );
+                if ( entry != null && !entry.getValue().isSealed() )
+                {
+                    sealSegment( entry.getValue() );
+                }
+            }
+            finally
+            {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    class TrimmerThread implements Runnable
+    {
+        @Override
+        public void run( )
+        {
+            trimPending.set( false );
+            try
+            {
+                while ( status == PwmService.STATUS.OPEN && trimOldestSegment() )
+                {
+                    LOGGER.trace( () -> "retired oldest audit vault segment, " + recordCount.get() + " records remain" );
+                }
+            }
+            catch ( final LocalDBException e )
+            {
+                LOGGER.error( () -> "error trimming audit vault: " + e.getMessage() );
+            }
+        }
+
+        private boolean trimOldestSegment( )
+                throws LocalDBException
+        {
+            writeLock.lock();
+            try
+            {
+                if ( segments.isEmpty() )
+                {
+                    return false;
+                }
+
+                final AuditVaultSegment oldest = segments.firstEntry().getValue();
+                final Instant newestInSegment = oldest.maxTimestamp();
+                final boolean overCount = recordCount.get() > settings.getMaxRecords();
+                final boolean overAge = newestInSegment != null
+                        && TimeDuration.fromCurrent( newestInSegment ).isLongerThan( settings.getMaxRecordAge() );
+
+                if ( !overCount && !overAge )
+                {
+                    return false;
+                }
+
+                if ( !oldest.isSealed() )
+                {
+                    // the open segment is only retired once it can no longer receive records
+                    if ( !overAge )
+                    {
+                        return false;
+                    }
+                    oldest.seal();
+                }
+
+                retireSegment( oldest );
+                return true;
+            }
+            finally
+            {
+                writeLock.unlock();
+            }
         }
     }
 }
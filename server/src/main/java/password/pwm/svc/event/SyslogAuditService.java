@@ -23,18 +23,6 @@ package password.pwm.svc.event;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-import org.graylog2.syslog4j.SyslogIF;
-import org.graylog2.syslog4j.impl.AbstractSyslogConfigIF;
-import org.graylog2.syslog4j.impl.AbstractSyslogWriter;
-import org.graylog2.syslog4j.impl.backlog.NullSyslogBackLogHandler;
-import org.graylog2.syslog4j.impl.net.AbstractNetSyslog;
-import org.graylog2.syslog4j.impl.net.tcp.TCPNetSyslog;
-import org.graylog2.syslog4j.impl.net.tcp.TCPNetSyslogConfig;
-import org.graylog2.syslog4j.impl.net.tcp.ssl.SSLTCPNetSyslog;
-import org.graylog2.syslog4j.impl.net.tcp.ssl.SSLTCPNetSyslogConfig;
-import org.graylog2.syslog4j.impl.net.tcp.ssl.SSLTCPNetSyslogWriter;
-import org.graylog2.syslog4j.impl.net.udp.UDPNetSyslog;
-import org.graylog2.syslog4j.impl.net.udp.UDPNetSyslogConfig;
 import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
@@ -51,6 +39,7 @@ import password.pwm.health.HealthRecord;
 import password.pwm.health.HealthTopic;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
+import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.TimeDuration;
@@ -63,30 +52,43 @@ import password.pwm.util.secure.PwmTrustManager;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
 import java.io.Serializable;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ships formatted audit records to the configured syslog servers.  Records are queued durably, then shipped in batches;
+ * each batch is written to every configured server in parallel and is considered delivered once any server accepts it.
+ */
 public class SyslogAuditService
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( SyslogAuditService.class );
 
     private static final int WARNING_WINDOW_MS = 30 * 60 * 1000;
-    private static final String SYSLOG_INSTANCE_NAME = "syslog-audit";
     private static final int LENGTH_OVERSIZE = 1024;
 
-    private SyslogIF syslogInstance = null;
-    private ErrorInformation lastError = null;
+    private volatile ErrorInformation lastError = null;
     private List<X509Certificate> certificates = null;
-    private WorkQueueProcessor<String> workQueueProcessor;
+    private WorkQueueProcessor<Serializable> workQueueProcessor;
 
-    private List<SyslogIF> syslogInstances = new ArrayList<>();
+    private final List<SyslogDestination> destinations = new ArrayList<>();
+    private final ExecutorService fanOutExecutor;
+    private final TimeDuration ioTimeout;
 
     private final AppConfig appConfig;
     private final PwmApplication pwmApplication;
@@ -99,6 +101,9 @@ public class SyslogAuditService
         this.pwmApplication = pwmApplication;
         this.appConfig = pwmApplication.getConfig();
         this.certificates = appConfig.readSettingAsCertificate( PwmSetting.AUDIT_SYSLOG_CERTIFICATES );
+        this.ioTimeout = TimeDuration.of(
+                Long.parseLong( appConfig.readAppProperty( AppProperty.AUDIT_SYSLOG_IO_TIMEOUT_MS ) ),
+                TimeDuration.Unit.MILLISECONDS );
 
         final List<String> syslogConfigStringArray = appConfig.readSettingAsStringArray( PwmSetting.AUDIT_SYSLOG_SERVERS );
         try
@@ -106,8 +111,7 @@ public class SyslogAuditService
             for ( final String entry : syslogConfigStringArray )
             {
                 final SyslogConfig syslogCfg = SyslogConfig.fromConfigString( entry );
-                final SyslogIF syslogInstance = makeSyslogInstance( syslogCfg );
-                syslogInstances.add( syslogInstance );
+                destinations.add( makeDestination( syslogCfg ) );
             }
             LOGGER.trace( () -> "queued service running for syslog entries" );
         }
@@ -136,6 +140,8 @@ public class SyslogAuditService
 
         final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
                 .maxEvents( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_MAX_COUNT ) ) )
+                .workerThreads( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_WORKER_THREADS ) ) )
+                .maxBatchSize( Integer.parseInt( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_BATCH_SIZE ) ) )
                 .retryDiscardAge( TimeDuration.of( Long.parseLong( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_MAX_AGE_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
                 .retryInterval( TimeDuration.of( Long.parseLong( appConfig.readAppProperty( AppProperty.QUEUE_SYSLOG_RETRY_TIMEOUT_MS ) ), TimeDuration.Unit.MILLISECONDS ) )
                 .build();
@@ -143,70 +149,124 @@ public class SyslogAuditService
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
                 pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SYSLOG_QUEUE );
 
+        fanOutExecutor = destinations.size() > 1
+                ? pwmApplication.getPwmScheduler().makeWorkloadExecutor( this.getClass(), PwmScheduler.WorkloadClass.IoBound, destinations.size() )
+                : null;
+
         workQueueProcessor = new WorkQueueProcessor<>( pwmApplication, localDBStoredQueue, settings, new SyslogItemProcessor(), this.getClass() );
     }
 
-    private class SyslogItemProcessor implements WorkQueueProcessor.ItemProcessor<String>
+    /**
+     * Queued items are {@link SyslogMessage}s, or message text queued by an earlier version.
+     */
+    private class SyslogItemProcessor implements WorkQueueProcessor.ItemProcessor<Serializable>
     {
         @Override
-        public WorkQueueProcessor.ProcessResult process( final String workItem )
+        public WorkQueueProcessor.ProcessResult process( final Serializable workItem )
+        {
+            return processBatch( Collections.singletonList( SyslogMessage.fromQueuedItem( workItem ) ) );
+        }
+
+        @Override
+        public WorkQueueProcessor.BatchProcessor<Serializable> newBatch( final List<Serializable> workItems )
         {
-            return processEvent( workItem );
+            final List<SyslogMessage> messages = new ArrayList<>( workItems.size() );
+            workItems.forEach( workItem -> messages.add( SyslogMessage.fromQueuedItem( workItem ) ) );
+            return new SyslogBatch( messages );
         }
 
         @Override
-        public String convertToDebugString( final String workItem )
+        public String convertToDebugString( final Serializable workItem )
         {
             return JsonUtil.serialize( workItem );
         }
     }
 
 
-    private SyslogIF makeSyslogInstance( final SyslogConfig syslogConfig )
+    /**
+     * Ships the whole batch the first time any of its items is processed, then reports the same result for each item.
+     */
+    private class SyslogBatch implements WorkQueueProcessor.BatchProcessor<Serializable>
     {
-        final AbstractSyslogConfigIF syslogConfigIF;
-        final AbstractNetSyslog syslogInstance;
+        private final List<SyslogMessage> messages;
+        private WorkQueueProcessor.ProcessResult result;
 
-        switch ( syslogConfig.getProtocol() )
+        SyslogBatch( final List<SyslogMessage> messages )
         {
-            case sslTcp:
-            case tls:
+            this.messages = messages;
+        }
+
+        @Override
+        public WorkQueueProcessor.ProcessResult process( final Serializable workItem )
+        {
+            if ( result == null )
+            {
+                result = processBatch( messages );
+            }
+            if ( result == WorkQueueProcessor.ProcessResult.SUCCESS )
             {
-                syslogConfigIF = new SSLTCPNetSyslogConfig();
-                ( ( SSLTCPNetSyslogConfig ) syslogConfigIF ).setBackLogHandlers( Collections.singletonList( new NullSyslogBackLogHandler() ) );
-                syslogInstance = new LocalTrustSSLTCPNetSyslog();
+                StatisticsClient.incrementStat( pwmApplication, Statistic.SYSLOG_MESSAGES_SENT );
             }
-            break;
+            return result;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
 
+    private SyslogDestination makeDestination( final SyslogConfig syslogConfig )
+    {
+        final String id = syslogConfig.getProtocol() + ":" + syslogConfig.getHost() + ":" + syslogConfig.getPort();
+        final int maxLength = Integer.parseInt( appConfig.readAppProperty( AppProperty.AUDIT_SYSLOG_MAX_MESSAGE_LENGTH ) );
+
+        switch ( syslogConfig.getProtocol() )
+        {
+            case sslTcp:
+            case tls:
             case tcp:
             {
-                syslogConfigIF = new TCPNetSyslogConfig();
-                ( ( TCPNetSyslogConfig ) syslogConfigIF ).setBackLogHandlers( Collections.singletonList( new NullSyslogBackLogHandler() ) );
-                syslogInstance = new TCPNetSyslog();
+                final SocketFactory socketFactory = syslogConfig.getProtocol() == SyslogConfig.Protocol.tcp
+                        ? SocketFactory.getDefault()
+                        : makeTlsSocketFactory();
+                final TimeDuration connectTimeout = TimeDuration.of(
+                        Long.parseLong( appConfig.readAppProperty( AppProperty.AUDIT_SYSLOG_CONNECT_TIMEOUT_MS ) ),
+                        TimeDuration.Unit.MILLISECONDS );
+                final String hostname = PwmApplication.deriveLocalServerHostname( appConfig ).orElse( null );
+                final SyslogFrameEncoder frameEncoder = new SyslogFrameEncoder( hostname, PwmConstants.PWM_APP_NAME );
+                return new SyslogTcpDestination( id, syslogConfig.getHost(), syslogConfig.getPort(), socketFactory, connectTimeout, frameEncoder );
             }
-            break;
 
             case udp:
-            {
-                syslogConfigIF = new UDPNetSyslogConfig();
-                syslogInstance = new UDPNetSyslog();
-            }
-            break;
+                return new SyslogUdpDestination( id, syslogConfig.getHost(), syslogConfig.getPort(), maxLength + LENGTH_OVERSIZE );
 
             default:
                 throw new IllegalArgumentException( "unknown protocol type" );
         }
+    }
 
-        final int maxLength = Integer.parseInt( appConfig.readAppProperty( AppProperty.AUDIT_SYSLOG_MAX_MESSAGE_LENGTH ) );
+    private SocketFactory makeTlsSocketFactory( )
+    {
+        if ( certificates != null && certificates.size() >= 1 )
+        {
+            try
+            {
+                final SSLContext sc = SSLContext.getInstance( "TLS" );
+                sc.init( null, new X509TrustManager[]
+                                {
+                                        PwmTrustManager.createPwmTrustManager( appConfig, certificates ),
+                                },
+                        new java.security.SecureRandom() );
+                return sc.getSocketFactory();
+            }
+            catch ( final NoSuchAlgorithmException | KeyManagementException e )
+            {
+                LOGGER.error( () -> "unexpected error loading syslog certificates: " + e.getMessage() );
+            }
+        }
 
-        syslogConfigIF.setThreaded( false );
-        syslogConfigIF.setMaxQueueSize( 0 );
-        syslogConfigIF.setMaxMessageLength( maxLength + LENGTH_OVERSIZE );
-        syslogConfigIF.setThrowExceptionOnWrite( true );
-        syslogConfigIF.setHost( syslogConfig.getHost() );
-        syslogConfigIF.setPort( syslogConfig.getPort() );
-        syslogInstance.initialize( SYSLOG_INSTANCE_NAME, syslogConfigIF );
-        return syslogInstance;
+        return SSLSocketFactory.getDefault();
     }
 
     public void add( final AuditRecord event ) throws PwmOperationalException
@@ -228,7 +288,8 @@ public class SyslogAuditService
 
         try
         {
-            workQueueProcessor.submit( syslogMsg );
+            final Instant timestamp = event.getTimestamp() == null ? Instant.now() : event.getTimestamp();
+            workQueueProcessor.submit( new SyslogMessage( timestamp, syslogMsg ) );
         }
         catch ( final PwmOperationalException e )
         {
@@ -255,43 +316,107 @@ public class SyslogAuditService
         return healthRecords;
     }
 
-    private WorkQueueProcessor.ProcessResult processEvent( final String auditRecord )
+    private WorkQueueProcessor.ProcessResult processBatch( final List<SyslogMessage> messages )
     {
+        if ( destinations.isEmpty() )
+        {
+            return WorkQueueProcessor.ProcessResult.RETRY;
+        }
 
-        for ( final SyslogIF syslogInstance : syslogInstances )
+        boolean anySuccess = false;
+        if ( fanOutExecutor == null )
         {
-            try
+            anySuccess = sendToDestination( destinations.get( 0 ), messages );
+        }
+        else
+        {
+            final Map<SyslogDestination, Future<Boolean>> futures = new LinkedHashMap<>();
+            for ( final SyslogDestination destination : destinations )
             {
-                syslogInstance.info( auditRecord );
-                LOGGER.trace( () -> "delivered syslog audit event: " + auditRecord );
-                lastError = null;
-                StatisticsClient.incrementStat( pwmApplication, Statistic.SYSLOG_MESSAGES_SENT );
-                return WorkQueueProcessor.ProcessResult.SUCCESS;
+                futures.put( destination, fanOutExecutor.submit( () -> sendToDestination( destination, messages ) ) );
             }
-            catch ( final Exception e )
+
+            for ( final Map.Entry<SyslogDestination, Future<Boolean>> entry : futures.entrySet() )
             {
-                final String errorMsg = "error while sending syslog message to remote service: " + e.getMessage();
-                final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_SYSLOG_WRITE_ERROR, errorMsg, new String[]
-                        {
-                                e.getMessage(),
-                        }
-                );
-                lastError = errorInformation;
-                LOGGER.error( () -> errorInformation.toDebugStr() );
+                try
+                {
+                    anySuccess |= entry.getValue().get( ioTimeout.asMillis(), TimeUnit.MILLISECONDS );
+                }
+                catch ( final TimeoutException e )
+                {
+                    // closing the connection aborts the blocked write
+                    entry.getKey().close();
+                    recordError( entry.getKey(), "timed out after " + ioTimeout.asCompactString() );
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    return WorkQueueProcessor.ProcessResult.RETRY;
+                }
+                catch ( final ExecutionException e )
+                {
+                    recordError( entry.getKey(), e.getMessage() );
+                }
             }
         }
+
+        if ( anySuccess )
+        {
+            lastError = null;
+            return WorkQueueProcessor.ProcessResult.SUCCESS;
+        }
         return WorkQueueProcessor.ProcessResult.RETRY;
     }
 
-    public void close( )
+    private boolean sendToDestination( final SyslogDestination destination, final List<SyslogMessage> messages )
     {
-        final SyslogIF syslogIF = syslogInstance;
-        if ( syslogIF != null )
+        try
+        {
+            destination.send( messages );
+            LOGGER.trace( () -> "delivered " + messages.size() + " syslog audit events to " + destination.getId() );
+            return true;
+        }
+        catch ( final IOException e )
         {
-            syslogIF.shutdown();
+            recordError( destination, e.getMessage() );
+            return false;
         }
+    }
+
+    private void recordError( final SyslogDestination destination, final String message )
+    {
+        final String errorMsg = "error while sending syslog message to remote service " + destination.getId() + ": " + message;
+        final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_SYSLOG_WRITE_ERROR, errorMsg, new String[]
+                {
+                        message,
+                }
+        );
+        lastError = errorInformation;
+        LOGGER.error( () -> errorInformation.toDebugStr() );
+    }
+
+    public Map<String, String> debugInfo( )
+    {
+        final Map<String, String> returnMap = new LinkedHashMap<>( workQueueProcessor.debugInfo() );
+        returnMap.put( "queueSize", String.valueOf( workQueueProcessor.queueSize() ) );
+        for ( final SyslogDestination destination : destinations )
+        {
+            returnMap.putAll( destination.debugInfo() );
+        }
+        return Collections.unmodifiableMap( returnMap );
+    }
+
+    public void close( )
+    {
         workQueueProcessor.close();
-        syslogInstance = null;
+        if ( fanOutExecutor != null )
+        {
+            fanOutExecutor.shutdown();
+        }
+        for ( final SyslogDestination destination : destinations )
+        {
+            destination.close();
+        }
     }
 
     @Getter
@@ -353,49 +478,4 @@ public class SyslogAuditService
     {
         return workQueueProcessor.queueSize();
     }
-
-    private class LocalTrustSyslogWriterClass extends SSLTCPNetSyslogWriter
-    {
-        private LocalTrustSyslogWriterClass( )
-        {
-            super();
-        }
-
-        @Override
-        protected SocketFactory obtainSocketFactory( )
-        {
-            if ( certificates != null && certificates.size() >= 1 )
-            {
-                try
-                {
-                    final SSLContext sc = SSLContext.getInstance( "SSL" );
-                    sc.init( null, new X509TrustManager[]
-                                    {
-                                            PwmTrustManager.createPwmTrustManager( appConfig, certificates ),
-                                    },
-                            new java.security.SecureRandom() );
-                    return sc.getSocketFactory();
-                }
-                catch ( final NoSuchAlgorithmException | KeyManagementException e )
-                {
-                    LOGGER.error( () -> "unexpected error loading syslog certificates: " + e.getMessage() );
-                }
-            }
-
-            return super.obtainSocketFactory();
-        }
-    }
-
-    private class LocalTrustSSLTCPNetSyslog extends SSLTCPNetSyslog
-    {
-
-
-        @Override
-        public AbstractSyslogWriter createWriter( )
-        {
-            final LocalTrustSyslogWriterClass newClass = new LocalTrustSyslogWriterClass();
-            newClass.initialize( this );
-            return newClass;
-        }
-    }
 }
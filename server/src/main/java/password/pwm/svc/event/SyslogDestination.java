@@ -0,0 +1,89 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import password.pwm.util.EventRateMeter;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single configured syslog server that audit messages are shipped to.
+ */
+abstract class SyslogDestination
+{
+    private final StatisticCounterBundle<DestinationStat> stats = new StatisticCounterBundle<>( DestinationStat.class );
+    private final EventRateMeter messageRate = new EventRateMeter( TimeDuration.MINUTE );
+
+    enum DestinationStat
+    {
+        connects,
+        batches,
+        messages,
+        bytes,
+        failures,
+    }
+
+    abstract String getId();
+
+    /**
+     * Send the messages, returning the number of bytes written.
+     */
+    abstract long sendImpl( List<SyslogMessage> messages ) throws IOException;
+
+    abstract void close();
+
+    final void send( final List<SyslogMessage> messages )
+            throws IOException
+    {
+        try
+        {
+            final long bytes = sendImpl( messages );
+            stats.increment( DestinationStat.batches );
+            stats.increment( DestinationStat.messages, messages.size() );
+            stats.increment( DestinationStat.bytes, bytes );
+            messageRate.markEvents( messages.size() );
+        }
+        catch ( final IOException e )
+        {
+            stats.increment( DestinationStat.failures );
+            throw e;
+        }
+    }
+
+    void markConnect()
+    {
+        stats.increment( DestinationStat.connects );
+    }
+
+    Map<String, String> debugInfo()
+    {
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        stats.debugStats().forEach( ( key, value ) -> returnMap.put( key + "[" + getId() + "]", value ) );
+        returnMap.put( "messageRate[" + getId() + "]", messageRate.readEventRate().setScale( 2, RoundingMode.DOWN ) + "/s" );
+        return returnMap;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import password.pwm.util.java.StringUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Encodes a batch of syslog messages as RFC 5424 records framed with RFC 6587 octet counting.  Records are encoded
+ * directly into buffers that are reused across batches, so steady state encoding does not allocate per message.  Each
+ * record header carries the timestamp of its own message, with millisecond precision.
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+class SyslogFrameEncoder
+{
+    // facility user (1) * 8 + severity informational (6)
+    private static final byte[] PRIORITY_AND_VERSION = "<14>1 ".getBytes( StandardCharsets.US_ASCII );
+
+    private static final DateTimeFormatter SECOND_FORMATTER = DateTimeFormatter.ofPattern( "uuuu-MM-dd'T'HH:mm:ss", Locale.ROOT )
+            .withZone( ZoneOffset.UTC );
+
+    // '.', three millisecond digits and 'Z'
+    private static final int SECOND_FRACTION_LENGTH = 5;
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    private final byte[] headerTail;
+    private final CharsetEncoder charsetEncoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+
+    private long headerEpochSecond = Long.MIN_VALUE;
+    private byte[] headerSecond = new byte[0];
+    private ByteBuffer record = ByteBuffer.allocate( INITIAL_CAPACITY );
+    private ByteBuffer frames = ByteBuffer.allocate( INITIAL_CAPACITY );
+    private int frameCount;
+
+    SyslogFrameEncoder( final String hostname, final String appName )
+    {
+        this.headerTail = ( " " + headerField( hostname ) + " " + headerField( appName ) + " - - - " ).getBytes( StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Clear any previously encoded frames and start a new batch.
+     */
+    void beginBatch( )
+    {
+        frames.clear();
+        frameCount = 0;
+    }
+
+    void append( final Instant timestamp, final CharSequence message )
+    {
+        record.clear();
+        putHeader( timestamp );
+        encodeMessage( message );
+        record.flip();
+
+        final int recordLength = record.remaining();
+        final int lengthDigits = digitCount( recordLength );
+        frames = ensureCapacity( frames, lengthDigits + 1 + recordLength );
+
+        // octet count prefix, written as ascii digits in place
+        final int digitsStart = frames.position();
+        int remainingValue = recordLength;
+        for ( int i = lengthDigits - 1; i >= 0; i-- )
+        {
+            frames.put( digitsStart + i, ( byte ) ( '0' + remainingValue % 10 ) );
+            remainingValue /= 10;
+        }
+        frames.position( digitsStart + lengthDigits );
+        frames.put( ( byte ) ' ' );
+        frames.put( record );
+        frameCount++;
+    }
+
+    private void putHeader( final Instant timestamp )
+    {
+        // the date and time text only changes once per second
+        if ( timestamp.getEpochSecond() != headerEpochSecond )
+        {
+            headerEpochSecond = timestamp.getEpochSecond();
+            headerSecond = SECOND_FORMATTER.format( timestamp ).getBytes( StandardCharsets.US_ASCII );
+        }
+
+        record = ensureCapacity( record, PRIORITY_AND_VERSION.length + headerSecond.length + SECOND_FRACTION_LENGTH + headerTail.length );
+        record.put( PRIORITY_AND_VERSION );
+        record.put( headerSecond );
+
+        final int millis = timestamp.getNano() / 1_000_000;
+        record.put( ( byte ) '.' );
+        record.put( ( byte ) ( '0' + millis / 100 ) );
+        record.put( ( byte ) ( '0' + millis / 10 % 10 ) );
+        record.put( ( byte ) ( '0' + millis % 10 ) );
+        record.put( ( byte ) 'Z' );
+        record.put( headerTail );
+    }
+
+    private static int digitCount( final int value )
+    {
+        int digits = 1;
+        int remainingValue = value;
+        while ( remainingValue >= 10 )
+        {
+            remainingValue /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Backing array of the encoded frames, valid from offset zero to {@link #frameLength()} until the next batch begins.
+     */
+    byte[] frameArray()
+    {
+        return frames.array();
+    }
+
+    int frameLength()
+    {
+        return frames.position();
+    }
+
+    int frameCount()
+    {
+        return frameCount;
+    }
+
+    private void encodeMessage( final CharSequence message )
+    {
+        final CharBuffer input = CharBuffer.wrap( message );
+        charsetEncoder.reset();
+
+        CoderResult result = charsetEncoder.encode( input, record, true );
+        while ( result.isOverflow() )
+        {
+            record = ensureCapacity( record, Math.max( 64, input.remaining() * 3 ) );
+            result = charsetEncoder.encode( input, record, true );
+        }
+
+        result = charsetEncoder.flush( record );
+        while ( result.isOverflow() )
+        {
+            record = ensureCapacity( record, 64 );
+            result = charsetEncoder.flush( record );
+        }
+    }
+
+    private static ByteBuffer ensureCapacity( final ByteBuffer buffer, final int additional )
+    {
+        if ( buffer.remaining() >= additional )
+        {
+            return buffer;
+        }
+
+        final int newCapacity = Math.max( buffer.capacity() * 2, buffer.position() + additional );
+        final ByteBuffer newBuffer = ByteBuffer.allocate( newCapacity );
+        buffer.flip();
+        newBuffer.put( buffer );
+        return newBuffer;
+    }
+
+    private static String headerField( final String value )
+    {
+        if ( StringUtil.isEmpty( value ) )
+        {
+            return "-";
+        }
+
+        final StringBuilder sb = new StringBuilder( value.length() );
+        for ( final char c : value.toCharArray() )
+        {
+            sb.append( c > 32 && c < 127 ? c : '_' );
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A syslog message waiting to be shipped, with the time of the event it describes.
+ */
+@Value
+class SyslogMessage implements Serializable
+{
+    private final Instant timestamp;
+    private final String message;
+
+    /**
+     * Items queued by earlier versions are message text only, and are given the current time.
+     */
+    static SyslogMessage fromQueuedItem( final Serializable queuedItem )
+    {
+        return queuedItem instanceof SyslogMessage
+                ? ( SyslogMessage ) queuedItem
+                : new SyslogMessage( Instant.now(), String.valueOf( queuedItem ) );
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ships batches of messages over a persistent TCP (optionally TLS) connection using RFC 6587 octet counting framing.
+ * The connection is re-established on the next batch after any write failure.
+ */
+class SyslogTcpDestination extends SyslogDestination
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( SyslogTcpDestination.class );
+
+    private static final TimeDuration IDLE_PEER_CHECK_INTERVAL = TimeDuration.of( 5, TimeDuration.Unit.SECONDS );
+
+    private final String id;
+    private final String host;
+    private final int port;
+    private final SocketFactory socketFactory;
+    private final TimeDuration connectTimeout;
+    private final SyslogFrameEncoder frameEncoder;
+    private final Lock lock = new ReentrantLock();
+
+    private volatile Socket socket;
+    private Instant lastWrite = Instant.now();
+
+    SyslogTcpDestination(
+            final String id,
+            final String host,
+            final int port,
+            final SocketFactory socketFactory,
+            final TimeDuration connectTimeout,
+            final SyslogFrameEncoder frameEncoder
+    )
+    {
+        this.id = id;
+        this.host = host;
+        this.port = port;
+        this.socketFactory = socketFactory;
+        this.connectTimeout = connectTimeout;
+        this.frameEncoder = frameEncoder;
+    }
+
+    @Override
+    String getId()
+    {
+        return id;
+    }
+
+    @Override
+    long sendImpl( final List<SyslogMessage> messages )
+            throws IOException
+    {
+        lock.lock();
+        try
+        {
+            frameEncoder.beginBatch();
+            for ( final SyslogMessage message : messages )
+            {
+                frameEncoder.append( message.getTimestamp(), message.getMessage() );
+            }
+
+            final Socket activeSocket = connectedSocket();
+            try
+            {
+                final OutputStream outputStream = activeSocket.getOutputStream();
+                outputStream.write( frameEncoder.frameArray(), 0, frameEncoder.frameLength() );
+                outputStream.flush();
+                lastWrite = Instant.now();
+            }
+            catch ( final IOException e )
+            {
+                close();
+                throw e;
+            }
+
+            return frameEncoder.frameLength();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private Socket connectedSocket()
+            throws IOException
+    {
+        final Socket existingSocket = socket;
+        if ( existingSocket != null )
+        {
+            if ( !existingSocket.isClosed() && !( idleLongerThanCheckInterval() && peerHasClosed( existingSocket ) ) )
+            {
+                return existingSocket;
+            }
+            LOGGER.trace( () -> "syslog connection to " + id + " closed by peer, reconnecting" );
+            close();
+        }
+
+        final Socket newSocket = socketFactory.createSocket();
+        try
+        {
+            newSocket.setTcpNoDelay( true );
+            newSocket.setKeepAlive( true );
+            newSocket.connect( new InetSocketAddress( host, port ), ( int ) connectTimeout.asMillis() );
+            if ( newSocket instanceof SSLSocket )
+            {
+                ( ( SSLSocket ) newSocket ).startHandshake();
+            }
+        }
+        catch ( final IOException e )
+        {
+            newSocket.close();
+            throw e;
+        }
+
+        markConnect();
+        LOGGER.debug( () -> "connected to syslog server " + id );
+        socket = newSocket;
+        return newSocket;
+    }
+
+    private boolean idleLongerThanCheckInterval()
+    {
+        return TimeDuration.fromCurrent( lastWrite ).isLongerThan( IDLE_PEER_CHECK_INTERVAL );
+    }
+
+    /**
+     * Syslog servers never write to the connection, so a readable end of stream means the server has closed it.  Without this
+     * check the first batch written to a half closed connection would be silently lost.
+     */
+    private static boolean peerHasClosed( final Socket socket )
+    {
+        try
+        {
+            socket.setSoTimeout( 1 );
+            return socket.getInputStream().read() < 0;
+        }
+        catch ( final SocketTimeoutException e )
+        {
+            return false;
+        }
+        catch ( final IOException e )
+        {
+            return true;
+        }
+        finally
+        {
+            try
+            {
+                socket.setSoTimeout( 0 );
+            }
+            catch ( final IOException e )
+            {
+                LOGGER.trace( () -> "error resetting syslog socket timeout: " + e.getMessage() );
+            }
+        }
+    }
+
+    /**
+     * Close the current connection.  Safe to call from another thread to abort a blocked write.
+     */
+    @Override
+    void close()
+    {
+        final Socket existingSocket = socket;
+        socket = null;
+        if ( existingSocket != null )
+        {
+            try
+            {
+                existingSocket.close();
+            }
+            catch ( final IOException e )
+            {
+                LOGGER.trace( () -> "error closing syslog connection to " + id + ": " + e.getMessage() );
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import org.graylog2.syslog4j.SyslogIF;
+import org.graylog2.syslog4j.impl.net.udp.UDPNetSyslog;
+import org.graylog2.syslog4j.impl.net.udp.UDPNetSyslogConfig;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Ships messages as individual UDP datagrams; datagrams are self delimiting so no batch framing is applied.
+ */
+class SyslogUdpDestination extends SyslogDestination
+{
+    private static final String SYSLOG_INSTANCE_NAME = "syslog-audit";
+
+    private final String id;
+    private final SyslogIF syslogInstance;
+
+    SyslogUdpDestination( final String id, final String host, final int port, final int maxMessageLength )
+    {
+        this.id = id;
+
+        final UDPNetSyslogConfig syslogConfig = new UDPNetSyslogConfig();
+        syslogConfig.setThreaded( false );
+        syslogConfig.setMaxQueueSize( 0 );
+        syslogConfig.setMaxMessageLength( maxMessageLength );
+        syslogConfig.setThrowExceptionOnWrite( true );
+        syslogConfig.setHost( host );
+        syslogConfig.setPort( port );
+
+        final UDPNetSyslog udpNetSyslog = new UDPNetSyslog();
+        udpNetSyslog.initialize( SYSLOG_INSTANCE_NAME, syslogConfig );
+        this.syslogInstance = udpNetSyslog;
+    }
+
+    @Override
+    String getId()
+    {
+        return id;
+    }
+
+    @Override
+    long sendImpl( final List<SyslogMessage> messages )
+            throws IOException
+    {
+        long bytes = 0;
+        for ( final SyslogMessage syslogMessage : messages )
+        {
+            final String message = syslogMessage.getMessage();
+            try
+            {
+                syslogInstance.info( message );
+            }
+            catch ( final RuntimeException e )
+            {
+                throw new IOException( e.getMessage(), e );
+            }
+            bytes += message.getBytes( StandardCharsets.UTF_8 ).length;
+        }
+        return bytes;
+    }
+
+    @Override
+    void close()
+    {
+        syslogInstance.shutdown();
+    }
+}
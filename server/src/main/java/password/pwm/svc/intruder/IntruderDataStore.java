@@ -36,6 +36,8 @@ import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -45,6 +47,8 @@ class IntruderDataStore implements IntruderRecordStore
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( IntruderDataStore.class );
 
+    private static final int MAX_BULK_REMOVALS = 100;
+
     private final DataStore dataStore;
     private final Supplier<PwmService.STATUS> serviceStatus;
     private final StatisticCounterBundle<DebugKeys> stats = new StatisticCounterBundle<>( DebugKeys.class );
@@ -91,9 +95,15 @@ class IntruderDataStore implements IntruderRecordStore
             return Optional.empty();
         }
 
+        return parseRecord( key, value.get() );
+    }
+
+    private Optional<IntruderRecord> parseRecord( final String key, final String value )
+            throws PwmUnrecoverableException
+    {
         try
         {
-            return Optional.ofNullable( JsonUtil.deserialize( value.get(), IntruderRecord.class ) );
+            return Optional.ofNullable( JsonUtil.deserialize( value, IntruderRecord.class ) );
         }
         catch ( final Exception e )
         {
@@ -145,8 +155,9 @@ class IntruderDataStore implements IntruderRecordStore
     private class RecordIterator implements ClosableIterator<IntruderRecord>
     {
         private final ClosableIterator<Map.Entry<String, String>> dbIterator;
-        private String currentKey;
-        private IntruderRecord currentRecord;
+        private String nextKey;
+        private IntruderRecord nextRecord;
+        private String lastReturnedKey;
 
         private RecordIterator( final ClosableIterator<Map.Entry<String, String>> dbIterator )
         {
@@ -157,15 +168,16 @@ class IntruderDataStore implements IntruderRecordStore
         @Override
         public boolean hasNext( )
         {
-            return currentRecord != null;
+            return nextRecord != null;
         }
 
         @Override
         public IntruderRecord next( )
         {
-            if ( currentRecord != null )
+            if ( nextRecord != null )
             {
-                final IntruderRecord returnRecord = currentRecord;
+                final IntruderRecord returnRecord = nextRecord;
+                lastReturnedKey = nextKey;
                 doNext();
                 return returnRecord;
             }
@@ -175,17 +187,23 @@ class IntruderDataStore implements IntruderRecordStore
 
         private void doNext()
         {
-            currentRecord = null;
+            nextRecord = null;
 
             try
             {
                 while ( dbIterator.hasNext() )
                 {
-                    currentKey = dbIterator.next().getKey();
-                    final Optional<IntruderRecord> record = read( currentKey );
+                    final Map.Entry<String, String> entry = dbIterator.next();
+                    stats.increment( DebugKeys.reads );
+
+                    // the iterator already carries the stored value, so avoid a second lookup per record
+                    final Optional<IntruderRecord> record = StringUtil.isEmpty( entry.getValue() )
+                            ? Optional.empty()
+                            : parseRecord( entry.getKey(), entry.getValue() );
                     if ( record.isPresent() )
                     {
-                        currentRecord = record.get();
+                        nextKey = entry.getKey();
+                        nextRecord = record.get();
                         return;
                     }
                 }
@@ -196,12 +214,17 @@ class IntruderDataStore implements IntruderRecordStore
             }
         }
 
+        String lastReturnedKey( )
+        {
+            return lastReturnedKey;
+        }
+
         @Override
         public void remove( )
         {
             try
             {
-                dataStore.remove( currentKey );
+                dataStore.remove( lastReturnedKey );
             }
             catch ( final PwmDataStoreException | PwmUnrecoverableException e )
             {
@@ -234,7 +257,8 @@ class IntruderDataStore implements IntruderRecordStore
         int recordsExamined = 0;
         int recordsRemoved = 0;
 
-        try ( ClosableIterator<IntruderRecord> iterator = this.iterator( ) )
+        final List<String> pendingRemovals = new ArrayList<>();
+        try ( RecordIterator iterator = new RecordIterator( dataStore.iterator( ) ) )
         {
             while ( this.serviceStatus.get() == PwmService.STATUS.OPEN && iterator.hasNext() )
             {
@@ -244,15 +268,23 @@ class IntruderDataStore implements IntruderRecordStore
 
                 if ( TimeDuration.fromCurrent( record.getTimeStamp() ).isLongerThan( maxRecordAge ) )
                 {
-                    iterator.remove();
+                    pendingRemovals.add( iterator.lastReturnedKey() );
                     stats.increment( DebugKeys.cleanupRemoves );
                     recordsRemoved++;
+
+                    if ( pendingRemovals.size() >= MAX_BULK_REMOVALS )
+                    {
+                        dataStore.removeAll( pendingRemovals );
+                        pendingRemovals.clear();
+                    }
                 }
                 if ( eldestRecord.compareTo( record.getTimeStamp() ) > 0 )
                 {
                     eldestRecord = record.getTimeStamp();
                 }
             }
+
+            dataStore.removeAll( pendingRemovals );
         }
         catch ( final PwmException e )
         {
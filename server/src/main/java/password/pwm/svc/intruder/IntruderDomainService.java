@@ -46,6 +46,8 @@ import password.pwm.svc.event.AuditRecordFactory;
 import password.pwm.svc.event.AuditServiceClient;
 import password.pwm.svc.event.SystemAuditRecord;
 import password.pwm.svc.event.UserAuditRecord;
+import password.pwm.svc.node.ClusterEvent;
+import password.pwm.svc.node.NodeService;
 import password.pwm.svc.stats.EpsStatistic;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
@@ -345,6 +347,7 @@ public class IntruderDomainService extends AbstractPwmService implements PwmServ
                 }
 
                 manager.markAlerted( subject );
+                broadcastLockout( manager, subject );
 
                 StatisticsClient.incrementStat( pwmDomain.getPwmApplication(), Statistic.INTRUDER_ATTEMPTS );
                 StatisticsClient.updateEps( pwmDomain.getPwmApplication(), EpsStatistic.INTRUDER_ATTEMPTS );
@@ -356,6 +359,31 @@ public class IntruderDomainService extends AbstractPwmService implements PwmServ
         manager.readIntruderRecord( subject ).ifPresent( record -> delayPenalty( record, sessionLabel ) );
     }
 
+    /**
+     * Apply a lockout reported by another cluster node, so a locked subject is also locked here when records are kept
+     * in each node's LocalDB.
+     */
+    public void applyClusterLockout( final IntruderRecord intruderRecord )
+    {
+        if ( status() != STATUS.OPEN || intruderRecord.getType() == null || StringUtil.isEmpty( intruderRecord.getSubject() ) )
+        {
+            return;
+        }
+
+        LOGGER.debug( getSessionLabel(), () -> "applying intruder lockout of " + intruderRecord.getType() + " from cluster" );
+        recordManagers.get( intruderRecord.getType() ).applyLockout( intruderRecord );
+    }
+
+    private void broadcastLockout( final IntruderRecordManager manager, final String subject )
+    {
+        final NodeService nodeService = pwmDomain.getPwmApplication().getNodeService();
+        if ( nodeService != null )
+        {
+            manager.readIntruderRecord( subject ).ifPresent( record ->
+                    nodeService.broadcastClusterEvent( ClusterEvent.Type.intruderLockout, JsonUtil.serialize( record ) ) );
+        }
+    }
+
     private void delayPenalty( final IntruderRecord intruderRecord, final SessionLabel sessionLabel )
     {
         int points = 0;
@@ -37,6 +37,11 @@ public interface IntruderRecordManager
 
     void markAlerted( String subject );
 
+    /**
+     * Record a lockout reported by another cluster node, unless the local record already has as many attempts.
+     */
+    void applyLockout( IntruderRecord intruderRecord );
+
     Optional<IntruderRecord> readIntruderRecord( String subject );
 
     ClosableIterator<IntruderRecord> iterator( ) throws PwmException;
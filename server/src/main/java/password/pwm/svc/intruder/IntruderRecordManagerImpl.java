@@ -149,6 +149,23 @@ class IntruderRecordManagerImpl implements IntruderRecordManager
         writeIntruderRecord( record.get() );
     }
 
+    @Override
+    public void applyLockout( final IntruderRecord intruderRecord )
+    {
+        final Optional<IntruderRecord> localRecord = readIntruderRecord( intruderRecord.getSubject() );
+        if ( localRecord.isPresent() && localRecord.get().getAttemptCount() >= intruderRecord.getAttemptCount() )
+        {
+            return;
+        }
+
+        // the originating node has already sent the lockout alert
+        final IntruderRecord record = new IntruderRecord( domainID, recordType, intruderRecord.getSubject() );
+        record.setTimeStamp( intruderRecord.getTimeStamp() );
+        record.setAttemptCount( intruderRecord.getAttemptCount() );
+        record.setAlerted( true );
+        writeIntruderRecord( record );
+    }
+
     @Override
     public Optional<IntruderRecord> readIntruderRecord( final String subject )
     {
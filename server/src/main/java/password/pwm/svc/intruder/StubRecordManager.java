@@ -55,6 +55,11 @@ class StubRecordManager implements IntruderRecordManager
     {
     }
 
+    @Override
+    public void applyLockout( final IntruderRecord intruderRecord )
+    {
+    }
+
     @Override
     public Optional<IntruderRecord> readIntruderRecord( final String subject )
     {
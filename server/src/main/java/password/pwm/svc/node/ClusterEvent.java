@@ -0,0 +1,51 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.node;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * An event broadcast to the other nodes of the cluster by the gossip membership layer.  Events are delivered at most
+ * once to each node, and are not delivered back to the originating node.
+ */
+@Value
+@Builder
+public class ClusterEvent implements Serializable
+{
+    private String eventID;
+    private String originInstanceID;
+    private Type type;
+    private Instant timestamp;
+    private String payload;
+
+    public enum Type
+    {
+        cacheInvalidate,
+        intruderLockout,
+        configReload,
+        otpCodeConsumed,
+    }
+}
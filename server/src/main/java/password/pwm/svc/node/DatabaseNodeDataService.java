@@ -32,10 +32,11 @@ import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 
 class DatabaseNodeDataService implements NodeDataServiceProvider
 {
@@ -85,15 +86,11 @@ class DatabaseNodeDataService implements NodeDataServiceProvider
         {
             while ( tableIterator.hasNext() )
             {
-                final String dbKey = tableIterator.next().getKey();
-                if ( dbKey.startsWith( KEY_PREFIX_NODE ) )
+                final Map.Entry<String, String> entry = tableIterator.next();
+                if ( entry.getKey().startsWith( KEY_PREFIX_NODE ) && entry.getValue() != null )
                 {
-                    final Optional<String> rawValueInDb = databaseAccessor.get( TABLE, dbKey );
-                    rawValueInDb.ifPresent( s ->
-                    {
-                        final StoredNodeData nodeDataInDb = JsonUtil.deserialize( s, StoredNodeData.class );
-                        returnList.put( nodeDataInDb.getInstanceID(), nodeDataInDb );
-                    } );
+                    final StoredNodeData nodeDataInDb = JsonUtil.deserialize( entry.getValue(), StoredNodeData.class );
+                    returnList.put( nodeDataInDb.getInstanceID(), nodeDataInDb );
                 }
             }
         }
@@ -124,12 +121,11 @@ class DatabaseNodeDataService implements NodeDataServiceProvider
     public int purgeOutdatedNodes( final TimeDuration maxNodeAge )
             throws PwmUnrecoverableException
     {
-        int nodesPurged = 0;
+        final List<String> keysToPurge = new ArrayList<>();
 
         try
         {
             final Map<String, StoredNodeData> nodeDatas = readStoredData();
-            final DatabaseAccessor databaseAccessor = getDatabaseAccessor();
             for ( final StoredNodeData storedNodeData : nodeDatas.values() )
             {
                 final TimeDuration recordAge = TimeDuration.fromCurrent( storedNodeData.getTimestamp() );
@@ -141,16 +137,17 @@ class DatabaseNodeDataService implements NodeDataServiceProvider
                     // purge outdated records
                     LOGGER.debug( () -> "purging outdated node reference to instanceID '" + instanceID + "'" );
 
-                    databaseAccessor.remove( TABLE, localKeyForStoredNode( storedNodeData ) );
-                    nodesPurged++;
+                    keysToPurge.add( localKeyForStoredNode( storedNodeData ) );
                 }
             }
+
+            getDatabaseAccessor().removeAll( TABLE, keysToPurge );
         }
         catch ( final DatabaseException e )
         {
             throw new PwmUnrecoverableException( PwmError.ERROR_DB_UNAVAILABLE, "unexpected database error writing cluster node status: " + e.getMessage() );
         }
 
-        return nodesPurged;
+        return keysToPurge.size();
     }
 }
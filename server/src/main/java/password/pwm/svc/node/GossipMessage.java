@@ -0,0 +1,127 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.node;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Datagram exchanged by {@link GossipNode}s.  Every message identifies its sender and carries the sender's view of the
+ * leader lease, and piggybacks recent membership changes and cluster events for epidemic dissemination.
+ */
+@Value
+@Builder
+class GossipMessage implements Serializable
+{
+    private Type type;
+
+    /**
+     * Probe sequence; an ack echoes the sequence of the ping it answers.
+     */
+    private long seq;
+
+    private MemberUpdate sender;
+
+    /**
+     * For {@link Type#pingReq}, the {@code host:port} address of the member to probe on behalf of the sender.
+     */
+    private String target;
+
+    @Singular
+    private List<MemberUpdate> members;
+
+    @Singular
+    private List<ClusterEvent> events;
+
+    private LeaseUpdate lease;
+
+    /**
+     * Sender clock time in epoch milliseconds.  Together with the nonce it lets receivers reject replayed datagrams.
+     */
+    private long timestamp;
+
+    /**
+     * Random value unique to this message.
+     */
+    private long nonce;
+
+    enum Type
+    {
+        ping,
+        ack,
+        pingReq,
+        sync,
+        gossip,
+    }
+
+    enum MemberState
+    {
+        alive,
+        suspect,
+        dead,
+    }
+
+    List<MemberUpdate> memberList()
+    {
+        return members == null ? Collections.emptyList() : members;
+    }
+
+    List<ClusterEvent> eventList()
+    {
+        return events == null ? Collections.emptyList() : events;
+    }
+
+    @Value
+    static class MemberUpdate implements Serializable
+    {
+        private String instanceID;
+        private String address;
+
+        /**
+         * Only the member itself increases its incarnation, to refute suspicion; higher incarnations supersede lower.
+         */
+        private long incarnation;
+
+        private MemberState state;
+        private Instant startupTime;
+        private String configHash;
+    }
+
+    @Value
+    static class LeaseUpdate implements Serializable
+    {
+        private String holderID;
+        private long fencingToken;
+
+        /**
+         * Remaining lease time as seen by the sender.  A relative value keeps lease expiry independent of clock skew
+         * between nodes.
+         */
+        private long remainingMs;
+    }
+}
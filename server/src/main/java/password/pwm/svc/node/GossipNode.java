@@ -0,0 +1,1209 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.node;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import password.pwm.PwmConstants;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.HmacAlgorithm;
+import password.pwm.util.secure.SecureEngine;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Peer to peer cluster membership using the SWIM gossip protocol over UDP.
+ *
+ * <p>Each protocol period the node pings one member, chosen round robin from a shuffled list.  If no ack arrives within
+ * the ping timeout, other members are asked to probe the target on this node's behalf; if that also fails the target
+ * is suspected, and a suspect that does not refute the suspicion with a higher incarnation within the suspect timeout
+ * is declared dead.  Membership changes and cluster events are piggybacked on the probe traffic and retransmitted
+ * a logarithmic number of times, so they reach every member within a few protocol periods.</p>
+ *
+ * <p>Leadership is a lease with a fencing token.  The holder renews the lease every period and every message carries
+ * it; when the lease lapses or its holder is dead, the eldest live member acquires it with a token one higher than
+ * any token seen, and never lower than the current wall clock time in milliseconds so that tokens keep increasing across a
+ * restart of the whole cluster.  Work that must not run concurrently on two nodes can carry the token so stale
+ * leaders are rejected after a partition.</p>
+ *
+ * <p>Messages are authenticated with an HMAC keyed by the shared configuration security key; datagrams failing
+ * verification are dropped.  Each message also carries a timestamp and random nonce, so a captured datagram is
+ * rejected once it is older than the replay window or if it has already been accepted.</p>
+ */
+class GossipNode implements AutoCloseable
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( GossipNode.class );
+
+    private static final int MAX_DATAGRAM_SIZE = 65_507;
+    private static final int MAX_PIGGYBACK = 16;
+    private static final int RETRANSMIT_MULTIPLIER = 3;
+    private static final int SEEN_EVENT_LIMIT = 4096;
+    private static final int DEAD_MEMBER_RETENTION_MULTIPLIER = 10;
+    private static final int SEEN_NONCE_LIMIT = 100_000;
+    private static final HmacAlgorithm HMAC_ALGORITHM = HmacAlgorithm.HMAC_SHA_256;
+
+    enum DebugKey
+    {
+        messagesSent,
+        messagesReceived,
+        messagesRejected,
+        messagesReplayed,
+        probes,
+        indirectProbes,
+        suspicions,
+        deaths,
+        refutations,
+        leaseAcquisitions,
+        eventsBroadcast,
+        eventsDelivered,
+    }
+
+    private final GossipSettings settings;
+    private final String localID;
+    private final Instant startupTime;
+    private final String configHash;
+    private final long startedNanos = System.nanoTime();
+    private final Consumer<ClusterEvent> eventListener;
+
+    private final DatagramSocket socket;
+    private final InetSocketAddress localAddress;
+    private final Thread receiverThread;
+    private final ScheduledExecutorService executorService;
+    private final StatisticCounterBundle<DebugKey> statistics = new StatisticCounterBundle<>( DebugKey.class );
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, CompletableFuture<Boolean>> pendingAcks = new ConcurrentHashMap<>();
+    private final Map<Long, IndirectProbe> indirectProbes = new ConcurrentHashMap<>();
+    private final Cache<Long, Boolean> seenNonces;
+
+    // state below is guarded by this instance's monitor
+    private final Map<String, Member> members = new HashMap<>();
+    private final Map<String, Pending<GossipMessage.MemberUpdate>> memberBroadcasts = new LinkedHashMap<>();
+    private final Map<String, Pending<ClusterEvent>> eventBroadcasts = new LinkedHashMap<>();
+    private final Set<String> seenEvents = new LinkedHashSet<>();
+    private final List<String> probeOrder = new ArrayList<>();
+    private long incarnation;
+    private Lease lease;
+    private long highestFencingToken;
+
+    private volatile boolean closed;
+
+    GossipNode(
+            final GossipSettings settings,
+            final String localID,
+            final Instant startupTime,
+            final String configHash,
+            final Consumer<ClusterEvent> eventListener
+    )
+            throws SocketException
+    {
+        this.settings = settings;
+        this.localID = localID;
+        // compared against peer startup times, which the json encoding carries with second precision
+        this.startupTime = startupTime.truncatedTo( ChronoUnit.SECONDS );
+        this.configHash = configHash;
+        this.eventListener = eventListener;
+        this.seenNonces = Caffeine.newBuilder()
+                .expireAfterWrite( settings.getReplayWindow().asMillis() * 2, TimeUnit.MILLISECONDS )
+                .maximumSize( SEEN_NONCE_LIMIT )
+                .build();
+
+        // a restarted node keeping its instance id must supersede the dead record of its previous run
+        this.incarnation = System.currentTimeMillis();
+
+        this.socket = new DatagramSocket( settings.getListenAddress() );
+        this.localAddress = resolveLocalAddress( settings, socket );
+
+        final String threadName = PwmScheduler.makeThreadName( localID, GossipNode.class );
+        this.receiverThread = PwmScheduler.makePwmThreadFactory( threadName + "-receiver-", true ).newThread( this::receiveLoop );
+        this.receiverThread.start();
+
+        final long periodMs = settings.getProtocolPeriod().asMillis();
+        this.executorService = PwmScheduler.makeSingleThreadExecutorService( localID, GossipNode.class );
+        this.executorService.scheduleWithFixedDelay( this::protocolPeriod, 0, periodMs, TimeUnit.MILLISECONDS );
+
+        LOGGER.debug( () -> "gossip node " + localID + " listening on " + socket.getLocalSocketAddress()
+                + ", advertising " + formatAddress( localAddress ) );
+    }
+
+    private static InetSocketAddress resolveLocalAddress( final GossipSettings settings, final DatagramSocket socket )
+    {
+        if ( settings.getAdvertiseAddress() != null )
+        {
+            return settings.getAdvertiseAddress();
+        }
+
+        final InetAddress listenAddress = socket.getLocalAddress();
+        if ( listenAddress != null && !listenAddress.isAnyLocalAddress() )
+        {
+            return new InetSocketAddress( listenAddress, socket.getLocalPort() );
+        }
+
+        try
+        {
+            return new InetSocketAddress( InetAddress.getLocalHost(), socket.getLocalPort() );
+        }
+        catch ( final IOException e )
+        {
+            return new InetSocketAddress( InetAddress.getLoopbackAddress(), socket.getLocalPort() );
+        }
+    }
+
+    InetSocketAddress getLocalAddress()
+    {
+        return localAddress;
+    }
+
+    String getLocalID()
+    {
+        return localID;
+    }
+
+    @Override
+    public void close()
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        // announce departure so peers need not wait out the suspect timeout, and hand back any held lease
+        final List<InetSocketAddress> recipients;
+        final GossipMessage leaveMessage;
+        synchronized ( this )
+        {
+            if ( lease != null && localID.equals( lease.getHolderID() ) )
+            {
+                lease = null;
+            }
+            incarnation++;
+            enqueueMember( selfUpdate( GossipMessage.MemberState.dead ) );
+            leaveMessage = makeMessage( GossipMessage.Type.gossip, 0, null, Collections.emptyList() );
+            recipients = randomMembers( settings.getIndirectProbes() + 1, null );
+        }
+        recipients.forEach( address -> send( address, leaveMessage ) );
+
+        halt();
+    }
+
+    /**
+     * Stop without announcing departure, as a crashed node would.
+     */
+    void halt()
+    {
+        closed = true;
+        JavaHelper.closeAndWaitExecutor( executorService, TimeDuration.SECOND );
+        socket.close();
+        try
+        {
+            receiverThread.join( TimeDuration.SECOND.asMillis() );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Broadcast an event to every other member of the cluster.
+     */
+    void broadcast( final ClusterEvent.Type type, final String payload )
+    {
+        final ClusterEvent clusterEvent = ClusterEvent.builder()
+                .eventID( UUID.randomUUID().toString() )
+                .originInstanceID( localID )
+                .type( type )
+                .timestamp( Instant.now() )
+                .payload( payload )
+                .build();
+
+        final List<InetSocketAddress> recipients;
+        final GossipMessage message;
+        synchronized ( this )
+        {
+            markSeen( clusterEvent.getEventID() );
+            eventBroadcasts.put( clusterEvent.getEventID(), new Pending<>( clusterEvent ) );
+            recipients = randomMembers( settings.getIndirectProbes(), null );
+            message = makeMessage( GossipMessage.Type.gossip, 0, null, Collections.emptyList() );
+        }
+        statistics.increment( DebugKey.eventsBroadcast );
+
+        // push immediately to a few members rather than waiting for the next probe to carry the event
+        recipients.forEach( address -> send( address, message ) );
+    }
+
+    synchronized boolean isLeader()
+    {
+        return lease != null
+                && localID.equals( lease.getHolderID() )
+                && System.nanoTime() < lease.getExpiresNanos() - leaseGuardNanos();
+    }
+
+    /**
+     * Fencing token of the lease held by this node, if it is the leader.
+     */
+    synchronized Optional<Long> fencingToken()
+    {
+        return isLeader() ? Optional.of( lease.getFencingToken() ) : Optional.empty();
+    }
+
+    synchronized Optional<String> leaderID()
+    {
+        return lease == null || System.nanoTime() > lease.getExpiresNanos()
+                ? Optional.empty()
+                : Optional.of( lease.getHolderID() );
+    }
+
+    synchronized List<NodeInfo> nodes()
+    {
+        final Optional<String> leaderID = leaderID();
+        final List<NodeInfo> returnList = new ArrayList<>();
+        returnList.add( new NodeInfo(
+                localID,
+                Instant.now(),
+                startupTime,
+                isLeader() ? NodeInfo.NodeState.master : NodeInfo.NodeState.online,
+                true ) );
+
+        for ( final Member member : members.values() )
+        {
+            final boolean offline = member.getState() == GossipMessage.MemberState.dead;
+            final NodeInfo.NodeState nodeState = offline
+                    ? NodeInfo.NodeState.offline
+                    : leaderID.isPresent() && leaderID.get().equals( member.getInstanceID() )
+                    ? NodeInfo.NodeState.master
+                    : NodeInfo.NodeState.online;
+
+            returnList.add( new NodeInfo(
+                    member.getInstanceID(),
+                    member.getLastSeen(),
+                    offline ? null : member.getStartupTime(),
+                    nodeState,
+                    configHash != null && configHash.equals( member.getConfigHash() ) ) );
+        }
+
+        returnList.sort( Comparator.comparing( NodeInfo::getInstanceID ) );
+        return Collections.unmodifiableList( returnList );
+    }
+
+    Map<String, String> debugStats()
+    {
+        final Map<String, String> returnMap = new LinkedHashMap<>( statistics.debugStats() );
+        synchronized ( this )
+        {
+            returnMap.put( "members", Integer.toString( members.size() ) );
+            returnMap.put( "incarnation", Long.toString( incarnation ) );
+            returnMap.put( "leader", lease == null ? "" : lease.getHolderID() );
+            returnMap.put( "fencingToken", Long.toString( highestFencingToken ) );
+        }
+        return Collections.unmodifiableMap( returnMap );
+    }
+
+    private void protocolPeriod()
+    {
+        try
+        {
+            joinPeers();
+            probe();
+            expireMembers();
+            updateLease();
+        }
+        catch ( final Exception e )
+        {
+            if ( !closed )
+            {
+                LOGGER.debug( () -> "error during gossip protocol period: " + e.getMessage() );
+            }
+        }
+    }
+
+    /**
+     * Ping configured peers not yet known as live members, so nodes find each other at startup and after a partition.
+     */
+    private void joinPeers()
+    {
+        final List<InetSocketAddress> unknownPeers = new ArrayList<>();
+        final GossipMessage message;
+        synchronized ( this )
+        {
+            for ( final InetSocketAddress peer : settings.getPeers() )
+            {
+                final boolean known = peer.equals( localAddress ) || members.values().stream()
+                        .anyMatch( member -> member.getState() != GossipMessage.MemberState.dead && peer.equals( member.getAddress() ) );
+                if ( !known )
+                {
+                    unknownPeers.add( peer );
+                }
+            }
+            message = unknownPeers.isEmpty() ? null : makeMessage( GossipMessage.Type.ping, 0, null, Collections.emptyList() );
+        }
+        unknownPeers.forEach( peer -> send( peer, message ) );
+    }
+
+    private void probe()
+            throws InterruptedException
+    {
+        final Member target;
+        synchronized ( this )
+        {
+            target = nextProbeTarget();
+        }
+        if ( target == null )
+        {
+            return;
+        }
+
+        statistics.increment( DebugKey.probes );
+        final long seq = sequence.incrementAndGet();
+        final CompletableFuture<Boolean> ackFuture = new CompletableFuture<>();
+        pendingAcks.put( seq, ackFuture );
+        try
+        {
+            final GossipMessage ping;
+            synchronized ( this )
+            {
+                ping = makeMessage( GossipMessage.Type.ping, seq, null, Collections.emptyList() );
+            }
+            send( target.getAddress(), ping );
+            if ( awaitAck( ackFuture, settings.getPingTimeout().asMillis() ) )
+            {
+                return;
+            }
+
+            final List<InetSocketAddress> helpers;
+            final GossipMessage pingReq;
+            synchronized ( this )
+            {
+                helpers = randomMembers( settings.getIndirectProbes(), target.getInstanceID() );
+                pingReq = makeMessage( GossipMessage.Type.pingReq, seq, formatAddress( target.getAddress() ), Collections.emptyList() );
+            }
+            statistics.increment( DebugKey.indirectProbes );
+            helpers.forEach( helper -> send( helper, pingReq ) );
+
+            final long remainingMs = settings.getProtocolPeriod().asMillis() - settings.getPingTimeout().asMillis();
+            if ( awaitAck( ackFuture, Math.max( remainingMs, settings.getPingTimeout().asMillis() ) ) )
+            {
+                return;
+            }
+
+            synchronized ( this )
+            {
+                suspect( target.getInstanceID() );
+            }
+        }
+        finally
+        {
+            pendingAcks.remove( seq );
+        }
+    }
+
+    private static boolean awaitAck( final CompletableFuture<Boolean> ackFuture, final long timeoutMs )
+            throws InterruptedException
+    {
+        try
+        {
+            return ackFuture.get( timeoutMs, TimeUnit.MILLISECONDS );
+        }
+        catch ( final TimeoutException | ExecutionException e )
+        {
+            return false;
+        }
+    }
+
+    private Member nextProbeTarget()
+    {
+        while ( !probeOrder.isEmpty() )
+        {
+            final Member member = members.get( probeOrder.remove( probeOrder.size() - 1 ) );
+            if ( member != null && member.getState() != GossipMessage.MemberState.dead )
+            {
+                return member;
+            }
+        }
+
+        for ( final Member member : members.values() )
+        {
+            if ( member.getState() != GossipMessage.MemberState.dead )
+            {
+                probeOrder.add( member.getInstanceID() );
+            }
+        }
+        if ( probeOrder.isEmpty() )
+        {
+            return null;
+        }
+        Collections.shuffle( probeOrder, ThreadLocalRandom.current() );
+        return members.get( probeOrder.remove( probeOrder.size() - 1 ) );
+    }
+
+    private List<InetSocketAddress> randomMembers( final int count, final String excludeID )
+    {
+        final List<InetSocketAddress> candidates = new ArrayList<>();
+        for ( final Member member : members.values() )
+        {
+            if ( member.getState() != GossipMessage.MemberState.dead && !member.getInstanceID().equals( excludeID ) )
+            {
+                candidates.add( member.getAddress() );
+            }
+        }
+        Collections.shuffle( candidates, ThreadLocalRandom.current() );
+        return candidates.subList( 0, Math.min( count, candidates.size() ) );
+    }
+
+    private void suspect( final String instanceID )
+    {
+        final Member member = members.get( instanceID );
+        if ( member != null && member.getState() == GossipMessage.MemberState.alive )
+        {
+            LOGGER.debug( () -> "gossip member " + instanceID + " did not answer probes and is now suspect" );
+            statistics.increment( DebugKey.suspicions );
+            member.setState( GossipMessage.MemberState.suspect );
+            enqueueMember( member.toUpdate() );
+        }
+    }
+
+    private synchronized void expireMembers()
+    {
+        final long now = System.nanoTime();
+        final long suspectNanos = settings.getSuspectTimeout().asMillis() * 1_000_000L;
+        final long retentionNanos = suspectNanos * DEAD_MEMBER_RETENTION_MULTIPLIER;
+
+        for ( final Iterator<Member> iterator = members.values().iterator(); iterator.hasNext(); )
+        {
+            final Member member = iterator.next();
+            final long stateAge = now - member.getStateChangeNanos();
+            if ( member.getState() == GossipMessage.MemberState.suspect && stateAge > suspectNanos )
+            {
+                LOGGER.debug( () -> "gossip member " + member.getInstanceID() + " did not refute suspicion and is now dead" );
+                statistics.increment( DebugKey.deaths );
+                member.setState( GossipMessage.MemberState.dead );
+                enqueueMember( member.toUpdate() );
+            }
+            else if ( member.getState() == GossipMessage.MemberState.dead && stateAge > retentionNanos )
+            {
+                iterator.remove();
+            }
+        }
+
+        final long staleProbeNanos = settings.getProtocolPeriod().asMillis() * 1_000_000L;
+        indirectProbes.values().removeIf( indirectProbe -> now - indirectProbe.getCreatedNanos() > staleProbeNanos );
+    }
+
+    private synchronized void updateLease()
+    {
+        final long now = System.nanoTime();
+        final long durationNanos = settings.getLeaseDuration().asMillis() * 1_000_000L;
+
+        if ( isLeader() )
+        {
+            lease = new Lease( localID, lease.getFencingToken(), now + durationNanos );
+            return;
+        }
+
+        final boolean available = lease == null
+                || now > lease.getExpiresNanos() + leaseGuardNanos()
+                || isDead( lease.getHolderID() );
+
+        // give a starting node one suspect timeout to learn the membership and any existing lease before competing
+        final boolean settled = now - startedNanos > settings.getSuspectTimeout().asMillis() * 1_000_000L;
+
+        if ( available && settled && localID.equals( leaseCandidate() ) )
+        {
+            final long fencingToken = Math.max( highestFencingToken + 1, System.currentTimeMillis() );
+            highestFencingToken = fencingToken;
+            lease = new Lease( localID, fencingToken, now + durationNanos );
+            statistics.increment( DebugKey.leaseAcquisitions );
+            LOGGER.debug( () -> "gossip node " + localID + " acquired leader lease with fencing token " + fencingToken );
+        }
+    }
+
+    /**
+     * Margin kept on both sides of lease expiry: a holder stops acting as leader one protocol period before its lease
+     * lapses, and other members wait one period after before acquiring it, absorbing message delay.
+     */
+    private long leaseGuardNanos()
+    {
+        return settings.getProtocolPeriod().asMillis() * 1_000_000L;
+    }
+
+    private boolean isDead( final String instanceID )
+    {
+        final Member member = members.get( instanceID );
+        return member != null && member.getState() == GossipMessage.MemberState.dead;
+    }
+
+    /**
+     * The eldest live member, matching the election order used by the store backed node service.
+     */
+    private String leaseCandidate()
+    {
+        String candidateID = localID;
+        Instant candidateStartup = startupTime;
+        for ( final Member member : members.values() )
+        {
+            if ( member.getState() == GossipMessage.MemberState.alive && member.getStartupTime() != null )
+            {
+                final int compare = member.getStartupTime().compareTo( candidateStartup );
+                if ( compare < 0 || ( compare == 0 && member.getInstanceID().compareTo( candidateID ) < 0 ) )
+                {
+                    candidateID = member.getInstanceID();
+                    candidateStartup = member.getStartupTime();
+                }
+            }
+        }
+        return candidateID;
+    }
+
+    private void receiveLoop()
+    {
+        final byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+        while ( !closed )
+        {
+            try
+            {
+                final DatagramPacket packet = new DatagramPacket( buffer, buffer.length );
+                socket.receive( packet );
+                handlePacket( packet );
+            }
+            catch ( final IOException e )
+            {
+                if ( !closed )
+                {
+                    LOGGER.debug( () -> "error receiving gossip message: " + e.getMessage() );
+                }
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.debug( () -> "error processing gossip message: " + e.getMessage() );
+            }
+        }
+    }
+
+    private void handlePacket( final DatagramPacket packet )
+    {
+        final Optional<GossipMessage> optionalMessage = decode( packet.getData(), packet.getOffset(), packet.getLength() );
+        if ( optionalMessage.isEmpty() )
+        {
+            statistics.increment( DebugKey.messagesRejected );
+            return;
+        }
+        statistics.increment( DebugKey.messagesReceived );
+
+        final GossipMessage message = optionalMessage.get();
+        final InetSocketAddress from = ( InetSocketAddress ) packet.getSocketAddress();
+        final List<ClusterEvent> newEvents = new ArrayList<>();
+        GossipMessage reply = null;
+        GossipMessage sync = null;
+
+        synchronized ( this )
+        {
+            final boolean newSender = message.getSender() != null && mergeMember( message.getSender(), from );
+            message.memberList().forEach( update -> mergeMember( update, null ) );
+            mergeLease( message.getLease() );
+
+            for ( final ClusterEvent clusterEvent : message.eventList() )
+            {
+                if ( clusterEvent.getEventID() != null && markSeen( clusterEvent.getEventID() ) )
+                {
+                    eventBroadcasts.put( clusterEvent.getEventID(), new Pending<>( clusterEvent ) );
+                    newEvents.add( clusterEvent );
+                }
+            }
+
+            if ( message.getType() == GossipMessage.Type.ping )
+            {
+                reply = makeMessage( GossipMessage.Type.ack, message.getSeq(), null, Collections.emptyList() );
+            }
+
+            if ( newSender )
+            {
+                // bring a joining member up to date with the full membership instead of waiting for gossip
+                final List<GossipMessage.MemberUpdate> allMembers = new ArrayList<>();
+                members.values().forEach( member -> allMembers.add( member.toUpdate() ) );
+                sync = makeMessage( GossipMessage.Type.sync, 0, null, allMembers );
+            }
+        }
+
+        if ( reply != null )
+        {
+            send( from, reply );
+        }
+        if ( sync != null )
+        {
+            send( from, sync );
+        }
+
+        switch ( message.getType() )
+        {
+            case ack:
+                handleAck( message.getSeq() );
+                break;
+
+            case pingReq:
+                handlePingReq( message, from );
+                break;
+
+            default:
+                break;
+        }
+
+        for ( final ClusterEvent clusterEvent : newEvents )
+        {
+            deliver( clusterEvent );
+        }
+    }
+
+    private void handleAck( final long seq )
+    {
+        final CompletableFuture<Boolean> ackFuture = pendingAcks.get( seq );
+        if ( ackFuture != null )
+        {
+            ackFuture.complete( Boolean.TRUE );
+        }
+
+        final IndirectProbe indirectProbe = indirectProbes.remove( seq );
+        if ( indirectProbe != null )
+        {
+            final GossipMessage ack;
+            synchronized ( this )
+            {
+                ack = makeMessage( GossipMessage.Type.ack, indirectProbe.getRequesterSeq(), null, Collections.emptyList() );
+            }
+            send( indirectProbe.getRequester(), ack );
+        }
+    }
+
+    private void handlePingReq( final GossipMessage message, final InetSocketAddress from )
+    {
+        final InetSocketAddress target;
+        try
+        {
+            target = GossipSettings.parseAddress( message.getTarget() );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            LOGGER.debug( () -> "ignoring gossip probe request with invalid target: " + e.getMessage() );
+            return;
+        }
+
+        final long seq = sequence.incrementAndGet();
+        indirectProbes.put( seq, new IndirectProbe( from, message.getSeq(), System.nanoTime() ) );
+        final GossipMessage ping;
+        synchronized ( this )
+        {
+            ping = makeMessage( GossipMessage.Type.ping, seq, null, Collections.emptyList() );
+        }
+        send( target, ping );
+    }
+
+    private void deliver( final ClusterEvent clusterEvent )
+    {
+        statistics.increment( DebugKey.eventsDelivered );
+        if ( eventListener != null )
+        {
+            try
+            {
+                eventListener.accept( clusterEvent );
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.error( () -> "error delivering cluster event " + clusterEvent.getType() + ": " + e.getMessage(), e );
+            }
+        }
+    }
+
+    /**
+     * Apply a membership update using the SWIM precedence rules, returning true if the member was previously unknown.
+     *
+     * @param directAddress source address of the datagram when the update describes its sender, otherwise null
+     */
+    private boolean mergeMember( final GossipMessage.MemberUpdate update, final InetSocketAddress directAddress )
+    {
+        if ( update.getInstanceID() == null || update.getState() == null )
+        {
+            return false;
+        }
+
+        if ( localID.equals( update.getInstanceID() ) )
+        {
+            if ( update.getState() != GossipMessage.MemberState.alive && update.getIncarnation() >= incarnation )
+            {
+                incarnation = update.getIncarnation() + 1;
+                final long refutingIncarnation = incarnation;
+                statistics.increment( DebugKey.refutations );
+                LOGGER.debug( () -> "refuting " + update.getState() + " report about this node with incarnation " + refutingIncarnation );
+                enqueueMember( selfUpdate( GossipMessage.MemberState.alive ) );
+            }
+            return false;
+        }
+
+        final Member existing = members.get( update.getInstanceID() );
+        if ( existing == null )
+        {
+            final InetSocketAddress address = directAddress != null ? directAddress : parseAddressQuietly( update.getAddress() );
+            if ( address == null )
+            {
+                return false;
+            }
+            final Member member = new Member( update, address );
+            members.put( member.getInstanceID(), member );
+            enqueueMember( member.toUpdate() );
+            LOGGER.debug( () -> "gossip member " + member.getInstanceID() + " joined at " + formatAddress( address ) );
+            return true;
+        }
+
+        if ( directAddress != null )
+        {
+            existing.setAddress( directAddress );
+            existing.setLastSeen( Instant.now() );
+        }
+
+        if ( supersedes( update, existing ) )
+        {
+            existing.apply( update );
+            enqueueMember( existing.toUpdate() );
+        }
+        return false;
+    }
+
+    private static boolean supersedes( final GossipMessage.MemberUpdate update, final Member member )
+    {
+        final long incarnation = update.getIncarnation();
+        switch ( update.getState() )
+        {
+            case alive:
+                return incarnation > member.getIncarnation();
+
+            case suspect:
+                return incarnation > member.getIncarnation()
+                        || ( incarnation == member.getIncarnation() && member.getState() == GossipMessage.MemberState.alive );
+
+            case dead:
+                return incarnation > member.getIncarnation()
+                        || ( incarnation == member.getIncarnation() && member.getState() != GossipMessage.MemberState.dead );
+
+            default:
+                JavaHelper.unhandledSwitchStatement( update.getState() );
+                return false;
+        }
+    }
+
+    private void mergeLease( final GossipMessage.LeaseUpdate update )
+    {
+        if ( update == null || update.getHolderID() == null )
+        {
+            return;
+        }
+
+        highestFencingToken = Math.max( highestFencingToken, update.getFencingToken() );
+
+        // this node is the authority for its own lease; echoes of it carry less remaining time
+        if ( localID.equals( update.getHolderID() ) )
+        {
+            return;
+        }
+
+        final long expiresNanos = System.nanoTime() + update.getRemainingMs() * 1_000_000L;
+        final boolean accept = lease == null
+                || update.getFencingToken() > lease.getFencingToken()
+                || ( update.getFencingToken() == lease.getFencingToken()
+                        && update.getHolderID().equals( lease.getHolderID() )
+                        && expiresNanos > lease.getExpiresNanos() )
+
+                // two members acquired the same token concurrently; the lower instance id keeps it
+                || ( update.getFencingToken() == lease.getFencingToken()
+                        && update.getHolderID().compareTo( lease.getHolderID() ) < 0 );
+
+        if ( accept )
+        {
+            if ( lease != null && localID.equals( lease.getHolderID() ) )
+            {
+                LOGGER.debug( () -> "gossip node " + localID + " yields leader lease to " + update.getHolderID()
+                        + " with fencing token " + update.getFencingToken() );
+            }
+            lease = new Lease( update.getHolderID(), update.getFencingToken(), expiresNanos );
+        }
+    }
+
+    /**
+     * Record an event id, returning false if it was already seen.  The oldest ids are forgotten once the limit is
+     * reached; by then the event has long since stopped being retransmitted.
+     */
+    private boolean markSeen( final String eventID )
+    {
+        if ( !seenEvents.add( eventID ) )
+        {
+            return false;
+        }
+        if ( seenEvents.size() > SEEN_EVENT_LIMIT )
+        {
+            final Iterator<String> iterator = seenEvents.iterator();
+            iterator.next();
+            iterator.remove();
+        }
+        return true;
+    }
+
+    private void enqueueMember( final GossipMessage.MemberUpdate update )
+    {
+        memberBroadcasts.put( update.getInstanceID(), new Pending<>( update ) );
+    }
+
+    private GossipMessage.MemberUpdate selfUpdate( final GossipMessage.MemberState state )
+    {
+        return new GossipMessage.MemberUpdate( localID, formatAddress( localAddress ), incarnation, state, startupTime, configHash );
+    }
+
+    /**
+     * Build a message carrying this node's identity, lease view and pending broadcasts.  Callers hold the monitor.
+     */
+    private GossipMessage makeMessage(
+            final GossipMessage.Type type,
+            final long seq,
+            final String target,
+            final List<GossipMessage.MemberUpdate> extraMembers
+    )
+    {
+        final GossipMessage.GossipMessageBuilder builder = GossipMessage.builder()
+                .type( type )
+                .seq( seq )
+                .target( target )
+                .sender( selfUpdate( GossipMessage.MemberState.alive ) )
+                .members( extraMembers )
+                .timestamp( System.currentTimeMillis() )
+                .nonce( ThreadLocalRandom.current().nextLong() );
+
+        if ( lease != null )
+        {
+            final long remainingMs = Math.max( 0, ( lease.getExpiresNanos() - System.nanoTime() ) / 1_000_000L );
+            builder.lease( new GossipMessage.LeaseUpdate( lease.getHolderID(), lease.getFencingToken(), remainingMs ) );
+        }
+
+        final int retransmitLimit = RETRANSMIT_MULTIPLIER * ( 32 - Integer.numberOfLeadingZeros( members.size() + 1 ) );
+        builder.members( drainBroadcasts( memberBroadcasts, retransmitLimit ) );
+        builder.events( drainBroadcasts( eventBroadcasts, retransmitLimit ) );
+        return builder.build();
+    }
+
+    /**
+     * Select the least transmitted pending broadcasts for the next message, retiring those sent often enough to have
+     * reached every member with high probability.
+     */
+    private static <T> List<T> drainBroadcasts( final Map<String, Pending<T>> broadcasts, final int retransmitLimit )
+    {
+        if ( broadcasts.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<Pending<T>> selected = new ArrayList<>( broadcasts.values() );
+        selected.sort( Comparator.comparingInt( Pending::getTransmits ) );
+
+        final List<T> returnList = new ArrayList<>();
+        for ( final Pending<T> pending : selected.subList( 0, Math.min( MAX_PIGGYBACK, selected.size() ) ) )
+        {
+            returnList.add( pending.getItem() );
+            pending.transmitted();
+        }
+        broadcasts.values().removeIf( pending -> pending.getTransmits() >= retransmitLimit );
+        return returnList;
+    }
+
+    private void send( final InetSocketAddress address, final GossipMessage message )
+    {
+        if ( closed || address == null )
+        {
+            return;
+        }
+
+        try
+        {
+            byte[] payload = encode( message );
+            if ( payload.length > MAX_DATAGRAM_SIZE )
+            {
+                payload = encode( GossipMessage.builder()
+                        .type( message.getType() )
+                        .seq( message.getSeq() )
+                        .target( message.getTarget() )
+                        .sender( message.getSender() )
+                        .lease( message.getLease() )
+                        .timestamp( message.getTimestamp() )
+                        .nonce( message.getNonce() )
+                        .build() );
+            }
+            socket.send( new DatagramPacket( payload, payload.length, address ) );
+            statistics.increment( DebugKey.messagesSent );
+        }
+        catch ( final IOException | PwmUnrecoverableException e )
+        {
+            if ( !closed )
+            {
+                LOGGER.debug( () -> "error sending gossip message to " + formatAddress( address ) + ": " + e.getMessage() );
+            }
+        }
+    }
+
+    byte[] encode( final GossipMessage message )
+            throws PwmUnrecoverableException
+    {
+        final byte[] body = JsonUtil.serialize( message ).getBytes( PwmConstants.DEFAULT_CHARSET );
+        final byte[] mac = SecureEngine.computeHmacToBytes( HMAC_ALGORITHM, settings.getSecurityKey(), body );
+        final byte[] output = Arrays.copyOf( mac, mac.length + body.length );
+        System.arraycopy( body, 0, output, mac.length, body.length );
+        return output;
+    }
+
+    /**
+     * Verify and parse a datagram, returning empty if it is not authentic, outside the replay window or a replay.
+     */
+    Optional<GossipMessage> decode( final byte[] data, final int offset, final int length )
+    {
+        final int macLength = HMAC_ALGORITHM.getLength();
+        if ( length <= macLength )
+        {
+            return Optional.empty();
+        }
+
+        try
+        {
+            final byte[] mac = Arrays.copyOfRange( data, offset, offset + macLength );
+            final byte[] body = Arrays.copyOfRange( data, offset + macLength, offset + length );
+            final byte[] expectedMac = SecureEngine.computeHmacToBytes( HMAC_ALGORITHM, settings.getSecurityKey(), body );
+            if ( !MessageDigest.isEqual( mac, expectedMac ) )
+            {
+                return Optional.empty();
+            }
+            final GossipMessage message = JsonUtil.deserialize( new String( body, PwmConstants.DEFAULT_CHARSET ), GossipMessage.class );
+            if ( message == null )
+            {
+                return Optional.empty();
+            }
+
+            final long ageMs = Math.abs( System.currentTimeMillis() - message.getTimestamp() );
+            if ( ageMs > settings.getReplayWindow().asMillis() || seenNonces.asMap().putIfAbsent( message.getNonce(), Boolean.TRUE ) != null )
+            {
+                statistics.increment( DebugKey.messagesReplayed );
+                return Optional.empty();
+            }
+            return Optional.of( message );
+        }
+        catch ( final PwmUnrecoverableException | RuntimeException e )
+        {
+            LOGGER.debug( () -> "unable to decode gossip message: " + e.getMessage() );
+            return Optional.empty();
+        }
+    }
+
+    private static InetSocketAddress parseAddressQuietly( final String address )
+    {
+        try
+        {
+            return address == null ? null : GossipSettings.parseAddress( address );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            return null;
+        }
+    }
+
+    private static String formatAddress( final InetSocketAddress address )
+    {
+        final String host = address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+        return ( host.contains( ":" ) ? "[" + host + "]" : host ) + ":" + address.getPort();
+    }
+
+    private static class Member
+    {
+        private final String instanceID;
+        private final Instant startupTime;
+        private String configHash;
+        private InetSocketAddress address;
+        private long incarnation;
+        private GossipMessage.MemberState state;
+        private long stateChangeNanos;
+        private Instant lastSeen;
+
+        Member( final GossipMessage.MemberUpdate update, final InetSocketAddress address )
+        {
+            this.instanceID = update.getInstanceID();
+            this.startupTime = update.getStartupTime();
+            this.configHash = update.getConfigHash();
+            this.address = address;
+            this.incarnation = update.getIncarnation();
+            this.state = update.getState();
+            this.stateChangeNanos = System.nanoTime();
+            this.lastSeen = Instant.now();
+        }
+
+        String getInstanceID()
+        {
+            return instanceID;
+        }
+
+        Instant getStartupTime()
+        {
+            return startupTime;
+        }
+
+        String getConfigHash()
+        {
+            return configHash;
+        }
+
+        InetSocketAddress getAddress()
+        {
+            return address;
+        }
+
+        void setAddress( final InetSocketAddress address )
+        {
+            this.address = address;
+        }
+
+        long getIncarnation()
+        {
+            return incarnation;
+        }
+
+        GossipMessage.MemberState getState()
+        {
+            return state;
+        }
+
+        void setState( final GossipMessage.MemberState state )
+        {
+            this.state = state;
+            this.stateChangeNanos = System.nanoTime();
+        }
+
+        long getStateChangeNanos()
+        {
+            return stateChangeNanos;
+        }
+
+        Instant getLastSeen()
+        {
+            return lastSeen;
+        }
+
+        void setLastSeen( final Instant lastSeen )
+        {
+            this.lastSeen = lastSeen;
+        }
+
+        void apply( final GossipMessage.MemberUpdate update )
+        {
+            incarnation = update.getIncarnation();
+            if ( update.getConfigHash() != null )
+            {
+                configHash = update.getConfigHash();
+            }
+            if ( state != update.getState() )
+            {
+                setState( update.getState() );
+            }
+        }
+
+        GossipMessage.MemberUpdate toUpdate()
+        {
+            return new GossipMessage.MemberUpdate( instanceID, formatAddress( address ), incarnation, state, startupTime, configHash );
+        }
+    }
+
+    private static class Pending<T>
+    {
+        private final T item;
+        private int transmits;
+
+        Pending( final T item )
+        {
+            this.item = item;
+        }
+
+        T getItem()
+        {
+            return item;
+        }
+
+        int getTransmits()
+        {
+            return transmits;
+        }
+
+        void transmitted()
+        {
+            transmits++;
+        }
+    }
+
+    @Value
+    private static class Lease
+    {
+        private final String holderID;
+        private final long fencingToken;
+        private final long expiresNanos;
+    }
+
+    @Value
+    private static class IndirectProbe
+    {
+        private final InetSocketAddress requester;
+        private final long requesterSeq;
+        private final long createdNanos;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.node;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import password.pwm.AppProperty;
+import password.pwm.config.AppConfig;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.secure.PwmSecurityKey;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+@Value
+@Builder
+class GossipSettings
+{
+    private final InetSocketAddress listenAddress;
+
+    /**
+     * Address other nodes use to reach this node, or null to use the listen address.
+     */
+    private final InetSocketAddress advertiseAddress;
+
+    @Singular
+    private final List<InetSocketAddress> peers;
+
+    private final TimeDuration protocolPeriod;
+    private final TimeDuration pingTimeout;
+    private final int indirectProbes;
+    private final TimeDuration suspectTimeout;
+    private final TimeDuration leaseDuration;
+
+    /**
+     * Maximum age of an accepted message; it must exceed the clock skew between nodes.
+     */
+    private final TimeDuration replayWindow;
+
+    /**
+     * Key used to authenticate gossip messages; every node of the cluster shares the configuration security key.
+     */
+    private final PwmSecurityKey securityKey;
+
+    static GossipSettings fromConfig( final AppConfig appConfig )
+            throws PwmUnrecoverableException
+    {
+        final GossipSettings.GossipSettingsBuilder builder = GossipSettings.builder()
+                .listenAddress( parseAddress( appConfig.readAppProperty( AppProperty.CLUSTER_GOSSIP_LISTEN_ADDRESS ) ) )
+                .protocolPeriod( appConfig.readDurationAppProperty( AppProperty.CLUSTER_GOSSIP_PROTOCOL_PERIOD_MS ) )
+                .pingTimeout( appConfig.readDurationAppProperty( AppProperty.CLUSTER_GOSSIP_PING_TIMEOUT_MS ) )
+                .indirectProbes( Integer.parseInt( appConfig.readAppProperty( AppProperty.CLUSTER_GOSSIP_INDIRECT_PROBES ) ) )
+                .suspectTimeout( appConfig.readDurationAppProperty( AppProperty.CLUSTER_GOSSIP_SUSPECT_TIMEOUT_MS ) )
+                .leaseDuration( appConfig.readDurationAppProperty( AppProperty.CLUSTER_GOSSIP_LEASE_DURATION_MS ) )
+                .replayWindow( appConfig.readDurationAppProperty( AppProperty.CLUSTER_GOSSIP_REPLAY_WINDOW_MS ) )
+                .securityKey( appConfig.getSecurityKey() );
+
+        final String advertiseAddress = appConfig.readAppProperty( AppProperty.CLUSTER_GOSSIP_ADVERTISE_ADDRESS );
+        if ( !StringUtil.isEmpty( advertiseAddress ) )
+        {
+            builder.advertiseAddress( parseAddress( advertiseAddress ) );
+        }
+
+        for ( final String peer : StringUtil.splitAndTrim( appConfig.readAppProperty( AppProperty.CLUSTER_GOSSIP_PEERS ), "," ) )
+        {
+            if ( !StringUtil.isEmpty( peer ) )
+            {
+                builder.peer( parseAddress( peer ) );
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Parse a {@code host:port} address.  An empty host means the wildcard address, and IPv6 hosts may be bracketed.
+     */
+    static InetSocketAddress parseAddress( final String input )
+            throws PwmUnrecoverableException
+    {
+        final String value = input == null ? "" : input.trim();
+        final int separator = value.lastIndexOf( ':' );
+        if ( separator < 0 )
+        {
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_NODE_SERVICE_ERROR,
+                    "gossip address '" + value + "' must be in host:port form" ) );
+        }
+
+        String host = value.substring( 0, separator );
+        if ( host.startsWith( "[" ) && host.endsWith( "]" ) )
+        {
+            host = host.substring( 1, host.length() - 1 );
+        }
+
+        try
+        {
+            final int port = Integer.parseInt( value.substring( separator + 1 ) );
+            return StringUtil.isEmpty( host )
+                    ? new InetSocketAddress( port )
+                    : new InetSocketAddress( host, port );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_NODE_SERVICE_ERROR,
+                    "invalid gossip address '" + value + "': " + e.getMessage() ) );
+        }
+    }
+}
@@ -20,22 +20,28 @@
 
 package password.pwm.svc.node;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmDomain;
 import password.pwm.bean.DomainID;
 import password.pwm.bean.UserIdentity;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.option.DataStorageMethod;
+import password.pwm.config.stored.StoredConfigurationUtil;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthMessage;
 import password.pwm.health.HealthRecord;
+import password.pwm.http.ContextManager;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.intruder.IntruderRecord;
+import password.pwm.svc.otp.OtpService;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.StringUtil;
 import password.pwm.util.logging.PwmLogger;
 
 import java.util.Collections;
@@ -49,6 +55,7 @@ public class NodeService extends AbstractPwmService implements PwmService
     private static final PwmLogger LOGGER = PwmLogger.forClass( NodeService.class );
 
     private NodeMachine nodeMachine;
+    private GossipNode gossipNode;
     private DataStorageMethod dataStore;
 
     @Override
@@ -96,6 +103,17 @@ public class NodeService extends AbstractPwmService implements PwmService
 
                 nodeMachine = new NodeMachine( pwmApplication, clusterDataServiceProvider, nodeServiceSettings );
             }
+
+            if ( pwmApplication.getConfig().readBooleanAppProperty( AppProperty.CLUSTER_GOSSIP_ENABLE ) )
+            {
+                LOGGER.trace( () -> "starting gossip membership node" );
+                gossipNode = new GossipNode(
+                        GossipSettings.fromConfig( pwmApplication.getConfig() ),
+                        pwmApplication.getInstanceID(),
+                        pwmApplication.getStartupTime(),
+                        StoredConfigurationUtil.valueHash( pwmApplication.getConfig().getStoredConfiguration() ),
+                        this::deliverClusterEvent );
+            }
         }
         catch ( final PwmUnrecoverableException e )
         {
@@ -116,6 +134,11 @@ public class NodeService extends AbstractPwmService implements PwmService
     @Override
     public void close( )
     {
+        if ( gossipNode != null )
+        {
+            gossipNode.close();
+            gossipNode = null;
+        }
         if ( nodeMachine != null )
         {
             nodeMachine.close();
@@ -159,6 +182,10 @@ public class NodeService extends AbstractPwmService implements PwmService
         {
             props.putAll( JsonUtil.deserializeStringMap( JsonUtil.serialize( nodeMachine.getNodeServiceStatistics() ) ) );
         }
+        if ( gossipNode != null )
+        {
+            gossipNode.debugStats().forEach( ( key, value ) -> props.put( "gossip." + key, value ) );
+        }
         return ServiceInfoBean.builder()
                 .storageMethod( dataStore )
                 .debugProperties( props )
@@ -167,6 +194,11 @@ public class NodeService extends AbstractPwmService implements PwmService
 
     public boolean isMaster( )
     {
+        if ( status() == STATUS.OPEN && gossipNode != null )
+        {
+            return gossipNode.isLeader();
+        }
+
         if ( status() == STATUS.OPEN && nodeMachine != null )
         {
             return nodeMachine.isMaster();
@@ -177,6 +209,11 @@ public class NodeService extends AbstractPwmService implements PwmService
 
     public List<NodeInfo> nodes( ) throws PwmUnrecoverableException
     {
+        if ( status() == STATUS.OPEN && gossipNode != null )
+        {
+            return gossipNode.nodes();
+        }
+
         if ( status() == STATUS.OPEN && nodeMachine != null )
         {
             return nodeMachine.nodes();
@@ -184,6 +221,114 @@ public class NodeService extends AbstractPwmService implements PwmService
         return Collections.emptyList();
     }
 
+    /**
+     * Broadcast an event to the other cluster nodes.  Has no effect unless gossip membership is enabled.
+     */
+    public void broadcastClusterEvent( final ClusterEvent.Type type, final String payload )
+    {
+        if ( status() == STATUS.OPEN && gossipNode != null )
+        {
+            gossipNode.broadcast( type, payload );
+        }
+    }
+
+    private void deliverClusterEvent( final ClusterEvent clusterEvent )
+    {
+        LOGGER.trace( () -> "received cluster event " + clusterEvent.getType() + " from " + clusterEvent.getOriginInstanceID() );
+
+        switch ( clusterEvent.getType() )
+        {
+            case cacheInvalidate:
+                receiveCacheInvalidate( clusterEvent.getPayload() );
+                break;
+
+            case intruderLockout:
+                receiveIntruderLockout( clusterEvent.getPayload() );
+                break;
+
+            case configReload:
+                receiveConfigReload( clusterEvent.getPayload() );
+                break;
+
+            case otpCodeConsumed:
+                receiveOtpCodeConsumed( clusterEvent.getPayload() );
+                break;
+
+            default:
+                JavaHelper.unhandledSwitchStatement( clusterEvent.getType() );
+        }
+    }
+
+    private void receiveCacheInvalidate( final String payload )
+    {
+        if ( StringUtil.isEmpty( payload ) )
+        {
+            getPwmApplication().getCacheService().clear();
+            return;
+        }
+
+        try
+        {
+            final UserIdentity userIdentity = UserIdentity.fromDelimitedKey( getSessionLabel(), payload );
+            getPwmApplication().getCacheService().removeUserEntries( userIdentity );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            LOGGER.debug( () -> "clearing cache after cache invalidation event with unreadable user key: " + e.getMessage() );
+            getPwmApplication().getCacheService().clear();
+        }
+    }
+
+    private void receiveIntruderLockout( final String payload )
+    {
+        final IntruderRecord intruderRecord = JsonUtil.deserialize( payload, IntruderRecord.class );
+        if ( intruderRecord == null || intruderRecord.getDomainID() == null )
+        {
+            return;
+        }
+
+        final PwmDomain pwmDomain = getPwmApplication().domains().get( intruderRecord.getDomainID() );
+        if ( pwmDomain != null && pwmDomain.getIntruderService() != null )
+        {
+            pwmDomain.getIntruderService().applyClusterLockout( intruderRecord );
+        }
+    }
+
+    private void receiveOtpCodeConsumed( final String payload )
+    {
+        final OtpService.ConsumedCodeRecord consumedCodeRecord = JsonUtil.deserialize( payload, OtpService.ConsumedCodeRecord.class );
+        if ( consumedCodeRecord == null || consumedCodeRecord.getDomainID() == null )
+        {
+            return;
+        }
+
+        final PwmDomain pwmDomain = getPwmApplication().domains().get( consumedCodeRecord.getDomainID() );
+        if ( pwmDomain != null && pwmDomain.getOtpService() != null )
+        {
+            pwmDomain.getOtpService().applyClusterConsumedCode( consumedCodeRecord );
+        }
+    }
+
+    private void receiveConfigReload( final String configHash )
+    {
+        final ContextManager contextManager = getPwmApplication().getPwmEnvironment().getContextManager();
+        if ( contextManager == null || contextManager.getConfigReader() == null )
+        {
+            return;
+        }
+
+        if ( contextManager.getConfigReader().modifiedSinceLoad() )
+        {
+            LOGGER.info( () -> "configuration file modification detected after configuration reload event from cluster" );
+            contextManager.requestPwmApplicationRestart();
+        }
+        else
+        {
+            LOGGER.debug( () -> "configuration reload event from cluster with config hash " + configHash
+                    + ", local configuration file is unchanged" );
+        }
+    }
+
     private void figureDataStorageMethod( final PwmDomain pwmDomain )
             throws PwmUnrecoverableException
     {
@@ -23,7 +23,7 @@ package password.pwm.svc.otp;
 import com.novell.ldapchai.ChaiUser;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
 import lombok.Getter;
-import org.apache.commons.codec.binary.Base32;
+import lombok.Value;
 import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
@@ -46,27 +46,34 @@ import password.pwm.http.PwmRequest;
 import password.pwm.ldap.LdapOperationsHelper;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.node.ClusterEvent;
+import password.pwm.svc.node.NodeService;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroRequest;
+import password.pwm.util.secure.PasswordHashAlgorithm;
+import password.pwm.util.secure.PasswordHasher;
 import password.pwm.util.secure.PwmRandom;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 /**
@@ -79,6 +86,7 @@ public class OtpService extends AbstractPwmService implements PwmService
     private final Map<DataStorageMethod, OtpOperator> operatorMap = new EnumMap<>( DataStorageMethod.class );
     private PwmDomain pwmDomain;
     private OtpSettings settings;
+    private OtpVerifier otpVerifier;
 
     public OtpService( )
     {
@@ -92,9 +100,71 @@ public class OtpService extends AbstractPwmService implements PwmService
         operatorMap.put( DataStorageMethod.LOCALDB, new LocalDbOtpOperator( pwmDomain ) );
         operatorMap.put( DataStorageMethod.DB, new DbOtpOperator( pwmDomain ) );
         settings = OtpSettings.fromConfig( pwmDomain.getConfig() );
+        otpVerifier = new OtpVerifier(
+                settings,
+                Integer.parseInt( pwmDomain.getConfig().readAppProperty( AppProperty.OTP_VERIFY_CACHE_SIZE ) ),
+                this::broadcastConsumedCode );
         return STATUS.OPEN;
     }
 
+    /**
+     * Check a code without using it up, such as when a user tests a new secret during enrollment.  Recovery codes are
+     * not accepted.
+     */
+    public boolean checkToken(
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity,
+            final OTPUserRecord otpUserRecord,
+            final String userInput
+    )
+    {
+        if ( otpUserRecord == null || otpUserRecord.getType() != OTPUserRecord.Type.TOTP )
+        {
+            return false;
+        }
+
+        try
+        {
+            final String userKey = userIdentity == null ? null : userIdentity.toDelimitedKey();
+            return otpVerifier.checkTimeoutCode( userKey, otpUserRecord.getSecret(), userInput ) == OtpVerifier.Result.VALID;
+        }
+        catch ( final GeneralSecurityException e )
+        {
+            LOGGER.error( sessionLabel, () -> "error checking otp secret: " + e.getMessage() );
+            return false;
+        }
+    }
+
+    /**
+     * Remember a code used on another cluster node, so it can not be used again on this node.
+     */
+    public void applyClusterConsumedCode( final ConsumedCodeRecord consumedCodeRecord )
+    {
+        if ( status() != STATUS.OPEN || otpVerifier == null || StringUtil.isEmpty( consumedCodeRecord.getUserKey() ) )
+        {
+            return;
+        }
+
+        otpVerifier.applyConsumedCode( new OtpVerifier.ConsumedCode(
+                consumedCodeRecord.getUserKey(),
+                consumedCodeRecord.getCode(),
+                consumedCodeRecord.getStep() ) );
+    }
+
+    private void broadcastConsumedCode( final OtpVerifier.ConsumedCode consumedCode )
+    {
+        final NodeService nodeService = pwmDomain.getPwmApplication().getNodeService();
+        if ( nodeService != null )
+        {
+            final ConsumedCodeRecord consumedCodeRecord = new ConsumedCodeRecord(
+                    pwmDomain.getDomainID(),
+                    consumedCode.getUserKey(),
+                    consumedCode.getCode(),
+                    consumedCode.getStep() );
+            nodeService.broadcastClusterEvent( ClusterEvent.Type.otpCodeConsumed, JsonUtil.serialize( consumedCodeRecord ) );
+        }
+    }
+
     public boolean validateToken(
             final SessionLabel sessionLabel,
             final UserIdentity userIdentity,
@@ -107,15 +177,10 @@ public class OtpService extends AbstractPwmService implements PwmService
         boolean otpCorrect = false;
         try
         {
-            final Base32 base32 = new Base32();
-            final byte[] rawSecret = base32.decode( otpUserRecord.getSecret() );
-            final Mac mac = Mac.getInstance( "HMACSHA1" );
-            mac.init( new SecretKeySpec( rawSecret, "" ) );
-            final PasscodeGenerator generator = new PasscodeGenerator( mac, settings.getOtpTokenLength(), settings.getTotpIntervalSeconds() );
             switch ( otpUserRecord.getType() )
             {
                 case TOTP:
-                    otpCorrect = generator.verifyTimeoutCode( userInput, settings.getTotpPastIntervals(), settings.getTotpFutureIntervals() );
+                    otpCorrect = verifyTimeoutCode( sessionLabel, userIdentity, otpUserRecord, userInput );
                     break;
 
                 //@todo HOTP implementation
@@ -131,35 +196,79 @@ public class OtpService extends AbstractPwmService implements PwmService
 
         if ( !otpCorrect && allowRecoveryCodes && otpUserRecord.getRecoveryCodes() != null && otpUserRecord.getRecoveryInfo() != null )
         {
-            final OTPUserRecord.RecoveryInfo recoveryInfo = otpUserRecord.getRecoveryInfo();
-            final String userHashedInput = doRecoveryHash( userInput, recoveryInfo );
-            for ( final OTPUserRecord.RecoveryCode code : otpUserRecord.getRecoveryCodes() )
+            final Optional<OTPUserRecord.RecoveryCode> code = findRecoveryCode( otpUserRecord, userInput );
+            if ( code.isPresent() )
             {
-                if ( code.getHashCode().equals( userInput ) || code.getHashCode().equals( userHashedInput ) )
+                if ( code.get().isUsed() )
                 {
-                    if ( code.isUsed() )
-                    {
-                        throw new PwmOperationalException( PwmError.ERROR_OTP_RECOVERY_USED,
-                                "recovery code has been previously used" );
-                    }
+                    throw new PwmOperationalException( PwmError.ERROR_OTP_RECOVERY_USED,
+                            "recovery code has been previously used" );
+                }
 
-                    code.setUsed( true );
-                    try
-                    {
-                        pwmDomain.getOtpService().writeOTPUserConfiguration( null, userIdentity, otpUserRecord );
-                    }
-                    catch ( final ChaiUnavailableException e )
-                    {
-                        throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_WRITING_OTP_SECRET, e.getMessage() ) );
-                    }
-                    otpCorrect = true;
+                code.get().setUsed( true );
+                try
+                {
+                    pwmDomain.getOtpService().writeOTPUserConfiguration( null, userIdentity, otpUserRecord );
                 }
+                catch ( final ChaiUnavailableException e )
+                {
+                    throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_WRITING_OTP_SECRET, e.getMessage() ) );
+                }
+                otpCorrect = true;
             }
         }
 
         return otpCorrect;
     }
 
+    private boolean verifyTimeoutCode(
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity,
+            final OTPUserRecord otpUserRecord,
+            final String userInput
+    )
+            throws GeneralSecurityException
+    {
+        final String userKey = userIdentity == null ? null : userIdentity.toDelimitedKey();
+        final OtpVerifier.Result result = otpVerifier.verifyTimeoutCode( userKey, otpUserRecord.getSecret(), userInput );
+        if ( result == OtpVerifier.Result.REPLAYED )
+        {
+            LOGGER.debug( sessionLabel, () -> "rejecting otp code for " + userIdentity + " that has already been used" );
+        }
+        return result == OtpVerifier.Result.VALID;
+    }
+
+    /**
+     * Find the stored recovery code matching the input.  The input is hashed once and looked up in an index of the
+     * stored values, which also covers records that store unhashed codes.
+     */
+    private Optional<OTPUserRecord.RecoveryCode> findRecoveryCode( final OTPUserRecord otpUserRecord, final String userInput )
+            throws PwmUnrecoverableException
+    {
+        if ( StringUtil.isEmpty( userInput ) )
+        {
+            return Optional.empty();
+        }
+
+        final Map<String, OTPUserRecord.RecoveryCode> codeIndex = new HashMap<>( otpUserRecord.getRecoveryCodes().size() * 2 );
+        for ( final OTPUserRecord.RecoveryCode code : otpUserRecord.getRecoveryCodes() )
+        {
+            if ( code != null && code.getHashCode() != null )
+            {
+                codeIndex.putIfAbsent( code.getHashCode(), code );
+            }
+        }
+
+        final OTPUserRecord.RecoveryCode plainMatch = codeIndex.get( userInput );
+        if ( plainMatch != null )
+        {
+            return Optional.of( plainMatch );
+        }
+
+        final String userHashedInput = doRecoveryHash( userInput, otpUserRecord.getRecoveryInfo() );
+        return Optional.ofNullable( codeIndex.get( userHashedInput ) );
+    }
+
     private List<String> createRawRecoveryCodes( final int numRecoveryCodes, final SessionLabel sessionLabel )
             throws PwmUnrecoverableException
     {
@@ -216,8 +325,12 @@ public class OtpService extends AbstractPwmService implements PwmService
                 LOGGER.trace( sessionLabel, () -> "hashing the recovery codes" );
                 final int saltCharLength = Integer.parseInt( pwmDomain.getConfig().readAppProperty( AppProperty.OTP_SALT_CHARLENGTH ) );
                 recoveryInfo.setSalt( pwmRandom.alphaNumericString( saltCharLength ) );
-                recoveryInfo.setHashCount( settings.getRecoveryHashIterations() );
                 recoveryInfo.setHashMethod( settings.getRecoveryHashMethod() );
+                final Optional<PasswordHashAlgorithm> adaptiveAlgorithm = JavaHelper.readEnumFromString(
+                        PasswordHashAlgorithm.class, settings.getRecoveryHashMethod() );
+                recoveryInfo.setHashCount( adaptiveAlgorithm.isPresent()
+                        ? passwordHasher().getCost( adaptiveAlgorithm.get() )
+                        : settings.getRecoveryHashIterations() );
             }
             else
             {
@@ -260,13 +373,28 @@ public class OtpService extends AbstractPwmService implements PwmService
         return secArray;
     }
 
+    /**
+     * Hash a recovery code using the method recorded with the codes.  Besides message digest names, the method may
+     * name a {@link PasswordHashAlgorithm}, in which case the hash count is its cost.  Codes in a record share a
+     * salt, so an input is hashed once and compared against every stored code.
+     */
     public String doRecoveryHash(
             final String input,
             final OTPUserRecord.RecoveryInfo recoveryInfo
     )
             throws IllegalStateException, PwmUnrecoverableException
     {
-        final String algorithm = settings.getRecoveryHashMethod();
+        final String algorithm = StringUtil.isEmpty( recoveryInfo.getHashMethod() )
+                ? settings.getRecoveryHashMethod()
+                : recoveryInfo.getHashMethod();
+
+        final Optional<PasswordHashAlgorithm> adaptiveAlgorithm = JavaHelper.readEnumFromString( PasswordHashAlgorithm.class, algorithm );
+        if ( adaptiveAlgorithm.isPresent() )
+        {
+            final byte[] salt = Arrays.copyOf( saltDigest( recoveryInfo.getSalt() ), PasswordHashAlgorithm.SALT_LENGTH );
+            return passwordHasher().hash( adaptiveAlgorithm.get(), input.trim(), recoveryInfo.getHashCount(), salt );
+        }
+
         final MessageDigest md;
         try
         {
@@ -290,6 +418,24 @@ public class OtpService extends AbstractPwmService implements PwmService
         return StringUtil.base64Encode( hashedBytes );
     }
 
+    private static byte[] saltDigest( final String salt )
+    {
+        try
+        {
+            final String saltValue = salt == null ? "" : salt.trim();
+            return MessageDigest.getInstance( "SHA-256" ).digest( saltValue.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "unable to load SHA-256 message digest algorithm: " + e.getMessage() );
+        }
+    }
+
+    private PasswordHasher passwordHasher()
+    {
+        return pwmDomain.getPwmApplication().getSecureService().getPasswordHasher();
+    }
+
     @Override
     public void close( )
     {
@@ -512,6 +658,18 @@ public class OtpService extends AbstractPwmService implements PwmService
         return userGUID;
     }
 
+    /**
+     * A time based code used on one cluster node, reported to the other nodes.
+     */
+    @Value
+    public static class ConsumedCodeRecord implements Serializable
+    {
+        private final DomainID domainID;
+        private final String userKey;
+        private final String code;
+        private final long step;
+    }
+
     @Getter
     public static class OtpSettings implements Serializable
     {
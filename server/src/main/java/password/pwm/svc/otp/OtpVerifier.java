@@ -0,0 +1,266 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.otp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import org.apache.commons.codec.binary.Base32;
+import password.pwm.util.java.StringUtil;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Verifies time based codes against a per user window of valid codes.  The window is computed once per time step and
+ * reused by later attempts in the same step; codes for steps that stay inside the window as it advances are carried
+ * forward rather than recomputed.
+ *
+ * <p>Accepted codes are remembered until their step leaves the window, so a code can only be used once.  Both caches
+ * are bounded, and a remembered code evicted by a flood of distinct users can be accepted again.</p>
+ *
+ * <p>The remembered codes are held by this node.  Each accepted code is passed to a listener so it can be reported to
+ * the other nodes of a cluster and applied there with {@link #applyConsumedCode(ConsumedCode)}.  Reports arrive
+ * asynchronously, so a code presented to two nodes at the same moment can still be accepted by both.</p>
+ */
+final class OtpVerifier
+{
+    enum Result
+    {
+        VALID,
+        INVALID,
+        REPLAYED,
+    }
+
+    private final int codeLength;
+    private final int intervalSeconds;
+    private final int pastIntervals;
+    private final int futureIntervals;
+    private final LongSupplier clock;
+    private final Consumer<ConsumedCode> consumedCodeListener;
+
+    private final Cache<String, CodeWindow> windows;
+    private final Cache<ConsumedCode, Boolean> consumedCodes;
+
+    OtpVerifier( final OtpService.OtpSettings settings, final int cacheSize, final Consumer<ConsumedCode> consumedCodeListener )
+    {
+        this( settings.getOtpTokenLength(), settings.getTotpIntervalSeconds(), settings.getTotpPastIntervals(), settings.getTotpFutureIntervals(),
+                cacheSize, System::currentTimeMillis, consumedCodeListener );
+    }
+
+    OtpVerifier(
+            final int codeLength,
+            final int intervalSeconds,
+            final int pastIntervals,
+            final int futureIntervals,
+            final int cacheSize,
+            final LongSupplier clock
+    )
+    {
+        this( codeLength, intervalSeconds, pastIntervals, futureIntervals, cacheSize, clock, consumedCode ->
+        {
+        } );
+    }
+
+    OtpVerifier(
+            final int codeLength,
+            final int intervalSeconds,
+            final int pastIntervals,
+            final int futureIntervals,
+            final int cacheSize,
+            final LongSupplier clock,
+            final Consumer<ConsumedCode> consumedCodeListener
+    )
+    {
+        this.codeLength = codeLength;
+        this.intervalSeconds = intervalSeconds;
+        this.pastIntervals = pastIntervals;
+        this.futureIntervals = futureIntervals;
+        this.clock = clock;
+        this.consumedCodeListener = consumedCodeListener;
+
+        final Duration interval = Duration.ofSeconds( intervalSeconds );
+        this.windows = Caffeine.newBuilder()
+                .maximumSize( cacheSize )
+                .expireAfterWrite( interval )
+                .build();
+
+        // an accepted step remains inside the window for at most this long
+        this.consumedCodes = Caffeine.newBuilder()
+                .maximumSize( cacheSize )
+                .expireAfterWrite( interval.multipliedBy( pastIntervals + futureIntervals + 1L ) )
+                .build();
+    }
+
+    /**
+     * Verify a time based code and remember it as used.  Codes verified without a user key are checked but not remembered.
+     */
+    Result verifyTimeoutCode( final String userKey, final String encodedSecret, final String code )
+            throws GeneralSecurityException
+    {
+        return verify( userKey, encodedSecret, code, true );
+    }
+
+    /**
+     * Check a time based code without using it up, so it can still be used for a later verification.
+     */
+    Result checkTimeoutCode( final String userKey, final String encodedSecret, final String code )
+            throws GeneralSecurityException
+    {
+        return verify( userKey, encodedSecret, code, false );
+    }
+
+    /**
+     * Remember a code accepted by another node.
+     */
+    void applyConsumedCode( final ConsumedCode consumedCode )
+    {
+        consumedCodes.put( consumedCode, Boolean.TRUE );
+    }
+
+    private Result verify( final String userKey, final String encodedSecret, final String code, final boolean consume )
+            throws GeneralSecurityException
+    {
+        if ( StringUtil.isEmpty( code ) || StringUtil.isEmpty( encodedSecret ) )
+        {
+            return Result.INVALID;
+        }
+
+        final long currentStep = clock.getAsLong() / 1000 / intervalSeconds;
+        final CodeWindow window = readWindow( userKey, encodedSecret, currentStep );
+
+        final Long matchedStep = window.getCodeSteps().get( code );
+        if ( matchedStep == null )
+        {
+            return Result.INVALID;
+        }
+
+        if ( userKey == null )
+        {
+            return Result.VALID;
+        }
+
+        final ConsumedCode consumedCode = new ConsumedCode( userKey, code, matchedStep );
+        if ( !consume )
+        {
+            return consumedCodes.getIfPresent( consumedCode ) == null ? Result.VALID : Result.REPLAYED;
+        }
+
+        if ( consumedCodes.asMap().putIfAbsent( consumedCode, Boolean.TRUE ) != null )
+        {
+            return Result.REPLAYED;
+        }
+
+        consumedCodeListener.accept( consumedCode );
+        return Result.VALID;
+    }
+
+    private CodeWindow readWindow( final String userKey, final String encodedSecret, final long currentStep )
+            throws GeneralSecurityException
+    {
+        if ( userKey == null )
+        {
+            return makeWindow( encodedSecret, currentStep, null );
+        }
+
+        final CodeWindow existing = windows.getIfPresent( userKey );
+        if ( existing != null && existing.getStep() == currentStep && existing.getEncodedSecret().equals( encodedSecret ) )
+        {
+            return existing;
+        }
+
+        final CodeWindow window = makeWindow( encodedSecret, currentStep, existing );
+        windows.put( userKey, window );
+        return window;
+    }
+
+    private CodeWindow makeWindow( final String encodedSecret, final long currentStep, final CodeWindow previous )
+            throws GeneralSecurityException
+    {
+        final Map<Long, String> reusableCodes = previous != null && previous.getEncodedSecret().equals( encodedSecret )
+                ? previous.getStepCodes()
+                : Map.of();
+
+        PasscodeGenerator generator = null;
+        final Map<Long, String> stepCodes = new HashMap<>();
+        for ( long step = currentStep - pastIntervals; step <= currentStep + futureIntervals; step++ )
+        {
+            String code = reusableCodes.get( step );
+            if ( code == null )
+            {
+                if ( generator == null )
+                {
+                    generator = makeGenerator( encodedSecret );
+                }
+                code = generator.generateResponseCode( step );
+            }
+            stepCodes.put( step, code );
+        }
+
+        // should two steps share a code, attribute it to the current step, then past steps, then future steps
+        final Map<String, Long> codeSteps = new HashMap<>();
+        codeSteps.put( stepCodes.get( currentStep ), currentStep );
+        for ( int i = 1; i <= pastIntervals; i++ )
+        {
+            codeSteps.putIfAbsent( stepCodes.get( currentStep - i ), currentStep - i );
+        }
+        for ( int i = 1; i <= futureIntervals; i++ )
+        {
+            codeSteps.putIfAbsent( stepCodes.get( currentStep + i ), currentStep + i );
+        }
+
+        return new CodeWindow( encodedSecret, currentStep, Map.copyOf( stepCodes ), Map.copyOf( codeSteps ) );
+    }
+
+    private PasscodeGenerator makeGenerator( final String encodedSecret )
+            throws GeneralSecurityException
+    {
+        final byte[] rawSecret = new Base32().decode( encodedSecret );
+        final Mac mac = Mac.getInstance( "HMACSHA1" );
+        mac.init( new SecretKeySpec( rawSecret, "" ) );
+        return new PasscodeGenerator( mac, codeLength, intervalSeconds );
+    }
+
+    @Value
+    private static class CodeWindow
+    {
+        private final String encodedSecret;
+        private final long step;
+        private final Map<Long, String> stepCodes;
+        private final Map<String, Long> codeSteps;
+    }
+
+    @Value
+    static class ConsumedCode implements Serializable
+    {
+        private final String userKey;
+        private final String code;
+        private final long step;
+    }
+}
@@ -140,7 +140,7 @@ public class PwNotifyService extends AbstractPwmService implements PwmService
                     JavaHelper.unhandledSwitchStatement( storageMethod );
             }
 
-            executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
+            executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass(), PwmScheduler.WorkloadClass.IoBound );
 
             engine = new PwNotifyEngine( this, pwmDomain, storageService, null );
 
@@ -118,7 +118,7 @@ public class ReportService extends AbstractPwmService implements PwmService
 
         dnQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, getPwmApplication().getLocalDB(), LocalDB.DB.REPORT_QUEUE );
 
-        executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
+        executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass(), PwmScheduler.WorkloadClass.IoBound );
 
         if ( !pwmApplication.getPwmEnvironment().isInternalRuntimeInstance() )
         {
@@ -50,6 +50,7 @@ import java.io.Serializable;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -187,6 +188,32 @@ public abstract class AbstractSecureService extends AbstractPwmService implement
         return encryptToString( jsonValue, securityKey );
     }
 
+    public String encryptBytesToString( final byte[] value, final PwmSecurityKey securityKey )
+            throws PwmUnrecoverableException
+    {
+        stats.increment( StatKey.encryptOperations );
+        stats.increment( StatKey.encryptBytes, value.length );
+        final byte[] encrypted = SecureEngine.encryptToBytes( value, securityKey, defaultBlockAlgorithm );
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( encrypted );
+    }
+
+    public byte[] decryptBytes( final String value, final PwmSecurityKey securityKey )
+            throws PwmUnrecoverableException
+    {
+        stats.increment( StatKey.decryptOperations );
+        stats.increment( StatKey.decryptBytes, value.length() );
+        final byte[] decoded;
+        try
+        {
+            decoded = Base64.getUrlDecoder().decode( value );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            throw new PwmUnrecoverableException( PwmError.ERROR_CRYPT_ERROR, "unable to decode encrypted value: " + e.getMessage() );
+        }
+        return SecureEngine.decryptToBytes( decoded, securityKey, defaultBlockAlgorithm );
+    }
+
     public String decryptStringValue(
             final String value
     )
@@ -24,13 +24,32 @@ import password.pwm.PwmApplication;
 import password.pwm.bean.DomainID;
 import password.pwm.config.AppConfig;
 import password.pwm.error.PwmException;
+import password.pwm.util.secure.PasswordHasher;
+import password.pwm.util.secure.SecureEngine;
 
 public class SystemSecureService extends AbstractSecureService
 {
+    private PasswordHasher passwordHasher = PasswordHasher.legacyHasher();
+
     @Override
     public void preAbstractSecureInit( final PwmApplication pwmApplication, final DomainID domainID ) throws PwmException
     {
         final AppConfig config = pwmApplication.getConfig();
         this.pwmSecurityKey = config.getSecurityKey();
+        this.passwordHasher = PasswordHasher.create( config );
+    }
+
+    public PasswordHasher getPasswordHasher()
+    {
+        return passwordHasher;
+    }
+
+    @Override
+    public void close( )
+    {
+        super.close();
+
+        // cached crypto contexts are shared by the whole application and hold its keys
+        SecureEngine.clearCryptoContexts();
     }
 }
@@ -0,0 +1,324 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.sessiontrack;
+
+import password.pwm.bean.LoginInfoBean;
+import password.pwm.bean.UserIdentity;
+import password.pwm.http.PwmSession;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of live sessions keyed by session id.  Aggregates such as the authenticated session count, per ldap
+ * profile counts and the average session age are maintained as sessions are added, removed or change authentication
+ * state, so reading them does not require a scan of the live sessions.  Ended sessions are summarized in a fixed
+ * size {@link History}.
+ */
+class SessionRegistry
+{
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger authenticatedCount = new AtomicInteger();
+    private final Map<String, AtomicInteger> profileCounts = new ConcurrentHashMap<>();
+    private final LongAdder registrationTimeSum = new LongAdder();
+    private final History history;
+    private final int sizeSampleCount;
+
+    SessionRegistry( final int historySize, final int sizeSampleCount )
+    {
+        this.history = new History( historySize );
+        this.sizeSampleCount = sizeSampleCount;
+    }
+
+    void add( final PwmSession pwmSession )
+    {
+        final Entry entry = new Entry( pwmSession, System.currentTimeMillis() );
+        if ( sessions.putIfAbsent( sessionID( pwmSession ), entry ) == null )
+        {
+            registrationTimeSum.add( entry.registrationTime );
+        }
+    }
+
+    void remove( final PwmSession pwmSession )
+    {
+        final String sessionID = sessionID( pwmSession );
+        final Entry entry = sessions.get( sessionID );
+        if ( entry == null || entry.pwmSession != pwmSession || !sessions.remove( sessionID, entry ) )
+        {
+            return;
+        }
+
+        final boolean wasAuthenticated;
+        synchronized ( entry )
+        {
+            wasAuthenticated = entry.authenticated;
+            applyState( entry, false, null );
+            entry.removed = true;
+        }
+
+        registrationTimeSum.add( -entry.registrationTime );
+        history.record( System.currentTimeMillis() - entry.registrationTime, wasAuthenticated );
+    }
+
+    /**
+     * Re-read the authentication state of the session and adjust the aggregates if it has changed.
+     */
+    void updateAuthentication( final PwmSession pwmSession )
+    {
+        final Entry entry = sessions.get( sessionID( pwmSession ) );
+        if ( entry == null || entry.pwmSession != pwmSession )
+        {
+            return;
+        }
+
+        final boolean authenticated = pwmSession.isAuthenticated();
+        final String ldapProfile = authenticated ? ldapProfileOf( pwmSession.getLoginInfoBean() ) : null;
+        synchronized ( entry )
+        {
+            if ( !entry.removed )
+            {
+                applyState( entry, authenticated, ldapProfile );
+            }
+        }
+    }
+
+    private void applyState( final Entry entry, final boolean authenticated, final String ldapProfile )
+    {
+        if ( entry.authenticated == authenticated && Objects.equals( entry.ldapProfile, ldapProfile ) )
+        {
+            return;
+        }
+
+        if ( entry.authenticated )
+        {
+            authenticatedCount.decrementAndGet();
+            if ( entry.ldapProfile != null )
+            {
+                profileCounts.get( entry.ldapProfile ).decrementAndGet();
+            }
+        }
+
+        entry.authenticated = authenticated;
+        entry.ldapProfile = ldapProfile;
+
+        if ( authenticated )
+        {
+            authenticatedCount.incrementAndGet();
+            if ( ldapProfile != null )
+            {
+                profileCounts.computeIfAbsent( ldapProfile, k -> new AtomicInteger() ).incrementAndGet();
+            }
+        }
+    }
+
+    void clear()
+    {
+        for ( final Entry entry : sessions.values() )
+        {
+            remove( entry.pwmSession );
+        }
+    }
+
+    int size()
+    {
+        return sessions.size();
+    }
+
+    boolean containsSessionID( final String sessionID )
+    {
+        return sessions.containsKey( sessionID );
+    }
+
+    Optional<PwmSession> lookup( final String sessionID )
+    {
+        final Entry entry = sessionID == null ? null : sessions.get( sessionID );
+        return entry == null ? Optional.empty() : Optional.of( entry.pwmSession );
+    }
+
+    /**
+     * Weakly consistent iterator over the live sessions; sessions are not copied.
+     */
+    Iterator<PwmSession> iterator()
+    {
+        return sessions.values().stream().map( entry -> entry.pwmSession ).iterator();
+    }
+
+    int authenticatedCount()
+    {
+        return authenticatedCount.get();
+    }
+
+    Map<String, Integer> profileCounts()
+    {
+        final Map<String, Integer> returnMap = new TreeMap<>();
+        profileCounts.forEach( ( profile, count ) ->
+        {
+            final int value = count.get();
+            if ( value > 0 )
+            {
+                returnMap.put( profile, value );
+            }
+        } );
+        return Collections.unmodifiableMap( returnMap );
+    }
+
+    TimeDuration averageAge()
+    {
+        final int count = sessions.size();
+        if ( count < 1 )
+        {
+            return TimeDuration.ZERO;
+        }
+        final long averageRegistrationTime = registrationTimeSum.sum() / count;
+        return TimeDuration.of( Math.max( 0, System.currentTimeMillis() - averageRegistrationTime ), TimeDuration.Unit.MILLISECONDS );
+    }
+
+    /**
+     * Average serialized session size measured over at most {@code sizeSampleCount} live sessions.
+     */
+    long sampledAverageSize()
+    {
+        long sizeTotal = 0;
+        int sampled = 0;
+        final Iterator<Entry> iterator = sessions.values().iterator();
+        while ( sampled < sizeSampleCount && iterator.hasNext() )
+        {
+            sizeTotal += iterator.next().pwmSession.size();
+            sampled++;
+        }
+        return sampled < 1 ? 0 : sizeTotal / sampled;
+    }
+
+    History getHistory()
+    {
+        return history;
+    }
+
+    Map<String, String> debugStats()
+    {
+        final Map<String, String> stats = new LinkedHashMap<>();
+        stats.put( "sessions", String.valueOf( size() ) );
+        stats.put( "authenticatedSessions", String.valueOf( authenticatedCount() ) );
+        stats.put( "averageAge", averageAge().asCompactString() );
+        profileCounts().forEach( ( profile, count ) -> stats.put( "authenticatedSessions." + profile, String.valueOf( count ) ) );
+        stats.put( "endedSessions", String.valueOf( history.endedCount() ) );
+        stats.put( "recentAverageLifetime", history.averageLifetime().asCompactString() );
+        stats.put( "recentAuthenticatedRatio", String.valueOf( history.authenticatedRatio() ) );
+        return Collections.unmodifiableMap( stats );
+    }
+
+    private static String sessionID( final PwmSession pwmSession )
+    {
+        return pwmSession.getSessionStateBean().getSessionID();
+    }
+
+    private static String ldapProfileOf( final LoginInfoBean loginInfoBean )
+    {
+        final UserIdentity userIdentity = loginInfoBean.getUserIdentity();
+        return userIdentity == null ? null : userIdentity.getLdapProfileID();
+    }
+
+    private static class Entry
+    {
+        private final PwmSession pwmSession;
+        private final long registrationTime;
+
+        // guarded by the entry monitor
+        private boolean authenticated;
+        private String ldapProfile;
+        private boolean removed;
+
+        Entry( final PwmSession pwmSession, final long registrationTime )
+        {
+            this.pwmSession = pwmSession;
+            this.registrationTime = registrationTime;
+        }
+    }
+
+    /**
+     * Ring buffer of the lifetimes of the most recently ended sessions.  Window totals are maintained as records are
+     * added and overwritten, so the summary values are read in constant time.
+     */
+    static class History
+    {
+        private final long[] lifetimes;
+        private final boolean[] authenticated;
+        private final AtomicLong endedCount = new AtomicLong();
+
+        // guarded by the history monitor
+        private int nextIndex;
+        private int filled;
+        private long lifetimeTotal;
+        private int authenticatedTotal;
+
+        History( final int size )
+        {
+            this.lifetimes = new long[Math.max( 1, size )];
+            this.authenticated = new boolean[lifetimes.length];
+        }
+
+        synchronized void record( final long lifetimeMs, final boolean wasAuthenticated )
+        {
+            if ( filled == lifetimes.length )
+            {
+                lifetimeTotal -= lifetimes[nextIndex];
+                authenticatedTotal -= authenticated[nextIndex] ? 1 : 0;
+            }
+            else
+            {
+                filled++;
+            }
+
+            lifetimes[nextIndex] = lifetimeMs;
+            authenticated[nextIndex] = wasAuthenticated;
+            lifetimeTotal += lifetimeMs;
+            authenticatedTotal += wasAuthenticated ? 1 : 0;
+            nextIndex = ( nextIndex + 1 ) % lifetimes.length;
+            endedCount.incrementAndGet();
+        }
+
+        long endedCount()
+        {
+            return endedCount.get();
+        }
+
+        synchronized TimeDuration averageLifetime()
+        {
+            return filled < 1 ? TimeDuration.ZERO : TimeDuration.of( lifetimeTotal / filled, TimeDuration.Unit.MILLISECONDS );
+        }
+
+        synchronized float authenticatedRatio()
+        {
+            return filled < 1 ? 0 : ( float ) authenticatedTotal / filled;
+        }
+    }
+}
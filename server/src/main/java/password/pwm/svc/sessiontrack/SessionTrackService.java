@@ -23,6 +23,7 @@ package password.pwm.svc.sessiontrack;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.csv.CSVPrinter;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.bean.DomainID;
 import password.pwm.bean.LocalSessionStateBean;
@@ -47,22 +48,22 @@ import password.pwm.util.secure.PwmRandom;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class SessionTrackService extends AbstractPwmService implements PwmService
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( SessionTrackService.class );
 
-    private final Map<PwmSession, String> pwmSessions = new ConcurrentHashMap<>();
+    private SessionRegistry sessionRegistry = new SessionRegistry(
+            Integer.parseInt( AppProperty.HTTP_SESSION_TRACK_HISTORY_SIZE.getDefaultValue() ),
+            Integer.parseInt( AppProperty.HTTP_SESSION_TRACK_SIZE_SAMPLE_COUNT.getDefaultValue() ) );
 
     private final Cache<UserIdentity, Object> recentLoginCache = Caffeine.newBuilder()
             .maximumSize( 10 )
@@ -78,13 +79,19 @@ public class SessionTrackService extends AbstractPwmService implements PwmServic
     public STATUS postAbstractInit( final PwmApplication pwmApplication, final DomainID domainID )
             throws PwmException
     {
+        if ( sessionRegistry.size() == 0 )
+        {
+            sessionRegistry = new SessionRegistry(
+                    Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.HTTP_SESSION_TRACK_HISTORY_SIZE ) ),
+                    Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.HTTP_SESSION_TRACK_SIZE_SAMPLE_COUNT ) ) );
+        }
         return STATUS.OPEN;
     }
 
     @Override
     public void close( )
     {
-        pwmSessions.clear();
+        sessionRegistry.clear();
     }
 
     @Override
@@ -96,47 +103,61 @@ public class SessionTrackService extends AbstractPwmService implements PwmServic
     @Override
     public ServiceInfoBean serviceInfo( )
     {
-        return null;
+        return ServiceInfoBean.builder()
+                .debugProperties( sessionRegistry.debugStats() )
+                .build();
     }
 
     public enum DebugKey
     {
         HttpSessionCount,
+        HttpSessionAuthenticatedCount,
+        HttpSessionAvgAge,
         HttpSessionTotalSize,
         HttpSessionAvgSize,
     }
 
     public void addSessionData( final PwmSession pwmSession )
     {
-        pwmSessions.put( pwmSession, pwmSession.getSessionStateBean().getSessionID() );
+        sessionRegistry.add( pwmSession );
     }
 
     public void removeSessionData( final PwmSession pwmSession )
     {
-        pwmSessions.remove( pwmSession );
+        sessionRegistry.remove( pwmSession );
+    }
+
+    /**
+     * Update the tracked authentication state of a session, called after a session is authenticated or
+     * unauthenticated.
+     */
+    public void updateSessionAuthentication( final PwmSession pwmSession )
+    {
+        sessionRegistry.updateAuthentication( pwmSession );
     }
 
-    private Set<PwmSession> copyOfSessionSet( )
+    public Optional<PwmSession> getSession( final String sessionID )
     {
-        return Set.copyOf(  pwmSessions.keySet() );
+        return sessionRegistry.lookup( sessionID );
     }
 
+    /**
+     * Session counts and age are maintained incrementally.  Session size is estimated from a bounded sample of
+     * live sessions, since measuring a session requires serializing it.
+     */
     public Map<DebugKey, String> getDebugData( )
     {
         try
         {
-            final Collection<PwmSession> sessionCopy = copyOfSessionSet();
-            final int sessionCounter = sessionCopy.size();
-            final long sizeTotal = sessionCopy.stream()
-                    .map( PwmSession::size )
-                    .map( Long::valueOf )
-                    .reduce( 0L, Long::sum );
+            final int sessionCounter = sessionRegistry.size();
+            final long averageSize = sessionRegistry.sampledAverageSize();
 
             final Map<DebugKey, String> returnMap = new EnumMap<>( DebugKey.class );
             returnMap.put( DebugKey.HttpSessionCount, String.valueOf( sessionCounter ) );
-            returnMap.put( DebugKey.HttpSessionTotalSize, String.valueOf( sizeTotal ) );
-            returnMap.put( DebugKey.HttpSessionAvgSize,
-                    sessionCounter < 1 ? "0" : String.valueOf( ( int ) ( sizeTotal / sessionCounter ) ) );
+            returnMap.put( DebugKey.HttpSessionAuthenticatedCount, String.valueOf( sessionRegistry.authenticatedCount() ) );
+            returnMap.put( DebugKey.HttpSessionAvgAge, sessionRegistry.averageAge().asCompactString() );
+            returnMap.put( DebugKey.HttpSessionTotalSize, String.valueOf( averageSize * sessionCounter ) );
+            returnMap.put( DebugKey.HttpSessionAvgSize, String.valueOf( averageSize ) );
             return returnMap;
         }
         catch ( final Exception e )
@@ -146,22 +167,9 @@ public class SessionTrackService extends AbstractPwmService implements PwmServic
         return Collections.emptyMap();
     }
 
-    private Set<PwmSession> currentValidSessionSet( )
-    {
-        final Set<PwmSession> returnSet = new HashSet<>();
-        for ( final PwmSession pwmSession : copyOfSessionSet() )
-        {
-            if ( pwmSession != null )
-            {
-                returnSet.add( pwmSession );
-            }
-        }
-        return returnSet;
-    }
-
     public Iterator<SessionStateInfoBean> getSessionInfoIterator( )
     {
-        final Iterator<PwmSession> sessionIterator = new HashSet<>( currentValidSessionSet() ).iterator();
+        final Iterator<PwmSession> sessionIterator = sessionRegistry.iterator();
         return new Iterator<>()
         {
             @Override
@@ -282,7 +290,7 @@ public class SessionTrackService extends AbstractPwmService implements PwmServic
 
     public int sessionCount( )
     {
-        return currentValidSessionSet().size();
+        return sessionRegistry.size();
     }
 
     public void addRecentLogin( final UserIdentity userIdentity )
@@ -302,7 +310,7 @@ public class SessionTrackService extends AbstractPwmService implements PwmServic
         for ( int safetyCounter = 0; safetyCounter < 1000; safetyCounter++ )
         {
             final String newValue = pwmRandom.alphaNumericString( 5 );
-            if ( !pwmSessions.containsValue( newValue ) )
+            if ( !sessionRegistry.containsSessionID( newValue ) )
             {
                 return newValue;
             }
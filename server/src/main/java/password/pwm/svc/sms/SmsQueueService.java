@@ -123,6 +123,7 @@ public class SmsQueueService extends AbstractPwmService implements PwmService
 
         final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
                 .maxEvents( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_MAX_COUNT ) ) )
+                .workerThreads( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_WORKER_THREADS ) ) )
                 .retryDiscardAge( TimeDuration.of( pwmApplication.getConfig().readSettingAsLong( PwmSetting.SMS_MAX_QUEUE_AGE ), TimeDuration.Unit.SECONDS ) )
                 .retryInterval( TimeDuration.of(
                         Long.parseLong( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_RETRY_TIMEOUT_MS ) ),
@@ -180,6 +181,12 @@ public class SmsQueueService extends AbstractPwmService implements PwmService
 
             return JsonUtil.serializeMap( debugOutputMap );
         }
+
+        @Override
+        public String partitionKey( final SmsItemBean workItem )
+        {
+            return workItem.getTo();
+        }
     }
 
     public void addSmsToQueue( final SmsItemBean smsItem )
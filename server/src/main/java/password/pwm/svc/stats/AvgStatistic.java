@@ -31,7 +31,10 @@ public enum AvgStatistic
     AVG_AUTHENTICATION_TIME( "AvgAuthenticationTime",  "ms" ),
     AVG_PASSWORD_STRENGTH( "AvgPasswordStrength", "" ),
     AVG_LDAP_SEARCH_TIME( "AvgLdapSearchTime",  "ms" ),
-    AVG_REQUEST_PROCESS_TIME( "AvgRequestProcessTime",  "ms" ),;
+    AVG_REQUEST_PROCESS_TIME( "AvgRequestProcessTime",  "ms" ),
+    AVG_SCHEDULER_IO_BOUND_WAIT_TIME( "AvgSchedulerIoBoundWaitTime",  "ms" ),
+    AVG_SCHEDULER_CPU_BOUND_WAIT_TIME( "AvgSchedulerCpuBoundWaitTime",  "ms" ),
+    AVG_SCHEDULER_MAINTENANCE_WAIT_TIME( "AvgSchedulerMaintenanceWaitTime",  "ms" ),;
 
     private final String key;
     private final String unit;
@@ -428,8 +428,22 @@ public class StatisticsService extends AbstractPwmService implements PwmService
     public ServiceInfoBean serviceInfo( )
     {
         return status() == STATUS.OPEN
-                ? ServiceInfoBean.builder().storageMethod( DataStorageMethod.LOCALDB ).build()
+                ? ServiceInfoBean.builder()
+                .storageMethod( DataStorageMethod.LOCALDB )
+                .debugProperties( schedulerStats() )
+                .build()
                 : ServiceInfoBean.builder().build();
     }
 
+    /**
+     * Queue depth and wait time of the shared scheduler pools, keyed by workload class.
+     */
+    public Map<String, String> schedulerStats( )
+    {
+        final PwmScheduler pwmScheduler = getPwmApplication().getPwmScheduler();
+        return pwmScheduler == null
+                ? Collections.emptyMap()
+                : pwmScheduler.debugStats();
+    }
+
 }
@@ -20,6 +20,7 @@
 
 package password.pwm.svc.token;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmDomain;
 import password.pwm.bean.SessionLabel;
 import password.pwm.error.PwmException;
@@ -35,16 +36,29 @@ import password.pwm.util.logging.PwmLogger;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class DataStoreTokenMachine implements TokenMachine
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( DataStoreTokenMachine.class );
+
+    /**
+     * If more buckets than this have elapsed since the last cycle (for example after a long outage) a full sweep is cheaper.
+     */
+    private static final long MAX_INDEXED_BUCKETS_PER_CYCLE = 10_000;
+
     private final TokenService tokenService;
 
     private final DataStore dataStore;
 
     private final PwmDomain pwmDomain;
 
+    private final TokenExpiryIndex expiryIndex;
+
+    private final TimeDuration fullSweepInterval;
+
+    private Instant lastFullSweep;
+
     DataStoreTokenMachine(
             final PwmDomain pwmDomain,
             final TokenService tokenService,
@@ -54,6 +68,12 @@ public class DataStoreTokenMachine implements TokenMachine
         this.pwmDomain = pwmDomain;
         this.tokenService = tokenService;
         this.dataStore = dataStore;
+
+        final long bucketSeconds = Long.parseLong( pwmDomain.getConfig().readAppProperty( AppProperty.TOKEN_EXPIRY_INDEX_BUCKET_SECONDS ) );
+        this.expiryIndex = new TokenExpiryIndex( dataStore, pwmDomain.getDomainID(), TimeDuration.of( bucketSeconds, TimeDuration.Unit.SECONDS ) );
+
+        final long fullSweepSeconds = Long.parseLong( pwmDomain.getConfig().readAppProperty( AppProperty.TOKEN_EXPIRY_INDEX_FULL_SWEEP_SECONDS ) );
+        this.fullSweepInterval = TimeDuration.of( fullSweepSeconds, TimeDuration.Unit.SECONDS );
     }
 
     @Override
@@ -71,7 +91,8 @@ public class DataStoreTokenMachine implements TokenMachine
     @Override
     public void cleanup( ) throws PwmUnrecoverableException, PwmOperationalException
     {
-        if ( size() < 1 )
+        // raw store size, so leftover index records alone still get purged
+        if ( dataStore.size() < 1 )
         {
             return;
         }
@@ -81,30 +102,114 @@ public class DataStoreTokenMachine implements TokenMachine
 
     private void purgeOutdatedTokens( ) throws
             PwmUnrecoverableException, PwmOperationalException
+    {
+        final Instant startTime = Instant.now();
+        final long newestExpiredBucket = expiryIndex.newestExpiredBucket( startTime );
+        final Optional<Long> cursor = expiryIndex.readCursor();
+
+        final boolean fullSweepDue = lastFullSweep == null
+                || TimeDuration.fromCurrent( lastFullSweep ).isLongerThan( fullSweepInterval );
+        final boolean indexIncomplete = cursor.isEmpty()
+                || newestExpiredBucket - cursor.get() > MAX_INDEXED_BUCKETS_PER_CYCLE;
+
+        if ( fullSweepDue || indexIncomplete )
+        {
+            purgeUsingFullSweep( newestExpiredBucket );
+        }
+        else
+        {
+            purgeUsingExpiryIndex( cursor.get(), newestExpiredBucket );
+        }
+    }
+
+    /**
+     * Visits only the expiry index buckets that have elapsed since the last cycle, removing the
+     * referenced tokens without reading or decrypting their payloads.
+     */
+    private void purgeUsingExpiryIndex( final long cursor, final long newestExpiredBucket )
+            throws PwmUnrecoverableException, PwmOperationalException
+    {
+        if ( cursor >= newestExpiredBucket )
+        {
+            return;
+        }
+
+        final Instant startTime = Instant.now();
+        int removedTokens = 0;
+        long lastCompletedBucket = cursor;
+        try
+        {
+            for ( long bucket = cursor + 1; bucket <= newestExpiredBucket && tokenService.status() == PwmService.STATUS.OPEN; bucket++ )
+            {
+                final Set<String> storedHashes = expiryIndex.readBucket( bucket );
+                if ( !storedHashes.isEmpty() )
+                {
+                    // hashes of tokens already claimed or removed are harmless no-ops
+                    final int bucketRemovals = dataStore.removeAll( storedHashes );
+                    tokenService.getStats().increment( TokenService.StatsKey.tokensRemoved, bucketRemovals );
+                    removedTokens += bucketRemovals;
+                }
+                expiryIndex.removeBucket( bucket );
+                lastCompletedBucket = bucket;
+            }
+        }
+        finally
+        {
+            expiryIndex.writeCursor( lastCompletedBucket );
+        }
+
+        final int finalRemovedTokens = removedTokens;
+        final long finalBuckets = lastCompletedBucket - cursor;
+        LOGGER.trace( () -> "completed indexed purge cycle of " + finalBuckets + " expiry buckets, removed "
+                + finalRemovedTokens + " tokens", () -> TimeDuration.fromCurrent( startTime ) );
+    }
+
+    /**
+     * Examines every stored record.  This catches tokens stored before the expiry index existed, tokens without an
+     * expiration and index updates lost to concurrent writers, and then resets the index cursor.
+     */
+    private void purgeUsingFullSweep( final long newestExpiredBucket )
+            throws PwmUnrecoverableException, PwmOperationalException
     {
         final Instant startTime = Instant.now();
         {
-            final long finalSize = size();
-            LOGGER.trace( () -> "beginning purge cycle; database size = " + finalSize );
+            final long finalSize = dataStore.size();
+            LOGGER.trace( () -> "beginning full purge cycle; database size = " + finalSize );
         }
+        boolean completed = false;
         try ( ClosableIterator<Map.Entry<String, String>> keyIterator = dataStore.iterator() )
         {
             while ( tokenService.status() == PwmService.STATUS.OPEN && keyIterator.hasNext() )
             {
-                final String storedHash = keyIterator.next().getKey();
-                final TokenKey loopKey = keyFromStoredHash( storedHash );
+                final String storedKey = keyIterator.next().getKey();
+                if ( TokenExpiryIndex.isIndexKey( storedKey ) )
+                {
+                    expiryIndex.removeIfExpiredBucketKey( storedKey, newestExpiredBucket + 1 );
+                }
+                else
+                {
+                    final TokenKey loopKey = keyFromStoredHash( storedKey );
 
-                // retrieving token tests validity and causes purging
-                retrieveToken( null, loopKey );
+                    // retrieving token tests validity and causes purging
+                    retrieveToken( null, loopKey );
+                }
             }
+            completed = tokenService.status() == PwmService.STATUS.OPEN;
         }
         catch ( final Exception e )
         {
             LOGGER.error( () -> "unexpected error while cleaning expired stored tokens: " + e.getMessage() );
         }
+
+        if ( completed )
         {
-            final long finalSize = size();
-            LOGGER.trace( () -> "completed record purge cycle; database size = " + finalSize, () -> TimeDuration.fromCurrent( startTime ) );
+            lastFullSweep = startTime;
+            expiryIndex.writeCursor( newestExpiredBucket );
+        }
+
+        {
+            final long finalSize = dataStore.size();
+            LOGGER.trace( () -> "completed full record purge cycle; database size = " + finalSize, () -> TimeDuration.fromCurrent( startTime ) );
         }
     }
 
@@ -180,6 +285,11 @@ public class DataStoreTokenMachine implements TokenMachine
         final String rawValue = tokenService.toEncryptedString( tokenPayload );
         final String storedHash = tokenKey.getStoredHash();
         dataStore.put( storedHash, rawValue );
+
+        if ( tokenPayload.getExpiration() != null )
+        {
+            expiryIndex.add( storedHash, tokenPayload.getExpiration() );
+        }
     }
 
     @Override
@@ -191,10 +301,25 @@ public class DataStoreTokenMachine implements TokenMachine
         dataStore.remove( storedHash );
     }
 
+    /**
+     * Number of stored tokens, not counting expiry index records.  This reads every key, so it is meant for reporting
+     * rather than for routine use.
+     */
     @Override
     public long size( ) throws PwmOperationalException, PwmUnrecoverableException
     {
-        return dataStore.size();
+        long tokenCount = 0;
+        try ( ClosableIterator<Map.Entry<String, String>> keyIterator = dataStore.iterator() )
+        {
+            while ( keyIterator.hasNext() )
+            {
+                if ( !TokenExpiryIndex.isIndexKey( keyIterator.next().getKey() ) )
+                {
+                    tokenCount++;
+                }
+            }
+        }
+        return tokenCount;
     }
 
     @Override
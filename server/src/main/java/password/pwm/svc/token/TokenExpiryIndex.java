@@ -0,0 +1,192 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.token;
+
+import password.pwm.bean.DomainID;
+import password.pwm.error.PwmDataStoreException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.DataStore;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Secondary expiration index for {@link DataStoreTokenMachine}.  Stored token hashes are grouped into fixed width
+ * time buckets keyed by expiration time.  Index records are kept in the same {@link DataStore} as the tokens
+ * themselves, using keys that can never collide with a stored token hash.
+ *
+ * <p>Each bucket is an append-only log: a head record holding the number of entries, and one record per entry holding a
+ * stored hash.  Adding a token writes one entry and the head, regardless of how many tokens the bucket already holds.</p>
+ *
+ * <p>The index is best-effort; an entry lost to a concurrent writer on another cluster node simply means the token
+ * will be caught by the next full sweep instead of the next indexed purge.</p>
+ */
+class TokenExpiryIndex
+{
+    private static final String KEY_PREFIX = "~expiry-index:";
+    private static final String CURSOR_SUFFIX = "cursor";
+    private static final char ENTRY_SEPARATOR = ':';
+
+    private final DataStore dataStore;
+    private final String domainKeyPrefix;
+    private final long bucketSeconds;
+    private final Lock lock = new ReentrantLock();
+
+    TokenExpiryIndex( final DataStore dataStore, final DomainID domainID, final TimeDuration bucketWidth )
+    {
+        this.dataStore = dataStore;
+        this.domainKeyPrefix = KEY_PREFIX + domainID.stringValue() + ":";
+        this.bucketSeconds = Math.max( 1, bucketWidth.as( TimeDuration.Unit.SECONDS ) );
+    }
+
+    static boolean isIndexKey( final String key )
+    {
+        return key != null && key.startsWith( KEY_PREFIX );
+    }
+
+    long bucketForInstant( final Instant instant )
+    {
+        return instant.getEpochSecond() / bucketSeconds;
+    }
+
+    /**
+     * Returns the newest bucket whose entire time range is in the past as of {@code now}.
+     */
+    long newestExpiredBucket( final Instant now )
+    {
+        return bucketForInstant( now ) - 1;
+    }
+
+    void add( final String storedHash, final Instant expiration )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final long bucket = bucketForInstant( expiration );
+
+        lock.lock();
+        try
+        {
+            final int entryCount = readEntryCount( bucket );
+
+            // the entry is written before the head so a failure in between leaves only an unreferenced entry for the full sweep
+            dataStore.put( entryKey( bucket, entryCount ), storedHash );
+            dataStore.put( bucketKey( bucket ), String.valueOf( entryCount + 1 ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    Set<String> readBucket( final long bucket )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final int entryCount = readEntryCount( bucket );
+        final Set<String> hashes = new TreeSet<>();
+        for ( int entry = 0; entry < entryCount; entry++ )
+        {
+            dataStore.get( entryKey( bucket, entry ) ).ifPresent( hashes::add );
+        }
+        return Collections.unmodifiableSet( hashes );
+    }
+
+    void removeBucket( final long bucket )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final int entryCount = readEntryCount( bucket );
+        final List<String> keys = new ArrayList<>( entryCount + 1 );
+        for ( int entry = 0; entry < entryCount; entry++ )
+        {
+            keys.add( entryKey( bucket, entry ) );
+        }
+        keys.add( bucketKey( bucket ) );
+        dataStore.removeAll( keys );
+    }
+
+    /**
+     * Removes an index record found during a full iteration if it belongs to this domain and to a bucket older than
+     * {@code oldestRetained}.
+     */
+    boolean removeIfExpiredBucketKey( final String key, final long oldestRetained )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        if ( key == null || !key.startsWith( domainKeyPrefix ) || key.endsWith( CURSOR_SUFFIX ) )
+        {
+            return false;
+        }
+
+        final String bucketValue = key.substring( domainKeyPrefix.length() );
+        final int separatorIndex = bucketValue.indexOf( ENTRY_SEPARATOR );
+        final long bucket = JavaHelper.silentParseLong( separatorIndex < 0 ? bucketValue : bucketValue.substring( 0, separatorIndex ), Long.MAX_VALUE );
+        if ( bucket < oldestRetained )
+        {
+            dataStore.remove( key );
+            return true;
+        }
+        return false;
+    }
+
+    Optional<Long> readCursor()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final Optional<String> value = dataStore.get( domainKeyPrefix + CURSOR_SUFFIX );
+        if ( value.isPresent() )
+        {
+            final long cursor = JavaHelper.silentParseLong( value.get(), -1 );
+            if ( cursor >= 0 )
+            {
+                return Optional.of( cursor );
+            }
+        }
+        return Optional.empty();
+    }
+
+    void writeCursor( final long bucket )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        dataStore.put( domainKeyPrefix + CURSOR_SUFFIX, String.valueOf( bucket ) );
+    }
+
+    private int readEntryCount( final long bucket )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final Optional<String> value = dataStore.get( bucketKey( bucket ) );
+        return value.map( countValue -> ( int ) Math.max( 0, JavaHelper.silentParseLong( countValue, 0 ) ) ).orElse( 0 );
+    }
+
+    private String bucketKey( final long bucket )
+    {
+        return domainKeyPrefix + bucket;
+    }
+
+    private String entryKey( final long bucket, final int entry )
+    {
+        return bucketKey( bucket ) + ENTRY_SEPARATOR + entry;
+    }
+}
@@ -20,6 +20,7 @@
 
 package password.pwm.svc.userhistory;
 
+import lombok.Value;
 import password.pwm.PwmDomain;
 import password.pwm.bean.SessionLabel;
 import password.pwm.bean.UserIdentity;
@@ -28,58 +29,114 @@ import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.ldap.LdapOperationsHelper;
 import password.pwm.ldap.UserInfo;
-import password.pwm.svc.event.AuditEventType;
-import password.pwm.svc.event.HelpdeskAuditRecord;
-import password.pwm.svc.event.UserAuditRecord;
+import password.pwm.svc.db.DatabaseAccessor;
 import password.pwm.svc.db.DatabaseException;
 import password.pwm.svc.db.DatabaseService;
 import password.pwm.svc.db.DatabaseTable;
+import password.pwm.svc.event.AuditRecordData;
+import password.pwm.svc.event.AuditRecordFactory;
+import password.pwm.svc.event.UserAuditRecord;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Stores each user history event as its own row, keyed by the user guid and a sequence number, with a small head row
+ * per user holding the range of live sequence numbers.  Appending events writes only the new rows and the head row, and
+ * events beyond the retention cap are removed from the front of the range.
+ *
+ * <p>Histories written by earlier versions as a single json row are converted on the next write for the user.</p>
+ */
 class DatabaseUserHistory implements UserHistoryStore
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( DatabaseUserHistory.class );
 
     private static final DatabaseTable TABLE = DatabaseTable.USER_AUDIT;
+    private static final String HEAD_PREFIX = "log:";
 
     final PwmDomain pwmDomain;
     final DatabaseService databaseService;
+    private final int maxRecords;
 
-    DatabaseUserHistory( final PwmDomain pwmDomain )
+    DatabaseUserHistory( final PwmDomain pwmDomain, final int maxRecords )
     {
         this.pwmDomain = pwmDomain;
         this.databaseService = pwmDomain.getPwmApplication().getDatabaseService();
+        this.maxRecords = Math.max( 1, maxRecords );
     }
 
     @Override
-    public void updateUserHistory( final SessionLabel sessionLabel, final UserAuditRecord auditRecord ) throws PwmUnrecoverableException
+    public void updateUserHistory( final SessionLabel sessionLabel, final List<UserAuditRecord> auditRecords ) throws PwmUnrecoverableException
     {
-        // user info
-        final UserIdentity userIdentity;
-        if ( auditRecord instanceof HelpdeskAuditRecord && auditRecord.getType() == AuditEventType.HELPDESK )
+        if ( auditRecords.isEmpty() )
         {
-            final HelpdeskAuditRecord helpdeskAuditRecord = ( HelpdeskAuditRecord ) auditRecord;
-            userIdentity = UserIdentity.create( helpdeskAuditRecord.getTargetDN(), helpdeskAuditRecord.getTargetLdapProfile(), auditRecord.getDomain() );
-        }
-        else
-        {
-            userIdentity = UserIdentity.create( auditRecord.getPerpetratorDN(), auditRecord.getPerpetratorLdapProfile(), auditRecord.getDomain() );
+            return;
         }
 
+        final UserIdentity userIdentity = UserHistoryService.historySubject( auditRecords.get( 0 ) );
         final String guid = LdapOperationsHelper.readLdapGuidValue( pwmDomain, null, userIdentity, false );
 
         try
         {
-            final StoredHistory storedHistory;
-            storedHistory = readStoredHistory( guid );
-            storedHistory.getRecords().add( auditRecord );
-            writeStoredHistory( guid, storedHistory );
+            final DatabaseAccessor accessor = databaseService.getAccessor();
+            final Optional<String> headValue = accessor.get( TABLE, guid );
+
+            final List<LdapXmlUserHistory.StoredEvent> newEvents = new ArrayList<>();
+            LogHead head = LogHead.EMPTY;
+            if ( headValue.isPresent() )
+            {
+                final Optional<LogHead> parsedHead = LogHead.parse( headValue.get() );
+                if ( parsedHead.isPresent() )
+                {
+                    head = parsedHead.get();
+                }
+                else
+                {
+                    newEvents.addAll( readLegacyHistory( headValue.get() ) );
+                }
+            }
+
+            for ( final UserAuditRecord auditRecord : auditRecords )
+            {
+                newEvents.add( LdapXmlUserHistory.StoredEvent.fromAuditRecord( auditRecord ) );
+            }
+
+            // events that would be expired immediately consume sequence numbers but are not written
+            final int skipped = Math.max( 0, newEvents.size() - maxRecords );
+            final Map<String, String> writes = new LinkedHashMap<>();
+            long next = head.getNext() + skipped;
+            for ( final LdapXmlUserHistory.StoredEvent storedEvent : newEvents.subList( skipped, newEvents.size() ) )
+            {
+                writes.put( eventKey( guid, next ), UserHistoryEventCodec.encode( storedEvent ) );
+                next++;
+            }
+
+            final long first = Math.max( head.getFirst(), next - maxRecords );
+            final LogHead newHead = new LogHead( first, next );
+            writes.put( guid, newHead.toString() );
+            accessor.putAll( TABLE, writes );
+
+            if ( first > head.getFirst() )
+            {
+                final List<String> expiredKeys = new ArrayList<>();
+                for ( long seq = head.getFirst(); seq < Math.min( first, head.getNext() ); seq++ )
+                {
+                    expiredKeys.add( eventKey( guid, seq ) );
+                }
+                if ( !expiredKeys.isEmpty() )
+                {
+                    accessor.removeAll( TABLE, expiredKeys );
+                }
+            }
+
+            LOGGER.trace( sessionLabel, () -> "appended " + newEvents.size() + " user history events for " + userIdentity.toDisplayString() );
         }
         catch ( final DatabaseException e )
         {
@@ -93,7 +150,41 @@ class DatabaseUserHistory implements UserHistoryStore
         final String userGuid = userInfo.getUserGuid();
         try
         {
-            return readStoredHistory( userGuid ).getRecords();
+            final DatabaseAccessor accessor = databaseService.getAccessor();
+            final Optional<String> headValue = accessor.get( TABLE, userGuid );
+            if ( headValue.isEmpty() )
+            {
+                return Collections.emptyList();
+            }
+
+            final List<LdapXmlUserHistory.StoredEvent> storedEvents = new ArrayList<>();
+            final Optional<LogHead> head = LogHead.parse( headValue.get() );
+            if ( head.isPresent() )
+            {
+                final List<String> keys = new ArrayList<>();
+                for ( long seq = head.get().getFirst(); seq < head.get().getNext(); seq++ )
+                {
+                    keys.add( eventKey( userGuid, seq ) );
+                }
+
+                final Map<String, String> values = accessor.getAll( TABLE, keys );
+                for ( final String key : keys )
+                {
+                    UserHistoryEventCodec.decode( values.get( key ) ).ifPresent( storedEvents::add );
+                }
+            }
+            else
+            {
+                storedEvents.addAll( readLegacyHistory( headValue.get() ) );
+            }
+
+            final AuditRecordFactory auditRecordFactory = AuditRecordFactory.make( sessionLabel, pwmDomain );
+            final List<UserAuditRecord> returnList = new ArrayList<>( storedEvents.size() );
+            for ( final LdapXmlUserHistory.StoredEvent storedEvent : storedEvents )
+            {
+                returnList.add( auditRecordFactory.fromStoredRecord( storedEvent, userInfo ) );
+            }
+            return Collections.unmodifiableList( returnList );
         }
         catch ( final DatabaseException e )
         {
@@ -101,38 +192,81 @@ class DatabaseUserHistory implements UserHistoryStore
         }
     }
 
-    private StoredHistory readStoredHistory( final String guid ) throws DatabaseException, PwmUnrecoverableException
+    private static String eventKey( final String guid, final long seq )
     {
-        final Optional<String> str = this.databaseService.getAccessor().get( TABLE, guid );
-        if ( str.isEmpty() )
-        {
-            return new StoredHistory();
-        }
-        return JsonUtil.deserialize( str.get(), StoredHistory.class );
+        return guid + "#" + seq;
     }
 
-    private void writeStoredHistory( final String guid, final StoredHistory storedHistory ) throws DatabaseException, PwmUnrecoverableException
+    private static List<LdapXmlUserHistory.StoredEvent> readLegacyHistory( final String value )
     {
-        if ( storedHistory == null )
+        final List<LdapXmlUserHistory.StoredEvent> returnList = new ArrayList<>();
+        try
         {
-            return;
+            final LegacyStoredHistory legacyStoredHistory = JsonUtil.deserialize( value, LegacyStoredHistory.class );
+            if ( legacyStoredHistory != null && legacyStoredHistory.records != null )
+            {
+                for ( final AuditRecordData record : legacyStoredHistory.records )
+                {
+                    if ( record.getEventCode() != null && record.getTimestamp() != null )
+                    {
+                        returnList.add( LdapXmlUserHistory.StoredEvent.fromAuditRecord( record ) );
+                    }
+                }
+            }
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.debug( () -> "unable to parse legacy user history record: " + e.getMessage() );
         }
-        final String str = JsonUtil.serialize( storedHistory );
-        databaseService.getAccessor().put( TABLE, guid, str );
+        return returnList;
     }
 
-    static class StoredHistory implements Serializable
+    /**
+     * Range of live event sequence numbers for one user, first inclusive and next exclusive.
+     */
+    @Value
+    static class LogHead
     {
-        private List<UserAuditRecord> records = new ArrayList<>();
+        static final LogHead EMPTY = new LogHead( 0, 0 );
+
+        private final long first;
+        private final long next;
 
-        List<UserAuditRecord> getRecords( )
+        static Optional<LogHead> parse( final String value )
         {
-            return records;
+            if ( value == null || !value.startsWith( HEAD_PREFIX ) )
+            {
+                return Optional.empty();
+            }
+
+            final String[] parts = value.substring( HEAD_PREFIX.length() ).split( ":" );
+            if ( parts.length != 2 )
+            {
+                return Optional.empty();
+            }
+
+            try
+            {
+                return Optional.of( new LogHead( Long.parseLong( parts[0] ), Long.parseLong( parts[1] ) ) );
+            }
+            catch ( final NumberFormatException e )
+            {
+                return Optional.empty();
+            }
         }
 
-        void setRecords( final List<UserAuditRecord> records )
+        @Override
+        public String toString()
         {
-            this.records = records;
+            return HEAD_PREFIX + first + ":" + next;
         }
     }
+
+    /**
+     * Single row json format written by earlier versions.
+     */
+    private static class LegacyStoredHistory implements Serializable
+    {
+        private List<AuditRecordData> records;
+    }
 }
@@ -36,9 +36,7 @@ import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.ldap.UserInfo;
 import password.pwm.svc.event.AuditEvent;
-import password.pwm.svc.event.AuditEventType;
 import password.pwm.svc.event.AuditRecordFactory;
-import password.pwm.svc.event.HelpdeskAuditRecord;
 import password.pwm.svc.event.UserAuditRecord;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.StringUtil;
@@ -84,12 +82,17 @@ public class LdapXmlUserHistory implements UserHistoryStore
     }
 
     @Override
-    public void updateUserHistory( final SessionLabel sessionLabel, final UserAuditRecord auditRecord )
+    public void updateUserHistory( final SessionLabel sessionLabel, final List<UserAuditRecord> auditRecords )
             throws PwmUnrecoverableException
     {
+        if ( auditRecords.isEmpty() )
+        {
+            return;
+        }
+
         try
         {
-            updateUserHistoryImpl( sessionLabel, auditRecord );
+            updateUserHistoryImpl( sessionLabel, auditRecords );
         }
         catch ( final ChaiUnavailableException e )
         {
@@ -97,20 +100,14 @@ public class LdapXmlUserHistory implements UserHistoryStore
         }
     }
 
-    private void updateUserHistoryImpl( final SessionLabel sessionLabel, final UserAuditRecord auditRecord )
+    /**
+     * Read the history attribute once, append all the events, and write it back once.
+     */
+    private void updateUserHistoryImpl( final SessionLabel sessionLabel, final List<UserAuditRecord> auditRecords )
             throws PwmUnrecoverableException, ChaiUnavailableException
     {
         // user info
-        final UserIdentity userIdentity;
-        if ( auditRecord instanceof HelpdeskAuditRecord && auditRecord.getType() == AuditEventType.HELPDESK )
-        {
-            final HelpdeskAuditRecord helpdeskAuditRecord = ( HelpdeskAuditRecord ) auditRecord;
-            userIdentity = UserIdentity.create( helpdeskAuditRecord.getTargetDN(), helpdeskAuditRecord.getTargetLdapProfile(), auditRecord.getDomain() );
-        }
-        else
-        {
-            userIdentity = UserIdentity.create( auditRecord.getPerpetratorDN(), auditRecord.getPerpetratorLdapProfile(), auditRecord.getDomain() );
-        }
+        final UserIdentity userIdentity = UserHistoryService.historySubject( auditRecords.get( 0 ) );
         final ChaiUser theUser = pwmDomain.getProxiedChaiUser( sessionLabel, userIdentity );
 
         // settings
@@ -160,9 +157,11 @@ public class LdapXmlUserHistory implements UserHistoryStore
             return;
         }
 
-        // add next record to blob
-        final StoredEvent storedEvent = StoredEvent.fromAuditRecord( auditRecord );
-        storedHistory.addEvent( storedEvent );
+        // add next records to blob
+        for ( final UserAuditRecord auditRecord : auditRecords )
+        {
+            storedHistory.addEvent( StoredEvent.fromAuditRecord( auditRecord ) );
+        }
 
         // trim the blob.
         final int maxUserEvents = ( int ) pwmDomain.getConfig().readSettingAsLong( PwmSetting.EVENTS_LDAP_MAX_EVENTS );
@@ -0,0 +1,117 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.userhistory;
+
+import password.pwm.svc.event.AuditEvent;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Compact binary encoding of a single {@link LdapXmlUserHistory.StoredEvent}, base64 encoded for storage in a text
+ * value column.  Only the fields kept by the ldap history format are stored; the remaining audit record fields are
+ * derived from the user when the history is read.
+ */
+final class UserHistoryEventCodec
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( UserHistoryEventCodec.class );
+
+    private static final int VERSION = 1;
+
+    private UserHistoryEventCodec()
+    {
+    }
+
+    static String encode( final LdapXmlUserHistory.StoredEvent storedEvent )
+    {
+        try ( ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream( 64 );
+              DataOutputStream output = new DataOutputStream( byteArrayOutputStream ) )
+        {
+            output.writeByte( VERSION );
+            output.writeUTF( storedEvent.getAuditEvent().getMessage().getKey() );
+            output.writeLong( storedEvent.getTimestamp() );
+            writeOptionalString( output, storedEvent.getMessage() );
+            writeOptionalString( output, storedEvent.getSourceAddress() );
+            writeOptionalString( output, storedEvent.getSourceHost() );
+            output.flush();
+            return Base64.getEncoder().encodeToString( byteArrayOutputStream.toByteArray() );
+        }
+        catch ( final IOException e )
+        {
+            throw new IllegalStateException( "unexpected error encoding user history event: " + e.getMessage(), e );
+        }
+    }
+
+    static Optional<LdapXmlUserHistory.StoredEvent> decode( final String input )
+    {
+        if ( StringUtil.isEmpty( input ) )
+        {
+            return Optional.empty();
+        }
+
+        try ( DataInputStream dataInput = new DataInputStream( new ByteArrayInputStream( Base64.getDecoder().decode( input ) ) ) )
+        {
+            final int version = dataInput.readUnsignedByte();
+            if ( version != VERSION )
+            {
+                LOGGER.debug( () -> "ignoring user history event with unknown encoding version " + version );
+                return Optional.empty();
+            }
+
+            final String eventKey = dataInput.readUTF();
+            final long timestamp = dataInput.readLong();
+            final String message = readOptionalString( dataInput );
+            final String sourceAddress = readOptionalString( dataInput );
+            final String sourceHost = readOptionalString( dataInput );
+
+            return AuditEvent.forKey( eventKey )
+                    .map( auditEvent -> new LdapXmlUserHistory.StoredEvent( auditEvent, timestamp, message, sourceAddress, sourceHost ) );
+        }
+        catch ( final IOException | IllegalArgumentException e )
+        {
+            LOGGER.debug( () -> "unable to decode stored user history event: " + e.getMessage() );
+            return Optional.empty();
+        }
+    }
+
+    private static void writeOptionalString( final DataOutputStream output, final String value )
+            throws IOException
+    {
+        output.writeBoolean( value != null );
+        if ( value != null )
+        {
+            output.writeUTF( value );
+        }
+    }
+
+    private static String readOptionalString( final DataInputStream input )
+            throws IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.userhistory;
+
+import password.pwm.bean.UserIdentity;
+import password.pwm.svc.event.UserAuditRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded buffer of user history records waiting to be written, grouped by the user each record belongs to.
+ *
+ * <p>Records are keyed by a normalized form of the subject identity, so a lookup by the identity of a loaded user
+ * finds records queued under the DN recorded in the audit event even when the two differ in case or spacing.</p>
+ */
+class UserHistoryPendingWrites
+{
+    enum OfferResult
+    {
+        /** The record is the first pending for its subject and a flush should be scheduled. */
+        FIRST_FOR_SUBJECT,
+
+        /** The record joined an already scheduled flush. */
+        ADDED,
+
+        /** The buffer is full and the caller should write the record itself. */
+        FULL,
+    }
+
+    private final int maxRecords;
+    private final Map<String, List<UserAuditRecord>> pending = new LinkedHashMap<>();
+    private int recordCount;
+
+    UserHistoryPendingWrites( final int maxRecords )
+    {
+        this.maxRecords = maxRecords;
+    }
+
+    synchronized OfferResult offer( final UserAuditRecord auditRecord )
+    {
+        if ( recordCount >= maxRecords )
+        {
+            return OfferResult.FULL;
+        }
+
+        final List<UserAuditRecord> subjectPending = pending.computeIfAbsent( subjectKey( UserHistoryService.historySubject( auditRecord ) ), k -> new ArrayList<>() );
+        subjectPending.add( auditRecord );
+        recordCount++;
+        return subjectPending.size() == 1 ? OfferResult.FIRST_FOR_SUBJECT : OfferResult.ADDED;
+    }
+
+    synchronized List<UserAuditRecord> drain( final UserIdentity subject )
+    {
+        return drain( subjectKey( subject ) );
+    }
+
+    synchronized List<List<UserAuditRecord>> drainAll()
+    {
+        final List<List<UserAuditRecord>> results = new ArrayList<>( pending.values() );
+        pending.clear();
+        recordCount = 0;
+        return results;
+    }
+
+    synchronized List<UserAuditRecord> peek( final UserIdentity subject )
+    {
+        final List<UserAuditRecord> subjectPending = pending.get( subjectKey( subject ) );
+        return subjectPending == null ? Collections.emptyList() : new ArrayList<>( subjectPending );
+    }
+
+    synchronized int size()
+    {
+        return recordCount;
+    }
+
+    private List<UserAuditRecord> drain( final String key )
+    {
+        final List<UserAuditRecord> subjectPending = pending.remove( key );
+        if ( subjectPending == null )
+        {
+            return Collections.emptyList();
+        }
+        recordCount -= subjectPending.size();
+        return subjectPending;
+    }
+
+    /**
+     * Normalized key for a history subject: DN case and whitespace around separators are not significant.
+     */
+    static String subjectKey( final UserIdentity userIdentity )
+    {
+        final String normalizedDN = userIdentity.getUserDN() == null
+                ? ""
+                : userIdentity.getUserDN().trim().replaceAll( "\\s*([,=+])\\s*", "$1" ).toLowerCase( Locale.ROOT );
+        return userIdentity.getDomainID() + "|" + userIdentity.getLdapProfileID() + "|" + normalizedDN;
+    }
+}
@@ -25,6 +25,7 @@ import password.pwm.PwmApplicationMode;
 import password.pwm.PwmDomain;
 import password.pwm.bean.DomainID;
 import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
 import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
@@ -35,9 +36,12 @@ import password.pwm.health.HealthRecord;
 import password.pwm.ldap.UserInfo;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.event.AuditEventType;
+import password.pwm.svc.event.HelpdeskAuditRecord;
 import password.pwm.svc.event.UserAuditRecord;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
+import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
@@ -48,6 +52,8 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 public class UserHistoryService extends AbstractPwmService implements PwmService
 {
@@ -56,11 +62,15 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
     private UserHistorySettings settings;
     private ServiceInfoBean serviceInfo = ServiceInfoBean.builder().build();
 
-    private ErrorInformation lastError;
+    private volatile ErrorInformation lastError;
     private UserHistoryStore userHistoryStore;
 
     private PwmDomain pwmDomain;
 
+    private UserHistoryPendingWrites pendingWrites = new UserHistoryPendingWrites( 0 );
+    private TimeDuration coalesceWindow = TimeDuration.ZERO;
+    private ExecutorService flushExecutor;
+
     public UserHistoryService( )
     {
     }
@@ -91,6 +101,12 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
     private void init( final PwmDomain pwmDomain )
     {
         settings = UserHistorySettings.fromConfig( pwmDomain.getConfig() );
+        coalesceWindow = settings.getCoalesceWindow();
+        if ( coalesceWindow.asMillis() > 0 )
+        {
+            pendingWrites = new UserHistoryPendingWrites( settings.getMaxPendingRecords() );
+            flushExecutor = PwmScheduler.makeBackgroundExecutor( pwmDomain.getPwmApplication(), this.getClass() );
+        }
 
         {
             final String debugMsg;
@@ -101,7 +117,7 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
                     if ( pwmDomain.getConfig().getAppConfig().hasDbConfigured() )
                     {
                         debugMsg = "starting using auto-configured data store, Remote Database selected";
-                        this.userHistoryStore = new DatabaseUserHistory( pwmDomain );
+                        this.userHistoryStore = new DatabaseUserHistory( pwmDomain, ( int ) settings.getMaxRecords() );
                         storageMethodUsed = DataStorageMethod.DB;
                     }
                     else
@@ -113,7 +129,7 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
                     break;
 
                 case DATABASE:
-                    this.userHistoryStore = new DatabaseUserHistory( pwmDomain );
+                    this.userHistoryStore = new DatabaseUserHistory( pwmDomain, ( int ) settings.getMaxRecords() );
                     debugMsg = "starting using Remote Database data store";
                     storageMethodUsed = DataStorageMethod.DB;
                     break;
@@ -139,6 +155,11 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
     @Override
     public void close( )
     {
+        if ( flushExecutor != null )
+        {
+            flushExecutor.shutdown();
+            flushAllPending();
+        }
         setStatus( STATUS.CLOSED );
     }
 
@@ -168,7 +189,22 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
             throws PwmUnrecoverableException
     {
         final Instant startTime = Instant.now();
-        final List<UserAuditRecord> results = userHistoryStore.readUserHistory( sessionLabel, userInfoBean );
+        final List<UserAuditRecord> storedResults = userHistoryStore.readUserHistory( sessionLabel, userInfoBean );
+
+        // include events still waiting to be written
+        final List<UserAuditRecord> pending = pendingWrites.peek( userInfoBean.getUserIdentity() );
+
+        final List<UserAuditRecord> results;
+        if ( pending.isEmpty() )
+        {
+            results = storedResults;
+        }
+        else
+        {
+            final List<UserAuditRecord> combined = new ArrayList<>( storedResults );
+            combined.addAll( pending );
+            results = Collections.unmodifiableList( combined.subList( Math.max( 0, combined.size() - ( int ) settings.getMaxRecords() ), combined.size() ) );
+        }
         LOGGER.trace( sessionLabel, () -> "read " + results.size() + " user history records", () -> TimeDuration.fromCurrent( startTime ) );
         return results;
     }
@@ -182,7 +218,10 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
             final String perpetratorDN = auditRecord.getPerpetratorDN();
             if ( StringUtil.notEmpty( perpetratorDN ) )
             {
-                userHistoryStore.updateUserHistory( sessionLabel, auditRecord );
+                if ( flushExecutor == null || !enqueueWrite( auditRecord ) )
+                {
+                    userHistoryStore.updateUserHistory( sessionLabel, Collections.singletonList( auditRecord ) );
+                }
             }
             else
             {
@@ -195,6 +234,82 @@ public class UserHistoryService extends AbstractPwmService implements PwmService
     }
 
 
+    /**
+     * Events for the same user that arrive within the coalesce window are written to the store together.  Returns false
+     * when too many events are already waiting, in which case the caller writes the event directly.
+     */
+    private boolean enqueueWrite( final UserAuditRecord auditRecord )
+    {
+        final UserIdentity subject = historySubject( auditRecord );
+        final UserHistoryPendingWrites.OfferResult offerResult = pendingWrites.offer( auditRecord );
+        if ( offerResult == UserHistoryPendingWrites.OfferResult.FULL )
+        {
+            LOGGER.trace( getSessionLabel(), () -> "user history write buffer is full, writing event for " + subject.toDisplayString() + " directly" );
+            return false;
+        }
+
+        if ( offerResult == UserHistoryPendingWrites.OfferResult.FIRST_FOR_SUBJECT )
+        {
+            try
+            {
+                getPwmApplication().getPwmScheduler().scheduleJob( () -> flushPending( subject ), flushExecutor, coalesceWindow );
+            }
+            catch ( final RejectedExecutionException | IllegalStateException e )
+            {
+                flushPending( subject );
+            }
+        }
+        return true;
+    }
+
+    private void flushPending( final UserIdentity subject )
+    {
+        writePending( subject, pendingWrites.drain( subject ) );
+    }
+
+    private void writePending( final UserIdentity subject, final List<UserAuditRecord> records )
+    {
+        if ( records.isEmpty() )
+        {
+            return;
+        }
+
+        try
+        {
+            userHistoryStore.updateUserHistory( getSessionLabel(), records );
+            if ( records.size() > 1 )
+            {
+                LOGGER.trace( getSessionLabel(), () -> "coalesced " + records.size() + " user history events for " + subject.toDisplayString() );
+            }
+        }
+        catch ( final PwmException e )
+        {
+            lastError = e.getErrorInformation();
+            LOGGER.error( getSessionLabel(), () -> "error writing user history for " + subject.toDisplayString() + ": " + e.getMessage() );
+        }
+    }
+
+    private void flushAllPending( )
+    {
+        for ( final List<UserAuditRecord> records : pendingWrites.drainAll() )
+        {
+            writePending( historySubject( records.get( 0 ) ), records );
+        }
+    }
+
+    /**
+     * The user whose history an audit record belongs to; the target user for helpdesk events, otherwise the perpetrator.
+     */
+    static UserIdentity historySubject( final UserAuditRecord auditRecord )
+    {
+        if ( auditRecord instanceof HelpdeskAuditRecord && auditRecord.getType() == AuditEventType.HELPDESK )
+        {
+            final HelpdeskAuditRecord helpdeskAuditRecord = ( HelpdeskAuditRecord ) auditRecord;
+            return UserIdentity.create( helpdeskAuditRecord.getTargetDN(), helpdeskAuditRecord.getTargetLdapProfile(), auditRecord.getDomain() );
+        }
+        return UserIdentity.create( auditRecord.getPerpetratorDN(), auditRecord.getPerpetratorLdapProfile(), auditRecord.getDomain() );
+    }
+
     @Override
     public ServiceInfoBean serviceInfo( )
     {
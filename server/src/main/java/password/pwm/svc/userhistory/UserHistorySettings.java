@@ -22,10 +22,12 @@ package password.pwm.svc.userhistory;
 
 import lombok.Builder;
 import lombok.Value;
+import password.pwm.AppProperty;
 import password.pwm.config.DomainConfig;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.option.UserEventStorageMethod;
 import password.pwm.svc.event.AuditEvent;
+import password.pwm.util.java.TimeDuration;
 
 import java.util.Set;
 
@@ -36,6 +38,8 @@ class UserHistorySettings
     private Set<AuditEvent> userStoredEvents;
     private long maxRecords;
     private UserEventStorageMethod userEventStorageMethod;
+    private TimeDuration coalesceWindow;
+    private int maxPendingRecords;
 
     static UserHistorySettings fromConfig( final DomainConfig domainConfig )
     {
@@ -43,6 +47,10 @@ class UserHistorySettings
                 .maxRecords( domainConfig.readSettingAsLong( PwmSetting.EVENTS_LDAP_MAX_EVENTS ) )
                 .userEventStorageMethod( domainConfig.readSettingAsEnum( PwmSetting.EVENTS_USER_STORAGE_METHOD, UserEventStorageMethod.class ) )
                 .userStoredEvents( domainConfig.readSettingAsOptionList( PwmSetting.EVENTS_USER_EVENT_TYPES, AuditEvent.class ) )
+                .coalesceWindow( TimeDuration.of(
+                        Long.parseLong( domainConfig.readAppProperty( AppProperty.AUDIT_USER_HISTORY_COALESCE_WINDOW_MS ) ),
+                        TimeDuration.Unit.MILLISECONDS ) )
+                .maxPendingRecords( Integer.parseInt( domainConfig.readAppProperty( AppProperty.AUDIT_USER_HISTORY_MAX_PENDING_RECORDS ) ) )
                 .build();
     }
 }
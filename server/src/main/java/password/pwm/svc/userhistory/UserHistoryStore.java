@@ -29,7 +29,10 @@ import java.util.List;
 
 public interface UserHistoryStore
 {
-    void updateUserHistory( SessionLabel sessionLabel, UserAuditRecord auditRecord ) throws PwmUnrecoverableException;
+    /**
+     * Append events to the history of a single user.  All records must have the same history subject.
+     */
+    void updateUserHistory( SessionLabel sessionLabel, List<UserAuditRecord> auditRecords ) throws PwmUnrecoverableException;
 
     List<UserAuditRecord> readUserHistory( SessionLabel sessionLabel, UserInfo userInfo ) throws PwmUnrecoverableException;
 }
@@ -121,7 +121,7 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         }
 
         inhibitBackgroundImportFlag.set( false );
-        executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
+        executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass(), PwmScheduler.WorkloadClass.CpuBound );
 
         if ( !pwmApplication.getPwmEnvironment().isInternalRuntimeInstance() )
         {
@@ -25,6 +25,7 @@ import password.pwm.error.PwmDataStoreException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.ClosableIterator;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -55,9 +56,18 @@ public interface DataStore
     boolean putIfAbsent( String key, String value )
             throws PwmDataStoreException, PwmUnrecoverableException;
 
+    void putAll( Map<String, String> keyValueMap )
+            throws PwmDataStoreException, PwmUnrecoverableException;
+
     void remove( String key )
             throws PwmDataStoreException, PwmUnrecoverableException;
 
+    /**
+     * Remove the keys, returning the number of keys that were present and removed.
+     */
+    int removeAll( Collection<String> keys )
+            throws PwmDataStoreException, PwmUnrecoverableException;
+
     long size( )
             throws PwmDataStoreException, PwmUnrecoverableException;
 
@@ -21,10 +21,15 @@
 package password.pwm.util;
 
 import org.jetbrains.annotations.NotNull;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
+import password.pwm.config.AppConfig;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.svc.PwmService;
+import password.pwm.svc.stats.AvgStatistic;
+import password.pwm.svc.stats.StatisticsService;
 import password.pwm.util.java.AtomicLoopIntIncrementer;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
@@ -33,8 +38,11 @@ import password.pwm.util.logging.PwmLogger;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.EnumMap;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.TimeZone;
 import java.util.concurrent.Callable;
@@ -55,6 +63,36 @@ public class PwmScheduler
 
     private final ScheduledExecutorService applicationExecutorService;
     private final PwmApplication pwmApplication;
+    private final Map<WorkloadClass, WorkloadPool> workloadPools = new EnumMap<>( WorkloadClass.class );
+
+    /**
+     * Kinds of background work, each served by one application wide pool shared by all services and domains.
+     */
+    public enum WorkloadClass
+    {
+        /** Work that mostly waits on ldap, database or http servers. */
+        IoBound( AppProperty.SCHEDULER_IO_BOUND_MAX_THREADS, AvgStatistic.AVG_SCHEDULER_IO_BOUND_WAIT_TIME ),
+
+        /** Work that mostly computes, such as hashing wordlist entries. */
+        CpuBound( AppProperty.SCHEDULER_CPU_BOUND_MAX_THREADS, AvgStatistic.AVG_SCHEDULER_CPU_BOUND_WAIT_TIME ),
+
+        /** Periodic housekeeping such as trimming, flushing and health checks. */
+        Maintenance( AppProperty.SCHEDULER_MAINTENANCE_MAX_THREADS, AvgStatistic.AVG_SCHEDULER_MAINTENANCE_WAIT_TIME ),;
+
+        private final AppProperty maxThreadsProperty;
+        private final AvgStatistic waitStatistic;
+
+        WorkloadClass( final AppProperty maxThreadsProperty, final AvgStatistic waitStatistic )
+        {
+            this.maxThreadsProperty = maxThreadsProperty;
+            this.waitStatistic = waitStatistic;
+        }
+
+        public AvgStatistic getWaitStatistic()
+        {
+            return waitStatistic;
+        }
+    }
 
     public PwmScheduler( final PwmApplication pwmApplication )
     {
@@ -65,6 +103,71 @@ public class PwmScheduler
     public void shutdown()
     {
         applicationExecutorService.shutdown();
+
+        synchronized ( workloadPools )
+        {
+            for ( final WorkloadPool workloadPool : workloadPools.values() )
+            {
+                workloadPool.close( TimeDuration.SECONDS_10 );
+            }
+            workloadPools.clear();
+        }
+    }
+
+    /**
+     * Make an executor whose tasks run on the shared pool of the workload class, at most {@code maxConcurrency} at
+     * a time.  The executor must be shut down by its owner like any other executor.
+     */
+    public ExecutorService makeWorkloadExecutor( final Class clazz, final WorkloadClass workloadClass, final int maxConcurrency )
+    {
+        final int maxQueueSize = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.SCHEDULER_EXECUTOR_MAX_QUEUE_SIZE ) );
+        return new WorkloadLaneExecutor( workloadPool( workloadClass ), clazz.getSimpleName(), maxConcurrency, maxQueueSize );
+    }
+
+    private WorkloadPool workloadPool( final WorkloadClass workloadClass )
+    {
+        synchronized ( workloadPools )
+        {
+            return workloadPools.computeIfAbsent( workloadClass, this::makeWorkloadPool );
+        }
+    }
+
+    private WorkloadPool makeWorkloadPool( final WorkloadClass workloadClass )
+    {
+        final AppConfig appConfig = pwmApplication.getConfig();
+        final int configuredThreads = Integer.parseInt( appConfig.readAppProperty( workloadClass.maxThreadsProperty ) );
+        final int maxThreads = configuredThreads > 0
+                ? configuredThreads
+                : Math.max( 2, Runtime.getRuntime().availableProcessors() );
+        final boolean virtualThreads = workloadClass == WorkloadClass.IoBound
+                && appConfig.readBooleanAppProperty( AppProperty.SCHEDULER_IO_BOUND_VIRTUAL_THREADS );
+        final String threadNamePrefix = makeThreadName( pwmApplication, PwmScheduler.class ) + "-" + workloadClass;
+        return new WorkloadPool( workloadClass, threadNamePrefix, maxThreads, virtualThreads, waitMs -> recordWaitTime( workloadClass, waitMs ) );
+    }
+
+    private void recordWaitTime( final WorkloadClass workloadClass, final long waitMs )
+    {
+        final StatisticsService statisticsService = pwmApplication.getStatisticsManager();
+        if ( statisticsService != null && statisticsService.status() == PwmService.STATUS.OPEN )
+        {
+            statisticsService.updateAverageValue( workloadClass.getWaitStatistic(), waitMs );
+        }
+    }
+
+    /**
+     * Queue depth, wait time and throughput of each shared workload pool in use.
+     */
+    public Map<String, String> debugStats()
+    {
+        final Map<String, String> stats = new LinkedHashMap<>();
+        synchronized ( workloadPools )
+        {
+            for ( final WorkloadPool workloadPool : workloadPools.values() )
+            {
+                stats.putAll( workloadPool.debugStats() );
+            }
+        }
+        return stats;
     }
 
     public Future<?> immediateExecuteRunnableInNewThread(
@@ -233,21 +336,64 @@ public class PwmScheduler
             final PwmApplication pwmApplication,
             final Class clazz
     )
+    {
+        return makeBackgroundExecutor( pwmApplication, clazz, WorkloadClass.Maintenance );
+    }
+
+    /**
+     * Make a single threaded executor for the class that runs on the shared pool of the workload class.
+     */
+    public static ExecutorService makeBackgroundExecutor(
+            final PwmApplication pwmApplication,
+            final Class clazz,
+            final WorkloadClass workloadClass
+    )
+    {
+        final PwmScheduler pwmScheduler = pwmApplication.getPwmScheduler();
+        if ( pwmScheduler.checkIfSchedulerClosed() )
+        {
+            return null;
+        }
+
+        return pwmScheduler.makeWorkloadExecutor( clazz, workloadClass, 1 );
+    }
+
+    /**
+     * Background executor with its own thread running at minimum priority, for bulk work such as support bundle
+     * generation that should yield the cpu to request processing.  Thread priority can not be set for work on the
+     * shared pools, so this executor is not backed by a {@link WorkloadClass} pool.
+     */
+    public static ExecutorService makeLowPriorityBackgroundExecutor(
+            final PwmApplication pwmApplication,
+            final Class clazz
+    )
+    {
+        return makePriorityBackgroundExecutor( pwmApplication, clazz, Thread.MIN_PRIORITY );
+    }
+
+    private static ExecutorService makePriorityBackgroundExecutor(
+            final PwmApplication pwmApplication,
+            final Class clazz,
+            final int threadPriority
+    )
     {
         if ( pwmApplication.getPwmScheduler().checkIfSchedulerClosed() )
         {
             return null;
         }
 
+        final ThreadFactory threadFactory = makePwmThreadFactory( makeThreadName( pwmApplication, clazz ) + "-", true );
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(
                 1,
                 1,
                 10, TimeUnit.SECONDS,
                 new LinkedBlockingQueue<>(),
-                makePwmThreadFactory(
-                        makeThreadName( pwmApplication, clazz ) + "-",
-                        true
-                ) );
+                runnable ->
+                {
+                    final Thread thread = threadFactory.newThread( runnable );
+                    thread.setPriority( threadPriority );
+                    return thread;
+                } );
         executor.allowCoreThreadTimeOut( true );
         return executor;
     }
@@ -0,0 +1,316 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util;
+
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executor owned by a single service that runs its tasks on a shared {@link WorkloadPool}.  At most
+ * {@code maxConcurrency} tasks of the lane run at once, so a lane with a concurrency of one keeps the ordering
+ * guarantees of the single thread executor it replaces.  Tasks beyond {@code maxQueueSize} are rejected.
+ *
+ * <p>Shutting down a lane affects only the lane; the shared pool stays open until the scheduler is shut down.</p>
+ */
+class WorkloadLaneExecutor extends AbstractExecutorService
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( WorkloadLaneExecutor.class );
+
+    private final WorkloadPool pool;
+    private final String name;
+    private final int maxConcurrency;
+    private final int maxQueueSize;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition terminatedCondition = lock.newCondition();
+    private final Deque<QueuedTask> queue = new ArrayDeque<>();
+    private int running;
+    private int awaitingPoll;
+    private boolean shutdown;
+
+    WorkloadLaneExecutor( final WorkloadPool pool, final String name, final int maxConcurrency, final int maxQueueSize )
+    {
+        this.pool = Objects.requireNonNull( pool );
+        this.name = Objects.requireNonNull( name );
+        this.maxConcurrency = Math.max( 1, maxConcurrency );
+        this.maxQueueSize = Math.max( 1, maxQueueSize );
+        pool.laneOpened();
+    }
+
+    @Override
+    public void execute( final Runnable command )
+    {
+        Objects.requireNonNull( command );
+
+        lock.lock();
+        try
+        {
+            if ( shutdown )
+            {
+                throw new RejectedExecutionException( "executor " + name + " is shut down" );
+            }
+
+            if ( queue.size() >= maxQueueSize )
+            {
+                pool.taskRejected();
+                throw new RejectedExecutionException( "executor " + name + " queue is full (" + maxQueueSize + " tasks)" );
+            }
+
+            queue.addLast( new QueuedTask( command, System.nanoTime() ) );
+            pool.taskQueued();
+            dispatchWhileIdle();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void dispatchWhileIdle()
+    {
+        while ( running < maxConcurrency && awaitingPoll < queue.size() )
+        {
+            running++;
+            awaitingPoll++;
+            try
+            {
+                pool.dispatch( this::runNext );
+            }
+            catch ( final RejectedExecutionException e )
+            {
+                running--;
+                awaitingPoll--;
+                LOGGER.warn( () -> "shared " + pool.getWorkloadClass() + " pool rejected task for " + name + ": " + e.getMessage() );
+                return;
+            }
+        }
+    }
+
+    private void runNext()
+    {
+        final QueuedTask task;
+        lock.lock();
+        try
+        {
+            awaitingPoll--;
+            task = queue.pollFirst();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        try
+        {
+            if ( task != null )
+            {
+                runTask( task );
+            }
+        }
+        finally
+        {
+            lock.lock();
+            try
+            {
+                running--;
+                dispatchWhileIdle();
+                if ( isTerminatedLocked() )
+                {
+                    terminatedCondition.signalAll();
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void runTask( final QueuedTask task )
+    {
+        pool.taskStarted( task.getQueuedNanos() );
+
+        final Thread thread = Thread.currentThread();
+        final String originalName = thread.getName();
+        thread.setName( originalName + "-" + name );
+        try
+        {
+            task.getRunnable().run();
+        }
+        catch ( final Throwable t )
+        {
+            LOGGER.error( () -> "unexpected error running task for " + name + ": " + t.getMessage(), t );
+        }
+        finally
+        {
+            thread.setName( originalName );
+            pool.taskCompleted();
+        }
+    }
+
+    @Override
+    public void shutdown()
+    {
+        lock.lock();
+        try
+        {
+            if ( !shutdown )
+            {
+                shutdown = true;
+                pool.laneClosed();
+            }
+            if ( isTerminatedLocked() )
+            {
+                terminatedCondition.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        final List<Runnable> pending = new ArrayList<>();
+        lock.lock();
+        try
+        {
+            shutdown();
+            for ( final QueuedTask task : queue )
+            {
+                pending.add( task.getRunnable() );
+            }
+            queue.clear();
+            pool.tasksRemoved( pending.size() );
+            if ( isTerminatedLocked() )
+            {
+                terminatedCondition.signalAll();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        lock.lock();
+        try
+        {
+            return shutdown;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        lock.lock();
+        try
+        {
+            return isTerminatedLocked();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private boolean isTerminatedLocked()
+    {
+        return shutdown && running == 0 && queue.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination( final long timeout, final TimeUnit unit )
+            throws InterruptedException
+    {
+        long remainingNanos = unit.toNanos( timeout );
+        lock.lock();
+        try
+        {
+            while ( !isTerminatedLocked() )
+            {
+                if ( remainingNanos <= 0 )
+                {
+                    return false;
+                }
+                remainingNanos = terminatedCondition.awaitNanos( remainingNanos );
+            }
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "WorkloadLaneExecutor[" + name + "/" + pool.getWorkloadClass() + "]";
+    }
+
+    private static final class QueuedTask
+    {
+        private final Runnable runnable;
+        private final long queuedNanos;
+
+        QueuedTask( final Runnable runnable, final long queuedNanos )
+        {
+            this.runnable = runnable;
+            this.queuedNanos = queuedNanos;
+        }
+
+        Runnable getRunnable()
+        {
+            return runnable;
+        }
+
+        long getQueuedNanos()
+        {
+            return queuedNanos;
+        }
+    }
+}
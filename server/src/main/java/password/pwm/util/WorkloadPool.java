@@ -0,0 +1,188 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util;
+
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Shared worker pool of one {@link PwmScheduler.WorkloadClass}.  Work reaches the pool only through
+ * {@link WorkloadLaneExecutor} lanes; each lane dispatches a single task at a time and re-dispatches after it
+ * completes, so lanes with deep queues take turns with other lanes instead of occupying every worker.
+ */
+class WorkloadPool
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( WorkloadPool.class );
+
+    private final PwmScheduler.WorkloadClass workloadClass;
+    private final ExecutorService executorService;
+    private final LongConsumer waitTimeListener;
+    private final int maxThreads;
+    private final boolean virtualThreads;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger activeLanes = new AtomicInteger();
+    private final LongAdder startedTasks = new LongAdder();
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder totalWaitMs = new LongAdder();
+    private final LongAccumulator maxWaitMs = new LongAccumulator( Math::max, 0 );
+
+    WorkloadPool(
+            final PwmScheduler.WorkloadClass workloadClass,
+            final String threadNamePrefix,
+            final int maxThreads,
+            final boolean useVirtualThreads,
+            final LongConsumer waitTimeListener
+    )
+    {
+        this.workloadClass = workloadClass;
+        this.maxThreads = maxThreads;
+        this.waitTimeListener = waitTimeListener;
+
+        final ExecutorService virtualExecutor = useVirtualThreads ? makeVirtualThreadExecutor() : null;
+        this.virtualThreads = virtualExecutor != null;
+        if ( virtualExecutor != null )
+        {
+            this.executorService = virtualExecutor;
+        }
+        else
+        {
+            final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                    maxThreads,
+                    maxThreads,
+                    1, TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<>(),
+                    PwmScheduler.makePwmThreadFactory( threadNamePrefix + "-", true ) );
+            threadPoolExecutor.allowCoreThreadTimeOut( true );
+            this.executorService = threadPoolExecutor;
+        }
+    }
+
+    /**
+     * Returns a virtual thread per task executor when the runtime provides one.
+     */
+    private static ExecutorService makeVirtualThreadExecutor()
+    {
+        try
+        {
+            final Method method = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            return ( ExecutorService ) method.invoke( null );
+        }
+        catch ( final ReflectiveOperationException e )
+        {
+            LOGGER.debug( () -> "virtual threads are not available in this runtime, using platform threads" );
+            return null;
+        }
+    }
+
+    PwmScheduler.WorkloadClass getWorkloadClass()
+    {
+        return workloadClass;
+    }
+
+    void dispatch( final Runnable runnable )
+    {
+        executorService.execute( runnable );
+    }
+
+    void taskQueued()
+    {
+        queueDepth.incrementAndGet();
+    }
+
+    void tasksRemoved( final int count )
+    {
+        queueDepth.addAndGet( -count );
+    }
+
+    void taskRejected()
+    {
+        rejectedTasks.increment();
+    }
+
+    void laneOpened()
+    {
+        activeLanes.incrementAndGet();
+    }
+
+    void laneClosed()
+    {
+        activeLanes.decrementAndGet();
+    }
+
+    void taskStarted( final long queuedNanos )
+    {
+        queueDepth.decrementAndGet();
+        startedTasks.increment();
+        final long waitMs = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - queuedNanos );
+        totalWaitMs.add( waitMs );
+        maxWaitMs.accumulate( waitMs );
+        waitTimeListener.accept( waitMs );
+    }
+
+    void taskCompleted()
+    {
+        completedTasks.increment();
+    }
+
+    void close( final TimeDuration waitTime )
+    {
+        executorService.shutdown();
+        try
+        {
+            executorService.awaitTermination( waitTime.asMillis(), TimeUnit.MILLISECONDS );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    Map<String, String> debugStats()
+    {
+        final long started = startedTasks.sum();
+        final String prefix = workloadClass.name() + ".";
+        final Map<String, String> stats = new LinkedHashMap<>();
+        stats.put( prefix + "threads", virtualThreads ? "virtual" : String.valueOf( maxThreads ) );
+        stats.put( prefix + "lanes", String.valueOf( activeLanes.get() ) );
+        stats.put( prefix + "queueDepth", String.valueOf( queueDepth.get() ) );
+        stats.put( prefix + "completed", String.valueOf( completedTasks.sum() ) );
+        stats.put( prefix + "rejected", String.valueOf( rejectedTasks.sum() ) );
+        stats.put( prefix + "avgWaitMs", String.valueOf( started == 0 ? 0 : totalWaitMs.sum() / started ) );
+        stats.put( prefix + "maxWaitMs", String.valueOf( maxWaitMs.get() ) );
+        return stats;
+    }
+}
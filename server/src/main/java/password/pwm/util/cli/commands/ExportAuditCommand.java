@@ -24,6 +24,7 @@ import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.bean.DomainID;
 import password.pwm.svc.event.AuditService;
+import password.pwm.svc.event.AuditVaultQuery;
 import password.pwm.util.cli.CliParameters;
 import password.pwm.util.java.TimeDuration;
 
@@ -49,7 +50,14 @@ public class ExportAuditCommand extends AbstractCliCommand
         final int counter;
         try ( FileOutputStream fileOutputStream = new FileOutputStream( outputFile, true ) )
         {
-            counter = auditManager.outputVaultToCsv( fileOutputStream, PwmConstants.DEFAULT_LOCALE, false );
+            if ( outputFile.getName().toLowerCase( PwmConstants.DEFAULT_LOCALE ).endsWith( ".json" ) )
+            {
+                counter = auditManager.outputVaultToJson( fileOutputStream, AuditVaultQuery.all() );
+            }
+            else
+            {
+                counter = auditManager.outputVaultToCsv( fileOutputStream, PwmConstants.DEFAULT_LOCALE, false );
+            }
         }
         out( "completed writing " + counter + " rows of audit output in " + TimeDuration.fromCurrent( startTime ).asLongString() );
     }
@@ -59,7 +67,7 @@ public class ExportAuditCommand extends AbstractCliCommand
     {
         final CliParameters cliParameters = new CliParameters();
         cliParameters.commandName = "ExportAudit";
-        cliParameters.description = "Dump all audit records in the LocalDB to a csv file";
+        cliParameters.description = "Dump all audit records in the LocalDB to a csv file, or to a json lines file if the file name ends with .json";
         cliParameters.options = Collections.singletonList( CliParameters.REQUIRED_NEW_OUTPUT_FILE );
 
         cliParameters.needsPwmApplication = true;
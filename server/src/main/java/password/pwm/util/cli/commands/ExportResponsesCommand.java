@@ -100,7 +100,7 @@ public class ExportResponsesCommand extends AbstractCliCommand
                 outputData.helpdeskChallenges = responseSet.get().asHelpdeskChallengeBeans( true );
                 outputData.minimumRandoms = responseSet.get().getChallengeSet().minimumResponses();
                 outputData.username = identity.toDelimitedKey();
-                writer.write( JsonUtil.serialize( outputData ) );
+                JsonUtil.serializeTo( outputData, writer );
                 writer.write( systemRecordDelimiter );
             }
             else
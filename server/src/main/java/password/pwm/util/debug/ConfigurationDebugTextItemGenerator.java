@@ -23,11 +23,12 @@ package password.pwm.util.debug;
 import password.pwm.PwmConstants;
 import password.pwm.config.stored.StoredConfigKey;
 import password.pwm.config.stored.StoredConfiguration;
-import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.JavaHelper;
 
 import java.io.OutputStream;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
 import java.util.Locale;
 
 class ConfigurationDebugTextItemGenerator implements AppItemGenerator
@@ -44,7 +45,8 @@ class ConfigurationDebugTextItemGenerator implements AppItemGenerator
         final Locale locale = PwmConstants.DEFAULT_LOCALE;
         final StoredConfiguration storedConfiguration = debugItemInput.getObfuscatedAppConfig().getStoredConfiguration();
 
-        final StringWriter writer = new StringWriter();
+        // do not close writer because underlying stream should not be closed.
+        final Writer writer = new OutputStreamWriter( outputStream, PwmConstants.DEFAULT_CHARSET );
         writer.write( "Configuration Debug Output for "
                 + PwmConstants.PWM_APP_NAME + " "
                 + PwmConstants.SERVLET_VERSION + "\n" );
@@ -52,19 +54,22 @@ class ConfigurationDebugTextItemGenerator implements AppItemGenerator
         writer.write( "This file is " + PwmConstants.DEFAULT_CHARSET.displayName() + " encoded\n" );
         writer.write( "\n" );
 
-        CollectionUtil.iteratorToStream( storedConfiguration.keys() )
-                .filter( k -> k.isRecordType( StoredConfigKey.RecordType.SETTING ) )
-                .forEach( storedConfigKey ->
-                {
-                    final String key = storedConfigKey.toPwmSetting().toMenuLocationDebug( storedConfigKey.getProfileID(), locale );
-                    final String value = storedConfiguration.readStoredValue( storedConfigKey ).orElseThrow().toDebugString( locale );
-                    writer.write( ">> Setting > " + key );
-                    writer.write( "\n" );
-                    writer.write( value );
-                    writer.write( "\n" );
-                    writer.write( "\n" );
-                } );
+        final Iterator<StoredConfigKey> keys = storedConfiguration.keys();
+        while ( keys.hasNext() )
+        {
+            final StoredConfigKey storedConfigKey = keys.next();
+            if ( storedConfigKey.isRecordType( StoredConfigKey.RecordType.SETTING ) )
+            {
+                final String key = storedConfigKey.toPwmSetting().toMenuLocationDebug( storedConfigKey.getProfileID(), locale );
+                final String value = storedConfiguration.readStoredValue( storedConfigKey ).orElseThrow().toDebugString( locale );
+                writer.write( ">> Setting > " + key );
+                writer.write( "\n" );
+                writer.write( value );
+                writer.write( "\n" );
+                writer.write( "\n" );
+            }
+        }
 
-        outputStream.write( writer.toString().getBytes( PwmConstants.DEFAULT_CHARSET ) );
+        writer.flush();
     }
 }
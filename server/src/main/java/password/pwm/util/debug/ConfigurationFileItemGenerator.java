@@ -24,7 +24,6 @@ import password.pwm.PwmConstants;
 import password.pwm.config.stored.StoredConfiguration;
 import password.pwm.config.stored.StoredConfigurationFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 
 class ConfigurationFileItemGenerator implements AppItemGenerator
@@ -40,12 +39,10 @@ class ConfigurationFileItemGenerator implements AppItemGenerator
     {
         final StoredConfiguration storedConfiguration = debugItemInput.getObfuscatedAppConfig().getStoredConfiguration();
 
-        // temporary output stream required because .toXml closes stream.
-        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        // written directly; the support bundle item stream ignores the close issued by the xml output.
         final StoredConfigurationFactory.OutputSettings outputSettings = StoredConfigurationFactory.OutputSettings.builder()
                 .mode( StoredConfigurationFactory.OutputSettings.SecureOutputMode.STRIPPED )
                 .build();
-        StoredConfigurationFactory.output( storedConfiguration, byteArrayOutputStream, outputSettings );
-        outputStream.write( byteArrayOutputStream.toByteArray() );
+        StoredConfigurationFactory.output( storedConfiguration, outputStream, outputSettings );
     }
 }
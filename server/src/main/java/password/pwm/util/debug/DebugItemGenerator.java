@@ -20,6 +20,9 @@
 
 package password.pwm.util.debug;
 
+import lombok.Value;
+import org.apache.commons.csv.CSVPrinter;
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.PwmDomain;
@@ -29,17 +32,23 @@ import password.pwm.config.DomainConfig;
 import password.pwm.config.stored.StoredConfiguration;
 import password.pwm.config.stored.StoredConfigurationUtil;
 import password.pwm.error.PwmUnrecoverableException;
-import password.pwm.util.java.DebugOutputBuilder;
+import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.OutputStream;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -55,6 +64,7 @@ public class DebugItemGenerator
             SystemEnvironmentItemGenerator.class,
             AppPropertiesItemGenerator.class,
             ServicesDebugItemGenerator.class,
+            ServiceStartupDebugItemGenerator.class,
             HealthDebugItemGenerator.class,
             ThreadDumpDebugItemGenerator.class,
             FileInfoDebugItemGenerator.class,
@@ -80,8 +90,11 @@ public class DebugItemGenerator
     private final PwmApplication pwmApplication;
     private final AppConfig obfuscatedAppConfig;
     private final SessionLabel sessionLabel;
+    private final long maxItemBytes;
+    private final TimeDuration timeBudget;
 
     private static final Locale LOCALE = PwmConstants.DEFAULT_LOCALE;
+    private static final String GENERATION_FILENAME = "zipDebugGeneration.csv";
 
     public DebugItemGenerator( final PwmApplication pwmApplication, final SessionLabel sessionLabel )
             throws PwmUnrecoverableException
@@ -91,6 +104,12 @@ public class DebugItemGenerator
 
         final StoredConfiguration obfuscatedStoredConfig = StoredConfigurationUtil.copyConfigAndBlankAllPasswords( pwmApplication.getConfig().getStoredConfiguration() );
         this.obfuscatedAppConfig = new AppConfig( obfuscatedStoredConfig );
+
+        final AppConfig appConfig = pwmApplication.getConfig();
+        this.maxItemBytes = JavaHelper.silentParseLong( appConfig.readAppProperty( AppProperty.CONFIG_MANAGER_ZIPDEBUG_MAX_ITEM_BYTES ), 100_000_000L );
+        this.timeBudget = TimeDuration.of(
+                JavaHelper.silentParseLong( appConfig.readAppProperty( AppProperty.CONFIG_MANAGER_ZIPDEBUG_TIME_BUDGET_SECONDS ), 600 ),
+                TimeDuration.Unit.SECONDS );
     }
 
     private String getFilenameBase()
@@ -106,21 +125,24 @@ public class DebugItemGenerator
     public void outputZipDebugFile( final ZipOutputStream zipOutput )
             throws IOException
     {
-        final String debugFileName = "zipDebugGeneration.csv";
         final Instant startTime = Instant.now();
-        final DebugOutputBuilder debugGeneratorLogFile = new DebugOutputBuilder();
-        debugGeneratorLogFile.appendLine( "beginning debug output" );
+        final long deadlineNanos = System.nanoTime() + timeBudget.asMillis() * 1_000_000L;
+        final List<ItemResult> itemResults = new ArrayList<>();
+        final ExecutorService itemExecutor = PwmScheduler.makeSingleThreadExecutorService( pwmApplication, DebugItemGenerator.class );
 
+        try
         {
-            final AppDebugItemInput debugItemInput = new AppDebugItemInput( pwmApplication, sessionLabel, this.obfuscatedAppConfig, LOCALE );
-            final String pathPrefix = getFilenameBase() + "/";
+            final AppDebugItemInput appItemInput = new AppDebugItemInput( pwmApplication, sessionLabel, this.obfuscatedAppConfig, LOCALE );
+            final String appPathPrefix = getFilenameBase() + "/";
             for ( final Class<? extends AppItemGenerator> serviceClass : APP_ITEM_GENERATORS )
             {
-                executeAppDebugItem( debugItemInput, serviceClass, debugGeneratorLogFile, zipOutput, pathPrefix );
+                itemResults.add( executeDebugItem( serviceClass, zipOutput, appPathPrefix, deadlineNanos, itemExecutor, ( outputStream ) ->
+                {
+                    final AppItemGenerator appItemGenerator = serviceClass.getDeclaredConstructor().newInstance();
+                    return new ItemOutput( appItemGenerator.getFilename(), () -> appItemGenerator.outputItem( appItemInput, outputStream ) );
+                } ) );
             }
-        }
 
-        {
             for ( final PwmDomain pwmDomain : pwmApplication.domains().values() )
             {
                 final DomainConfig obfuscatedDomainConfig = this.obfuscatedAppConfig.getDomainConfigs().get( pwmDomain.getDomainID() );
@@ -128,98 +150,202 @@ public class DebugItemGenerator
                 final String pathPrefix = getFilenameBase() + "/" + pwmDomain.getDomainID() + "/";
                 for ( final Class<? extends DomainItemGenerator> serviceClass : DOMAIN_ITEM_GENERATORS )
                 {
-                    executeDomainDebugItem( debugItemInput, serviceClass, debugGeneratorLogFile, zipOutput, pathPrefix );
+                    itemResults.add( executeDebugItem( serviceClass, zipOutput, pathPrefix, deadlineNanos, itemExecutor, ( outputStream ) ->
+                    {
+                        final DomainItemGenerator domainItemGenerator = serviceClass.getDeclaredConstructor().newInstance();
+                        return new ItemOutput( domainItemGenerator.getFilename(), () -> domainItemGenerator.outputItem( debugItemInput, outputStream ) );
+                    } ) );
                 }
             }
         }
-
+        finally
         {
-            final String msg = "completed";
-            debugGeneratorLogFile.appendLine( msg );
-            LOGGER.trace( sessionLabel, () -> msg, () ->  TimeDuration.fromCurrent( startTime ) );
+            itemExecutor.shutdownNow();
         }
 
+        LOGGER.trace( sessionLabel, () -> "completed support bundle output", () ->  TimeDuration.fromCurrent( startTime ) );
+
         try
         {
-            zipOutput.putNextEntry( new ZipEntry( getFilenameBase() + "/" + debugFileName ) );
-            zipOutput.write( debugGeneratorLogFile.toString().getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            zipOutput.putNextEntry( new ZipEntry( getFilenameBase() + "/" + GENERATION_FILENAME ) );
+            outputGenerationTimes( itemResults, zipOutput );
             zipOutput.closeEntry();
         }
         catch ( final Exception e )
         {
-            LOGGER.error( () -> "error generating " + debugFileName + ": " + e.getMessage() );
+            LOGGER.error( () -> "error generating " + GENERATION_FILENAME + ": " + e.getMessage() );
         }
 
         zipOutput.flush();
     }
 
-    private void executeAppDebugItem(
-            final AppDebugItemInput debugItemInput,
-            final Class<? extends AppItemGenerator> serviceClass,
-            final DebugOutputBuilder debugGeneratorLogFile,
+    /**
+     * Stream one item into its own zip entry.  The item runs on the executor and is abandoned if it has not finished
+     * by the deadline, so an item stuck outside of a write cannot hold up the bundle.  Once the time budget is
+     * exhausted remaining items are skipped, though an entry is still written for each so the bundle shows what is
+     * missing.
+     */
+    private ItemResult executeDebugItem(
+            final Class<?> serviceClass,
             final ZipOutputStream zipOutput,
-            final String pathPrefix
+            final String pathPrefix,
+            final long deadlineNanos,
+            final ExecutorService itemExecutor,
+            final ItemOutputFactory itemOutputFactory
     )
     {
+        final Instant itemStartTime = Instant.now();
+        final SupportItemOutputStream itemOutputStream = new SupportItemOutputStream( zipOutput, maxItemBytes, deadlineNanos );
+        String filename = serviceClass.getSimpleName();
+        SupportItemOutputStream.ItemStatus itemStatus = SupportItemOutputStream.ItemStatus.completed;
+        String message = "";
+
         try
         {
-            final Instant itemStartTime = Instant.now();
             LOGGER.trace( sessionLabel, () -> "beginning output of item " + serviceClass.getSimpleName() );
-            final AppItemGenerator newAppItemGeneratorItem = serviceClass.getDeclaredConstructor().newInstance();
-            zipOutput.putNextEntry( new ZipEntry( pathPrefix + newAppItemGeneratorItem.getFilename() ) );
-            newAppItemGeneratorItem.outputItem( debugItemInput, zipOutput );
-            zipOutput.closeEntry();
-            zipOutput.flush();
-            final String finishMsg = "completed output of " + newAppItemGeneratorItem.getFilename()
-                    + " in " + TimeDuration.fromCurrent( itemStartTime ).asCompactString();
-            LOGGER.trace( sessionLabel, () -> finishMsg );
-            debugGeneratorLogFile.appendLine( finishMsg );
+            final ItemOutput itemOutput = itemOutputFactory.make( itemOutputStream );
+            filename = itemOutput.getFilename();
+            zipOutput.putNextEntry( new ZipEntry( pathPrefix + filename ) );
+
+            if ( System.nanoTime() - deadlineNanos > 0 )
+            {
+                itemStatus = SupportItemOutputStream.ItemStatus.skipped;
+                message = "support bundle time budget exhausted";
+            }
+            else
+            {
+                runWithDeadline( itemOutput.getOutputter(), itemOutputStream, deadlineNanos, itemExecutor );
+            }
+
+            itemOutputStream.flush();
         }
         catch ( final Throwable e )
         {
-            final String errorMsg = "unexpected error executing debug item output class '" + serviceClass.getName() + "', error: " + e.toString();
-            LOGGER.error( sessionLabel, () -> errorMsg, e );
-            debugGeneratorLogFile.appendLine( errorMsg );
-            final Writer stackTraceOutput = new StringWriter();
-            e.printStackTrace( new PrintWriter( stackTraceOutput ) );
-            debugGeneratorLogFile.appendLine( stackTraceOutput.toString() );
+            final Optional<SupportItemOutputStream.ItemLimitException> limitException = findLimitException( e );
+            if ( limitException.isPresent() )
+            {
+                itemStatus = limitException.get().getItemStatus();
+                message = limitException.get().getMessage();
+            }
+            else
+            {
+                itemStatus = SupportItemOutputStream.ItemStatus.error;
+                message = "unexpected error executing debug item output class '" + serviceClass.getName() + "', error: " + e.toString();
+                final String errorMsg = message;
+                LOGGER.error( sessionLabel, () -> errorMsg, e );
+            }
+        }
+        finally
+        {
+            try
+            {
+                zipOutput.closeEntry();
+            }
+            catch ( final IOException e )
+            {
+                LOGGER.debug( sessionLabel, () -> "error closing support bundle entry for " + serviceClass.getSimpleName() + ": " + e.getMessage() );
+            }
         }
-    }
 
+        final ItemResult itemResult = new ItemResult( pathPrefix + filename, itemStatus, itemOutputStream.getByteCount(), TimeDuration.fromCurrent( itemStartTime ), message );
+        LOGGER.trace( sessionLabel, () -> "completed output of " + itemResult.getPath() + " (" + itemResult.getStatus() + ", "
+                + itemResult.getBytes() + " bytes)", itemResult::getDuration );
+        return itemResult;
+    }
 
-    void executeDomainDebugItem(
-            final DomainDebugItemInput debugItemInput,
-            final Class<? extends DomainItemGenerator> serviceClass,
-            final DebugOutputBuilder debugGeneratorLogFile,
-            final ZipOutputStream zipOutput,
-            final String pathPrefix
+    private static void runWithDeadline(
+            final ItemOutputter itemOutputter,
+            final SupportItemOutputStream itemOutputStream,
+            final long deadlineNanos,
+            final ExecutorService itemExecutor
     )
+            throws Throwable
     {
+        final Future<?> future = itemExecutor.submit( () ->
+        {
+            itemOutputter.output();
+            return null;
+        } );
+
         try
         {
-            final Instant itemStartTime = Instant.now();
-            LOGGER.trace( sessionLabel, () -> "beginning output of item " + serviceClass.getSimpleName() );
-            final DomainItemGenerator newAppItemGeneratorItem = serviceClass.getDeclaredConstructor().newInstance();
-            zipOutput.putNextEntry( new ZipEntry( pathPrefix + newAppItemGeneratorItem.getFilename() ) );
-            newAppItemGeneratorItem.outputItem( debugItemInput, zipOutput );
-            zipOutput.closeEntry();
-            zipOutput.flush();
-            final String finishMsg = "completed output of " + newAppItemGeneratorItem.getFilename()
-                    + " in " + TimeDuration.fromCurrent( itemStartTime ).asCompactString();
-            LOGGER.trace( sessionLabel, () -> finishMsg );
-            debugGeneratorLogFile.appendLine( finishMsg );
+            future.get( Math.max( 0, deadlineNanos - System.nanoTime() ), TimeUnit.NANOSECONDS );
         }
-        catch ( final Throwable e )
+        catch ( final TimeoutException e )
+        {
+            itemOutputStream.abandon();
+            future.cancel( true );
+            throw new SupportItemOutputStream.ItemLimitException( SupportItemOutputStream.ItemStatus.timeout,
+                    "support bundle time budget exhausted after " + itemOutputStream.getByteCount() + " bytes" );
+        }
+        catch ( final InterruptedException e )
+        {
+            itemOutputStream.abandon();
+            future.cancel( true );
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        catch ( final ExecutionException e )
         {
-            final String errorMsg = "unexpected error executing debug item output class '" + serviceClass.getName() + "', error: " + e.toString();
-            LOGGER.error( sessionLabel, () -> errorMsg, e );
-            debugGeneratorLogFile.appendLine( errorMsg );
-            final Writer stackTraceOutput = new StringWriter();
-            e.printStackTrace( new PrintWriter( stackTraceOutput ) );
-            debugGeneratorLogFile.appendLine( stackTraceOutput.toString() );
+            throw e.getCause();
         }
+    }
 
+    private static Optional<SupportItemOutputStream.ItemLimitException> findLimitException( final Throwable throwable )
+    {
+        Throwable cause = throwable;
+        while ( cause != null )
+        {
+            if ( cause instanceof SupportItemOutputStream.ItemLimitException )
+            {
+                return Optional.of( ( SupportItemOutputStream.ItemLimitException ) cause );
+            }
+            cause = cause.getCause();
+        }
+        return Optional.empty();
     }
 
+    private static void outputGenerationTimes( final List<ItemResult> itemResults, final OutputStream outputStream )
+            throws IOException
+    {
+        final CSVPrinter csvPrinter = JavaHelper.makeCsvPrinter( outputStream );
+        csvPrinter.printRecord( "Item", "Status", "Bytes", "Milliseconds", "Message" );
+        for ( final ItemResult itemResult : itemResults )
+        {
+            csvPrinter.printRecord(
+                    itemResult.getPath(),
+                    itemResult.getStatus(),
+                    itemResult.getBytes(),
+                    itemResult.getDuration().asMillis(),
+                    itemResult.getMessage() );
+        }
+        csvPrinter.flush();
+    }
+
+    private interface ItemOutputFactory
+    {
+        ItemOutput make( OutputStream outputStream ) throws Exception;
+    }
+
+    private interface ItemOutputter
+    {
+        void output() throws Exception;
+    }
 
+    @Value
+    private static class ItemOutput
+    {
+        private final String filename;
+        private final ItemOutputter outputter;
+    }
+
+    @Value
+    private static class ItemResult
+    {
+        private final String path;
+        private final SupportItemOutputStream.ItemStatus status;
+        private final long bytes;
+        private final TimeDuration duration;
+        private final String message;
+    }
 }
@@ -48,6 +48,7 @@ class IntruderDataGenerator implements AppItemGenerator
             while ( record.hasNext() )
             {
                 outputStream.write( JsonUtil.serialize( record.next() ).getBytes( PwmConstants.DEFAULT_CHARSET ) );
+                outputStream.write( '\n' );
             }
         }
     }
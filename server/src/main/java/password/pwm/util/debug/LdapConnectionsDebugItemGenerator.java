@@ -44,7 +44,7 @@ class LdapConnectionsDebugItemGenerator implements DomainItemGenerator
         final PwmDomain pwmDomain = debugItemInput.getPwmDomain();
         final List<LdapConnectionService.ConnectionInfo> connectionInfos = pwmDomain.getLdapConnectionService().getConnectionInfos();
         final Writer writer = new OutputStreamWriter( outputStream, PwmConstants.DEFAULT_CHARSET );
-        writer.write( JsonUtil.serializeCollection( connectionInfos, JsonUtil.Flag.PrettyPrint ) );
+        JsonUtil.serializeTo( connectionInfos, writer, JsonUtil.Flag.PrettyPrint );
         writer.flush();
     }
 }
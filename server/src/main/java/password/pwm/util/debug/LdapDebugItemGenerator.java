@@ -47,7 +47,7 @@ class LdapDebugItemGenerator implements DomainItemGenerator
                 debugItemInput.getLocale()
         );
         final Writer writer = new OutputStreamWriter( outputStream, PwmConstants.DEFAULT_CHARSET );
-        writer.write( JsonUtil.serializeCollection( ldapDebugInfos, JsonUtil.Flag.PrettyPrint ) );
+        JsonUtil.serializeTo( ldapDebugInfos, writer, JsonUtil.Flag.PrettyPrint );
         writer.flush();
     }
 }
@@ -28,7 +28,8 @@ import password.pwm.http.servlet.admin.UserDebugDataReader;
 import password.pwm.util.java.JsonUtil;
 
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Objects;
 
@@ -45,8 +46,11 @@ class LdapRecentUserDebugGenerator implements DomainItemGenerator
     {
         final PwmDomain pwmDomain = debugItemInput.getPwmDomain();
         final List<UserIdentity> recentUsers = pwmDomain.getPwmApplication().getSessionTrackService().getRecentLogins();
-        final List<UserDebugDataBean> recentDebugBeans = new ArrayList<>();
 
+        // each user is read and written in turn so only one user's debug data is held in memory
+        final Writer writer = new OutputStreamWriter( outputStream, PwmConstants.DEFAULT_CHARSET );
+        writer.write( "[" );
+        boolean first = true;
         for ( final UserIdentity userIdentity : recentUsers )
         {
             if ( Objects.equals( userIdentity.getDomainID(), pwmDomain.getDomainID() ) )
@@ -57,10 +61,15 @@ class LdapRecentUserDebugGenerator implements DomainItemGenerator
                         debugItemInput.getSessionLabel(),
                         userIdentity
                 );
-                recentDebugBeans.add( dataBean );
+                writer.write( first ? "\n" : ",\n" );
+                JsonUtil.serializeTo( dataBean, writer, JsonUtil.Flag.PrettyPrint );
+                writer.flush();
+                first = false;
             }
         }
+        writer.write( "\n]\n" );
 
-        outputStream.write( JsonUtil.serializeCollection( recentDebugBeans, JsonUtil.Flag.PrettyPrint ).getBytes( PwmConstants.DEFAULT_CHARSET ) );
+        // do not close writer because underlying stream should not be closed.
+        writer.flush();
     }
 }
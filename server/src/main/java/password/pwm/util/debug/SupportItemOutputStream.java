@@ -0,0 +1,133 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.debug;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream handed to a single support bundle item.  Writes go straight through to the zip stream so no item is
+ * held in memory, and the item is stopped once it exceeds the per item size cap or the bundle time budget.  An item
+ * that is still running when the generator gives up on it is abandoned, after which none of its writes reach the zip
+ * stream.  Closing is ignored so an item cannot close the shared zip stream.
+ */
+class SupportItemOutputStream extends OutputStream
+{
+    private final OutputStream outputStream;
+    private final long maxBytes;
+    private final long deadlineNanos;
+
+    private long byteCount;
+    private boolean abandoned;
+
+    SupportItemOutputStream( final OutputStream outputStream, final long maxBytes, final long deadlineNanos )
+    {
+        this.outputStream = outputStream;
+        this.maxBytes = maxBytes;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    synchronized long getByteCount()
+    {
+        return byteCount;
+    }
+
+    /**
+     * Detach the item from the zip stream; once this returns no further write or flush by the item reaches it.
+     */
+    synchronized void abandon()
+    {
+        abandoned = true;
+    }
+
+    @Override
+    public void write( final int b )
+            throws IOException
+    {
+        write( new byte[] {( byte ) b}, 0, 1 );
+    }
+
+    @Override
+    public synchronized void write( final byte[] b, final int off, final int len )
+            throws IOException
+    {
+        if ( abandoned || System.nanoTime() - deadlineNanos > 0 )
+        {
+            throw new ItemLimitException( ItemStatus.timeout, "support bundle time budget exhausted after " + byteCount + " bytes" );
+        }
+
+        final long remaining = maxBytes - byteCount;
+        if ( len > remaining )
+        {
+            outputStream.write( b, off, ( int ) remaining );
+            byteCount += remaining;
+            throw new ItemLimitException( ItemStatus.truncated, "item truncated at maximum size of " + maxBytes + " bytes" );
+        }
+
+        outputStream.write( b, off, len );
+        byteCount += len;
+    }
+
+    @Override
+    public synchronized void flush()
+            throws IOException
+    {
+        if ( !abandoned )
+        {
+            outputStream.flush();
+        }
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        flush();
+    }
+
+    enum ItemStatus
+    {
+        completed,
+        truncated,
+        timeout,
+        skipped,
+        error,
+    }
+
+    static class ItemLimitException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ItemStatus itemStatus;
+
+        ItemLimitException( final ItemStatus itemStatus, final String message )
+        {
+            super( message );
+            this.itemStatus = itemStatus;
+        }
+
+        ItemStatus getItemStatus()
+        {
+            return itemStatus;
+        }
+    }
+}
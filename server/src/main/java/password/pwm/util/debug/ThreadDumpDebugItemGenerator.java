@@ -23,10 +23,9 @@ package password.pwm.util.debug;
 import password.pwm.PwmConstants;
 import password.pwm.util.java.JavaHelper;
 
-import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 
@@ -41,15 +40,13 @@ class ThreadDumpDebugItemGenerator implements AppItemGenerator
     @Override
     public void outputItem( final AppDebugItemInput debugItemInput, final OutputStream outputStream ) throws Exception
     {
-
-        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        final PrintWriter writer = new PrintWriter( new OutputStreamWriter( byteArrayOutputStream, PwmConstants.DEFAULT_CHARSET ) );
+        // do not close writer because underlying stream should not be closed.
+        final Writer writer = new OutputStreamWriter( outputStream, PwmConstants.DEFAULT_CHARSET );
         final ThreadInfo[] threads = ManagementFactory.getThreadMXBean().dumpAllThreads( true, true );
         for ( final ThreadInfo threadInfo : threads )
         {
             writer.write( JavaHelper.threadInfoToString( threadInfo ) );
         }
         writer.flush();
-        outputStream.write( byteArrayOutputStream.toByteArray() );
     }
 }
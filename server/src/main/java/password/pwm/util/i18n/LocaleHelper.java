@@ -23,13 +23,13 @@ package password.pwm.util.i18n;
 import password.pwm.AppProperty;
 import password.pwm.PwmConstants;
 import password.pwm.PwmDomain;
-import password.pwm.bean.pub.SessionStateInfoBean;
 import password.pwm.config.DomainConfig;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.PwmSettingTemplateSet;
 import password.pwm.config.SettingReader;
 import password.pwm.config.value.StringArrayValue;
 import password.pwm.http.PwmRequest;
+import password.pwm.http.PwmSession;
 import password.pwm.i18n.Display;
 import password.pwm.i18n.PwmDisplayBundle;
 import password.pwm.i18n.PwmLocaleBundle;
@@ -42,7 +42,6 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -413,17 +412,10 @@ public class LocaleHelper
     {
         if ( pwmDomain != null && StringUtil.notEmpty( sessionID ) )
         {
-            final Iterator<SessionStateInfoBean> sessionInfoIterator = pwmDomain.getSessionTrackService().getSessionInfoIterator();
-            while ( sessionInfoIterator.hasNext() )
+            final Optional<PwmSession> pwmSession = pwmDomain.getSessionTrackService().getSession( sessionID );
+            if ( pwmSession.isPresent() && pwmSession.get().getSessionStateBean().getLocale() != null )
             {
-                final SessionStateInfoBean sessionStateInfoBean = sessionInfoIterator.next();
-                if ( StringUtil.nullSafeEquals( sessionStateInfoBean.getLabel(), sessionID ) )
-                {
-                    if ( sessionStateInfoBean.getLocale() != null )
-                    {
-                        return sessionStateInfoBean.getLocale();
-                    }
-                }
+                return pwmSession.get().getSessionStateBean().getLocale();
             }
         }
 
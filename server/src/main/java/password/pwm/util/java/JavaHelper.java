@@ -528,17 +528,17 @@ public class JavaHelper
             return Optional.empty();
         }
 
-        if ( inputException.getClass().isAssignableFrom( exceptionType ) )
+        if ( exceptionType.isInstance( inputException ) )
         {
-            return Optional.of( ( T ) inputException );
+            return Optional.of( exceptionType.cast( inputException ) );
         }
 
         Throwable nextException = inputException.getCause();
         while ( nextException != null )
         {
-            if ( nextException.getClass().isAssignableFrom( exceptionType ) )
+            if ( exceptionType.isInstance( nextException ) )
             {
-                return Optional.of( ( T ) inputException );
+                return Optional.of( exceptionType.cast( nextException ) );
             }
 
             nextException = nextException.getCause();
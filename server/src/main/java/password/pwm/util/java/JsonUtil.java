@@ -25,11 +25,13 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import password.pwm.PwmConstants;
 import password.pwm.bean.DomainID;
 import password.pwm.error.PwmUnrecoverableException;
@@ -39,7 +41,9 @@ import password.pwm.util.logging.PwmLogger;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateFactory;
@@ -53,6 +57,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 public class JsonUtil
 {
@@ -64,30 +69,48 @@ public class JsonUtil
         HtmlEscape,
     }
 
-    private static final Gson GENERIC_GSON = registerTypeAdapters( new GsonBuilder() )
-            .disableHtmlEscaping()
-            .create();
+    /**
+     * One configured instance per combination of flags, indexed by the bit mask of flag ordinals.
+     */
+    private static final Gson[] GSON_INSTANCES = makeGsonInstances();
 
-    private static Gson getGson( final Flag... flags )
+    private static Gson[] makeGsonInstances()
     {
-        if ( flags == null || flags.length == 0 )
+        final Flag[] allFlags = Flag.values();
+        final Gson[] instances = new Gson[ 1 << allFlags.length ];
+        for ( int mask = 0; mask < instances.length; mask++ )
         {
-            return GENERIC_GSON;
-        }
+            final GsonBuilder gsonBuilder = registerTypeAdapters( new GsonBuilder() );
+
+            if ( ( mask & ( 1 << Flag.HtmlEscape.ordinal() ) ) == 0 )
+            {
+                gsonBuilder.disableHtmlEscaping();
+            }
 
-        final GsonBuilder gsonBuilder = registerTypeAdapters( new GsonBuilder() );
+            if ( ( mask & ( 1 << Flag.PrettyPrint.ordinal() ) ) != 0 )
+            {
+                gsonBuilder.setPrettyPrinting();
+            }
 
-        if ( !JavaHelper.enumArrayContainsValue( flags, Flag.HtmlEscape ) )
-        {
-            gsonBuilder.disableHtmlEscaping();
+            instances[ mask ] = gsonBuilder.create();
         }
+        return instances;
+    }
 
-        if ( JavaHelper.enumArrayContainsValue( flags, Flag.PrettyPrint ) )
+    private static Gson getGson( final Flag... flags )
+    {
+        int mask = 0;
+        if ( flags != null )
         {
-            gsonBuilder.setPrettyPrinting();
+            for ( final Flag flag : flags )
+            {
+                if ( flag != null )
+                {
+                    mask |= 1 << flag.ordinal();
+                }
+            }
         }
-
-        return gsonBuilder.create();
+        return GSON_INSTANCES[ mask ];
     }
 
     public static <T> T deserialize( final String jsonString, final TypeToken typeToken )
@@ -148,6 +171,63 @@ public class JsonUtil
         return JsonUtil.getGson( flags ).toJson( object );
     }
 
+    /**
+     * Write the json form of an object directly to a writer, without building the complete json string first.  The
+     * writer is not flushed or closed.
+     */
+    public static void serializeTo( final Object object, final Writer writer, final Flag... flags )
+            throws IOException
+    {
+        try
+        {
+            JsonUtil.getGson( flags ).toJson( object, writer );
+        }
+        catch ( final JsonIOException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw ( IOException ) e.getCause();
+            }
+            throw new IOException( "error writing json: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Read a json array one element at a time, passing each element to the consumer.  Neither the array text nor the
+     * complete list is held in memory.  The reader is not closed.
+     */
+    public static <T> void deserializeArray( final Reader reader, final Class<T> elementClass, final Consumer<? super T> consumer )
+            throws IOException
+    {
+        final Gson gson = JsonUtil.getGson();
+        final JsonReader jsonReader = gson.newJsonReader( reader );
+        jsonReader.beginArray();
+        while ( jsonReader.hasNext() )
+        {
+            final T element = gson.fromJson( jsonReader, elementClass );
+            consumer.accept( element );
+        }
+        jsonReader.endArray();
+    }
+
+    /**
+     * Copy an object by converting it to a json tree and back, using the same type adapters as serialization.
+     */
+    public static <T extends Serializable> T deepCopy( final T srcObject )
+    {
+        if ( srcObject == null )
+        {
+            return null;
+        }
+
+        final Gson gson = JsonUtil.getGson();
+        final JsonElement jsonTree = gson.toJsonTree( srcObject );
+
+        @SuppressWarnings( "unchecked" )
+        final Class<T> srcClass = ( Class<T> ) srcObject.getClass();
+        return gson.fromJson( jsonTree, srcClass );
+    }
+
     /**
      * Gson Serializer for {@link java.security.cert.X509Certificate}.  Necessary because sometimes X509Certs have circular references
      * and the default gson serializer will cause a {@code java.lang.StackOverflowError}.  Standard Base64 encoding of
@@ -403,10 +483,4 @@ public class JsonUtil
         gsonBuilder.registerTypeAdapter( LongAdder.class, new LongAdderTypeAdaptor() );
         return gsonBuilder;
     }
-
-    public static <T> T cloneUsingJson( final Serializable srcObject, final Class<T> classOfT )
-    {
-        final String asJson = JsonUtil.serialize( srcObject );
-        return JsonUtil.deserialize( asJson, classOfT );
-    }
 }
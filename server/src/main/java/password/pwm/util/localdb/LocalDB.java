@@ -139,7 +139,8 @@ public interface LocalDB
         TEMP(  ),
         SYSLOG_QUEUE( Flag.Backup ),
         CACHE(  ),
-        REPORT_QUEUE( ),;
+        REPORT_QUEUE( ),
+        AUDIT_VAULT( Flag.Backup ),;
 
         private final boolean backup;
 
@@ -25,6 +25,7 @@ import password.pwm.error.PwmDataStoreException;
 import password.pwm.util.DataStore;
 import password.pwm.util.java.ClosableIterator;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
@@ -63,6 +64,7 @@ public class LocalDBDataStore implements DataStore
         return localDB.iterator( db );
     }
 
+    @Override
     public void putAll( final Map<String, String> keyValueMap ) throws PwmDataStoreException
     {
         localDB.putAll( db, keyValueMap );
@@ -110,6 +112,22 @@ public class LocalDBDataStore implements DataStore
         localDB.remove( db, key );
     }
 
+    @Override
+    public int removeAll( final Collection<String> keys ) throws PwmDataStoreException
+    {
+        // localdb removals do not report what was present, and local reads are cheap
+        int presentKeys = 0;
+        for ( final String key : keys )
+        {
+            if ( localDB.contains( db, key ) )
+            {
+                presentKeys++;
+            }
+        }
+        localDB.removeAll( db, keys );
+        return presentKeys;
+    }
+
     @Override
     public long size( ) throws PwmDataStoreException
     {
@@ -129,6 +129,26 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
         }
     }
 
+    /**
+     * Replace the value at a position counted from the head of the queue, if that position still holds the expected value.
+     *
+     * @param headOffset number of values between the head of the queue and the position to replace
+     * @param expectedValue value expected at the position
+     * @param newValue replacement value
+     * @return true if the value was replaced
+     */
+    public boolean replace( final int headOffset, final String expectedValue, final String newValue )
+    {
+        try
+        {
+            return internalQueue.replace( headOffset, expectedValue, newValue );
+        }
+        catch ( final LocalDBException e )
+        {
+            throw new IllegalStateException( "unexpected localDB error while modifying queue: " + e.getMessage(), e );
+        }
+    }
+
     @Override
     public boolean isEmpty( )
     {
@@ -924,6 +944,38 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
             return Collections.unmodifiableList( removedValues );
         }
 
+        boolean replace( final int headOffset, final String expectedValue, final String newValue )
+                throws LocalDBException
+        {
+            lock.writeLock().lock();
+            try
+            {
+                if ( headOffset < 0 || headOffset >= internalSize() )
+                {
+                    return false;
+                }
+
+                Position position = headPosition;
+                for ( int i = 0; i < headOffset; i++ )
+                {
+                    position = position.previous();
+                }
+
+                final Optional<String> currentValue = localDB.get( db, position.key() );
+                if ( currentValue.isEmpty() || !currentValue.get().equals( expectedValue ) )
+                {
+                    return false;
+                }
+
+                localDB.put( db, position.key(), newValue );
+                return true;
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+
         void addFirst( final Collection<String> values )
                 throws LocalDBException
         {
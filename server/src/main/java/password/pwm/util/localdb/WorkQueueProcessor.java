@@ -41,12 +41,21 @@ import password.pwm.util.logging.PwmLogger;
 import java.io.Serializable;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -59,11 +68,29 @@ import java.util.function.Supplier;
 
 /**
  * A work item queue manager.   Items submitted to the queue will eventually be worked on by the client side @code {@link ItemProcessor}.
+ *
+ * <p>When {@link Settings#getWorkerThreads()} or {@link Settings#getMaxBatchSize()} is greater than one, the worker thread acts as a
+ * dispatcher: it reads a window of items from the head of the queue and hands them to a set of worker lanes, each of which processes
+ * its share of the window as one {@link ItemProcessor#newBatch(List)}.  Items with the same {@link ItemProcessor#partitionKey(Serializable)}
+ * always run on the same lane in queue order.  Items are only removed from the head of the queue once they (and every item ahead of them)
+ * have completed, so the durability and retry behavior of the backing queue is the same as with a single worker.</p>
+ *
+ * <p>An item that completes while an item ahead of it is still pending is replaced in a {@link LocalDBStoredQueue} by a completion
+ * marker, so it is not delivered again after a restart.  A key waiting to retry only holds back its own items: later windows skip past
+ * them, looking up to {@value #WINDOW_LOOKAHEAD_WINDOWS} windows beyond the head of the queue.  Once that far ahead is complete or
+ * waiting, dispatch pauses until the next retry.</p>
  */
 public final class WorkQueueProcessor<W extends Serializable>
 {
     private static final TimeDuration SUBMIT_QUEUE_FULL_RETRY_CYCLE_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
     private static final TimeDuration CLOSE_RETRY_CYCLE_INTERVAL = TimeDuration.of( 5, TimeDuration.Unit.MILLISECONDS );
+    private static final int WINDOW_ITEMS_PER_WORKER = 4;
+    private static final int WINDOW_LOOKAHEAD_WINDOWS = 16;
+
+    /**
+     * Stored in place of an item that completed while an item ahead of it was pending.
+     */
+    private static final String COMPLETED_ITEM_MARKER = "{\"completed\":true}";
 
     private final Deque<String> queue;
     private final Settings settings;
@@ -79,6 +106,10 @@ public final class WorkQueueProcessor<W extends Serializable>
 
     private ThreadPoolExecutor executorService;
 
+    private final List<ExecutorService> workerLanes = new ArrayList<>();
+    private final List<LaneStats> laneStats = new ArrayList<>();
+    private final AtomicLoopIntIncrementer laneIncrementer;
+
     private final MovingAverage avgLagTime = new MovingAverage( TimeDuration.MINUTE );
     private final EventRateMeter sendRate = new EventRateMeter( TimeDuration.MINUTE );
 
@@ -90,6 +121,9 @@ public final class WorkQueueProcessor<W extends Serializable>
         preQueueBypass,
         preQueueFallback,
         queueProcessItems,
+        queueRetries,
+        queueBackpressureWaits,
+        queueDispatchWindows,
     }
 
     public enum ProcessResult
@@ -119,6 +153,19 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
         logger.trace( () -> "initializing worker thread with settings " + JsonUtil.serialize( settings ) );
 
+        final int workerThreads = Math.max( 1, settings.getWorkerThreads() );
+        this.laneIncrementer = AtomicLoopIntIncrementer.builder().ceiling( workerThreads ).build();
+        for ( int i = 0; i < workerThreads; i++ )
+        {
+            laneStats.add( new LaneStats() );
+            if ( workerThreads > 1 || settings.getMaxBatchSize() > 1 )
+            {
+                final ThreadFactory laneThreadFactory = PwmScheduler.makePwmThreadFactory(
+                        PwmScheduler.makeThreadName( pwmApplication, sourceClass ) + "-lane" + i + "-", true );
+                workerLanes.add( Executors.newSingleThreadExecutor( laneThreadFactory ) );
+            }
+        }
+
         this.workerThread = new WorkerThread();
         workerThread.setDaemon( true );
         workerThread.setName( PwmScheduler.makeThreadName( pwmApplication, sourceClass ) + "-worker-" );
@@ -165,6 +212,8 @@ public final class WorkQueueProcessor<W extends Serializable>
             settings.getMaxShutdownWaitTime().pause( CLOSE_RETRY_CYCLE_INTERVAL, () -> !localWorkerThread.isRunning() );
         }
 
+        workerLanes.forEach( ExecutorService::shutdown );
+
         final TimeDuration timeDuration = TimeDuration.fromCurrent( startTime );
         final String msg = "shutting down with " + queue.size() + " items remaining in work queue (" + timeDuration.asCompactString() + ")";
         if ( !queue.isEmpty() )
@@ -221,7 +270,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             final ProcessResult processResult = itemProcessor.process( itemWrapper.getWorkItem() );
             if ( processResult == ProcessResult.SUCCESS )
             {
-                logAndStatUpdateForSuccess( itemWrapper, () -> TimeDuration.fromCurrent( processStartTime ) );
+                logAndStatUpdateForSuccess( itemWrapper, -1, () -> TimeDuration.fromCurrent( processStartTime ) );
             }
             else if ( processResult == ProcessResult.RETRY || processResult == ProcessResult.NOOP )
             {
@@ -260,8 +309,12 @@ public final class WorkQueueProcessor<W extends Serializable>
         int attempts = 1;
 
         final String asString = JsonUtil.serialize( itemWrapper );
-        while ( !queue.offerLast( asString ) )
+        while ( queue.size() >= settings.getMaxEvents() || !queue.offerLast( asString ) )
         {
+            if ( attempts == 1 )
+            {
+                workQueueStats.increment( WorkQueueStat.queueBackpressureWaits );
+            }
             attempts++;
             final TimeDuration waitTime = TimeDuration.fromCurrent( startTime );
             if ( waitTime.isLongerThan( settings.getMaxSubmitWaitTime() ) )
@@ -328,7 +381,18 @@ public final class WorkQueueProcessor<W extends Serializable>
         private final AtomicBoolean shutdownFlag = new AtomicBoolean( false );
         private final AtomicBoolean notifyWorkFlag = new AtomicBoolean( true );
 
-        private Instant retryWakeupTime;
+        private volatile Instant retryWakeupTime;
+
+        /**
+         * Raw values of items that completed while an item ahead of them in the queue was still pending.  Only needed for queues
+         * that can not store a completion marker.
+         */
+        private final Set<String> completedItems = new HashSet<>();
+
+        /**
+         * Partition group keys waiting to retry, with the time the retry is due.
+         */
+        private final Map<String, Instant> retryingKeys = new HashMap<>();
 
         @Override
         public void run( )
@@ -338,7 +402,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             {
                 while ( !shutdownFlag.get() )
                 {
-                    processNextItem();
+                    processNext();
                     waitForWork();
                 }
             }
@@ -358,7 +422,7 @@ public final class WorkQueueProcessor<W extends Serializable>
                     final Instant shutdownStartTime = Instant.now();
                     while ( retryWakeupTime == null && !queue.isEmpty() && TimeDuration.fromCurrent( shutdownStartTime ).isLongerThan( settings.getMaxShutdownWaitTime() ) )
                     {
-                        processNextItem();
+                        processNext();
                     }
                 }
                 catch ( final Throwable t )
@@ -425,6 +489,345 @@ public final class WorkQueueProcessor<W extends Serializable>
             return running.get();
         }
 
+        private void processNext( )
+        {
+            if ( workerLanes.isEmpty() )
+            {
+                processNextItem();
+            }
+            else
+            {
+                processNextWindow();
+            }
+        }
+
+        /**
+         * Reads a window of items from the head of the queue and processes them concurrently across the worker lanes.  Completed
+         * items are removed from the head of the queue in order; items completed behind a pending item are marked as completed so
+         * they are not processed again.  Items of a key waiting to retry are skipped, and the window extends past them.
+         */
+        private void processNextWindow( )
+        {
+            final int maxItems = workerLanes.size() * Math.max( WINDOW_ITEMS_PER_WORKER, settings.getMaxBatchSize() );
+            final int maxScan = maxItems * WINDOW_LOOKAHEAD_WINDOWS;
+            final Instant now = Instant.now();
+            retryingKeys.values().removeIf( retryTime -> !retryTime.isAfter( now ) );
+
+            final List<String> window = new ArrayList<>();
+            final List<ItemOutcome> scanOutcomes = new ArrayList<>();
+            final List<String> groupKeys = new ArrayList<>();
+            final List<ItemWrapper<W>> wrappers = new ArrayList<>();
+            final List<W> workItems = new ArrayList<>();
+            final Map<String, List<Integer>> partitions = new LinkedHashMap<>();
+            int dispatchCount = 0;
+
+            final Iterator<String> iterator = queue.iterator();
+            while ( dispatchCount < maxItems && window.size() < maxScan && iterator.hasNext() )
+            {
+                final String rawValue = iterator.next();
+                final int index = window.size();
+                window.add( rawValue );
+                wrappers.add( null );
+                workItems.add( null );
+                groupKeys.add( null );
+                scanOutcomes.add( null );
+
+                if ( COMPLETED_ITEM_MARKER.equals( rawValue ) || completedItems.contains( rawValue ) )
+                {
+                    scanOutcomes.set( index, ItemOutcome.COMPLETE );
+                    continue;
+                }
+
+                final ItemWrapper<W> itemWrapper = parseItem( rawValue );
+                final W workItem = readWorkItem( itemWrapper );
+                if ( workItem == null )
+                {
+                    scanOutcomes.set( index, ItemOutcome.COMPLETE );
+                    continue;
+                }
+
+                final String partitionKey = itemProcessor.partitionKey( workItem );
+                final String groupKey = partitionKey == null ? "\u0000" + rawValue : "k" + partitionKey;
+                groupKeys.set( index, groupKey );
+                if ( retryingKeys.containsKey( groupKey ) )
+                {
+                    scanOutcomes.set( index, ItemOutcome.PENDING );
+                    continue;
+                }
+
+                wrappers.set( index, itemWrapper );
+                workItems.set( index, workItem );
+                partitions.computeIfAbsent( groupKey, k -> new ArrayList<>() ).add( index );
+                dispatchCount++;
+            }
+
+            if ( window.isEmpty() )
+            {
+                return;
+            }
+
+            final ItemOutcome[] outcomes = scanOutcomes.toArray( new ItemOutcome[0] );
+            if ( !partitions.isEmpty() )
+            {
+                workQueueStats.increment( WorkQueueStat.queueDispatchWindows );
+                if ( !dispatchPartitions( partitions, wrappers, workItems, outcomes ) )
+                {
+                    return;
+                }
+            }
+
+            int removeCount = 0;
+            boolean blocked = false;
+            for ( int i = 0; i < window.size(); i++ )
+            {
+                final ItemOutcome outcome = outcomes[i] == null ? ItemOutcome.PENDING : outcomes[i];
+                if ( outcome == ItemOutcome.RETRY )
+                {
+                    workQueueStats.increment( WorkQueueStat.queueRetries );
+                    retryingKeys.put( groupKeys.get( i ), now.plusMillis( settings.getRetryInterval().asMillis() ) );
+                }
+
+                if ( !blocked && outcome == ItemOutcome.COMPLETE )
+                {
+                    removeCount++;
+                    completedItems.remove( window.get( i ) );
+                }
+                else if ( blocked && outcome == ItemOutcome.COMPLETE )
+                {
+                    markCompleted( i, window.get( i ) );
+                }
+                else
+                {
+                    blocked = true;
+                }
+            }
+
+            for ( int i = 0; i < removeCount; i++ )
+            {
+                queue.removeFirst();
+            }
+
+            if ( partitions.isEmpty() && !retryingKeys.isEmpty() )
+            {
+                // nothing could be dispatched, so wait for the earliest retry
+                retryWakeupTime = Collections.min( retryingKeys.values() );
+            }
+        }
+
+        /**
+         * Processes the partitions across the worker lanes and waits for them to complete.  Returns false if interrupted.
+         */
+        private boolean dispatchPartitions(
+                final Map<String, List<Integer>> partitions,
+                final List<ItemWrapper<W>> wrappers,
+                final List<W> workItems,
+                final ItemOutcome[] outcomes
+        )
+        {
+            final Map<Integer, List<List<Integer>>> lanePartitions = new LinkedHashMap<>();
+            for ( final Map.Entry<String, List<Integer>> partition : partitions.entrySet() )
+            {
+                final int lane = partition.getKey().startsWith( "k" )
+                        ? Math.floorMod( partition.getKey().hashCode(), workerLanes.size() )
+                        : laneIncrementer.next();
+                lanePartitions.computeIfAbsent( lane, k -> new ArrayList<>() ).add( partition.getValue() );
+            }
+
+            final List<Future<?>> futures = new ArrayList<>();
+            for ( final Map.Entry<Integer, List<List<Integer>>> entry : lanePartitions.entrySet() )
+            {
+                final int lane = entry.getKey();
+                final List<List<Integer>> lanePartitionIndexes = entry.getValue();
+                futures.add( workerLanes.get( lane ).submit( () -> processLaneBatch( wrappers, workItems, lanePartitionIndexes, outcomes, lane ) ) );
+            }
+
+            for ( final Future<?> future : futures )
+            {
+                try
+                {
+                    future.get();
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                catch ( final ExecutionException e )
+                {
+                    logger.error( () -> "unexpected error processing work queue partition: " + e.getMessage() );
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Records an item that completed behind a pending item.  A {@link LocalDBStoredQueue} stores a completion marker in its
+         * place, so the item is not delivered again if the queue is reopened before it reaches the head.
+         */
+        private void markCompleted( final int headOffset, final String rawValue )
+        {
+            if ( COMPLETED_ITEM_MARKER.equals( rawValue ) )
+            {
+                return;
+            }
+
+            if ( queue instanceof LocalDBStoredQueue && ( ( LocalDBStoredQueue ) queue ).replace( headOffset, rawValue, COMPLETED_ITEM_MARKER ) )
+            {
+                return;
+            }
+
+            completedItems.add( rawValue );
+        }
+
+        /**
+         * Processes every partition assigned to a lane for the current window as a single {@link ItemProcessor#newBatch(List)}.
+         */
+        private void processLaneBatch(
+                final List<ItemWrapper<W>> wrappers,
+                final List<W> workItems,
+                final List<List<Integer>> partitions,
+                final ItemOutcome[] outcomes,
+                final int lane
+        )
+        {
+            final List<W> batchItems = new ArrayList<>();
+            for ( final List<Integer> indexes : partitions )
+            {
+                for ( final int index : indexes )
+                {
+                    batchItems.add( workItems.get( index ) );
+                }
+            }
+
+            try ( BatchProcessor<W> batchProcessor = itemProcessor.newBatch( batchItems ) )
+            {
+                for ( final List<Integer> indexes : partitions )
+                {
+                    for ( final int index : indexes )
+                    {
+                        final ItemOutcome outcome = processItem( wrappers.get( index ), workItems.get( index ), batchProcessor, lane );
+                        outcomes[index] = outcome;
+                        if ( outcome != ItemOutcome.COMPLETE )
+                        {
+                            // later items with the same partition key must wait for this item
+                            break;
+                        }
+                    }
+                }
+            }
+            catch ( final Throwable e )
+            {
+                if ( shutdownFlag.get() )
+                {
+                    return;
+                }
+
+                // the batch could not be opened or closed; items not yet processed are retried after the retry interval
+                logger.error( () -> "unexpected error processing work queue batch on lane " + lane + ", will retry: "
+                        + JavaHelper.readHostileExceptionMessage( e ) );
+                for ( final List<Integer> indexes : partitions )
+                {
+                    for ( final int index : indexes )
+                    {
+                        if ( outcomes[index] == null )
+                        {
+                            outcomes[index] = ItemOutcome.RETRY;
+                        }
+                    }
+                }
+            }
+        }
+
+        private ItemOutcome processItem(
+                final ItemWrapper<W> itemWrapper,
+                final W workItem,
+                final BatchProcessor<W> batchProcessor,
+                final int lane
+        )
+        {
+            final Instant processStartTime = Instant.now();
+            try
+            {
+                workQueueStats.increment( WorkQueueStat.queueProcessItems );
+                final ProcessResult processResult = batchProcessor.process( workItem );
+                if ( processResult == null )
+                {
+                    logger.warn( () -> "itemProcessor.process() returned null, removing; item=" + makeDebugText( itemWrapper ) );
+                    return ItemOutcome.COMPLETE;
+                }
+
+                switch ( processResult )
+                {
+                    case FAILED:
+                        logger.error( () -> "discarding item after process failure, item=" + makeDebugText( itemWrapper ) );
+                        return ItemOutcome.COMPLETE;
+
+                    case RETRY:
+                        logger.debug( () -> "will retry item after failure, item=" + makeDebugText( itemWrapper ) );
+                        return ItemOutcome.RETRY;
+
+                    case SUCCESS:
+                        logAndStatUpdateForSuccess( itemWrapper, lane, () -> TimeDuration.fromCurrent( processStartTime ) );
+                        return ItemOutcome.COMPLETE;
+
+                    case NOOP:
+                        return ItemOutcome.PENDING;
+
+                    default:
+                        throw new IllegalStateException( "unexpected processResult type " + processResult );
+                }
+            }
+            catch ( final Throwable e )
+            {
+                if ( shutdownFlag.get() )
+                {
+                    return ItemOutcome.PENDING;
+                }
+                logger.error( () -> "unexpected error while processing work queue: " + e.getMessage() );
+                return ItemOutcome.COMPLETE;
+            }
+        }
+
+        private W readWorkItem( final ItemWrapper<W> itemWrapper )
+        {
+            if ( itemWrapper == null )
+            {
+                return null;
+            }
+
+            try
+            {
+                return itemWrapper.getWorkItem();
+            }
+            catch ( final PwmOperationalException e )
+            {
+                logger.warn( () -> "discarding queued item due to deserialization error: " + e.getMessage() );
+                return null;
+            }
+        }
+
+        /**
+         * Parses a raw queue value, returning null if the item is unreadable or older than the retry discard age.
+         */
+        private ItemWrapper<W> parseItem( final String rawValue )
+        {
+            try
+            {
+                final ItemWrapper<W> itemWrapper = JsonUtil.<ItemWrapper<W>>deserialize( rawValue, ItemWrapper.class );
+                if ( TimeDuration.fromCurrent( itemWrapper.getDate() ).isLongerThan( settings.getRetryDiscardAge() ) )
+                {
+                    logger.warn( () -> "discarding queued item due to age, item=" + makeDebugText( itemWrapper ) );
+                    return null;
+                }
+                return itemWrapper;
+            }
+            catch ( final Throwable e )
+            {
+                logger.warn( () -> "discarding stored record due to parsing error: " + e.getMessage() + ", record=" + rawValue );
+                return null;
+            }
+        }
+
         void processNextItem( )
         {
             final Instant processStartTime = Instant.now();
@@ -434,6 +837,12 @@ public final class WorkQueueProcessor<W extends Serializable>
                 return;
             }
 
+            if ( COMPLETED_ITEM_MARKER.equals( nextStrValue ) )
+            {
+                removeQueueTop();
+                return;
+            }
+
             final ItemWrapper<W> itemWrapper;
             try
             {
@@ -475,6 +884,7 @@ public final class WorkQueueProcessor<W extends Serializable>
 
                         case RETRY:
                         {
+                            workQueueStats.increment( WorkQueueStat.queueRetries );
                             retryWakeupTime = Instant.ofEpochMilli( System.currentTimeMillis() + settings.getRetryInterval().asMillis() );
                             logger.debug( () -> "will retry item after failure, item=" + makeDebugText( itemWrapper ) );
                         }
@@ -483,7 +893,7 @@ public final class WorkQueueProcessor<W extends Serializable>
                         case SUCCESS:
                         {
                             removeQueueTop();
-                            logAndStatUpdateForSuccess( itemWrapper, () -> TimeDuration.fromCurrent( processStartTime ) );
+                            logAndStatUpdateForSuccess( itemWrapper, 0, () -> TimeDuration.fromCurrent( processStartTime ) );
                         }
                         break;
 
@@ -514,6 +924,22 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
     }
 
+    private enum ItemOutcome
+    {
+        /** Processed (successfully or not) or discarded; may be removed from the queue. */
+        COMPLETE,
+        /** Should be retried after the retry interval. */
+        RETRY,
+        /** Not processed or deferred; remains in the queue. */
+        PENDING,
+    }
+
+    private static class LaneStats
+    {
+        private final MovingAverage avgLagTime = new MovingAverage( TimeDuration.MINUTE );
+        private final EventRateMeter sendRate = new EventRateMeter( TimeDuration.MINUTE );
+    }
+
     private static class ItemWrapper<W extends Serializable> implements Serializable
     {
         @SerializedName( "t" )
@@ -578,6 +1004,45 @@ public final class WorkQueueProcessor<W extends Serializable>
         ProcessResult process( W workItem );
 
         String convertToDebugString( W workItem );
+
+        /**
+         * Items returning the same non-null key are processed sequentially in queue order when multiple worker threads are configured.
+         * Items returning null have no ordering constraint.
+         */
+        default String partitionKey( final W workItem )
+        {
+            return null;
+        }
+
+        /**
+         * Returns a processor for a batch of items that a single worker lane will process sequentially, in the given order,
+         * before closing the batch.  Items may be skipped if an earlier item with the same partition key is not completed.
+         * Only used when multiple worker threads or a batch size greater than one is configured.
+         */
+        default BatchProcessor<W> newBatch( final List<W> workItems )
+        {
+            return new BatchProcessor<W>()
+            {
+                @Override
+                public ProcessResult process( final W workItem )
+                {
+                    return ItemProcessor.this.process( workItem );
+                }
+
+                @Override
+                public void close()
+                {
+                }
+            };
+        }
+    }
+
+    public interface BatchProcessor<W extends Serializable> extends AutoCloseable
+    {
+        ProcessResult process( W workItem );
+
+        @Override
+        void close();
     }
 
     @Value
@@ -590,6 +1055,12 @@ public final class WorkQueueProcessor<W extends Serializable>
         @Builder.Default
         private int preThreads = 0;
 
+        @Builder.Default
+        private int workerThreads = 1;
+
+        @Builder.Default
+        private int maxBatchSize = 1;
+
         @Builder.Default
         private TimeDuration maxSubmitWaitTime = TimeDuration.of( 5, TimeDuration.Unit.SECONDS );
 
@@ -603,12 +1074,17 @@ public final class WorkQueueProcessor<W extends Serializable>
         private TimeDuration maxShutdownWaitTime = TimeDuration.of( 30, TimeDuration.Unit.SECONDS );
     }
 
-    private void logAndStatUpdateForSuccess( final ItemWrapper<W> itemWrapper, final Supplier<TimeDuration> processDuration )
+    private void logAndStatUpdateForSuccess( final ItemWrapper<W> itemWrapper, final int lane, final Supplier<TimeDuration> processDuration )
             throws PwmOperationalException
     {
         final TimeDuration lagTime = TimeDuration.fromCurrent( itemWrapper.getDate() );
         avgLagTime.update( lagTime.asMillis() );
         sendRate.markEvents( 1 );
+        if ( lane >= 0 )
+        {
+            laneStats.get( lane ).avgLagTime.update( lagTime.asMillis() );
+            laneStats.get( lane ).sendRate.markEvents( 1 );
+        }
         logger.trace( () -> "successfully processed item=" + makeDebugText( itemWrapper ) + "; lagTime=" + lagTime.asCompactString()
                 + "; " + StringUtil.mapToString( debugInfo() ), processDuration );
     }
@@ -624,7 +1100,15 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
         if ( workerThread != null )
         {
-            output.put( "postQueueThreads", workerThread.isRunning() ? "1" : "0" );
+            output.put( "postQueueThreads", workerThread.isRunning() ? String.valueOf( laneStats.size() ) : "0" );
+        }
+        if ( laneStats.size() > 1 )
+        {
+            for ( int i = 0; i < laneStats.size(); i++ )
+            {
+                output.put( "worker" + i + "AvgLagTime", laneStats.get( i ).avgLagTime.getAverageAsDuration().asCompactString() );
+                output.put( "worker" + i + "SendRate", laneStats.get( i ).sendRate.readEventRate().setScale( 2, RoundingMode.DOWN ) + "/s" );
+            }
         }
         output.putAll( workQueueStats.debugStats() );
         return Collections.unmodifiableMap( output );
@@ -20,20 +20,115 @@
 
 package password.pwm.util.password;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character statistics of a password.  All counts are gathered in a single pass when the counter is created, so rule
+ * checks reading several statistics do not rescan the password.
+ */
 public class PasswordCharCounter
 {
     private final String password;
     private final int passwordLength;
 
+    private final int numericCount;
+    private final int upperCount;
+    private final int lowerCount;
+    private final int alphaCount;
+    private final int specialCount;
+    private final int otherLetterCount;
+    private final int repeatedChars;
+    private final int sequentialRepeatedChars;
+    private final int sequentialNumericChars;
+    private final int sequentialAlphaChars;
+    private final int uniqueChars;
+
     public PasswordCharCounter( final String password )
     {
         this.password = password;
         this.passwordLength = password.length();
+
+        int numeric = 0;
+        int upper = 0;
+        int lower = 0;
+        int alpha = 0;
+        int special = 0;
+        int otherLetter = 0;
+        int numericRun = 0;
+        int alphaRun = 0;
+        int maxNumericRun = 0;
+        int maxAlphaRun = 0;
+
+        for ( int i = 0; i < passwordLength; i++ )
+        {
+            final char loopChar = password.charAt( i );
+            final boolean isDigit = Character.isDigit( loopChar );
+            final boolean isLetter = Character.isLetter( loopChar );
+
+            if ( isDigit )
+            {
+                numeric++;
+            }
+            if ( isLetter )
+            {
+                alpha++;
+            }
+            if ( !isDigit && !isLetter )
+            {
+                special++;
+            }
+            if ( Character.isUpperCase( loopChar ) )
+            {
+                upper++;
+            }
+            if ( Character.isLowerCase( loopChar ) )
+            {
+                lower++;
+            }
+            if ( Character.getType( loopChar ) == Character.OTHER_LETTER )
+            {
+                otherLetter++;
+            }
+
+            // runs are only counted when they start before the final character
+            numericRun = isDigit && ( numericRun > 0 || i < passwordLength - 1 ) ? numericRun + 1 : 0;
+            alphaRun = isLetter && ( alphaRun > 0 || i < passwordLength - 1 ) ? alphaRun + 1 : 0;
+            maxNumericRun = Math.max( maxNumericRun, numericRun );
+            maxAlphaRun = Math.max( maxAlphaRun, alphaRun );
+        }
+
+        this.numericCount = numeric;
+        this.upperCount = upper;
+        this.lowerCount = lower;
+        this.alphaCount = alpha;
+        this.specialCount = special;
+        this.otherLetterCount = otherLetter;
+        this.sequentialNumericChars = maxNumericRun;
+        this.sequentialAlphaChars = maxAlphaRun;
+
+        final String passwordL = password.toLowerCase();
+        final int lowerLength = Math.min( passwordLength, passwordL.length() );
+        final Map<Character, Integer> charCounts = new HashMap<>( lowerLength * 2 );
+        int maxCount = 0;
+        int repeatRun = 0;
+        int maxRepeatRun = 0;
+        for ( int i = 0; i < lowerLength; i++ )
+        {
+            final char loopChar = passwordL.charAt( i );
+            maxCount = Math.max( maxCount, charCounts.merge( loopChar, 1, Integer::sum ) );
+            repeatRun = i > 0 && passwordL.charAt( i - 1 ) == loopChar ? repeatRun + 1 : 1;
+            maxRepeatRun = Math.max( maxRepeatRun, repeatRun );
+        }
+
+        this.repeatedChars = lowerLength > 1 ? maxCount : 0;
+        this.sequentialRepeatedChars = lowerLength > 1 ? maxRepeatRun : 0;
+        this.uniqueChars = charCounts.size();
     }
 
     public int getNumericCharCount( )
     {
-        return getNumericChars().length();
+        return numericCount;
     }
 
     public String getNumericChars( )
@@ -43,7 +138,7 @@ public class PasswordCharCounter
 
     public int getUpperCharCount( )
     {
-        return getUpperChars().length();
+        return upperCount;
     }
 
     public String getUpperChars( )
@@ -53,7 +148,7 @@ public class PasswordCharCounter
 
     public int getAlphaCharCount( )
     {
-        return getAlphaChars().length();
+        return alphaCount;
     }
 
     public String getAlphaChars( )
@@ -63,7 +158,7 @@ public class PasswordCharCounter
 
     public int getNonAlphaCharCount( )
     {
-        return getNonAlphaChars().length();
+        return passwordLength - alphaCount;
     }
 
     public String getNonAlphaChars( )
@@ -73,7 +168,7 @@ public class PasswordCharCounter
 
     public int getLowerCharCount( )
     {
-        return getLowerChars().length();
+        return lowerCount;
     }
 
     public String getLowerChars( )
@@ -83,7 +178,7 @@ public class PasswordCharCounter
 
     public int getSpecialCharsCount( )
     {
-        return getSpecialChars().length();
+        return specialCount;
     }
 
     public String getSpecialChars( )
@@ -93,128 +188,32 @@ public class PasswordCharCounter
 
     public int getRepeatedChars( )
     {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toLowerCase();
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt( i );
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( loopChar == passwordL.charAt( j ) )
-                {
-                    loopRepeats++;
-                }
-            }
-
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return repeatedChars;
     }
 
     public int getSequentialRepeatedChars( )
     {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toLowerCase();
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt( i );
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( loopChar == passwordL.charAt( j ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return sequentialRepeatedChars;
     }
 
     public int getSequentialNumericChars( )
     {
-        int numberOfRepeats = 0;
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( Character.isDigit( password.charAt( j ) ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return sequentialNumericChars;
     }
 
     public int getSequentialAlphaChars( )
     {
-        int numberOfRepeats = 0;
-
-        for ( int i = 0; i < passwordLength - 1; i++ )
-        {
-            int loopRepeats = 0;
-            for ( int j = i; j < passwordLength; j++ )
-            {
-                if ( Character.isLetter( password.charAt( j ) ) )
-                {
-                    loopRepeats++;
-                }
-                else
-                {
-                    break;
-                }
-            }
-            if ( loopRepeats > numberOfRepeats )
-            {
-                numberOfRepeats = loopRepeats;
-            }
-        }
-        return numberOfRepeats;
+        return sequentialAlphaChars;
     }
 
     public int getUniqueChars( )
     {
-        final StringBuilder sb = new StringBuilder();
-        final String passwordL = password.toLowerCase();
-        for ( int i = 0; i < passwordLength; i++ )
-        {
-            final char loopChar = passwordL.charAt( i );
-            if ( sb.indexOf( String.valueOf( loopChar ) ) == -1 )
-            {
-                sb.append( loopChar );
-            }
-        }
-        return sb.length();
+        return uniqueChars;
     }
 
     public int getOtherLetterCharCount( )
     {
-        return getOtherLetterChars().length();
+        return otherLetterCount;
     }
 
     public String getOtherLetterChars( )
@@ -0,0 +1,115 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import password.pwm.PwmConstants;
+import password.pwm.PwmDomain;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.ldap.UserInfo;
+import password.pwm.util.macro.MacroRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable form of a {@link PwmPasswordPolicy} used to evaluate candidate passwords.  Rule checks that cannot fail
+ * for the policy are dropped when the evaluator is compiled, and the policy patterns are compiled once by the policy's
+ * {@link PasswordRuleReaderHelper}.
+ *
+ * <p>Reporting evaluation runs every remaining check in the traditional order so the full error list is available
+ * to the UI.  Fail fast evaluation runs the checks cheapest first and stops at the first failing check, so the
+ * dictionary and shared history lookups only run for passwords that already pass every other rule.</p>
+ */
+public final class PasswordPolicyEvaluator
+{
+    private final PwmPasswordPolicy policy;
+    private final List<PasswordRuleChecks.RuleChecker> reportingChecks;
+    private final List<PasswordRuleChecks.RuleChecker> failFastChecks;
+
+    private PasswordPolicyEvaluator( final PwmPasswordPolicy policy )
+    {
+        this.policy = policy;
+        this.reportingChecks = PasswordRuleChecks.RULE_CHECKS.stream()
+                .filter( ruleChecker -> ruleChecker.isApplicable( policy ) )
+                .collect( Collectors.toUnmodifiableList() );
+        this.failFastChecks = reportingChecks.stream()
+                .sorted( Comparator.comparing( PasswordRuleChecks.RuleChecker::cost ) )
+                .collect( Collectors.toUnmodifiableList() );
+    }
+
+    public static PasswordPolicyEvaluator compile( final PwmPasswordPolicy policy )
+    {
+        return new PasswordPolicyEvaluator( policy );
+    }
+
+    public List<ErrorInformation> evaluate(
+            final SessionLabel sessionLabel,
+            final PwmDomain pwmDomain,
+            final String password,
+            final String oldPassword,
+            final UserInfo userInfo,
+            final boolean failFast
+    )
+            throws PwmUnrecoverableException
+    {
+        final MacroRequest macroRequest = userInfo == null || userInfo.getUserIdentity() == null
+                ? MacroRequest.forNonUserSpecific( pwmDomain.getPwmApplication(), sessionLabel )
+                : MacroRequest.forUser(
+                pwmDomain.getPwmApplication(),
+                PwmConstants.DEFAULT_LOCALE,
+                sessionLabel,
+                userInfo.getUserIdentity()
+        );
+
+        final PasswordRuleChecks.RuleCheckData ruleCheckData = PasswordRuleChecks.RuleCheckData.builder()
+                .pwmDomain( pwmDomain )
+                .policy( policy )
+                .userInfo( userInfo )
+                .ruleHelper( policy.getRuleHelper() )
+                .macroRequest( macroRequest )
+                .charCounter( new PasswordCharCounter( password ) )
+                .build();
+
+        final List<ErrorInformation> errorList = new ArrayList<>();
+        for ( final PasswordRuleChecks.RuleChecker ruleChecker : failFast ? failFastChecks : reportingChecks )
+        {
+            errorList.addAll( ruleChecker.test( password, oldPassword, ruleCheckData ) );
+
+            if ( failFast && !errorList.isEmpty() )
+            {
+                return errorList;
+            }
+        }
+
+        return errorList;
+    }
+
+    int checkCount()
+    {
+        return reportingChecks.size();
+    }
+}
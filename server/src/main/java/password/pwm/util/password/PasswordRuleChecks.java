@@ -25,7 +25,6 @@ import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import password.pwm.AppProperty;
-import password.pwm.PwmConstants;
 import password.pwm.PwmDomain;
 import password.pwm.bean.SessionLabel;
 import password.pwm.config.PwmSetting;
@@ -61,7 +60,7 @@ public class PasswordRuleChecks
 
     @Data
     @Builder
-    private static class RuleCheckData
+    static class RuleCheckData
     {
         private PwmDomain pwmDomain;
         private PwmPasswordPolicy policy;
@@ -71,7 +70,20 @@ public class PasswordRuleChecks
         private MacroRequest macroRequest;
     }
 
-    private interface RuleChecker
+    /**
+     * Relative cost of a rule check, used to order checks when evaluation stops at the first failure.
+     */
+    enum RuleCost
+    {
+        LENGTH,
+        CHARACTERS,
+        PATTERNS,
+        VALUES,
+        STRENGTH,
+        SERVICES,
+    }
+
+    interface RuleChecker
     {
         List<ErrorInformation> test(
                 String password,
@@ -79,9 +91,22 @@ public class PasswordRuleChecks
                 RuleCheckData ruleCheckData
         )
                 throws PwmUnrecoverableException;
+
+        default RuleCost cost()
+        {
+            return RuleCost.CHARACTERS;
+        }
+
+        /**
+         * False if the policy has no rule the checker could fail on, so it can be left out of the compiled policy.
+         */
+        default boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return true;
+        }
     }
 
-    private static final List<RuleChecker> RULE_CHECKS = List.of(
+    static final List<RuleChecker> RULE_CHECKS = List.of(
             new OldPasswordRuleChecker(),
             new MinimumLengthRuleChecker(),
             new MaximumLengthRuleChecker(),
@@ -123,40 +148,17 @@ public class PasswordRuleChecks
                     "empty (null) new password" ) );
         }
 
-        final List<ErrorInformation> errorList = new ArrayList<>();
-        final MacroRequest macroRequest = userInfo == null || userInfo.getUserIdentity() == null
-                ? MacroRequest.forNonUserSpecific( pwmDomain.getPwmApplication(), sessionLabel )
-                : MacroRequest.forUser(
-                pwmDomain.getPwmApplication(),
-                PwmConstants.DEFAULT_LOCALE,
-                sessionLabel,
-                userInfo.getUserIdentity()
-        );
-
-        final RuleCheckData ruleCheckData = RuleCheckData.builder()
-                .pwmDomain( pwmDomain )
-                .policy( policy )
-                .userInfo( userInfo )
-                .ruleHelper( policy.getRuleHelper() )
-                .macroRequest( macroRequest )
-                .charCounter( new PasswordCharCounter( password ) )
-                .build();
-
-        for ( final RuleChecker ruleChecker : RULE_CHECKS )
-        {
-            errorList.addAll( ruleChecker.test( password, oldPassword, ruleCheckData ) );
-
-            if ( failFast && !errorList.isEmpty() )
-            {
-                return errorList;
-            }
-        }
-
-        return errorList;
+        return policy.getPolicyEvaluator().evaluate( sessionLabel, pwmDomain, password, oldPassword, userInfo, failFast );
     }
 
     private static class OldPasswordRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return policy.getRuleHelper().readBooleanValue( PwmPasswordRule.DisallowCurrent );
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -202,6 +204,18 @@ public class PasswordRuleChecks
 
     private static class MinimumLengthRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.LENGTH;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return policy.getRuleHelper().readIntValue( PwmPasswordRule.MinimumLength ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -217,6 +231,18 @@ public class PasswordRuleChecks
 
     private static class MaximumLengthRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.LENGTH;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return policy.getRuleHelper().readIntValue( PwmPasswordRule.MaximumLength ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPasswordString, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -433,6 +459,15 @@ public class PasswordRuleChecks
 
     private static class CharSequenceRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            final PasswordRuleReaderHelper ruleHelper = policy.getRuleHelper();
+            return ruleHelper.readIntValue( PwmPasswordRule.MaximumSequentialRepeat ) > 0
+                    || ruleHelper.readIntValue( PwmPasswordRule.MaximumRepeat ) > 0
+                    || ruleHelper.readIntValue( PwmPasswordRule.MaximumConsecutive ) > 1;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -472,6 +507,12 @@ public class PasswordRuleChecks
 
     private static class UniqueCharRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return policy.getRuleHelper().readIntValue( PwmPasswordRule.MinimumUnique ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -495,6 +536,13 @@ public class PasswordRuleChecks
 
     private static class ActiveDirectoryRuleChecker implements RuleChecker
     {
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            final ADPolicyComplexity complexityLevel = policy.getRuleHelper().getADComplexityLevel();
+            return complexityLevel == ADPolicyComplexity.AD2003 || complexityLevel == ADPolicyComplexity.AD2008;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -524,6 +572,18 @@ public class PasswordRuleChecks
 
     private static class DisallowedValueRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.VALUES;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return !policy.getRuleHelper().getDisallowedValues().isEmpty();
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -561,6 +621,18 @@ public class PasswordRuleChecks
 
     private static class DisallowedAttributeRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.VALUES;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return !policy.getRuleHelper().getDisallowedAttributes().isEmpty();
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -600,6 +672,18 @@ public class PasswordRuleChecks
 
     private static class PasswordStrengthRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.STRENGTH;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return policy.getRuleHelper().readIntValue( PwmPasswordRule.MinimumStrength ) > 0;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -614,8 +698,9 @@ public class PasswordRuleChecks
                 if ( pwmDomain != null )
                 {
                     final int passwordStrength = PasswordUtility.judgePasswordStrength(
-                            pwmDomain.getConfig(),
-                            password
+                            pwmDomain,
+                            password,
+                            ruleCheckData.getUserInfo()
                     );
                     if ( passwordStrength < requiredPasswordStrength )
                     {
@@ -636,6 +721,19 @@ public class PasswordRuleChecks
 
     private static class RegexPatternsRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.PATTERNS;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return StringUtil.notEmpty( policy.getValue( PwmPasswordRule.RegExMatch ) )
+                    || StringUtil.notEmpty( policy.getValue( PwmPasswordRule.RegExNoMatch ) );
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -676,6 +774,19 @@ public class PasswordRuleChecks
 
     private static class CharGroupRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.PATTERNS;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            final PasswordRuleReaderHelper ruleHelper = policy.getRuleHelper();
+            return ruleHelper.readIntValue( PwmPasswordRule.CharGroupsMinMatch ) > 0 && !ruleHelper.getCharGroupValues().isEmpty();
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -711,6 +822,18 @@ public class PasswordRuleChecks
 
     private static class DictionaryRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.SERVICES;
+        }
+
+        @Override
+        public boolean isApplicable( final PwmPasswordPolicy policy )
+        {
+            return policy.getRuleHelper().readBooleanValue( PwmPasswordRule.EnableWordlist );
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
@@ -751,6 +874,12 @@ public class PasswordRuleChecks
 
     private static class SharedHistoryRuleChecker implements RuleChecker
     {
+        @Override
+        public RuleCost cost()
+        {
+            return RuleCost.SERVICES;
+        }
+
         @Override
         public List<ErrorInformation> test( final String password, final String oldPassword, final RuleCheckData ruleCheckData )
                 throws PwmUnrecoverableException
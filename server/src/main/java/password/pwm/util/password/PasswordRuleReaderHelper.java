@@ -49,10 +49,20 @@ public class PasswordRuleReaderHelper
     private final PwmPasswordPolicy passwordPolicy;
     private final com.novell.ldapchai.util.PasswordRuleHelper chaiRuleHelper;
 
+    // patterns are compiled once per policy; only regex settings with macro expansion enabled are compiled per request
+    private final boolean macroInRegEx;
+    private final List<Pattern> regExMatch;
+    private final List<Pattern> regExNoMatch;
+    private final List<Pattern> charGroupValues;
+
     public PasswordRuleReaderHelper( final PwmPasswordPolicy passwordPolicy )
     {
         this.passwordPolicy = passwordPolicy;
         chaiRuleHelper = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy( passwordPolicy.getPolicyMap() ).getRuleHelper();
+        macroInRegEx = readBooleanValue( PwmPasswordRule.AllowMacroInRegExSetting );
+        regExMatch = List.copyOf( readRegExSetting( PwmPasswordRule.RegExMatch, null ) );
+        regExNoMatch = List.copyOf( readRegExSetting( PwmPasswordRule.RegExNoMatch, null ) );
+        charGroupValues = List.copyOf( readRegExSetting( PwmPasswordRule.CharGroupsValues, null ) );
     }
 
     public List<String> getDisallowedValues( )
@@ -98,17 +108,21 @@ public class PasswordRuleReaderHelper
 
     public List<Pattern> getRegExMatch( final MacroRequest macroRequest )
     {
-        return readRegExSetting( PwmPasswordRule.RegExMatch, macroRequest );
+        return macroRequest != null && macroInRegEx
+                ? readRegExSetting( PwmPasswordRule.RegExMatch, macroRequest )
+                : regExMatch;
     }
 
     public List<Pattern> getRegExNoMatch( final MacroRequest macroRequest )
     {
-        return readRegExSetting( PwmPasswordRule.RegExNoMatch, macroRequest );
+        return macroRequest != null && macroInRegEx
+                ? readRegExSetting( PwmPasswordRule.RegExNoMatch, macroRequest )
+                : regExNoMatch;
     }
 
     public List<Pattern> getCharGroupValues( )
     {
-        return readRegExSetting( PwmPasswordRule.CharGroupsValues, null );
+        return charGroupValues;
     }
 
 
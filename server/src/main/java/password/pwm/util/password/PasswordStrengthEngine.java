@@ -0,0 +1,332 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nulabinc.zxcvbn.Matching;
+import com.nulabinc.zxcvbn.Zxcvbn;
+import password.pwm.AppProperty;
+import password.pwm.PwmDomain;
+import password.pwm.config.DomainConfig;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.option.StrengthMeterType;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.svc.PwmService;
+import password.pwm.svc.wordlist.SeedlistService;
+import password.pwm.svc.wordlist.Wordlist;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.PwmRandom;
+import password.pwm.util.secure.SecureEngine;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared password strength estimator for a domain.  The zxcvbn matcher dictionaries, including any seed words, are
+ * built once and shared by all measurements; only user specific inputs are added per measurement.  Recent results
+ * are kept (keyed by a salted hash of the candidate) so the repeated checks of a single candidate during one password
+ * change, such as confirm field updates and the strength rule check, are scored once.
+ *
+ * <p>The seed list may still be loading when an engine is first created.  Such an engine is used without seed words
+ * until {@link #isRebuildDue(PwmDomain)} reports that the seed list has become available.</p>
+ *
+ * <p>Instances are thread safe.</p>
+ */
+public class PasswordStrengthEngine
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PasswordStrengthEngine.class );
+
+    private static final int MAX_TEST_LENGTH = 100;
+    private static final String SEED_DICTIONARY_NAME = "pwm_seeds";
+    private static final TimeDuration SEED_RETRY_INTERVAL = TimeDuration.MINUTE;
+
+    private final StrengthMeterType strengthMeterType;
+    private final int[] zxcvbnScoreThresholds;
+    private final boolean useUserInputs;
+    private final SharedZxcvbn zxcvbn;
+    private final Cache<String, Integer> recentResults;
+    private final String cacheKeySalt = PwmRandom.getInstance().alphaNumericString( 32 );
+    private final Instant createTime = Instant.now();
+    private final boolean seedWordsMissing;
+
+    PasswordStrengthEngine( final DomainConfig domainConfig, final Collection<String> seedWords )
+    {
+        this( domainConfig, seedWords, false );
+    }
+
+    private PasswordStrengthEngine( final DomainConfig domainConfig, final Collection<String> seedWords, final boolean seedWordsMissing )
+    {
+        this.seedWordsMissing = seedWordsMissing;
+        this.strengthMeterType = domainConfig.getAppConfig().readSettingAsEnum( PwmSetting.PASSWORD_STRENGTH_METER_TYPE, StrengthMeterType.class );
+        this.zxcvbnScoreThresholds = new int[] {
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_WEAK ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_GOOD ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_STRONG ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_STRONG ) ),
+        };
+        this.useUserInputs = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_ZXCVBN_USER_INPUTS ) );
+        this.zxcvbn = new SharedZxcvbn( seedWords );
+        this.recentResults = Caffeine.newBuilder()
+                .maximumSize( Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_CACHE_SIZE ) ) )
+                .expireAfterAccess( TimeDuration.MINUTE.asDuration() )
+                .build();
+    }
+
+    /**
+     * Create an engine using the domain's configuration, augmented with words from the seed list when configured.
+     */
+    public static PasswordStrengthEngine create( final PwmDomain pwmDomain )
+    {
+        final Instant startTime = Instant.now();
+        final int seedWordCount = Integer.parseInt( pwmDomain.getConfig().readAppProperty( AppProperty.PASSWORD_STRENGTH_ZXCVBN_SEED_WORDS ) );
+        final Set<String> seedWords = readSeedWords( pwmDomain, seedWordCount );
+        final PasswordStrengthEngine engine = new PasswordStrengthEngine( pwmDomain.getConfig(), seedWords, seedWordCount > 0 && seedWords.isEmpty() );
+        LOGGER.trace( () -> "created password strength engine for domain " + pwmDomain.getDomainID()
+                + " with " + seedWords.size() + " seed words", () -> TimeDuration.fromCurrent( startTime ) );
+        return engine;
+    }
+
+    /**
+     * Create an engine using only the configuration, without seed words.
+     */
+    public static PasswordStrengthEngine create( final DomainConfig domainConfig )
+    {
+        return new PasswordStrengthEngine( domainConfig, Collections.emptySet() );
+    }
+
+    /**
+     * True if seed words are configured but none could be read when this engine was created, and the seed list is now
+     * available.  The seed list is checked at most once per {@link #SEED_RETRY_INTERVAL}.
+     */
+    public boolean isRebuildDue( final PwmDomain pwmDomain )
+    {
+        return seedWordsMissing
+                && TimeDuration.fromCurrent( createTime ).isLongerThan( SEED_RETRY_INTERVAL )
+                && availableSeedlist( pwmDomain ) != null;
+    }
+
+    public int judgePasswordStrength( final String password )
+            throws PwmUnrecoverableException
+    {
+        return judgePasswordStrength( password, Collections.emptyList() );
+    }
+
+    /**
+     * Judge the strength of a password.
+     *
+     * @param password the candidate password
+     * @param userInputs values related to the user, such as the user name or attribute values, that are penalized
+     *     if they appear in the password.  Ignored unless enabled by {@link AppProperty#PASSWORD_STRENGTH_ZXCVBN_USER_INPUTS}.
+     * @return the strength of the password, from 0 to 100
+     * @throws PwmUnrecoverableException if the password can not be evaluated
+     */
+    public int judgePasswordStrength( final String password, final Collection<String> userInputs )
+            throws PwmUnrecoverableException
+    {
+        switch ( strengthMeterType )
+        {
+            case ZXCVBN:
+                return judgeUsingZxcvbn( password, useUserInputs ? userInputs : Collections.emptyList() );
+
+            case PWM:
+                return PasswordUtility.judgePasswordStrengthUsingTraditionalAlgorithm( password );
+
+            default:
+                JavaHelper.unhandledSwitchStatement( strengthMeterType );
+        }
+
+        return -1;
+    }
+
+    private int judgeUsingZxcvbn( final String password, final Collection<String> userInputs )
+            throws PwmUnrecoverableException
+    {
+        if ( StringUtil.isEmpty( password ) )
+        {
+            return zxcvbnScoreThresholds[0];
+        }
+
+        final String testPassword = StringUtil.truncate( password, MAX_TEST_LENGTH );
+        final List<String> testInputs = normalizeUserInputs( userInputs );
+
+        final String cacheKey = makeCacheKey( testPassword, testInputs );
+        final Integer cachedScore = recentResults.getIfPresent( cacheKey );
+        if ( cachedScore != null )
+        {
+            return cachedScore;
+        }
+
+        // zxcvbn returns a score of 0-4 (see: https://github.com/nulab/zxcvbn4j)
+        final int zxcvbnScore = zxcvbn.measure( testPassword, testInputs ).getScore();
+        final int score = zxcvbnScoreThresholds[Math.max( 0, Math.min( zxcvbnScoreThresholds.length - 1, zxcvbnScore ) )];
+        recentResults.put( cacheKey, score );
+        return score;
+    }
+
+    private String makeCacheKey( final String password, final List<String> userInputs )
+            throws PwmUnrecoverableException
+    {
+        final StringBuilder keyInput = new StringBuilder( cacheKeySalt );
+        keyInput.append( '\n' ).append( password );
+        for ( final String userInput : userInputs )
+        {
+            keyInput.append( '\n' ).append( userInput );
+        }
+        return SecureEngine.hash( keyInput.toString(), PwmHashAlgorithm.SHA256 );
+    }
+
+    private static List<String> normalizeUserInputs( final Collection<String> userInputs )
+    {
+        if ( userInputs == null || userInputs.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<String> returnList = new ArrayList<>( userInputs.size() );
+        for ( final String userInput : userInputs )
+        {
+            if ( !StringUtil.isEmpty( userInput ) )
+            {
+                returnList.add( userInput );
+            }
+        }
+        Collections.sort( returnList );
+        return returnList;
+    }
+
+    private static Set<String> readSeedWords( final PwmDomain pwmDomain, final int seedWordCount )
+    {
+        if ( seedWordCount <= 0 )
+        {
+            return Collections.emptySet();
+        }
+
+        final SeedlistService seedlistService = availableSeedlist( pwmDomain );
+        if ( seedlistService == null )
+        {
+            LOGGER.debug( () -> "seedlist is not available, password strength engine will not include seed words" );
+            return Collections.emptySet();
+        }
+
+        final Set<String> seedWords = new HashSet<>();
+        try
+        {
+            int safetyCounter = 0;
+            while ( seedWords.size() < seedWordCount && safetyCounter < seedWordCount * 2 )
+            {
+                safetyCounter++;
+                final String seedWord = seedlistService.randomSeed();
+                if ( !StringUtil.isEmpty( seedWord ) )
+                {
+                    seedWords.add( seedWord.toLowerCase( Locale.ROOT ) );
+                }
+            }
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            LOGGER.debug( () -> "error reading seed words for password strength engine: " + e.getMessage() );
+        }
+        return Collections.unmodifiableSet( seedWords );
+    }
+
+    /**
+     * The seed list service, or null if it is not open or is still importing.
+     */
+    private static SeedlistService availableSeedlist( final PwmDomain pwmDomain )
+    {
+        final SeedlistService seedlistService = pwmDomain.getPwmApplication().getSeedlistManager();
+        if ( seedlistService == null
+                || seedlistService.status() != PwmService.STATUS.OPEN
+                || seedlistService.getActivity() != Wordlist.Activity.Idle )
+        {
+            return null;
+        }
+        return seedlistService;
+    }
+
+    /**
+     * Zxcvbn estimator re-using one immutable set of ranked dictionaries for every measurement.
+     */
+    private static class SharedZxcvbn extends Zxcvbn
+    {
+        private final Map<String, Map<String, Integer>> rankedDictionaries;
+        private final Matching sharedMatching;
+
+        SharedZxcvbn( final Collection<String> seedWords )
+        {
+            final Map<String, Map<String, Integer>> dictionaries = new HashMap<>( new SharedMatching( Collections.emptyList() ).getRankedDictionaries() );
+            if ( !seedWords.isEmpty() )
+            {
+                dictionaries.put( SEED_DICTIONARY_NAME, SharedMatching.rankWords( new ArrayList<>( seedWords ) ) );
+            }
+            this.rankedDictionaries = Collections.unmodifiableMap( dictionaries );
+            this.sharedMatching = new SharedMatching( rankedDictionaries, Collections.emptyList() );
+        }
+
+        @Override
+        protected Matching createMatching( final List<String> userInputs )
+        {
+            if ( userInputs == null || userInputs.isEmpty() )
+            {
+                return sharedMatching;
+            }
+            return new SharedMatching( rankedDictionaries, userInputs );
+        }
+    }
+
+    private static class SharedMatching extends Matching
+    {
+        SharedMatching( final List<String> userInputs )
+        {
+            super( userInputs );
+        }
+
+        SharedMatching( final Map<String, Map<String, Integer>> rankedDictionaries, final List<String> userInputs )
+        {
+            super( rankedDictionaries, userInputs );
+        }
+
+        Map<String, Map<String, Integer>> getRankedDictionaries()
+        {
+            return Collections.unmodifiableMap( rankedDictionaries );
+        }
+
+        static Map<String, Integer> rankWords( final List<String> words )
+        {
+            return Collections.unmodifiableMap( buildRankedDict( words ) );
+        }
+    }
+}
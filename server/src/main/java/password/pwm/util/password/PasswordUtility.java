@@ -32,8 +32,6 @@ import com.novell.ldapchai.provider.ChaiProvider;
 import com.novell.ldapchai.provider.ChaiSetting;
 import com.novell.ldapchai.provider.DirectoryVendor;
 import com.novell.ldapchai.util.ChaiUtility;
-import com.nulabinc.zxcvbn.Strength;
-import com.nulabinc.zxcvbn.Zxcvbn;
 import password.pwm.AppProperty;
 import password.pwm.PwmDomain;
 import password.pwm.bean.EmailItemBean;
@@ -45,7 +43,6 @@ import password.pwm.config.DomainConfig;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.option.HelpdeskClearResponseMode;
 import password.pwm.config.option.MessageSendMethod;
-import password.pwm.config.option.StrengthMeterType;
 import password.pwm.config.profile.AbstractProfile;
 import password.pwm.config.profile.ChangePasswordProfile;
 import password.pwm.config.profile.ForgottenPasswordProfile;
@@ -354,7 +351,7 @@ public class PasswordUtility
             final List<ActionConfiguration> actionConfigurations = changePasswordProfile.readSettingAsAction( PwmSetting.CHANGE_PASSWORD_WRITE_ATTRIBUTES );
             if ( !CollectionUtil.isEmpty( actionConfigurations ) )
             {
-                final LoginInfoBean clonedLoginInfoBean = JsonUtil.cloneUsingJson( pwmSession.getLoginInfoBean(), LoginInfoBean.class );
+                final LoginInfoBean clonedLoginInfoBean = JsonUtil.deepCopy( pwmSession.getLoginInfoBean() );
                 clonedLoginInfoBean.setUserCurrentPassword( newPassword );
 
                 final MacroRequest macroRequest = MacroRequest.forUser(
@@ -480,10 +477,16 @@ public class PasswordUtility
             pwmDomain.getSharedHistoryManager().addWord( sessionLabel, oldPassword.getStringValue() );
         }
 
+        // cached data about the user, here and on other cluster nodes, predates the change
+        if ( pwmDomain.getCacheService() != null )
+        {
+            pwmDomain.getCacheService().invalidateUser( userIdentity );
+        }
+
         // update stats
         pwmDomain.getStatisticsManager().updateEps( EpsStatistic.PASSWORD_CHANGES, 1 );
 
-        final int passwordStrength = PasswordUtility.judgePasswordStrength( pwmDomain.getConfig(), newPassword.getStringValue() );
+        final int passwordStrength = PasswordUtility.judgePasswordStrength( pwmDomain, newPassword.getStringValue() );
         pwmDomain.getStatisticsManager().updateAverageValue( AvgStatistic.AVG_PASSWORD_STRENGTH, passwordStrength );
 
         // at this point the password has been changed, so log it.
@@ -816,55 +819,51 @@ public class PasswordUtility
     )
             throws PwmUnrecoverableException
     {
-        final StrengthMeterType strengthMeterType = domainConfig.getAppConfig().readSettingAsEnum( PwmSetting.PASSWORD_STRENGTH_METER_TYPE, StrengthMeterType.class );
-        switch ( strengthMeterType )
-        {
-            case ZXCVBN:
-                return judgePasswordStrengthUsingZxcvbnAlgorithm( domainConfig, password );
-
-            case PWM:
-                return judgePasswordStrengthUsingTraditionalAlgorithm( password );
-
-            default:
-                JavaHelper.unhandledSwitchStatement( strengthMeterType );
-        }
-
-        return -1;
+        return PasswordStrengthEngine.create( domainConfig ).judgePasswordStrength( password );
     }
 
-    public static int judgePasswordStrengthUsingZxcvbnAlgorithm(
-            final DomainConfig domainConfig,
+    public static int judgePasswordStrength(
+            final PwmDomain pwmDomain,
             final String password
     )
+            throws PwmUnrecoverableException
     {
-        final int maxTestLength = 100;
+        return pwmDomain.getPasswordStrengthEngine().judgePasswordStrength( password );
+    }
 
-        if ( StringUtil.isEmpty( password ) )
+    public static int judgePasswordStrength(
+            final PwmDomain pwmDomain,
+            final String password,
+            final UserInfo userInfo
+    )
+            throws PwmUnrecoverableException
+    {
+        return pwmDomain.getPasswordStrengthEngine().judgePasswordStrength( password, strengthUserInputs( userInfo ) );
+    }
+
+    /**
+     * Values of the user that a strong password should not be built from: the user name and the attribute values
+     * already read for the password rule checks.
+     */
+    private static List<String> strengthUserInputs( final UserInfo userInfo )
+            throws PwmUnrecoverableException
+    {
+        if ( userInfo == null )
         {
-            return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK ) );
+            return Collections.emptyList();
         }
 
-        final String testPassword = StringUtil.truncate( password, maxTestLength );
-
-        final Zxcvbn zxcvbn = new Zxcvbn();
-        final Strength strength = zxcvbn.measure( testPassword );
-
-        final int zxcvbnScore = strength.getScore();
-
-        // zxcvbn returns a score of 0-4 (see: https://github.com/nulab/zxcvbn4j)
-        switch ( zxcvbnScore )
+        final List<String> userInputs = new ArrayList<>();
+        if ( userInfo.getUsername() != null )
         {
-            case 4:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_STRONG ) );
-            case 3:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_STRONG ) );
-            case 2:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_GOOD ) );
-            case 1:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_WEAK ) );
-            default:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK ) );
+            userInputs.add( userInfo.getUsername() );
+        }
+        final Map<String, String> ruleAttributes = userInfo.getCachedPasswordRuleAttributes();
+        if ( ruleAttributes != null )
+        {
+            userInputs.addAll( ruleAttributes.values() );
         }
+        return Collections.unmodifiableList( userInputs );
     }
 
     public static int judgePasswordStrengthUsingTraditionalAlgorithm(
@@ -1152,7 +1151,7 @@ public class PasswordUtility
             }
         }
 
-        final int strength = judgePasswordStrength( pwmDomain.getConfig(), password == null ? null : password.getStringValue() );
+        final int strength = judgePasswordStrength( pwmDomain, password == null ? null : password.getStringValue(), userInfo );
         return new PasswordCheckInfo( userMessage, pass, strength, matchStatus, errorCode );
     }
 
@@ -0,0 +1,562 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.util.secure.PwmRandom;
+
+import java.util.Optional;
+
+/**
+ * The structural rules of a password policy (length, character class limits, first and last character rules, repeats,
+ * consecutive characters and unique characters) compiled so that a compliant random password can be constructed
+ * directly instead of being found by repeated mutation and validation.
+ *
+ * <p>Construction starts from seed phrase text, the same as the mutating generator, then inserts the characters
+ * required by the class minimums and repairs any remaining violations by substituting characters of the same class.
+ * Rules that can not be compiled (regular expressions, character groups, wordlists, history, strength, etc) are left
+ * to the rule validator.</p>
+ */
+final class RandomPasswordConstraints
+{
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+    private static final int MAX_SUBSTITUTE_TRIES = 20;
+
+    enum CharClass
+    {
+        LOWER( true ),
+        UPPER( true ),
+        NUMERIC( false ),
+        SPECIAL( false ),
+        OTHER( true ),;
+
+        private final boolean alpha;
+
+        CharClass( final boolean alpha )
+        {
+            this.alpha = alpha;
+        }
+
+        static CharClass of( final char c )
+        {
+            if ( Character.isDigit( c ) )
+            {
+                return NUMERIC;
+            }
+            if ( Character.isUpperCase( c ) )
+            {
+                return UPPER;
+            }
+            if ( Character.isLowerCase( c ) )
+            {
+                return LOWER;
+            }
+            if ( !Character.isLetterOrDigit( c ) )
+            {
+                return SPECIAL;
+            }
+            return OTHER;
+        }
+    }
+
+    private static final CharClass[] CLASSES = CharClass.values();
+
+    private final int length;
+    private final int maximumLength;
+    private final int[] required = new int[CLASSES.length];
+    private final int[] maximum = new int[CLASSES.length];
+    private final int maxAlpha;
+    private final int maxNonAlpha;
+    private final boolean firstNumericAllowed;
+    private final boolean lastNumericAllowed;
+    private final boolean firstSpecialAllowed;
+    private final boolean lastSpecialAllowed;
+    private final int maxRepeat;
+    private final int maxSequentialRepeat;
+    private final int maxConsecutive;
+    private final int minUnique;
+
+    private RandomPasswordConstraints( final PwmPasswordPolicy policy, final int minimumLength )
+    {
+        final PasswordRuleReaderHelper ruleHelper = policy.getRuleHelper();
+
+        final boolean allowNumeric = ruleHelper.readBooleanValue( PwmPasswordRule.AllowNumeric );
+        final boolean allowSpecial = ruleHelper.readBooleanValue( PwmPasswordRule.AllowSpecial );
+        final boolean allowNonAlpha = ruleHelper.readBooleanValue( PwmPasswordRule.AllowNonAlpha );
+
+        setLimits( CharClass.LOWER, true, ruleHelper.readIntValue( PwmPasswordRule.MinimumLowerCase ), ruleHelper.readIntValue( PwmPasswordRule.MaximumLowerCase ) );
+        setLimits( CharClass.UPPER, true, ruleHelper.readIntValue( PwmPasswordRule.MinimumUpperCase ), ruleHelper.readIntValue( PwmPasswordRule.MaximumUpperCase ) );
+        setLimits( CharClass.NUMERIC, allowNumeric && allowNonAlpha,
+                ruleHelper.readIntValue( PwmPasswordRule.MinimumNumeric ), ruleHelper.readIntValue( PwmPasswordRule.MaximumNumeric ) );
+        setLimits( CharClass.SPECIAL, allowSpecial && allowNonAlpha,
+                ruleHelper.readIntValue( PwmPasswordRule.MinimumSpecial ), ruleHelper.readIntValue( PwmPasswordRule.MaximumSpecial ) );
+        setLimits( CharClass.OTHER, true, 0, 0 );
+
+        this.maxAlpha = unlimitedIfZero( ruleHelper.readIntValue( PwmPasswordRule.MaximumAlpha ) );
+        this.maxNonAlpha = allowNonAlpha ? unlimitedIfZero( ruleHelper.readIntValue( PwmPasswordRule.MaximumNonAlpha ) ) : 0;
+
+        // raise the class minimums to cover the alpha and non-alpha minimums
+        final int minAlpha = ruleHelper.readIntValue( PwmPasswordRule.MinimumAlpha );
+        final int minNonAlpha = allowNonAlpha ? ruleHelper.readIntValue( PwmPasswordRule.MinimumNonAlpha ) : 0;
+        addRequired( minAlpha - required[CharClass.LOWER.ordinal()] - required[CharClass.UPPER.ordinal()], CharClass.LOWER, CharClass.UPPER );
+        addRequired( minNonAlpha - required[CharClass.NUMERIC.ordinal()] - required[CharClass.SPECIAL.ordinal()], CharClass.NUMERIC, CharClass.SPECIAL );
+
+        this.firstNumericAllowed = !allowNumeric || ruleHelper.readBooleanValue( PwmPasswordRule.AllowFirstCharNumeric );
+        this.lastNumericAllowed = !allowNumeric || ruleHelper.readBooleanValue( PwmPasswordRule.AllowLastCharNumeric );
+        this.firstSpecialAllowed = !allowSpecial || ruleHelper.readBooleanValue( PwmPasswordRule.AllowFirstCharSpecial );
+        this.lastSpecialAllowed = !allowSpecial || ruleHelper.readBooleanValue( PwmPasswordRule.AllowLastCharSpecial );
+
+        this.maxRepeat = unlimitedIfZero( ruleHelper.readIntValue( PwmPasswordRule.MaximumRepeat ) );
+        this.maxSequentialRepeat = unlimitedIfZero( ruleHelper.readIntValue( PwmPasswordRule.MaximumSequentialRepeat ) );
+        this.maxConsecutive = ruleHelper.readIntValue( PwmPasswordRule.MaximumConsecutive ) > 1
+                ? ruleHelper.readIntValue( PwmPasswordRule.MaximumConsecutive )
+                : UNLIMITED;
+        this.minUnique = ruleHelper.readIntValue( PwmPasswordRule.MinimumUnique );
+
+        int requiredTotal = 0;
+        for ( final int count : required )
+        {
+            requiredTotal += count;
+        }
+        this.length = Math.max( Math.max( minimumLength, ruleHelper.readIntValue( PwmPasswordRule.MinimumLength ) ), Math.max( requiredTotal, minUnique ) );
+        this.maximumLength = unlimitedIfZero( ruleHelper.readIntValue( PwmPasswordRule.MaximumLength ) );
+    }
+
+    /**
+     * Compile the policy, or return empty if its structural rules are contradictory so no password can be constructed.
+     */
+    static Optional<RandomPasswordConstraints> compile( final PwmPasswordPolicy policy, final int minimumLength )
+    {
+        final RandomPasswordConstraints constraints = new RandomPasswordConstraints( policy, minimumLength );
+        return constraints.feasible()
+                ? Optional.of( constraints )
+                : Optional.empty();
+    }
+
+    /**
+     * The shortest length meeting the policy.
+     */
+    int getLength()
+    {
+        return length;
+    }
+
+    int getMaximumLength()
+    {
+        return maximumLength;
+    }
+
+    private void setLimits( final CharClass charClass, final boolean allowed, final int min, final int max )
+    {
+        required[charClass.ordinal()] = allowed ? Math.max( 0, min ) : 0;
+        maximum[charClass.ordinal()] = allowed ? unlimitedIfZero( max ) : 0;
+    }
+
+    private void addRequired( final int count, final CharClass first, final CharClass second )
+    {
+        if ( count <= 0 )
+        {
+            return;
+        }
+
+        final CharClass target = maximum[first.ordinal()] - required[first.ordinal()] >= count ? first : second;
+        required[target.ordinal()] += count;
+    }
+
+    private boolean feasible()
+    {
+        for ( final CharClass charClass : CLASSES )
+        {
+            if ( required[charClass.ordinal()] > maximum[charClass.ordinal()] )
+            {
+                return false;
+            }
+        }
+
+        if ( groupTotal( required, true ) > maxAlpha || groupTotal( required, false ) > maxNonAlpha )
+        {
+            return false;
+        }
+
+        return length <= maximumLength;
+    }
+
+    /**
+     * Construct a password meeting the compiled rules, or return empty if the random choices led to a dead end.
+     */
+    Optional<String> construct( final PwmRandom pwmRandom, final RandomPasswordGenerator.SeedMachine seedMachine )
+    {
+        return construct( pwmRandom, seedMachine, length );
+    }
+
+    /**
+     * Construct a password of the requested length, kept within the policy's length limits.
+     */
+    Optional<String> construct( final PwmRandom pwmRandom, final RandomPasswordGenerator.SeedMachine seedMachine, final int requestedLength )
+    {
+        final int targetLength = Math.max( length, Math.min( requestedLength, maximumLength ) );
+        final Pools pools = new Pools( seedMachine );
+        final int[] counts = new int[CLASSES.length];
+        final StringBuilder password = new StringBuilder( targetLength );
+
+        int reserved = 0;
+        for ( final int count : required )
+        {
+            reserved += count;
+        }
+
+        // fill the unreserved length with seed text, substituting characters the policy has no room for
+        while ( password.length() < targetLength - reserved )
+        {
+            final String seed = seedMachine.getRandomSeed();
+            for ( int i = 0; i < seed.length() && password.length() < targetLength - reserved; i++ )
+            {
+                final char seedChar = seed.charAt( i );
+                if ( canAdd( counts, CharClass.of( seedChar ) ) )
+                {
+                    password.append( seedChar );
+                    counts[CharClass.of( seedChar ).ordinal()]++;
+                }
+                else
+                {
+                    final Optional<CharClass> fillClass = pickClass( pwmRandom, pools, counts );
+                    if ( fillClass.isEmpty() )
+                    {
+                        return Optional.empty();
+                    }
+                    password.append( pools.randomChar( pwmRandom, fillClass.get() ) );
+                    counts[fillClass.get().ordinal()]++;
+                }
+            }
+        }
+
+        // insert the characters required by the class minimums, then pad to length
+        for ( final CharClass charClass : CLASSES )
+        {
+            while ( counts[charClass.ordinal()] < required[charClass.ordinal()] )
+            {
+                if ( !pools.has( charClass ) || !insert( pwmRandom, password, charClass, pools.randomChar( pwmRandom, charClass ) ) )
+                {
+                    return Optional.empty();
+                }
+                counts[charClass.ordinal()]++;
+            }
+        }
+        while ( password.length() < targetLength )
+        {
+            final Optional<CharClass> fillClass = pickClass( pwmRandom, pools, counts );
+            if ( fillClass.isEmpty() || !insert( pwmRandom, password, fillClass.get(), pools.randomChar( pwmRandom, fillClass.get() ) ) )
+            {
+                return Optional.empty();
+            }
+            counts[fillClass.get().ordinal()]++;
+        }
+
+        if ( !fixEnds( password ) || !repair( pwmRandom, pools, password ) )
+        {
+            return Optional.empty();
+        }
+
+        return Optional.of( password.toString() );
+    }
+
+    private boolean canAdd( final int[] counts, final CharClass charClass )
+    {
+        if ( counts[charClass.ordinal()] + 1 > maximum[charClass.ordinal()] )
+        {
+            return false;
+        }
+
+        // the reserved minimums of every class still have to fit once this character is added
+        final int[] projected = new int[CLASSES.length];
+        for ( final CharClass loopClass : CLASSES )
+        {
+            projected[loopClass.ordinal()] = Math.max( counts[loopClass.ordinal()], required[loopClass.ordinal()] );
+        }
+        if ( counts[charClass.ordinal()] >= required[charClass.ordinal()] )
+        {
+            projected[charClass.ordinal()]++;
+        }
+        return groupTotal( projected, true ) <= maxAlpha && groupTotal( projected, false ) <= maxNonAlpha;
+    }
+
+    private Optional<CharClass> pickClass( final PwmRandom pwmRandom, final Pools pools, final int[] counts )
+    {
+        final int offset = pwmRandom.nextInt( CLASSES.length );
+        for ( int i = 0; i < CLASSES.length; i++ )
+        {
+            final CharClass charClass = CLASSES[( offset + i ) % CLASSES.length];
+            if ( pools.has( charClass ) && canAdd( counts, charClass ) )
+            {
+                return Optional.of( charClass );
+            }
+        }
+        return Optional.empty();
+    }
+
+    private boolean insert( final PwmRandom pwmRandom, final StringBuilder password, final CharClass charClass, final char value )
+    {
+        final int low = allowedAt( charClass, true ) ? 0 : 1;
+        final int high = allowedAt( charClass, false ) ? password.length() : password.length() - 1;
+        if ( low > high )
+        {
+            return false;
+        }
+        password.insert( low + pwmRandom.nextInt( high - low + 1 ), value );
+        return true;
+    }
+
+    private boolean allowedAt( final CharClass charClass, final boolean first )
+    {
+        switch ( charClass )
+        {
+            case NUMERIC:
+                return first ? firstNumericAllowed : lastNumericAllowed;
+            case SPECIAL:
+                return first ? firstSpecialAllowed : lastSpecialAllowed;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Swap a disallowed first or last character with an alpha character from the middle of the password.
+     */
+    private boolean fixEnds( final StringBuilder password )
+    {
+        for ( final boolean first : new boolean[] {true, false} )
+        {
+            final int index = first ? 0 : password.length() - 1;
+            if ( allowedAt( CharClass.of( password.charAt( index ) ), first ) )
+            {
+                continue;
+            }
+
+            boolean swapped = false;
+            for ( int i = 1; i < password.length() - 1 && !swapped; i++ )
+            {
+                if ( CharClass.of( password.charAt( i ) ).alpha )
+                {
+                    final char endChar = password.charAt( index );
+                    password.setCharAt( index, password.charAt( i ) );
+                    password.setCharAt( i, endChar );
+                    swapped = true;
+                }
+            }
+            if ( !swapped )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replace characters violating the repeat, consecutive and unique rules with other characters of the same class,
+     * so the class counts and first/last rules established during construction are kept.
+     */
+    private boolean repair( final PwmRandom pwmRandom, final Pools pools, final StringBuilder password )
+    {
+        final int maxRounds = password.length() * 4;
+        for ( int round = 0; round < maxRounds; round++ )
+        {
+            final int index = findViolation( password );
+            if ( index < 0 )
+            {
+                return true;
+            }
+
+            final CharClass charClass = CharClass.of( password.charAt( index ) );
+            if ( !pools.has( charClass ) )
+            {
+                return false;
+            }
+
+            final char original = password.charAt( index );
+            boolean replaced = false;
+            for ( int i = 0; i < MAX_SUBSTITUTE_TRIES && !replaced; i++ )
+            {
+                final char candidate = pools.randomChar( pwmRandom, charClass );
+                password.setCharAt( index, candidate );
+                replaced = candidate != original && !violatesAt( password, index ) && !isDuplicate( password, index );
+            }
+            if ( !replaced )
+            {
+                // accept a substitute that only fixes the local rules, the unique count may still be raised elsewhere
+                password.setCharAt( index, original );
+                for ( int i = 0; i < MAX_SUBSTITUTE_TRIES && !replaced; i++ )
+                {
+                    final char candidate = pools.randomChar( pwmRandom, charClass );
+                    password.setCharAt( index, candidate );
+                    replaced = candidate != original && !violatesAt( password, index );
+                }
+                if ( !replaced )
+                {
+                    password.setCharAt( index, original );
+                }
+            }
+        }
+        return findViolation( password ) < 0;
+    }
+
+    private int findViolation( final CharSequence password )
+    {
+        for ( int i = 0; i < password.length(); i++ )
+        {
+            if ( violatesAt( password, i ) )
+            {
+                return i;
+            }
+        }
+
+        if ( uniqueCount( password ) < minUnique )
+        {
+            for ( int i = 0; i < password.length(); i++ )
+            {
+                if ( isDuplicate( password, i ) )
+                {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean violatesAt( final CharSequence password, final int index )
+    {
+        final char value = Character.toLowerCase( password.charAt( index ) );
+
+        if ( maxRepeat < UNLIMITED )
+        {
+            int occurrences = 0;
+            for ( int i = 0; i < password.length(); i++ )
+            {
+                if ( Character.toLowerCase( password.charAt( i ) ) == value )
+                {
+                    occurrences++;
+                }
+            }
+            if ( occurrences > maxRepeat )
+            {
+                return true;
+            }
+        }
+
+        if ( maxSequentialRepeat < UNLIMITED )
+        {
+            int run = 1;
+            for ( int i = index - 1; i >= 0 && Character.toLowerCase( password.charAt( i ) ) == value; i-- )
+            {
+                run++;
+            }
+            for ( int i = index + 1; i < password.length() && Character.toLowerCase( password.charAt( i ) ) == value; i++ )
+            {
+                run++;
+            }
+            if ( run > maxSequentialRepeat )
+            {
+                return true;
+            }
+        }
+
+        if ( maxConsecutive < UNLIMITED )
+        {
+            int run = 1;
+            for ( int i = index - 1; i >= 0 && Character.toLowerCase( password.charAt( i ) ) + 1 == Character.toLowerCase( password.charAt( i + 1 ) ); i-- )
+            {
+                run++;
+            }
+            for ( int i = index + 1; i < password.length() && Character.toLowerCase( password.charAt( i - 1 ) ) + 1 == Character.toLowerCase( password.charAt( i ) ); i++ )
+            {
+                run++;
+            }
+            return run >= maxConsecutive;
+        }
+
+        return false;
+    }
+
+    private static boolean isDuplicate( final CharSequence password, final int index )
+    {
+        final char value = Character.toLowerCase( password.charAt( index ) );
+        for ( int i = 0; i < password.length(); i++ )
+        {
+            if ( i != index && Character.toLowerCase( password.charAt( i ) ) == value )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int uniqueCount( final CharSequence password )
+    {
+        return ( int ) password.chars().map( Character::toLowerCase ).distinct().count();
+    }
+
+    private static int groupTotal( final int[] counts, final boolean alpha )
+    {
+        int total = 0;
+        for ( final CharClass charClass : CLASSES )
+        {
+            if ( charClass.alpha == alpha )
+            {
+                total += counts[charClass.ordinal()];
+            }
+        }
+        return total;
+    }
+
+    private static int unlimitedIfZero( final int value )
+    {
+        return value > 0 ? value : UNLIMITED;
+    }
+
+    /**
+     * Characters of each class available from the seed phrases.
+     */
+    private static class Pools
+    {
+        private final String[] chars = new String[CLASSES.length];
+
+        Pools( final RandomPasswordGenerator.SeedMachine seedMachine )
+        {
+            chars[CharClass.LOWER.ordinal()] = seedMachine.getLowerChars();
+            chars[CharClass.UPPER.ordinal()] = seedMachine.getUpperChars();
+            chars[CharClass.NUMERIC.ordinal()] = seedMachine.getNumChars();
+            chars[CharClass.SPECIAL.ordinal()] = seedMachine.getSpecialChars();
+            chars[CharClass.OTHER.ordinal()] = "";
+        }
+
+        boolean has( final CharClass charClass )
+        {
+            return !chars[charClass.ordinal()].isEmpty();
+        }
+
+        char randomChar( final PwmRandom pwmRandom, final CharClass charClass )
+        {
+            final String pool = chars[charClass.ordinal()];
+            return pool.charAt( pwmRandom.nextInt( pool.length() ) );
+        }
+    }
+}
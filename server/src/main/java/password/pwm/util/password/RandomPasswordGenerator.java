@@ -53,6 +53,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -122,16 +123,7 @@ public class RandomPasswordGenerator
 
         randomGeneratorConfig.validateSettings( pwmDomain );
 
-        final RandomGeneratorConfig effectiveConfig = makeEffectiveConfig( randomGeneratorConfig, pwmDomain );
-        final PwmRandom pwmRandom = pwmDomain.getSecureService().pwmRandom();
-        final SeedMachine seedMachine = new SeedMachine( pwmRandom, normalizeSeeds( effectiveConfig.getSeedlistPhrases() ) );
-
-        // determine the password policy to use for random generation
-        final PwmPasswordPolicy randomGenPolicy = makeRandomGenPwdPolicy( effectiveConfig, pwmDomain );
-
-        // read a rule validator
-        // modify until it passes all the rules
-        final MutatorResult mutatorResult = passwordMutator( sessionLabel, pwmDomain, seedMachine, effectiveConfig, randomGenPolicy );
+        final MutatorResult mutatorResult = generate( sessionLabel, randomGeneratorConfig, pwmDomain, true );
 
         // report outcome
 
@@ -144,9 +136,10 @@ public class RandomPasswordGenerator
         {
             if ( LOGGER.isEnabled( PwmLogLevel.ERROR ) )
             {
+                final PwmPasswordPolicy randomGenPolicy = makeRandomGenPwdPolicy( makeEffectiveConfig( randomGeneratorConfig, pwmDomain ), pwmDomain );
                 final PwmPasswordRuleValidator pwmPasswordRuleValidator = PwmPasswordRuleValidator.create( sessionLabel, pwmDomain, randomGenPolicy );
                 final int errors = pwmPasswordRuleValidator.internalPwmPolicyValidator( mutatorResult.getPassword(), null, null ).size();
-                final int judgeLevel = PasswordUtility.judgePasswordStrength( pwmDomain.getConfig(), mutatorResult.getPassword() );
+                final int judgeLevel = PasswordUtility.judgePasswordStrength( pwmDomain, mutatorResult.getPassword() );
                 LOGGER.error( sessionLabel, () -> "failed random password generation after "
                                 + mutatorResult.getTryCount() + " tries. " + "(errors=" + errors + ", judgeLevel=" + judgeLevel,
                         () -> TimeDuration.fromCurrent( startTime ) );
@@ -161,8 +154,37 @@ public class RandomPasswordGenerator
         return new PasswordData( mutatorResult.getPassword() );
     }
 
+    /**
+     * Generate a password, reporting the number of validation attempts.  When {@code construct} is set, a password
+     * meeting the structural rules of the policy is constructed directly, so validation normally succeeds on the first
+     * attempt; otherwise (or if the policy can not be compiled) the password is found by mutating seed text.
+     */
+    static MutatorResult generate(
+            final SessionLabel sessionLabel,
+            final RandomGeneratorConfig randomGeneratorConfig,
+            final PwmDomain pwmDomain,
+            final boolean construct
+    )
+            throws PwmUnrecoverableException
+    {
+        final RandomGeneratorConfig effectiveConfig = makeEffectiveConfig( randomGeneratorConfig, pwmDomain );
+        final PwmRandom pwmRandom = pwmDomain.getSecureService().pwmRandom();
+        final SeedMachine seedMachine = new SeedMachine( pwmRandom, normalizeSeeds( effectiveConfig.getSeedlistPhrases() ) );
+
+        // determine the password policy to use for random generation
+        final PwmPasswordPolicy randomGenPolicy = makeRandomGenPwdPolicy( effectiveConfig, pwmDomain );
+
+        final Optional<RandomPasswordConstraints> constraints = construct
+                ? RandomPasswordConstraints.compile( randomGenPolicy, effectiveConfig.getMinimumLength() )
+                : Optional.empty();
+
+        // read a rule validator
+        // modify until it passes all the rules
+        return passwordMutator( sessionLabel, pwmDomain, seedMachine, effectiveConfig, randomGenPolicy, constraints.orElse( null ) );
+    }
+
     @Value
-    private static class MutatorResult
+    static class MutatorResult
     {
         private final String password;
         private final boolean validPassword;
@@ -231,8 +253,8 @@ public class RandomPasswordGenerator
             final PwmDomain pwmDomain,
             final SeedMachine seedMachine,
             final RandomGeneratorConfig effectiveConfig,
-            final PwmPasswordPolicy randomGenPolicy
-
+            final PwmPasswordPolicy randomGenPolicy,
+            final RandomPasswordConstraints constraints
     )
             throws PwmUnrecoverableException
     {
@@ -241,13 +263,18 @@ public class RandomPasswordGenerator
         final int jitterCount = Integer.parseInt( pwmDomain.getConfig().readAppProperty( AppProperty.PASSWORD_RANDOMGEN_JITTER_COUNT ) );
         final PwmRandom pwmRandom = pwmDomain.getSecureService().pwmRandom();
 
+        // constructed passwords start at the shortest compliant length, and grow when found to be too weak
+        int desiredLength = constraints == null ? effectiveConfig.getMinimumLength() : constraints.getLength();
+
         final StringBuilder password = new StringBuilder();
-        password.append( generateNewPassword( pwmRandom, seedMachine, effectiveConfig.getMinimumLength() ) );
+        password.append( generateNewPassword( pwmRandom, seedMachine, desiredLength, constraints ) );
 
 
         final PwmPasswordRuleValidator pwmPasswordRuleValidator = PwmPasswordRuleValidator.create(
                 sessionLabel, pwmDomain, randomGenPolicy, PwmPasswordRuleValidator.Flag.FailFast );
 
+        final int minimumStrength = randomGenPolicy.getRuleHelper().readIntValue( PwmPasswordRule.MinimumStrength );
+
         int tryCount = 0;
         boolean validPassword = false;
         while ( !validPassword && tryCount < maxTryCount )
@@ -258,7 +285,18 @@ public class RandomPasswordGenerator
             if ( tryCount % jitterCount == 0 )
             {
                 password.delete( 0, password.length() );
-                password.append( generateNewPassword( pwmRandom, seedMachine, effectiveConfig.getMinimumLength() ) );
+                password.append( generateNewPassword( pwmRandom, seedMachine, desiredLength, constraints ) );
+            }
+
+            // lengthen constructed passwords until strong enough before running the full (wordlist, history) validation
+            while ( constraints != null
+                    && minimumStrength > 0
+                    && desiredLength < constraints.getMaximumLength()
+                    && PasswordUtility.judgePasswordStrength( pwmDomain, password.toString() ) < minimumStrength )
+            {
+                desiredLength++;
+                password.delete( 0, password.length() );
+                password.append( generateNewPassword( pwmRandom, seedMachine, desiredLength, constraints ) );
             }
 
             final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator(
@@ -266,13 +304,26 @@ public class RandomPasswordGenerator
             if ( errors != null && !errors.isEmpty() )
             {
                 validPassword = false;
-                modifyPasswordBasedOnErrors( pwmRandom, password, errors, seedMachine );
+                if ( constraints != null )
+                {
+                    // the structural rules are already met, so only rules such as strength, wordlist or history failed
+                    if ( errors.stream().anyMatch( errorInformation -> errorInformation.getError() == PwmError.PASSWORD_TOO_WEAK ) )
+                    {
+                        desiredLength = Math.min( desiredLength + 1, constraints.getMaximumLength() );
+                    }
+                    password.delete( 0, password.length() );
+                    password.append( generateNewPassword( pwmRandom, seedMachine, desiredLength, constraints ) );
+                }
+                else
+                {
+                    modifyPasswordBasedOnErrors( pwmRandom, password, errors, seedMachine );
+                }
             }
             else if ( checkPasswordAgainstDisallowedHttpValues( pwmDomain.getConfig(), password.toString() ) )
             {
                 validPassword = false;
                 password.delete( 0, password.length() );
-                password.append( generateNewPassword( pwmRandom, seedMachine, effectiveConfig.getMinimumLength() ) );
+                password.append( generateNewPassword( pwmRandom, seedMachine, desiredLength, constraints ) );
             }
         }
 
@@ -617,8 +668,22 @@ public class RandomPasswordGenerator
         }
     }
 
-    private static String generateNewPassword( final PwmRandom pwmRandom, final SeedMachine seedMachine, final int desiredLength )
+    private static String generateNewPassword(
+            final PwmRandom pwmRandom,
+            final SeedMachine seedMachine,
+            final int desiredLength,
+            final RandomPasswordConstraints constraints
+    )
     {
+        if ( constraints != null )
+        {
+            final Optional<String> constructed = constraints.construct( pwmRandom, seedMachine, desiredLength );
+            if ( constructed.isPresent() )
+            {
+                return constructed.get();
+            }
+        }
+
         final StringBuilder password = new StringBuilder();
 
         while ( password.length() < ( desiredLength - 1 ) )
@@ -68,6 +68,22 @@ public class BCrypt
         return bsdCryptPass;
     }
 
+    /**
+     * Check only against the legacy jbcrypt encoding, for callers that have already tried the standard library.
+     */
+    public static boolean testLegacyAnswer( final String password, final String hashedPassword )
+    {
+        try
+        {
+            return JBCrypt.checkpw(password, hashedPassword);
+        }
+        catch (Exception e)
+        {
+            LOGGER.debug( () -> "error while checking bcypt password: " + e.getMessage() );
+            return false;
+        }
+    }
+
     /**
      * BCrypt implements OpenBSD-style Blowfish password hashing using
      * the scheme described in "A Future-Adaptable Password Scheme" by
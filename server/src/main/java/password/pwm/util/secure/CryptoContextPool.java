@@ -0,0 +1,179 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread confined cache of initialized {@link Cipher} and {@link Mac} instances, keyed by algorithm, mode and key.
+ * Reusing an instance avoids the provider lookup of {@code getInstance()} and, for an unchanged key, the key schedule
+ * of {@code init()}.
+ *
+ * <p>Instances never leave the thread that created them.  A caller must finish with an instance before requesting
+ * another one for the same context, and must {@link #discard(String, int, SecretKey)} an instance whose operation
+ * failed, since its internal state is then undefined.</p>
+ *
+ * <p>The thread local only holds jdk types, so a container thread outliving the application does not keep its class
+ * loader.  The cache of every thread is registered, so {@link #clear()} can release the cached instances and the key
+ * material they hold when the application closes.</p>
+ */
+final class CryptoContextPool
+{
+    private static final int MAX_CONTEXTS_PER_THREAD = 16;
+
+    private static final int MAC_MODE = -1;
+
+    private static final ThreadLocal<AtomicReference<Map<List<Object>, Object>>> CONTEXTS = ThreadLocal.withInitial( CryptoContextPool::registerThread );
+
+    private static final Set<AtomicReference<Map<List<Object>, Object>>> THREAD_CONTEXTS = Collections.synchronizedSet( Collections.newSetFromMap( new WeakHashMap<>() ) );
+
+    private CryptoContextPool()
+    {
+    }
+
+    /**
+     * Returns a cipher initialized for the mode and key.  Ciphers requiring a parameter spec (such as a GCM nonce) are
+     * re-initialized with the supplied spec on every call; others are returned in their already initialized state.
+     */
+    static Cipher cipher( final String algName, final int mode, final SecretKey key, final AlgorithmParameterSpec spec )
+            throws GeneralSecurityException
+    {
+        final Map<List<Object>, Object> contexts = threadContexts();
+        final List<Object> contextKey = List.of( algName, mode, key );
+        final Cipher cached = ( Cipher ) contexts.get( contextKey );
+        if ( cached != null )
+        {
+            if ( spec != null )
+            {
+                cached.init( mode, key, spec );
+            }
+            return cached;
+        }
+
+        final Cipher cipher = Cipher.getInstance( algName );
+        if ( spec != null )
+        {
+            cipher.init( mode, key, spec );
+        }
+        else
+        {
+            cipher.init( mode, key );
+        }
+        putContext( contexts, contextKey, cipher );
+        return cipher;
+    }
+
+    /**
+     * Returns a mac initialized with the key.  {@link Mac#doFinal(byte[])} resets the mac, so it is ready for reuse.
+     */
+    static Mac mac( final String algName, final SecretKey key )
+            throws GeneralSecurityException
+    {
+        final Map<List<Object>, Object> contexts = threadContexts();
+        final List<Object> contextKey = List.of( algName, MAC_MODE, key );
+        final Mac cached = ( Mac ) contexts.get( contextKey );
+        if ( cached != null )
+        {
+            return cached;
+        }
+
+        final Mac mac = Mac.getInstance( algName );
+        mac.init( key );
+        putContext( contexts, contextKey, mac );
+        return mac;
+    }
+
+    static void discard( final String algName, final int mode, final SecretKey key )
+    {
+        threadContexts().remove( List.of( algName, mode, key ) );
+    }
+
+    static void discardMac( final String algName, final SecretKey key )
+    {
+        discard( algName, MAC_MODE, key );
+    }
+
+    /**
+     * Release the cached instances of every thread.  A thread using the pool concurrently finishes its current
+     * operation with the instance it holds and starts a new cache on its next call.
+     */
+    static void clear()
+    {
+        final List<AtomicReference<Map<List<Object>, Object>>> threadContexts;
+        synchronized ( THREAD_CONTEXTS )
+        {
+            threadContexts = new ArrayList<>( THREAD_CONTEXTS );
+        }
+
+        for ( final AtomicReference<Map<List<Object>, Object>> reference : threadContexts )
+        {
+            reference.set( null );
+        }
+        CONTEXTS.remove();
+    }
+
+    private static AtomicReference<Map<List<Object>, Object>> registerThread()
+    {
+        final AtomicReference<Map<List<Object>, Object>> reference = new AtomicReference<>();
+        THREAD_CONTEXTS.add( reference );
+        return reference;
+    }
+
+    private static Map<List<Object>, Object> threadContexts()
+    {
+        final AtomicReference<Map<List<Object>, Object>> reference = CONTEXTS.get();
+        final Map<List<Object>, Object> contexts = reference.get();
+        if ( contexts != null )
+        {
+            return contexts;
+        }
+
+        // access ordered, so the least recently used context is evicted first
+        final Map<List<Object>, Object> newContexts = new LinkedHashMap<>( MAX_CONTEXTS_PER_THREAD, 0.75f, true );
+        reference.set( newContexts );
+        return newContexts;
+    }
+
+    private static void putContext( final Map<List<Object>, Object> contexts, final List<Object> contextKey, final Object context )
+    {
+        contexts.put( contextKey, context );
+        if ( contexts.size() > MAX_CONTEXTS_PER_THREAD )
+        {
+            final Iterator<List<Object>> iterator = contexts.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
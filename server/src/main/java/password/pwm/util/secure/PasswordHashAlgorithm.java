@@ -0,0 +1,280 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Adaptive password hashing algorithms.  Each algorithm produces a self describing encoded value holding its cost,
+ * salt and hash, so a value can be verified (and its cost compared to the current calibration) without any other
+ * stored state.  The cost is the algorithm's single work factor: log2 rounds for bcrypt, iterations for PBKDF2 and
+ * passes over a fixed amount of memory for Argon2.
+ */
+public enum PasswordHashAlgorithm
+{
+    BCRYPT( "$2", 10, 20, true, 6 )
+            {
+                @Override
+                String hash( final char[] password, final int cost, final byte[] salt )
+                {
+                    return OpenBSDBCrypt.generate( password, Arrays.copyOf( salt, BCRYPT_SALT_LENGTH ), cost );
+                }
+
+                @Override
+                boolean verify( final char[] password, final String encodedValue )
+                {
+                    return OpenBSDBCrypt.checkPassword( encodedValue, password );
+                }
+
+                @Override
+                OptionalInt readCost( final String encodedValue )
+                {
+                    // $2y$10$...
+                    final String[] parts = encodedValue.split( "\\$" );
+                    return parts.length > 2 ? parseInt( parts[2] ) : OptionalInt.empty();
+                }
+            },
+
+    PBKDF2_SHA256( "$pbkdf2-sha256$", 100_000, 10_000_000, false, 10_000 )
+            {
+                @Override
+                String hash( final char[] password, final int cost, final byte[] salt )
+                        throws GeneralSecurityException
+                {
+                    return getPrefix() + "i=" + cost + "$" + encode( salt ) + "$" + encode( pbkdf2( password, cost, salt ) );
+                }
+
+                @Override
+                boolean verify( final char[] password, final String encodedValue )
+                        throws GeneralSecurityException
+                {
+                    // $pbkdf2-sha256$i=N$salt$hash
+                    final String[] parts = encodedValue.split( "\\$" );
+                    final OptionalInt cost = readCost( encodedValue );
+                    if ( parts.length != 5 || cost.isEmpty() )
+                    {
+                        return false;
+                    }
+                    final byte[] salt = decode( parts[3] );
+                    return MessageDigest.isEqual( decode( parts[4] ), pbkdf2( password, cost.getAsInt(), salt ) );
+                }
+
+                @Override
+                OptionalInt readCost( final String encodedValue )
+                {
+                    final String[] parts = encodedValue.split( "\\$" );
+                    return parts.length > 2 && parts[2].startsWith( "i=" ) ? parseInt( parts[2].substring( 2 ) ) : OptionalInt.empty();
+                }
+            },
+
+    ARGON2ID( "$argon2id$", 2, 64, false, 1 )
+            {
+                @Override
+                String hash( final char[] password, final int cost, final byte[] salt )
+                {
+                    final int memoryKb = ARGON2_MEMORY_KB;
+                    return getPrefix() + "v=" + Argon2Parameters.ARGON2_VERSION_13 + "$m=" + memoryKb + ",t=" + cost + ",p=1$"
+                            + encode( salt ) + "$" + encode( argon2( password, cost, memoryKb, salt ) );
+                }
+
+                @Override
+                boolean verify( final char[] password, final String encodedValue )
+                {
+                    // $argon2id$v=19$m=M,t=T,p=1$salt$hash
+                    final String[] parts = encodedValue.split( "\\$" );
+                    if ( parts.length != 6 )
+                    {
+                        return false;
+                    }
+                    final OptionalInt memoryKb = readParameter( parts[3], "m=" );
+                    final OptionalInt cost = readParameter( parts[3], "t=" );
+                    if ( memoryKb.isEmpty() || cost.isEmpty() )
+                    {
+                        return false;
+                    }
+                    final byte[] salt = decode( parts[4] );
+                    return MessageDigest.isEqual( decode( parts[5] ), argon2( password, cost.getAsInt(), memoryKb.getAsInt(), salt ) );
+                }
+
+                @Override
+                OptionalInt readCost( final String encodedValue )
+                {
+                    final String[] parts = encodedValue.split( "\\$" );
+                    return parts.length > 3 ? readParameter( parts[3], "t=" ) : OptionalInt.empty();
+                }
+            },;
+
+    public static final int SALT_LENGTH = 16;
+    private static final int BCRYPT_SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+
+    // memory is fixed at the commonly recommended minimum for argon2id, the cost tunes the number of passes
+    private static final int ARGON2_MEMORY_KB = 19 * 1024;
+
+    private final String prefix;
+    private final int minimumCost;
+    private final int maximumCost;
+    private final boolean exponentialCost;
+    private final int probeCost;
+
+    PasswordHashAlgorithm( final String prefix, final int minimumCost, final int maximumCost, final boolean exponentialCost, final int probeCost )
+    {
+        this.prefix = prefix;
+        this.minimumCost = minimumCost;
+        this.maximumCost = maximumCost;
+        this.exponentialCost = exponentialCost;
+        this.probeCost = probeCost;
+    }
+
+    abstract String hash( char[] password, int cost, byte[] salt )
+            throws GeneralSecurityException;
+
+    abstract boolean verify( char[] password, String encodedValue )
+            throws GeneralSecurityException;
+
+    abstract OptionalInt readCost( String encodedValue );
+
+    public String getPrefix()
+    {
+        return prefix;
+    }
+
+    /**
+     * Lowest cost calibration will select; stored values with a lower cost are still verified.
+     */
+    int getMinimumCost()
+    {
+        return minimumCost;
+    }
+
+    int getMaximumCost()
+    {
+        return maximumCost;
+    }
+
+    /**
+     * True if each increment of the cost doubles the work (bcrypt), false if the work is linear in the cost.
+     */
+    boolean isExponentialCost()
+    {
+        return exponentialCost;
+    }
+
+    /**
+     * A cheap cost used to time the algorithm when calibrating.
+     */
+    int getProbeCost()
+    {
+        return probeCost;
+    }
+
+    public static Optional<PasswordHashAlgorithm> forEncodedValue( final String encodedValue )
+    {
+        if ( encodedValue == null )
+        {
+            return Optional.empty();
+        }
+        for ( final PasswordHashAlgorithm algorithm : values() )
+        {
+            if ( encodedValue.startsWith( algorithm.getPrefix() ) )
+            {
+                return Optional.of( algorithm );
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static byte[] pbkdf2( final char[] password, final int iterations, final byte[] salt )
+            throws GeneralSecurityException
+    {
+        final PBEKeySpec keySpec = new PBEKeySpec( password, salt, iterations, HASH_LENGTH * 8 );
+        try
+        {
+            return SecretKeyFactory.getInstance( "PBKDF2WithHmacSHA256" ).generateSecret( keySpec ).getEncoded();
+        }
+        finally
+        {
+            keySpec.clearPassword();
+        }
+    }
+
+    private static byte[] argon2( final char[] password, final int iterations, final int memoryKb, final byte[] salt )
+    {
+        final Argon2Parameters parameters = new Argon2Parameters.Builder( Argon2Parameters.ARGON2_id )
+                .withVersion( Argon2Parameters.ARGON2_VERSION_13 )
+                .withIterations( iterations )
+                .withMemoryAsKB( memoryKb )
+                .withParallelism( 1 )
+                .withSalt( salt )
+                .build();
+        final Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init( parameters );
+        final byte[] output = new byte[ HASH_LENGTH ];
+        generator.generateBytes( password, output );
+        return output;
+    }
+
+    private static OptionalInt readParameter( final String parameters, final String name )
+    {
+        for ( final String parameter : parameters.split( "," ) )
+        {
+            if ( parameter.startsWith( name ) )
+            {
+                return parseInt( parameter.substring( name.length() ) );
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    private static OptionalInt parseInt( final String value )
+    {
+        try
+        {
+            return OptionalInt.of( Integer.parseInt( value ) );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return OptionalInt.empty();
+        }
+    }
+
+    private static String encode( final byte[] value )
+    {
+        return Base64.getEncoder().withoutPadding().encodeToString( value );
+    }
+
+    private static byte[] decode( final String value )
+    {
+        return Base64.getDecoder().decode( value );
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import lombok.Value;
+import password.pwm.AppProperty;
+import password.pwm.config.AppConfig;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes and verifies secrets such as the configuration password using an adaptive {@link PasswordHashAlgorithm}.
+ *
+ * <p>The cost of each algorithm is calibrated so a single verification takes roughly the configured target time on
+ * this hardware.  Calibration times a few hashes at a cheap probe cost and extrapolates, so it is quick enough to run
+ * at startup.  A successful verification of a value made with a different algorithm or a lower cost returns a new
+ * value at the current parameters, which callers store in place of the old one.</p>
+ *
+ * <p>All hash operations share a limited number of permits, so a flood of verification requests queues briefly and
+ * then fails rather than occupying every processor.</p>
+ */
+public final class PasswordHasher
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PasswordHasher.class );
+
+    private static final int PROBE_SAMPLES = 3;
+    private static final int LEGACY_BCRYPT_COST = 10;
+    private static final char[] PROBE_PASSWORD = "calibration-probe".toCharArray();
+
+    private final PasswordHashAlgorithm algorithm;
+    private final TimeDuration targetLatency;
+    private final Semaphore permits;
+    private final TimeDuration maxWait;
+    private final Map<PasswordHashAlgorithm, Integer> costs = new ConcurrentHashMap<>();
+
+    PasswordHasher(
+            final PasswordHashAlgorithm algorithm,
+            final TimeDuration targetLatency,
+            final int maxConcurrent,
+            final TimeDuration maxWait,
+            final Map<PasswordHashAlgorithm, Integer> fixedCosts
+    )
+    {
+        this.algorithm = algorithm;
+        this.targetLatency = targetLatency;
+        this.permits = new Semaphore( Math.max( 1, maxConcurrent ), true );
+        this.maxWait = maxWait;
+        this.costs.putAll( fixedCosts );
+    }
+
+    public static PasswordHasher create( final AppConfig appConfig )
+    {
+        final PasswordHashAlgorithm algorithm = JavaHelper.readEnumFromString(
+                PasswordHashAlgorithm.class,
+                appConfig.readAppProperty( AppProperty.SECURITY_PASSWORD_HASH_ALGORITHM ) )
+                .orElse( PasswordHashAlgorithm.BCRYPT );
+        final TimeDuration targetLatency = TimeDuration.of(
+                Long.parseLong( appConfig.readAppProperty( AppProperty.SECURITY_PASSWORD_HASH_TARGET_MS ) ), TimeDuration.Unit.MILLISECONDS );
+        final int maxConcurrent = Integer.parseInt( appConfig.readAppProperty( AppProperty.SECURITY_PASSWORD_HASH_MAX_CONCURRENT ) );
+        final TimeDuration maxWait = TimeDuration.of(
+                Long.parseLong( appConfig.readAppProperty( AppProperty.SECURITY_PASSWORD_HASH_MAX_WAIT_MS ) ), TimeDuration.Unit.MILLISECONDS );
+
+        final PasswordHasher passwordHasher = new PasswordHasher( algorithm, targetLatency, maxConcurrent, maxWait, Map.of() );
+
+        // calibrate the preferred algorithm now rather than during the first verification
+        passwordHasher.getCost( algorithm );
+        return passwordHasher;
+    }
+
+    /**
+     * A hasher using bcrypt at its historical fixed cost, for use where no running application is available.
+     */
+    public static PasswordHasher legacyHasher()
+    {
+        return new PasswordHasher(
+                PasswordHashAlgorithm.BCRYPT,
+                TimeDuration.ZERO,
+                1,
+                TimeDuration.MINUTE,
+                Map.of( PasswordHashAlgorithm.BCRYPT, LEGACY_BCRYPT_COST ) );
+    }
+
+    public PasswordHashAlgorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public int getCost( final PasswordHashAlgorithm hashAlgorithm )
+    {
+        return costs.computeIfAbsent( hashAlgorithm, this::calibrate );
+    }
+
+    /**
+     * Hash a password with the preferred algorithm, current cost and a random salt.
+     */
+    public String hash( final String password )
+            throws PwmUnrecoverableException
+    {
+        final byte[] salt = PwmRandom.getInstance().newBytes( PasswordHashAlgorithm.SALT_LENGTH );
+        return hash( algorithm, password, getCost( algorithm ), salt );
+    }
+
+    /**
+     * Hash a password with explicit parameters.  The result is deterministic for a given salt, so values made with a
+     * shared salt can be compared directly.
+     */
+    public String hash( final PasswordHashAlgorithm hashAlgorithm, final String password, final int cost, final byte[] salt )
+            throws PwmUnrecoverableException
+    {
+        acquire();
+        try
+        {
+            return hashAlgorithm.hash( password.toCharArray(), cost, salt );
+        }
+        catch ( final GeneralSecurityException e )
+        {
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_CRYPT_ERROR, "error during password hash operation: " + e.getMessage() ) );
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    public Verification verify( final String password, final String encodedValue )
+            throws PwmUnrecoverableException
+    {
+        final Optional<PasswordHashAlgorithm> hashAlgorithm = PasswordHashAlgorithm.forEncodedValue( encodedValue );
+        if ( hashAlgorithm.isEmpty() || password == null )
+        {
+            return new Verification( false, null );
+        }
+
+        final boolean valid;
+        acquire();
+        try
+        {
+            valid = hashAlgorithm.get().verify( password.toCharArray(), encodedValue );
+        }
+        catch ( final GeneralSecurityException | IllegalArgumentException e )
+        {
+            LOGGER.debug( () -> "unable to verify " + hashAlgorithm.get() + " password hash: " + e.getMessage() );
+            return new Verification( false, null );
+        }
+        finally
+        {
+            permits.release();
+        }
+
+        if ( valid && isStale( encodedValue ) )
+        {
+            LOGGER.debug( () -> "rehashing verified " + hashAlgorithm.get() + " password hash with current parameters" );
+            return new Verification( true, hash( password ) );
+        }
+        return new Verification( valid, null );
+    }
+
+    /**
+     * Verify a bcrypt value against the legacy jbcrypt encoding, which mishandled some special characters.  The
+     * password is passed as originally entered.  A match always returns a new value at the current parameters.
+     */
+    public Verification verifyLegacyBcrypt( final String password, final String encodedValue, final String rehashPassword )
+            throws PwmUnrecoverableException
+    {
+        if ( password == null || PasswordHashAlgorithm.forEncodedValue( encodedValue ).orElse( null ) != PasswordHashAlgorithm.BCRYPT )
+        {
+            return new Verification( false, null );
+        }
+
+        final boolean valid;
+        acquire();
+        try
+        {
+            valid = BCrypt.testLegacyAnswer( password, encodedValue );
+        }
+        finally
+        {
+            permits.release();
+        }
+
+        return valid
+                ? new Verification( true, hash( rehashPassword ) )
+                : new Verification( false, null );
+    }
+
+    /**
+     * True if the value was made with a different algorithm or a lower cost than the current calibration.
+     */
+    public boolean isStale( final String encodedValue )
+    {
+        final Optional<PasswordHashAlgorithm> hashAlgorithm = PasswordHashAlgorithm.forEncodedValue( encodedValue );
+        if ( hashAlgorithm.isEmpty() || hashAlgorithm.get() != algorithm )
+        {
+            return true;
+        }
+        final OptionalInt cost = algorithm.readCost( encodedValue );
+        return cost.isEmpty() || cost.getAsInt() < getCost( algorithm );
+    }
+
+    private void acquire()
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            if ( permits.tryAcquire( maxWait.asMillis(), TimeUnit.MILLISECONDS ) )
+            {
+                return;
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_SERVICE_NOT_AVAILABLE,
+                "too many concurrent password hash operations" ) );
+    }
+
+    private int calibrate( final PasswordHashAlgorithm hashAlgorithm )
+    {
+        final Instant startTime = Instant.now();
+        final byte[] salt = new byte[ PasswordHashAlgorithm.SALT_LENGTH ];
+        long probeNanos = Long.MAX_VALUE;
+        try
+        {
+            for ( int i = 0; i < PROBE_SAMPLES; i++ )
+            {
+                final long start = System.nanoTime();
+                hashAlgorithm.hash( PROBE_PASSWORD, hashAlgorithm.getProbeCost(), salt );
+                probeNanos = Math.min( probeNanos, System.nanoTime() - start );
+            }
+        }
+        catch ( final GeneralSecurityException e )
+        {
+            LOGGER.error( () -> "error calibrating " + hashAlgorithm + " password hash, using minimum cost: " + e.getMessage() );
+            return hashAlgorithm.getMinimumCost();
+        }
+
+        final int cost = extrapolateCost( hashAlgorithm, probeNanos, targetLatency );
+        LOGGER.debug( () -> "calibrated " + hashAlgorithm + " password hash cost to " + cost + " for a target of "
+                + targetLatency.asCompactString(), () -> TimeDuration.fromCurrent( startTime ) );
+        return cost;
+    }
+
+    static int extrapolateCost( final PasswordHashAlgorithm hashAlgorithm, final long probeNanos, final TimeDuration targetLatency )
+    {
+        final double ratio = ( double ) targetLatency.asMillis() * 1_000_000 / Math.max( 1, probeNanos );
+        final double cost = hashAlgorithm.isExponentialCost()
+                ? hashAlgorithm.getProbeCost() + Math.floor( Math.log( ratio ) / Math.log( 2 ) )
+                : hashAlgorithm.getProbeCost() * ratio;
+        return ( int ) Math.max( hashAlgorithm.getMinimumCost(), Math.min( hashAlgorithm.getMaximumCost(), cost ) );
+    }
+
+    @Value
+    public static class Verification
+    {
+        private final boolean valid;
+        private final String rehashValue;
+
+        /**
+         * A new value at the current parameters, present when the verified value is stale.
+         */
+        public Optional<String> getRehash()
+        {
+            return Optional.ofNullable( rehashValue );
+        }
+    }
+}
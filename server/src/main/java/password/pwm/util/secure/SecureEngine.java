@@ -20,14 +20,12 @@
 
 package password.pwm.util.secure;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import password.pwm.PwmConstants;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.StringUtil;
-import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import javax.crypto.Cipher;
@@ -39,19 +37,15 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.Writer;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.time.Instant;
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.Random;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -76,6 +70,14 @@ public class SecureEngine
         URL_SAFE,
     }
 
+    /**
+     * Release the cipher and mac instances cached by every thread, along with the key material they hold.
+     */
+    public static void clearCryptoContexts( )
+    {
+        CryptoContextPool.clear();
+    }
+
     public static String encryptToString(
             final String value,
             final PwmSecurityKey key,
@@ -109,6 +111,17 @@ public class SecureEngine
             final PwmBlockAlgorithm blockAlgorithm
     )
             throws PwmUnrecoverableException
+    {
+        Objects.requireNonNull( value );
+        return encryptToBytes( value.getBytes( PwmConstants.DEFAULT_CHARSET ), key, blockAlgorithm );
+    }
+
+    public static byte[] encryptToBytes(
+            final byte[] value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
     {
         try
         {
@@ -117,22 +130,11 @@ public class SecureEngine
             Objects.requireNonNull( blockAlgorithm );
 
             final SecretKey aesKey = key.getKey( blockAlgorithm.getBlockKey() );
-            final byte[] nonce;
-            final Cipher cipher;
-            if ( blockAlgorithm == PwmBlockAlgorithm.AES128_GCM )
-            {
-                nonce = AES_GCM_NONCE_GENERATOR.nextValue();
-                final GCMParameterSpec spec = new GCMParameterSpec( GCM_TAG_LENGTH * 8, nonce );
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
-                cipher.init( Cipher.ENCRYPT_MODE, aesKey, spec );
-            }
-            else
-            {
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
-                cipher.init( Cipher.ENCRYPT_MODE, aesKey, cipher.getParameters() );
-                nonce = null;
-            }
-            final byte[] encryptedBytes = cipher.doFinal( value.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            final byte[] nonce = blockAlgorithm == PwmBlockAlgorithm.AES128_GCM
+                    ? AES_GCM_NONCE_GENERATOR.nextValue()
+                    : null;
+            final GCMParameterSpec spec = nonce == null ? null : new GCMParameterSpec( GCM_TAG_LENGTH * 8, nonce );
+            final byte[] encryptedBytes = doCipher( blockAlgorithm, Cipher.ENCRYPT_MODE, aesKey, spec, value );
 
             final byte[] output;
             if ( blockAlgorithm.getHmacAlgorithm() != null )
@@ -200,6 +202,17 @@ public class SecureEngine
             final PwmBlockAlgorithm blockAlgorithm
     )
             throws PwmUnrecoverableException
+    {
+        final byte[] decrypted = decryptToBytes( value, key, blockAlgorithm );
+        return decrypted == null ? null : new String( decrypted, PwmConstants.DEFAULT_CHARSET );
+    }
+
+    public static byte[] decryptToBytes(
+            final byte[] value,
+            final PwmSecurityKey key,
+            final PwmBlockAlgorithm blockAlgorithm
+    )
+            throws PwmUnrecoverableException
     {
         try
         {
@@ -230,7 +243,7 @@ public class SecureEngine
                 }
                 workingValue = inputPayload;
             }
-            final Cipher cipher;
+            final GCMParameterSpec spec;
             if ( blockAlgorithm == PwmBlockAlgorithm.AES128_GCM )
             {
                 final int nonceLength = workingValue[ 0 ];
@@ -241,17 +254,13 @@ public class SecureEngine
                 }
                 final byte[] nonce = Arrays.copyOfRange( workingValue, 0, nonceLength );
                 workingValue = Arrays.copyOfRange( workingValue, nonceLength, workingValue.length );
-                final GCMParameterSpec spec = new GCMParameterSpec( GCM_TAG_LENGTH * 8, nonce );
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
-                cipher.init( Cipher.DECRYPT_MODE, aesKey, spec );
+                spec = new GCMParameterSpec( GCM_TAG_LENGTH * 8, nonce );
             }
             else
             {
-                cipher = Cipher.getInstance( blockAlgorithm.getAlgName() );
-                cipher.init( Cipher.DECRYPT_MODE, aesKey );
+                spec = null;
             }
-            final byte[] decrypted = cipher.doFinal( workingValue );
-            return new String( decrypted, PwmConstants.DEFAULT_CHARSET );
+            return doCipher( blockAlgorithm, Cipher.DECRYPT_MODE, aesKey, spec, workingValue );
         }
         catch ( final GeneralSecurityException e )
         {
@@ -261,6 +270,26 @@ public class SecureEngine
         }
     }
 
+    private static byte[] doCipher(
+            final PwmBlockAlgorithm blockAlgorithm,
+            final int mode,
+            final SecretKey key,
+            final GCMParameterSpec spec,
+            final byte[] input
+    )
+            throws GeneralSecurityException
+    {
+        try
+        {
+            return CryptoContextPool.cipher( blockAlgorithm.getAlgName(), mode, key, spec ).doFinal( input );
+        }
+        catch ( final GeneralSecurityException | RuntimeException e )
+        {
+            CryptoContextPool.discard( blockAlgorithm.getAlgName(), mode, key );
+            throw e;
+        }
+    }
+
     public static String hash(
             final byte[] input,
             final PwmHashAlgorithm algorithm
@@ -358,16 +387,20 @@ public class SecureEngine
     )
             throws PwmUnrecoverableException
     {
+        final SecretKey secretKey = pwmSecurityKey.getKey( hmacAlgorithm.getKeyType() );
         try
         {
-
-            final Mac mac = Mac.getInstance( hmacAlgorithm.getAlgorithmName() );
-            final SecretKey secretKey = pwmSecurityKey.getKey( hmacAlgorithm.getKeyType() );
-            mac.init( secretKey );
+            final Mac mac = CryptoContextPool.mac( hmacAlgorithm.getAlgorithmName(), secretKey );
             return mac.doFinal( input );
         }
+        catch ( final RuntimeException e )
+        {
+            CryptoContextPool.discardMac( hmacAlgorithm.getAlgorithmName(), secretKey );
+            throw e;
+        }
         catch ( final GeneralSecurityException e )
         {
+            CryptoContextPool.discardMac( hmacAlgorithm.getAlgorithmName(), secretKey );
             final String errorMsg = "error during hmac operation: " + e.getMessage();
             final ErrorInformation errorInformation = new ErrorInformation( PwmError.ERROR_CRYPT_ERROR, errorMsg );
             throw new PwmUnrecoverableException( errorInformation );
@@ -468,78 +501,37 @@ public class SecureEngine
         return Arrays.copyOfRange( input, definedPrefix.length, input.length );
     }
 
+    /**
+     * Generates unique nonces made of a random fixed component followed by a big-endian counter that starts at a
+     * random value.  The counter is a lock free atomic, so concurrent callers never block each other.
+     */
     static class NonceGenerator
     {
-        private final byte[] value;
-
-        private final int fixedComponentLength;
-        private final Lock lock = new ReentrantLock();
+        private final byte[] fixedComponent;
+        private final int counterComponentLength;
+        private final AtomicLong counter;
 
         NonceGenerator( final int fixedComponentLength, final int counterComponentLength )
         {
-            this.fixedComponentLength = fixedComponentLength;
-            value = new byte[ fixedComponentLength + counterComponentLength ];
-            PwmRandom.getInstance().nextBytes( value );
-        }
-
-        public synchronized byte[] nextValue( )
-        {
-            lock.lock();
-            try
-            {
-                increment( value.length - 1 );
-                return Arrays.copyOf( value, value.length );
-            }
-            finally
-            {
-                lock.unlock();
-            }
-        }
-
-        private void increment( final int index )
-        {
-            if ( value[ index ] == Byte.MAX_VALUE )
+            if ( counterComponentLength < 1 || counterComponentLength > Long.BYTES )
             {
-                value[ index ] = 0;
-                if ( index > fixedComponentLength )
-                {
-                    increment( index - 1 );
-                }
-            }
-            else
-            {
-                value[ index ]++;
+                throw new IllegalArgumentException( "counter component length must be between 1 and " + Long.BYTES );
             }
+            this.fixedComponent = PwmRandom.getInstance().newBytes( fixedComponentLength );
+            this.counterComponentLength = counterComponentLength;
+            this.counter = new AtomicLong( PwmRandom.getInstance().nextLong() );
         }
-    }
 
-    @SuppressFBWarnings( "DMI_RANDOM_USED_ONLY_ONCE" )
-    public static void benchmark( final Writer outputData ) throws PwmUnrecoverableException, IOException
-    {
-        final int testIterations = 10 * 1000;
-        final Random random = new Random();
-        final byte[] noise = new byte[ 1024 * 10 ];
-        final PwmSecurityKey key = new PwmSecurityKey( PwmRandom.getInstance().newBytes( 1024 ) );
-        for ( int i = 0; i < 10; i++ )
+        public byte[] nextValue( )
         {
-            for ( final PwmBlockAlgorithm alg : PwmBlockAlgorithm.values() )
+            long counterValue = counter.incrementAndGet();
+            final byte[] value = Arrays.copyOf( fixedComponent, fixedComponent.length + counterComponentLength );
+            for ( int i = value.length - 1; i >= fixedComponent.length; i-- )
             {
-                final Instant startTime = Instant.now();
-                for ( int j = 0; j < testIterations; j++ )
-                {
-                    random.nextBytes( noise );
-                    SecureEngine.encryptToString(
-                            JavaHelper.binaryArrayToHex( noise ),
-                            key,
-                            alg
-                    );
-                }
-                final TimeDuration executionDuration = TimeDuration.fromCurrent( startTime );
-                outputData.write( "processed " + testIterations + " iterations using "
-                        + alg.toString() + " (" + alg.getLabel() + ") in "
-                        + executionDuration.asMillis() + "ms" );
-                outputData.write( "\n" );
+                value[ i ] = ( byte ) counterValue;
+                counterValue >>>= Byte.SIZE;
             }
+            return value;
         }
     }
 }
@@ -0,0 +1,283 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.ws.server;
+
+import lombok.Value;
+import password.pwm.http.HttpContentType;
+import password.pwm.http.HttpHeader;
+import password.pwm.http.HttpMethod;
+import password.pwm.util.java.JavaHelper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves {@link RestMethodHandler} methods of a {@link RestServlet} class.  Every combination of request method,
+ * content type and accept type is resolved once when the table is built, normally for every registered servlet when
+ * the application starts, so a request costs a single array read.
+ * Handler methods with the wrong signature, or two handlers accepting the same request, fail the build.
+ */
+final class RestDispatchTable
+{
+    private static final Map<Class<? extends RestServlet>, RestDispatchTable> TABLES = new ConcurrentHashMap<>();
+
+    private static final MethodType HANDLER_TYPE = MethodType.methodType( RestResultBean.class, RestServlet.class, RestRequest.class );
+    private static final HttpMethod[] HTTP_METHODS = HttpMethod.values();
+    private static final HttpContentType[] CONTENT_TYPES = HttpContentType.values();
+    private static final int CONTENT_SLOTS = CONTENT_TYPES.length + 1;
+
+    private final RestWebServer restWebServer;
+    private final Resolution[] resolutions;
+
+    private RestDispatchTable( final RestWebServer restWebServer, final Resolution[] resolutions )
+    {
+        this.restWebServer = restWebServer;
+        this.resolutions = resolutions;
+    }
+
+    static RestDispatchTable forClass( final Class<? extends RestServlet> servletClass )
+    {
+        return TABLES.computeIfAbsent( servletClass, RestDispatchTable::build );
+    }
+
+    static RestDispatchTable build( final Class<? extends RestServlet> servletClass )
+    {
+        final RestWebServer restWebServer = servletClass.getDeclaredAnnotation( RestWebServer.class );
+        if ( restWebServer == null )
+        {
+            throw new IllegalStateException( servletClass.getName() + " is missing " + RestWebServer.class.getSimpleName() + " annotation" );
+        }
+
+        final List<HandlerEntry> handlers = readHandlers( servletClass );
+        if ( handlers.isEmpty() )
+        {
+            throw new IllegalStateException( servletClass.getName() + " does not have any " + RestMethodHandler.class.getSimpleName() + " methods" );
+        }
+
+        final Resolution[] resolutions = new Resolution[ HTTP_METHODS.length * CONTENT_SLOTS * CONTENT_SLOTS ];
+        for ( final HttpMethod httpMethod : HTTP_METHODS )
+        {
+            for ( int contentSlot = 0; contentSlot < CONTENT_SLOTS; contentSlot++ )
+            {
+                for ( int acceptSlot = 0; acceptSlot < CONTENT_SLOTS; acceptSlot++ )
+                {
+                    resolutions[ index( httpMethod, contentSlot, acceptSlot ) ] = resolve( servletClass, handlers, httpMethod,
+                            contentTypeForSlot( contentSlot ), contentTypeForSlot( acceptSlot ) );
+                }
+            }
+        }
+
+        return new RestDispatchTable( restWebServer, resolutions );
+    }
+
+    RestWebServer getRestWebServer()
+    {
+        return restWebServer;
+    }
+
+    Resolution resolve(
+            final HttpMethod httpMethod,
+            final Optional<HttpContentType> contentType,
+            final Optional<HttpContentType> acceptType
+    )
+    {
+        return resolutions[ index( httpMethod, slotForContentType( contentType ), slotForContentType( acceptType ) ) ];
+    }
+
+    private static List<HandlerEntry> readHandlers( final Class<? extends RestServlet> servletClass )
+    {
+        final List<HandlerEntry> handlers = new ArrayList<>();
+        for ( final Method method : JavaHelper.getAllMethodsForClass( servletClass ) )
+        {
+            final RestMethodHandler annotation = method.getAnnotation( RestMethodHandler.class );
+            if ( annotation != null )
+            {
+                final String methodName = servletClass.getName() + ":" + method.getName();
+                if ( method.getParameterCount() != 1 || method.getParameterTypes()[0] != RestRequest.class )
+                {
+                    throw new IllegalStateException( methodName + " must have exactly one parameter of type " + RestRequest.class.getName() );
+                }
+                if ( !RestResultBean.class.isAssignableFrom( method.getReturnType() ) )
+                {
+                    throw new IllegalStateException( methodName + " must have return type of " + RestResultBean.class.getName() );
+                }
+
+                handlers.add( new HandlerEntry(
+                        methodName,
+                        unreflect( method ),
+                        toSet( HttpMethod.class, annotation.method() ),
+                        toSet( HttpContentType.class, annotation.consumes() ),
+                        toSet( HttpContentType.class, annotation.produces() ) ) );
+            }
+        }
+        return Collections.unmodifiableList( handlers );
+    }
+
+    private static MethodHandle unreflect( final Method method )
+    {
+        try
+        {
+            return MethodHandles.privateLookupIn( method.getDeclaringClass(), MethodHandles.lookup() )
+                    .unreflect( method )
+                    .asType( HANDLER_TYPE );
+        }
+        catch ( final IllegalAccessException e )
+        {
+            throw new IllegalStateException( "unable to access rest handler method " + method + ": " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Match the request against every handler.  An empty annotation value matches anything, the content type is only
+     * considered for methods with a body, and both headers must be present.
+     */
+    private static Resolution resolve(
+            final Class<? extends RestServlet> servletClass,
+            final List<HandlerEntry> handlers,
+            final HttpMethod httpMethod,
+            final Optional<HttpContentType> contentType,
+            final Optional<HttpContentType> acceptType
+    )
+    {
+        final boolean careAboutContentType = httpMethod.isHasBody();
+
+        boolean anyMethodMatch = false;
+        boolean anyContentMatch = false;
+        boolean anyAcceptMatch = false;
+        HandlerEntry matchedHandler = null;
+
+        for ( final HandlerEntry handler : handlers )
+        {
+            final boolean methodMatch = handler.getMethods().isEmpty() || handler.getMethods().contains( httpMethod );
+            final boolean contentMatch = contentType.isPresent()
+                    && ( !careAboutContentType || handler.getConsumes().isEmpty() || handler.getConsumes().contains( contentType.get() ) );
+            final boolean acceptMatch = acceptType.isPresent()
+                    && ( handler.getProduces().isEmpty() || handler.getProduces().contains( acceptType.get() ) );
+
+            anyMethodMatch |= methodMatch;
+            anyContentMatch |= contentMatch;
+            anyAcceptMatch |= acceptMatch;
+
+            if ( methodMatch && contentMatch && acceptMatch )
+            {
+                if ( matchedHandler != null )
+                {
+                    throw new IllegalStateException( "ambiguous rest handlers on " + servletClass.getName() + " for " + httpMethod
+                            + " content=" + contentType.map( HttpContentType::name ).orElse( "none" )
+                            + " accept=" + acceptType.map( HttpContentType::name ).orElse( "none" )
+                            + ": " + matchedHandler.getName() + ", " + handler.getName() );
+                }
+                matchedHandler = handler;
+            }
+        }
+
+        if ( matchedHandler != null )
+        {
+            return new Resolution( matchedHandler.getHandle(), null );
+        }
+
+        final String errorMsg;
+        if ( !anyMethodMatch )
+        {
+            errorMsg = "HTTP method unavailable";
+        }
+        else if ( acceptType.isEmpty() && !anyAcceptMatch )
+        {
+            errorMsg = HttpHeader.Accept.getHttpName() + " header is required";
+        }
+        else if ( contentType.isEmpty() && !anyContentMatch )
+        {
+            errorMsg = HttpHeader.ContentType.getHttpName() + " header is required";
+        }
+        else if ( !anyAcceptMatch )
+        {
+            errorMsg = HttpHeader.Accept.getHttpName() + " value is not accepted for this service";
+        }
+        else if ( !anyContentMatch )
+        {
+            errorMsg = HttpHeader.ContentType.getHttpName() + " value is not accepted for this service";
+        }
+        else
+        {
+            errorMsg = "incorrect method, Content-Type header, or Accept header.";
+        }
+        return new Resolution( null, errorMsg );
+    }
+
+    private static int index( final HttpMethod httpMethod, final int contentSlot, final int acceptSlot )
+    {
+        return ( httpMethod.ordinal() * CONTENT_SLOTS + contentSlot ) * CONTENT_SLOTS + acceptSlot;
+    }
+
+    private static int slotForContentType( final Optional<HttpContentType> contentType )
+    {
+        return contentType.map( type -> type.ordinal() + 1 ).orElse( 0 );
+    }
+
+    private static Optional<HttpContentType> contentTypeForSlot( final int slot )
+    {
+        return slot == 0 ? Optional.empty() : Optional.of( CONTENT_TYPES[ slot - 1 ] );
+    }
+
+    private static <E extends Enum<E>> Set<E> toSet( final Class<E> enumClass, final E[] values )
+    {
+        final Set<E> set = EnumSet.noneOf( enumClass );
+        set.addAll( Arrays.asList( values ) );
+        return Collections.unmodifiableSet( set );
+    }
+
+    @Value
+    private static class HandlerEntry
+    {
+        private final String name;
+        private final MethodHandle handle;
+        private final Set<HttpMethod> methods;
+        private final Set<HttpContentType> consumes;
+        private final Set<HttpContentType> produces;
+    }
+
+    /**
+     * Either the handler for a request, or the message describing why no handler accepts it.
+     */
+    @Value
+    static class Resolution
+    {
+        private final MethodHandle handler;
+        private final String errorMessage;
+
+        Optional<MethodHandle> getHandler()
+        {
+            return Optional.ofNullable( handler );
+        }
+    }
+}
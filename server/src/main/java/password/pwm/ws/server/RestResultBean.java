@@ -30,7 +30,9 @@ import password.pwm.i18n.Config;
 import password.pwm.i18n.Message;
 import password.pwm.util.java.JsonUtil;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.Writer;
 import java.util.Locale;
 
 @Value
@@ -225,4 +227,21 @@ public class RestResultBean implements Serializable
                 ? JsonUtil.serialize( this, JsonUtil.Flag.PrettyPrint ) + "\n"
                 : JsonUtil.serialize( this );
     }
+
+    /**
+     * Write the same output as {@link #toJson(boolean)} directly to the writer.
+     */
+    public void writeJson( final Writer writer, final boolean prettyPrintJson )
+            throws IOException
+    {
+        if ( prettyPrintJson )
+        {
+            JsonUtil.serializeTo( this, writer, JsonUtil.Flag.PrettyPrint );
+            writer.write( "\n" );
+        }
+        else
+        {
+            JsonUtil.serializeTo( this, writer );
+        }
+    }
 }
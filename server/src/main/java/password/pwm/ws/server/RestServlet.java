@@ -23,7 +23,6 @@ package password.pwm.ws.server;
 import com.novell.ldapchai.ChaiUser;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
 import com.novell.ldapchai.provider.ChaiProvider;
-import lombok.Data;
 import lombok.Value;
 import password.pwm.PwmApplication;
 import password.pwm.PwmApplicationMode;
@@ -40,12 +39,10 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.ContextManager;
 import password.pwm.http.HttpContentType;
 import password.pwm.http.HttpHeader;
-import password.pwm.http.HttpMethod;
 import password.pwm.http.PwmHttpRequestWrapper;
 import password.pwm.http.filter.RequestInitializationFilter;
 import password.pwm.util.i18n.LocaleHelper;
 import password.pwm.util.java.AtomicLoopIntIncrementer;
-import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.JsonUtil;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
@@ -58,10 +55,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
 import java.time.Instant;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
@@ -73,6 +68,15 @@ public abstract class RestServlet extends HttpServlet
 
     private static final PwmLogger LOGGER = PwmLogger.forClass( RestServlet.class );
 
+    /**
+     * Build and validate the dispatch table of a servlet class, so a malformed or ambiguous handler is reported when
+     * the application starts rather than on the first request.
+     */
+    public static void initializeDispatchTable( final Class<? extends RestServlet> servletClass )
+    {
+        RestDispatchTable.forClass( servletClass );
+    }
+
     @Override
     protected void service( final HttpServletRequest req, final HttpServletResponse resp )
             throws ServletException, IOException
@@ -238,141 +242,36 @@ public abstract class RestServlet extends HttpServlet
 
     private RestResultBean invokeWebService( final RestRequest restRequest ) throws IOException, PwmUnrecoverableException
     {
-        final Method interestedMethod = discoverMethodForAction( this.getClass(), restRequest );
+        final RestDispatchTable.Resolution resolution = RestDispatchTable.forClass( this.getClass() ).resolve(
+                restRequest.getMethod(),
+                restRequest.readContentType(),
+                restRequest.readAcceptType() );
 
-        if ( interestedMethod != null )
+        final Optional<MethodHandle> handler = resolution.getHandler();
+        if ( handler.isEmpty() )
         {
-            interestedMethod.setAccessible( true );
-            try
-            {
-                return ( RestResultBean ) interestedMethod.invoke( this, restRequest );
-            }
-            catch ( final InvocationTargetException e )
-            {
-                final Throwable rootException = e.getTargetException();
-                if ( rootException instanceof PwmUnrecoverableException )
-                {
-                    throw ( PwmUnrecoverableException ) rootException;
-                }
-                LOGGER.error( restRequest.getSessionLabel(), () -> "internal error executing rest request: " + e.getMessage(), e );
-                throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, e.getMessage() );
-            }
-            catch ( final IllegalAccessException e )
-            {
-                LOGGER.error( restRequest.getSessionLabel(), () -> "internal error executing rest request: " + e.getMessage(), e );
-                throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, e.getMessage() );
-            }
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_REST_INVOCATION_ERROR, resolution.getErrorMessage() );
         }
-        return null;
-    }
 
-    @Data
-    private static class MethodMatcher
-    {
-        boolean methodMatch;
-        boolean contentMatch;
-        boolean acceptMatch;
-    }
-
-    private Method discoverMethodForAction( final Class clazz, final RestRequest restRequest )
-            throws PwmUnrecoverableException, IOException
-    {
-        final HttpMethod reqMethod = restRequest.getMethod();
-        final Optional<HttpContentType> reqContent = restRequest.readContentType();
-        final Optional<HttpContentType> reqAccept = restRequest.readAcceptType();
-
-        final boolean careAboutContentType = reqMethod.isHasBody();
-
-        final MethodMatcher anyMatch = new MethodMatcher();
-
-        final Collection<Method> methods = JavaHelper.getAllMethodsForClass( clazz );
-        for ( final Method method : methods )
-        {
-            final RestMethodHandler annotation = method.getAnnotation( RestMethodHandler.class );
-            final MethodMatcher loopMatch = new MethodMatcher();
-
-            if ( annotation != null )
-            {
-                if (
-                        annotation.method().length == 0
-                                || Arrays.asList( annotation.method() ).contains( reqMethod )
-                )
-                {
-                    loopMatch.setMethodMatch( true );
-                    anyMatch.setMethodMatch( true );
-                }
-
-                if ( reqContent.isPresent() )
-                {
-                    if (
-                            !careAboutContentType
-                                    || annotation.consumes().length == 0
-                                    || Arrays.asList( annotation.consumes() ).contains( reqContent.get() ) )
-                    {
-                        loopMatch.setContentMatch( true );
-                        anyMatch.setContentMatch( true );
-                    }
-                }
-
-                if ( reqAccept.isPresent() )
-                {
-                    if (
-                            annotation.produces().length == 0
-                                    || Arrays.asList( annotation.produces() ).contains( reqAccept.get() )
-                    )
-                    {
-                        loopMatch.setAcceptMatch( true );
-                        anyMatch.setAcceptMatch( true );
-                    }
-                }
-
-                if (
-                        loopMatch.isMethodMatch()
-                                && loopMatch.isContentMatch()
-                                && loopMatch.isAcceptMatch() )
-                {
-                    return method;
-                }
-            }
-        }
-
-        final String errorMsg;
-        if ( !anyMatch.isMethodMatch() )
-        {
-            errorMsg = "HTTP method unavailable";
-        }
-        else if ( !reqAccept.isPresent() && !anyMatch.isAcceptMatch() )
-        {
-            errorMsg = HttpHeader.Accept.getHttpName() + " header is required";
-        }
-        else if ( !reqContent.isPresent() && !anyMatch.isContentMatch() )
-        {
-            errorMsg = HttpHeader.ContentType.getHttpName() + " header is required";
-        }
-        else if ( !anyMatch.isAcceptMatch() )
+        try
         {
-            errorMsg = HttpHeader.Accept.getHttpName() + " value is not accepted for this service";
+            return ( RestResultBean ) handler.get().invokeExact( this, restRequest );
         }
-        else if ( !anyMatch.isContentMatch() )
+        catch ( final PwmUnrecoverableException e )
         {
-            errorMsg = HttpHeader.ContentType.getHttpName() + " value is not accepted for this service";
+            throw e;
         }
-        else
+        catch ( final Throwable e )
         {
-            errorMsg = "incorrect method, Content-Type header, or Accept header.";
+            LOGGER.error( restRequest.getSessionLabel(), () -> "internal error executing rest request: " + e.getMessage(), e );
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, e.getMessage() );
         }
-
-        throw PwmUnrecoverableException.newException( PwmError.ERROR_REST_INVOCATION_ERROR, errorMsg );
     }
 
     private void preCheck( final RestRequest restRequest )
             throws PwmUnrecoverableException
     {
-        final RestWebServer classAnnotation = this.getClass().getDeclaredAnnotation( RestWebServer.class );
-        if ( classAnnotation == null )
-        {
-            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "class is missing " + RestWebServer.class.getSimpleName() + " annotation" );
-        }
+        final RestWebServer classAnnotation = RestDispatchTable.forClass( this.getClass() ).getRestWebServer();
 
         {
             final RestAuthenticationType requestAuthType = restRequest.getRestAuthentication().getType();
@@ -438,7 +337,7 @@ public abstract class RestServlet extends HttpServlet
                     final boolean jsonPretty = Boolean.parseBoolean( request.getParameter( PwmConstants.PARAM_FORMAT_JSON_PRETTY ) );
                     try ( PrintWriter pw = resp.getWriter() )
                     {
-                        pw.write( restResultBean.toJson( jsonPretty ) );
+                        restResultBean.writeJson( pw, jsonPretty );
                     }
                 }
                 break;
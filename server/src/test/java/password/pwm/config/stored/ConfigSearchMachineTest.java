@@ -0,0 +1,112 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.config.stored;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.config.value.StringValue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+public class ConfigSearchMachineTest
+{
+    private static final StoredConfigKey SERVER_URLS_KEY = StoredConfigKey.forSetting( PwmSetting.LDAP_SERVER_URLS, "default", DomainID.DOMAIN_ID_DEFAULT );
+    private static final StoredConfigKey PROXY_USER_KEY = StoredConfigKey.forSetting( PwmSetting.LDAP_PROXY_USER_DN, "default", DomainID.DOMAIN_ID_DEFAULT );
+
+    private static StoredConfiguration makeConfig() throws Exception
+    {
+        final StoredConfigurationModifier modifier = StoredConfigurationFactory.newModifiableConfig();
+        modifier.writeSetting( SERVER_URLS_KEY, new StringArrayValue( List.of( "ldaps://alphahost.example.com:636" ) ), null );
+        modifier.writeSetting( PROXY_USER_KEY, new StringValue( "cn=proxy,ou=services,o=example" ), null );
+        return modifier.newStoredConfiguration();
+    }
+
+    private static Set<StoredConfigKey> search( final StoredConfiguration storedConfiguration, final String searchTerm )
+    {
+        return new ConfigSearchMachine( storedConfiguration, Locale.ENGLISH ).search( searchTerm, Collections.emptySet() );
+    }
+
+    @Test
+    public void testValueSearch() throws Exception
+    {
+        final StoredConfiguration storedConfiguration = makeConfig();
+        Assert.assertTrue( search( storedConfiguration, "alphahost.example.com" ).contains( SERVER_URLS_KEY ) );
+        Assert.assertTrue( search( storedConfiguration, "alpha" ).contains( SERVER_URLS_KEY ) );
+        Assert.assertTrue( search( storedConfiguration, "alphahst" ).contains( SERVER_URLS_KEY ) );
+        Assert.assertFalse( search( storedConfiguration, "636" ).contains( PROXY_USER_KEY ) );
+        Assert.assertTrue( search( storedConfiguration, "zzqqxx" ).isEmpty() );
+        Assert.assertTrue( search( storedConfiguration, " " ).isEmpty() );
+    }
+
+    @Test
+    public void testKeySearchRanksFirst() throws Exception
+    {
+        final StoredConfiguration storedConfiguration = makeConfig();
+        final Set<StoredConfigKey> results = search( storedConfiguration, "ldap.proxy.username" );
+        Assert.assertEquals( PROXY_USER_KEY, results.iterator().next() );
+    }
+
+    @Test
+    public void testAllTermsMustMatch() throws Exception
+    {
+        final StoredConfiguration storedConfiguration = makeConfig();
+        Assert.assertTrue( search( storedConfiguration, "services proxy" ).contains( PROXY_USER_KEY ) );
+        Assert.assertFalse( search( storedConfiguration, "services 636" ).contains( PROXY_USER_KEY ) );
+    }
+
+    @Test
+    public void testIndexFollowsModifiedRevision() throws Exception
+    {
+        final StoredConfiguration storedConfiguration = makeConfig();
+        Assert.assertTrue( search( storedConfiguration, "alphahost" ).contains( SERVER_URLS_KEY ) );
+
+        final StoredConfigurationModifier modifier = StoredConfigurationModifier.newModifier( storedConfiguration );
+        modifier.writeSetting( SERVER_URLS_KEY, new StringArrayValue( List.of( "ldaps://bravohost.example.com:636" ) ), null );
+        final StoredConfiguration modifiedConfiguration = modifier.newStoredConfiguration();
+
+        Assert.assertFalse( search( modifiedConfiguration, "alphahost" ).contains( SERVER_URLS_KEY ) );
+        Assert.assertTrue( search( modifiedConfiguration, "bravohost" ).contains( SERVER_URLS_KEY ) );
+        Assert.assertTrue( search( storedConfiguration, "alphahost" ).contains( SERVER_URLS_KEY ) );
+
+        for ( final String searchTerm : List.of( "bravohost", "example", "proxy", "ldap server" ) )
+        {
+            Assert.assertEquals( searchTerm, search( modifiedConfiguration.copy(), searchTerm ), search( modifiedConfiguration, searchTerm ) );
+        }
+    }
+
+    @Test
+    public void testWithinOneEdit()
+    {
+        Assert.assertTrue( ConfigSearchIndex.withinOneEdit( "server", "server" ) );
+        Assert.assertTrue( ConfigSearchIndex.withinOneEdit( "server", "sever" ) );
+        Assert.assertTrue( ConfigSearchIndex.withinOneEdit( "server", "servar" ) );
+        Assert.assertTrue( ConfigSearchIndex.withinOneEdit( "server", "servers" ) );
+        Assert.assertFalse( ConfigSearchIndex.withinOneEdit( "server", "srevre" ) );
+        Assert.assertFalse( ConfigSearchIndex.withinOneEdit( "server", "serve12" ) );
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.config.stored;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.bean.DomainID;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.value.PasswordValue;
+import password.pwm.config.value.StoredValue;
+import password.pwm.config.value.StringValue;
+import password.pwm.i18n.PwmLocaleBundle;
+import password.pwm.util.PasswordData;
+import password.pwm.util.java.CollectionUtil;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class StoredConfigSnapshotTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static StoredConfiguration makeConfig() throws Exception
+    {
+        final StoredConfigurationModifier modifier = StoredConfigurationFactory.newModifiableConfig();
+        modifier.writeSetting(
+                StoredConfigKey.forSetting( PwmSetting.NOTES, null, DomainID.systemId() ),
+                new StringValue( "snapshot notes" ),
+                null );
+        modifier.writeSetting(
+                StoredConfigKey.forSetting( PwmSetting.LDAP_PROXY_USER_PASSWORD, "default", DomainID.DOMAIN_ID_DEFAULT ),
+                new PasswordValue( new PasswordData( "snapshot-secret" ) ),
+                null );
+        modifier.writeLocaleBundleMap( DomainID.DOMAIN_ID_DEFAULT, PwmLocaleBundle.DISPLAY, "Title_Application", Map.of( "", "Snapshot Title" ) );
+        return modifier.newStoredConfiguration();
+    }
+
+    private static void assertEquivalent( final StoredConfiguration expected, final StoredConfiguration actual )
+    {
+        final Set<StoredConfigKey> expectedKeys = CollectionUtil.iteratorToStream( expected.keys() ).collect( Collectors.toSet() );
+        final Set<StoredConfigKey> actualKeys = CollectionUtil.iteratorToStream( actual.keys() ).collect( Collectors.toSet() );
+        Assert.assertEquals( expectedKeys, actualKeys );
+
+        for ( final StoredConfigKey key : expectedKeys )
+        {
+            final StoredValue expectedValue = expected.readStoredValue( key ).orElseThrow();
+            final StoredValue actualValue = actual.readStoredValue( key ).orElseThrow();
+            Assert.assertEquals( key.toString(), expectedValue.valueHash(), actualValue.valueHash() );
+            Assert.assertEquals( key.toString(), expected.readMetaData( key ), actual.readMetaData( key ) );
+        }
+
+        Assert.assertEquals( expected.createTime(), actual.createTime() );
+        Assert.assertEquals( expected.modifyTime(), actual.modifyTime() );
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        final StoredConfiguration storedConfiguration = makeConfig();
+        final File snapshotFile = temporaryFolder.newFile( "config.snapshot" );
+
+        StoredConfigSnapshot.write( snapshotFile, "hash1", storedConfiguration );
+        final Optional<StoredConfiguration> snapshotConfig = StoredConfigSnapshot.read( snapshotFile, "hash1" );
+
+        Assert.assertTrue( snapshotConfig.isPresent() );
+        assertEquivalent( storedConfiguration, snapshotConfig.get() );
+
+        final PasswordValue passwordValue = ( PasswordValue ) snapshotConfig.get().readStoredValue(
+                StoredConfigKey.forSetting( PwmSetting.LDAP_PROXY_USER_PASSWORD, "default", DomainID.DOMAIN_ID_DEFAULT ) ).orElseThrow();
+        Assert.assertEquals( "snapshot-secret", ( ( PasswordData ) passwordValue.toNativeObject() ).getStringValue() );
+        Assert.assertFalse( new String( Files.readAllBytes( snapshotFile.toPath() ), StandardCharsets.UTF_8 ).contains( "snapshot-secret" ) );
+    }
+
+    @Test
+    public void testRoundTripParsedConfig() throws Exception
+    {
+        final StoredConfiguration storedConfiguration;
+        try ( InputStream xmlFile = ConfigurationCleanerTest.class.getResourceAsStream( "ConfigurationCleanerTest.xml" ) )
+        {
+            storedConfiguration = StoredConfigurationFactory.input( xmlFile );
+        }
+
+        final File snapshotFile = temporaryFolder.newFile( "config.snapshot" );
+        StoredConfigSnapshot.write( snapshotFile, "hash1", storedConfiguration );
+        assertEquivalent( storedConfiguration, StoredConfigSnapshot.read( snapshotFile, "hash1" ).orElseThrow() );
+    }
+
+    @Test
+    public void testMismatchedOrInvalidSnapshot() throws Exception
+    {
+        final File snapshotFile = temporaryFolder.newFile( "config.snapshot" );
+        StoredConfigSnapshot.write( snapshotFile, "hash1", makeConfig() );
+        Assert.assertFalse( StoredConfigSnapshot.read( snapshotFile, "hash2" ).isPresent() );
+
+        Files.write( snapshotFile.toPath(), "not a snapshot".getBytes( StandardCharsets.UTF_8 ) );
+        Assert.assertFalse( StoredConfigSnapshot.read( snapshotFile, "hash1" ).isPresent() );
+
+        Assert.assertFalse( StoredConfigSnapshot.read( new File( temporaryFolder.getRoot(), "missing.snapshot" ), "hash1" ).isPresent() );
+    }
+
+    @Test
+    public void testDamagedValueRejected() throws Exception
+    {
+        final File snapshotFile = temporaryFolder.newFile( "config.snapshot" );
+        StoredConfigSnapshot.write( snapshotFile, "hash1", makeConfig() );
+
+        // damage a value without changing its length, the snapshot is rejected when read rather than when the value is used
+        final byte[] snapshotBytes = Files.readAllBytes( snapshotFile.toPath() );
+        final String snapshotString = new String( snapshotBytes, StandardCharsets.ISO_8859_1 );
+        final int valueIndex = snapshotString.indexOf( "snapshot notes" );
+        Assert.assertTrue( valueIndex > 0 );
+        final int markupIndex = snapshotString.lastIndexOf( '<', valueIndex );
+        snapshotBytes[markupIndex] = ' ';
+        Files.write( snapshotFile.toPath(), snapshotBytes );
+
+        Assert.assertFalse( StoredConfigSnapshot.read( snapshotFile, "hash1" ).isPresent() );
+    }
+
+    @Test
+    public void testConfigurationReaderUsesSnapshot() throws Exception
+    {
+        final File configFile = temporaryFolder.newFile( "PwmConfiguration.xml" );
+        try ( OutputStream outputStream = Files.newOutputStream( configFile.toPath() ) )
+        {
+            StoredConfigurationFactory.output( makeConfig(), outputStream );
+        }
+
+        final ConfigurationReader parsedReader = new ConfigurationReader( configFile );
+        final File snapshotFile = StoredConfigSnapshot.snapshotFileFor( configFile );
+        Assert.assertNull( parsedReader.getConfigFileError() );
+        Assert.assertTrue( snapshotFile.exists() );
+
+        final ConfigurationReader snapshotReader = new ConfigurationReader( configFile );
+        Assert.assertNull( snapshotReader.getConfigFileError() );
+        Assert.assertEquals( parsedReader.getConfigMode(), snapshotReader.getConfigMode() );
+        assertEquivalent( parsedReader.getStoredConfiguration(), snapshotReader.getStoredConfiguration() );
+    }
+}
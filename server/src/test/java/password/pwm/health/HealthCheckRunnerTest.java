@@ -0,0 +1,168 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.health;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class HealthCheckRunnerTest
+{
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp()
+    {
+        executorService = Executors.newFixedThreadPool( 4 );
+    }
+
+    @After
+    public void tearDown()
+    {
+        executorService.shutdownNow();
+    }
+
+    private static HealthCheckJob job( final String name, final TimeDuration refreshInterval, final Supplier<List<HealthRecord>> supplier )
+    {
+        return new HealthCheckJob( name, DomainID.systemId(), refreshInterval, supplier );
+    }
+
+    private static Supplier<List<HealthRecord>> sleeping( final long sleepMs, final HealthMessage message, final AtomicInteger counter )
+    {
+        return () ->
+        {
+            counter.incrementAndGet();
+            TimeDuration.of( sleepMs, TimeDuration.Unit.MILLISECONDS ).pause();
+            return Collections.singletonList( HealthRecord.forMessage( DomainID.systemId(), message ) );
+        };
+    }
+
+    @Test
+    public void testChecksRunConcurrently() throws Exception
+    {
+        final HealthCheckRunner runner = new HealthCheckRunner( executorService, TimeDuration.SECONDS_10 );
+        final AtomicInteger counter = new AtomicInteger();
+
+        final long startTime = System.currentTimeMillis();
+        final List<HealthRecord> records = runner.run( List.of(
+                job( "a", TimeDuration.ZERO, sleeping( 400, HealthMessage.LDAP_OK, counter ) ),
+                job( "b", TimeDuration.ZERO, sleeping( 400, HealthMessage.Java_OK, counter ) ),
+                job( "c", TimeDuration.ZERO, sleeping( 400, HealthMessage.LocalDB_OK, counter ) ) ) );
+
+        Assert.assertEquals( 3, records.size() );
+        Assert.assertTrue( System.currentTimeMillis() - startTime < 1000 );
+        Assert.assertTrue( runner.debugStats().containsKey( "checkTime.a" ) );
+    }
+
+    @Test
+    public void testTimedOutCheckDoesNotBlock() throws Exception
+    {
+        final TimeDuration checkTimeout = TimeDuration.of( 200, TimeDuration.Unit.MILLISECONDS );
+        final HealthCheckRunner runner = new HealthCheckRunner( executorService, checkTimeout );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger hungExecutions = new AtomicInteger();
+        final AtomicInteger counter = new AtomicInteger();
+
+        final HealthCheckJob hungJob = job( "hung", TimeDuration.ZERO, () ->
+        {
+            hungExecutions.incrementAndGet();
+            try
+            {
+                release.await();
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonList( HealthRecord.forMessage( DomainID.systemId(), HealthMessage.LDAP_OK ) );
+        } );
+        final HealthCheckJob fastJob = job( "fast", TimeDuration.ZERO, sleeping( 0, HealthMessage.Java_OK, counter ) );
+
+        final long startTime = System.currentTimeMillis();
+        final List<HealthRecord> records = runner.run( List.of( hungJob, fastJob ) );
+        Assert.assertTrue( System.currentTimeMillis() - startTime < 2000 );
+        Assert.assertEquals( 2, records.size() );
+        Assert.assertTrue( records.contains( HealthRecord.forMessage(
+                DomainID.systemId(), HealthMessage.HealthCheck_Timeout, "hung", checkTimeout.asCompactString() ) ) );
+        Assert.assertTrue( records.contains( HealthRecord.forMessage( DomainID.systemId(), HealthMessage.Java_OK ) ) );
+
+        // a second cycle waits on the execution already in flight rather than starting another
+        runner.run( List.of( hungJob ) );
+        Assert.assertEquals( 1, hungExecutions.get() );
+
+        release.countDown();
+        TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ).pause();
+        final List<HealthRecord> lateRecords = runner.run( List.of( hungJob ) );
+        Assert.assertEquals( List.of( HealthRecord.forMessage( DomainID.systemId(), HealthMessage.LDAP_OK ) ), lateRecords );
+    }
+
+    @Test
+    public void testFailedCheckRunsAgain() throws Exception
+    {
+        final HealthCheckRunner runner = new HealthCheckRunner( executorService, TimeDuration.SECONDS_10 );
+        final AtomicInteger executions = new AtomicInteger();
+        final HealthCheckJob failingJob = job( "failing", TimeDuration.ZERO, () ->
+        {
+            executions.incrementAndGet();
+            throw new NoClassDefFoundError( "unavailable" );
+        } );
+
+        Assert.assertTrue( runner.run( List.of( failingJob ) ).isEmpty() );
+        Assert.assertTrue( runner.run( List.of( failingJob ) ).isEmpty() );
+
+        // an error thrown by the check does not leave it listed as running
+        Assert.assertEquals( 2, executions.get() );
+        Assert.assertFalse( runner.debugStats().containsKey( "running.failing" ) );
+    }
+
+    @Test
+    public void testCachedUntilRefreshInterval() throws Exception
+    {
+        final HealthCheckRunner runner = new HealthCheckRunner( executorService, TimeDuration.SECONDS_10 );
+        final AtomicInteger cachedCounter = new AtomicInteger();
+        final AtomicInteger uncachedCounter = new AtomicInteger();
+
+        final List<HealthCheckJob> jobs = List.of(
+                job( "cached", TimeDuration.HOUR, sleeping( 0, HealthMessage.LDAP_OK, cachedCounter ) ),
+                job( "uncached", TimeDuration.ZERO, sleeping( 0, HealthMessage.Java_OK, uncachedCounter ) ) );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            Assert.assertEquals( 2, runner.run( jobs ).size() );
+            TimeDuration.of( 5, TimeDuration.Unit.MILLISECONDS ).pause();
+        }
+
+        Assert.assertEquals( 1, cachedCounter.get() );
+        Assert.assertEquals( 3, uncachedCounter.get() );
+    }
+}
@@ -173,6 +173,23 @@ public class ControlledPwmServletTest
         }
     }
 
+    @Test
+    public void testActionHandlerRegistry() throws Exception
+    {
+        final Map<Class<? extends ControlledPwmServlet>, Map<String, Method>> dataMap = getClassAndMethods();
+
+        for ( final Class<? extends ControlledPwmServlet> controlledPwmServlet : dataMap.keySet() )
+        {
+            ControlledPwmServlet.initializeActionHandlers( controlledPwmServlet );
+            final ControlledPwmServlet servlet = controlledPwmServlet.getDeclaredConstructor().newInstance();
+            final ActionHandlerRegistry registry = ActionHandlerRegistry.forServlet( servlet );
+            for ( final Object processAction : servlet.getProcessActionsClass().getEnumConstants() )
+            {
+                Assert.assertTrue( registry.handlerFor( ( AbstractPwmServlet.ProcessAction ) processAction ).isPresent() );
+            }
+        }
+    }
+
     private Map<Class<? extends ControlledPwmServlet>, Map<String, Method>> getClassAndMethods()
     {
         final Reflections reflections = new Reflections( new ConfigurationBuilder()
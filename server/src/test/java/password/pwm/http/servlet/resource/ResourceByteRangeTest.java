@@ -0,0 +1,64 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.servlet.resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Optional;
+
+public class ResourceByteRangeTest
+{
+    @Test
+    public void testSatisfiableRanges()
+    {
+        Assert.assertEquals( Optional.of( new ResourceByteRange( 0, 99 ) ), ResourceByteRange.parse( "bytes=0-99", 1000 ) );
+        Assert.assertEquals( Optional.of( new ResourceByteRange( 900, 999 ) ), ResourceByteRange.parse( "bytes=900-", 1000 ) );
+        Assert.assertEquals( Optional.of( new ResourceByteRange( 950, 999 ) ), ResourceByteRange.parse( "bytes=-50", 1000 ) );
+        Assert.assertEquals( Optional.of( new ResourceByteRange( 0, 999 ) ), ResourceByteRange.parse( "bytes=-5000", 1000 ) );
+        Assert.assertEquals( Optional.of( new ResourceByteRange( 10, 999 ) ), ResourceByteRange.parse( "Bytes=10-20000", 1000 ) );
+
+        final ResourceByteRange range = ResourceByteRange.parse( "bytes=10-19", 1000 ).orElseThrow();
+        Assert.assertEquals( 10, range.length() );
+        Assert.assertEquals( "bytes 10-19/1000", range.contentRangeHeader( 1000 ) );
+    }
+
+    @Test
+    public void testUnsatisfiableRanges()
+    {
+        Assert.assertEquals( Optional.of( ResourceByteRange.UNSATISFIABLE ), ResourceByteRange.parse( "bytes=1000-", 1000 ) );
+        Assert.assertEquals( Optional.of( ResourceByteRange.UNSATISFIABLE ), ResourceByteRange.parse( "bytes=-0", 1000 ) );
+        Assert.assertFalse( ResourceByteRange.UNSATISFIABLE.isSatisfiable() );
+        Assert.assertEquals( "bytes */1000", ResourceByteRange.UNSATISFIABLE.contentRangeHeader( 1000 ) );
+    }
+
+    @Test
+    public void testIgnoredRanges()
+    {
+        Assert.assertFalse( ResourceByteRange.parse( null, 1000 ).isPresent() );
+        Assert.assertFalse( ResourceByteRange.parse( "items=0-10", 1000 ).isPresent() );
+        Assert.assertFalse( ResourceByteRange.parse( "bytes=0-10,20-30", 1000 ).isPresent() );
+        Assert.assertFalse( ResourceByteRange.parse( "bytes=20-10", 1000 ).isPresent() );
+        Assert.assertFalse( ResourceByteRange.parse( "bytes=a-b", 1000 ).isPresent() );
+        Assert.assertFalse( ResourceByteRange.parse( "bytes=-", 1000 ).isPresent() );
+    }
+}
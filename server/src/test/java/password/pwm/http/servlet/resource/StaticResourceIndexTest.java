@@ -0,0 +1,205 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.servlet.resource;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.PwmApplication;
+import password.pwm.PwmConstants;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+public class StaticResourceIndexTest
+{
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
+    private ResourceServletConfiguration configuration;
+    private File resourceDirectory;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( testFolder.newFolder() );
+        configuration = ResourceServletConfiguration.fromConfig( SessionLabel.TEST_SESSION_LABEL, pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT ) );
+        resourceDirectory = testFolder.newFolder( "resources" );
+    }
+
+    private void writeFile( final String path, final String contents ) throws Exception
+    {
+        FileUtils.writeByteArrayToFile( new File( resourceDirectory, path ), contents.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+    }
+
+    private StaticResourceIndex buildIndex()
+    {
+        return StaticResourceIndex.build( SessionLabel.TEST_SESSION_LABEL, configuration, resourceDirectory );
+    }
+
+    private static String repeat( final String value, final int count )
+    {
+        return value.repeat( count );
+    }
+
+    @Test
+    public void testIndexAndPrecompress() throws Exception
+    {
+        final String css = repeat( "body { color: black; }\n", 500 );
+        writeFile( "themes/test/style.css", css );
+
+        final byte[] randomBytes = new byte[4096];
+        new SecureRandom().nextBytes( randomBytes );
+        FileUtils.writeByteArrayToFile( new File( resourceDirectory, "images/noise.png" ), randomBytes );
+
+        writeFile( "large.txt", repeat( "x", ( int ) configuration.getMaxCacheBytes() + 1 ) );
+
+        final StaticResourceIndex index = buildIndex();
+
+        final StaticResource cssResource = index.lookup( ResourceFileServlet.RESOURCE_PATH + "/themes/test/style.css" ).orElseThrow();
+        Assert.assertTrue( cssResource.hasEncoding( StaticResource.Encoding.gzip ) );
+        Assert.assertTrue( cssResource.length( StaticResource.Encoding.gzip ) < cssResource.length( StaticResource.Encoding.identity ) );
+
+        final ByteArrayOutputStream gzipOutput = new ByteArrayOutputStream();
+        cssResource.writeTo( gzipOutput, StaticResource.Encoding.gzip );
+        try ( InputStream inputStream = new GZIPInputStream( new ByteArrayInputStream( gzipOutput.toByteArray() ) ) )
+        {
+            Assert.assertEquals( css, new String( inputStream.readAllBytes(), PwmConstants.DEFAULT_CHARSET ) );
+        }
+
+        final StaticResource pngResource = index.lookup( ResourceFileServlet.RESOURCE_PATH + "/images/noise.png" ).orElseThrow();
+        Assert.assertFalse( pngResource.hasEncoding( StaticResource.Encoding.gzip ) );
+
+        Assert.assertFalse( index.lookup( ResourceFileServlet.RESOURCE_PATH + "/large.txt" ).isPresent() );
+        Assert.assertFalse( index.lookup( ResourceFileServlet.RESOURCE_PATH + "/../large.txt" ).isPresent() );
+    }
+
+    @Test
+    public void testIdenticalSourcesShareIndex() throws Exception
+    {
+        writeFile( "a.css", repeat( "a { }\n", 100 ) );
+
+        final PwmApplication otherApplication = TestHelper.makeTestPwmApplication( testFolder.newFolder() );
+        final ResourceServletConfiguration otherConfiguration = ResourceServletConfiguration.fromConfig(
+                SessionLabel.TEST_SESSION_LABEL, otherApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT ) );
+
+        final StaticResourceIndex firstIndex = buildIndex();
+        final StaticResourceIndex secondIndex = StaticResourceIndex.build( SessionLabel.TEST_SESSION_LABEL, otherConfiguration, resourceDirectory );
+        Assert.assertSame( firstIndex, secondIndex );
+
+        writeFile( "b.css", "b { }" );
+        final StaticResourceIndex changedIndex = buildIndex();
+        Assert.assertNotSame( firstIndex, changedIndex );
+        Assert.assertTrue( changedIndex.lookup( ResourceFileServlet.RESOURCE_PATH + "/b.css" ).isPresent() );
+    }
+
+    @Test
+    public void testBuildTimeSibling() throws Exception
+    {
+        writeFile( "js/app.js", repeat( "var a = 1;\n", 200 ) );
+        writeFile( "js/app.js.br", "not really brotli, but smaller" );
+
+        final StaticResourceIndex index = buildIndex();
+        final StaticResource jsResource = index.lookup( ResourceFileServlet.RESOURCE_PATH + "/js/app.js" ).orElseThrow();
+        Assert.assertTrue( jsResource.hasEncoding( StaticResource.Encoding.br ) );
+        Assert.assertTrue( jsResource.hasEncoding( StaticResource.Encoding.gzip ) );
+        Assert.assertFalse( index.lookup( ResourceFileServlet.RESOURCE_PATH + "/js/app.js.br" ).isPresent() );
+    }
+
+    @Test
+    public void testContentHashes() throws Exception
+    {
+        writeFile( "a.css", "a { }" );
+        writeFile( "b.css", "b { }" );
+
+        final StaticResourceIndex firstIndex = buildIndex();
+        final StaticResource firstA = firstIndex.lookup( ResourceFileServlet.RESOURCE_PATH + "/a.css" ).orElseThrow();
+        final StaticResource firstB = firstIndex.lookup( ResourceFileServlet.RESOURCE_PATH + "/b.css" ).orElseThrow();
+        Assert.assertEquals( configuration.getNonceLength(), firstA.getContentHash().length() );
+
+        writeFile( "b.css", "b { color: red; }" );
+        final StaticResourceIndex secondIndex = buildIndex();
+        final StaticResource secondA = secondIndex.lookup( ResourceFileServlet.RESOURCE_PATH + "/a.css" ).orElseThrow();
+        final StaticResource secondB = secondIndex.lookup( ResourceFileServlet.RESOURCE_PATH + "/b.css" ).orElseThrow();
+
+        // changing one file only changes that file's hash, and the aggregate nonce
+        Assert.assertEquals( firstA.getContentHash(), secondA.getContentHash() );
+        Assert.assertNotEquals( firstB.getContentHash(), secondB.getContentHash() );
+        Assert.assertNotEquals( firstIndex.getAggregateHash(), secondIndex.getAggregateHash() );
+    }
+
+    @Test
+    public void testResourceDirectoryOverridesWebJar() throws Exception
+    {
+        final List<String> webJarAssets = List.of(
+                ResourceFileServlet.WEBJAR_BASE_FILE_PATH + "/testjar/1.0/test.css",
+                ResourceFileServlet.WEBJAR_BASE_FILE_PATH + "/testjar/0.9/old.css" );
+        final Map<String, String> webJarVersions = Map.of( "testjar", "1.0" );
+
+        // same precedence as when resolving a request: a file at the web jar uri replaces the web jar asset
+        writeFile( "webjars/testjar/test.css", "override" );
+        final StaticResourceIndex index = StaticResourceIndex.build( SessionLabel.TEST_SESSION_LABEL, configuration, resourceDirectory, webJarAssets, webJarVersions );
+
+        final StaticResource resource = index.lookup( ResourceFileServlet.WEBJAR_BASE_URL_PATH + "testjar/test.css" ).orElseThrow();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        resource.writeTo( output, StaticResource.Encoding.identity );
+        Assert.assertEquals( "override", new String( output.toByteArray(), PwmConstants.DEFAULT_CHARSET ) );
+        Assert.assertFalse( index.lookup( ResourceFileServlet.WEBJAR_BASE_URL_PATH + "testjar/old.css" ).isPresent() );
+    }
+
+    @Test
+    public void testEmbedThemeNotIndexed() throws Exception
+    {
+        writeFile( "themes/embed/style.css", "a { }" );
+        writeFile( "themes/other/style.css", "a { }" );
+
+        final StaticResourceIndex index = buildIndex();
+        Assert.assertFalse( index.lookup( ResourceFileServlet.RESOURCE_PATH + "/themes/embed/style.css" ).isPresent() );
+        Assert.assertTrue( index.lookup( ResourceFileServlet.RESOURCE_PATH + "/themes/other/style.css" ).isPresent() );
+    }
+
+    @Test
+    public void testETagMatching() throws Exception
+    {
+        writeFile( "a.css", repeat( "a { }\n", 100 ) );
+        final StaticResource resource = buildIndex().lookup( ResourceFileServlet.RESOURCE_PATH + "/a.css" ).orElseThrow();
+
+        Assert.assertTrue( resource.matchesETag( resource.eTag( StaticResource.Encoding.identity ) ) );
+        Assert.assertTrue( resource.matchesETag( "\"other\", W/" + resource.eTag( StaticResource.Encoding.gzip ) ) );
+        Assert.assertTrue( resource.matchesETag( "*" ) );
+        Assert.assertFalse( resource.matchesETag( "\"other\"" ) );
+        Assert.assertFalse( resource.matchesETag( null ) );
+        Assert.assertNotEquals( resource.eTag( StaticResource.Encoding.identity ), resource.eTag( StaticResource.Encoding.gzip ) );
+    }
+}
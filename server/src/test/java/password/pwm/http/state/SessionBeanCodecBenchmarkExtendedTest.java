@@ -0,0 +1,128 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.state;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.http.bean.NewUserBean;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.secure.PwmBlockAlgorithm;
+import password.pwm.util.secure.PwmSecurityKey;
+import password.pwm.util.secure.SecureEngine;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microseconds per session bean cookie operation, comparing the legacy encrypted json value with the versioned
+ * encoding, and the fingerprint check that lets an unchanged bean skip encryption entirely.
+ */
+@State( Scope.Benchmark )
+public class SessionBeanCodecBenchmarkExtendedTest
+{
+    private static final PwmBlockAlgorithm BLOCK_ALGORITHM = PwmBlockAlgorithm.AES128_GCM;
+    private static final int COMPRESSION_THRESHOLD = 128;
+
+    private PwmSecurityKey securityKey;
+    private NewUserBean bean;
+    private byte[] fingerprint;
+    private String legacyValue;
+    private byte[] encodedValue;
+
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.AverageTime )
+                .timeUnit( TimeUnit.MICROSECONDS )
+                .warmupTime( TimeValue.seconds( 10 ) )
+                .measurementIterations( 10 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup( Level.Trial )
+    public void setup()
+            throws Exception
+    {
+        securityKey = new PwmSecurityKey( "benchmark-session-key-0123456789abcdef" );
+        bean = SessionBeanCodecTest.makeBean();
+        final byte[] jsonBytes = SessionBeanCodec.toJsonBytes( bean );
+        fingerprint = SessionBeanCodec.fingerprint( jsonBytes );
+        legacyValue = SecureEngine.encryptToString( JsonUtil.serialize( bean ), securityKey, BLOCK_ALGORITHM, SecureEngine.Flag.URL_SAFE );
+        encodedValue = SecureEngine.encryptToBytes( SessionBeanCodec.encode( jsonBytes, COMPRESSION_THRESHOLD ), securityKey, BLOCK_ALGORITHM );
+    }
+
+    @Benchmark
+    public String encodeLegacy()
+            throws Exception
+    {
+        return SecureEngine.encryptToString( JsonUtil.serialize( bean ), securityKey, BLOCK_ALGORITHM, SecureEngine.Flag.URL_SAFE );
+    }
+
+    @Benchmark
+    public byte[] encodeVersioned()
+            throws Exception
+    {
+        final byte[] encoded = SessionBeanCodec.encode( SessionBeanCodec.toJsonBytes( bean ), COMPRESSION_THRESHOLD );
+        return SecureEngine.encryptToBytes( encoded, securityKey, BLOCK_ALGORITHM );
+    }
+
+    @Benchmark
+    public boolean encodeUnchanged()
+    {
+        return Arrays.equals( fingerprint, SessionBeanCodec.fingerprint( SessionBeanCodec.toJsonBytes( bean ) ) );
+    }
+
+    @Benchmark
+    public NewUserBean decodeLegacy()
+            throws Exception
+    {
+        final String json = SecureEngine.decryptStringValue( legacyValue, securityKey, BLOCK_ALGORITHM, SecureEngine.Flag.URL_SAFE );
+        return JsonUtil.deserialize( json, NewUserBean.class );
+    }
+
+    @Benchmark
+    public NewUserBean decodeVersioned()
+            throws Exception
+    {
+        final byte[] decrypted = SecureEngine.decryptToBytes( encodedValue, securityKey, BLOCK_ALGORITHM );
+        return SessionBeanCodec.fromJsonBytes( SessionBeanCodec.decodeToJsonBytes( decrypted ), NewUserBean.class );
+    }
+}
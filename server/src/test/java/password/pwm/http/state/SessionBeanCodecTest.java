@@ -0,0 +1,96 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.http.state;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.http.bean.NewUserBean;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+public class SessionBeanCodecTest
+{
+    static NewUserBean makeBean()
+    {
+        final NewUserBean bean = new NewUserBean();
+        bean.setGuid( "7f3c2a1e-93b4-4d0b-8e55-0c6a3b1d2f90" );
+        bean.setTimestamp( Instant.ofEpochSecond( 1609459200L ) );
+        bean.setProfileID( "default" );
+        bean.setAgreementPassed( true );
+        bean.setCurrentTokenField( "mail" );
+        bean.getCompletedTokenFields().add( "mobile" );
+        bean.setRemoteInputData( Map.of( "givenName", "Alice", "sn", "Example", "mail", "alice@example.com" ) );
+        return bean;
+    }
+
+    @Test
+    public void testRoundTripUncompressed() throws Exception
+    {
+        final NewUserBean bean = makeBean();
+        final byte[] jsonBytes = SessionBeanCodec.toJsonBytes( bean );
+        final byte[] encoded = SessionBeanCodec.encode( jsonBytes, -1 );
+        Assert.assertEquals( jsonBytes.length + 2, encoded.length );
+
+        final byte[] decoded = SessionBeanCodec.decodeToJsonBytes( encoded );
+        Assert.assertArrayEquals( jsonBytes, decoded );
+        Assert.assertArrayEquals( jsonBytes, SessionBeanCodec.toJsonBytes( SessionBeanCodec.fromJsonBytes( decoded, NewUserBean.class ) ) );
+    }
+
+    @Test
+    public void testRoundTripCompressed() throws Exception
+    {
+        final NewUserBean bean = makeBean();
+        final byte[] jsonBytes = SessionBeanCodec.toJsonBytes( bean );
+        final byte[] encoded = SessionBeanCodec.encode( jsonBytes, 0 );
+        Assert.assertTrue( encoded.length < jsonBytes.length );
+
+        final byte[] decoded = SessionBeanCodec.decodeToJsonBytes( encoded );
+        Assert.assertArrayEquals( jsonBytes, decoded );
+        Assert.assertArrayEquals( jsonBytes, SessionBeanCodec.toJsonBytes( SessionBeanCodec.fromJsonBytes( decoded, NewUserBean.class ) ) );
+    }
+
+    @Test
+    public void testFingerprintTracksChanges() throws Exception
+    {
+        final NewUserBean bean = makeBean();
+        final byte[] jsonBytes = SessionBeanCodec.toJsonBytes( bean );
+        final byte[] fingerprint = SessionBeanCodec.fingerprint( jsonBytes );
+
+        final NewUserBean decodedBean = SessionBeanCodec.fromJsonBytes(
+                SessionBeanCodec.decodeToJsonBytes( SessionBeanCodec.encode( jsonBytes, 0 ) ), NewUserBean.class );
+        Assert.assertArrayEquals( fingerprint, SessionBeanCodec.fingerprint( SessionBeanCodec.toJsonBytes( decodedBean ) ) );
+
+        decodedBean.setFormPassed( true );
+        Assert.assertFalse( Arrays.equals( fingerprint, SessionBeanCodec.fingerprint( SessionBeanCodec.toJsonBytes( decodedBean ) ) ) );
+    }
+
+    @Test
+    public void testDecodeInvalid()
+    {
+        Assert.assertThrows( PwmUnrecoverableException.class, () -> SessionBeanCodec.decodeToJsonBytes( new byte[] {1} ) );
+        Assert.assertThrows( PwmUnrecoverableException.class, () -> SessionBeanCodec.decodeToJsonBytes( new byte[] {9, 0, 1} ) );
+        Assert.assertThrows( PwmUnrecoverableException.class, () -> SessionBeanCodec.decodeToJsonBytes( new byte[] {1, 1, 1, 2, 3} ) );
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DatabaseAccessorImplTest
+{
+    private static DatabaseAccessorImpl makeAccessor( final InMemoryJdbcDatabase database, final String... appPropertyOverrides )
+            throws Exception
+    {
+        final DBConfiguration dbConfiguration = DatabaseTestUtil.makeConfiguration( appPropertyOverrides );
+        return new DatabaseAccessorImpl( new DatabaseService(), dbConfiguration, new DatabaseConnectionPool( dbConfiguration, database ), false );
+    }
+
+    private static Map<String, String> makeValues( final int count )
+    {
+        final Map<String, String> values = new LinkedHashMap<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            values.put( "key" + i, "value" + i );
+        }
+        return values;
+    }
+
+    @Test
+    public void testBatchOperations() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseAccessorImpl accessor = makeAccessor( database, "db.batch.maxSize=16" );
+
+        final Map<String, String> values = makeValues( 50 );
+        accessor.putAll( DatabaseTable.TOKENS, values );
+        Assert.assertEquals( values, database.committedValues() );
+        Assert.assertEquals( 50, accessor.size( DatabaseTable.TOKENS ) );
+
+        // a second putAll updates existing keys and inserts new ones in the same transaction
+        final Map<String, String> moreValues = new LinkedHashMap<>();
+        moreValues.put( "key0", "updated" );
+        moreValues.put( "key50", "value50" );
+        accessor.putAll( DatabaseTable.TOKENS, moreValues );
+        Assert.assertEquals( "updated", accessor.get( DatabaseTable.TOKENS, "key0" ).orElseThrow() );
+
+        final List<String> keys = new ArrayList<>( values.keySet() );
+        keys.add( "missing" );
+        final Map<String, String> readValues = accessor.getAll( DatabaseTable.TOKENS, keys );
+        Assert.assertEquals( 50, readValues.size() );
+        Assert.assertFalse( readValues.containsKey( "missing" ) );
+
+        Assert.assertEquals( 50, accessor.removeAll( DatabaseTable.TOKENS, keys ) );
+        Assert.assertEquals( 1, accessor.size( DatabaseTable.TOKENS ) );
+        Assert.assertEquals( 0, accessor.removeAll( DatabaseTable.TOKENS, List.of( "key0", "missing" ) ) );
+    }
+
+    @Test
+    public void testInListStatementsUseFixedSizes() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseAccessorImpl accessor = makeAccessor( database, "db.batch.maxSize=100" );
+        accessor.putAll( DatabaseTable.TOKENS, makeValues( 100 ) );
+
+        final List<String> keys = new ArrayList<>( makeValues( 100 ).keySet() );
+        for ( int size = 1; size <= keys.size(); size++ )
+        {
+            Assert.assertEquals( size, accessor.getAll( DatabaseTable.TOKENS, keys.subList( 0, size ) ).size() );
+        }
+
+        final long inListStatements = database.preparedSql().stream().filter( sql -> sql.contains( " IN (" ) ).count();
+        Assert.assertEquals( 5, inListStatements );
+
+        Assert.assertEquals( 1, DatabaseAccessorImpl.paddedInListSize( 1, 100 ) );
+        Assert.assertEquals( 4, DatabaseAccessorImpl.paddedInListSize( 2, 100 ) );
+        Assert.assertEquals( 16, DatabaseAccessorImpl.paddedInListSize( 5, 100 ) );
+        Assert.assertEquals( 64, DatabaseAccessorImpl.paddedInListSize( 17, 100 ) );
+        Assert.assertEquals( 100, DatabaseAccessorImpl.paddedInListSize( 65, 100 ) );
+    }
+
+    @Test
+    public void testUncheckedFailureRollsBack() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseAccessorImpl accessor = makeAccessor( database, "db.batch.maxSize=4" );
+
+        database.failUpdateAfter( 5, new IllegalStateException( "driver failure" ) );
+        try
+        {
+            accessor.putAll( DatabaseTable.TOKENS, makeValues( 10 ) );
+            Assert.fail( "unchecked driver failure should propagate" );
+        }
+        catch ( final IllegalStateException e )
+        {
+            Assert.assertEquals( "driver failure", e.getMessage() );
+        }
+
+        Assert.assertEquals( 1, database.rollbacks() );
+        Assert.assertTrue( database.committedValues().isEmpty() );
+
+        // the connection is usable again and the earlier writes are not visible
+        accessor.put( DatabaseTable.TOKENS, "key0", "value0" );
+        Assert.assertEquals( 1, accessor.size( DatabaseTable.TOKENS ) );
+    }
+
+    @Test
+    public void testIteratorPages() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseAccessorImpl accessor = makeAccessor( database, "db.iterator.pageSize=7" );
+        accessor.putAll( DatabaseTable.TOKENS, makeValues( 30 ) );
+
+        final List<String> iteratedKeys = new ArrayList<>();
+        try ( var iterator = accessor.iterator( DatabaseTable.TOKENS ) )
+        {
+            while ( iterator.hasNext() )
+            {
+                final String key = iterator.next().getKey();
+                iteratedKeys.add( key );
+
+                // removals while iterating do not disturb the following pages
+                accessor.remove( DatabaseTable.TOKENS, key );
+            }
+        }
+
+        Assert.assertEquals( new ArrayList<>( database.committedValues().keySet() ), List.of() );
+        Assert.assertEquals( 30, iteratedKeys.size() );
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+
+public class DatabaseConnectionPoolTest
+{
+    @Test
+    public void testIdleConnectionIsReused() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool( DatabaseTestUtil.makeConfiguration(), database );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            pool.release( pool.lease(), false );
+        }
+
+        Assert.assertEquals( 1, database.openedConnections() );
+        Assert.assertEquals( "5", pool.debugStats().get( "pool_leases" ) );
+        pool.close();
+    }
+
+    @Test
+    public void testLeaseTimesOutWhenExhausted() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool(
+                DatabaseTestUtil.makeConfiguration( "db.connections.max=2", "db.connections.timeoutMs=100" ), database );
+
+        final DatabaseConnectionPool.PooledConnection first = pool.lease();
+        final DatabaseConnectionPool.PooledConnection second = pool.lease();
+        Assert.assertNotSame( first, second );
+
+        try
+        {
+            pool.lease();
+            Assert.fail( "lease beyond the maximum connections should time out" );
+        }
+        catch ( final DatabaseException e )
+        {
+            Assert.assertEquals( "1", pool.debugStats().get( "pool_leaseTimeouts" ) );
+        }
+
+        pool.release( first, false );
+        pool.release( pool.lease(), false );
+        pool.release( second, false );
+        Assert.assertEquals( 2, database.openedConnections() );
+        pool.close();
+    }
+
+    @Test
+    public void testSuspectConnectionIsValidatedBeforeReuse() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool( DatabaseTestUtil.makeConfiguration(), database );
+
+        final DatabaseConnectionPool.PooledConnection connection = pool.lease();
+        database.invalidateOpenConnections();
+        pool.release( connection, true );
+
+        final DatabaseConnectionPool.PooledConnection replacement = pool.lease();
+        Assert.assertNotSame( connection, replacement );
+        Assert.assertEquals( 2, database.openedConnections() );
+        Assert.assertEquals( "1", pool.debugStats().get( "pool_validationFailures" ) );
+        pool.release( replacement, false );
+        pool.close();
+    }
+
+    @Test
+    public void testStatementCacheEvictsLeastRecentlyUsed() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool( DatabaseTestUtil.makeConfiguration( "db.connections.statementCacheSize=2" ), database );
+
+        final DatabaseConnectionPool.PooledConnection connection = pool.lease();
+        final PreparedStatement statementA = connection.prepareStatement( "SELECT A" );
+        Assert.assertSame( statementA, connection.prepareStatement( "SELECT A" ) );
+        connection.prepareStatement( "SELECT B" );
+        connection.prepareStatement( "SELECT C" );
+
+        Assert.assertTrue( statementA.isClosed() );
+        Assert.assertNotSame( statementA, connection.prepareStatement( "SELECT A" ) );
+        Assert.assertEquals( "1", pool.debugStats().get( "pool_statementCacheHits" ) );
+        pool.release( connection, false );
+        pool.close();
+    }
+
+    @Test
+    public void testDisabledStatementCacheClosesOnRelease() throws Exception
+    {
+        final InMemoryJdbcDatabase database = new InMemoryJdbcDatabase();
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool( DatabaseTestUtil.makeConfiguration( "db.connections.statementCacheSize=0" ), database );
+
+        final DatabaseConnectionPool.PooledConnection connection = pool.lease();
+        final PreparedStatement statementA = connection.prepareStatement( "SELECT A" );
+        final PreparedStatement statementB = connection.prepareStatement( "SELECT A" );
+
+        // statements stay open and usable until the connection is released
+        Assert.assertNotSame( statementA, statementB );
+        Assert.assertFalse( statementA.isClosed() );
+        Assert.assertFalse( statementB.isClosed() );
+        Assert.assertEquals( "0", pool.debugStats().get( "pool_statementCacheHits" ) );
+
+        pool.release( connection, false );
+        Assert.assertTrue( statementA.isClosed() );
+        Assert.assertTrue( statementB.isClosed() );
+        pool.close();
+    }
+}
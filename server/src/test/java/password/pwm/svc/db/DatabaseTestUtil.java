@@ -0,0 +1,52 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import password.pwm.bean.DomainID;
+import password.pwm.config.AppConfig;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.stored.StoredConfigKey;
+import password.pwm.config.stored.StoredConfigurationFactory;
+import password.pwm.config.stored.StoredConfigurationModifier;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.error.PwmUnrecoverableException;
+
+import java.util.Arrays;
+
+final class DatabaseTestUtil
+{
+    private DatabaseTestUtil()
+    {
+    }
+
+    /**
+     * Database configuration read from the default application properties with the given "key=value" overrides.
+     */
+    static DBConfiguration makeConfiguration( final String... appPropertyOverrides )
+            throws PwmUnrecoverableException
+    {
+        final StoredConfigurationModifier modifier = StoredConfigurationModifier.newModifier( StoredConfigurationFactory.newConfig() );
+        modifier.writeSetting(
+                StoredConfigKey.forSetting( PwmSetting.APP_PROPERTY_OVERRIDES, null, DomainID.systemId() ),
+                new StringArrayValue( Arrays.asList( appPropertyOverrides ) ), null );
+        return DBConfiguration.fromConfiguration( new AppConfig( modifier.newStoredConfiguration() ) );
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for a JDBC database holding a single key/value table.  It understands only the statements issued by
+ * {@link DatabaseAccessorImpl}, buffers each connection's writes until commit and records the statement texts prepared.
+ */
+class InMemoryJdbcDatabase implements DatabaseConnectionPool.ConnectionFactory
+{
+    private static final Object REMOVED = new Object();
+
+    private final NavigableMap<String, String> committed = new ConcurrentSkipListMap<>();
+    private final Set<String> preparedSql = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openedConnections = new AtomicInteger();
+    private final AtomicInteger rollbacks = new AtomicInteger();
+
+    private final List<ConnectionHandler> connections = new CopyOnWriteArrayList<>();
+    private volatile RuntimeException updateFailure;
+    private final AtomicInteger updatesBeforeFailure = new AtomicInteger();
+
+    @Override
+    public Connection openConnection( )
+    {
+        openedConnections.incrementAndGet();
+        final ConnectionHandler handler = new ConnectionHandler();
+        connections.add( handler );
+        return ( Connection ) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] {Connection.class}, handler );
+    }
+
+    Map<String, String> committedValues( )
+    {
+        return new TreeMap<>( committed );
+    }
+
+    Set<String> preparedSql( )
+    {
+        return preparedSql;
+    }
+
+    int openedConnections( )
+    {
+        return openedConnections.get();
+    }
+
+    int rollbacks( )
+    {
+        return rollbacks.get();
+    }
+
+    /**
+     * Connections opened so far fail validation from now on, as if the server had dropped them.
+     */
+    void invalidateOpenConnections( )
+    {
+        connections.forEach( handler -> handler.invalid = true );
+    }
+
+    /**
+     * After the given number of further inserts, updates or deletes, the next one throws the exception instead of executing.
+     */
+    void failUpdateAfter( final int successfulUpdates, final RuntimeException exception )
+    {
+        updatesBeforeFailure.set( successfulUpdates );
+        this.updateFailure = exception;
+    }
+
+    private class ConnectionHandler implements InvocationHandler
+    {
+        private final Map<String, Object> pending = new LinkedHashMap<>();
+        private volatile boolean invalid;
+        private boolean closed;
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args ) throws SQLException
+        {
+            switch ( method.getName() )
+            {
+                case "prepareStatement":
+                    preparedSql.add( ( String ) args[0] );
+                    return Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class},
+                            new StatementHandler( this, ( String ) args[0] ) );
+
+                case "commit":
+                    for ( final Map.Entry<String, Object> entry : pending.entrySet() )
+                    {
+                        if ( entry.getValue() == REMOVED )
+                        {
+                            committed.remove( entry.getKey() );
+                        }
+                        else
+                        {
+                            committed.put( entry.getKey(), ( String ) entry.getValue() );
+                        }
+                    }
+                    pending.clear();
+                    return null;
+
+                case "rollback":
+                    rollbacks.incrementAndGet();
+                    pending.clear();
+                    return null;
+
+                case "isValid":
+                    return !invalid && !closed;
+
+                case "isClosed":
+                    return closed;
+
+                case "close":
+                    closed = true;
+                    return null;
+
+                case "hashCode":
+                    return System.identityHashCode( proxy );
+
+                case "equals":
+                    return proxy == args[0];
+
+                default:
+                    return null;
+            }
+        }
+
+        private String read( final String key )
+        {
+            final Object value = pending.containsKey( key ) ? pending.get( key ) : committed.get( key );
+            return value == REMOVED ? null : ( String ) value;
+        }
+
+        private NavigableMap<String, String> view( )
+        {
+            final NavigableMap<String, String> view = new TreeMap<>( committed );
+            for ( final Map.Entry<String, Object> entry : pending.entrySet() )
+            {
+                if ( entry.getValue() == REMOVED )
+                {
+                    view.remove( entry.getKey() );
+                }
+                else
+                {
+                    view.put( entry.getKey(), ( String ) entry.getValue() );
+                }
+            }
+            return view;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler
+    {
+        private final ConnectionHandler connection;
+        private final String sql;
+        private final Map<Integer, String> params = new HashMap<>();
+        private final List<Map<Integer, String>> batch = new ArrayList<>();
+        private int maxRows;
+        private boolean closed;
+
+        StatementHandler( final ConnectionHandler connection, final String sql )
+        {
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args ) throws SQLException
+        {
+            switch ( method.getName() )
+            {
+                case "setString":
+                    params.put( ( Integer ) args[0], ( String ) args[1] );
+                    return null;
+
+                case "setMaxRows":
+                    maxRows = ( Integer ) args[0];
+                    return null;
+
+                case "clearParameters":
+                    params.clear();
+                    return null;
+
+                case "addBatch":
+                    batch.add( new HashMap<>( params ) );
+                    return null;
+
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+
+                case "executeBatch":
+                    final int[] results = new int[ batch.size() ];
+                    for ( int i = 0; i < batch.size(); i++ )
+                    {
+                        results[i] = executeUpdate( batch.get( i ) );
+                    }
+                    batch.clear();
+                    return results;
+
+                case "executeUpdate":
+                    return executeUpdate( params );
+
+                case "executeQuery":
+                    return executeQuery();
+
+                case "isClosed":
+                    return closed;
+
+                case "close":
+                    closed = true;
+                    return null;
+
+                case "hashCode":
+                    return System.identityHashCode( proxy );
+
+                case "equals":
+                    return proxy == args[0];
+
+                default:
+                    return null;
+            }
+        }
+
+        private int executeUpdate( final Map<Integer, String> values ) throws SQLException
+        {
+            final RuntimeException failure = updateFailure;
+            if ( failure != null && updatesBeforeFailure.getAndDecrement() <= 0 )
+            {
+                updateFailure = null;
+                throw failure;
+            }
+
+            if ( sql.startsWith( "INSERT" ) )
+            {
+                if ( connection.read( values.get( 1 ) ) != null )
+                {
+                    throw new SQLException( "duplicate key " + values.get( 1 ) );
+                }
+                connection.pending.put( values.get( 1 ), values.get( 2 ) );
+                return 1;
+            }
+
+            if ( sql.startsWith( "UPDATE" ) )
+            {
+                if ( connection.read( values.get( 2 ) ) == null )
+                {
+                    return 0;
+                }
+                connection.pending.put( values.get( 2 ), values.get( 1 ) );
+                return 1;
+            }
+
+            if ( sql.startsWith( "DELETE" ) )
+            {
+                if ( connection.read( values.get( 1 ) ) == null )
+                {
+                    return 0;
+                }
+                connection.pending.put( values.get( 1 ), REMOVED );
+                return 1;
+            }
+
+            throw new SQLException( "unsupported update statement: " + sql );
+        }
+
+        private ResultSet executeQuery( ) throws SQLException
+        {
+            final List<Object[]> rows = new ArrayList<>();
+            if ( sql.startsWith( "SELECT COUNT(" ) )
+            {
+                final long count = sql.contains( " WHERE " )
+                        ? ( connection.read( params.get( 1 ) ) == null ? 0 : 1 )
+                        : connection.view().size();
+                rows.add( new Object[] {null, null, ( int ) count} );
+            }
+            else if ( sql.contains( " IN (" ) )
+            {
+                for ( final String key : new LinkedHashSet<>( params.values() ) )
+                {
+                    final String value = connection.read( key );
+                    if ( value != null )
+                    {
+                        rows.add( new Object[] {key, value, null} );
+                    }
+                }
+            }
+            else if ( sql.contains( " ORDER BY " ) )
+            {
+                final NavigableMap<String, String> view = connection.view();
+                final Map<String, String> page = params.containsKey( 1 ) ? view.tailMap( params.get( 1 ), false ) : view;
+                for ( final Map.Entry<String, String> entry : page.entrySet() )
+                {
+                    if ( maxRows > 0 && rows.size() >= maxRows )
+                    {
+                        break;
+                    }
+                    rows.add( new Object[] {entry.getKey(), entry.getValue(), null} );
+                }
+            }
+            else if ( sql.contains( " WHERE " ) )
+            {
+                final String value = connection.read( params.get( 1 ) );
+                if ( value != null )
+                {
+                    rows.add( new Object[] {params.get( 1 ), value, null} );
+                }
+            }
+            else
+            {
+                throw new SQLException( "unsupported query: " + sql );
+            }
+
+            return ( ResultSet ) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] {ResultSet.class}, new ResultSetHandler( rows ) );
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler
+    {
+        private final List<Object[]> rows;
+        private int position = -1;
+
+        ResultSetHandler( final List<Object[]> rows )
+        {
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args )
+        {
+            switch ( method.getName() )
+            {
+                case "next":
+                    position++;
+                    return position < rows.size();
+
+                case "getString":
+                    return DatabaseService.KEY_COLUMN.equals( args[0] ) ? rows.get( position )[0] : rows.get( position )[1];
+
+                case "getInt":
+                    return rows.get( position )[2];
+
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.email;
+
+import jakarta.mail.Message;
+import jakarta.mail.internet.InternetAddress;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.EmailItemBean;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class EmailDeliveryBatchTest
+{
+    static EmailServiceSettings makeSettings( final int sendItemLimit, final TimeDuration validationInterval )
+    {
+        return EmailServiceSettings.builder()
+                .connectionSendItemLimit( sendItemLimit )
+                .connectionSendItemDuration( TimeDuration.HOUR )
+                .connectionValidationInterval( validationInterval )
+                .retryableStatusResponses( Collections.emptySet() )
+                .build();
+    }
+
+    static List<EmailItemBean> makeItems( final int count, final boolean identicalBodies )
+    {
+        final List<EmailItemBean> items = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            final String body = identicalBodies ? "your password expires soon" : "your password expires in " + i + " days";
+            items.add( new EmailItemBean( "user" + i + "@example.com", "admin@example.com", "Password Expiration", body, "<p>" + body + "</p>" ) );
+        }
+        return items;
+    }
+
+    @Test
+    public void testBatchUsesSingleSession() throws Exception
+    {
+        try ( SmtpStandInServer smtpServer = new SmtpStandInServer() )
+        {
+            final EmailServer emailServer = smtpServer.makeEmailServer();
+            final EmailConnectionPool connectionPool = new EmailConnectionPool( Collections.singletonList( emailServer ), makeSettings( 1000, TimeDuration.MINUTE ) );
+            final List<EmailItemBean> items = makeItems( 20, true );
+
+            try ( EmailDeliveryBatch deliveryBatch = new EmailDeliveryBatch( connectionPool, null, items ) )
+            {
+                for ( final EmailItemBean item : items )
+                {
+                    deliveryBatch.send( item );
+                }
+            }
+            connectionPool.close();
+
+            Assert.assertEquals( 20, smtpServer.getMessages() );
+            Assert.assertEquals( 1, smtpServer.getSessions() );
+            Assert.assertEquals( 19, emailServer.getConnectionStats().get( EmailServer.ServerStat.reusedRenderedBodies ) );
+        }
+    }
+
+    @Test
+    public void testSessionRotationBySendCount() throws Exception
+    {
+        try ( SmtpStandInServer smtpServer = new SmtpStandInServer() )
+        {
+            final EmailServer emailServer = smtpServer.makeEmailServer();
+            final EmailConnectionPool connectionPool = new EmailConnectionPool( Collections.singletonList( emailServer ), makeSettings( 5, TimeDuration.MINUTE ) );
+            final List<EmailItemBean> items = makeItems( 20, false );
+
+            try ( EmailDeliveryBatch deliveryBatch = new EmailDeliveryBatch( connectionPool, null, items ) )
+            {
+                for ( final EmailItemBean item : items )
+                {
+                    deliveryBatch.send( item );
+                }
+            }
+            connectionPool.close();
+
+            Assert.assertEquals( 20, smtpServer.getMessages() );
+            Assert.assertEquals( 4, smtpServer.getSessions() );
+            Assert.assertEquals( 0, emailServer.getConnectionStats().get( EmailServer.ServerStat.reusedRenderedBodies ) );
+        }
+    }
+
+    @Test
+    public void testStaleSessionRetrySendsOnlyRemainingMessages() throws Exception
+    {
+        try ( SmtpStandInServer smtpServer = new SmtpStandInServer() )
+        {
+            smtpServer.setSessionMessageLimit( 2 );
+            final EmailServer emailServer = smtpServer.makeEmailServer();
+            final EmailConnectionPool connectionPool = new EmailConnectionPool( Collections.singletonList( emailServer ), makeSettings( 1000, TimeDuration.MINUTE ) );
+            final EmailItemBean firstItem = new EmailItemBean( "fred@flintstones.tv", "admin@flintstones.tv", "Subject", "first", "<p>first</p>" );
+            final EmailItemBean secondItem = new EmailItemBean( "wilma@flintstones.tv, barney@flintstones.tv, betty@flintstones.tv",
+                    "admin@flintstones.tv", "Subject", "second", "<p>second</p>" );
+
+            try ( EmailDeliveryBatch deliveryBatch = new EmailDeliveryBatch( connectionPool, null, List.of( firstItem, secondItem ) ) )
+            {
+                deliveryBatch.send( firstItem );
+                deliveryBatch.send( secondItem );
+            }
+            connectionPool.close();
+
+            Assert.assertEquals( 4, smtpServer.getMessages() );
+            Assert.assertEquals( 2, smtpServer.getSessions() );
+        }
+    }
+
+    @Test
+    public void testRenderedBodyCopiesHaveOwnRecipient() throws Exception
+    {
+        final EmailServer emailServer = EmailServer.builder()
+                .id( "render" )
+                .session( jakarta.mail.Session.getInstance( new java.util.Properties(), null ) )
+                .build();
+        final EmailConnectionPool connectionPool = new EmailConnectionPool( Collections.singletonList( emailServer ), makeSettings( 1000, TimeDuration.MINUTE ) );
+
+        final EmailItemBean item = new EmailItemBean( "fred@flintstones.tv, barney@flintstones.tv", "admin@flintstones.tv", "Subject", "plain", "html" );
+        try ( EmailDeliveryBatch deliveryBatch = new EmailDeliveryBatch( connectionPool, "UTF8", Collections.singletonList( item ) ) )
+        {
+            final List<Message> messages = deliveryBatch.renderMessages( item, emailServer );
+            Assert.assertEquals( 2, messages.size() );
+            Assert.assertEquals( new InternetAddress( "fred@flintstones.tv" ), messages.get( 0 ).getRecipients( Message.RecipientType.TO )[0] );
+            Assert.assertEquals( new InternetAddress( "barney@flintstones.tv" ), messages.get( 1 ).getRecipients( Message.RecipientType.TO )[0] );
+            for ( final Message message : messages )
+            {
+                Assert.assertEquals( 1, message.getAllRecipients().length );
+                Assert.assertEquals( "Subject", message.getSubject() );
+                final String content = IOUtils.toString( message.getInputStream(), "UTF-8" );
+                Assert.assertTrue( content.contains( "plain" ) );
+                Assert.assertTrue( content.contains( "html" ) );
+            }
+        }
+    }
+}
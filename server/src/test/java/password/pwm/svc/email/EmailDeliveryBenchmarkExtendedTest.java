@@ -0,0 +1,142 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.email;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.bean.EmailItemBean;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second delivered to an in-process SMTP stand-in, comparing a session leased and probed per message with batch delivery.
+ */
+@State( Scope.Benchmark )
+public class EmailDeliveryBenchmarkExtendedTest
+{
+    private static final int BATCH_SIZE = 25;
+
+    private SmtpStandInServer smtpServer;
+    private EmailConnectionPool connectionPool;
+    private EmailConnectionPool probingConnectionPool;
+    private List<EmailItemBean> identicalItems;
+    private List<EmailItemBean> distinctItems;
+
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.Throughput )
+                .timeUnit( TimeUnit.SECONDS )
+                .warmupTime( TimeValue.seconds( 10 ) )
+                .measurementIterations( 10 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup( Level.Trial )
+    public void setup()
+            throws Exception
+    {
+        smtpServer = new SmtpStandInServer();
+        connectionPool = new EmailConnectionPool(
+                Collections.singletonList( smtpServer.makeEmailServer() ),
+                EmailDeliveryBatchTest.makeSettings( Integer.MAX_VALUE, TimeDuration.of( 30, TimeDuration.Unit.SECONDS ) ) );
+        probingConnectionPool = new EmailConnectionPool(
+                Collections.singletonList( smtpServer.makeEmailServer() ),
+                EmailDeliveryBatchTest.makeSettings( Integer.MAX_VALUE, TimeDuration.ZERO ) );
+        identicalItems = EmailDeliveryBatchTest.makeItems( BATCH_SIZE, true );
+        distinctItems = EmailDeliveryBatchTest.makeItems( BATCH_SIZE, false );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+            throws Exception
+    {
+        connectionPool.close();
+        probingConnectionPool.close();
+        smtpServer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( BATCH_SIZE )
+    public void sessionPerMessage()
+            throws Exception
+    {
+        for ( final EmailItemBean item : distinctItems )
+        {
+            try ( EmailDeliveryBatch deliveryBatch = new EmailDeliveryBatch( probingConnectionPool, null, Collections.singletonList( item ) ) )
+            {
+                deliveryBatch.send( item );
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( BATCH_SIZE )
+    public void batchDistinctBodies()
+            throws Exception
+    {
+        sendBatch( distinctItems );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( BATCH_SIZE )
+    public void batchIdenticalBodies()
+            throws Exception
+    {
+        sendBatch( identicalItems );
+    }
+
+    private void sendBatch( final List<EmailItemBean> items )
+            throws Exception
+    {
+        try ( EmailDeliveryBatch deliveryBatch = new EmailDeliveryBatch( connectionPool, null, items ) )
+        {
+            for ( final EmailItemBean item : items )
+            {
+                deliveryBatch.send( item );
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.email;
+
+import password.pwm.config.option.SmtpServerType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server that accepts and discards every message, counting sessions and delivered messages.
+ */
+class SmtpStandInServer implements AutoCloseable
+{
+    private final ServerSocket serverSocket;
+    private final ExecutorService executorService = Executors.newCachedThreadPool( runnable ->
+    {
+        final Thread thread = new Thread( runnable, "smtp-stand-in" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+
+    private volatile int sessionMessageLimit = Integer.MAX_VALUE;
+
+    SmtpStandInServer()
+            throws IOException
+    {
+        serverSocket = new ServerSocket( 0, 50, InetAddress.getLoopbackAddress() );
+        executorService.submit( this::acceptLoop );
+    }
+
+    int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    int getSessions()
+    {
+        return sessions.get();
+    }
+
+    int getMessages()
+    {
+        return messages.get();
+    }
+
+    /**
+     * Reset the connection without a reply when a session tries to send more than the given number of messages,
+     * as a server closing an idle session would.
+     */
+    void setSessionMessageLimit( final int sessionMessageLimit )
+    {
+        this.sessionMessageLimit = sessionMessageLimit;
+    }
+
+    EmailServer makeEmailServer()
+    {
+        final Properties properties = new Properties();
+        properties.put( "mail.smtp.host", InetAddress.getLoopbackAddress().getHostAddress() );
+        properties.put( "mail.smtp.port", getPort() );
+        properties.put( "mail.smtp.sendpartial", true );
+
+        return EmailServer.builder()
+                .id( "stand-in" )
+                .host( InetAddress.getLoopbackAddress().getHostAddress() )
+                .port( getPort() )
+                .javaMailProps( properties )
+                .session( jakarta.mail.Session.getInstance( properties, null ) )
+                .type( SmtpServerType.SMTP )
+                .build();
+    }
+
+    private void acceptLoop()
+    {
+        while ( !serverSocket.isClosed() )
+        {
+            try
+            {
+                final Socket socket = serverSocket.accept();
+                sessions.incrementAndGet();
+                executorService.submit( () -> handleSession( socket ) );
+            }
+            catch ( final IOException e )
+            {
+                return;
+            }
+        }
+    }
+
+    private void handleSession( final Socket socket )
+    {
+        try ( Socket s = socket;
+              BufferedReader reader = new BufferedReader( new InputStreamReader( s.getInputStream(), StandardCharsets.US_ASCII ) );
+              Writer writer = new OutputStreamWriter( s.getOutputStream(), StandardCharsets.US_ASCII ) )
+        {
+            reply( writer, "220 localhost stand-in" );
+            int sessionMessages = 0;
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                final String command = line.length() >= 4 ? line.substring( 0, 4 ).toUpperCase( Locale.ROOT ) : line.toUpperCase( Locale.ROOT );
+                switch ( command )
+                {
+                    case "EHLO":
+                        reply( writer, "250-localhost\r\n250 8BITMIME" );
+                        break;
+
+                    case "MAIL":
+                        if ( sessionMessages >= sessionMessageLimit )
+                        {
+                            // reset rather than close so the client sees an i/o error
+                            s.setSoLinger( true, 0 );
+                            return;
+                        }
+                        reply( writer, "250 ok" );
+                        break;
+
+                    case "DATA":
+                        reply( writer, "354 end data with <CR><LF>.<CR><LF>" );
+                        String dataLine;
+                        while ( ( dataLine = reader.readLine() ) != null && !".".equals( dataLine ) )
+                        {
+                            // discard message content
+                        }
+                        messages.incrementAndGet();
+                        sessionMessages++;
+                        reply( writer, "250 ok" );
+                        break;
+
+                    case "QUIT":
+                        reply( writer, "221 bye" );
+                        return;
+
+                    default:
+                        reply( writer, "250 ok" );
+                        break;
+                }
+            }
+        }
+        catch ( final IOException e )
+        {
+            // client disconnected
+        }
+    }
+
+    private static void reply( final Writer writer, final String text )
+            throws IOException
+    {
+        writer.write( text + "\r\n" );
+        writer.flush();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        serverSocket.close();
+        executorService.shutdownNow();
+    }
+}
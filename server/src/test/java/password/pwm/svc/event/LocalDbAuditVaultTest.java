@@ -0,0 +1,267 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.PwmApplication;
+import password.pwm.util.java.JsonUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.LocalDBStoredQueue;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class LocalDbAuditVaultTest
+{
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
+    private PwmApplication pwmApplication;
+    private LocalDB localDB;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final File localDbTestFolder = testFolder.newFolder( "test-audit-vault" );
+        pwmApplication = TestHelper.makeTestPwmApplication( localDbTestFolder );
+        localDB = LocalDBFactory.getInstance( localDbTestFolder, false, pwmApplication.getPwmEnvironment(), pwmApplication.getConfig() );
+    }
+
+    private static AuditSettings makeSettings( final long maxRecords )
+    {
+        return AuditSettings.builder()
+                .permittedEvents( Collections.emptySet() )
+                .maxRecords( maxRecords )
+                .maxRecordAge( TimeDuration.of( 30, TimeDuration.Unit.DAYS ) )
+                .vaultSegmentMaxRecords( 100 )
+                .vaultSegmentMaxAge( TimeDuration.HOUR )
+                .build();
+    }
+
+    private LocalDbAuditVault openVault( final long maxRecords ) throws Exception
+    {
+        final LocalDbAuditVault vault = new LocalDbAuditVault();
+        vault.init( pwmApplication, localDB, makeSettings( maxRecords ) );
+        return vault;
+    }
+
+    private static AuditRecordData makeRecord( final int index, final Instant timestamp )
+    {
+        final AuditEvent eventCode = index % 10 == 0 ? AuditEvent.INTRUDER_USER_LOCK : AuditEvent.AUTHENTICATE;
+        return AuditRecordData.builder()
+                .type( AuditEventType.USER )
+                .eventCode( eventCode )
+                .guid( "guid" + index )
+                .timestamp( timestamp )
+                .perpetratorID( "user" + index % 7 )
+                .build();
+    }
+
+    /**
+     * Adds records one minute apart, with the last record one minute before now.
+     */
+    private static List<AuditRecordData> addRecords( final LocalDbAuditVault vault, final int count ) throws Exception
+    {
+        final Instant start = Instant.now().minusSeconds( 60L * count );
+        final List<AuditRecordData> records = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            final AuditRecordData record = makeRecord( i, start.plusSeconds( 60L * i ) );
+            vault.add( record );
+            records.add( record );
+        }
+        return records;
+    }
+
+    private static List<String> guids( final Iterator<AuditRecord> iterator )
+    {
+        final List<String> guids = new ArrayList<>();
+        iterator.forEachRemaining( record -> guids.add( record.getGuid() ) );
+        return guids;
+    }
+
+    @Test
+    public void testReadNewestFirst() throws Exception
+    {
+        final LocalDbAuditVault vault = openVault( 10_000 );
+        addRecords( vault, 250 );
+
+        final List<String> guids = guids( vault.readVault() );
+        Assert.assertEquals( 250, vault.size() );
+        Assert.assertEquals( 250, guids.size() );
+        Assert.assertEquals( "guid249", guids.get( 0 ) );
+        Assert.assertEquals( "guid0", guids.get( 249 ) );
+        vault.close();
+    }
+
+    @Test
+    public void testRangeAndEventQuery() throws Exception
+    {
+        final LocalDbAuditVault vault = openVault( 10_000 );
+        final List<AuditRecordData> records = addRecords( vault, 500 );
+
+        final Instant since = Instant.now().minusSeconds( 60L * 100 );
+        final List<String> expected = new ArrayList<>();
+        for ( final AuditRecordData record : records )
+        {
+            if ( record.getEventCode() == AuditEvent.INTRUDER_USER_LOCK && !record.getTimestamp().isBefore( since ) )
+            {
+                expected.add( 0, record.getGuid() );
+            }
+        }
+
+        final List<String> guids = guids( vault.readVault( AuditVaultQuery.lastEvents( AuditEvent.INTRUDER_USER_LOCK, since ) ) );
+        Assert.assertFalse( expected.isEmpty() );
+        Assert.assertEquals( expected, guids );
+        vault.close();
+    }
+
+    @Test
+    public void testPerpetratorQuery() throws Exception
+    {
+        final LocalDbAuditVault vault = openVault( 10_000 );
+        addRecords( vault, 300 );
+
+        final List<String> guids = guids( vault.readVault( AuditVaultQuery.builder().perpetratorID( "USER3" ).build() ) );
+        Assert.assertEquals( 43, guids.size() );
+        for ( final String guid : guids )
+        {
+            Assert.assertEquals( 3, Integer.parseInt( guid.substring( 4 ) ) % 7 );
+        }
+        vault.close();
+    }
+
+    @Test
+    public void testJsonReadReturnsStoredForm() throws Exception
+    {
+        final LocalDbAuditVault vault = openVault( 10_000 );
+        addRecords( vault, 70 );
+
+        final Iterator<String> iterator = vault.readVaultJson( AuditVaultQuery.all() );
+        final AuditRecordData newest = JsonUtil.deserialize( iterator.next(), AuditRecordData.class );
+        Assert.assertEquals( "guid69", newest.getGuid() );
+        vault.close();
+    }
+
+    @Test
+    public void testRetireWholeSegments() throws Exception
+    {
+        final LocalDbAuditVault vault = openVault( 250 );
+        addRecords( vault, 520 );
+
+        vault.new TrimmerThread().run();
+
+        // segments hold 100 records, so retirement stops at the first segment boundary at or under the maximum
+        Assert.assertEquals( 220, vault.size() );
+        final List<String> guids = guids( vault.readVault() );
+        Assert.assertEquals( 220, guids.size() );
+        Assert.assertEquals( "guid519", guids.get( 0 ) );
+        Assert.assertEquals( "guid300", guids.get( 219 ) );
+        vault.close();
+    }
+
+    @Test
+    public void testReopenRecoversUnindexedRecords() throws Exception
+    {
+        final LocalDbAuditVault vault = openVault( 10_000 );
+        addRecords( vault, 170 );
+
+        // open a second instance without closing, so the tail of the open segment is not in its stored index
+        final LocalDbAuditVault reopened = openVault( 10_000 );
+        Assert.assertEquals( 170, reopened.size() );
+
+        final List<String> guids = guids( reopened.readVault( AuditVaultQuery.builder().eventCode( AuditEvent.INTRUDER_USER_LOCK ).build() ) );
+        Assert.assertEquals( 17, guids.size() );
+        Assert.assertEquals( "guid160", guids.get( 0 ) );
+        vault.close();
+        reopened.close();
+    }
+
+    @Test
+    public void testLegacyQueueMigration() throws Exception
+    {
+        final LocalDBStoredQueue legacyQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, localDB, LocalDB.DB.AUDIT_EVENTS );
+        final Instant start = Instant.now().minusSeconds( 3600 );
+        for ( int i = 0; i < 120; i++ )
+        {
+            legacyQueue.addLast( JsonUtil.serialize( makeRecord( i, start.plusSeconds( i ) ) ) );
+        }
+
+        final LocalDbAuditVault vault = openVault( 10_000 );
+        vault.new LegacyQueueMigrator().run();
+
+        Assert.assertEquals( 0, localDB.size( LocalDB.DB.AUDIT_EVENTS ) );
+        final List<String> guids = guids( vault.readVault() );
+        Assert.assertEquals( 120, guids.size() );
+        Assert.assertEquals( "guid119", guids.get( 0 ) );
+        vault.close();
+    }
+
+    @Test
+    public void testLegacyQueueMigrationKeepsTimeOrder() throws Exception
+    {
+        final LocalDBStoredQueue legacyQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, localDB, LocalDB.DB.AUDIT_EVENTS );
+        final Instant start = Instant.now().minusSeconds( 7200 );
+        for ( int i = 0; i < 250; i++ )
+        {
+            legacyQueue.addLast( JsonUtil.serialize( makeRecord( i, start.plusSeconds( i ) ) ) );
+        }
+
+        // records added after startup but before the migration runs must still read as the newest
+        final LocalDbAuditVault vault = openVault( 10_000 );
+        for ( int i = 0; i < 30; i++ )
+        {
+            vault.add( makeRecord( 1000 + i, Instant.now().minusSeconds( 30 - i ) ) );
+        }
+        vault.new LegacyQueueMigrator().run();
+
+        final List<AuditRecord> records = new ArrayList<>();
+        vault.readVault().forEachRemaining( records::add );
+        Assert.assertEquals( 280, vault.size() );
+        Assert.assertEquals( 280, records.size() );
+        Assert.assertEquals( "guid1029", records.get( 0 ).getGuid() );
+        Assert.assertEquals( "guid0", records.get( 279 ).getGuid() );
+        for ( int i = 1; i < records.size(); i++ )
+        {
+            Assert.assertFalse( records.get( i ).getTimestamp().isAfter( records.get( i - 1 ).getTimestamp() ) );
+        }
+        vault.close();
+
+        final LocalDbAuditVault reopened = openVault( 10_000 );
+        reopened.add( makeRecord( 2000, Instant.now() ) );
+        final List<String> guids = guids( reopened.readVault() );
+        Assert.assertEquals( 281, guids.size() );
+        Assert.assertEquals( "guid2000", guids.get( 0 ) );
+        Assert.assertEquals( "guid0", guids.get( 280 ) );
+        reopened.close();
+    }
+}
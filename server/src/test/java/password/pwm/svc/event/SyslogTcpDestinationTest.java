@@ -0,0 +1,254 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.util.java.TimeDuration;
+
+import javax.net.SocketFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SyslogTcpDestinationTest
+{
+    @Test
+    public void testFrameEncoding()
+    {
+        final SyslogFrameEncoder encoder = new SyslogFrameEncoder( "host name", "app" );
+        encoder.beginBatch();
+        encoder.append( Instant.parse( "2021-01-01T00:00:00Z" ), "first" );
+        encoder.append( Instant.parse( "2021-01-01T00:00:00.123456Z" ), "zürich 東京" );
+        encoder.append( Instant.parse( "2021-01-01T00:00:01.007Z" ), "third" );
+
+        // each record carries its own timestamp
+        final List<String> records = parseFrames( Arrays.copyOf( encoder.frameArray(), encoder.frameLength() ) );
+        Assert.assertEquals( 3, encoder.frameCount() );
+        Assert.assertEquals( "<14>1 2021-01-01T00:00:00.000Z host_name app - - - first", records.get( 0 ) );
+        Assert.assertEquals( "<14>1 2021-01-01T00:00:00.123Z host_name app - - - zürich 東京", records.get( 1 ) );
+        Assert.assertEquals( "<14>1 2021-01-01T00:00:01.007Z host_name app - - - third", records.get( 2 ) );
+    }
+
+    @Test
+    public void testFrameEncoderGrowsBuffers()
+    {
+        final SyslogFrameEncoder encoder = new SyslogFrameEncoder( null, "app" );
+        final StringBuilder large = new StringBuilder();
+        for ( int i = 0; i < 40_000; i++ )
+        {
+            large.append( ( char ) ( 'a' + i % 26 ) );
+        }
+
+        encoder.beginBatch();
+        encoder.append( Instant.now(), large );
+        encoder.append( Instant.now(), "small" );
+
+        final List<String> records = parseFrames( Arrays.copyOf( encoder.frameArray(), encoder.frameLength() ) );
+        Assert.assertEquals( 2, records.size() );
+        Assert.assertTrue( records.get( 0 ).endsWith( " - - - " + large ) );
+        Assert.assertTrue( records.get( 1 ).endsWith( " - - - small" ) );
+    }
+
+    @Test
+    public void testBatchesShareOneConnection() throws Exception
+    {
+        try ( SyslogSink sink = new SyslogSink() )
+        {
+            final SyslogTcpDestination destination = sink.makeDestination();
+            destination.send( messages( "one", "two", "three" ) );
+            destination.send( messages( "four" ) );
+
+            final List<String> received = sink.awaitRecords( 4 );
+            Assert.assertEquals( 4, received.size() );
+            Assert.assertTrue( received.get( 0 ).endsWith( " one" ) );
+            Assert.assertTrue( received.get( 3 ).endsWith( " four" ) );
+            Assert.assertEquals( 1, sink.getConnections() );
+            Assert.assertEquals( "1", destination.debugInfo().get( "connects[test]" ) );
+            Assert.assertEquals( "2", destination.debugInfo().get( "batches[test]" ) );
+            destination.close();
+        }
+    }
+
+    @Test
+    public void testReconnectAfterConnectionFailure() throws Exception
+    {
+        try ( SyslogSink sink = new SyslogSink() )
+        {
+            final SyslogTcpDestination destination = sink.makeDestination();
+            destination.send( messages( "before" ) );
+            sink.awaitRecords( 1 );
+
+            // simulate the write failure path dropping the connection
+            destination.close();
+            destination.send( messages( "after" ) );
+
+            final List<String> received = sink.awaitRecords( 1 );
+            Assert.assertTrue( received.get( 0 ).endsWith( " after" ) );
+            Assert.assertEquals( 2, sink.getConnections() );
+            destination.close();
+        }
+    }
+
+    private static List<SyslogMessage> messages( final String... messages )
+    {
+        final List<SyslogMessage> syslogMessages = new ArrayList<>();
+        for ( final String message : messages )
+        {
+            syslogMessages.add( new SyslogMessage( Instant.now(), message ) );
+        }
+        return syslogMessages;
+    }
+
+    private static List<String> parseFrames( final byte[] frames )
+    {
+        final List<String> records = new ArrayList<>();
+        int position = 0;
+        while ( position < frames.length )
+        {
+            int length = 0;
+            while ( frames[position] != ' ' )
+            {
+                length = length * 10 + ( frames[position] - '0' );
+                position++;
+            }
+            position++;
+            records.add( new String( frames, position, length, StandardCharsets.UTF_8 ) );
+            position += length;
+        }
+        return records;
+    }
+
+    /**
+     * Minimal syslog receiver that accepts octet counted frames on a local port.
+     */
+    private static class SyslogSink implements AutoCloseable
+    {
+        private final ServerSocket serverSocket;
+        private final BlockingQueue<String> records = new LinkedBlockingQueue<>();
+        private final AtomicInteger connections = new AtomicInteger();
+
+        SyslogSink() throws IOException
+        {
+            serverSocket = new ServerSocket( 0, 10, InetAddress.getLoopbackAddress() );
+            final Thread acceptThread = new Thread( this::acceptLoop, "syslog-sink" );
+            acceptThread.setDaemon( true );
+            acceptThread.start();
+        }
+
+        SyslogTcpDestination makeDestination()
+        {
+            return new SyslogTcpDestination(
+                    "test",
+                    InetAddress.getLoopbackAddress().getHostAddress(),
+                    serverSocket.getLocalPort(),
+                    SocketFactory.getDefault(),
+                    TimeDuration.of( 5, TimeDuration.Unit.SECONDS ),
+                    new SyslogFrameEncoder( "localhost", "test" ) );
+        }
+
+        int getConnections()
+        {
+            return connections.get();
+        }
+
+        List<String> awaitRecords( final int count ) throws InterruptedException
+        {
+            final List<String> returnList = new ArrayList<>();
+            for ( int i = 0; i < count; i++ )
+            {
+                final String record = records.poll( 10, TimeUnit.SECONDS );
+                Assert.assertNotNull( "timed out waiting for syslog record", record );
+                returnList.add( record );
+            }
+            return returnList;
+        }
+
+        private void acceptLoop()
+        {
+            while ( !serverSocket.isClosed() )
+            {
+                try
+                {
+                    final Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    final Thread readThread = new Thread( () -> readLoop( socket ), "syslog-sink-reader" );
+                    readThread.setDaemon( true );
+                    readThread.start();
+                }
+                catch ( final IOException e )
+                {
+                    return;
+                }
+            }
+        }
+
+        private void readLoop( final Socket socket )
+        {
+            try ( InputStream inputStream = socket.getInputStream() )
+            {
+                while ( true )
+                {
+                    int length = 0;
+                    int next = inputStream.read();
+                    if ( next < 0 )
+                    {
+                        return;
+                    }
+                    while ( next != ' ' )
+                    {
+                        length = length * 10 + ( next - '0' );
+                        next = inputStream.read();
+                    }
+
+                    final ByteArrayOutputStream record = new ByteArrayOutputStream( length );
+                    for ( int i = 0; i < length; i++ )
+                    {
+                        record.write( inputStream.read() );
+                    }
+                    records.add( new String( record.toByteArray(), StandardCharsets.UTF_8 ) );
+                }
+            }
+            catch ( final IOException e )
+            {
+                // connection closed
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.node;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.PwmConstants;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.secure.PwmSecurityKey;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+public class GossipNodeTest
+{
+    private static final long WAIT_MS = 15_000;
+
+    private final List<GossipNode> nodes = new ArrayList<>();
+    private final Map<String, List<ClusterEvent>> receivedEvents = new ConcurrentHashMap<>();
+
+    @After
+    public void tearDown()
+    {
+        nodes.forEach( GossipNode::halt );
+    }
+
+    private static GossipSettings makeSettings( final String key, final List<InetSocketAddress> peers )
+    {
+        return GossipSettings.builder()
+                .listenAddress( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ) )
+                .peers( peers )
+                .protocolPeriod( TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ) )
+                .pingTimeout( TimeDuration.of( 40, TimeDuration.Unit.MILLISECONDS ) )
+                .indirectProbes( 2 )
+                .suspectTimeout( TimeDuration.of( 600, TimeDuration.Unit.MILLISECONDS ) )
+                .leaseDuration( TimeDuration.of( 800, TimeDuration.Unit.MILLISECONDS ) )
+                .replayWindow( TimeDuration.of( 5, TimeDuration.Unit.SECONDS ) )
+                .securityKey( new PwmSecurityKey( key.getBytes( PwmConstants.DEFAULT_CHARSET ) ) )
+                .build();
+    }
+
+    /**
+     * Start a cluster on loopback, each node using the first node as its only configured peer.  Instance ids sort in
+     * start order and the first node is the eldest.
+     */
+    private void startCluster( final int size ) throws Exception
+    {
+        final Instant startupTime = Instant.now();
+        for ( int i = 0; i < size; i++ )
+        {
+            final List<InetSocketAddress> peers = nodes.isEmpty()
+                    ? List.of()
+                    : List.of( nodes.get( 0 ).getLocalAddress() );
+            startNode( "node" + i, startupTime.plusSeconds( i ), "cluster-key", peers );
+        }
+    }
+
+    private GossipNode startNode( final String id, final Instant startupTime, final String key, final List<InetSocketAddress> peers )
+            throws Exception
+    {
+        final List<ClusterEvent> events = new CopyOnWriteArrayList<>();
+        receivedEvents.put( id, events );
+        final GossipNode node = new GossipNode( makeSettings( key, peers ), id, startupTime, "hash", events::add );
+        nodes.add( node );
+        return node;
+    }
+
+    private static void await( final String description, final BooleanSupplier condition ) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + WAIT_MS;
+        while ( !condition.getAsBoolean() )
+        {
+            if ( System.currentTimeMillis() > deadline )
+            {
+                Assert.fail( "timed out waiting for " + description );
+            }
+            Thread.sleep( 20 );
+        }
+    }
+
+    private static long countState( final GossipNode node, final NodeInfo.NodeState... states )
+    {
+        final List<NodeInfo.NodeState> stateList = List.of( states );
+        return node.nodes().stream().filter( nodeInfo -> stateList.contains( nodeInfo.getNodeState() ) ).count();
+    }
+
+    private List<GossipNode> leaders()
+    {
+        return nodes.stream().filter( GossipNode::isLeader ).collect( Collectors.toList() );
+    }
+
+    @Test
+    public void testMembershipConverges() throws Exception
+    {
+        startCluster( 4 );
+
+        await( "all nodes to see the full membership", () -> nodes.stream()
+                .allMatch( node -> countState( node, NodeInfo.NodeState.online, NodeInfo.NodeState.master ) == 4 ) );
+
+        for ( final NodeInfo nodeInfo : nodes.get( 3 ).nodes() )
+        {
+            Assert.assertTrue( nodeInfo.isConfigMatch() );
+        }
+    }
+
+    @Test
+    public void testLeaderLeaseAndFailover() throws Exception
+    {
+        startCluster( 3 );
+
+        await( "a single leader", () -> leaders().size() == 1 );
+        final GossipNode leader = leaders().get( 0 );
+        Assert.assertEquals( "node0", leader.getLocalID() );
+        final long firstToken = leader.fencingToken().orElseThrow();
+        Assert.assertTrue( firstToken > 0 );
+        await( "all nodes to agree on the leader", () -> nodes.stream()
+                .allMatch( node -> node.leaderID().filter( "node0"::equals ).isPresent() ) );
+
+        // crash the leader without announcing departure; the others must detect the failure and elect a new leader
+        leader.halt();
+        final List<GossipNode> survivors = nodes.subList( 1, nodes.size() );
+
+        await( "the failed leader to be declared dead", () -> survivors.stream()
+                .allMatch( node -> node.nodes().stream().anyMatch( nodeInfo -> "node0".equals( nodeInfo.getInstanceID() )
+                        && nodeInfo.getNodeState() == NodeInfo.NodeState.offline ) ) );
+        await( "a new leader", () -> survivors.stream().filter( GossipNode::isLeader ).count() == 1 );
+
+        final GossipNode newLeader = survivors.stream().filter( GossipNode::isLeader ).findFirst().orElseThrow();
+        Assert.assertEquals( "node1", newLeader.getLocalID() );
+        Assert.assertTrue( newLeader.fencingToken().orElseThrow() > firstToken );
+    }
+
+    @Test
+    public void testGracefulLeaveReleasesLease() throws Exception
+    {
+        startCluster( 2 );
+        await( "a single leader", () -> leaders().size() == 1 );
+
+        nodes.get( 0 ).close();
+
+        await( "the leaving node to be offline", () -> countState( nodes.get( 1 ), NodeInfo.NodeState.offline ) == 1 );
+        await( "the remaining node to lead", () -> nodes.get( 1 ).isLeader() );
+    }
+
+    @Test
+    public void testEventBroadcast() throws Exception
+    {
+        startCluster( 4 );
+        await( "all nodes to see the full membership", () -> nodes.stream()
+                .allMatch( node -> countState( node, NodeInfo.NodeState.online, NodeInfo.NodeState.master ) == 4 ) );
+
+        nodes.get( 2 ).broadcast( ClusterEvent.Type.intruderLockout, "user|jdoe" );
+        nodes.get( 3 ).broadcast( ClusterEvent.Type.cacheInvalidate, null );
+
+        await( "events to reach every other node", () -> receivedEvents.get( "node0" ).size() == 2
+                && receivedEvents.get( "node1" ).size() == 2
+                && receivedEvents.get( "node2" ).size() == 1
+                && receivedEvents.get( "node3" ).size() == 1 );
+
+        // allow retransmissions to settle, then verify each event was delivered exactly once
+        Thread.sleep( 1000 );
+        Assert.assertEquals( 2, receivedEvents.get( "node0" ).size() );
+        Assert.assertEquals( 1, receivedEvents.get( "node2" ).size() );
+        Assert.assertEquals( ClusterEvent.Type.cacheInvalidate, receivedEvents.get( "node2" ).get( 0 ).getType() );
+        Assert.assertEquals( "user|jdoe", receivedEvents.get( "node3" ).get( 0 ).getPayload() );
+        Assert.assertEquals( "node2", receivedEvents.get( "node3" ).get( 0 ).getOriginInstanceID() );
+    }
+
+    @Test
+    public void testRejectsReplayedMessage() throws Exception
+    {
+        final GossipNode node = startNode( "node0", Instant.now(), "cluster-key", List.of() );
+
+        final byte[] datagram = node.encode( GossipMessage.builder()
+                .type( GossipMessage.Type.gossip )
+                .timestamp( System.currentTimeMillis() )
+                .nonce( 42 )
+                .build() );
+        Assert.assertTrue( node.decode( datagram, 0, datagram.length ).isPresent() );
+        Assert.assertFalse( node.decode( datagram, 0, datagram.length ).isPresent() );
+
+        final byte[] staleDatagram = node.encode( GossipMessage.builder()
+                .type( GossipMessage.Type.gossip )
+                .timestamp( System.currentTimeMillis() - TimeDuration.MINUTE.asMillis() )
+                .nonce( 43 )
+                .build() );
+        Assert.assertFalse( node.decode( staleDatagram, 0, staleDatagram.length ).isPresent() );
+    }
+
+    @Test
+    public void testRejectsUnauthenticatedNode() throws Exception
+    {
+        startCluster( 2 );
+        final GossipNode intruder = startNode( "intruder", Instant.now(), "wrong-key", List.of( nodes.get( 0 ).getLocalAddress() ) );
+
+        await( "the cluster to form", () -> countState( nodes.get( 0 ), NodeInfo.NodeState.online, NodeInfo.NodeState.master ) == 2 );
+        Thread.sleep( 500 );
+
+        Assert.assertEquals( 2, nodes.get( 0 ).nodes().size() );
+        Assert.assertEquals( 1, intruder.nodes().size() );
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.otp;
+
+import org.apache.commons.codec.binary.Base32;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OtpVerifierTest
+{
+    private static final String SECRET = new Base32().encodeAsString( "12345678901234567890".getBytes( StandardCharsets.US_ASCII ) );
+    private static final int INTERVAL_SECONDS = 30;
+
+    private static String codeForStep( final long step ) throws Exception
+    {
+        final Mac mac = Mac.getInstance( "HMACSHA1" );
+        mac.init( new SecretKeySpec( new Base32().decode( SECRET ), "" ) );
+        return new PasscodeGenerator( mac, 6, INTERVAL_SECONDS ).generateResponseCode( step );
+    }
+
+    @Test
+    public void windowTest() throws Exception
+    {
+        final long step = 1_000_000L;
+        final AtomicLong clock = new AtomicLong( step * INTERVAL_SECONDS * 1000 );
+        final OtpVerifier otpVerifier = new OtpVerifier( 6, INTERVAL_SECONDS, 1, 1, 100, clock::get );
+
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step - 1 ) ) );
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step ) ) );
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step + 1 ) ) );
+        Assert.assertEquals( OtpVerifier.Result.INVALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step + 2 ) ) );
+        Assert.assertEquals( OtpVerifier.Result.INVALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step - 2 ) ) );
+        Assert.assertEquals( OtpVerifier.Result.INVALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, "" ) );
+
+        // advancing the clock moves the window
+        clock.addAndGet( INTERVAL_SECONDS * 2000L );
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step + 3 ) ) );
+        Assert.assertEquals( OtpVerifier.Result.INVALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step ) ) );
+    }
+
+    @Test
+    public void replayTest() throws Exception
+    {
+        final long step = 2_000_000L;
+        final AtomicLong clock = new AtomicLong( step * INTERVAL_SECONDS * 1000 );
+        final OtpVerifier otpVerifier = new OtpVerifier( 6, INTERVAL_SECONDS, 1, 1, 100, clock::get );
+        final String code = codeForStep( step );
+
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, code ) );
+        Assert.assertEquals( OtpVerifier.Result.REPLAYED, otpVerifier.verifyTimeoutCode( "user1", SECRET, code ) );
+
+        // still a replay from the next step, while the code remains inside the window
+        clock.addAndGet( INTERVAL_SECONDS * 1000L );
+        Assert.assertEquals( OtpVerifier.Result.REPLAYED, otpVerifier.verifyTimeoutCode( "user1", SECRET, code ) );
+
+        // other users sharing the secret are tracked separately, and unkeyed verification is never remembered
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( "user2", SECRET, code ) );
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( null, SECRET, code ) );
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( null, SECRET, code ) );
+    }
+
+    @Test
+    public void checkAndClusterTest() throws Exception
+    {
+        final long step = 4_000_000L;
+        final AtomicLong clock = new AtomicLong( step * INTERVAL_SECONDS * 1000 );
+        final List<OtpVerifier.ConsumedCode> reported = new ArrayList<>();
+        final OtpVerifier firstNode = new OtpVerifier( 6, INTERVAL_SECONDS, 1, 1, 100, clock::get, reported::add );
+        final OtpVerifier secondNode = new OtpVerifier( 6, INTERVAL_SECONDS, 1, 1, 100, clock::get );
+        final String code = codeForStep( step );
+
+        // checking a code does not use it up
+        Assert.assertEquals( OtpVerifier.Result.VALID, firstNode.checkTimeoutCode( "user1", SECRET, code ) );
+        Assert.assertEquals( OtpVerifier.Result.VALID, firstNode.checkTimeoutCode( "user1", SECRET, code ) );
+        Assert.assertTrue( reported.isEmpty() );
+
+        Assert.assertEquals( OtpVerifier.Result.VALID, firstNode.verifyTimeoutCode( "user1", SECRET, code ) );
+        Assert.assertEquals( OtpVerifier.Result.REPLAYED, firstNode.checkTimeoutCode( "user1", SECRET, code ) );
+        Assert.assertEquals( List.of( new OtpVerifier.ConsumedCode( "user1", code, step ) ), reported );
+
+        // a code reported by another node is rejected here
+        reported.forEach( secondNode::applyConsumedCode );
+        Assert.assertEquals( OtpVerifier.Result.REPLAYED, secondNode.verifyTimeoutCode( "user1", SECRET, code ) );
+    }
+
+    @Test
+    public void secretChangeTest() throws Exception
+    {
+        final long step = 3_000_000L;
+        final AtomicLong clock = new AtomicLong( step * INTERVAL_SECONDS * 1000 );
+        final OtpVerifier otpVerifier = new OtpVerifier( 6, INTERVAL_SECONDS, 1, 1, 100, clock::get );
+        final String otherSecret = new Base32().encodeAsString( "abcdefghijabcdefghij".getBytes( StandardCharsets.US_ASCII ) );
+
+        Assert.assertEquals( OtpVerifier.Result.VALID, otpVerifier.verifyTimeoutCode( "user1", SECRET, codeForStep( step ) ) );
+        Assert.assertEquals( OtpVerifier.Result.INVALID, otpVerifier.verifyTimeoutCode( "user1", otherSecret, codeForStep( step - 1 ) ) );
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.sessiontrack;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.LocalSessionStateBean;
+import password.pwm.bean.LoginInfoBean;
+import password.pwm.bean.UserIdentity;
+import password.pwm.http.PwmSession;
+
+import java.util.Map;
+
+public class SessionRegistryTest
+{
+    private static PwmSession makeSession( final String sessionID )
+    {
+        final LocalSessionStateBean sessionStateBean = new LocalSessionStateBean();
+        sessionStateBean.setSessionID( sessionID );
+        final LoginInfoBean loginInfoBean = new LoginInfoBean();
+
+        final PwmSession pwmSession = Mockito.mock( PwmSession.class );
+        Mockito.when( pwmSession.getSessionStateBean() ).thenReturn( sessionStateBean );
+        Mockito.when( pwmSession.getLoginInfoBean() ).thenReturn( loginInfoBean );
+        Mockito.when( pwmSession.isAuthenticated() ).thenAnswer( invocation -> loginInfoBean.isAuthenticated() );
+        Mockito.when( pwmSession.size() ).thenReturn( 100 );
+        return pwmSession;
+    }
+
+    private static void authenticate( final SessionRegistry sessionRegistry, final PwmSession pwmSession, final String ldapProfile )
+    {
+        pwmSession.getLoginInfoBean().setAuthenticated( true );
+        pwmSession.getLoginInfoBean().setUserIdentity( UserIdentity.create( "cn=user", ldapProfile, DomainID.DOMAIN_ID_DEFAULT ) );
+        sessionRegistry.updateAuthentication( pwmSession );
+    }
+
+    @Test
+    public void testIncrementalAggregates()
+    {
+        final SessionRegistry sessionRegistry = new SessionRegistry( 10, 10 );
+        final PwmSession anonymous = makeSession( "a" );
+        final PwmSession firstUser = makeSession( "b" );
+        final PwmSession secondUser = makeSession( "c" );
+        sessionRegistry.add( anonymous );
+        sessionRegistry.add( firstUser );
+        sessionRegistry.add( secondUser );
+        Assert.assertEquals( 3, sessionRegistry.size() );
+        Assert.assertTrue( sessionRegistry.containsSessionID( "b" ) );
+
+        authenticate( sessionRegistry, firstUser, "profile1" );
+        authenticate( sessionRegistry, secondUser, "profile2" );
+
+        // repeated updates without a state change do not change the counts
+        sessionRegistry.updateAuthentication( secondUser );
+        Assert.assertEquals( 2, sessionRegistry.authenticatedCount() );
+        Assert.assertEquals( Map.of( "profile1", 1, "profile2", 1 ), sessionRegistry.profileCounts() );
+
+        // moving to another profile moves the profile count
+        authenticate( sessionRegistry, secondUser, "profile1" );
+        Assert.assertEquals( Map.of( "profile1", 2 ), sessionRegistry.profileCounts() );
+
+        sessionRegistry.remove( firstUser );
+        sessionRegistry.remove( firstUser );
+        sessionRegistry.remove( anonymous );
+        Assert.assertEquals( 1, sessionRegistry.size() );
+        Assert.assertEquals( 1, sessionRegistry.authenticatedCount() );
+        Assert.assertEquals( 2, sessionRegistry.getHistory().endedCount() );
+        Assert.assertEquals( 0.5f, sessionRegistry.getHistory().authenticatedRatio(), 0.001f );
+
+        // updates for a removed session are ignored
+        sessionRegistry.updateAuthentication( firstUser );
+        Assert.assertEquals( 1, sessionRegistry.authenticatedCount() );
+
+        Assert.assertTrue( sessionRegistry.lookup( "c" ).isPresent() );
+        Assert.assertFalse( sessionRegistry.lookup( "b" ).isPresent() );
+        Assert.assertEquals( 100, sessionRegistry.sampledAverageSize() );
+
+        secondUser.getLoginInfoBean().setAuthenticated( false );
+        sessionRegistry.updateAuthentication( secondUser );
+        Assert.assertEquals( 0, sessionRegistry.authenticatedCount() );
+        Assert.assertTrue( sessionRegistry.profileCounts().isEmpty() );
+
+        sessionRegistry.clear();
+        Assert.assertEquals( 0, sessionRegistry.size() );
+    }
+
+    @Test
+    public void testHistoryWindow()
+    {
+        final SessionRegistry.History history = new SessionRegistry.History( 3 );
+        history.record( 1000, true );
+        history.record( 2000, false );
+        history.record( 3000, false );
+        history.record( 4000, true );
+
+        // the first record has been overwritten
+        Assert.assertEquals( 4, history.endedCount() );
+        Assert.assertEquals( 3000, history.averageLifetime().asMillis() );
+        Assert.assertEquals( 1f / 3, history.authenticatedRatio(), 0.001f );
+    }
+}
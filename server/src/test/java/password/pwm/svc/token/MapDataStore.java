@@ -0,0 +1,159 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.token;
+
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.util.DataStore;
+import password.pwm.util.java.ClosableIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Map backed {@link DataStore} that counts writes.
+ */
+class MapDataStore implements DataStore
+{
+    private final NavigableMap<String, String> values = new ConcurrentSkipListMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final AtomicInteger writtenChars = new AtomicInteger();
+
+    NavigableMap<String, String> values( )
+    {
+        return values;
+    }
+
+    int writes( )
+    {
+        return writes.get();
+    }
+
+    int writtenChars( )
+    {
+        return writtenChars.get();
+    }
+
+    @Override
+    public void close( )
+    {
+    }
+
+    @Override
+    public boolean contains( final String key )
+    {
+        return values.containsKey( key );
+    }
+
+    @Override
+    public Optional<String> get( final String key )
+    {
+        return Optional.ofNullable( values.get( key ) );
+    }
+
+    @Override
+    public ClosableIterator<Map.Entry<String, String>> iterator( )
+    {
+        final Iterator<Map.Entry<String, String>> iterator = new ArrayList<>( values.entrySet() ).iterator();
+        return new ClosableIterator<>()
+        {
+            @Override
+            public void close( )
+            {
+            }
+
+            @Override
+            public boolean hasNext( )
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, String> next( )
+            {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public Status status( )
+    {
+        return Status.OPEN;
+    }
+
+    @Override
+    public boolean put( final String key, final String value )
+    {
+        writes.incrementAndGet();
+        writtenChars.addAndGet( value.length() );
+        return values.put( key, value ) == null;
+    }
+
+    @Override
+    public boolean putIfAbsent( final String key, final String value )
+    {
+        return !values.containsKey( key ) && put( key, value );
+    }
+
+    @Override
+    public void putAll( final Map<String, String> keyValueMap )
+    {
+        keyValueMap.forEach( this::put );
+    }
+
+    @Override
+    public void remove( final String key )
+    {
+        values.remove( key );
+    }
+
+    @Override
+    public int removeAll( final Collection<String> keys )
+    {
+        int removed = 0;
+        for ( final String key : keys )
+        {
+            if ( values.remove( key ) != null )
+            {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public long size( )
+    {
+        return values.size();
+    }
+
+    @Override
+    public DataStorageMethod getDataStorageMethod( )
+    {
+        return DataStorageMethod.LOCALDB;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.token;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.PwmApplication;
+import password.pwm.PwmDomain;
+import password.pwm.bean.DomainID;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.TestHelper;
+
+import java.time.Instant;
+import java.util.Set;
+
+public class TokenExpiryIndexTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final Instant EXPIRATION = Instant.parse( "2021-01-01T00:00:30Z" );
+
+    @Test
+    public void testAddIsConstantCostPerEntry() throws Exception
+    {
+        final MapDataStore dataStore = new MapDataStore();
+        final TokenExpiryIndex index = new TokenExpiryIndex( dataStore, DomainID.DOMAIN_ID_DEFAULT, TimeDuration.MINUTE );
+
+        final int tokenCount = 500;
+        for ( int i = 0; i < tokenCount; i++ )
+        {
+            index.add( "hash" + i, EXPIRATION );
+        }
+
+        // one entry record and one head record per add, none of which grows with the bucket
+        Assert.assertEquals( tokenCount * 2, dataStore.writes() );
+        Assert.assertTrue( dataStore.writtenChars() < tokenCount * 16 );
+
+        final long bucket = index.bucketForInstant( EXPIRATION );
+        final Set<String> hashes = index.readBucket( bucket );
+        Assert.assertEquals( tokenCount, hashes.size() );
+        Assert.assertTrue( hashes.contains( "hash0" ) );
+        Assert.assertTrue( hashes.contains( "hash499" ) );
+        Assert.assertTrue( index.readBucket( bucket + 1 ).isEmpty() );
+
+        index.removeBucket( bucket );
+        Assert.assertTrue( index.readBucket( bucket ).isEmpty() );
+        Assert.assertTrue( dataStore.values().isEmpty() );
+    }
+
+    @Test
+    public void testFullSweepRemovesExpiredIndexRecords() throws Exception
+    {
+        final MapDataStore dataStore = new MapDataStore();
+        final TokenExpiryIndex index = new TokenExpiryIndex( dataStore, DomainID.DOMAIN_ID_DEFAULT, TimeDuration.MINUTE );
+
+        final Instant laterExpiration = EXPIRATION.plusSeconds( 600 );
+        index.add( "expired", EXPIRATION );
+        index.add( "current", laterExpiration );
+        index.writeCursor( 7 );
+
+        final long oldestRetained = index.bucketForInstant( laterExpiration );
+        for ( final String key : Set.copyOf( dataStore.values().keySet() ) )
+        {
+            Assert.assertTrue( TokenExpiryIndex.isIndexKey( key ) );
+            index.removeIfExpiredBucketKey( key, oldestRetained );
+        }
+
+        Assert.assertTrue( index.readBucket( index.bucketForInstant( EXPIRATION ) ).isEmpty() );
+        Assert.assertEquals( Set.of( "current" ), index.readBucket( oldestRetained ) );
+        Assert.assertEquals( 7L, ( long ) index.readCursor().orElseThrow() );
+    }
+
+    @Test
+    public void testTokenMachineSizeExcludesIndexRecords() throws Exception
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+        final PwmDomain pwmDomain = pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT );
+        final MapDataStore dataStore = new MapDataStore();
+        final DataStoreTokenMachine tokenMachine = new DataStoreTokenMachine( pwmDomain, null, dataStore );
+        final TokenExpiryIndex index = new TokenExpiryIndex( dataStore, DomainID.DOMAIN_ID_DEFAULT, TimeDuration.MINUTE );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            dataStore.put( "hash" + i, "payload" );
+            index.add( "hash" + i, EXPIRATION );
+        }
+        index.writeCursor( 1 );
+
+        Assert.assertEquals( 3, tokenMachine.size() );
+        Assert.assertTrue( dataStore.size() > 3 );
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.userhistory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.svc.event.AuditEvent;
+
+import java.util.Optional;
+
+public class UserHistoryEventCodecTest
+{
+    @Test
+    public void testRoundTrip()
+    {
+        final LdapXmlUserHistory.StoredEvent storedEvent = new LdapXmlUserHistory.StoredEvent(
+                AuditEvent.CHANGE_PASSWORD,
+                1609459200000L,
+                "message with ünïcode",
+                "10.0.0.1",
+                null );
+
+        final String encoded = UserHistoryEventCodec.encode( storedEvent );
+        Assert.assertFalse( encoded.contains( "\n" ) );
+
+        final Optional<LdapXmlUserHistory.StoredEvent> decoded = UserHistoryEventCodec.decode( encoded );
+        Assert.assertTrue( decoded.isPresent() );
+        Assert.assertEquals( storedEvent, decoded.get() );
+    }
+
+    @Test
+    public void testDecodeInvalid()
+    {
+        Assert.assertFalse( UserHistoryEventCodec.decode( null ).isPresent() );
+        Assert.assertFalse( UserHistoryEventCodec.decode( "not base64 !" ).isPresent() );
+        Assert.assertFalse( UserHistoryEventCodec.decode( "AAAA" ).isPresent() );
+    }
+
+    @Test
+    public void testLogHead()
+    {
+        final DatabaseUserHistory.LogHead logHead = new DatabaseUserHistory.LogHead( 12, 40 );
+        Assert.assertEquals( Optional.of( logHead ), DatabaseUserHistory.LogHead.parse( logHead.toString() ) );
+        Assert.assertFalse( DatabaseUserHistory.LogHead.parse( "{\"records\":[]}" ).isPresent() );
+        Assert.assertFalse( DatabaseUserHistory.LogHead.parse( "log:1" ).isPresent() );
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.userhistory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.UserIdentity;
+import password.pwm.svc.event.AuditEvent;
+import password.pwm.svc.event.AuditEventType;
+import password.pwm.svc.event.AuditRecordData;
+import password.pwm.svc.event.UserAuditRecord;
+import password.pwm.util.java.JsonUtil;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public class UserHistoryPendingWritesTest
+{
+    private static UserAuditRecord makeRecord( final String perpetratorDN, final String message )
+    {
+        final Map<String, String> values = Map.of(
+                "type", AuditEventType.USER.name(),
+                "eventCode", AuditEvent.CHANGE_PASSWORD.name(),
+                "timestamp", Instant.now().toString(),
+                "message", message,
+                "perpetratorDN", perpetratorDN,
+                "perpetratorLdapProfile", "default",
+                "domain", DomainID.DOMAIN_ID_DEFAULT.stringValue() );
+        return JsonUtil.deserialize( JsonUtil.serializeMap( values ), AuditRecordData.class );
+    }
+
+    @Test
+    public void testLookupMatchesNormalizedSubject()
+    {
+        final UserHistoryPendingWrites pendingWrites = new UserHistoryPendingWrites( 10 );
+        Assert.assertEquals( UserHistoryPendingWrites.OfferResult.FIRST_FOR_SUBJECT, pendingWrites.offer( makeRecord( "CN=Fred, OU=People,O=Flintstones", "one" ) ) );
+        Assert.assertEquals( UserHistoryPendingWrites.OfferResult.ADDED, pendingWrites.offer( makeRecord( "cn=fred,ou=people,o=flintstones", "two" ) ) );
+        Assert.assertEquals( UserHistoryPendingWrites.OfferResult.FIRST_FOR_SUBJECT, pendingWrites.offer( makeRecord( "cn=barney,ou=people,o=flintstones", "three" ) ) );
+
+        final UserIdentity loadedIdentity = UserIdentity.create( "cn=Fred,ou=People,o=Flintstones", "default", DomainID.DOMAIN_ID_DEFAULT );
+        final List<UserAuditRecord> pending = pendingWrites.peek( loadedIdentity );
+        Assert.assertEquals( 2, pending.size() );
+        Assert.assertEquals( "one", pending.get( 0 ).getMessage() );
+        Assert.assertEquals( "two", pending.get( 1 ).getMessage() );
+        Assert.assertEquals( 3, pendingWrites.size() );
+
+        Assert.assertEquals( 2, pendingWrites.drain( loadedIdentity ).size() );
+        Assert.assertTrue( pendingWrites.peek( loadedIdentity ).isEmpty() );
+        Assert.assertEquals( 1, pendingWrites.size() );
+    }
+
+    @Test
+    public void testFullBufferRejectsUntilDrained()
+    {
+        final UserHistoryPendingWrites pendingWrites = new UserHistoryPendingWrites( 2 );
+        Assert.assertNotEquals( UserHistoryPendingWrites.OfferResult.FULL, pendingWrites.offer( makeRecord( "cn=fred,o=flintstones", "one" ) ) );
+        Assert.assertNotEquals( UserHistoryPendingWrites.OfferResult.FULL, pendingWrites.offer( makeRecord( "cn=barney,o=flintstones", "two" ) ) );
+        Assert.assertEquals( UserHistoryPendingWrites.OfferResult.FULL, pendingWrites.offer( makeRecord( "cn=wilma,o=flintstones", "three" ) ) );
+
+        final List<List<UserAuditRecord>> drained = pendingWrites.drainAll();
+        Assert.assertEquals( 2, drained.size() );
+        Assert.assertEquals( 0, pendingWrites.size() );
+        Assert.assertEquals( UserHistoryPendingWrites.OfferResult.FIRST_FOR_SUBJECT, pendingWrites.offer( makeRecord( "cn=wilma,o=flintstones", "three" ) ) );
+    }
+}
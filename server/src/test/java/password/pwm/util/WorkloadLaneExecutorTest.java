@@ -0,0 +1,182 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorkloadLaneExecutorTest
+{
+    private WorkloadPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new WorkloadPool( PwmScheduler.WorkloadClass.IoBound, "test", 4, false, WorkloadLaneExecutorTest::ignoreWaitTime );
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.close( TimeDuration.SECOND );
+    }
+
+    @Test
+    public void testSerialLaneKeepsOrder() throws Exception
+    {
+        final WorkloadLaneExecutor lane = new WorkloadLaneExecutor( pool, "serial", 1, 1000 );
+        final List<Integer> order = Collections.synchronizedList( new ArrayList<>() );
+        for ( int i = 0; i < 200; i++ )
+        {
+            final int value = i;
+            lane.execute( () -> order.add( value ) );
+        }
+        lane.shutdown();
+        Assert.assertTrue( lane.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+        Assert.assertEquals( 200, order.size() );
+        for ( int i = 0; i < 200; i++ )
+        {
+            Assert.assertEquals( i, ( int ) order.get( i ) );
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception
+    {
+        final WorkloadLaneExecutor lane = new WorkloadLaneExecutor( pool, "limited", 2, 1000 );
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        for ( int i = 0; i < 20; i++ )
+        {
+            lane.execute( () ->
+            {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                TimeDuration.of( 5, TimeDuration.Unit.MILLISECONDS ).pause();
+                running.decrementAndGet();
+            } );
+        }
+        lane.shutdown();
+        Assert.assertTrue( lane.awaitTermination( 10, TimeUnit.SECONDS ) );
+        Assert.assertEquals( 2, maxRunning.get() );
+    }
+
+    @Test
+    public void testQueueLimitAndShutdown() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final WorkloadLaneExecutor lane = new WorkloadLaneExecutor( pool, "bounded", 1, 2 );
+        lane.execute( () -> awaitQuietly( release ) );
+        lane.execute( WorkloadLaneExecutorTest::noop );
+
+        try
+        {
+            lane.execute( WorkloadLaneExecutorTest::noop );
+            lane.execute( WorkloadLaneExecutorTest::noop );
+            Assert.fail( "expected rejection once the queue is full" );
+        }
+        catch ( final RejectedExecutionException e )
+        {
+            // expected
+        }
+
+        lane.shutdown();
+        Assert.assertFalse( lane.awaitTermination( 50, TimeUnit.MILLISECONDS ) );
+        release.countDown();
+        Assert.assertTrue( lane.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+        try
+        {
+            lane.execute( WorkloadLaneExecutorTest::noop );
+            Assert.fail( "expected rejection after shutdown" );
+        }
+        catch ( final RejectedExecutionException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLanesShareSingleThread() throws Exception
+    {
+        final WorkloadPool singleThreadPool = new WorkloadPool( PwmScheduler.WorkloadClass.Maintenance, "single", 1, false, WorkloadLaneExecutorTest::ignoreWaitTime );
+        try
+        {
+            final WorkloadLaneExecutor busyLane = new WorkloadLaneExecutor( singleThreadPool, "busy", 1, 1000 );
+            final WorkloadLaneExecutor otherLane = new WorkloadLaneExecutor( singleThreadPool, "other", 1, 1000 );
+            final List<String> order = Collections.synchronizedList( new ArrayList<>() );
+
+            final CountDownLatch release = new CountDownLatch( 1 );
+            busyLane.execute( () -> awaitQuietly( release ) );
+            for ( int i = 0; i < 10; i++ )
+            {
+                busyLane.execute( () -> order.add( "busy" ) );
+            }
+            otherLane.execute( () -> order.add( "other" ) );
+            release.countDown();
+
+            busyLane.shutdown();
+            otherLane.shutdown();
+            Assert.assertTrue( busyLane.awaitTermination( 10, TimeUnit.SECONDS ) );
+            Assert.assertTrue( otherLane.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+            // the other lane runs after at most one task of the busy lane, not after its whole backlog
+            Assert.assertTrue( order.indexOf( "other" ) <= 1 );
+            Assert.assertEquals( "0", singleThreadPool.debugStats().get( "Maintenance.queueDepth" ) );
+        }
+        finally
+        {
+            singleThreadPool.close( TimeDuration.SECOND );
+        }
+    }
+
+    private static void ignoreWaitTime( final long waitMs )
+    {
+    }
+
+    private static void noop()
+    {
+    }
+
+    private static void awaitQuietly( final CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 10, TimeUnit.SECONDS );
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.debug;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+public class SupportItemOutputStreamTest
+{
+    private static final long NO_DEADLINE = System.nanoTime() + TimeUnit.HOURS.toNanos( 1 );
+
+    @Test
+    public void testPassThroughAndCloseIgnored() throws Exception
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream()
+        {
+            @Override
+            public void close()
+            {
+                Assert.fail( "underlying stream must not be closed" );
+            }
+        };
+
+        try ( OutputStream itemStream = new SupportItemOutputStream( target, 100, NO_DEADLINE ) )
+        {
+            itemStream.write( new byte[] {1, 2, 3} );
+            itemStream.write( 4 );
+        }
+
+        Assert.assertArrayEquals( new byte[] {1, 2, 3, 4}, target.toByteArray() );
+    }
+
+    @Test
+    public void testTruncatedAtMaximumSize() throws Exception
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final SupportItemOutputStream itemStream = new SupportItemOutputStream( target, 10, NO_DEADLINE );
+        itemStream.write( new byte[6] );
+
+        try
+        {
+            itemStream.write( new byte[6] );
+            Assert.fail( "expected item limit" );
+        }
+        catch ( final SupportItemOutputStream.ItemLimitException e )
+        {
+            Assert.assertEquals( SupportItemOutputStream.ItemStatus.truncated, e.getItemStatus() );
+        }
+
+        Assert.assertEquals( 10, target.size() );
+        Assert.assertEquals( 10, itemStream.getByteCount() );
+    }
+
+    @Test
+    public void testStopsAfterDeadline() throws IOException
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final SupportItemOutputStream itemStream = new SupportItemOutputStream( target, 100, System.nanoTime() - 1 );
+
+        try
+        {
+            itemStream.write( 1 );
+            Assert.fail( "expected item limit" );
+        }
+        catch ( final SupportItemOutputStream.ItemLimitException e )
+        {
+            Assert.assertEquals( SupportItemOutputStream.ItemStatus.timeout, e.getItemStatus() );
+        }
+
+        Assert.assertEquals( 0, target.size() );
+    }
+
+    @Test
+    public void testNoWritesAfterAbandon() throws IOException
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final SupportItemOutputStream itemStream = new SupportItemOutputStream( target, 100, NO_DEADLINE );
+        itemStream.write( new byte[] {1, 2} );
+        itemStream.abandon();
+
+        try
+        {
+            itemStream.write( 3 );
+            Assert.fail( "expected item limit" );
+        }
+        catch ( final SupportItemOutputStream.ItemLimitException e )
+        {
+            Assert.assertEquals( SupportItemOutputStream.ItemStatus.timeout, e.getItemStatus() );
+        }
+
+        Assert.assertArrayEquals( new byte[] {1, 2}, target.toByteArray() );
+    }
+}
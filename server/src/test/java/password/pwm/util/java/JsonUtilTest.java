@@ -0,0 +1,91 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.java;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.LoginInfoBean;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JsonUtilTest
+{
+    @Test
+    public void testFlags()
+    {
+        final Map<String, String> map = new LinkedHashMap<>();
+        map.put( "key", "<value>" );
+
+        Assert.assertEquals( "{\"key\":\"<value>\"}", JsonUtil.serializeMap( map ) );
+        Assert.assertEquals( "{\"key\":\"\\u003cvalue\\u003e\"}", JsonUtil.serializeMap( map, JsonUtil.Flag.HtmlEscape ) );
+        Assert.assertEquals( "{\n  \"key\": \"<value>\"\n}", JsonUtil.serializeMap( map, JsonUtil.Flag.PrettyPrint ) );
+        Assert.assertEquals(
+                JsonUtil.serializeMap( map, JsonUtil.Flag.PrettyPrint, JsonUtil.Flag.HtmlEscape ),
+                JsonUtil.serializeMap( map, JsonUtil.Flag.HtmlEscape, JsonUtil.Flag.PrettyPrint ) );
+    }
+
+    @Test
+    public void testSerializeTo() throws Exception
+    {
+        final List<String> values = new ArrayList<>( Arrays.asList( "one", "two", "<three>" ) );
+
+        final StringWriter writer = new StringWriter();
+        JsonUtil.serializeTo( values, writer, JsonUtil.Flag.PrettyPrint );
+        Assert.assertEquals( JsonUtil.serializeCollection( values, JsonUtil.Flag.PrettyPrint ), writer.toString() );
+    }
+
+    @Test
+    public void testDeserializeArray() throws Exception
+    {
+        final List<String> values = new ArrayList<>();
+        JsonUtil.deserializeArray( new StringReader( "[\"one\", \"two\", \"three\"]" ), String.class, values::add );
+        Assert.assertEquals( Arrays.asList( "one", "two", "three" ), values );
+
+        final List<String> emptyValues = new ArrayList<>();
+        JsonUtil.deserializeArray( new StringReader( "[]" ), String.class, emptyValues::add );
+        Assert.assertTrue( emptyValues.isEmpty() );
+    }
+
+    @Test
+    public void testDeepCopy()
+    {
+        final LoginInfoBean loginInfoBean = new LoginInfoBean();
+        loginInfoBean.setAuthTime( Instant.parse( "2021-01-01T00:00:00Z" ) );
+        loginInfoBean.getLoginFlags().add( LoginInfoBean.LoginFlag.forcePwChange );
+
+        final LoginInfoBean copy = JsonUtil.deepCopy( loginInfoBean );
+        Assert.assertNotSame( loginInfoBean, copy );
+        Assert.assertEquals( loginInfoBean.getAuthTime(), copy.getAuthTime() );
+        Assert.assertEquals( loginInfoBean.getLoginFlags(), copy.getLoginFlags() );
+
+        copy.getLoginFlags().clear();
+        Assert.assertFalse( loginInfoBean.getLoginFlags().isEmpty() );
+        Assert.assertNull( JsonUtil.deepCopy( null ) );
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.localdb;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class WorkQueueProcessorTest
+{
+    private static final long WAIT_MS = 15_000;
+    private static final TimeDuration RETRY_INTERVAL = TimeDuration.of( 500, TimeDuration.Unit.MILLISECONDS );
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<WorkQueueProcessor<String>> processors = new ArrayList<>();
+
+    @After
+    public void tearDown()
+    {
+        processors.forEach( WorkQueueProcessor::close );
+    }
+
+    private WorkQueueProcessor<String> makeProcessor( final WorkQueueProcessor.ItemProcessor<String> itemProcessor )
+    {
+        return makeProcessor( itemProcessor, new ConcurrentLinkedDeque<>(), RETRY_INTERVAL );
+    }
+
+    private WorkQueueProcessor<String> makeProcessor(
+            final WorkQueueProcessor.ItemProcessor<String> itemProcessor,
+            final Deque<String> queue,
+            final TimeDuration retryInterval
+    )
+    {
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .workerThreads( 4 )
+                .maxBatchSize( 4 )
+                .retryInterval( retryInterval )
+                .maxShutdownWaitTime( TimeDuration.SECOND )
+                .build();
+        final WorkQueueProcessor<String> processor = new WorkQueueProcessor<>(
+                null, queue, settings, itemProcessor, WorkQueueProcessorTest.class );
+        processors.add( processor );
+        return processor;
+    }
+
+    private static void await( final String description, final BooleanSupplier condition ) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + WAIT_MS;
+        while ( !condition.getAsBoolean() )
+        {
+            if ( System.currentTimeMillis() > deadline )
+            {
+                Assert.fail( "timed out waiting for " + description );
+            }
+            Thread.sleep( 10 );
+        }
+    }
+
+    private static String keyOf( final String workItem )
+    {
+        return workItem.substring( 0, workItem.indexOf( ':' ) );
+    }
+
+    private static int seqOf( final String workItem )
+    {
+        return Integer.parseInt( workItem.substring( workItem.indexOf( ':' ) + 1 ) );
+    }
+
+    /**
+     * Processor recording the items it completes, keyed by the item prefix.
+     */
+    private static class RecordingProcessor implements WorkQueueProcessor.ItemProcessor<String>
+    {
+        private final Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        private final AtomicInteger processedCount = new AtomicInteger();
+
+        @Override
+        public WorkQueueProcessor.ProcessResult process( final String workItem )
+        {
+            processed.computeIfAbsent( keyOf( workItem ), k -> new CopyOnWriteArrayList<>() ).add( seqOf( workItem ) );
+            processedCount.incrementAndGet();
+            return WorkQueueProcessor.ProcessResult.SUCCESS;
+        }
+
+        @Override
+        public String convertToDebugString( final String workItem )
+        {
+            return workItem;
+        }
+
+        @Override
+        public String partitionKey( final String workItem )
+        {
+            return keyOf( workItem );
+        }
+    }
+
+    private static void assertProcessedInOrder( final List<Integer> sequence, final int expectedCount )
+    {
+        Assert.assertEquals( expectedCount, sequence.size() );
+        for ( int i = 0; i < sequence.size(); i++ )
+        {
+            Assert.assertEquals( i, ( int ) sequence.get( i ) );
+        }
+    }
+
+    @Test
+    public void testPartitionOrdering() throws Exception
+    {
+        final RecordingProcessor itemProcessor = new RecordingProcessor();
+        final WorkQueueProcessor<String> processor = makeProcessor( itemProcessor );
+
+        final int keys = 7;
+        final int itemsPerKey = 40;
+        for ( int seq = 0; seq < itemsPerKey; seq++ )
+        {
+            for ( int key = 0; key < keys; key++ )
+            {
+                processor.submit( "key" + key + ":" + seq );
+            }
+        }
+
+        await( "all items to be processed", () -> itemProcessor.processedCount.get() == keys * itemsPerKey );
+        await( "the queue to drain", () -> processor.queueSize() == 0 );
+        for ( int key = 0; key < keys; key++ )
+        {
+            assertProcessedInOrder( itemProcessor.processed.get( "key" + key ), itemsPerKey );
+        }
+    }
+
+    @Test
+    public void testRetriedItemBlocksOnlyItsPartition() throws Exception
+    {
+        final AtomicInteger blockedAttempts = new AtomicInteger();
+        final RecordingProcessor itemProcessor = new RecordingProcessor()
+        {
+            @Override
+            public WorkQueueProcessor.ProcessResult process( final String workItem )
+            {
+                if ( "blocked:0".equals( workItem ) && blockedAttempts.incrementAndGet() == 1 )
+                {
+                    return WorkQueueProcessor.ProcessResult.RETRY;
+                }
+                return super.process( workItem );
+            }
+        };
+        final WorkQueueProcessor<String> processor = makeProcessor( itemProcessor );
+
+        for ( int seq = 0; seq < 3; seq++ )
+        {
+            processor.submit( "blocked:" + seq );
+        }
+        for ( int seq = 0; seq < 10; seq++ )
+        {
+            processor.submit( "free:" + seq );
+        }
+
+        await( "the blocked partition to be retried", () -> itemProcessor.processedCount.get() == 13 );
+        await( "the queue to drain", () -> processor.queueSize() == 0 );
+        Thread.sleep( RETRY_INTERVAL.asMillis() );
+
+        // later items of the blocked partition waited for the retried item, and items completed behind it were not repeated
+        Assert.assertEquals( 2, blockedAttempts.get() );
+        Assert.assertEquals( 13, itemProcessor.processedCount.get() );
+        assertProcessedInOrder( itemProcessor.processed.get( "blocked" ), 3 );
+        assertProcessedInOrder( itemProcessor.processed.get( "free" ), 10 );
+    }
+
+    @Test
+    public void testRetryingKeyDoesNotStallLaterItems() throws Exception
+    {
+        final AtomicInteger blockedAttempts = new AtomicInteger();
+        final RecordingProcessor itemProcessor = new RecordingProcessor()
+        {
+            @Override
+            public WorkQueueProcessor.ProcessResult process( final String workItem )
+            {
+                if ( "blocked:0".equals( workItem ) && blockedAttempts.incrementAndGet() == 1 )
+                {
+                    return WorkQueueProcessor.ProcessResult.RETRY;
+                }
+                return super.process( workItem );
+            }
+        };
+        final TimeDuration retryInterval = TimeDuration.of( 5, TimeDuration.Unit.SECONDS );
+        final WorkQueueProcessor<String> processor = makeProcessor( itemProcessor, new ConcurrentLinkedDeque<>(), retryInterval );
+
+        for ( int seq = 0; seq < 3; seq++ )
+        {
+            processor.submit( "blocked:" + seq );
+        }
+
+        // more items than a single window, all queued behind the retrying item
+        final int freeItems = 100;
+        for ( int seq = 0; seq < freeItems; seq++ )
+        {
+            processor.submit( "free" + ( seq % 10 ) + ":" + ( seq / 10 ) );
+        }
+
+        await( "items behind the retrying key to be processed", () -> itemProcessor.processedCount.get() == freeItems );
+        Assert.assertEquals( 1, blockedAttempts.get() );
+        Assert.assertNull( itemProcessor.processed.get( "blocked" ) );
+
+        await( "the retrying key to be processed", () -> itemProcessor.processedCount.get() == freeItems + 3 );
+        await( "the queue to drain", () -> processor.queueSize() == 0 );
+        assertProcessedInOrder( itemProcessor.processed.get( "blocked" ), 3 );
+    }
+
+    @Test
+    public void testCompletedItemsNotRepeatedAfterRestart() throws Exception
+    {
+        final LocalDB localDB = LocalDBFactory.getInstance( temporaryFolder.newFolder( "localdb" ), false, null, null );
+        try
+        {
+            final LocalDBStoredQueue queue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+
+            final RecordingProcessor firstProcessor = new RecordingProcessor()
+            {
+                @Override
+                public WorkQueueProcessor.ProcessResult process( final String workItem )
+                {
+                    return "blocked:0".equals( workItem ) ? WorkQueueProcessor.ProcessResult.RETRY : super.process( workItem );
+                }
+            };
+            final WorkQueueProcessor<String> first = makeProcessor( firstProcessor, queue, TimeDuration.of( 5, TimeDuration.Unit.SECONDS ) );
+            processors.remove( first );
+            first.submit( "blocked:0" );
+            for ( int seq = 0; seq < 10; seq++ )
+            {
+                first.submit( "free:" + seq );
+            }
+
+            await( "items behind the retrying item to be processed", () -> firstProcessor.processedCount.get() == 10 );
+            first.close();
+
+            // the queue still holds every item, but completed items are not delivered again after reopening
+            Assert.assertEquals( 11, queue.size() );
+            final RecordingProcessor secondProcessor = new RecordingProcessor();
+            final WorkQueueProcessor<String> second = makeProcessor( secondProcessor, queue, RETRY_INTERVAL );
+            second.submit( "free:10" );
+
+            await( "the queue to drain", () -> second.queueSize() == 0 );
+            Assert.assertEquals( 2, secondProcessor.processedCount.get() );
+            assertProcessedInOrder( secondProcessor.processed.get( "blocked" ), 1 );
+            Assert.assertEquals( List.of( 10 ), secondProcessor.processed.get( "free" ) );
+            second.close();
+        }
+        finally
+        {
+            localDB.close();
+        }
+    }
+
+    @Test
+    public void testBatchFailureRetriesAfterInterval() throws Exception
+    {
+        final AtomicInteger batches = new AtomicInteger();
+        final RecordingProcessor itemProcessor = new RecordingProcessor()
+        {
+            @Override
+            public WorkQueueProcessor.BatchProcessor<String> newBatch( final List<String> workItems )
+            {
+                if ( batches.incrementAndGet() == 1 )
+                {
+                    throw new IllegalStateException( "connection unavailable" );
+                }
+                return super.newBatch( workItems );
+            }
+        };
+        final WorkQueueProcessor<String> processor = makeProcessor( itemProcessor );
+
+        final Instant startTime = Instant.now();
+        for ( int seq = 0; seq < 5; seq++ )
+        {
+            processor.submit( "key:" + seq );
+        }
+
+        await( "all items to be processed", () -> itemProcessor.processedCount.get() == 5 );
+        await( "the queue to drain", () -> processor.queueSize() == 0 );
+
+        // the failed batch is retried once after the retry interval rather than in a tight loop
+        Assert.assertTrue( TimeDuration.fromCurrent( startTime ).isLongerThan( RETRY_INTERVAL.asMillis() - 50 ) );
+        Assert.assertTrue( batches.get() <= 4 );
+        assertProcessedInOrder( itemProcessor.processed.get( "key" ), 5 );
+    }
+}
@@ -24,6 +24,7 @@ import org.hamcrest.CoreMatchers;
 import org.hamcrest.Matcher;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.core.IsCollectionContaining;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -445,6 +446,54 @@ public class PasswordRuleChecksTest
         }
     }
 
+    @Test
+    public void failFastOrderingTest()
+            throws Exception
+    {
+        final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+        policyMap.put( PwmPasswordRule.DisallowCurrent.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.MinimumLength.getKey(), "8" );
+        final PwmPasswordPolicy pwmPasswordPolicy = PwmPasswordPolicy.createPwmPasswordPolicy( PwmPasswordPolicy.defaultPolicy().getDomainID(), policyMap );
+        final PwmDomain pwmDomain = pwmApplication.domains().get( DomainID.create( "default" ) );
+
+        // reporting evaluation keeps the full error list in rule order
+        final List<PwmError> allErrors = PasswordRuleChecks.extendedPolicyRuleChecker(
+                SessionLabel.TEST_SESSION_LABEL, pwmDomain, pwmPasswordPolicy, "abc", "ABC", null )
+                .stream().map( ErrorInformation::getError ).collect( Collectors.toList() );
+        Assert.assertEquals( List.of( PwmError.PASSWORD_SAMEASOLD, PwmError.PASSWORD_TOO_SHORT ), allErrors.subList( 0, 2 ) );
+
+        // fail fast evaluation stops at the cheapest failing rule
+        final List<ErrorInformation> firstError = PasswordRuleChecks.extendedPolicyRuleChecker(
+                SessionLabel.TEST_SESSION_LABEL, pwmDomain, pwmPasswordPolicy, "abc", "ABC", null, PwmPasswordRuleValidator.Flag.FailFast );
+        Assert.assertEquals( 1, firstError.size() );
+        Assert.assertEquals( PwmError.PASSWORD_TOO_SHORT, firstError.get( 0 ).getError() );
+
+        Assert.assertSame( pwmPasswordPolicy.getPolicyEvaluator(), pwmPasswordPolicy.getPolicyEvaluator() );
+        Assert.assertTrue( pwmPasswordPolicy.getPolicyEvaluator().checkCount() < PasswordRuleChecks.RULE_CHECKS.size() );
+    }
+
+    @Test
+    public void charCounterTest()
+    {
+        final PasswordCharCounter charCounter = new PasswordCharCounter( "aAb1!11xx2" );
+        Assert.assertEquals( 4, charCounter.getNumericCharCount() );
+        Assert.assertEquals( 1, charCounter.getUpperCharCount() );
+        Assert.assertEquals( 4, charCounter.getLowerCharCount() );
+        Assert.assertEquals( 5, charCounter.getAlphaCharCount() );
+        Assert.assertEquals( 5, charCounter.getNonAlphaCharCount() );
+        Assert.assertEquals( 1, charCounter.getSpecialCharsCount() );
+        Assert.assertEquals( 3, charCounter.getRepeatedChars() );
+        Assert.assertEquals( 2, charCounter.getSequentialRepeatedChars() );
+        Assert.assertEquals( 2, charCounter.getSequentialNumericChars() );
+        Assert.assertEquals( 3, charCounter.getSequentialAlphaChars() );
+        Assert.assertEquals( 6, charCounter.getUniqueChars() );
+
+        // runs starting at the last character are not counted
+        Assert.assertEquals( 0, new PasswordCharCounter( "a1" ).getSequentialNumericChars() );
+        Assert.assertEquals( 0, new PasswordCharCounter( "a" ).getRepeatedChars() );
+        Assert.assertEquals( 1, new PasswordCharCounter( "a" ).getUniqueChars() );
+    }
+
     private Set<PwmError> doCheck(
             final Map<String, String> policy,
             final String password
@@ -0,0 +1,120 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import com.nulabinc.zxcvbn.Zxcvbn;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.AppProperty;
+import password.pwm.PwmDomain;
+import password.pwm.bean.DomainID;
+import password.pwm.config.AppConfig;
+import password.pwm.config.DomainConfig;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.option.StrengthMeterType;
+import password.pwm.config.stored.StoredConfigKey;
+import password.pwm.config.stored.StoredConfigurationFactory;
+import password.pwm.config.stored.StoredConfigurationModifier;
+import password.pwm.config.value.StringValue;
+import password.pwm.util.localdb.TestHelper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class PasswordStrengthEngineTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static DomainConfig makeZxcvbnConfig() throws Exception
+    {
+        final StoredConfigurationModifier modifier = StoredConfigurationModifier.newModifier( StoredConfigurationFactory.newConfig() );
+        final StoredConfigKey key = StoredConfigKey.forSetting( PwmSetting.PASSWORD_STRENGTH_METER_TYPE, null, DomainID.systemId() );
+        modifier.writeSetting( key, new StringValue( StrengthMeterType.ZXCVBN.name() ), null );
+        final AppConfig appConfig = new AppConfig( modifier.newStoredConfiguration() );
+        return appConfig.getDomainConfigs().get( DomainID.DOMAIN_ID_DEFAULT );
+    }
+
+    private static int expectedScore( final DomainConfig domainConfig, final String password )
+    {
+        final AppProperty[] thresholds = new AppProperty[] {
+                AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK,
+                AppProperty.PASSWORD_STRENGTH_THRESHOLD_WEAK,
+                AppProperty.PASSWORD_STRENGTH_THRESHOLD_GOOD,
+                AppProperty.PASSWORD_STRENGTH_THRESHOLD_STRONG,
+                AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_STRONG,
+        };
+        final int zxcvbnScore = new Zxcvbn().measure( password ).getScore();
+        return Integer.parseInt( domainConfig.readAppProperty( thresholds[zxcvbnScore] ) );
+    }
+
+    @Test
+    public void testMatchesLibraryScore() throws Exception
+    {
+        final DomainConfig domainConfig = makeZxcvbnConfig();
+        final PasswordStrengthEngine engine = PasswordStrengthEngine.create( domainConfig );
+
+        for ( final String password : List.of( "password", "3sadasdA", "correct horse battery", "qwertyuiop", "V.{a$f.*B697e+%J9pOPn~E0" ) )
+        {
+            final int expected = expectedScore( domainConfig, password );
+            Assert.assertEquals( password, expected, engine.judgePasswordStrength( password ) );
+
+            // repeated checks return the remembered result
+            Assert.assertEquals( password, expected, engine.judgePasswordStrength( password ) );
+        }
+
+        Assert.assertEquals( 0, engine.judgePasswordStrength( "" ) );
+    }
+
+    @Test
+    public void testSeedWords() throws Exception
+    {
+        final DomainConfig domainConfig = makeZxcvbnConfig();
+        final String password = "zqxbvlmrtk";
+
+        final PasswordStrengthEngine plainEngine = new PasswordStrengthEngine( domainConfig, Collections.emptySet() );
+        final PasswordStrengthEngine seededEngine = new PasswordStrengthEngine( domainConfig, Set.of( password ) );
+
+        Assert.assertTrue( seededEngine.judgePasswordStrength( password ) < plainEngine.judgePasswordStrength( password ) );
+
+        // user inputs are ignored unless enabled
+        Assert.assertEquals( plainEngine.judgePasswordStrength( password ),
+                plainEngine.judgePasswordStrength( password, List.of( password ) ) );
+    }
+
+    @Test
+    public void testDomainEngineKeptUntilSeedlistAvailable() throws Exception
+    {
+        final PwmDomain pwmDomain = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() ).domains().get( DomainID.DOMAIN_ID_DEFAULT );
+
+        // the seed list of the test application is not available, so the engine is kept without seed words
+        final PasswordStrengthEngine engine = pwmDomain.getPasswordStrengthEngine();
+        Assert.assertFalse( engine.isRebuildDue( pwmDomain ) );
+        Assert.assertSame( engine, pwmDomain.getPasswordStrengthEngine() );
+
+        // engines created with seed words supplied are never rebuilt
+        Assert.assertFalse( new PasswordStrengthEngine( makeZxcvbnConfig(), Set.of( "seed" ) ).isRebuildDue( pwmDomain ) );
+    }
+}
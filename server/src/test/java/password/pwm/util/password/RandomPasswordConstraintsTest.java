@@ -0,0 +1,127 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.PwmApplication;
+import password.pwm.PwmDomain;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+import password.pwm.error.ErrorInformation;
+import password.pwm.util.localdb.TestHelper;
+import password.pwm.util.secure.PwmRandom;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class RandomPasswordConstraintsTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    static PwmPasswordPolicy makeStrictPolicy()
+    {
+        final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+        policyMap.put( PwmPasswordRule.MinimumLength.getKey(), "12" );
+        policyMap.put( PwmPasswordRule.MaximumLength.getKey(), "16" );
+        policyMap.put( PwmPasswordRule.AllowNumeric.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.AllowSpecial.getKey(), "true" );
+        policyMap.put( PwmPasswordRule.MinimumUpperCase.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MinimumLowerCase.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MinimumNumeric.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MaximumNumeric.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.MinimumSpecial.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MaximumSpecial.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.AllowFirstCharNumeric.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.AllowLastCharNumeric.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.AllowFirstCharSpecial.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.AllowLastCharSpecial.getKey(), "false" );
+        policyMap.put( PwmPasswordRule.MaximumRepeat.getKey(), "2" );
+        policyMap.put( PwmPasswordRule.MaximumSequentialRepeat.getKey(), "1" );
+        policyMap.put( PwmPasswordRule.MaximumConsecutive.getKey(), "3" );
+        policyMap.put( PwmPasswordRule.MinimumUnique.getKey(), "10" );
+        return PwmPasswordPolicy.createPwmPasswordPolicy( DomainID.DOMAIN_ID_DEFAULT, policyMap );
+    }
+
+    @Test
+    public void testConstructedPasswordsMeetPolicy()
+            throws Exception
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+        final PwmDomain pwmDomain = pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT );
+        final PwmPasswordPolicy policy = makeStrictPolicy();
+        final PwmPasswordRuleValidator validator = PwmPasswordRuleValidator.create( SessionLabel.TEST_SESSION_LABEL, pwmDomain, policy );
+
+        final RandomPasswordConstraints constraints = RandomPasswordConstraints.compile( policy, 6 ).orElseThrow();
+        Assert.assertEquals( 12, constraints.getLength() );
+
+        final PwmRandom pwmRandom = PwmRandom.getInstance();
+        final RandomPasswordGenerator.SeedMachine seedMachine = new RandomPasswordGenerator.SeedMachine( pwmRandom, RandomPasswordGenerator.DEFAULT_SEED_PHRASES );
+        for ( int i = 0; i < 500; i++ )
+        {
+            final Optional<String> password = constraints.construct( pwmRandom, seedMachine );
+            Assert.assertTrue( password.isPresent() );
+
+            final List<ErrorInformation> errors = validator.internalPwmPolicyValidator( password.get(), null, null );
+            Assert.assertTrue( password.get() + " " + errors, errors.isEmpty() );
+        }
+    }
+
+    @Test
+    public void testContradictoryPolicy()
+    {
+        final Map<String, String> policyMap = new HashMap<>( PwmPasswordPolicy.defaultPolicy().getPolicyMap() );
+        policyMap.put( PwmPasswordRule.MaximumLength.getKey(), "6" );
+        policyMap.put( PwmPasswordRule.MinimumUpperCase.getKey(), "4" );
+        policyMap.put( PwmPasswordRule.MinimumLowerCase.getKey(), "4" );
+        final PwmPasswordPolicy policy = PwmPasswordPolicy.createPwmPasswordPolicy( DomainID.DOMAIN_ID_DEFAULT, policyMap );
+
+        Assert.assertFalse( RandomPasswordConstraints.compile( policy, 6 ).isPresent() );
+    }
+
+    @Test
+    public void testGeneratorAttempts()
+            throws Exception
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+        final PwmDomain pwmDomain = pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT );
+        final RandomPasswordGenerator.RandomGeneratorConfig config = RandomPasswordGenerator.RandomGeneratorConfig.builder()
+                .passwordPolicy( makeStrictPolicy() )
+                .build();
+
+        int attempts = 0;
+        for ( int i = 0; i < 100; i++ )
+        {
+            final RandomPasswordGenerator.MutatorResult result = RandomPasswordGenerator.generate( SessionLabel.TEST_SESSION_LABEL, config, pwmDomain, true );
+            Assert.assertTrue( result.isValidPassword() );
+            attempts += result.getTryCount();
+        }
+        Assert.assertTrue( "average attempts " + attempts / 100f, attempts < 200 );
+    }
+}
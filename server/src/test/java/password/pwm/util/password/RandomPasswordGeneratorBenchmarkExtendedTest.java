@@ -0,0 +1,153 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.password;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.PwmApplication;
+import password.pwm.PwmDomain;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random passwords generated per second for the default and a strict policy, comparing constructed passwords with
+ * the mutating generator.  The {@code attempts} counter reports validation attempts per generated password.
+ */
+@State( Scope.Benchmark )
+public class RandomPasswordGeneratorBenchmarkExtendedTest
+{
+    private File applicationFolder;
+    private PwmApplication pwmApplication;
+    private PwmDomain pwmDomain;
+    private RandomPasswordGenerator.RandomGeneratorConfig defaultConfig;
+    private RandomPasswordGenerator.RandomGeneratorConfig strictConfig;
+
+    @AuxCounters( AuxCounters.Type.EVENTS )
+    @State( Scope.Thread )
+    public static class Attempts
+    {
+        public long attempts;
+
+        @Setup( Level.Iteration )
+        public void reset()
+        {
+            attempts = 0;
+        }
+    }
+
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.Throughput )
+                .timeUnit( TimeUnit.SECONDS )
+                .warmupTime( TimeValue.seconds( 10 ) )
+                .measurementIterations( 10 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup( Level.Trial )
+    public void setup()
+            throws Exception
+    {
+        applicationFolder = Files.createTempDirectory( "pwm-randomgen-benchmark" ).toFile();
+        pwmApplication = TestHelper.makeTestPwmApplication( applicationFolder );
+        pwmDomain = pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT );
+        defaultConfig = RandomPasswordGenerator.RandomGeneratorConfig.builder()
+                .passwordPolicy( PwmPasswordPolicy.defaultPolicy() )
+                .build();
+        strictConfig = RandomPasswordGenerator.RandomGeneratorConfig.builder()
+                .passwordPolicy( RandomPasswordConstraintsTest.makeStrictPolicy() )
+                .build();
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+            throws Exception
+    {
+        pwmApplication.shutdown();
+        FileUtils.deleteDirectory( applicationFolder );
+    }
+
+    private String generate( final RandomPasswordGenerator.RandomGeneratorConfig config, final boolean construct, final Attempts attempts )
+            throws Exception
+    {
+        final RandomPasswordGenerator.MutatorResult result = RandomPasswordGenerator.generate( SessionLabel.TEST_SESSION_LABEL, config, pwmDomain, construct );
+        attempts.attempts += result.getTryCount();
+        return result.getPassword();
+    }
+
+    @Benchmark
+    public String defaultPolicyMutated( final Attempts attempts )
+            throws Exception
+    {
+        return generate( defaultConfig, false, attempts );
+    }
+
+    @Benchmark
+    public String defaultPolicyConstructed( final Attempts attempts )
+            throws Exception
+    {
+        return generate( defaultConfig, true, attempts );
+    }
+
+    @Benchmark
+    public String strictPolicyMutated( final Attempts attempts )
+            throws Exception
+    {
+        return generate( strictConfig, false, attempts );
+    }
+
+    @Benchmark
+    public String strictPolicyConstructed( final Attempts attempts )
+            throws Exception
+    {
+        return generate( strictConfig, true, attempts );
+    }
+}
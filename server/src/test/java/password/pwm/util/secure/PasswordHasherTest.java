@@ -0,0 +1,158 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PasswordHasherTest
+{
+    private static final Map<PasswordHashAlgorithm, Integer> LOW_COSTS = Map.of(
+            PasswordHashAlgorithm.BCRYPT, 4,
+            PasswordHashAlgorithm.PBKDF2_SHA256, 1000,
+            PasswordHashAlgorithm.ARGON2ID, 1 );
+
+    private static PasswordHasher makeHasher( final PasswordHashAlgorithm algorithm )
+    {
+        return new PasswordHasher( algorithm, TimeDuration.ZERO, 2, TimeDuration.SECOND, LOW_COSTS );
+    }
+
+    @Test
+    public void roundTripTest() throws Exception
+    {
+        for ( final PasswordHashAlgorithm algorithm : PasswordHashAlgorithm.values() )
+        {
+            final PasswordHasher passwordHasher = makeHasher( algorithm );
+            final String hash = passwordHasher.hash( "password" );
+
+            Assert.assertEquals( algorithm, PasswordHashAlgorithm.forEncodedValue( hash ).orElseThrow() );
+            Assert.assertEquals( LOW_COSTS.get( algorithm ).intValue(), algorithm.readCost( hash ).orElseThrow() );
+            Assert.assertTrue( passwordHasher.verify( "password", hash ).isValid() );
+            Assert.assertFalse( passwordHasher.verify( "Password", hash ).isValid() );
+            Assert.assertFalse( passwordHasher.verify( "password", hash ).getRehash().isPresent() );
+            Assert.assertNotEquals( hash, passwordHasher.hash( "password" ) );
+        }
+    }
+
+    @Test
+    public void deterministicSaltTest() throws Exception
+    {
+        final PasswordHasher passwordHasher = makeHasher( PasswordHashAlgorithm.ARGON2ID );
+        final byte[] salt = new byte[ PasswordHashAlgorithm.SALT_LENGTH ];
+        final String hash1 = passwordHasher.hash( PasswordHashAlgorithm.PBKDF2_SHA256, "code", 1000, salt );
+        final String hash2 = passwordHasher.hash( PasswordHashAlgorithm.PBKDF2_SHA256, "code", 1000, salt );
+        Assert.assertEquals( hash1, hash2 );
+    }
+
+    @Test
+    public void rehashTest() throws Exception
+    {
+        final String legacyHash = PasswordHasher.legacyHasher().hash( "password" );
+        Assert.assertTrue( legacyHash.startsWith( "$2" ) );
+
+        final PasswordHasher argonHasher = makeHasher( PasswordHashAlgorithm.ARGON2ID );
+        final PasswordHasher.Verification verification = argonHasher.verify( "password", legacyHash );
+        Assert.assertTrue( verification.isValid() );
+        Assert.assertTrue( verification.getRehash().isPresent() );
+        Assert.assertFalse( argonHasher.isStale( verification.getRehash().get() ) );
+        Assert.assertTrue( argonHasher.verify( "password", verification.getRehash().get() ).isValid() );
+
+        // a failed verification never produces a rehash
+        Assert.assertFalse( argonHasher.verify( "wrong", legacyHash ).getRehash().isPresent() );
+
+        // a lower cost than the current calibration is stale
+        final PasswordHasher strongerHasher = new PasswordHasher( PasswordHashAlgorithm.BCRYPT, TimeDuration.ZERO, 1, TimeDuration.SECOND,
+                Map.of( PasswordHashAlgorithm.BCRYPT, 5 ) );
+        Assert.assertTrue( strongerHasher.isStale( makeHasher( PasswordHashAlgorithm.BCRYPT ).hash( "password" ) ) );
+    }
+
+    @Test
+    public void invalidEncodingTest() throws Exception
+    {
+        final PasswordHasher passwordHasher = makeHasher( PasswordHashAlgorithm.PBKDF2_SHA256 );
+        Assert.assertFalse( PasswordHashAlgorithm.forEncodedValue( "plaintext" ).isPresent() );
+        Assert.assertFalse( passwordHasher.verify( "password", "plaintext" ).isValid() );
+        Assert.assertFalse( passwordHasher.verify( "password", "$pbkdf2-sha256$i=1000$!!$!!" ).isValid() );
+        Assert.assertFalse( passwordHasher.verify( "password", "$argon2id$v=19$m=bad" ).isValid() );
+        Assert.assertFalse( passwordHasher.verify( null, passwordHasher.hash( "password" ) ).isValid() );
+    }
+
+    @Test
+    public void extrapolateCostTest()
+    {
+        final TimeDuration target = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
+
+        // bcrypt doubles per cost step: a 1.5ms probe at cost 6 reaches 100ms at cost 12
+        Assert.assertEquals( 12, PasswordHasher.extrapolateCost( PasswordHashAlgorithm.BCRYPT, 1_500_000, target ) );
+        Assert.assertEquals( PasswordHashAlgorithm.BCRYPT.getMinimumCost(),
+                PasswordHasher.extrapolateCost( PasswordHashAlgorithm.BCRYPT, 90_000_000, target ) );
+        Assert.assertEquals( PasswordHashAlgorithm.BCRYPT.getMaximumCost(),
+                PasswordHasher.extrapolateCost( PasswordHashAlgorithm.BCRYPT, 1, target ) );
+
+        // pbkdf2 scales linearly: a 2ms probe at 10,000 iterations reaches 100ms at 500,000
+        Assert.assertEquals( 500_000, PasswordHasher.extrapolateCost( PasswordHashAlgorithm.PBKDF2_SHA256, 2_000_000, target ) );
+    }
+
+    @Test
+    public void concurrencyLimitTest() throws Exception
+    {
+        final PasswordHasher passwordHasher = new PasswordHasher( PasswordHashAlgorithm.BCRYPT, TimeDuration.ZERO, 1,
+                TimeDuration.of( 10, TimeDuration.Unit.MILLISECONDS ), Map.of( PasswordHashAlgorithm.BCRYPT, 14 ) );
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final CountDownLatch started = new CountDownLatch( 1 );
+        try
+        {
+            final Future<String> slowHash = executorService.submit( () ->
+            {
+                started.countDown();
+                return passwordHasher.hash( "password" );
+            } );
+            started.await();
+            Thread.sleep( 50 );
+
+            try
+            {
+                passwordHasher.hash( "password" );
+                Assert.fail( "hash should be refused while the only permit is held" );
+            }
+            catch ( final PwmUnrecoverableException e )
+            {
+                Assert.assertEquals( PwmError.ERROR_SERVICE_NOT_AVAILABLE, e.getError() );
+            }
+            Assert.assertNotNull( slowHash.get() );
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+}
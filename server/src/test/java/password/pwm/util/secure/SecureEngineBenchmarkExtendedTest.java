@@ -0,0 +1,127 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microseconds per {@link SecureEngine} operation for each block algorithm, with an uncached cipher and mac baseline
+ * that performs the provider lookup and key initialization on every call.
+ */
+@State( Scope.Thread )
+public class SecureEngineBenchmarkExtendedTest
+{
+    @Param( { "AES", "AES128_HMAC256", "AES256_HMAC512", "AES128_GCM" } )
+    public PwmBlockAlgorithm blockAlgorithm;
+
+    @Param( { "64", "4096" } )
+    public int payloadSize;
+
+    private PwmSecurityKey securityKey;
+    private byte[] payload;
+    private byte[] encrypted;
+
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.AverageTime )
+                .timeUnit( TimeUnit.MICROSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 5 )
+                .threads( 2 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup( Level.Trial )
+    public void setup()
+            throws Exception
+    {
+        securityKey = new PwmSecurityKey( PwmRandom.getInstance().newBytes( 1024 ) );
+        payload = PwmRandom.getInstance().newBytes( payloadSize );
+        encrypted = SecureEngine.encryptToBytes( payload, securityKey, blockAlgorithm );
+    }
+
+    @Benchmark
+    public byte[] encrypt()
+            throws Exception
+    {
+        return SecureEngine.encryptToBytes( payload, securityKey, blockAlgorithm );
+    }
+
+    @Benchmark
+    public byte[] decrypt()
+            throws Exception
+    {
+        return SecureEngine.decryptToBytes( encrypted, securityKey, blockAlgorithm );
+    }
+
+    @Benchmark
+    public byte[] hmac()
+            throws Exception
+    {
+        return SecureEngine.computeHmacToBytes( HmacAlgorithm.HMAC_SHA_256, securityKey, payload );
+    }
+
+    @Benchmark
+    public byte[] uncachedHmac()
+            throws Exception
+    {
+        final Mac mac = Mac.getInstance( HmacAlgorithm.HMAC_SHA_256.getAlgorithmName() );
+        mac.init( securityKey.getKey( HmacAlgorithm.HMAC_SHA_256.getKeyType() ) );
+        return mac.doFinal( payload );
+    }
+
+    @Benchmark
+    public byte[] uncachedEcbEncrypt()
+            throws Exception
+    {
+        final SecretKey key = securityKey.getKey( PwmSecurityKey.Type.AES );
+        final Cipher cipher = Cipher.getInstance( PwmBlockAlgorithm.AES.getAlgName() );
+        cipher.init( Cipher.ENCRYPT_MODE, key );
+        return cipher.doFinal( payload );
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.secure;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.error.PwmUnrecoverableException;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class SecureEngineTest
+{
+    private static final PwmSecurityKey KEY = new PwmSecurityKey( "secure-engine-test-key-0123456789abcdef".getBytes( StandardCharsets.UTF_8 ) );
+
+    @Test
+    public void testRoundTripWithPooledContexts()
+            throws Exception
+    {
+        for ( final PwmBlockAlgorithm blockAlgorithm : PwmBlockAlgorithm.values() )
+        {
+            for ( int i = 0; i < 5; i++ )
+            {
+                final String value = "value " + i + " for " + blockAlgorithm;
+                final byte[] encrypted = SecureEngine.encryptToBytes( value, KEY, blockAlgorithm );
+                Assert.assertEquals( value, SecureEngine.decryptBytes( encrypted, KEY, blockAlgorithm ) );
+            }
+        }
+    }
+
+    @Test
+    public void testFailedDecryptDoesNotPoisonPool()
+            throws Exception
+    {
+        final PwmBlockAlgorithm blockAlgorithm = PwmBlockAlgorithm.AES128_GCM;
+        final byte[] encrypted = SecureEngine.encryptToBytes( "tamper test", KEY, blockAlgorithm );
+        final byte[] tampered = Arrays.copyOf( encrypted, encrypted.length );
+        tampered[ tampered.length - 1 ] ^= 1;
+
+        try
+        {
+            SecureEngine.decryptBytes( tampered, KEY, blockAlgorithm );
+            Assert.fail( "tampered value should not decrypt" );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            // expected
+        }
+
+        Assert.assertEquals( "tamper test", SecureEngine.decryptBytes( encrypted, KEY, blockAlgorithm ) );
+    }
+
+    @Test
+    public void testHmacIsStable()
+            throws Exception
+    {
+        final String first = SecureEngine.hmac( HmacAlgorithm.HMAC_SHA_256, KEY, "input" );
+        Assert.assertEquals( first, SecureEngine.hmac( HmacAlgorithm.HMAC_SHA_256, KEY, "input" ) );
+        Assert.assertNotEquals( first, SecureEngine.hmac( HmacAlgorithm.HMAC_SHA_256, KEY, "other input" ) );
+    }
+
+    @Test
+    public void testClearReleasesContextsOfOtherThreads()
+            throws Exception
+    {
+        final String algName = HmacAlgorithm.HMAC_SHA_256.getAlgorithmName();
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Mac first = executorService.submit( () -> CryptoContextPool.mac( algName, KEY.getKey( HmacAlgorithm.HMAC_SHA_256.getKeyType() ) ) ).get();
+            Assert.assertSame( first, executorService.submit( () -> CryptoContextPool.mac( algName, KEY.getKey( HmacAlgorithm.HMAC_SHA_256.getKeyType() ) ) ).get() );
+
+            // cleared from this thread, the worker thread gets a new instance on its next call
+            SecureEngine.clearCryptoContexts();
+            Assert.assertNotSame( first, executorService.submit( () -> CryptoContextPool.mac( algName, KEY.getKey( HmacAlgorithm.HMAC_SHA_256.getKeyType() ) ) ).get() );
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testNonceUniqueAcrossThreads()
+            throws Exception
+    {
+        final SecureEngine.NonceGenerator nonceGenerator = new SecureEngine.NonceGenerator( 8, 8 );
+        final Set<String> values = ConcurrentHashMap.newKeySet();
+        final int threads = 4;
+        final int perThread = 5_000;
+
+        final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+        for ( int t = 0; t < threads; t++ )
+        {
+            executorService.submit( () ->
+            {
+                for ( int i = 0; i < perThread; i++ )
+                {
+                    final byte[] nonce = nonceGenerator.nextValue();
+                    Assert.assertEquals( 16, nonce.length );
+                    values.add( Arrays.toString( nonce ) );
+                }
+            } );
+        }
+        executorService.shutdown();
+        Assert.assertTrue( executorService.awaitTermination( 1, TimeUnit.MINUTES ) );
+        Assert.assertEquals( threads * perThread, values.size() );
+    }
+}
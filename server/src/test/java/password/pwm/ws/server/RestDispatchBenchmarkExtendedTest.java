@@ -0,0 +1,140 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.ws.server;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.config.option.WebServiceUsage;
+import password.pwm.http.HttpContentType;
+import password.pwm.http.HttpMethod;
+import password.pwm.util.java.JavaHelper;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nanoseconds to resolve and invoke a rest handler, comparing the dispatch table with the annotation scan and
+ * reflective invocation it replaced.
+ */
+@State( Scope.Thread )
+public class RestDispatchBenchmarkExtendedTest
+{
+    private static final RestResultBean RESULT = RestResultBean.withData( "result" );
+
+    private final Optional<HttpContentType> contentType = Optional.of( HttpContentType.json );
+    private final Optional<HttpContentType> acceptType = Optional.of( HttpContentType.json );
+
+    private BenchmarkServlet servlet;
+    private RestDispatchTable dispatchTable;
+
+    @Test
+    public void
+    launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode ( Mode.AverageTime )
+                .timeUnit( TimeUnit.NANOSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 5 )
+                .threads( 2 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup( Level.Trial )
+    public void setup()
+    {
+        servlet = new BenchmarkServlet();
+        dispatchTable = RestDispatchTable.forClass( BenchmarkServlet.class );
+    }
+
+    @Benchmark
+    public Object tableDispatch()
+            throws Throwable
+    {
+        final RestDispatchTable.Resolution resolution = dispatchTable.resolve( HttpMethod.POST, contentType, acceptType );
+        return ( RestResultBean ) resolution.getHandler().orElseThrow().invokeExact( ( RestServlet ) servlet, ( RestRequest ) null );
+    }
+
+    @Benchmark
+    public Object reflectiveDispatch()
+            throws Exception
+    {
+        for ( final Method method : JavaHelper.getAllMethodsForClass( BenchmarkServlet.class ) )
+        {
+            final RestMethodHandler annotation = method.getAnnotation( RestMethodHandler.class );
+            if ( annotation != null
+                    && Arrays.asList( annotation.method() ).contains( HttpMethod.POST )
+                    && Arrays.asList( annotation.consumes() ).contains( contentType.get() )
+                    && Arrays.asList( annotation.produces() ).contains( acceptType.get() ) )
+            {
+                method.setAccessible( true );
+                return method.invoke( servlet, ( RestRequest ) null );
+            }
+        }
+        throw new IllegalStateException( "no handler" );
+    }
+
+    @RestWebServer( webService = WebServiceUsage.RandomPassword )
+    static class BenchmarkServlet extends RestServlet
+    {
+        @Override
+        public void preCheckRequest( final RestRequest request )
+        {
+        }
+
+        @RestMethodHandler( method = HttpMethod.GET, produces = HttpContentType.plain )
+        private RestResultBean doGetPlain( final RestRequest restRequest )
+        {
+            return RESULT;
+        }
+
+        @RestMethodHandler( method = HttpMethod.POST, consumes = HttpContentType.form, produces = HttpContentType.json )
+        private RestResultBean doPostForm( final RestRequest restRequest )
+        {
+            return RESULT;
+        }
+
+        @RestMethodHandler( method = HttpMethod.POST, consumes = HttpContentType.json, produces = HttpContentType.json )
+        private RestResultBean doPostJson( final RestRequest restRequest )
+        {
+            return RESULT;
+        }
+    }
+}
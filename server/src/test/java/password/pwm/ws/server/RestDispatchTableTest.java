@@ -0,0 +1,81 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.ws.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reflections.Reflections;
+import org.reflections.scanners.SubTypesScanner;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import password.pwm.http.HttpContentType;
+import password.pwm.http.HttpMethod;
+import password.pwm.ws.server.rest.RestRandomPasswordServer;
+
+import java.lang.reflect.Modifier;
+import java.util.Optional;
+
+public class RestDispatchTableTest
+{
+    @Test
+    public void testAllServletsResolve()
+    {
+        final Reflections reflections = new Reflections( new ConfigurationBuilder()
+                .setUrls( ClasspathHelper.forPackage( "password.pwm" ) )
+                .setScanners( new SubTypesScanner() ) );
+
+        for ( final Class<? extends RestServlet> restServlet : reflections.getSubTypesOf( RestServlet.class ) )
+        {
+            if ( !Modifier.isAbstract( restServlet.getModifiers() ) )
+            {
+                Assert.assertNotNull( RestDispatchTable.build( restServlet ).getRestWebServer() );
+            }
+        }
+    }
+
+    @Test
+    public void testResolution()
+    {
+        final RestDispatchTable table = RestDispatchTable.forClass( RestRandomPasswordServer.class );
+
+        Assert.assertTrue( table.resolve( HttpMethod.POST, Optional.of( HttpContentType.json ), Optional.of( HttpContentType.json ) )
+                .getHandler().isPresent() );
+        Assert.assertTrue( table.resolve( HttpMethod.POST, Optional.of( HttpContentType.form ), Optional.of( HttpContentType.json ) )
+                .getHandler().isPresent() );
+        Assert.assertNotSame(
+                table.resolve( HttpMethod.POST, Optional.of( HttpContentType.json ), Optional.of( HttpContentType.json ) ).getHandler().get(),
+                table.resolve( HttpMethod.POST, Optional.of( HttpContentType.form ), Optional.of( HttpContentType.json ) ).getHandler().get() );
+
+        // content type is not considered for methods without a body
+        Assert.assertTrue( table.resolve( HttpMethod.GET, Optional.of( HttpContentType.json ), Optional.of( HttpContentType.plain ) )
+                .getHandler().isPresent() );
+
+        Assert.assertEquals( "HTTP method unavailable",
+                table.resolve( HttpMethod.DELETE, Optional.of( HttpContentType.json ), Optional.of( HttpContentType.json ) ).getErrorMessage() );
+        Assert.assertEquals( "incorrect method, Content-Type header, or Accept header.",
+                table.resolve( HttpMethod.POST, Optional.of( HttpContentType.xml ), Optional.of( HttpContentType.json ) ).getErrorMessage() );
+        Assert.assertEquals( "Accept value is not accepted for this service",
+                table.resolve( HttpMethod.POST, Optional.of( HttpContentType.json ), Optional.of( HttpContentType.png ) ).getErrorMessage() );
+        Assert.assertEquals( "Content-Type header is required",
+                table.resolve( HttpMethod.POST, Optional.empty(), Optional.of( HttpContentType.json ) ).getErrorMessage() );
+    }
+}